@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import com.opengamma.timeseries.date.DateDoubleTimeSeries;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A set of return series aligned on the dates common to all of them, held as a primitive matrix with one row per date and one column
+ * per series. The dates are intersected once for all the series, rather than once per pair of series.
+ */
+public final class AlignedReturnMatrix {
+  /** The common dates, ascending */
+  private final int[] _dates;
+  /** The returns, row-major: the return of series j at date t is at t * number of series + j */
+  private final double[] _returns;
+  /** The number of series */
+  private final int _nSeries;
+
+  /**
+   * @param dates The dates, ascending, not null
+   * @param returns The returns, row-major, not null
+   * @param nSeries The number of series
+   */
+  private AlignedReturnMatrix(final int[] dates, final double[] returns, final int nSeries) {
+    _dates = dates;
+    _returns = returns;
+    _nSeries = nSeries;
+  }
+
+  /**
+   * Aligns return series on the dates they all have.
+   * @param returns The return series, not null or empty
+   * @return The aligned returns
+   */
+  public static AlignedReturnMatrix of(final DateDoubleTimeSeries<?>... returns) {
+    ArgumentChecker.noNulls(returns, "returns");
+    ArgumentChecker.notEmpty(returns, "returns");
+    final int nSeries = returns.length;
+    // intersect the (ascending) dates of all the series
+    int[] dates = returns[0].timesArrayFast();
+    int nDates = dates.length;
+    for (int j = 1; j < nSeries; j++) {
+      final int[] other = returns[j].timesArrayFast();
+      final int[] common = new int[Math.min(nDates, other.length)];
+      int count = 0;
+      int k = 0;
+      for (int i = 0; i < nDates && k < other.length; i++) {
+        while (k < other.length && other[k] < dates[i]) {
+          k++;
+        }
+        if (k < other.length && other[k] == dates[i]) {
+          common[count++] = dates[i];
+          k++;
+        }
+      }
+      dates = common;
+      nDates = count;
+    }
+    final int[] commonDates = new int[nDates];
+    System.arraycopy(dates, 0, commonDates, 0, nDates);
+
+    final double[] data = new double[nDates * nSeries];
+    for (int j = 0; j < nSeries; j++) {
+      final int[] times = returns[j].timesArrayFast();
+      final double[] values = returns[j].valuesArrayFast();
+      int k = 0;
+      for (int t = 0; t < nDates; t++) {
+        while (times[k] != commonDates[t]) {
+          k++;
+        }
+        data[t * nSeries + j] = values[k];
+      }
+    }
+    return new AlignedReturnMatrix(commonDates, data, nSeries);
+  }
+
+  /**
+   * Gets the common dates.
+   * @return The dates, ascending, not a copy
+   */
+  public int[] getDates() {
+    return _dates;
+  }
+
+  /**
+   * Gets the returns.
+   * @return The returns, row-major with one row per date, not a copy
+   */
+  public double[] getReturns() {
+    return _returns;
+  }
+
+  /**
+   * Gets the number of series.
+   * @return The number of series
+   */
+  public int getNumberOfSeries() {
+    return _nSeries;
+  }
+
+  /**
+   * Gets the number of observations, i.e. of common dates.
+   * @return The number of observations
+   */
+  public int getNumberOfObservations() {
+    return _dates.length;
+  }
+
+}
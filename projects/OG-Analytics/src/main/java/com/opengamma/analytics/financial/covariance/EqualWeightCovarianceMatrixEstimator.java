@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Estimates the covariance matrix of return series over a rolling window of the most recent observations, with equal weights:
+ * $$
+ * \begin{eqnarray*}
+ * \sigma_{ij} = \frac{1}{m - 1}\sum\limits_{t=1}^m (x_{i,t} - \overline{x}_i)(x_{j,t} - \overline{x}_j)
+ * \end{eqnarray*}
+ * $$
+ * where $m$ is the number of observations in the window.
+ * <p>
+ * The sums $\sum_t x_{i,t} x_{j,t}$ and $\sum_t x_{i,t}$ over the window are kept, so that a new observation is added, and the oldest one
+ * removed, with two rank one updates. As the means are removed at the end, this is accurate as long as the means of the returns are
+ * small compared to their standard deviations, which is the case for daily returns. The sums are recomputed from the observations in the
+ * window each time the window has been entirely replaced, so that the rounding errors of the updates do not accumulate.
+ */
+public class EqualWeightCovarianceMatrixEstimator extends IncrementalCovarianceMatrixEstimator {
+  /** The maximum number of observations */
+  private final int _windowLength;
+  /** The observations in the window, in a ring buffer of rows */
+  private final double[] _window;
+  /** The sum of the cross-products of the observations in the window, row-major */
+  private double[] _sumOfProducts;
+  /** The sum of the observations in the window */
+  private final double[] _sum;
+  /** The row of the oldest observation in the ring buffer */
+  private int _oldestRow;
+  /** The number of observations in the window */
+  private int _nObservations;
+  /** The number of observations replaced since the sums were computed from the window */
+  private int _nReplaced;
+
+  /**
+   * @param nSeries The number of series, positive
+   * @param windowLength The number of observations in the window, at least two
+   */
+  public EqualWeightCovarianceMatrixEstimator(final int nSeries, final int windowLength) {
+    super(nSeries);
+    ArgumentChecker.isTrue(windowLength > 1, "window length must be at least two");
+    _windowLength = windowLength;
+    _window = new double[windowLength * nSeries];
+    _sumOfProducts = new double[nSeries * nSeries];
+    _sum = new double[nSeries];
+  }
+
+  @Override
+  protected void initialiseFromMatrix(final double[] returns, final int nObservations) {
+    final int n = getNumberOfSeries();
+    final int nUsed = Math.min(nObservations, _windowLength);
+    System.arraycopy(returns, (nObservations - nUsed) * n, _window, 0, nUsed * n);
+    final double[] used = new double[nUsed * n];
+    System.arraycopy(_window, 0, used, 0, nUsed * n);
+    computeSums(used, nUsed);
+    _oldestRow = 0;
+    _nObservations = nUsed;
+  }
+
+  @Override
+  protected void updateWithObservation(final double[] returns) {
+    final int n = getNumberOfSeries();
+    final int row;
+    if (_nObservations == _windowLength) {
+      row = _oldestRow;
+      final double[] oldest = new double[n];
+      System.arraycopy(_window, row * n, oldest, 0, n);
+      addOuterProduct(-1, oldest, _sumOfProducts);
+      for (int j = 0; j < n; j++) {
+        _sum[j] -= oldest[j];
+      }
+      _oldestRow = row + 1 == _windowLength ? 0 : row + 1;
+      _nReplaced++;
+    } else {
+      row = (_oldestRow + _nObservations) % _windowLength;
+      _nObservations++;
+    }
+    System.arraycopy(returns, 0, _window, row * n, n);
+    if (_nReplaced == _windowLength) {
+      // the order of the rows does not matter in the sums
+      computeSums(_window, _windowLength);
+      return;
+    }
+    addOuterProduct(1, returns, _sumOfProducts);
+    for (int j = 0; j < n; j++) {
+      _sum[j] += returns[j];
+    }
+  }
+
+  private void computeSums(final double[] observations, final int nObservations) {
+    final int n = getNumberOfSeries();
+    _sumOfProducts = crossProduct(observations, nObservations);
+    for (int j = 0; j < n; j++) {
+      double sum = 0;
+      for (int t = 0; t < nObservations; t++) {
+        sum += observations[t * n + j];
+      }
+      _sum[j] = sum;
+    }
+    _nReplaced = 0;
+  }
+
+  @Override
+  protected double[] getCovariance() {
+    ArgumentChecker.isTrue(_nObservations > 1, "need at least two observations");
+    final int n = getNumberOfSeries();
+    final double m = _nObservations;
+    final double[] result = new double[n * n];
+    for (int i = 0; i < n; i++) {
+      final double meanI = _sum[i] / m;
+      for (int j = 0; j < n; j++) {
+        result[i * n + j] = (_sumOfProducts[i * n + j] - meanI * _sum[j]) / (m - 1);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public int getNumberOfObservations() {
+    return _nObservations;
+  }
+
+  /**
+   * Gets the maximum number of observations in the window.
+   * @return The window length
+   */
+  public int getWindowLength() {
+    return _windowLength;
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Estimates the covariance matrix of return series with exponentially decreasing weights on older observations:
+ * $$
+ * \begin{eqnarray*}
+ * \Sigma_t = \lambda \Sigma_{t-1} + (1 - \lambda) r_t r_t^T
+ * \end{eqnarray*}
+ * $$
+ * where $r_t$ is the vector of returns at date $t$, starting from $\Sigma_1 = r_1 r_1^T$. As in
+ * {@link ExponentialWeightedMovingAverageHistoricalVolatilityCalculator}, the returns are assumed to have a zero mean, and the square
+ * roots of the diagonal elements are the EWMA volatilities of the series.
+ * <p>
+ * The estimate from a history of returns is computed in one blocked matrix product, the weight of the return at date $t$ being
+ * $(1 - \lambda)\lambda^{T - t}$ (and $\lambda^{T - 1}$ for the first date); each new date is then a rank one update.
+ */
+public class ExponentialWeightedMovingAverageCovarianceMatrixEstimator extends IncrementalCovarianceMatrixEstimator {
+  /** Lambda, the weighting parameter */
+  private final double _lambda;
+  /** The covariance matrix, row-major */
+  private double[] _covariance;
+  /** The number of observations */
+  private int _nObservations;
+
+  /**
+   * @param nSeries The number of series, positive
+   * @param lambda The weighting parameter, between 0 and 1
+   */
+  public ExponentialWeightedMovingAverageCovarianceMatrixEstimator(final int nSeries, final double lambda) {
+    super(nSeries);
+    ArgumentChecker.isTrue(ArgumentChecker.isInRangeInclusive(0, 1, lambda), "lambda must be between 0 and 1, have {}", lambda);
+    _lambda = lambda;
+    _covariance = new double[nSeries * nSeries];
+  }
+
+  @Override
+  protected void initialiseFromMatrix(final double[] returns, final int nObservations) {
+    final int n = getNumberOfSeries();
+    // scale each observation by the square root of its weight, so that the weighted sum is a cross-product
+    final double[] weighted = new double[nObservations * n];
+    double decay = 1;
+    for (int t = nObservations - 1; t >= 0; t--) {
+      final double scale = Math.sqrt(t == 0 ? decay : (1 - _lambda) * decay);
+      for (int j = 0; j < n; j++) {
+        weighted[t * n + j] = scale * returns[t * n + j];
+      }
+      decay *= _lambda;
+    }
+    _covariance = crossProduct(weighted, nObservations);
+    _nObservations = nObservations;
+  }
+
+  @Override
+  protected void updateWithObservation(final double[] returns) {
+    final int size = _covariance.length;
+    for (int k = 0; k < size; k++) {
+      _covariance[k] *= _lambda;
+    }
+    addOuterProduct(1 - _lambda, returns, _covariance);
+    _nObservations++;
+  }
+
+  @Override
+  protected double[] getCovariance() {
+    return _covariance.clone();
+  }
+
+  @Override
+  public int getNumberOfObservations() {
+    return _nObservations;
+  }
+
+  /**
+   * Gets the weighting parameter.
+   * @return lambda
+   */
+  public double getLambda() {
+    return _lambda;
+  }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import com.opengamma.analytics.math.matrix.DenseMatrixKernels;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Base class for the estimation of the covariance matrix of many return series at once, from the returns held as a primitive matrix
+ * rather than pair by pair from time series.
+ * <p>
+ * The estimate is first computed from a history of returns with a blocked (and, for large matrices, parallel) matrix product, then
+ * updated in $O(n^2)$ operations each time the returns of a new date are observed. The estimators are not thread-safe.
+ */
+public abstract class IncrementalCovarianceMatrixEstimator {
+  /** The number of series */
+  private final int _nSeries;
+
+  /**
+   * @param nSeries The number of series, positive
+   */
+  protected IncrementalCovarianceMatrixEstimator(final int nSeries) {
+    ArgumentChecker.isTrue(nSeries > 0, "number of series must be positive");
+    _nSeries = nSeries;
+  }
+
+  /**
+   * Computes the estimate from aligned return series.
+   * @param returns The returns, not null
+   */
+  public void initialise(final AlignedReturnMatrix returns) {
+    ArgumentChecker.notNull(returns, "returns");
+    ArgumentChecker.isTrue(returns.getNumberOfSeries() == _nSeries, "have {} series, expected {}", returns.getNumberOfSeries(), _nSeries);
+    initialise(returns.getReturns(), returns.getNumberOfObservations());
+  }
+
+  /**
+   * Computes the estimate from a history of returns, replacing any previous estimate.
+   * @param returns The returns, row-major with one row per date (oldest first) and one column per series, not null
+   * @param nObservations The number of dates, positive
+   */
+  public void initialise(final double[] returns, final int nObservations) {
+    ArgumentChecker.notNull(returns, "returns");
+    ArgumentChecker.isTrue(nObservations > 0, "need at least one observation");
+    ArgumentChecker.isTrue(returns.length == nObservations * _nSeries, "have {} returns for {} observations of {} series", returns.length, nObservations, _nSeries);
+    initialiseFromMatrix(returns, nObservations);
+  }
+
+  /**
+   * Updates the estimate with the returns of a new date.
+   * @param returns The returns of each series, not null
+   */
+  public void update(final double[] returns) {
+    ArgumentChecker.notNull(returns, "returns");
+    ArgumentChecker.isTrue(returns.length == _nSeries, "have {} returns, expected {}", returns.length, _nSeries);
+    ArgumentChecker.isTrue(getNumberOfObservations() > 0, "estimator has not been initialised");
+    updateWithObservation(returns);
+  }
+
+  /**
+   * Gets the covariance matrix.
+   * @return The covariance matrix
+   */
+  public DoubleMatrix2D getCovarianceMatrix() {
+    ArgumentChecker.isTrue(getNumberOfObservations() > 0, "estimator has not been initialised");
+    return DenseMatrixKernels.toMatrix(getCovariance(), _nSeries, _nSeries);
+  }
+
+  /**
+   * Gets the number of series.
+   * @return The number of series
+   */
+  public int getNumberOfSeries() {
+    return _nSeries;
+  }
+
+  /**
+   * Gets the number of observations the estimate is based on.
+   * @return The number of observations
+   */
+  public abstract int getNumberOfObservations();
+
+  /**
+   * Computes the estimate from a history of returns.
+   * @param returns The returns, row-major, nObservations x number of series
+   * @param nObservations The number of observations
+   */
+  protected abstract void initialiseFromMatrix(double[] returns, int nObservations);
+
+  /**
+   * Updates the estimate with a new observation.
+   * @param returns The returns of each series
+   */
+  protected abstract void updateWithObservation(double[] returns);
+
+  /**
+   * Gets the covariance matrix.
+   * @return The covariance matrix, row-major
+   */
+  protected abstract double[] getCovariance();
+
+  /**
+   * Computes the cross-product $X^T X$ of a matrix of observations with a blocked matrix product.
+   * @param x The observations, row-major, nObservations x number of series
+   * @param nObservations The number of observations
+   * @return The cross-product, row-major
+   */
+  protected double[] crossProduct(final double[] x, final int nObservations) {
+    final double[] xT = new double[nObservations * _nSeries];
+    DenseMatrixKernels.transpose(x, nObservations, _nSeries, xT);
+    final double[] result = new double[_nSeries * _nSeries];
+    DenseMatrixKernels.multiply(xT, x, result, _nSeries, nObservations, _nSeries);
+    return result;
+  }
+
+  /**
+   * Adds the rank one matrix $\alpha u u^T$ to a matrix.
+   * @param alpha The factor
+   * @param u The vector
+   * @param matrix The matrix, row-major, updated
+   */
+  protected void addOuterProduct(final double alpha, final double[] u, final double[] matrix) {
+    DenseMatrixKernels.multiplyAdd(alpha, u, 0, 1, u, 0, _nSeries, matrix, 0, _nSeries, _nSeries, 1, _nSeries);
+  }
+
+}
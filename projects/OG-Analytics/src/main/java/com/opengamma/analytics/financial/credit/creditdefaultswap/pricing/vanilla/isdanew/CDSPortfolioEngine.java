@@ -0,0 +1,307 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.vanilla.isdanew;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+
+import com.opengamma.analytics.financial.credit.PriceType;
+import com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.vanilla.isdanew.FastCreditCurveBuilder.Pricer;
+import com.opengamma.analytics.math.linearalgebra.LUDecompositionCommons;
+import com.opengamma.analytics.math.linearalgebra.LUDecompositionResult;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.util.ParallelRanges;
+import com.opengamma.analytics.util.ParallelRanges.RangeTask;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Calibrates, prices and computes the spread sensitivities of CDSs on many names (e.g. the constituents of a CDS index) which are all
+ * quoted on the same pillar CDSs (same IMM dates) and discounted with the same yield curve.
+ * <p>
+ * The premium leg schedules, integration points and discount factors of the pillar CDSs (and of the priced CDS) depend only on the dates,
+ * so they are computed once and shared by all the names; only the recovery rates and the quotes differ between names. The names are divided
+ * in contiguous ranges which are processed in parallel.
+ * <p>
+ * The bucketed CS01 are computed analytically: the sensitivities of the PV to the zero hazard rates of the credit curve are converted to
+ * sensitivities to the pillar par spreads with the Jacobian of the par spreads with respect to the hazard rates, which is decomposed once per
+ * name - rather than bootstrapping a new credit curve for each bumped spread.
+ */
+public class CDSPortfolioEngine {
+
+  private final FastCreditCurveBuilder _curveBuilder;
+  private final AnalyticCDSPricer _pricer;
+  private final ExecutorService _executor;
+  private final int _parallelism;
+
+  /**
+   * Engine using a shared pool with one thread per available processor. For consistency with the ISDA model version 1.8.2 and lower,
+   * a bug in the accrual on default calculation has been reproduced.
+   */
+  public CDSPortfolioEngine() {
+    this(false);
+  }
+
+  /**
+   * Engine using a shared pool with one thread per available processor.
+   * @param useCorrectAccOnDefaultFormula Set to true to use correct accrual on default formulae.
+   */
+  public CDSPortfolioEngine(final boolean useCorrectAccOnDefaultFormula) {
+    this(useCorrectAccOnDefaultFormula, ParallelRanges.getSharedExecutor(), ParallelRanges.getSharedParallelism());
+  }
+
+  /**
+   * @param useCorrectAccOnDefaultFormula Set to true to use correct accrual on default formulae.
+   * @param executor The executor, null to run in the calling thread
+   * @param parallelism The maximum number of concurrent tasks, positive
+   */
+  public CDSPortfolioEngine(final boolean useCorrectAccOnDefaultFormula, final ExecutorService executor, final int parallelism) {
+    ArgumentChecker.isTrue(parallelism > 0, "parallelism must be positive");
+    _curveBuilder = new FastCreditCurveBuilder(useCorrectAccOnDefaultFormula);
+    _pricer = new AnalyticCDSPricer(useCorrectAccOnDefaultFormula);
+    _executor = executor;
+    _parallelism = parallelism;
+  }
+
+  //***************************************************************************************************************
+  // calibration
+  //***************************************************************************************************************
+
+  /**
+   * Bootstrap the credit curves of many names from the par spreads of the same pillar CDSs.
+   * @param pillarCDSs The pillar CDSs - only their dates are used, the recovery rate is that of each name
+   * @param recoveryRates The recovery rate of each name
+   * @param parSpreads The <b>fractional</b> par spreads of the pillar CDSs, by name
+   * @param yieldCurve The yield (or discount) curve
+   * @return The credit curves, by name
+   */
+  public ISDACompliantCreditCurve[] calibrateCreditCurves(final CDSAnalytic[] pillarCDSs, final double[] recoveryRates, final double[][] parSpreads,
+      final ISDACompliantYieldCurve yieldCurve) {
+    ArgumentChecker.noNulls(parSpreads, "parSpreads");
+    final double[][] pointsUpfront = new double[parSpreads.length][];
+    for (int i = 0; i < parSpreads.length; i++) {
+      pointsUpfront[i] = new double[parSpreads[i].length];
+    }
+    return calibrateCreditCurves(pillarCDSs, recoveryRates, parSpreads, pointsUpfront, yieldCurve);
+  }
+
+  /**
+   * Bootstrap the credit curves of many names from the points up-front and standard premiums of the same pillar CDSs.
+   * @param pillarCDSs The pillar CDSs - only their dates are used, the recovery rate is that of each name
+   * @param recoveryRates The recovery rate of each name
+   * @param premiums The standard premiums (coupons) as fractions, by name
+   * @param pointsUpfront The points up-front as fractions of notional, by name
+   * @param yieldCurve The yield (or discount) curve
+   * @return The credit curves, by name
+   */
+  public ISDACompliantCreditCurve[] calibrateCreditCurves(final CDSAnalytic[] pillarCDSs, final double[] recoveryRates, final double[][] premiums,
+      final double[][] pointsUpfront, final ISDACompliantYieldCurve yieldCurve) {
+    ArgumentChecker.noNulls(pillarCDSs, "pillarCDSs");
+    ArgumentChecker.notEmpty(recoveryRates, "recoveryRates");
+    ArgumentChecker.noNulls(premiums, "premiums");
+    ArgumentChecker.noNulls(pointsUpfront, "pointsUpfront");
+    ArgumentChecker.notNull(yieldCurve, "yieldCurve");
+    final int nNames = recoveryRates.length;
+    ArgumentChecker.isTrue(nNames == premiums.length, nNames + " recovery rates but " + premiums.length + " sets of premiums");
+    ArgumentChecker.isTrue(nNames == pointsUpfront.length, nNames + " recovery rates but " + pointsUpfront.length + " sets of points up-front");
+
+    final Pricer[] pricers = _curveBuilder.getPricers(pillarCDSs, yieldCurve);
+    final ISDACompliantCreditCurve[] res = new ISDACompliantCreditCurve[nNames];
+    run(nNames, new NameTask() {
+      @Override
+      public void evaluate(final int name) {
+        res[name] = _curveBuilder.calibrateCreditCurve(pricers, recoveryRates[name], premiums[name], pointsUpfront[name]);
+      }
+    });
+    return res;
+  }
+
+  //***************************************************************************************************************
+  // pricing
+  //***************************************************************************************************************
+
+  /**
+   * The present values (for the buyer of protection, per unit of notional) of a CDS with the same dates on many names.
+   * @param cds The CDS - only its dates are used, the recovery rate is that of each name
+   * @param recoveryRates The recovery rate of each name
+   * @param coupons The <b>fractional</b> coupon (premium) of the CDS on each name
+   * @param yieldCurve The yield (or discount) curve
+   * @param creditCurves The credit curves, by name
+   * @param cleanOrDirty Clean or dirty price
+   * @return The present values, by name
+   */
+  public double[] pv(final CDSAnalytic cds, final double[] recoveryRates, final double[] coupons, final ISDACompliantYieldCurve yieldCurve,
+      final ISDACompliantCreditCurve[] creditCurves, final PriceType cleanOrDirty) {
+    ArgumentChecker.notNull(cds, "cds");
+    ArgumentChecker.notEmpty(recoveryRates, "recoveryRates");
+    ArgumentChecker.notEmpty(coupons, "coupons");
+    ArgumentChecker.notNull(yieldCurve, "yieldCurve");
+    ArgumentChecker.noNulls(creditCurves, "creditCurves");
+    ArgumentChecker.notNull(cleanOrDirty, "cleanOrDirty");
+    final int nNames = recoveryRates.length;
+    ArgumentChecker.isTrue(nNames == coupons.length, nNames + " recovery rates but " + coupons.length + " coupons");
+    ArgumentChecker.isTrue(nNames == creditCurves.length, nNames + " recovery rates but " + creditCurves.length + " credit curves");
+
+    final double[] res = new double[nNames];
+    if (cds.getProtectionEnd() <= 0.0) { //short cut already expired CDSs
+      return res;
+    }
+    // the schedule is shared by the names whose credit curves have the same knots as the first one (normally all of them)
+    final double[] knots = creditCurves[0].getKnotTimes();
+    final Pricer pricer = _curveBuilder.getPricer(cds, yieldCurve, knots);
+    run(nNames, new NameTask() {
+      @Override
+      public void evaluate(final int name) {
+        final ISDACompliantCreditCurve creditCurve = creditCurves[name];
+        if (Arrays.equals(knots, creditCurve.getKnotTimes())) {
+          final Pricer namePricer = pricer.withQuote(1 - recoveryRates[name], coupons[name], 0.0);
+          res[name] = namePricer.protectionLeg(creditCurve) - coupons[name] * namePricer.rpv01(creditCurve, cleanOrDirty);
+        } else {
+          res[name] = _pricer.pv(cds.withRecoveryRate(recoveryRates[name]), yieldCurve, creditCurve, coupons[name], cleanOrDirty);
+        }
+      }
+    });
+    return res;
+  }
+
+  //***************************************************************************************************************
+  // spread sensitivity
+  //***************************************************************************************************************
+
+  /**
+   * The bucketed CS01 of a CDS with the same dates on many names: the sensitivity of the PV (for the buyer of protection, per unit of notional)
+   * to the par spread of each pillar CDS, the credit curve being the one bootstrapped from these par spreads. This is the analytic
+   * derivative, so multiply by 1e-4 to get the change in PV for a 1bp move of each spread.
+   * @param cds The CDS - only its dates are used, the recovery rate is that of each name
+   * @param recoveryRates The recovery rate of each name
+   * @param coupons The <b>fractional</b> coupon (premium) of the CDS on each name
+   * @param pillarCDSs The pillar CDSs the credit curves were built from
+   * @param yieldCurve The yield (or discount) curve
+   * @param creditCurves The credit curves, by name, with knots at the protection ends of the pillar CDSs
+   * @return The bucketed CS01, by name and pillar
+   */
+  public double[][] bucketedCS01(final CDSAnalytic cds, final double[] recoveryRates, final double[] coupons, final CDSAnalytic[] pillarCDSs,
+      final ISDACompliantYieldCurve yieldCurve, final ISDACompliantCreditCurve[] creditCurves) {
+    ArgumentChecker.notNull(cds, "cds");
+    ArgumentChecker.notEmpty(recoveryRates, "recoveryRates");
+    ArgumentChecker.notEmpty(coupons, "coupons");
+    ArgumentChecker.noNulls(pillarCDSs, "pillarCDSs");
+    ArgumentChecker.notNull(yieldCurve, "yieldCurve");
+    ArgumentChecker.noNulls(creditCurves, "creditCurves");
+    final int nNames = recoveryRates.length;
+    ArgumentChecker.isTrue(nNames == coupons.length, nNames + " recovery rates but " + coupons.length + " coupons");
+    ArgumentChecker.isTrue(nNames == creditCurves.length, nNames + " recovery rates but " + creditCurves.length + " credit curves");
+    final int nPillars = pillarCDSs.length;
+    for (int i = 0; i < nNames; i++) {
+      ArgumentChecker.isTrue(creditCurves[i].getNumberOfKnots() == nPillars, "credit curve " + i + " does not have one knot per pillar CDS");
+    }
+
+    final double[][] res = new double[nNames][];
+    if (cds.getProtectionEnd() <= 0.0) { //short cut already expired CDSs
+      for (int i = 0; i < nNames; i++) {
+        res[i] = new double[nPillars];
+      }
+      return res;
+    }
+    // the schedules of the pillar CDSs and of the CDS are shared by the names whose credit curves have knots at the pillar protection ends
+    final Pricer[] pillarPricers = _curveBuilder.getPricers(pillarCDSs, yieldCurve);
+    final double[] knots = pillarPricers[0].getCreditCurveKnots();
+    final Pricer pricer = _curveBuilder.getPricer(cds, yieldCurve, knots);
+    run(nNames, new NameTask() {
+      @Override
+      public void evaluate(final int name) {
+        if (Arrays.equals(knots, creditCurves[name].getKnotTimes())) {
+          res[name] = bucketedCS01(pricer, pillarPricers, recoveryRates[name], coupons[name], creditCurves[name]);
+        } else {
+          res[name] = bucketedCS01(cds, recoveryRates[name], coupons[name], pillarCDSs, yieldCurve, creditCurves[name]);
+        }
+      }
+    });
+    return res;
+  }
+
+  private double[] bucketedCS01(final Pricer pricer, final Pricer[] pillarPricers, final double recoveryRate, final double coupon,
+      final ISDACompliantCreditCurve creditCurve) {
+    final int n = pillarPricers.length;
+    final double lgd = 1 - recoveryRate;
+
+    // transposed Jacobian of the pillar par spreads with respect to the zero hazard rates; the legs of each pillar are valued once
+    final double[][] jacT = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      final Pricer pillar = pillarPricers[i].withQuote(lgd, 0.0, 0.0);
+      final double a = pillar.protectionLeg(creditCurve);
+      final double b = pillar.rpv01(creditCurve, PriceType.CLEAN);
+      final double spread = a / b;
+      for (int j = 0; j < n; j++) {
+        final double dadh = pillar.protectionLegCreditSensitivity(creditCurve, j);
+        final double dbdh = pillar.rpv01CreditSensitivity(creditCurve, j);
+        jacT[j][i] = spread * (dadh / a - dbdh / b);
+      }
+    }
+
+    final Pricer namePricer = pricer.withQuote(lgd, coupon, 0.0);
+    final double[] vLambda = new double[n];
+    for (int j = 0; j < n; j++) {
+      vLambda[j] = namePricer.protectionLegCreditSensitivity(creditCurve, j) - coupon * namePricer.rpv01CreditSensitivity(creditCurve, j);
+    }
+    final LUDecompositionResult luRes = new LUDecompositionCommons().evaluate(new DoubleMatrix2D(jacT));
+    return luRes.solve(vLambda);
+  }
+
+  private double[] bucketedCS01(final CDSAnalytic cds, final double recoveryRate, final double coupon, final CDSAnalytic[] pillarCDSs, final ISDACompliantYieldCurve yieldCurve,
+      final ISDACompliantCreditCurve creditCurve) {
+    final int n = pillarCDSs.length;
+    final CDSAnalytic nameCDS = cds.withRecoveryRate(recoveryRate);
+
+    // transposed Jacobian of the pillar par spreads with respect to the zero hazard rates; the legs of each pillar are valued once
+    final double[][] jacT = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      final CDSAnalytic pillar = pillarCDSs[i].withRecoveryRate(recoveryRate);
+      final double a = _pricer.protectionLeg(pillar, yieldCurve, creditCurve);
+      final double b = _pricer.pvPremiumLegPerUnitSpread(pillar, yieldCurve, creditCurve, PriceType.CLEAN);
+      final double spread = a / b;
+      for (int j = 0; j < n; j++) {
+        final double dadh = _pricer.protectionLegCreditSensitivity(pillar, yieldCurve, creditCurve, j);
+        final double dbdh = _pricer.pvPremiumLegCreditSensitivity(pillar, yieldCurve, creditCurve, j);
+        jacT[j][i] = spread * (dadh / a - dbdh / b);
+      }
+    }
+
+    final double[] vLambda = new double[n];
+    for (int j = 0; j < n; j++) {
+      vLambda[j] = _pricer.pvCreditSensitivity(nameCDS, yieldCurve, creditCurve, coupon, j);
+    }
+    final LUDecompositionResult luRes = new LUDecompositionCommons().evaluate(new DoubleMatrix2D(jacT));
+    return luRes.solve(vLambda);
+  }
+
+  //***************************************************************************************************************
+  // parallel execution
+  //***************************************************************************************************************
+
+  /**
+   * The work done for one name.
+   */
+  private interface NameTask {
+    void evaluate(int name);
+  }
+
+  /**
+   * Runs a task on all the names, in contiguous ranges of names; the calling thread runs the first range.
+   * @param nNames The number of names
+   * @param task The task
+   */
+  private void run(final int nNames, final NameTask task) {
+    ParallelRanges.run(_executor, _parallelism, nNames, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        for (int name = first; name < last; name++) {
+          task.evaluate(name);
+        }
+      }
+    });
+  }
+
+}
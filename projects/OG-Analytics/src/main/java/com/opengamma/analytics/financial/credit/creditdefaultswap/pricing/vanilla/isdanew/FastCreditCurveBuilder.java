@@ -9,6 +9,7 @@ import static com.opengamma.analytics.financial.credit.creditdefaultswap.pricing
 import static com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.vanilla.isdanew.DoublesScheduleGenerator.truncateSetInclusive;
 import static com.opengamma.analytics.math.utilities.Epsilon.epsilon;
 import static com.opengamma.analytics.math.utilities.Epsilon.epsilonP;
+import static com.opengamma.analytics.math.utilities.Epsilon.epsilonPP;
 
 import org.threeten.bp.LocalDate;
 import org.threeten.bp.Period;
@@ -179,24 +180,87 @@ public class FastCreditCurveBuilder implements ISDACompliantCreditCurveBuilder {
     final int n = cds.length;
     ArgumentChecker.isTrue(n == premiums.length, "Number of CDSs does not match number of spreads");
     ArgumentChecker.isTrue(n == pointsUpfront.length, "Number of CDSs does not match number of pointsUpfront");
+    final Pricer[] pricers = getPricers(cds, yieldCurve);
+    for (int i = 0; i < n; i++) {
+      pricers[i] = pricers[i].withQuote(cds[i].getLGD(), premiums[i], pointsUpfront[i]);
+    }
+    return bootstrap(pricers, premiums, pointsUpfront);
+  }
+
+  /**
+   * The pricers of a set of calibration CDSs (with a zero premium), which can be shared by all the credit curves built from CDSs with
+   * the same dates, whatever their recovery rates and quotes.
+   * @param cds The calibration CDSs, with ascending protection ends and the same protection start
+   * @param yieldCurve The yield (or discount) curve
+   * @return The pricers
+   */
+  Pricer[] getPricers(final CDSAnalytic[] cds, final ISDACompliantYieldCurve yieldCurve) {
+    ArgumentChecker.noNulls(cds, "null CDSs");
+    ArgumentChecker.notNull(yieldCurve, "null yieldCurve");
+    final int n = cds.length;
     final double proStart = cds[0].getProtectionStart();
     for (int i = 1; i < n; i++) {
       ArgumentChecker.isTrue(proStart == cds[i].getProtectionStart(), "all CDSs must has same protection start");
       ArgumentChecker.isTrue(cds[i].getProtectionEnd() > cds[i - 1].getProtectionEnd(), "protection end must be ascending");
     }
+    final double[] t = new double[n];
+    for (int i = 0; i < n; i++) {
+      t[i] = cds[i].getProtectionEnd();
+    }
+    final Pricer[] pricers = new Pricer[n];
+    for (int i = 0; i < n; i++) {
+      pricers[i] = new Pricer(cds[i], yieldCurve, t, 0.0, 0.0);
+    }
+    return pricers;
+  }
+
+  /**
+   * A pricer (with a zero premium) for a CDS priced off credit curves with the given knots, which can be shared by all the names.
+   * @param cds The CDS
+   * @param yieldCurve The yield (or discount) curve
+   * @param creditCurveKnots The knots of the credit curves
+   * @return The pricer
+   */
+  Pricer getPricer(final CDSAnalytic cds, final ISDACompliantYieldCurve yieldCurve, final double[] creditCurveKnots) {
+    ArgumentChecker.notNull(cds, "null CDS");
+    ArgumentChecker.notNull(yieldCurve, "null yieldCurve");
+    ArgumentChecker.notEmpty(creditCurveKnots, "creditCurveKnots");
+    return new Pricer(cds, yieldCurve, creditCurveKnots, 0.0, 0.0);
+  }
+
+  /**
+   * Bootstrap the credit curve of one name from pricers shared with other names (see {@link #getPricers(CDSAnalytic[], ISDACompliantYieldCurve)}).
+   * @param pricers The pricers of the calibration CDSs
+   * @param recoveryRate The recovery rate of the name
+   * @param premiums The standard premiums (or par spreads) as fractions
+   * @param pointsUpfront The points up-front as fractions of notional
+   * @return The credit curve
+   */
+  ISDACompliantCreditCurve calibrateCreditCurve(final Pricer[] pricers, final double recoveryRate, final double[] premiums, final double[] pointsUpfront) {
+    final int n = pricers.length;
+    ArgumentChecker.isTrue(n == premiums.length, "Number of CDSs does not match number of spreads");
+    ArgumentChecker.isTrue(n == pointsUpfront.length, "Number of CDSs does not match number of pointsUpfront");
+    ArgumentChecker.isTrue(ArgumentChecker.isInRangeExcludingHigh(0, 1.0, recoveryRate), "Recovery rate must be in [0, 1)");
+    final Pricer[] namePricers = new Pricer[n];
+    for (int i = 0; i < n; i++) {
+      namePricers[i] = pricers[i].withQuote(1 - recoveryRate, premiums[i], pointsUpfront[i]);
+    }
+    return bootstrap(namePricers, premiums, pointsUpfront);
+  }
+
+  private ISDACompliantCreditCurve bootstrap(final Pricer[] pricers, final double[] premiums, final double[] pointsUpfront) {
+    final int n = pricers.length;
+    final double[] t = pricers[0]._ccKnotTimes;
 
     // use continuous premiums as initial guess
     final double[] guess = new double[n];
-    final double[] t = new double[n];
     for (int i = 0; i < n; i++) {
-      t[i] = cds[i].getProtectionEnd();
-      guess[i] = (premiums[i] + pointsUpfront[i] / t[i]) / cds[i].getLGD();
+      guess[i] = (premiums[i] + pointsUpfront[i] / t[i]) / pricers[i]._lgd;
     }
 
     ISDACompliantCreditCurve creditCurve = new ISDACompliantCreditCurve(t, guess);
     for (int i = 0; i < n; i++) {
-      final Pricer pricer = new Pricer(cds[i], yieldCurve, t, premiums[i], pointsUpfront[i]);
-      final Function1D<Double, Double> func = pricer.getPointFunction(i, creditCurve);
+      final Function1D<Double, Double> func = pricers[i].getPointFunction(i, creditCurve);
 
       switch (_arbHandling) {
         case Ignore: {
@@ -272,7 +336,7 @@ public class FastCreditCurveBuilder implements ISDACompliantCreditCurveBuilder {
     ArgumentChecker.notNull(tenor, "null tenor");
     ArgumentChecker.notNull(stubType, "null stubType");
     ArgumentChecker.notNull(yieldCurve, "null yieldCurve");
-    ArgumentChecker.isInRangeExcludingHigh(0, 1.0, recoveryRate);
+    ArgumentChecker.isTrue(ArgumentChecker.isInRangeExcludingHigh(0, 1.0, recoveryRate), "Recovery rate must be in [0, 1)");
     ArgumentChecker.isFalse(valueDate.isBefore(today), "Require valueDate >= today");
     ArgumentChecker.isFalse(stepinDate.isBefore(today), "Require stepin >= today");
 
@@ -293,6 +357,7 @@ public class FastCreditCurveBuilder implements ISDACompliantCreditCurveBuilder {
   protected class Pricer {
 
     private final CDSAnalytic _cds;
+    private final double _lgd;
     private final double _lgdDF;
     private final double _valuationDF;
     private final double _fracSpread;
@@ -325,9 +390,9 @@ public class FastCreditCurveBuilder implements ISDACompliantCreditCurveBuilder {
       // protection leg
       _proLegIntPoints = getIntegrationsPoints(cds.getProtectionStart(), cds.getProtectionEnd(), yieldCurve.getKnotTimes(), creditCurveKnots);
       _nProPoints = _proLegIntPoints.length;
-      final double lgd = cds.getLGD();
+      _lgd = cds.getLGD();
       _valuationDF = yieldCurve.getDiscountFactor(cds.getValuationTime());
-      _lgdDF = lgd / _valuationDF;
+      _lgdDF = _lgd / _valuationDF;
       _proYieldCurveRT = new double[_nProPoints];
       _proDF = new double[_nProPoints];
       for (int i = 0; i < _nProPoints; i++) {
@@ -390,6 +455,47 @@ public class FastCreditCurveBuilder implements ISDACompliantCreditCurveBuilder {
 
     }
 
+    private Pricer(final Pricer from, final double lgd, final double fractionalSpread, final double pointsUpfront) {
+      _cds = from._cds;
+      _lgd = lgd;
+      _valuationDF = from._valuationDF;
+      _lgdDF = lgd / from._valuationDF;
+      _fracSpread = fractionalSpread;
+      _pointsUpfront = pointsUpfront;
+      _ccKnotTimes = from._ccKnotTimes;
+      _nProPoints = from._nProPoints;
+      _proLegIntPoints = from._proLegIntPoints;
+      _proYieldCurveRT = from._proYieldCurveRT;
+      _proDF = from._proDF;
+      _nPayments = from._nPayments;
+      _paymentDF = from._paymentDF;
+      _premLegIntPoints = from._premLegIntPoints;
+      _premDF = from._premDF;
+      _rt = from._rt;
+      _premDt = from._premDt;
+      _accRate = from._accRate;
+      _offsetAccStart = from._offsetAccStart;
+    }
+
+    /**
+     * A pricer for the same CDS with another loss-given-default and quote; the schedules and discount factors are shared.
+     * @param lgd The loss-given-default
+     * @param fractionalSpread The <b>fraction</b> spread (or premium)
+     * @param pointsUpfront The points up-front as a fraction of notional
+     * @return The pricer
+     */
+    public Pricer withQuote(final double lgd, final double fractionalSpread, final double pointsUpfront) {
+      return new Pricer(this, lgd, fractionalSpread, pointsUpfront);
+    }
+
+    /**
+     * Gets the knots of the credit curves priced.
+     * @return The credit curve knots
+     */
+    public double[] getCreditCurveKnots() {
+      return _ccKnotTimes;
+    }
+
     public Function1D<Double, Double> getPointFunction(final int index, final double[] zeroHazardRates) {
       final ISDACompliantCreditCurve creditCurve = new ISDACompliantCreditCurve(_ccKnotTimes, zeroHazardRates);
       return getPointFunction(index, creditCurve);
@@ -532,6 +638,168 @@ public class FastCreditCurveBuilder implements ISDACompliantCreditCurveBuilder {
       return pv;
     }
 
+    /**
+     * The sensitivity of the protection leg to the zero hazard rate of a node of the credit curve, as
+     * {@link AnalyticCDSPricer#protectionLegCreditSensitivity} but with the schedules and discount factors of the pricer.
+     * @param creditCurve The credit curve, with the knots of the pricer
+     * @param creditCurveNode The credit curve node
+     * @return The sensitivity (on a unit notional)
+     */
+    public double protectionLegCreditSensitivity(final ISDACompliantCreditCurve creditCurve, final int creditCurveNode) {
+      final int nKnots = _ccKnotTimes.length;
+      if ((creditCurveNode != 0 && _cds.getProtectionEnd() <= _ccKnotTimes[creditCurveNode - 1]) ||
+          (creditCurveNode != nKnots - 1 && _cds.getProtectionStart() >= _ccKnotTimes[creditCurveNode + 1])) {
+        return 0.0; // can't have any sensitivity in this case
+      }
+
+      double ht0 = creditCurve.getRT(_proLegIntPoints[0]);
+      double rt0 = _proYieldCurveRT[0];
+      double dqdr0 = creditCurve.getSingleNodeDiscountFactorSensitivity(_proLegIntPoints[0], creditCurveNode);
+      double q0 = Math.exp(-ht0);
+      double p0 = _proDF[0];
+      double pvSense = 0.0;
+      for (int i = 1; i < _nProPoints; ++i) {
+        final double ht1 = creditCurve.getRT(_proLegIntPoints[i]);
+        final double dqdr1 = creditCurve.getSingleNodeDiscountFactorSensitivity(_proLegIntPoints[i], creditCurveNode);
+        final double rt1 = _proYieldCurveRT[i];
+        final double q1 = Math.exp(-ht1);
+        final double p1 = _proDF[i];
+
+        if (dqdr0 != 0.0 || dqdr1 != 0.0) {
+          final double hBar = ht1 - ht0;
+          final double fBar = rt1 - rt0;
+          final double fhBar = hBar + fBar;
+          if (Math.abs(fhBar) < 1e-5) {
+            final double e = epsilon(-fhBar);
+            final double eP = epsilonP(-fhBar);
+            final double dPVdq0 = p0 * ((1 + hBar) * e - hBar * eP);
+            final double dPVdq1 = -p0 * q0 / q1 * (e - hBar * eP);
+            pvSense += dPVdq0 * dqdr0 + dPVdq1 * dqdr1;
+          } else {
+            final double w = fBar / fhBar * (p0 * q0 - p1 * q1);
+            pvSense += ((w / q0 + hBar * p0) / fhBar) * dqdr0 - ((w / q1 + hBar * p1) / fhBar) * dqdr1;
+          }
+        }
+        ht0 = ht1;
+        dqdr0 = dqdr1;
+        rt0 = rt1;
+        p0 = p1;
+        q0 = q1;
+      }
+      return pvSense * _lgdDF;
+    }
+
+    /**
+     * The sensitivity of the RPV01 to the zero hazard rate of a node of the credit curve, as
+     * {@link AnalyticCDSPricer#pvPremiumLegCreditSensitivity} but with the schedules and discount factors of the pricer.
+     * @param creditCurve The credit curve, with the knots of the pricer
+     * @param creditCurveNode The credit curve node
+     * @return The sensitivity (on a unit notional)
+     */
+    public double rpv01CreditSensitivity(final ISDACompliantCreditCurve creditCurve, final int creditCurveNode) {
+      final double obsOffset = _cds.isProtectionFromStartOfDay() ? -_cds.getCurveOneDay() : 0.0;
+      double pvSense = 0.0;
+      for (int i = 0; i < _nPayments; i++) {
+        final double dqdh = creditCurve.getSingleNodeDiscountFactorSensitivity(_cds.getAccEnd(i) + obsOffset, creditCurveNode);
+        pvSense += _cds.getAccrualFraction(i) * _paymentDF[i] * dqdh;
+      }
+      if (_cds.isPayAccOnDefault()) {
+        for (int i = 0; i < _nPayments; i++) {
+          pvSense += calculateSinglePeriodAccrualOnDefaultCreditSensitivity(i, creditCurve, creditCurveNode);
+        }
+      }
+      return pvSense / _valuationDF;
+    }
+
+    private double calculateSinglePeriodAccrualOnDefaultCreditSensitivity(final int paymentIndex, final ISDACompliantCreditCurve creditCurve, final int creditCurveNode) {
+
+      final double[] knots = _premLegIntPoints[paymentIndex];
+      if (knots == null) {
+        return 0.0;
+      }
+      final double[] deltaT = _premDt[paymentIndex];
+      final double[] rt = _rt[paymentIndex];
+      final double[] df = _premDF[paymentIndex];
+      final double accStart = _offsetAccStart[paymentIndex];
+
+      double t = knots[0];
+      double ht0 = creditCurve.getRT(t);
+      double rt0 = rt[0];
+      double p0 = df[0];
+      double q0 = Math.exp(-ht0);
+      double b0 = p0 * q0;
+      double dqdr0 = creditCurve.getSingleNodeDiscountFactorSensitivity(t, creditCurveNode);
+
+      double t0 = _useCorrectAccOnDefaultFormula ? 0.0 : t - accStart + 1 / 730.0; // TODO not entirely clear why ISDA adds half a day
+      double pvSense = 0.0;
+      final int nItems = knots.length;
+      for (int j = 1; j < nItems; ++j) {
+        t = knots[j];
+        final double ht1 = creditCurve.getRT(t);
+        final double rt1 = rt[j];
+        final double p1 = df[j];
+        final double q1 = Math.exp(-ht1);
+        final double b1 = p1 * q1;
+        final double dqdr1 = creditCurve.getSingleNodeDiscountFactorSensitivity(t, creditCurveNode);
+        final double dt = deltaT[j - 1];
+
+        final double dht = ht1 - ht0;
+        final double drt = rt1 - rt0;
+        final double dhrt = dht + drt + 1e-50; // to keep consistent with ISDA c code
+
+        double tPvSense;
+        if (_useCorrectAccOnDefaultFormula) {
+          if (Math.abs(dhrt) < 1e-5) {
+            final double eP = epsilonP(-dhrt);
+            final double ePP = epsilonPP(-dhrt);
+            final double dPVdq0 = p0 * dt * ((1 + dht) * eP - dht * ePP);
+            final double dPVdq1 = b0 * dt / q1 * (-eP + dht * ePP);
+            tPvSense = dPVdq0 * dqdr0 + dPVdq1 * dqdr1;
+          } else {
+            final double w1 = (b0 - b1) / dhrt;
+            final double w2 = w1 - b1;
+            final double w3 = dht / dhrt;
+            final double w4 = dt / dhrt;
+            final double w5 = (1 - w3) * w2;
+            final double dPVdq0 = w4 / q0 * (w5 + w3 * (b0 - w1));
+            final double dPVdq1 = w4 / q1 * (w5 + w3 * (b1 * (1 + dhrt) - w1));
+            tPvSense = dPVdq0 * dqdr0 - dPVdq1 * dqdr1;
+          }
+        } else {
+          final double t1 = t - accStart + 1 / 730.0;
+          if (Math.abs(dhrt) < 1e-5) {
+            final double e = epsilon(-dhrt);
+            final double eP = epsilonP(-dhrt);
+            final double ePP = epsilonPP(-dhrt);
+            final double w1 = t0 * e + dt * eP;
+            final double w2 = t0 * eP + dt * ePP;
+            final double dPVdq0 = p0 * ((1 + dhrt) * w1 - dht * w2);
+            final double dPVdq1 = b0 / q1 * (-w1 + dht * w2);
+            tPvSense = dPVdq0 * dqdr0 + dPVdq1 * dqdr1;
+          } else {
+            final double w1 = dt / dhrt;
+            final double w2 = dht / dhrt;
+            final double w3 = (t0 + w1) * b0 - (t1 + w1) * b1;
+            final double w4 = (1 - w2) / dhrt;
+            final double w5 = w1 / dhrt * (b0 - b1);
+            final double dPVdq0 = w4 * w3 / q0 + w2 * ((t0 + w1) * p0 - w5 / q0);
+            final double dPVdq1 = w4 * w3 / q1 + w2 * ((t1 + w1) * p1 - w5 / q1);
+            tPvSense = dPVdq0 * dqdr0 - dPVdq1 * dqdr1;
+          }
+          t0 = t1;
+        }
+
+        pvSense += tPvSense;
+        ht0 = ht1;
+        rt0 = rt1;
+        p0 = p1;
+        q0 = q1;
+        b0 = b1;
+        dqdr0 = dqdr1;
+      }
+      return _accRate[paymentIndex] * pvSense;
+    }
+
   }
 
 }
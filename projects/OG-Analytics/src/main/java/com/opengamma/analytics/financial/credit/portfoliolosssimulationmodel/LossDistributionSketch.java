@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.portfoliolosssimulationmodel;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Class to accumulate the simulated portfolio losses into a fixed size, mergeable summary of the loss distribution (a histogram over
+ * [0, loss upper bound] keeping the count, sum, minimum and maximum of the losses in each bin) from which the moments, quantiles and
+ * expected shortfall are computed without retaining the individual scenarios.
+ * <p>
+ * A quantile is exact when the losses in its bin are all equal (e.g. when only a few obligors default) and otherwise within the width of one
+ * bin, i.e. the loss upper bound divided by the number of bins. Two sketches with the same range and number of bins can be combined, which
+ * allows each thread of a simulation to accumulate its own scenarios. This class is not thread-safe.
+ */
+public class LossDistributionSketch {
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // The default number of bins
+  public static final int DEFAULT_NUMBER_OF_BINS = 1 << 14;
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // The upper bound of the losses (e.g. the total loss given default of the portfolio)
+  private final double _lossUpperBound;
+
+  // The number of bins
+  private final int _numberOfBins;
+
+  // The number of bins per unit of loss
+  private final double _scale;
+
+  // The number of losses in each bin
+  private final long[] _binCounts;
+
+  // The sum of the losses in each bin
+  private final double[] _binSums;
+
+  // The smallest loss in each bin
+  private final double[] _binMinimums;
+
+  // The largest loss in each bin
+  private final double[] _binMaximums;
+
+  // The number of losses
+  private long _numberOfScenarios;
+
+  // The mean of the losses
+  private double _mean;
+
+  // The sum of the squared deviations of the losses from their mean
+  private double _m2;
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  public LossDistributionSketch(final double lossUpperBound) {
+    this(lossUpperBound, DEFAULT_NUMBER_OF_BINS);
+  }
+
+  public LossDistributionSketch(final double lossUpperBound, final int numberOfBins) {
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+
+    ArgumentChecker.isTrue(lossUpperBound > 0.0, "Loss upper bound must be positive");
+    ArgumentChecker.isTrue(numberOfBins > 0, "Number of bins must be positive");
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+
+    _lossUpperBound = lossUpperBound;
+    _numberOfBins = numberOfBins;
+    _scale = numberOfBins / lossUpperBound;
+
+    _binCounts = new long[numberOfBins];
+    _binSums = new double[numberOfBins];
+    _binMinimums = new double[numberOfBins];
+    _binMaximums = new double[numberOfBins];
+
+    Arrays.fill(_binMinimums, Double.POSITIVE_INFINITY);
+    Arrays.fill(_binMaximums, Double.NEGATIVE_INFINITY);
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Method to add a simulated loss (in the range [0, loss upper bound]) to the sketch
+
+  public void add(final double loss) {
+
+    final int bin = getBin(loss);
+
+    _binCounts[bin]++;
+    _binSums[bin] += loss;
+
+    if (loss < _binMinimums[bin]) {
+      _binMinimums[bin] = loss;
+    }
+
+    if (loss > _binMaximums[bin]) {
+      _binMaximums[bin] = loss;
+    }
+
+    _numberOfScenarios++;
+
+    final double delta = loss - _mean;
+    _mean += delta / _numberOfScenarios;
+    _m2 += delta * (loss - _mean);
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Method to add the losses of another sketch (with the same range and number of bins) to this sketch
+
+  public void combine(final LossDistributionSketch other) {
+
+    ArgumentChecker.notNull(other, "Other sketch");
+    ArgumentChecker.isTrue(other._numberOfBins == _numberOfBins, "Sketches must have the same number of bins");
+    ArgumentChecker.isTrue(other._lossUpperBound == _lossUpperBound, "Sketches must have the same loss upper bound");
+
+    if (other._numberOfScenarios == 0) {
+      return;
+    }
+
+    for (int k = 0; k < _numberOfBins; k++) {
+      _binCounts[k] += other._binCounts[k];
+      _binSums[k] += other._binSums[k];
+      _binMinimums[k] = Math.min(_binMinimums[k], other._binMinimums[k]);
+      _binMaximums[k] = Math.max(_binMaximums[k], other._binMaximums[k]);
+    }
+
+    // Combine the moments (Chan et al.)
+    final long numberOfScenarios = _numberOfScenarios + other._numberOfScenarios;
+    final double delta = other._mean - _mean;
+
+    _mean += delta * other._numberOfScenarios / numberOfScenarios;
+    _m2 += other._m2 + delta * delta * ((double) _numberOfScenarios * other._numberOfScenarios / numberOfScenarios);
+    _numberOfScenarios = numberOfScenarios;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Method to compute the loss at a given confidence level i.e. the smallest loss L such that P(loss <= L) >= confidence level
+
+  public double getQuantile(final double confidenceLevel) {
+
+    ArgumentChecker.isTrue(ArgumentChecker.isInRangeInclusive(0.0, 1.0, confidenceLevel), "Confidence level must be in the range [0, 1]");
+    ArgumentChecker.isTrue(_numberOfScenarios > 0, "No simulated losses");
+
+    final double target = confidenceLevel * _numberOfScenarios;
+
+    long cumulativeCount = 0;
+
+    for (int k = 0; k < _numberOfBins; k++) {
+
+      if (_binCounts[k] == 0) {
+        continue;
+      }
+
+      if (cumulativeCount + _binCounts[k] >= target) {
+
+        // Interpolate between the smallest and the largest loss of the bin
+        final double fraction = Math.max(0.0, (target - cumulativeCount) / _binCounts[k]);
+
+        return _binMinimums[k] + fraction * (_binMaximums[k] - _binMinimums[k]);
+      }
+
+      cumulativeCount += _binCounts[k];
+    }
+
+    return getMaximumLoss();
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Method to compute the expected shortfall at a given confidence level i.e. the average of the worst (1 - confidence level) fraction of the losses
+
+  public double getExpectedShortfall(final double confidenceLevel) {
+
+    ArgumentChecker.isTrue(ArgumentChecker.isInRangeInclusive(0.0, 1.0, confidenceLevel), "Confidence level must be in the range [0, 1]");
+    ArgumentChecker.isTrue(_numberOfScenarios > 0, "No simulated losses");
+
+    final double tailCount = (1.0 - confidenceLevel) * _numberOfScenarios;
+
+    if (tailCount <= 0.0) {
+      return getMaximumLoss();
+    }
+
+    double remainingCount = tailCount;
+    double tailSum = 0.0;
+
+    for (int k = _numberOfBins - 1; k >= 0 && remainingCount > 0.0; k--) {
+
+      if (_binCounts[k] == 0) {
+        continue;
+      }
+
+      if (_binCounts[k] <= remainingCount) {
+        tailSum += _binSums[k];
+        remainingCount -= _binCounts[k];
+      } else {
+
+        // Only part of the bin is in the tail; use the largest losses of the bin, spread evenly between the minimum and the maximum
+        final double fraction = remainingCount / _binCounts[k];
+        final double meanOfPart = _binMaximums[k] - 0.5 * fraction * (_binMaximums[k] - _binMinimums[k]);
+
+        tailSum += remainingCount * meanOfPart;
+        remainingCount = 0.0;
+      }
+    }
+
+    return tailSum / tailCount;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  private int getBin(final double loss) {
+
+    final int bin = (int) (loss * _scale);
+
+    if (bin < 0) {
+      return 0;
+    }
+
+    return bin < _numberOfBins ? bin : _numberOfBins - 1;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  public double getLossUpperBound() {
+    return _lossUpperBound;
+  }
+
+  public int getNumberOfBins() {
+    return _numberOfBins;
+  }
+
+  public long getNumberOfScenarios() {
+    return _numberOfScenarios;
+  }
+
+  public double getExpectedLoss() {
+    return _mean;
+  }
+
+  public double getStandardDeviation() {
+    return _numberOfScenarios > 1 ? Math.sqrt(_m2 / (_numberOfScenarios - 1)) : 0.0;
+  }
+
+  public double getMinimumLoss() {
+    for (int k = 0; k < _numberOfBins; k++) {
+      if (_binCounts[k] > 0) {
+        return _binMinimums[k];
+      }
+    }
+    return Double.NaN;
+  }
+
+  public double getMaximumLoss() {
+    for (int k = _numberOfBins - 1; k >= 0; k--) {
+      if (_binCounts[k] > 0) {
+        return _binMaximums[k];
+      }
+    }
+    return Double.NaN;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+}
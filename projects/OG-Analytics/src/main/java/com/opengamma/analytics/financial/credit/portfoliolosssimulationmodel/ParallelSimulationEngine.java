@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.portfoliolosssimulationmodel;
+
+import java.util.concurrent.ExecutorService;
+
+import com.opengamma.analytics.financial.montecarlo.MonteCarloRandomStream;
+import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
+import com.opengamma.analytics.util.ParallelRanges;
+import com.opengamma.analytics.util.ParallelRanges.RangeTask;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Class to run the portfolio loss simulation (one factor Gaussian copula) on several threads, without storing the simulated scenarios.
+ * <p>
+ * The scenarios are divided in chunks of fixed size and the chunks in contiguous ranges, one per task. The normals of scenario alpha (the
+ * systemic factor followed by one idiosyncratic deviate per obligor) are at a fixed position of a {@link MonteCarloRandomStream}, which
+ * each task positions by skip-ahead, so the simulated defaults do not depend on the number of threads. Obligor i defaults in a scenario
+ * when its latent variable is below its default barrier, i.e. when its default time is before the simulation time horizon. The loss of
+ * each scenario is computed from primitive arrays and added to the {@link LossDistributionSketch} of the task; the sketches of the tasks
+ * are combined at the end.
+ */
+public class ParallelSimulationEngine {
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // The default number of scenarios in one chunk
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  private static final NormalDistribution NORMAL = new NormalDistribution(0.0, 1.0);
+
+  private static final RevaluationEngine REVALUATION_ENGINE = new RevaluationEngine();
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // The number of bins of the loss distribution sketch
+  private final int _numberOfBins;
+
+  // The number of scenarios in one chunk
+  private final int _chunkSize;
+
+  // The executor (null to run in the calling thread)
+  private final ExecutorService _executor;
+
+  // The maximum number of concurrent tasks
+  private final int _parallelism;
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Ctor using a shared pool with one thread per available processor
+  public ParallelSimulationEngine() {
+    this(LossDistributionSketch.DEFAULT_NUMBER_OF_BINS, DEFAULT_CHUNK_SIZE, ParallelRanges.getSharedExecutor(), ParallelRanges.getSharedParallelism());
+  }
+
+  public ParallelSimulationEngine(final int numberOfBins, final int chunkSize, final ExecutorService executor, final int parallelism) {
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+
+    ArgumentChecker.isTrue(numberOfBins > 0, "Number of bins must be positive");
+    ArgumentChecker.isTrue(chunkSize > 0, "Chunk size must be positive");
+    ArgumentChecker.isTrue(parallelism > 0, "Parallelism must be positive");
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+
+    _numberOfBins = numberOfBins;
+    _chunkSize = chunkSize;
+    _executor = executor;
+    _parallelism = parallelism;
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Method to run the simulation for the obligor universe, correlations, default probabilities and recovery rate models of a scenario generator
+
+  public LossDistributionSketch runSimulation(final ScenarioGenerator scenarioGenerator) {
+
+    ArgumentChecker.notNull(scenarioGenerator, "Scenario generator");
+
+    final double[] lossGivenDefault = REVALUATION_ENGINE.getLossGivenDefault(scenarioGenerator);
+
+    return runSimulation(scenarioGenerator.getRho(), scenarioGenerator.getDefaultProbability(), lossGivenDefault, scenarioGenerator.getNumberofSimulations(),
+        scenarioGenerator.getDefaultSimulationSeed());
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Method to run the simulation given, for each obligor, the correlation with the systemic factor, the default probability over the time horizon and the loss given default
+
+  public LossDistributionSketch runSimulation(final double[] rho, final double[] defaultProbability, final double[] lossGivenDefault, final int numberOfSimulations,
+      final long seed) {
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+
+    ArgumentChecker.notNull(rho, "Rho");
+    ArgumentChecker.notNull(defaultProbability, "Default probability");
+    ArgumentChecker.notNull(lossGivenDefault, "Loss given default");
+
+    final int numberOfObligors = rho.length;
+
+    ArgumentChecker.isTrue(numberOfObligors > 0, "Must have at least one obligor");
+    ArgumentChecker.isTrue(defaultProbability.length == numberOfObligors, "The number of obligors must equal the number of input default probabilities");
+    ArgumentChecker.isTrue(lossGivenDefault.length == numberOfObligors, "The number of obligors must equal the number of losses given default");
+    ArgumentChecker.isTrue(numberOfSimulations > 0, "Number of simulations must be positive");
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+
+    // Pre-compute the default barrier level and the idiosyncratic loading of each obligor, and the largest possible loss
+
+    final double[] defaultBarrierLevel = new double[numberOfObligors];
+    final double[] idiosyncraticLoading = new double[numberOfObligors];
+
+    double lossUpperBound = 0.0;
+
+    for (int i = 0; i < numberOfObligors; i++) {
+
+      ArgumentChecker.isTrue(ArgumentChecker.isInRangeInclusive(-1.0, 1.0, rho[i]), "Rho must be in the range [-1, 1]");
+      ArgumentChecker.isTrue(ArgumentChecker.isInRangeInclusive(0.0, 1.0, defaultProbability[i]), "Default probability must be in the range [0, 1]");
+      ArgumentChecker.notNegative(lossGivenDefault[i], "Loss given default");
+
+      // The inverse normal CDF is not defined at 0 and 1: such an obligor never or always defaults
+      if (defaultProbability[i] == 0.0) {
+        defaultBarrierLevel[i] = Double.NEGATIVE_INFINITY;
+      } else if (defaultProbability[i] == 1.0) {
+        defaultBarrierLevel[i] = Double.POSITIVE_INFINITY;
+      } else {
+        defaultBarrierLevel[i] = NORMAL.getInverseCDF(defaultProbability[i]);
+      }
+      idiosyncraticLoading[i] = Math.sqrt(1.0 - rho[i] * rho[i]);
+
+      lossUpperBound += lossGivenDefault[i];
+    }
+
+    final SimulationData data = new SimulationData(rho, idiosyncraticLoading, defaultBarrierLevel, lossGivenDefault, numberOfSimulations, seed,
+        lossUpperBound > 0.0 ? lossUpperBound : 1.0);
+
+    // ----------------------------------------------------------------------------------------------------------------------------------------
+
+    final int numberOfChunks = (numberOfSimulations + _chunkSize - 1) / _chunkSize;
+
+    // The sketch of each range of chunks, stored at the first chunk of the range
+    final LossDistributionSketch[] sketches = new LossDistributionSketch[numberOfChunks];
+
+    ParallelRanges.run(_executor, _parallelism, numberOfChunks, new RangeTask() {
+      @Override
+      public void evaluate(final int firstChunk, final int lastChunk) {
+        sketches[firstChunk] = runChunks(data, firstChunk, lastChunk);
+      }
+    });
+
+    final LossDistributionSketch result = sketches[0];
+
+    for (int chunk = 1; chunk < numberOfChunks; chunk++) {
+      if (sketches[chunk] != null) {
+        result.combine(sketches[chunk]);
+      }
+    }
+
+    return result;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Method to simulate the scenarios of a range of chunks [firstChunk, lastChunk)
+
+  private LossDistributionSketch runChunks(final SimulationData data, final int firstChunk, final int lastChunk) {
+
+    final LossDistributionSketch sketch = new LossDistributionSketch(data._lossUpperBound, _numberOfBins);
+
+    final MonteCarloRandomStream stream = new MonteCarloRandomStream(data._seed);
+
+    final int numberOfObligors = data._rho.length;
+
+    final double[] rho = data._rho;
+    final double[] idiosyncraticLoading = data._idiosyncraticLoading;
+    final double[] defaultBarrierLevel = data._defaultBarrierLevel;
+    final double[] lossGivenDefault = data._lossGivenDefault;
+
+    for (int chunk = firstChunk; chunk < lastChunk; chunk++) {
+
+      final int firstScenario = chunk * _chunkSize;
+      final int lastScenario = Math.min(firstScenario + _chunkSize, data._numberOfSimulations);
+
+      // The scenarios of a chunk use consecutive normals
+      stream.skipTo((long) firstScenario * (numberOfObligors + 1));
+
+      for (int alpha = firstScenario; alpha < lastScenario; alpha++) {
+
+        final double systemicFactor = stream.nextNormal();
+
+        double loss = 0.0;
+
+        for (int i = 0; i < numberOfObligors; i++) {
+
+          // Compute the default latent variable for this obligor for this simulation
+          final double defaultLatentVariable = rho[i] * systemicFactor + idiosyncraticLoading[i] * stream.nextNormal();
+
+          // Did the obligor i default in simulation alpha ...
+          if (defaultLatentVariable < defaultBarrierLevel[i]) {
+            loss += lossGivenDefault[i];
+          }
+        }
+
+        sketch.add(loss);
+      }
+    }
+
+    return sketch;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  public int getNumberOfBins() {
+    return _numberOfBins;
+  }
+
+  public int getChunkSize() {
+    return _chunkSize;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // The primitive inputs of one simulation, shared by the tasks
+  private static final class SimulationData {
+
+    private final double[] _rho;
+    private final double[] _idiosyncraticLoading;
+    private final double[] _defaultBarrierLevel;
+    private final double[] _lossGivenDefault;
+    private final int _numberOfSimulations;
+    private final long _seed;
+    private final double _lossUpperBound;
+
+    private SimulationData(final double[] rho, final double[] idiosyncraticLoading, final double[] defaultBarrierLevel, final double[] lossGivenDefault,
+        final int numberOfSimulations, final long seed, final double lossUpperBound) {
+      _rho = rho;
+      _idiosyncraticLoading = idiosyncraticLoading;
+      _defaultBarrierLevel = defaultBarrierLevel;
+      _lossGivenDefault = lossGivenDefault;
+      _numberOfSimulations = numberOfSimulations;
+      _seed = seed;
+      _lossUpperBound = lossUpperBound;
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+}
@@ -5,9 +5,41 @@
  */
 package com.opengamma.analytics.financial.credit.portfoliolosssimulationmodel;
 
+import com.opengamma.util.ArgumentChecker;
+
 /**
- * 
+ * Class to revalue the positions given the simulated scenarios
+ * <p>
+ * Each obligor is revalued as a single position with its notional in the obligor universe, and the recovery rate of each obligor
+ * is the fixed rate of its recovery rate model; portfolios of trades and stochastic recovery rates are not modelled.
  */
 public class RevaluationEngine {
 
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  public RevaluationEngine() {
+
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  // Method to compute the loss given default of each obligor in the universe (notional x (1 - recovery rate)); the loss of a scenario is the sum over the defaulted obligors
+
+  public double[] getLossGivenDefault(final ScenarioGenerator scenarioGenerator) {
+
+    ArgumentChecker.notNull(scenarioGenerator, "Scenario generator");
+
+    final int numberOfObligors = scenarioGenerator.getObligorUniverse().getNumberOfObligors();
+    final double[] notionals = scenarioGenerator.getObligorUniverse().getObligorNotionals();
+
+    final double[] lossGivenDefault = new double[numberOfObligors];
+
+    for (int i = 0; i < numberOfObligors; i++) {
+      lossGivenDefault[i] = notionals[i] * (1.0 - scenarioGenerator.getRecoveryRateModels()[i].getRecoveryRate());
+    }
+
+    return lossGivenDefault;
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
 }
@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import com.opengamma.analytics.util.ParallelRanges;
+import com.opengamma.analytics.util.ParallelRanges.RangeTask;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Solves many PDEs on the same grid concurrently with a {@link ConvectionDiffusionPDESolver}, e.g. the prices of a book of options under one
+ * local volatility surface.
+ * <p>
+ * The PDEs are divided in contiguous ranges, one per task, and each task solves its range sequentially. The solvers using a {@link PDEWorkspace}
+ * (such as {@link ThetaMethodFiniteDifference}) allocate the buffers of each thread once for the whole batch as all the PDEs have the same size;
+ * with a solver returning terminal results only, the memory allocated per PDE is essentially its result.
+ */
+public class ConvectionDiffusionPDEBatchSolver {
+
+  /**
+   * The solver.
+   */
+  private final ConvectionDiffusionPDESolver _solver;
+  /**
+   * The executor, null to run in the calling thread.
+   */
+  private final ExecutorService _executor;
+  /**
+   * The maximum number of tasks.
+   */
+  private final int _parallelism;
+
+  /**
+   * Creates a batch solver using a shared pool with one thread per available processor.
+   * @param solver The solver, not null
+   */
+  public ConvectionDiffusionPDEBatchSolver(final ConvectionDiffusionPDESolver solver) {
+    this(solver, ParallelRanges.getSharedExecutor(), ParallelRanges.getSharedParallelism());
+  }
+
+  /**
+   * Creates a batch solver.
+   * @param solver The solver, not null
+   * @param executor The executor, null to run in the calling thread
+   * @param parallelism The maximum number of concurrent tasks, positive
+   */
+  public ConvectionDiffusionPDEBatchSolver(final ConvectionDiffusionPDESolver solver, final ExecutorService executor, final int parallelism) {
+    ArgumentChecker.notNull(solver, "solver");
+    ArgumentChecker.isTrue(parallelism > 0, "parallelism must be positive");
+    _solver = solver;
+    _executor = executor;
+    _parallelism = parallelism;
+  }
+
+  /**
+   * Gets the solver.
+   * @return The solver
+   */
+  public ConvectionDiffusionPDESolver getSolver() {
+    return _solver;
+  }
+
+  /**
+   * Solves the PDEs.
+   * @param pdeData The PDEs, not null or empty; they must all have the same grid
+   * @return The results, in the order of the PDEs
+   */
+  public PDEResults1D[] solve(final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdeData) {
+    ArgumentChecker.noNulls(pdeData, "pde data");
+    ArgumentChecker.isTrue(pdeData.size() > 0, "no PDE to solve");
+    final PDEGrid1D grid = pdeData.get(0).getGrid();
+    for (final PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients> pde : pdeData) {
+      ArgumentChecker.isTrue(grid.equals(pde.getGrid()), "All the PDEs must have the same grid");
+    }
+    final int nbPde = pdeData.size();
+    final PDEResults1D[] results = new PDEResults1D[nbPde];
+    ParallelRanges.run(_executor, _parallelism, nbPde, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        solveRange(pdeData, first, last, results);
+      }
+    });
+    return results;
+  }
+
+  /**
+   * Solves a range of PDEs.
+   * @param pdeData The PDEs
+   * @param first The first PDE (inclusive)
+   * @param last The last PDE (exclusive)
+   * @param results The results, filled
+   */
+  private void solveRange(final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdeData, final int first, final int last, final PDEResults1D[] results) {
+    for (int looppde = first; looppde < last; looppde++) {
+      results[looppde] = _solver.solve(pdeData.get(looppde));
+    }
+  }
+
+}
@@ -50,6 +50,13 @@ public class CoupledFiniteDifference {
     return DCOMP;
   }
 
+  /**
+   * Solves the two coupled PDEs. When the boundary conditions use at most two nodes, the system of each time step is block tri-diagonal
+   * (with 2 by 2 blocks) and is solved directly in the buffers of a {@link PDEWorkspace}; otherwise it is solved by LU decomposition.
+   * @param pdeData1 The first PDE, not null
+   * @param pdeData2 The second PDE, not null; must have the same grid
+   * @return The results of the two PDEs
+   */
   public PDEResults1D[] solve(final CoupledPDEDataBundle pdeData1,
       final CoupledPDEDataBundle pdeData2) {
     Validate.notNull(pdeData1, "pde1 data");
@@ -57,6 +64,220 @@ public class CoupledFiniteDifference {
 
     final PDEGrid1D grid = pdeData1.getGrid();
     ArgumentChecker.isTrue(grid == pdeData2.getGrid(), "grids must be same object");
+    final double t0 = grid.getTimeNode(0);
+    if (pdeData1.getLowerBoundary().getLeftMatrixCondition(pdeData1.getCoefficients(), grid, t0).length > 2
+        || pdeData1.getUpperBoundary().getLeftMatrixCondition(pdeData1.getCoefficients(), grid, t0).length > 2
+        || pdeData2.getLowerBoundary().getLeftMatrixCondition(pdeData2.getCoefficients(), grid, t0).length > 2
+        || pdeData2.getUpperBoundary().getLeftMatrixCondition(pdeData2.getCoefficients(), grid, t0).length > 2) {
+      return solveDense(pdeData1, pdeData2);
+    }
+    final PDEWorkspace workspace = PDEWorkspace.acquire(2 * grid.getNumSpaceNodes());
+    try {
+      return solveBlockTridiagonal(pdeData1, pdeData2, workspace);
+    } finally {
+      workspace.release();
+    }
+  }
+
+  /**
+   * Solves the coupled PDEs with the buffers of the workspace. The unknowns of the first PDE are the elements 0 to n - 1 of the vectors and
+   * those of the second PDE the elements n to 2n - 1. Each row k has a lower, diagonal and upper element on its own PDE and a coupling
+   * element on the other PDE at the same node.
+   * @param pdeData1 The first PDE
+   * @param pdeData2 The second PDE
+   * @param workspace The workspace, with a capacity of at least 2n
+   * @return The results
+   */
+  private PDEResults1D[] solveBlockTridiagonal(final CoupledPDEDataBundle pdeData1, final CoupledPDEDataBundle pdeData2, final PDEWorkspace workspace) {
+    final PDEGrid1D grid = pdeData1.getGrid();
+    final ConvectionDiffusionPDE1DCoupledCoefficients coeff1 = pdeData1.getCoefficients();
+    final ConvectionDiffusionPDE1DCoupledCoefficients coeff2 = pdeData2.getCoefficients();
+    final BoundaryCondition lower1 = pdeData1.getLowerBoundary();
+    final BoundaryCondition lower2 = pdeData2.getLowerBoundary();
+    final BoundaryCondition upper1 = pdeData1.getUpperBoundary();
+    final BoundaryCondition upper2 = pdeData2.getUpperBoundary();
+    final double lambda1 = coeff1.getLambda();
+    final double lambda2 = coeff2.getLambda();
+
+    final int tNodes = grid.getNumTimeNodes();
+    final int xNodes = grid.getNumSpaceNodes();
+
+    final double[] f = workspace.getScratch(0);
+    final double[] lo = workspace.getLower();
+    final double[] di = workspace.getDiagonal();
+    final double[] up = workspace.getUpper();
+    final double[] cp = workspace.getScratch(1);
+    final double[] q = workspace.getRhs();
+    // the coefficients of the internal node i are at i - 1 (first PDE) and xNodes + i - 1 (second PDE)
+    final double[] a = workspace.getScratch(2);
+    final double[] b = workspace.getScratch(3);
+    final double[] c = workspace.getScratch(4);
+
+    double[][] full1 = null;
+    double[][] full2 = null;
+    if (_showFullResults) {
+      full1 = new double[tNodes][];
+      full2 = new double[tNodes][];
+    }
+
+    System.arraycopy(pdeData1.getInitialCondition(), 0, f, 0, xNodes);
+    System.arraycopy(pdeData2.getInitialCondition(), 0, f, xNodes, xNodes);
+    if (_showFullResults) {
+      full1[0] = Arrays.copyOfRange(f, 0, xNodes);
+      full2[0] = Arrays.copyOfRange(f, xNodes, 2 * xNodes);
+    }
+
+    for (int i = 0; i < xNodes - 2; i++) {
+      final double x = grid.getSpaceNode(i + 1);
+      a[i] = coeff1.getA(0, x);
+      b[i] = coeff1.getB(0, x);
+      c[i] = coeff1.getC(0, x);
+      a[xNodes + i] = coeff2.getA(0, x);
+      b[xNodes + i] = coeff2.getB(0, x);
+      c[xNodes + i] = coeff2.getC(0, x);
+    }
+
+    for (int n = 1; n < tNodes; n++) {
+      final double t1 = grid.getTimeNode(n - 1);
+      final double t2 = grid.getTimeNode(n);
+      final double dt = grid.getTimeStep(n - 1);
+
+      for (int i = 1; i < xNodes - 1; i++) {
+        final double x = grid.getSpaceNode(i);
+        final double[] x1st = grid.getFirstDerivativeCoefficients(i);
+        final double[] x2nd = grid.getSecondDerivativeCoefficients(i);
+        for (int pde = 0; pde < 2; pde++) {
+          final int k = pde * xNodes + i; // the row
+          final int kc = pde * xNodes + i - 1; // the coefficients
+          final int other = (1 - pde) * xNodes + i;
+          final double lambda = pde == 0 ? lambda1 : lambda2;
+          final ConvectionDiffusionPDE1DCoupledCoefficients coeff = pde == 0 ? coeff1 : coeff2;
+
+          q[k] = f[k];
+          q[k] -= (1 - _theta) * dt * (x2nd[0] * a[kc] + x1st[0] * b[kc]) * f[k - 1];
+          q[k] -= (1 - _theta) * dt * (x2nd[1] * a[kc] + x1st[1] * b[kc] + c[kc]) * f[k];
+          q[k] -= (1 - _theta) * dt * (x2nd[2] * a[kc] + x1st[2] * b[kc]) * f[k + 1];
+          q[k] -= (1 - _theta) * dt * lambda * f[other];
+
+          a[kc] = coeff.getA(t2, x);
+          b[kc] = coeff.getB(t2, x);
+          c[kc] = coeff.getC(t2, x);
+
+          lo[k] = _theta * dt * (x2nd[0] * a[kc] + x1st[0] * b[kc]);
+          di[k] = 1 + _theta * dt * (x2nd[1] * a[kc] + x1st[1] * b[kc] + c[kc]);
+          up[k] = _theta * dt * (x2nd[2] * a[kc] + x1st[2] * b[kc]);
+          cp[k] = dt * _theta * lambda;
+        }
+      }
+
+      setLowerRow(lower1.getLeftMatrixCondition(coeff1, grid, t2), 0, lo, di, up, cp);
+      setUpperRow(upper1.getLeftMatrixCondition(coeff1, grid, t2), xNodes - 1, lo, di, up, cp);
+      setLowerRow(lower2.getLeftMatrixCondition(coeff2, grid, t2), xNodes, lo, di, up, cp);
+      setUpperRow(upper2.getLeftMatrixCondition(coeff2, grid, t2), 2 * xNodes - 1, lo, di, up, cp);
+
+      q[0] = lowerRhs(lower1.getRightMatrixCondition(coeff1, grid, t1), f, 0) + lower1.getConstant(coeff1, t2);
+      q[xNodes - 1] = upperRhs(upper1.getRightMatrixCondition(coeff1, grid, t1), f, xNodes - 1) + upper1.getConstant(coeff1, t2);
+      // Implementation note: as in the LU version, the right conditions of the second PDE apply to the nodes of the first one.
+      q[xNodes] = lowerRhs(lower2.getRightMatrixCondition(coeff2, grid, t1), f, 0) + lower2.getConstant(coeff2, t2);
+      q[2 * xNodes - 1] = upperRhs(upper2.getRightMatrixCondition(coeff2, grid, t1), f, xNodes - 1) + upper2.getConstant(coeff2, t2);
+
+      solveBlockTridiagonal(xNodes, lo, di, up, cp, q, f);
+
+      if (_showFullResults) {
+        full1[n] = Arrays.copyOfRange(f, 0, xNodes);
+        full2[n] = Arrays.copyOfRange(f, xNodes, 2 * xNodes);
+      }
+    }
+    final PDEResults1D[] res = new PDEResults1D[2];
+    if (_showFullResults) {
+      res[0] = new PDEFullResults1D(grid, full1);
+      res[1] = new PDEFullResults1D(grid, full2);
+    } else {
+      res[0] = new PDETerminalResults1D(grid, Arrays.copyOfRange(f, 0, xNodes));
+      res[1] = new PDETerminalResults1D(grid, Arrays.copyOfRange(f, xNodes, 2 * xNodes));
+    }
+    return res;
+  }
+
+  private static void setLowerRow(final double[] coefficients, final int k, final double[] lo, final double[] di, final double[] up, final double[] cp) {
+    ArgumentChecker.isFalse(coefficients.length > 2, "Boundary condition means that system is not tri-diagonal");
+    lo[k] = 0.0;
+    di[k] = coefficients[0];
+    up[k] = coefficients.length > 1 ? coefficients[1] : 0.0;
+    cp[k] = 0.0;
+  }
+
+  private static void setUpperRow(final double[] coefficients, final int k, final double[] lo, final double[] di, final double[] up, final double[] cp) {
+    final int length = coefficients.length;
+    ArgumentChecker.isFalse(length > 2, "Boundary condition means that system is not tri-diagonal");
+    lo[k] = length > 1 ? coefficients[length - 2] : 0.0;
+    di[k] = coefficients[length - 1];
+    up[k] = 0.0;
+    cp[k] = 0.0;
+  }
+
+  private static double lowerRhs(final double[] coefficients, final double[] f, final int first) {
+    double sum = 0;
+    for (int k = 0; k < coefficients.length; k++) {
+      sum += coefficients[k] * f[first + k];
+    }
+    return sum;
+  }
+
+  private static double upperRhs(final double[] coefficients, final double[] f, final int last) {
+    double sum = 0;
+    for (int k = 0; k < coefficients.length; k++) {
+      sum += coefficients[k] * f[last - k];
+    }
+    return sum;
+  }
+
+  /**
+   * Solves the block tri-diagonal system in place by block Thomas algorithm. The unknowns of node i are (f[i], f[n + i]); the lower and upper
+   * blocks are diagonal and the diagonal block is [[di[i], cp[i]], [cp[n + i], di[n + i]]]. The diagonal blocks and the right hand side are
+   * overwritten.
+   * @param n The number of nodes
+   * @param lo The lower elements
+   * @param di The diagonal elements
+   * @param up The upper elements
+   * @param cp The coupling elements
+   * @param q The right hand side
+   * @param f The solution
+   */
+  private static void solveBlockTridiagonal(final int n, final double[] lo, final double[] di, final double[] up, final double[] cp, final double[] q, final double[] f) {
+    for (int i = 1; i < n; i++) {
+      final double p11 = di[i - 1];
+      final double p12 = cp[i - 1];
+      final double p21 = cp[n + i - 1];
+      final double p22 = di[n + i - 1];
+      final double det = p11 * p22 - p12 * p21;
+      // m = lower block * inverse of previous diagonal block
+      final double m11 = lo[i] * p22 / det;
+      final double m12 = -lo[i] * p12 / det;
+      final double m21 = -lo[n + i] * p21 / det;
+      final double m22 = lo[n + i] * p11 / det;
+      di[i] -= m11 * up[i - 1];
+      cp[i] -= m12 * up[n + i - 1];
+      cp[n + i] -= m21 * up[i - 1];
+      di[n + i] -= m22 * up[n + i - 1];
+      q[i] -= m11 * q[i - 1] + m12 * q[n + i - 1];
+      q[n + i] -= m21 * q[i - 1] + m22 * q[n + i - 1];
+    }
+    for (int i = n - 1; i >= 0; i--) {
+      double r1 = q[i];
+      double r2 = q[n + i];
+      if (i < n - 1) {
+        r1 -= up[i] * f[i + 1];
+        r2 -= up[n + i] * f[n + i + 1];
+      }
+      final double det = di[i] * di[n + i] - cp[i] * cp[n + i];
+      f[i] = (di[n + i] * r1 - cp[i] * r2) / det;
+      f[n + i] = (di[i] * r2 - cp[n + i] * r1) / det;
+    }
+  }
+
+  private PDEResults1D[] solveDense(final CoupledPDEDataBundle pdeData1, final CoupledPDEDataBundle pdeData2) {
+    final PDEGrid1D grid = pdeData1.getGrid();
     final ConvectionDiffusionPDE1DCoupledCoefficients coeff1 = pdeData1.getCoefficients();
     final ConvectionDiffusionPDE1DCoupledCoefficients coeff2 = pdeData2.getCoefficients();
     final double[] initalCond1 = pdeData1.getInitialCondition();
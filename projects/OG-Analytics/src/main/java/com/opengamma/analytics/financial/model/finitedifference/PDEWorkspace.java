@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import com.opengamma.analytics.math.linearalgebra.TridiagonalSolver;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Reusable buffers for the finite difference solvers: a tridiagonal system (three diagonals, right hand side and solution) solved in
+ * place by the Thomas algorithm, and a few scratch vectors for the state of the solver.
+ * <p>
+ * Each thread has one workspace, obtained by {@link #acquire(int)} and given back by {@link #release()}; the buffers grow to the
+ * largest size requested on the thread and are then reused, so that a solver does not allocate memory at each time step. A solver
+ * running inside another one on the same thread gets a new workspace. The buffers may be longer than the requested size; only the
+ * first elements are used.
+ */
+public final class PDEWorkspace {
+
+  /**
+   * The number of scratch vectors.
+   */
+  public static final int NB_SCRATCH = 8;
+  /**
+   * The workspace of each thread.
+   */
+  private static final ThreadLocal<PDEWorkspace> CURRENT = new ThreadLocal<PDEWorkspace>() {
+    @Override
+    protected PDEWorkspace initialValue() {
+      return new PDEWorkspace(0);
+    }
+  };
+
+  /**
+   * The size of the buffers.
+   */
+  private int _capacity;
+  /**
+   * The lower sub-diagonal: _lower[i] is the element (i + 1, i).
+   */
+  private double[] _lower;
+  /**
+   * The diagonal.
+   */
+  private double[] _diagonal;
+  /**
+   * The upper sub-diagonal: _upper[i] is the element (i, i + 1).
+   */
+  private double[] _upper;
+  /**
+   * The right hand side.
+   */
+  private double[] _rhs;
+  /**
+   * The solution.
+   */
+  private double[] _solution;
+  /**
+   * The work array of the Thomas algorithm.
+   */
+  private double[] _work;
+  /**
+   * The scratch vectors, allocated on first use.
+   */
+  private final double[][] _scratch = new double[NB_SCRATCH][];
+  /**
+   * The element (0, 2) of the system, from a three point lower boundary condition.
+   */
+  private double _lowerExtra;
+  /**
+   * The element (n - 1, n - 3) of the system, from a three point upper boundary condition.
+   */
+  private double _upperExtra;
+  /**
+   * Whether the workspace is used by a solver.
+   */
+  private boolean _inUse;
+
+  private PDEWorkspace(final int capacity) {
+    allocate(capacity);
+  }
+
+  /**
+   * Gets the workspace of the current thread with buffers of at least the given size. If the workspace of the thread is already in use, a new
+   * workspace is returned.
+   * @param size The size of the systems to solve, positive
+   * @return The workspace
+   */
+  public static PDEWorkspace acquire(final int size) {
+    ArgumentChecker.isTrue(size > 0, "size must be positive");
+    PDEWorkspace workspace = CURRENT.get();
+    if (workspace._inUse) {
+      workspace = new PDEWorkspace(size);
+    } else if (workspace._capacity < size) {
+      workspace.allocate(size);
+    }
+    workspace._inUse = true;
+    return workspace;
+  }
+
+  /**
+   * Gives back the workspace; the arrays obtained from it must not be used afterwards.
+   */
+  public void release() {
+    _inUse = false;
+  }
+
+  private void allocate(final int capacity) {
+    _capacity = capacity;
+    _lower = new double[capacity];
+    _diagonal = new double[capacity];
+    _upper = new double[capacity];
+    _rhs = new double[capacity];
+    _solution = new double[capacity];
+    _work = new double[capacity];
+    for (int loops = 0; loops < NB_SCRATCH; loops++) {
+      _scratch[loops] = null;
+    }
+  }
+
+  /**
+   * Gets the size of the buffers.
+   * @return The capacity
+   */
+  public int getCapacity() {
+    return _capacity;
+  }
+
+  /**
+   * Gets the lower sub-diagonal of the system; element i is the element (i + 1, i) of the matrix.
+   * @return The lower sub-diagonal buffer
+   */
+  public double[] getLower() {
+    return _lower;
+  }
+
+  /**
+   * Gets the diagonal of the system.
+   * @return The diagonal buffer
+   */
+  public double[] getDiagonal() {
+    return _diagonal;
+  }
+
+  /**
+   * Gets the upper sub-diagonal of the system; element i is the element (i, i + 1) of the matrix.
+   * @return The upper sub-diagonal buffer
+   */
+  public double[] getUpper() {
+    return _upper;
+  }
+
+  /**
+   * Gets the right hand side of the system.
+   * @return The right hand side buffer
+   */
+  public double[] getRhs() {
+    return _rhs;
+  }
+
+  /**
+   * Gets the solution of the last call to {@link #solve(int)}.
+   * @return The solution buffer
+   */
+  public double[] getSolution() {
+    return _solution;
+  }
+
+  /**
+   * Gets a scratch vector of at least the capacity of the workspace; its content is kept between time steps.
+   * @param index The index of the vector, from 0 to {@link #NB_SCRATCH} - 1
+   * @return The scratch vector
+   */
+  public double[] getScratch(final int index) {
+    ArgumentChecker.isTrue(index >= 0 && index < NB_SCRATCH, "scratch index out of range");
+    if (_scratch[index] == null) {
+      _scratch[index] = new double[_capacity];
+    }
+    return _scratch[index];
+  }
+
+  /**
+   * Sets the first row of the system from a boundary condition given by its coefficients on the first (up to three) nodes.
+   * @param coefficients The coefficients of the nodes 0, 1 and 2
+   */
+  public void setLowerBoundary(final double[] coefficients) {
+    ArgumentChecker.isTrue(coefficients.length > 0 && coefficients.length <= 3, "Boundary condition must use between one and three nodes");
+    _diagonal[0] = coefficients[0];
+    _upper[0] = coefficients.length > 1 ? coefficients[1] : 0.0;
+    _lowerExtra = coefficients.length > 2 ? coefficients[2] : 0.0;
+  }
+
+  /**
+   * Sets the last row of the system from a boundary condition given by its coefficients on the last (up to three) nodes, in the order of the nodes.
+   * @param coefficients The coefficients of the nodes n - k, ..., n - 1, where k is the number of coefficients
+   * @param n The size of the system
+   */
+  public void setUpperBoundary(final double[] coefficients, final int n) {
+    final int k = coefficients.length;
+    ArgumentChecker.isTrue(k > 0 && k <= 3, "Boundary condition must use between one and three nodes");
+    _diagonal[n - 1] = coefficients[k - 1];
+    _lower[n - 2] = k > 1 ? coefficients[k - 2] : 0.0;
+    _upperExtra = k > 2 ? coefficients[k - 3] : 0.0;
+  }
+
+  /**
+   * Sets the last row of the system from a boundary condition given by its coefficients on the last (up to three) nodes, starting from the boundary.
+   * @param coefficients The coefficients of the nodes n - 1, n - 2 and n - 3
+   * @param n The size of the system
+   */
+  public void setUpperBoundaryFromEnd(final double[] coefficients, final int n) {
+    final int k = coefficients.length;
+    ArgumentChecker.isTrue(k > 0 && k <= 3, "Boundary condition must use between one and three nodes");
+    _diagonal[n - 1] = coefficients[0];
+    _lower[n - 2] = k > 1 ? coefficients[1] : 0.0;
+    _upperExtra = k > 2 ? coefficients[2] : 0.0;
+  }
+
+  /**
+   * Solves the system of size n held in the buffers; the solution is in {@link #getSolution()}. The diagonals are not modified, except when
+   * a boundary condition uses three nodes: the boundary row is then combined with its neighbour to make the system tridiagonal.
+   * @param n The size of the system, at least 3
+   */
+  public void solve(final int n) {
+    if (_lowerExtra != 0.0) {
+      // remove the element (0, 2) with the row 1
+      final double factor = _lowerExtra / _upper[1];
+      _diagonal[0] -= factor * _lower[0];
+      _upper[0] -= factor * _diagonal[1];
+      _rhs[0] -= factor * _rhs[1];
+      _lowerExtra = 0.0;
+    }
+    if (_upperExtra != 0.0) {
+      // remove the element (n - 1, n - 3) with the row n - 2
+      final double factor = _upperExtra / _lower[n - 3];
+      _lower[n - 2] -= factor * _diagonal[n - 2];
+      _diagonal[n - 1] -= factor * _upper[n - 2];
+      _rhs[n - 1] -= factor * _rhs[n - 2];
+      _upperExtra = 0.0;
+    }
+    TridiagonalSolver.solvTriDag(_lower, _diagonal, _upper, _rhs, _solution, _work, n);
+  }
+
+}
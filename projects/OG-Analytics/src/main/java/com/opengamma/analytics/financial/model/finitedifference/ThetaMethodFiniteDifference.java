@@ -5,8 +5,6 @@
  */
 package com.opengamma.analytics.financial.model.finitedifference;
 
-import static com.opengamma.analytics.math.linearalgebra.TridiagonalSolver.solvTriDag;
-
 import java.util.Arrays;
 
 import org.apache.commons.lang.NotImplementedException;
@@ -82,6 +80,14 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         pdeData.getUpperBoundary(), pdeData.getFreeBoundary(), pdeData.getGrid());
   }
 
+  // scratch vectors of the workspace used by SolverImpl
+  private static final int SCRATCH_VALUES = 0;
+  private static final int SCRATCH_C = 1;
+  private static final int SCRATCH_L = 2;
+  private static final int SCRATCH_U = 3;
+  private static final int SCRATCH_FREE = 4;
+  private static final int SCRATCH_INVERSE_DIAGONAL = 5;
+
   private enum SolverMode {
     tridiagonal,
     luDecomp,
@@ -147,36 +153,46 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
 
     @SuppressWarnings({"synthetic-access" })
     public PDEResults1D solve() {
+      final PDEWorkspace workspace = PDEWorkspace.acquire(_nNodesX);
+      try {
+        return solve(workspace);
+      } finally {
+        workspace.release();
+      }
+    }
+
+    /**
+     * Runs the time steps with the buffers of the workspace; only the results are allocated.
+     * @param workspace The workspace
+     * @return The results
+     */
+    @SuppressWarnings({"synthetic-access" })
+    private PDEResults1D solve(final PDEWorkspace workspace) {
 
       double[][] full = null;
       if (_showFullResults) {
-        full = new double[_nNodesT][_nNodesX];
+        full = new double[_nNodesT][];
         full[0] = _initial;
       }
-      double[] h = _initial;
+      final double[] h = workspace.getScratch(SCRATCH_VALUES);
+      System.arraycopy(_initial, 0, h, 0, _nNodesX);
 
       double t = _grid.getTimeNode(0);
 
-      double[] topRow = _lower.getLeftMatrixCondition(_coeff, _grid, t);
-      double[] bottomRow = _upper.getLeftMatrixCondition(_coeff, _grid, t);
-      final double[] cDag = new double[_nNodesX - 2];
-      final double[] lDag = new double[_nNodesX - 2];
-      final double[] uDag = new double[_nNodesX - 2];
-      for (int ii = 0; ii < _nNodesX - 2; ii++) { //tri-diagonal form
-        final double x = _grid.getSpaceNode(ii + 1);
-        final double a = _coeff.getA(t, x);
-        final double b = _coeff.getB(t, x);
-        final double c = _coeff.getC(t, x);
-        cDag[ii] = _x2nd[ii][1] * a + _x1st[ii][1] * b + c;
-        lDag[ii] = _x2nd[ii][0] * a + _x1st[ii][0] * b;
-        uDag[ii] = _x2nd[ii][2] * a + _x1st[ii][2] * b;
-      }
+      final double[] cDag = workspace.getScratch(SCRATCH_C);
+      final double[] lDag = workspace.getScratch(SCRATCH_L);
+      final double[] uDag = workspace.getScratch(SCRATCH_U);
+      updateCoefficients(t, cDag, lDag, uDag);
+
+      //RHS and LHS of system
+      final double[] y = workspace.getRhs();
+      final double[] d = workspace.getDiagonal(); //main diag
+      final double[] u = workspace.getUpper(); //upper
+      final double[] l = workspace.getLower(); //lower
 
       for (int jj = 0; jj < _nNodesT - 1; jj++) {
         final double dt = _dt[jj];
 
-        //RHS of system
-        final double[] y = new double[_nNodesX];
         //main part of RHS
         for (int ii = 1; ii < _nNodesX - 1; ii++) { //tri-diagonal form
           y[ii] = (1 - (1 - _theta) * dt * cDag[ii - 1]) * h[ii] - (1 - _theta) * dt * (lDag[ii - 1] * h[ii - 1] + +uDag[ii - 1] * h[ii + 1]);
@@ -188,62 +204,42 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         y[_nNodesX - 1] = _upper.getConstant(_coeff, t);
 
         //put the LHS of system in tri-diagonal form
-        final double[] d = new double[_nNodesX]; //main diag
-        final double[] u = new double[_nNodesX - 1]; //upper
-        final double[] l = new double[_nNodesX - 1]; //lower
         //lower boundary conditions
-        topRow = _lower.getLeftMatrixCondition(_coeff, _grid, t);
-        final int p2 = topRow.length;
-        d[0] = topRow[0];
-        if (p2 > 1) {
-          u[0] = topRow[1];
-          //Review do we need this?
-          ArgumentChecker.isFalse(p2 > 2, "Boundary condition means that system is not tri-diagonal");
-        }
-        bottomRow = _upper.getLeftMatrixCondition(_coeff, _grid, t);
-        final int q2 = bottomRow.length;
-        d[_nNodesX - 1] = bottomRow[q2 - 1];
-        if (q2 > 1) {
-          l[_nNodesX - 2] = bottomRow[q2 - 2];
-          ArgumentChecker.isFalse(q2 > 2, "Boundary condition means that system is not tri-diagonal");
-        }
-
-        for (int ii = 0; ii < _nNodesX - 2; ii++) { //tri-diagonal form
-          final double x = _grid.getSpaceNode(ii + 1);
-          final double a = _coeff.getA(t, x);
-          final double b = _coeff.getB(t, x);
-          final double c = _coeff.getC(t, x);
-          //debug - fitting par
-          //a = getFittingParameter(a, b, ii);
-          cDag[ii] = _x2nd[ii][1] * a + _x1st[ii][1] * b + c;
-          lDag[ii] = _x2nd[ii][0] * a + _x1st[ii][0] * b;
-          uDag[ii] = _x2nd[ii][2] * a + _x1st[ii][2] * b;
-        }
+        final double[] topRow = _lower.getLeftMatrixCondition(_coeff, _grid, t);
+        //Review do we need this?
+        ArgumentChecker.isFalse(topRow.length > 2, "Boundary condition means that system is not tri-diagonal");
+        workspace.setLowerBoundary(topRow);
+        final double[] bottomRow = _upper.getLeftMatrixCondition(_coeff, _grid, t);
+        ArgumentChecker.isFalse(bottomRow.length > 2, "Boundary condition means that system is not tri-diagonal");
+        workspace.setUpperBoundary(bottomRow, _nNodesX);
 
+        updateCoefficients(t, cDag, lDag, uDag);
 
         for (int ii = 1; ii < _nNodesX - 1; ii++) {
           d[ii] = 1 + _theta * dt * cDag[ii - 1];
           u[ii] = _theta * dt * uDag[ii - 1];
           l[ii - 1] = _theta * dt * lDag[ii - 1];
         }
-        final TridiagonalMatrix lhs = new TridiagonalMatrix(d, u, l);
 
         //solve the system (update h)
         switch (_mode) {
           case tridiagonal:
-            h = solvTriDag(lhs, y);
+            workspace.solve(_nNodesX);
+            System.arraycopy(workspace.getSolution(), 0, h, 0, _nNodesX);
             break;
           case luDecomp:
-            h = solveLU(lhs, y);
+            final TridiagonalMatrix lhs = new TridiagonalMatrix(Arrays.copyOf(d, _nNodesX), Arrays.copyOf(u, _nNodesX - 1), Arrays.copyOf(l, _nNodesX - 1));
+            System.arraycopy(solveLU(lhs, Arrays.copyOf(y, _nNodesX)), 0, h, 0, _nNodesX);
             break;
           case psor:
-            h = solvTriDag(lhs, y);
-            final double[] free = new double[_nNodesX];
+            workspace.solve(_nNodesX);
+            System.arraycopy(workspace.getSolution(), 0, h, 0, _nNodesX);
+            final double[] free = workspace.getScratch(SCRATCH_FREE);
             for (int ii = 0; ii < _nNodesX; ii++) {
               final double x = _grid.getSpaceNode(ii);
               free[ii] = _freeB.getZValue(t, x);
             }
-            h = solvePSOR(lhs, y, h, free);
+            solvePSOR(l, d, u, y, h, free, workspace.getScratch(SCRATCH_INVERSE_DIAGONAL));
             break;
           default:
             throw new NotImplementedException("SolverMode " + _mode.toString() + " not implemented");
@@ -257,26 +253,42 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       if (_showFullResults) {
         res = new PDEFullResults1D(_grid, full);
       } else {
-        res = new PDETerminalResults1D(_grid, h);
+        res = new PDETerminalResults1D(_grid, Arrays.copyOf(h, _nNodesX));
       }
       return res;
     }
 
+    /**
+     * Computes the coefficients of the (tri-diagonal) spatial operator on the internal nodes.
+     * @param t The time
+     * @param cDag The diagonal, filled
+     * @param lDag The lower diagonal, filled
+     * @param uDag The upper diagonal, filled
+     */
+    private void updateCoefficients(final double t, final double[] cDag, final double[] lDag, final double[] uDag) {
+      for (int ii = 0; ii < _nNodesX - 2; ii++) { //tri-diagonal form
+        final double x = _grid.getSpaceNode(ii + 1);
+        final double a = _coeff.getA(t, x);
+        final double b = _coeff.getB(t, x);
+        final double c = _coeff.getC(t, x);
+        //debug - fitting par
+        //a = getFittingParameter(a, b, ii);
+        cDag[ii] = _x2nd[ii][1] * a + _x1st[ii][1] * b + c;
+        lDag[ii] = _x2nd[ii][0] * a + _x1st[ii][0] * b;
+        uDag[ii] = _x2nd[ii][2] * a + _x1st[ii][2] * b;
+      }
+    }
+
     @SuppressWarnings("synthetic-access")
     private double[] solveLU(final TridiagonalMatrix lM, final double[] y) {
       final DecompositionResult res = DCOMP.evaluate(lM.toDoubleMatrix2D());
       return res.solve(y);
     }
 
-    private double[] solvePSOR(final TridiagonalMatrix lM, final double[] b, final double[] x, final double[] minVal) {
-
-      final double[] d = lM.getDiagonalData();
-      final double[] u = lM.getUpperSubDiagonalData();
-      final double[] l = lM.getLowerSubDiagonalData();
+    private void solvePSOR(final double[] l, final double[] d, final double[] u, final double[] b, final double[] x, final double[] minVal, final double[] invD) {
 
       final int maxInt = 100000;
       final double omega = 1.0;
-      final double[] invD = new double[_nNodesX];
       for (int ii = 0; ii < _nNodesX; ii++) {
         if (d[ii] == 0.0) {
           throw new MathException("Cannot solve by PSOR - zero on diagonal");
@@ -284,7 +296,7 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
         invD[ii] = 1.0 / d[ii];
       }
 
-      final int n = b.length;
+      final int n = _nNodesX;
       double maxErr = 1.0;
       int count = 0;
       double temp;
@@ -317,7 +329,6 @@ public class ThetaMethodFiniteDifference implements ConvectionDiffusionPDESolver
       if (count == maxInt) {
         throw new MathException("PSOR failed to converge");
       }
-      return x;
     }
 
     /**
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.option.pricing.fourier;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.Validate;
+
+/**
+ * An {@link FFTPricer} remembering the integration limits and the transformed characteristic function grids it has computed, by
+ * characteristic exponent (i.e. model parameters), expiry and FFT set up.
+ * <p>
+ * The grid does not depend on the forward, the discount factor, the type of the option or the strikes, so pricing the calls and the puts
+ * of an expiry, or several strike ranges, or the same model parameters again (e.g. when a calibration evaluates the same point twice)
+ * only costs the final sum over the strikes. The characteristic exponents are compared with their {@code equals} method, which compares
+ * the model parameters for the exponents of this package.
+ * <p>
+ * The caches keep the most recently used entries, up to a maximum size. This class is thread-safe.
+ */
+public class CachedFFTPricer extends FFTPricer {
+  /** The default maximum number of grids and limits remembered */
+  private static final int DEFAULT_MAX_SIZE = 64;
+
+  /** The integral limits, by characteristic exponent, expiry, alpha and tolerance */
+  private final Map<LimitKey, Double> _limits;
+  /** The transformed grids, by characteristic exponent, expiry, alpha and sampling */
+  private final Map<TransformKey, double[]> _transforms;
+
+  /**
+   * Remembers the default number of grids and limits.
+   */
+  public CachedFFTPricer() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param maxSize The maximum number of grids and limits remembered, positive
+   */
+  public CachedFFTPricer(final int maxSize) {
+    Validate.isTrue(maxSize > 0, "need maxSize > 0");
+    _limits = createCache(maxSize);
+    _transforms = createCache(maxSize);
+  }
+
+  private static <K, V> Map<K, V> createCache(final int maxSize) {
+    return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+        return size() > maxSize;
+      }
+    });
+  }
+
+  @Override
+  protected double getIntegralLimit(final MartingaleCharacteristicExponent ce, final double t, final double alpha, final double tol) {
+    final LimitKey key = new LimitKey(ce, t, alpha, tol);
+    Double limit = _limits.get(key);
+    if (limit == null) {
+      // computed outside the lock; two threads may compute the same limit
+      limit = super.getIntegralLimit(ce, t, alpha, tol);
+      _limits.put(key, limit);
+    }
+    return limit;
+  }
+
+  @Override
+  protected double[] getTransform(final MartingaleCharacteristicExponent ce, final double t, final double alpha, final double delta, final int n, final int m) {
+    final TransformKey key = new TransformKey(ce, t, alpha, delta, n, m);
+    double[] transform = _transforms.get(key);
+    if (transform == null) {
+      transform = super.getTransform(ce, t, alpha, delta, n, m);
+      _transforms.put(key, transform);
+    }
+    return transform;
+  }
+
+  /**
+   * Gets the number of transformed grids remembered.
+   * @return The number of grids
+   */
+  public int getNumberOfCachedTransforms() {
+    return _transforms.size();
+  }
+
+  /**
+   * Forgets the grids and limits.
+   */
+  public void clear() {
+    _limits.clear();
+    _transforms.clear();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The key of an integral limit.
+   */
+  private static final class LimitKey {
+    private final MartingaleCharacteristicExponent _ce;
+    private final double _t;
+    private final double _alpha;
+    private final double _tol;
+
+    private LimitKey(final MartingaleCharacteristicExponent ce, final double t, final double alpha, final double tol) {
+      _ce = ce;
+      _t = t;
+      _alpha = alpha;
+      _tol = tol;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = _ce.hashCode();
+      long temp;
+      temp = Double.doubleToLongBits(_t);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(_alpha);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(_tol);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof LimitKey)) {
+        return false;
+      }
+      final LimitKey other = (LimitKey) obj;
+      return Double.doubleToLongBits(_t) == Double.doubleToLongBits(other._t) &&
+          Double.doubleToLongBits(_alpha) == Double.doubleToLongBits(other._alpha) &&
+          Double.doubleToLongBits(_tol) == Double.doubleToLongBits(other._tol) &&
+          ObjectUtils.equals(_ce, other._ce);
+    }
+  }
+
+  /**
+   * The key of a transformed grid.
+   */
+  private static final class TransformKey {
+    private final MartingaleCharacteristicExponent _ce;
+    private final double _t;
+    private final double _alpha;
+    private final double _delta;
+    private final int _n;
+    private final int _m;
+
+    private TransformKey(final MartingaleCharacteristicExponent ce, final double t, final double alpha, final double delta, final int n, final int m) {
+      _ce = ce;
+      _t = t;
+      _alpha = alpha;
+      _delta = delta;
+      _n = n;
+      _m = m;
+    }
+
+    @Override
+    public int hashCode() {
+      final int prime = 31;
+      int result = _ce.hashCode();
+      long temp;
+      temp = Double.doubleToLongBits(_t);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(_alpha);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(_delta);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      result = prime * result + _n;
+      result = prime * result + _m;
+      return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof TransformKey)) {
+        return false;
+      }
+      final TransformKey other = (TransformKey) obj;
+      return _n == other._n && _m == other._m &&
+          Double.doubleToLongBits(_t) == Double.doubleToLongBits(other._t) &&
+          Double.doubleToLongBits(_alpha) == Double.doubleToLongBits(other._alpha) &&
+          Double.doubleToLongBits(_delta) == Double.doubleToLongBits(other._delta) &&
+          ObjectUtils.equals(_ce, other._ce);
+    }
+  }
+
+}
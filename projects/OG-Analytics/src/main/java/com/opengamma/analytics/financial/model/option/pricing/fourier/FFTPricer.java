@@ -5,11 +5,8 @@
  */
 package com.opengamma.analytics.financial.model.option.pricing.fourier;
 
-import static com.opengamma.analytics.math.number.ComplexNumber.ZERO;
-
 import org.apache.commons.lang.Validate;
 
-import com.opengamma.analytics.math.ComplexMathUtils;
 import com.opengamma.analytics.math.fft.JTransformsWrapper;
 import com.opengamma.analytics.math.function.Function1D;
 import com.opengamma.analytics.math.number.ComplexNumber;
@@ -62,9 +59,7 @@ public class FFTPricer {
       kMax = -Math.log(2 * (1 - atm) * tol) * Math.max(-1.0 / alpha, 1 / (1 + alpha));
     }
 
-    final EuropeanCallFourierTransform psi = new EuropeanCallFourierTransform(ce);
-    final Function1D<ComplexNumber, ComplexNumber> psiFunction = psi.getFunction(t);
-    final double xMax = LIMIT_CALCULATOR.solve(psiFunction, alpha, tol);
+    final double xMax = getIntegralLimit(ce, t, alpha, tol);
 
     double deltaK;
     if (highestStrike == lowestStrike) {
@@ -125,8 +120,7 @@ public class FFTPricer {
       kMax = -Math.log(2 * (1 - atm) * tol) * Math.max(-1.0 / alpha, 1 / (1 + alpha));
     }
 
-    final Function1D<ComplexNumber, ComplexNumber> psi = new EuropeanCallFourierTransform(ce).getFunction(t);
-    final double xMax = LIMIT_CALCULATOR.solve(psi, alpha, tol);
+    final double xMax = getIntegralLimit(ce, t, alpha, tol);
 
     final double deltaK = Math.min(maxDeltaMoneyness, Math.PI / xMax);
 
@@ -177,11 +171,9 @@ public class FFTPricer {
     Validate.isTrue(m > 0, "need m > 0");
     Validate.isTrue(n >= 2 * m - 1, "need n > 2m-1");
 
-    final Function1D<ComplexNumber, ComplexNumber> func = new EuropeanCallFourierTransform(ce).getFunction(t);
     final int halfN = n % 2 == 0 ? n / 2 : (n + 1) / 2;
     final double a = -(halfN - 1) * delta;
-    final ComplexNumber[] z = getPaddedArray(alpha, delta, n, m, func, halfN);
-    final ComplexNumber[] x = JTransformsWrapper.transform1DComplex(z);
+    final double[] x = getTransform(ce, t, alpha, delta, n, m);
     final int nLowStrikes = Math.min(halfN, nStrikesBelowATM);
     final int nHighStrikes = Math.min(n - halfN, nStrikesAboveATM);
     final int p = 1 + nLowStrikes + nHighStrikes;
@@ -189,47 +181,75 @@ public class FFTPricer {
     final double deltaK = 2 * Math.PI / delta / n;
     for (int i = 0; i < nLowStrikes; i++) {
       final double k = (i - nLowStrikes) * deltaK;
+      final int index = 2 * (i + n - nLowStrikes);
       res[i][0] = forward * Math.exp(k);
-      res[i][1] = discountFactor * forward * getReducedPrice(x[i + n - nLowStrikes], alpha, delta, k, a, isCall);
+      res[i][1] = discountFactor * forward * getReducedPrice(x[index], x[index + 1], alpha, delta, k, a, isCall);
     }
     for (int i = nLowStrikes; i < p; i++) {
       final double k = (i - nLowStrikes) * deltaK;
+      final int index = 2 * (i - nLowStrikes);
       res[i][0] = forward * Math.exp(k);
-      res[i][1] = discountFactor * forward * getReducedPrice(x[i - nLowStrikes], alpha, delta, k, a, isCall);
+      res[i][1] = discountFactor * forward * getReducedPrice(x[index], x[index + 1], alpha, delta, k, a, isCall);
     }
     return res;
   }
 
-  private ComplexNumber[] getPaddedArray(final double alpha, final double delta, final int n, final int m, final Function1D<ComplexNumber, ComplexNumber> func, final int halfN) {
-    final ComplexNumber[] z = new ComplexNumber[n];
-
-    final int lowerPadOutSize = halfN - m;
-    final int upperPadOutSize = n - halfN + 1 - m;
-
-    for (int i = 0; i < lowerPadOutSize; i++) {
-      z[i] = ZERO;
-    }
+  /**
+   * Computes the upper limit of the Fourier integral of a European call.
+   * @param ce The Characteristic Exponent (log of characteristic function) of the returns of the underlying
+   * @param t Time to expiry
+   * @param alpha Regularization factor
+   * @param tol Tolerance
+   * @return The upper limit of the integral
+   */
+  protected double getIntegralLimit(final MartingaleCharacteristicExponent ce, final double t, final double alpha, final double tol) {
+    final Function1D<ComplexNumber, ComplexNumber> psi = new EuropeanCallFourierTransform(ce).getFunction(t);
+    return LIMIT_CALCULATOR.solve(psi, alpha, tol);
+  }
 
-    for (int i = n - upperPadOutSize; i < n; i++) {
-      z[i] = ZERO;
-    }
+  /**
+   * Computes the FFT of the (zero padded) samples of the Fourier transform of a European call. The values do not depend on the forward,
+   * the discount factor, the type of the option or the strikes.
+   * @param ce The Characteristic Exponent (log of characteristic function) of the returns of the underlying
+   * @param t Time to expiry
+   * @param alpha Regularization factor
+   * @param delta The spacing for sampling the function
+   * @param n The (zero padded) array of sample values
+   * @param m The actual number of samples
+   * @return The n complex values of the FFT, with the real part of the i-th value at 2i and its imaginary part at 2i + 1. The array must
+   * not be modified, as it can be shared between calls.
+   */
+  protected double[] getTransform(final MartingaleCharacteristicExponent ce, final double t, final double alpha, final double delta, final int n, final int m) {
+    final Function1D<ComplexNumber, ComplexNumber> func = new EuropeanCallFourierTransform(ce).getFunction(t);
+    final int halfN = n % 2 == 0 ? n / 2 : (n + 1) / 2;
+    final double[] z = getPaddedArray(alpha, delta, n, m, func, halfN);
+    JTransformsWrapper.transform1DComplexInPlace(z);
+    return z;
+  }
 
-    ComplexNumber u = new ComplexNumber(0.0, -(1 + alpha));
+  private double[] getPaddedArray(final double alpha, final double delta, final int n, final int m, final Function1D<ComplexNumber, ComplexNumber> func, final int halfN) {
+    // the values outside the m samples either side of the centre are left at zero
+    final double[] z = new double[2 * n];
     final int offset = halfN - 1;
-    z[offset] = func.evaluate(u);
+    final ComplexNumber f0 = func.evaluate(new ComplexNumber(0.0, -(1 + alpha)));
+    z[2 * offset] = f0.getReal();
+    z[2 * offset + 1] = f0.getImaginary();
 
     for (int i = 1; i < m; i++) {
-      u = new ComplexNumber(i * delta, -(1 + alpha));
-      final ComplexNumber f = func.evaluate(u);
-      z[offset + i] = f;
-      z[offset - i] = ComplexMathUtils.conjugate(f); //TODO the FFT should take care of this
+      final ComplexNumber f = func.evaluate(new ComplexNumber(i * delta, -(1 + alpha)));
+      z[2 * (offset + i)] = f.getReal();
+      z[2 * (offset + i) + 1] = f.getImaginary();
+      z[2 * (offset - i)] = f.getReal(); //TODO the FFT should take care of this
+      z[2 * (offset - i) + 1] = -f.getImaginary();
     }
     return z;
   }
 
-  private double getReducedPrice(final ComplexNumber x, final double alpha, final double delta, final double k, final double a, final boolean isCall) {
-    final ComplexNumber temp = ComplexMathUtils.multiply(ComplexMathUtils.exp(new ComplexNumber(-alpha * k, -k * a)), x);
-    final double y = delta * temp.getReal() / 2 / Math.PI;
+  private double getReducedPrice(final double xReal, final double xImaginary, final double alpha, final double delta, final double k, final double a,
+      final boolean isCall) {
+    // real part of exp(-alpha * k - i * k * a) * x
+    final double temp = Math.exp(-alpha * k) * (Math.cos(k * a) * xReal + Math.sin(k * a) * xImaginary);
+    final double y = delta * temp / 2 / Math.PI;
     if (isCall) {
       if (alpha > 0.0) {
         return y;
@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.option.pricing.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.primitives.Doubles;
+import com.opengamma.analytics.financial.greeks.Greek;
+import com.opengamma.analytics.financial.greeks.GreekResultCollection;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Binomial tree pricing of a batch of vanilla options on the same underlying, with the same expiry and number of steps, e.g. the strikes
+ * of a listed expiry. The options sharing one lattice are priced in a single backward induction.
+ * <p>
+ * The option values of all the options are held in one buffer indexed by node then option, updated in place from one step to the
+ * previous one, so that no array is allocated per step. Delta, gamma and theta are read from the nodes of the first two steps of the
+ * same induction, as in {@link BinomialTreeOptionPricingModel#getGreeks(LatticeSpecification, OptionFunctionProvider1D, double, double, double, double)}.
+ * <p>
+ * The options are given by {@link EuropeanVanillaOptionFunctionProvider} and {@link AmericanVanillaOptionFunctionProvider}, which can be
+ * mixed in one batch. The options are grouped by lattice parameters and each group is priced on its own lattice, so a lattice depending
+ * on the strike, such as {@link LeisenReimerLatticeSpecification}, gives the same prices as the pricing of each option, with one induction
+ * per strike.
+ */
+public class BinomialTreeBatchOptionPricingModel {
+
+  /**
+   * Computes the prices of a batch of options.
+   * @param lattice The lattice specification, not null
+   * @param functions The vanilla options, with the same time to expiry and number of steps, not null or empty
+   * @param spot The spot
+   * @param volatility The volatility
+   * @param interestRate The interest rate
+   * @param dividend The continuous dividend
+   * @return The price of each option
+   */
+  public double[] getPrices(final LatticeSpecification lattice, final OptionFunctionProvider1D[] functions, final double spot, final double volatility,
+      final double interestRate, final double dividend) {
+    final double[][] results = backwardInduction(lattice, functions, spot, volatility, interestRate, dividend, false);
+    final int nOptions = functions.length;
+    final double[] prices = new double[nOptions];
+    for (int k = 0; k < nOptions; ++k) {
+      prices[k] = results[k][0];
+    }
+    return prices;
+  }
+
+  /**
+   * Computes the price, delta, gamma and theta of a batch of options.
+   * @param lattice The lattice specification, not null
+   * @param functions The vanilla options, with the same time to expiry and number of steps, not null or empty
+   * @param spot The spot
+   * @param volatility The volatility
+   * @param interestRate The interest rate
+   * @param dividend The continuous dividend
+   * @return The greeks of each option: {@link Greek#FAIR_PRICE}, {@link Greek#DELTA}, {@link Greek#GAMMA} and {@link Greek#THETA}
+   */
+  public GreekResultCollection[] getGreeks(final LatticeSpecification lattice, final OptionFunctionProvider1D[] functions, final double spot, final double volatility,
+      final double interestRate, final double dividend) {
+    final double[][] results = backwardInduction(lattice, functions, spot, volatility, interestRate, dividend, true);
+    final int nOptions = functions.length;
+    final GreekResultCollection[] collections = new GreekResultCollection[nOptions];
+    for (int k = 0; k < nOptions; ++k) {
+      final GreekResultCollection collection = new GreekResultCollection();
+      collection.put(Greek.FAIR_PRICE, results[k][0]);
+      collection.put(Greek.DELTA, results[k][1]);
+      collection.put(Greek.GAMMA, results[k][2]);
+      collection.put(Greek.THETA, results[k][3]);
+      collections[k] = collection;
+    }
+    return collections;
+  }
+
+  /**
+   * @return {price_{0,0}, delta_{0,0}, gamma_{0,0}, theta_{0,0}} of each option; only the price is computed if greeks is false
+   */
+  private double[][] backwardInduction(final LatticeSpecification lattice, final OptionFunctionProvider1D[] functions, final double spot, final double volatility,
+      final double interestRate, final double dividend, final boolean greeks) {
+    ArgumentChecker.notNull(lattice, "lattice");
+    ArgumentChecker.notEmpty(functions, "functions");
+    ArgumentChecker.noNulls(functions, "functions");
+    ArgumentChecker.isTrue(spot > 0., "Spot should be positive");
+    ArgumentChecker.isTrue(Doubles.isFinite(spot), "Spot should be finite");
+    ArgumentChecker.isTrue(volatility > 0., "volatility should be positive");
+    ArgumentChecker.isTrue(Doubles.isFinite(volatility), "volatility should be finite");
+    ArgumentChecker.isTrue(Doubles.isFinite(interestRate), "interestRate should be finite");
+    ArgumentChecker.isTrue(Doubles.isFinite(dividend), "dividend should be finite");
+
+    final int nOptions = functions.length;
+    final int nSteps = functions[0].getNumberOfSteps();
+    final double timeToExpiry = functions[0].getTimeToExpiry();
+    final double[] strikes = new double[nOptions];
+    final double[] signs = new double[nOptions];
+    final boolean[] isAmerican = new boolean[nOptions];
+    for (int k = 0; k < nOptions; ++k) {
+      final OptionFunctionProvider1D function = functions[k];
+      ArgumentChecker.isTrue(function.getClass() == EuropeanVanillaOptionFunctionProvider.class || function.getClass() == AmericanVanillaOptionFunctionProvider.class,
+          "function {} is not a vanilla option", k);
+      ArgumentChecker.isTrue(function.getNumberOfSteps() == nSteps, "function {} does not have {} steps", k, nSteps);
+      ArgumentChecker.isTrue(function.getTimeToExpiry() == timeToExpiry, "function {} does not expire at {}", k, timeToExpiry);
+      strikes[k] = function.getStrike();
+      signs[k] = function.getSign();
+      isAmerican[k] = function instanceof AmericanVanillaOptionFunctionProvider;
+    }
+
+    final LatticeSpecification modLattice = (lattice instanceof TimeVaryingLatticeSpecification) ? new TrigeorgisLatticeSpecification() : lattice;
+    final double dt = timeToExpiry / nSteps;
+
+    // the lattice may depend on the strike, so the options sharing the same lattice parameters are priced together
+    final Map<Double, double[]> paramsByStrike = new HashMap<>();
+    final List<double[]> groupParams = new ArrayList<>();
+    final List<List<Integer>> groups = new ArrayList<>();
+    for (int k = 0; k < nOptions; ++k) {
+      double[] params = paramsByStrike.get(strikes[k]);
+      if (params == null) {
+        params = modLattice.getParameters(spot, strikes[k], timeToExpiry, volatility, interestRate - dividend, nSteps, dt);
+        paramsByStrike.put(strikes[k], params);
+      }
+      int group = 0;
+      while (group < groupParams.size() && !Arrays.equals(groupParams.get(group), params)) {
+        ++group;
+      }
+      if (group == groupParams.size()) {
+        groupParams.add(params);
+        groups.add(new ArrayList<Integer>());
+      }
+      groups.get(group).add(k);
+    }
+
+    final double[][] res = new double[nOptions][];
+    for (int group = 0; group < groups.size(); ++group) {
+      final List<Integer> options = groups.get(group);
+      final int nGroup = options.size();
+      final double[] groupStrikes = new double[nGroup];
+      final double[] groupSigns = new double[nGroup];
+      final boolean[] groupIsAmerican = new boolean[nGroup];
+      for (int g = 0; g < nGroup; ++g) {
+        groupStrikes[g] = strikes[options.get(g)];
+        groupSigns[g] = signs[options.get(g)];
+        groupIsAmerican[g] = isAmerican[options.get(g)];
+      }
+      final double[][] groupRes = backwardInduction(modLattice, groupParams.get(group), groupStrikes, groupSigns, groupIsAmerican, nSteps, dt, spot, volatility,
+          interestRate, dividend, greeks);
+      for (int g = 0; g < nGroup; ++g) {
+        res[options.get(g)] = groupRes[g];
+      }
+    }
+    return res;
+  }
+
+  /**
+   * @return {price_{0,0}, delta_{0,0}, gamma_{0,0}, theta_{0,0}} of each option of a group sharing the lattice parameters
+   */
+  private double[][] backwardInduction(final LatticeSpecification modLattice, final double[] params, final double[] strikes, final double[] signs,
+      final boolean[] isAmerican, final int nSteps, final double dt, final double spot, final double volatility, final double interestRate, final double dividend,
+      final boolean greeks) {
+    final int nOptions = strikes.length;
+    final double discount = Math.exp(-interestRate * dt);
+    final double upFactor = params[0];
+    final double downFactor = params[1];
+    final double upProbability = params[2];
+    final double downProbability = params[3];
+    final double upOverDown = upFactor / downFactor;
+    ArgumentChecker.isTrue(upProbability > 0., "upProbability should be greater than 0.");
+    ArgumentChecker.isTrue(upProbability < 1., "upProbability should be smaller than 1.");
+    final double upDiscount = discount * upProbability;
+    final double downDiscount = discount * downProbability;
+
+    /*
+     * values[j * nOptions + k] is the value of the k-th option at the j-th node of the current step
+     */
+    final double[] values = new double[(nSteps + 1) * nOptions];
+    double assetPrice = spot * Math.pow(downFactor, nSteps);
+    for (int j = 0; j <= nSteps; ++j) {
+      final int offset = j * nOptions;
+      for (int k = 0; k < nOptions; ++k) {
+        values[offset + k] = Math.max(signs[k] * (assetPrice - strikes[k]), 0.);
+      }
+      assetPrice *= upOverDown;
+    }
+
+    final double[][] res = new double[nOptions][4];
+    final double[] pForDelta = new double[] {spot * downFactor, spot * upFactor };
+    final double[] pForGamma = new double[] {pForDelta[0] * downFactor, pForDelta[0] * upFactor, pForDelta[1] * upFactor };
+
+    for (int i = nSteps - 1; i > -1; --i) {
+      assetPrice = spot * Math.pow(downFactor, i);
+      // the node j only depends on the nodes j and j + 1 of the next step, so the nodes can be overwritten in increasing order
+      for (int j = 0; j <= i; ++j) {
+        final int offset = j * nOptions;
+        for (int k = 0; k < nOptions; ++k) {
+          final double continuation = upDiscount * values[offset + nOptions + k] + downDiscount * values[offset + k];
+          values[offset + k] = isAmerican[k] ? Math.max(continuation, signs[k] * (assetPrice - strikes[k])) : continuation;
+        }
+        assetPrice *= upOverDown;
+      }
+      if (greeks && i == 2) {
+        for (int k = 0; k < nOptions; ++k) {
+          final double value0 = values[k];
+          final double value1 = values[nOptions + k];
+          final double value2 = values[2 * nOptions + k];
+          res[k][2] = 2. * ((value2 - value1) / (pForGamma[2] - pForGamma[1]) - (value1 - value0) / (pForGamma[1] - pForGamma[0])) / (pForGamma[2] - pForGamma[0]);
+          res[k][3] = value1;
+        }
+      }
+      if (greeks && i == 1) {
+        for (int k = 0; k < nOptions; ++k) {
+          res[k][1] = (values[nOptions + k] - values[k]) / (pForDelta[1] - pForDelta[0]);
+        }
+      }
+    }
+
+    for (int k = 0; k < nOptions; ++k) {
+      res[k][0] = values[k];
+      if (greeks) {
+        res[k][3] = modLattice.getTheta(spot, volatility, interestRate, dividend, dt, res[k]);
+      }
+    }
+    return res;
+  }
+
+}
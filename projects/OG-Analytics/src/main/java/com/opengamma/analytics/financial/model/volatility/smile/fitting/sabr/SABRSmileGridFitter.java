@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.smile.fitting.sabr;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.SABRModelFitter;
+import com.opengamma.analytics.financial.model.volatility.smile.function.SABRFormulaData;
+import com.opengamma.analytics.financial.model.volatility.smile.function.VolatilityFunctionProvider;
+import com.opengamma.analytics.math.MathException;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.statistics.leastsquare.LeastSquareResultsWithTransform;
+import com.opengamma.analytics.util.ParallelRanges;
+import com.opengamma.analytics.util.ParallelRanges.RangeTask;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Fits the SABR model to all the smiles of a grid, e.g. the expiry x tenor grid of a swaption volatility cube, with one
+ * {@link SABRModelFitter} per smile.
+ * <p>
+ * The rows of the grid (e.g. the tenors) are fitted in parallel; within a row the smiles are fitted in order (e.g. of increasing expiry),
+ * each fit starting from the parameters of the previous smile of the row, which are usually close to the solution. The parameters fitted
+ * in a previous calibration (e.g. the previous market data cycle) can also be supplied as starting points. A fit that fails from
+ * such a warm start is repeated from the default starting point. The fixed parameters always take their value from the default starting
+ * point.
+ */
+public class SABRSmileGridFitter {
+  private final VolatilityFunctionProvider<SABRFormulaData> _model;
+  private final DoubleMatrix1D _start;
+  private final BitSet _fixed;
+  private final ExecutorService _executor;
+  private final int _parallelism;
+
+  /**
+   * Fitter using a shared pool with one thread per available processor.
+   * @param model The SABR volatility function, not null
+   * @param start The default starting point (alpha, beta, rho, nu), not null
+   * @param fixed The parameters fixed to their value in the default starting point, not null
+   */
+  public SABRSmileGridFitter(final VolatilityFunctionProvider<SABRFormulaData> model, final DoubleMatrix1D start, final BitSet fixed) {
+    this(model, start, fixed, ParallelRanges.getSharedExecutor(), ParallelRanges.getSharedParallelism());
+  }
+
+  /**
+   * @param model The SABR volatility function, not null
+   * @param start The default starting point (alpha, beta, rho, nu), not null
+   * @param fixed The parameters fixed to their value in the default starting point, not null
+   * @param executor The executor, null to run in the calling thread
+   * @param parallelism The maximum number of concurrent tasks, positive
+   */
+  public SABRSmileGridFitter(final VolatilityFunctionProvider<SABRFormulaData> model, final DoubleMatrix1D start, final BitSet fixed, final ExecutorService executor,
+      final int parallelism) {
+    ArgumentChecker.notNull(model, "model");
+    ArgumentChecker.notNull(start, "start");
+    ArgumentChecker.notNull(fixed, "fixed");
+    ArgumentChecker.isTrue(start.getNumberOfElements() == 4, "need 4 SABR parameters, have {}", start.getNumberOfElements());
+    ArgumentChecker.isTrue(parallelism > 0, "parallelism must be positive");
+    _model = model;
+    _start = start;
+    _fixed = (BitSet) fixed.clone();
+    _executor = executor;
+    _parallelism = parallelism;
+  }
+
+  /**
+   * Fits the smiles of a grid, starting each row from the default starting point.
+   * @param forwards The forward of each smile, by row then column, not null
+   * @param expiries The time to expiry of each smile, by row then column, not null
+   * @param strikes The strikes of each smile, by row then column; null for the points of the grid without a smile
+   * @param impliedVols The implied volatilities of each smile, by row then column, not null
+   * @param errors The 'measurement' errors of each smile, by row then column, not null
+   * @return The fit of each smile, by row then column; null for the points of the grid without a smile
+   */
+  public LeastSquareResultsWithTransform[][] solve(final double[][] forwards, final double[][] expiries, final double[][][] strikes, final double[][][] impliedVols,
+      final double[][][] errors) {
+    return solve(forwards, expiries, strikes, impliedVols, errors, null);
+  }
+
+  /**
+   * Fits the smiles of a grid.
+   * @param forwards The forward of each smile, by row then column, not null
+   * @param expiries The time to expiry of each smile, by row then column, not null
+   * @param strikes The strikes of each smile, by row then column; null for the points of the grid without a smile
+   * @param impliedVols The implied volatilities of each smile, by row then column, not null
+   * @param errors The 'measurement' errors of each smile, by row then column, not null
+   * @param previous The parameters of a previous fit of each smile, by row then column, used as starting points; null, or null
+   * for the smiles without previous parameters
+   * @return The fit of each smile, by row then column; null for the points of the grid without a smile
+   */
+  public LeastSquareResultsWithTransform[][] solve(final double[][] forwards, final double[][] expiries, final double[][][] strikes, final double[][][] impliedVols,
+      final double[][][] errors, final DoubleMatrix1D[][] previous) {
+    ArgumentChecker.notNull(forwards, "forwards");
+    ArgumentChecker.notNull(expiries, "expiries");
+    ArgumentChecker.notNull(strikes, "strikes");
+    ArgumentChecker.notNull(impliedVols, "implied volatilities");
+    ArgumentChecker.notNull(errors, "errors");
+    final int nRows = strikes.length;
+    ArgumentChecker.isTrue(forwards.length == nRows, "have {} rows of forwards, expected {}", forwards.length, nRows);
+    ArgumentChecker.isTrue(expiries.length == nRows, "have {} rows of expiries, expected {}", expiries.length, nRows);
+    ArgumentChecker.isTrue(impliedVols.length == nRows, "have {} rows of implied volatilities, expected {}", impliedVols.length, nRows);
+    ArgumentChecker.isTrue(errors.length == nRows, "have {} rows of errors, expected {}", errors.length, nRows);
+    ArgumentChecker.isTrue(previous == null || previous.length == nRows, "have {} rows of previous parameters, expected {}", previous == null ? 0 : previous.length, nRows);
+    for (int i = 0; i < nRows; i++) {
+      final int nColumns = strikes[i].length;
+      ArgumentChecker.isTrue(forwards[i].length == nColumns && expiries[i].length == nColumns && impliedVols[i].length == nColumns && errors[i].length == nColumns,
+          "row {} does not have {} smiles for each input", i, nColumns);
+      ArgumentChecker.isTrue(previous == null || previous[i] == null || previous[i].length == nColumns, "row {} of previous parameters does not have {} smiles", i, nColumns);
+    }
+
+    final LeastSquareResultsWithTransform[][] results = new LeastSquareResultsWithTransform[nRows][];
+    ParallelRanges.run(_executor, _parallelism, nRows, new RangeTask() {
+      @SuppressWarnings("synthetic-access")
+      @Override
+      public void evaluate(final int first, final int last) {
+        for (int i = first; i < last; i++) {
+          results[i] = solveRow(forwards[i], expiries[i], strikes[i], impliedVols[i], errors[i], previous == null ? null : previous[i]);
+        }
+      }
+    });
+    return results;
+  }
+
+  private LeastSquareResultsWithTransform[] solveRow(final double[] forwards, final double[] expiries, final double[][] strikes, final double[][] impliedVols,
+      final double[][] errors, final DoubleMatrix1D[] previous) {
+    final int n = strikes.length;
+    final LeastSquareResultsWithTransform[] results = new LeastSquareResultsWithTransform[n];
+    DoubleMatrix1D neighbour = null;
+    for (int j = 0; j < n; j++) {
+      if (strikes[j] == null) {
+        continue;
+      }
+      final SABRModelFitter fitter = new SABRModelFitter(forwards[j], strikes[j], expiries[j], impliedVols[j], errors[j], _model);
+      final DoubleMatrix1D warmStart = previous != null && previous[j] != null ? previous[j] : neighbour;
+      LeastSquareResultsWithTransform result = null;
+      if (warmStart != null) {
+        try {
+          result = fitter.solve(withFixedParameters(warmStart), _fixed);
+        } catch (final MathException e) {
+          result = null;
+        }
+      }
+      if (result == null) {
+        result = fitter.solve(_start, _fixed);
+      }
+      results[j] = result;
+      neighbour = result.getModelParameters();
+    }
+    return results;
+  }
+
+  private DoubleMatrix1D withFixedParameters(final DoubleMatrix1D start) {
+    final double[] parameters = start.toArray();
+    for (int k = _fixed.nextSetBit(0); k >= 0 && k < parameters.length; k = _fixed.nextSetBit(k + 1)) {
+      parameters[k] = _start.getEntry(k);
+    }
+    return new DoubleMatrix1D(parameters);
+  }
+
+}
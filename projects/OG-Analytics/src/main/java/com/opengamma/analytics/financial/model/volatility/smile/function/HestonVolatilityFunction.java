@@ -13,6 +13,7 @@ import java.util.Arrays;
 import org.apache.commons.lang.Validate;
 
 import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.financial.model.option.pricing.fourier.CachedFFTPricer;
 import com.opengamma.analytics.financial.model.option.pricing.fourier.FFTModelGreeks;
 import com.opengamma.analytics.financial.model.option.pricing.fourier.FFTPricer;
 import com.opengamma.analytics.financial.model.option.pricing.fourier.HestonCharacteristicExponent;
@@ -28,8 +29,8 @@ import com.opengamma.lang.annotation.ExternalFunction;
  * 
  */
 public class HestonVolatilityFunction extends VolatilityFunctionProvider<HestonModelData> {
-  /** The FFT pricer */
-  private static final FFTPricer FFT_PRICER = new FFTPricer();
+  /** The FFT pricer, remembering the characteristic function grids of the model parameters recently priced */
+  private static final FFTPricer FFT_PRICER = new CachedFFTPricer();
   /** The default interpolator */
   private static final Interpolator1D DEFAULT_INTERPOLATOR1D = CombinedInterpolatorExtrapolatorFactory.getInterpolator(DOUBLE_QUADRATIC, FLAT_EXTRAPOLATOR, FLAT_EXTRAPOLATOR);
   /** The default limit of sigma */
@@ -87,8 +88,8 @@ public class HestonVolatilityFunction extends VolatilityFunctionProvider<HestonM
       @Override
       public double[] evaluate(final HestonModelData x) {
         final MartingaleCharacteristicExponent ce = new HestonCharacteristicExponent(x);
-        //TODO calculations relating to the FFT setup are made each call, even though they will be very similar (depends on Characteristic
-        // Exponent). Maybe worth calculating a typical setup, outside of this function
+        //TODO the FFT setup is only remembered for the same Characteristic Exponent, even though it will be very similar for close
+        // parameters. Maybe worth calculating a typical setup, outside of this function
         final double[][] strikeNPrice = FFT_PRICER.price(forward, 1.0, timeToExpiry, true, ce, lowestStrike, highestStrike, n, _limitSigma, _alpha, _limitTolerance);
         final int m = strikeNPrice.length;
         final double[] k = new double[m];
@@ -53,6 +53,22 @@ public class SABRHaganVolatilityFunction extends VolatilityFunctionProvider<SABR
     };
   }
 
+  @Override
+  public Function1D<SABRFormulaData, double[]> getVolatilityFunction(final double forward, final double[] strikes, final double timeToExpiry) {
+    final EuropeanVanillaOption[] options = getOptions(forward, strikes, timeToExpiry);
+    return new Function1D<SABRFormulaData, double[]>() {
+      @Override
+      public double[] evaluate(final SABRFormulaData data) {
+        Validate.notNull(data, "data");
+        final double[] res = new double[options.length];
+        for (int i = 0; i < options.length; i++) {
+          res[i] = getVolatility(options[i], forward, data);
+        }
+        return res;
+      }
+    };
+  }
+
   @Override
   public Function1D<SABRFormulaData, double[]> getVolatilityAdjointFunction(final EuropeanVanillaOption option, final double forward) {
     Validate.notNull(option, "option");
@@ -88,7 +104,28 @@ public class SABRHaganVolatilityFunction extends VolatilityFunctionProvider<SABR
 
   @Override
   public Function1D<SABRFormulaData, double[][]> getModelAdjointFunction(final double forward, final double[] strikes, final double timeToExpiry) {
-    return getModelAdjointFunctionByCallingSingleStrikes(forward, strikes, timeToExpiry);
+    final EuropeanVanillaOption[] options = getOptions(forward, strikes, timeToExpiry);
+    return new Function1D<SABRFormulaData, double[][]>() {
+      @Override
+      public double[][] evaluate(final SABRFormulaData data) {
+        Validate.notNull(data, "data");
+        final double[][] res = new double[options.length][];
+        for (int i = 0; i < options.length; i++) {
+          res[i] = getVolatilityModelAdjoint(options[i], forward, data);
+        }
+        return res;
+      }
+    };
+  }
+
+  private static EuropeanVanillaOption[] getOptions(final double forward, final double[] strikes, final double timeToExpiry) {
+    Validate.notNull(strikes, "strikes");
+    Validate.isTrue(forward >= 0.0, "forward must be greater than zero");
+    final EuropeanVanillaOption[] options = new EuropeanVanillaOption[strikes.length];
+    for (int i = 0; i < strikes.length; i++) {
+      options[i] = new EuropeanVanillaOption(strikes[i], timeToExpiry, strikes[i] >= forward);
+    }
+    return options;
   }
 
   /**
@@ -0,0 +1,218 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Streaming accumulator of the mean and variance of Monte Carlo observations, one value per output.
+ * <p>
+ * The statistics are updated incrementally (Welford/West weighted algorithm) and two accumulators can be combined (Chan et al.),
+ * which allows each thread to reduce its own paths before the partial results are merged. The observations can be weighted; this is
+ * used when an observation is the average over a batch of paths, the weight being the number of paths in the batch.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class MonteCarloAccumulator {
+
+  /**
+   * The number of observations.
+   */
+  private long _count;
+  /**
+   * The sum of the weights.
+   */
+  private double _weight;
+  /**
+   * The weighted means, by output.
+   */
+  private final double[] _mean;
+  /**
+   * The weighted sums of squared deviations from the mean, by output.
+   */
+  private final double[] _m2;
+
+  /**
+   * Creates an empty accumulator.
+   * @param nbOutputs The number of outputs, positive
+   */
+  public MonteCarloAccumulator(final int nbOutputs) {
+    ArgumentChecker.isTrue(nbOutputs > 0, "number of outputs must be positive");
+    _mean = new double[nbOutputs];
+    _m2 = new double[nbOutputs];
+  }
+
+  /**
+   * Gets the number of outputs.
+   * @return The number of outputs
+   */
+  public int getNumberOfOutputs() {
+    return _mean.length;
+  }
+
+  /**
+   * Adds an observation with unit weight to an accumulator with one output.
+   * @param value The value
+   */
+  public void add(final double value) {
+    add(value, 1.0);
+  }
+
+  /**
+   * Adds a weighted observation to an accumulator with one output.
+   * @param value The value
+   * @param weight The weight, positive
+   */
+  public void add(final double value, final double weight) {
+    ArgumentChecker.isTrue(_mean.length == 1, "accumulator has {} outputs", _mean.length);
+    _count++;
+    _weight += weight;
+    final double delta = value - _mean[0];
+    final double r = delta * weight / _weight;
+    _mean[0] += r;
+    _m2[0] += (_weight - weight) * delta * r;
+  }
+
+  /**
+   * Adds an observation with unit weight.
+   * @param values The values, one per output
+   */
+  public void add(final double[] values) {
+    add(values, 1.0);
+  }
+
+  /**
+   * Adds a weighted observation.
+   * @param values The values, one per output
+   * @param weight The weight, positive
+   */
+  public void add(final double[] values, final double weight) {
+    ArgumentChecker.isTrue(values.length == _mean.length, "expected {} values, have {}", _mean.length, values.length);
+    _count++;
+    _weight += weight;
+    final double previousWeight = _weight - weight;
+    final double ratio = weight / _weight;
+    for (int i = 0; i < _mean.length; i++) {
+      final double delta = values[i] - _mean[i];
+      final double r = delta * ratio;
+      _mean[i] += r;
+      _m2[i] += previousWeight * delta * r;
+    }
+  }
+
+  /**
+   * Adds the observations of another accumulator to this one.
+   * @param other The other accumulator, not null, with the same number of outputs
+   */
+  public void combine(final MonteCarloAccumulator other) {
+    ArgumentChecker.notNull(other, "other");
+    ArgumentChecker.isTrue(other._mean.length == _mean.length, "expected {} outputs, have {}", _mean.length, other._mean.length);
+    if (other._count == 0) {
+      return;
+    }
+    if (_count == 0) {
+      _count = other._count;
+      _weight = other._weight;
+      System.arraycopy(other._mean, 0, _mean, 0, _mean.length);
+      System.arraycopy(other._m2, 0, _m2, 0, _m2.length);
+      return;
+    }
+    final double weight = _weight + other._weight;
+    for (int i = 0; i < _mean.length; i++) {
+      final double delta = other._mean[i] - _mean[i];
+      _mean[i] += delta * other._weight / weight;
+      _m2[i] += other._m2[i] + delta * delta * _weight * other._weight / weight;
+    }
+    _count += other._count;
+    _weight = weight;
+  }
+
+  /**
+   * Gets the number of observations.
+   * @return The count
+   */
+  public long getCount() {
+    return _count;
+  }
+
+  /**
+   * Gets the sum of the weights.
+   * @return The total weight
+   */
+  public double getTotalWeight() {
+    return _weight;
+  }
+
+  /**
+   * Gets the mean of the first output.
+   * @return The mean
+   */
+  public double getMean() {
+    return _mean[0];
+  }
+
+  /**
+   * Gets the mean of an output.
+   * @param output The output index
+   * @return The mean
+   */
+  public double getMean(final int output) {
+    return _mean[output];
+  }
+
+  /**
+   * Gets the means of all outputs.
+   * @return A copy of the means
+   */
+  public double[] getMeans() {
+    return Arrays.copyOf(_mean, _mean.length);
+  }
+
+  /**
+   * Gets the (weighted, biased) variance of the observations of an output.
+   * @param output The output index
+   * @return The variance, 0 if there is no observation
+   */
+  public double getVariance(final int output) {
+    return _count == 0 ? 0.0 : _m2[output] / _weight;
+  }
+
+  /**
+   * Gets the standard error of the mean of the first output.
+   * @return The standard error
+   */
+  public double getStandardError() {
+    return getStandardError(0);
+  }
+
+  /**
+   * Gets the standard error of the mean of an output. With unit weights this is the sample standard deviation divided by the square
+   * root of the number of observations; with batch observations weighted by their size it is the batch means estimate.
+   * @param output The output index
+   * @return The standard error, NaN if there are fewer than two observations
+   */
+  public double getStandardError(final int output) {
+    if (_count < 2) {
+      return Double.NaN;
+    }
+    return Math.sqrt(_m2[output] / _weight / (_count - 1));
+  }
+
+  /**
+   * Gets the standard errors of all outputs.
+   * @return The standard errors
+   */
+  public double[] getStandardErrors() {
+    final double[] result = new double[_mean.length];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = getStandardError(i);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+/**
+ * The model and payoff part of a Monte Carlo simulation run by {@link ParallelMonteCarloEngine}: transforms blocks of independent
+ * standard normals into observations.
+ * <p>
+ * Implementations are called concurrently from several threads, each with its own buffers and accumulator; they must not keep
+ * mutable state.
+ */
+public interface MonteCarloPathFunction {
+
+  /**
+   * Gets the number of independent normals required by one path.
+   * @return The dimension
+   */
+  int getDimension();
+
+  /**
+   * Gets the number of values observed on each path.
+   * @return The number of outputs
+   */
+  int getNumberOfOutputs();
+
+  /**
+   * Evaluates a block of paths and adds the observations to the accumulator.
+   * @param normals The normals, dimensions factor/path. Only the first nbPath entries of each row are used.
+   * @param nbPath The number of paths in the block
+   * @param accumulator The accumulator of the block
+   */
+  void evaluate(double[][] normals, int nbPath, MonteCarloAccumulator accumulator);
+
+}
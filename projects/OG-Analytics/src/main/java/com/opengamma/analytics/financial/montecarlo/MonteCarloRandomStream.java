@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Counter based stream of standard normal random numbers with constant time skip-ahead.
+ * <p>
+ * The k-th uniform of the stream is obtained by scrambling (SplitMix64 finaliser) the counter k with a key derived from the seed;
+ * the normals are obtained by Box-Muller on consecutive pairs of uniforms. As the k-th normal only depends on (seed, k), a stream
+ * can be positioned anywhere in O(1) and different paths of a simulation can be generated on different threads, with results which
+ * do not depend on the number of threads.
+ * <p>
+ * An instance is not thread-safe: each thread should use its own stream, positioned with {@link #skipTo(long)}.
+ */
+public class MonteCarloRandomStream implements RandomNumberGenerator {
+
+  /**
+   * The golden gamma used to space the counters.
+   */
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+  /**
+   * 2*pi.
+   */
+  private static final double TWO_PI = 2.0 * Math.PI;
+
+  /**
+   * The seed.
+   */
+  private final long _seed;
+  /**
+   * The key derived from the seed.
+   */
+  private final long _key;
+  /**
+   * The index of the next normal.
+   */
+  private long _position;
+  /**
+   * The second normal of the last Box-Muller pair (valid when the position is odd).
+   */
+  private double _cached;
+  /**
+   * Whether the cached value corresponds to the current position.
+   */
+  private boolean _cachedValid;
+
+  /**
+   * Creates a stream positioned at its start.
+   * @param seed The seed.
+   */
+  public MonteCarloRandomStream(final long seed) {
+    _seed = seed;
+    _key = mix(seed);
+  }
+
+  /**
+   * Gets the seed.
+   * @return The seed
+   */
+  public long getSeed() {
+    return _seed;
+  }
+
+  /**
+   * Gets the index of the next normal which will be returned.
+   * @return The position
+   */
+  public long getPosition() {
+    return _position;
+  }
+
+  /**
+   * Positions the stream on a given normal index.
+   * @param position The index of the next normal, not negative
+   */
+  public void skipTo(final long position) {
+    ArgumentChecker.isTrue(position >= 0, "position must be positive");
+    if (position != _position) {
+      _position = position;
+      _cachedValid = false;
+    }
+  }
+
+  /**
+   * Skips a number of normals.
+   * @param n The number of normals to skip, not negative
+   */
+  public void skip(final long n) {
+    ArgumentChecker.isTrue(n >= 0, "number of normals to skip must be positive");
+    skipTo(_position + n);
+  }
+
+  /**
+   * Returns the next standard normal.
+   * @return The normal
+   */
+  public double nextNormal() {
+    final long position = _position++;
+    if ((position & 1L) == 1L) {
+      if (_cachedValid) {
+        _cachedValid = false;
+        return _cached;
+      }
+      final long pair = position >>> 1;
+      final double r = Math.sqrt(-2.0 * Math.log(uniform(2 * pair)));
+      return r * Math.sin(TWO_PI * uniform(2 * pair + 1));
+    }
+    final long pair = position >>> 1;
+    final double r = Math.sqrt(-2.0 * Math.log(uniform(2 * pair)));
+    final double theta = TWO_PI * uniform(2 * pair + 1);
+    _cached = r * Math.sin(theta);
+    _cachedValid = true;
+    return r * Math.cos(theta);
+  }
+
+  /**
+   * Fills part of an array with the next normals.
+   * @param buffer The array, not null
+   * @param from The first index filled
+   * @param length The number of normals
+   */
+  public void fillNormal(final double[] buffer, final int from, final int length) {
+    ArgumentChecker.notNull(buffer, "buffer");
+    ArgumentChecker.isTrue(from >= 0 && from + length <= buffer.length, "invalid range [{}, {}) for buffer of length {}", from, from + length, buffer.length);
+    for (int i = from; i < from + length; i++) {
+      buffer[i] = nextNormal();
+    }
+  }
+
+  @Override
+  public double[] getVector(final int dimension) {
+    ArgumentChecker.notNegative(dimension, "dimension");
+    final double[] result = new double[dimension];
+    fillNormal(result, 0, dimension);
+    return result;
+  }
+
+  @Override
+  public List<double[]> getVectors(final int dimension, final int n) {
+    ArgumentChecker.notNegative(dimension, "dimension");
+    ArgumentChecker.notNegative(n, "n");
+    final List<double[]> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      result.add(getVector(dimension));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the uniform with a given counter, in the open interval (0, 1).
+   * @param counter The counter
+   * @return The uniform
+   */
+  private double uniform(final long counter) {
+    return ((mix(_key + (counter + 1) * GOLDEN_GAMMA) >>> 11) + 0.5) * 0x1.0p-53;
+  }
+
+  /**
+   * The SplitMix64 finaliser.
+   * @param value The value to scramble
+   * @return The scrambled value
+   */
+  private static long mix(final long value) {
+    long z = value;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+}
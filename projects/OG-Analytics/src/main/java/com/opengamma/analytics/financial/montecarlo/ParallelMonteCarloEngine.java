@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import java.util.concurrent.ExecutorService;
+
+import com.opengamma.analytics.util.ParallelRanges;
+import com.opengamma.analytics.util.ParallelRanges.RangeTask;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Runs a Monte Carlo simulation on several threads.
+ * <p>
+ * The paths are divided in chunks of fixed size. The normals of path p are the normals p * dimension to (p + 1) * dimension - 1 of a
+ * {@link MonteCarloRandomStream}, which each task positions by skip-ahead; the observations of each chunk are reduced in a
+ * {@link MonteCarloAccumulator} and the chunk accumulators are combined in chunk order. The result is therefore the same whatever the
+ * number of threads.
+ * <p>
+ * The buffers of normals are allocated once per task and filled in place for each chunk.
+ */
+public class ParallelMonteCarloEngine {
+
+  /**
+   * The default number of paths in one chunk.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  /**
+   * The seed of the random stream.
+   */
+  private final long _seed;
+  /**
+   * The number of paths.
+   */
+  private final int _nbPath;
+  /**
+   * The number of paths in one chunk.
+   */
+  private final int _chunkSize;
+  /**
+   * The executor, null to run in the calling thread.
+   */
+  private final ExecutorService _executor;
+  /**
+   * The maximum number of tasks.
+   */
+  private final int _parallelism;
+
+  /**
+   * Creates an engine using a shared pool with one thread per available processor.
+   * @param seed The seed of the random stream
+   * @param nbPath The number of paths, positive
+   */
+  public ParallelMonteCarloEngine(final long seed, final int nbPath) {
+    this(seed, nbPath, DEFAULT_CHUNK_SIZE, ParallelRanges.getSharedExecutor(), ParallelRanges.getSharedParallelism());
+  }
+
+  /**
+   * Creates an engine.
+   * @param seed The seed of the random stream
+   * @param nbPath The number of paths, positive
+   * @param chunkSize The number of paths in one chunk, positive
+   * @param executor The executor, null to run in the calling thread
+   * @param parallelism The maximum number of concurrent tasks, positive
+   */
+  public ParallelMonteCarloEngine(final long seed, final int nbPath, final int chunkSize, final ExecutorService executor, final int parallelism) {
+    ArgumentChecker.isTrue(nbPath > 0, "number of paths must be positive");
+    ArgumentChecker.isTrue(chunkSize > 0, "chunk size must be positive");
+    ArgumentChecker.isTrue(parallelism > 0, "parallelism must be positive");
+    _seed = seed;
+    _nbPath = nbPath;
+    _chunkSize = chunkSize;
+    _executor = executor;
+    _parallelism = parallelism;
+  }
+
+  /**
+   * Gets the seed.
+   * @return The seed
+   */
+  public long getSeed() {
+    return _seed;
+  }
+
+  /**
+   * Gets the number of paths.
+   * @return The number of paths
+   */
+  public int getNbPath() {
+    return _nbPath;
+  }
+
+  /**
+   * Gets the chunk size.
+   * @return The number of paths in one chunk
+   */
+  public int getChunkSize() {
+    return _chunkSize;
+  }
+
+  /**
+   * Runs the simulation.
+   * @param function The path function, not null
+   * @return The accumulator with all the observations
+   */
+  public MonteCarloAccumulator run(final MonteCarloPathFunction function) {
+    ArgumentChecker.notNull(function, "function");
+    final int nbChunk = (_nbPath + _chunkSize - 1) / _chunkSize;
+    final MonteCarloAccumulator[] chunkResults = new MonteCarloAccumulator[nbChunk];
+    ParallelRanges.run(_executor, _parallelism, nbChunk, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        runChunks(function, first, last, chunkResults);
+      }
+    });
+    final MonteCarloAccumulator result = new MonteCarloAccumulator(function.getNumberOfOutputs());
+    for (final MonteCarloAccumulator chunkResult : chunkResults) {
+      result.combine(chunkResult);
+    }
+    return result;
+  }
+
+  /**
+   * Runs a range of chunks.
+   * @param function The path function
+   * @param firstChunk The first chunk (inclusive)
+   * @param lastChunk The last chunk (exclusive)
+   * @param results The chunk results, filled
+   */
+  private void runChunks(final MonteCarloPathFunction function, final int firstChunk, final int lastChunk, final MonteCarloAccumulator[] results) {
+    final int dimension = function.getDimension();
+    final double[][] normals = new double[dimension][_chunkSize];
+    final MonteCarloRandomStream stream = new MonteCarloRandomStream(_seed);
+    for (int loopchunk = firstChunk; loopchunk < lastChunk; loopchunk++) {
+      final int startPath = loopchunk * _chunkSize;
+      final int nbPath = Math.min(_chunkSize, _nbPath - startPath);
+      stream.skipTo((long) startPath * dimension);
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        for (int loopdim = 0; loopdim < dimension; loopdim++) {
+          normals[loopdim][looppath] = stream.nextNormal();
+        }
+      }
+      final MonteCarloAccumulator accumulator = new MonteCarloAccumulator(function.getNumberOfOutputs());
+      function.evaluate(normals, nbPath, accumulator);
+      results[loopchunk] = accumulator;
+    }
+  }
+
+}
@@ -6,6 +6,7 @@
 package com.opengamma.analytics.financial.montecarlo.provider;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,10 +15,13 @@ import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
 import com.opengamma.analytics.financial.model.interestrate.HullWhiteOneFactorPiecewiseConstantInterestRateModel;
 import com.opengamma.analytics.financial.model.interestrate.definition.HullWhiteOneFactorPiecewiseConstantParameters;
 import com.opengamma.analytics.financial.montecarlo.DecisionSchedule;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloAccumulator;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorCalculator;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDataBundle;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDerivativeCalculator;
 import com.opengamma.analytics.financial.montecarlo.MonteCarloDiscountFactorDerivativeDataBundle;
+import com.opengamma.analytics.financial.montecarlo.MonteCarloPathFunction;
+import com.opengamma.analytics.financial.montecarlo.ParallelMonteCarloEngine;
 import com.opengamma.analytics.financial.provider.description.interestrate.HullWhiteOneFactorProviderInterface;
 import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
 import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
@@ -25,7 +29,10 @@ import com.opengamma.analytics.financial.provider.sensitivity.multicurve.Multipl
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionCommons;
 import com.opengamma.analytics.math.linearalgebra.CholeskyDecompositionResult;
 import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.random.BrownianBridge;
+import com.opengamma.analytics.math.random.QuasiRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
+import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.money.Currency;
 import com.opengamma.util.money.MultipleCurrencyAmount;
 import com.opengamma.util.tuple.DoublesPair;
@@ -85,57 +92,12 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     final DecisionSchedule decision = instrument.accept(DC, multicurves);
     final double[] decisionTime = decision.getDecisionTime();
     final double[][] impactTime = decision.getImpactTime();
-    final int nbJump = decisionTime.length;
-    final double numeraireTime = decisionTime[nbJump - 1];
-    final double pDN = multicurves.getDiscountFactor(ccy, numeraireTime);
-    // Discount factor to numeraire date for rebasing.
-    final double[][] pDI = new double[nbJump][];
-    // Initial discount factors to each impact date.
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      pDI[loopjump] = new double[impactTime[loopjump].length];
-      for (int i = 0; i < impactTime[loopjump].length; i++) {
-        pDI[loopjump][i] = multicurves.getDiscountFactor(ccy, impactTime[loopjump][i]) / pDN;
-      }
-    }
-    final double[] gamma = new double[nbJump];
-    final double[][] cov = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      gamma[loopjump] = MODEL.beta(parameters, 0.0, decisionTime[loopjump]);
-      gamma[loopjump] = gamma[loopjump] * gamma[loopjump];
-      cov[loopjump][loopjump] = gamma[loopjump];
-      for (int j = loopjump + 1; j < nbJump; j++) {
-        cov[j][loopjump] = gamma[loopjump];
-        cov[loopjump][j] = gamma[loopjump];
-      }
-    }
-    final double[][] h = MODEL.volatilityMaturityPart(parameters, numeraireTime, impactTime); // jump/cf
-    final double[][] h2 = new double[nbJump][];
-    for (int i = 0; i < nbJump; i++) {
-      h2[i] = new double[h[i].length];
-      for (int j = 0; j < h[i].length; j++) {
-        h2[i][j] = h[i][j] * h[i][j] / 2;
-      }
-    }
-    // To remove the 0 (fixed coupons)
-    int nbZero = 0;
-    while (cov[nbZero][nbZero] < 1.0E-12) {
-      nbZero++;
-    }
-    final double[][] cov2 = new double[nbJump - nbZero][nbJump - nbZero];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
-      }
-    }
-    final CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
-    final CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
-    final double[][] covCD2 = cdr2.getL().toArray();
-    final double[][] covCD = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
-      }
-    }
+    final PathData data = new PathData(multicurves, parameters, ccy, decisionTime, impactTime);
+    final double pDN = data._pDN;
+    final double[][] pDI = data._pDI;
+    final double[] gamma = data._gamma;
+    final double[][] h = data._h;
+    final double[][] h2 = data._h2;
     final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
     final int[] nbPath2 = new int[nbBlock];
     for (int i = 0; i < nbBlock - 1; i++) {
@@ -145,15 +107,7 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     final double[][] impactAmount = decision.getImpactAmount();
     double pv = 0;
     for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
-      }
+      final double[][] y = getCorrelatedArray(data, nbPath2[loopblock]); // jump/path
       final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
       pv += instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * nbPath2[loopblock];
     }
@@ -161,6 +115,59 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     return MultipleCurrencyAmount.of(ccy, pv);
   }
 
+  /**
+   * Computes the present value in the Hull-White one factor model by Monte-Carlo, with the paths generated on several threads by
+   * the engine (the random number generator and number of paths of the method are not used).
+   * Implementation note: Each chunk of paths of the engine is priced as one block; the block price is one observation weighted by the
+   * number of paths in the block, so the standard error of the result is the batch means estimate.
+   * @param instrument The swaption.
+   * @param ccy The currency.
+   * @param hwData The Hull-White data (curves and Hull-White parameters).
+   * @param engine The parallel Monte Carlo engine.
+   * @return The accumulator with the present value (in the currency) as mean and its standard error.
+   */
+  public MonteCarloAccumulator presentValue(final InstrumentDerivative instrument, final Currency ccy, final HullWhiteOneFactorProviderInterface hwData,
+      final ParallelMonteCarloEngine engine) {
+    ArgumentChecker.notNull(engine, "engine");
+    final MulticurveProviderInterface multicurves = hwData.getMulticurveProvider();
+    final DecisionSchedule decision = instrument.accept(DC, multicurves);
+    final PathData data = new PathData(multicurves, hwData.getHullWhiteParameters(), ccy, decision.getDecisionTime(), decision.getImpactTime());
+    final double[][] impactAmount = decision.getImpactAmount();
+    return engine.run(new MonteCarloPathFunction() {
+
+      @Override
+      public int getDimension() {
+        return data._gamma.length;
+      }
+
+      @Override
+      public int getNumberOfOutputs() {
+        return 1;
+      }
+
+      @Override
+      public void evaluate(final double[][] normals, final int nbPath, final MonteCarloAccumulator accumulator) {
+        final int nbJump = data._gamma.length;
+        final double[][] y = new double[nbJump][nbPath]; // jump/path
+        for (int i = 0; i < nbJump; i++) {
+          final double[] yi = y[i];
+          for (int j = 0; j <= i; j++) { // covCD is lower triangular
+            final double cov = data._covCD[i][j];
+            if (cov != 0.0) {
+              final double[] xj = normals[j];
+              for (int looppath = 0; looppath < nbPath; looppath++) {
+                yi[looppath] += xj[looppath] * cov;
+              }
+            }
+          }
+        }
+        final Double[][][] pD = pathGeneratorDiscount(data._pDI, y, data._h, data._h2, data._gamma);
+        final double pvBlock = instrument.accept(MCC, new MonteCarloDiscountFactorDataBundle(pD, impactAmount)) * data._pDN;
+        accumulator.add(pvBlock, nbPath);
+      }
+    });
+  }
+
   /**
    * Computes the present value curve sensitivity in the Hull-White one factor model by Monte-Carlo. The sensitivity is computed by Adjoint Algorithmic Differentiation.
    * Implementation note: The total number of paths is divided in blocks of maximum size BLOCK_SIZE=1000. The Monte Carlo is run on each block and the average of each
@@ -179,55 +186,12 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
     final double[][] impactTime = decision.getImpactTime();
     final int nbJump = decisionTime.length;
     final double numeraireTime = decisionTime[nbJump - 1];
-    final double pDN = multicurves.getDiscountFactor(ccy, numeraireTime);
-    // Discount factor to numeraire date for rebasing.
-    final double[][] pDI = new double[nbJump][];
-    // Initial discount factors to each impact date.
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      pDI[loopjump] = new double[impactTime[loopjump].length];
-      for (int i = 0; i < impactTime[loopjump].length; i++) {
-        pDI[loopjump][i] = multicurves.getDiscountFactor(ccy, impactTime[loopjump][i]) / pDN;
-      }
-    }
-    final double[] gamma = new double[nbJump];
-    final double[][] cov = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      gamma[loopjump] = MODEL.beta(parameters, 0.0, decisionTime[loopjump]);
-      gamma[loopjump] = gamma[loopjump] * gamma[loopjump];
-      cov[loopjump][loopjump] = gamma[loopjump];
-      for (int j = loopjump + 1; j < nbJump; j++) {
-        cov[j][loopjump] = gamma[loopjump];
-        cov[loopjump][j] = gamma[loopjump];
-      }
-    }
-    final double[][] h = MODEL.volatilityMaturityPart(parameters, numeraireTime, impactTime); // jump/cf
-    final double[][] h2 = new double[nbJump][];
-    for (int i = 0; i < nbJump; i++) {
-      h2[i] = new double[h[i].length];
-      for (int j = 0; j < h[i].length; j++) {
-        h2[i][j] = h[i][j] * h[i][j] / 2;
-      }
-    }
-    // To remove the 0 (fixed coupons)
-    int nbZero = 0;
-    while (cov[nbZero][nbZero] < 1.0E-12) {
-      nbZero++;
-    }
-    final double[][] cov2 = new double[nbJump - nbZero][nbJump - nbZero];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
-      }
-    }
-    final CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
-    final CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
-    final double[][] covCD2 = cdr2.getL().toArray();
-    final double[][] covCD = new double[nbJump][nbJump];
-    for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
-      for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
-        covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
-      }
-    }
+    final PathData data = new PathData(multicurves, parameters, ccy, decisionTime, impactTime);
+    final double pDN = data._pDN;
+    final double[][] pDI = data._pDI;
+    final double[] gamma = data._gamma;
+    final double[][] h = data._h;
+    final double[][] h2 = data._h2;
     final int nbBlock = (int) Math.round(Math.ceil(getNbPath() / ((double) BLOCK_SIZE)));
     final int[] nbPath2 = new int[nbBlock];
     for (int i = 0; i < nbBlock - 1; i++) {
@@ -253,15 +217,7 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
       pDIBar[loopjump] = new double[impactAmount[loopjump].length];
     }
     for (int loopblock = 0; loopblock < nbBlock; loopblock++) {
-      final double[][] x = getNormalArray(nbJump, nbPath2[loopblock]);
-      final double[][] y = new double[nbJump][nbPath2[loopblock]]; // jump/path
-      for (int looppath = 0; looppath < nbPath2[loopblock]; looppath++) {
-        for (int i = 0; i < nbJump; i++) {
-          for (int j = 0; j < nbJump; j++) {
-            y[i][looppath] += x[j][looppath] * covCD[i][j];
-          }
-        }
-      }
+      final double[][] y = getCorrelatedArray(data, nbPath2[loopblock]); // jump/path
       final Double[][][] pD = pathGeneratorDiscount(pDI, y, h, h2, gamma);
       final MonteCarloDiscountFactorDerivativeDataBundle mcdDB = new MonteCarloDiscountFactorDerivativeDataBundle(pD, impactAmount);
       pvBlock[loopblock] = instrument.accept(MCDC, mcdDB) * nbPath2[loopblock];
@@ -321,17 +277,119 @@ public class HullWhiteMonteCarloMethod extends MonteCarloMethod {
   }
 
   /**
-   * Gets a 2D-array of independent normally distributed variables.
-   * @param nbJump The number of jumps.
+   * The model quantities used to generate the discount factor paths.
+   */
+  private static final class PathData {
+    /** The discount factor to the numeraire date. */
+    private final double _pDN;
+    /** The initial discount factors to each impact date, rebased by the numeraire. jump/cf */
+    private final double[][] _pDI;
+    /** The gamma parameters. */
+    private final double[] _gamma;
+    /** The H parameters. jump/cf */
+    private final double[][] _h;
+    /** The H^2/2 parameters. jump/cf */
+    private final double[][] _h2;
+    /** The Cholesky decomposition of the covariance. jump/jump */
+    private final double[][] _covCD;
+    /** The Brownian bridge on the non-zero gamma. */
+    private final BrownianBridge _bridge;
+
+    PathData(final MulticurveProviderInterface multicurves, final HullWhiteOneFactorPiecewiseConstantParameters parameters, final Currency ccy, final double[] decisionTime,
+        final double[][] impactTime) {
+      final int nbJump = decisionTime.length;
+      final double numeraireTime = decisionTime[nbJump - 1];
+      _pDN = multicurves.getDiscountFactor(ccy, numeraireTime);
+      // Discount factor to numeraire date for rebasing.
+      _pDI = new double[nbJump][];
+      // Initial discount factors to each impact date.
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        _pDI[loopjump] = new double[impactTime[loopjump].length];
+        for (int i = 0; i < impactTime[loopjump].length; i++) {
+          _pDI[loopjump][i] = multicurves.getDiscountFactor(ccy, impactTime[loopjump][i]) / _pDN;
+        }
+      }
+      _gamma = new double[nbJump];
+      final double[][] cov = new double[nbJump][nbJump];
+      for (int loopjump = 0; loopjump < nbJump; loopjump++) {
+        _gamma[loopjump] = MODEL.beta(parameters, 0.0, decisionTime[loopjump]);
+        _gamma[loopjump] = _gamma[loopjump] * _gamma[loopjump];
+        cov[loopjump][loopjump] = _gamma[loopjump];
+        for (int j = loopjump + 1; j < nbJump; j++) {
+          cov[j][loopjump] = _gamma[loopjump];
+          cov[loopjump][j] = _gamma[loopjump];
+        }
+      }
+      _h = MODEL.volatilityMaturityPart(parameters, numeraireTime, impactTime); // jump/cf
+      _h2 = new double[nbJump][];
+      for (int i = 0; i < nbJump; i++) {
+        _h2[i] = new double[_h[i].length];
+        for (int j = 0; j < _h[i].length; j++) {
+          _h2[i][j] = _h[i][j] * _h[i][j] / 2;
+        }
+      }
+      // To remove the 0 (fixed coupons)
+      int nbZero = 0;
+      while (cov[nbZero][nbZero] < 1.0E-12) {
+        nbZero++;
+      }
+      final double[][] cov2 = new double[nbJump - nbZero][nbJump - nbZero];
+      for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
+        for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
+          cov2[loopjump][loopjump2] = cov[loopjump + nbZero][loopjump2 + nbZero];
+        }
+      }
+      final CholeskyDecompositionCommons cd = new CholeskyDecompositionCommons();
+      final CholeskyDecompositionResult cdr2 = cd.evaluate(new DoubleMatrix2D(cov2));
+      final double[][] covCD2 = cdr2.getL().toArray();
+      _covCD = new double[nbJump][nbJump];
+      for (int loopjump = 0; loopjump < nbJump - nbZero; loopjump++) {
+        for (int loopjump2 = 0; loopjump2 < nbJump - nbZero; loopjump2++) {
+          _covCD[loopjump + nbZero][loopjump2 + nbZero] = covCD2[loopjump][loopjump2];
+        }
+      }
+      _bridge = new BrownianBridge(Arrays.copyOfRange(_gamma, nbZero, nbJump));
+    }
+  }
+
+  /**
+   * Gets the correlated normal variables (jump/path) from which the discount factors are built. Their covariance is
+   * min(gamma_i, gamma_j), i.e. they are the values of a Brownian motion at the times gamma.
+   * With a quasi-random generator, the path is built by Brownian bridge on those times, so that the first coordinates of each point
+   * drive the largest part of the variance; otherwise by the Cholesky decomposition of the covariance.
+   * @param data The model data.
    * @param nbPath The number of paths.
-   * @return The array of variables.
+   * @return The correlated variables.
    */
-  private double[][] getNormalArray(final int nbJump, final int nbPath) {
-    final double[][] result = new double[nbJump][nbPath];
-    for (int loopjump = 0; loopjump < nbJump; loopjump++) {
-      result[loopjump] = getNumberGenerator().getVector(nbPath);
+  private double[][] getCorrelatedArray(final PathData data, final int nbPath) {
+    final int nbJump = data._gamma.length;
+    final double[][] y = new double[nbJump][nbPath]; // jump/path
+    if (getNumberGenerator() instanceof QuasiRandomNumberGenerator) {
+      final int nbBridge = data._bridge.size();
+      final int nbZero = nbJump - nbBridge;
+      final double[][] x = getNormalArray(nbBridge, nbPath);
+      final double[] normals = new double[nbBridge];
+      final double[] path = new double[nbBridge];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        for (int j = 0; j < nbBridge; j++) {
+          normals[j] = x[j][looppath];
+        }
+        data._bridge.buildPath(normals, path);
+        for (int j = 0; j < nbBridge; j++) {
+          y[j + nbZero][looppath] = path[j];
+        }
+      }
+      return y;
+    }
+    final double[][] x = getNormalArray(nbJump, nbPath);
+    for (int looppath = 0; looppath < nbPath; looppath++) {
+      for (int i = 0; i < nbJump; i++) {
+        for (int j = 0; j < nbJump; j++) {
+          y[i][looppath] += x[j][looppath] * data._covCD[i][j];
+        }
+      }
     }
-    return result;
+    return y;
   }
 
   /**
@@ -5,6 +5,7 @@
  */
 package com.opengamma.analytics.financial.montecarlo.provider;
 
+import com.opengamma.analytics.math.random.QuasiRandomNumberGenerator;
 import com.opengamma.analytics.math.random.RandomNumberGenerator;
 
 /**
@@ -47,4 +48,32 @@ public abstract class MonteCarloMethod {
     return _nbPath;
   }
 
+  /**
+   * Gets a 2D-array of independent normally distributed variables.
+   * With a {@link QuasiRandomNumberGenerator}, each path uses one point of the sequence (of dimension the number of factors);
+   * otherwise each factor is drawn as one vector over the paths.
+   * @param nbFactor The number of factors.
+   * @param nbPath The number of paths.
+   * @return The array of variables (factor/path).
+   */
+  protected double[][] getNormalArray(final int nbFactor, final int nbPath) {
+    final double[][] result = new double[nbFactor][];
+    if (_numberGenerator instanceof QuasiRandomNumberGenerator) {
+      for (int loopfactor = 0; loopfactor < nbFactor; loopfactor++) {
+        result[loopfactor] = new double[nbPath];
+      }
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        final double[] point = _numberGenerator.getVector(nbFactor);
+        for (int loopfactor = 0; loopfactor < nbFactor; loopfactor++) {
+          result[loopfactor][looppath] = point[loopfactor];
+        }
+      }
+      return result;
+    }
+    for (int loopfactor = 0; loopfactor < nbFactor; loopfactor++) {
+      result[loopfactor] = _numberGenerator.getVector(nbPath);
+    }
+    return result;
+  }
+
 }
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.adjoint;
+
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackFunctionData;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.BlackPriceFunction;
+import com.opengamma.analytics.financial.model.option.pricing.analytic.formula.EuropeanVanillaOption;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+
+/**
+ * The Black formula primitive on an {@link AdjointTape}: the price and its derivatives with respect to the forward, the strike and
+ * the numeraire are recorded as one node. The derivatives are those of {@link BlackPriceFunction#getPriceAdjoint}.
+ */
+public final class AdjointBlackFunction {
+
+  /**
+   * The Black function.
+   */
+  private static final BlackPriceFunction BLACK_FUNCTION = new BlackPriceFunction();
+
+  private AdjointBlackFunction() {
+  }
+
+  /**
+   * Records the Black price numeraire * Black(forward, strike, expiry, volatility).
+   * @param tape The tape
+   * @param forward The node of the forward
+   * @param strike The node of the strike
+   * @param numeraire The node of the numeraire
+   * @param timeToExpiry The time to expiry
+   * @param volatility The volatility, a constant
+   * @param isCall Call (true) or put (false)
+   * @return The node of the price
+   */
+  public static int price(final AdjointTape tape, final int forward, final int strike, final int numeraire, final double timeToExpiry, final double volatility,
+      final boolean isCall) {
+    final EuropeanVanillaOption option = new EuropeanVanillaOption(tape.value(strike), timeToExpiry, isCall);
+    final double[] priceAdjoint = BLACK_FUNCTION.getPriceAdjoint(option, new BlackFunctionData(tape.value(forward), 1.0, volatility));
+    final double num = tape.value(numeraire);
+    return tape.record(num * priceAdjoint[0], forward, num * priceAdjoint[1], strike, num * priceAdjoint[3], numeraire, priceAdjoint[0]);
+  }
+
+}
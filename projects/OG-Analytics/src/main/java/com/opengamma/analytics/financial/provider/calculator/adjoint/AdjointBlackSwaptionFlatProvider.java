@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.adjoint;
+
+import com.opengamma.analytics.financial.model.option.parameters.BlackFlatSwaptionParameters;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * An adjoint multi-curve provider with Black volatilities for swaptions. The volatilities are constants of the tape.
+ */
+public class AdjointBlackSwaptionFlatProvider extends AdjointMulticurveProvider {
+
+  /**
+   * The Black parameters.
+   */
+  private final BlackFlatSwaptionParameters _parameters;
+
+  /**
+   * Creates a provider.
+   * @param tape The tape, not null
+   * @param multicurves The multi-curve provider, not null
+   * @param parameters The Black parameters, not null
+   */
+  public AdjointBlackSwaptionFlatProvider(final AdjointTape tape, final MulticurveProviderDiscount multicurves, final BlackFlatSwaptionParameters parameters) {
+    super(tape, multicurves);
+    ArgumentChecker.notNull(parameters, "Black parameters");
+    _parameters = parameters;
+  }
+
+  /**
+   * Gets the Black parameters.
+   * @return The parameters
+   */
+  public BlackFlatSwaptionParameters getBlackParameters() {
+    return _parameters;
+  }
+
+}
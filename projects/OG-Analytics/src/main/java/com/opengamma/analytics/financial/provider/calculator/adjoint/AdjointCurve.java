@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.adjoint;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.DiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.math.curve.CompiledInterpolatedDoublesCurve;
+import com.opengamma.analytics.math.curve.Curve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+import com.opengamma.analytics.math.interpolation.CompiledInterpolator1D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The interpolation and discount factor primitives of a curve on an {@link AdjointTape}.
+ * <p>
+ * The parameters of the curve are recorded as consecutive variables of the tape. Each interpolation records one node depending
+ * on the parameters with a non-zero sensitivity. When the curve is a {@link YieldCurve} or a {@link DiscountCurve} on an
+ * {@link InterpolatedDoublesCurve} with an interpolator supported by {@link CompiledInterpolator1D}, the value and the node
+ * sensitivities are computed in one pass on the compiled interpolator; otherwise the rate and its parameter sensitivity are
+ * obtained from the curve.
+ */
+final class AdjointCurve {
+
+  /**
+   * The curve.
+   */
+  private final YieldAndDiscountCurve _curve;
+  /**
+   * The tape.
+   */
+  private final AdjointTape _tape;
+  /**
+   * The node of the first parameter.
+   */
+  private final int _firstVariable;
+  /**
+   * The number of parameters.
+   */
+  private final int _nbParameters;
+  /**
+   * The compiled interpolator, null if not available.
+   */
+  private final CompiledInterpolator1D _compiled;
+  /**
+   * Whether the compiled interpolator gives discount factors (true) or continuously compounded rates (false).
+   */
+  private final boolean _interpolatesDiscountFactor;
+  /**
+   * The buffer of the parameter sensitivities.
+   */
+  private final double[] _sensitivity;
+
+  /**
+   * Records the parameters of a curve on a tape.
+   * @param curve The curve, not null
+   * @param tape The tape, not null
+   */
+  AdjointCurve(final YieldAndDiscountCurve curve, final AdjointTape tape) {
+    ArgumentChecker.notNull(curve, "curve");
+    ArgumentChecker.notNull(tape, "tape");
+    ArgumentChecker.isTrue(curve.getUnderlyingCurvesNames().isEmpty(), "curves with underlying curves are not supported: {}", curve.getName());
+    _curve = curve;
+    _tape = tape;
+    _nbParameters = curve.getNumberOfParameters();
+    Curve<Double, Double> underlying = null;
+    if (curve instanceof YieldCurve) {
+      underlying = ((YieldCurve) curve).getCurve();
+    } else if (curve instanceof DiscountCurve) {
+      underlying = ((DiscountCurve) curve).getCurve();
+    }
+    _compiled = compile(underlying);
+    _interpolatesDiscountFactor = curve instanceof DiscountCurve;
+    // Implementation note: the values of the parameter nodes are not used by the backward sweep.
+    final double[] parameters = underlying instanceof InterpolatedDoublesCurve ? ((InterpolatedDoublesCurve) underlying).getYDataAsPrimitive() : new double[_nbParameters];
+    int first = -1;
+    for (int loopp = 0; loopp < _nbParameters; loopp++) {
+      final int node = tape.variable(parameters[loopp]);
+      if (loopp == 0) {
+        first = node;
+      }
+    }
+    _firstVariable = first;
+    _sensitivity = new double[_nbParameters];
+  }
+
+  private static CompiledInterpolator1D compile(final Curve<Double, Double> curve) {
+    if (curve instanceof CompiledInterpolatedDoublesCurve) {
+      return ((CompiledInterpolatedDoublesCurve) curve).getCompiledInterpolator();
+    }
+    if (curve instanceof InterpolatedDoublesCurve) {
+      final InterpolatedDoublesCurve interpolated = (InterpolatedDoublesCurve) curve;
+      if (CompiledInterpolator1D.isSupported(interpolated.getInterpolator())) {
+        return CompiledInterpolator1D.from(interpolated.getInterpolator(), interpolated.getDataBundle());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets the node of the first parameter; the parameters are consecutive nodes.
+   * @return The node
+   */
+  int getFirstVariable() {
+    return _firstVariable;
+  }
+
+  /**
+   * Gets the number of parameters.
+   * @return The number of parameters
+   */
+  int getNumberOfParameters() {
+    return _nbParameters;
+  }
+
+  /**
+   * Records the discount factor at a given time.
+   * @param time The time
+   * @return The node of the discount factor
+   */
+  int discountFactor(final double time) {
+    final double rate;
+    if (_compiled != null) {
+      final int segment = _compiled.getSegmentIndex(time);
+      final double value = _compiled.interpolate(segment, time);
+      _compiled.getNodeSensitivitiesForValue(segment, time, _sensitivity);
+      if (_interpolatesDiscountFactor) {
+        return _tape.recordRange(value, _firstVariable, _sensitivity, _nbParameters);
+      }
+      rate = value;
+    } else {
+      rate = _curve.getInterestRate(time);
+      System.arraycopy(_curve.getInterestRateParameterSensitivity(time), 0, _sensitivity, 0, _nbParameters);
+    }
+    final int rateNode = _tape.recordRange(rate, _firstVariable, _sensitivity, _nbParameters);
+    final double df = Math.exp(-rate * time);
+    return _tape.record(df, rateNode, -time * df);
+  }
+
+}
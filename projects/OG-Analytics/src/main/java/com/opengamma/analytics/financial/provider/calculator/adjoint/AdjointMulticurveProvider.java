@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.adjoint;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.tuple.ObjectsPair;
+
+/**
+ * A multi-curve provider recording the discount factors and forward rates on an {@link AdjointTape}.
+ * <p>
+ * The parameters of a curve are recorded as variables of the tape the first time the curve is used. The instrument values are
+ * expressed in one currency, the currency of the discounting curve used; instruments with discounting in several currencies are
+ * not supported.
+ * <p>
+ * This class is not thread-safe: it is created for one calculation.
+ */
+public class AdjointMulticurveProvider {
+
+  /**
+   * The tape.
+   */
+  private final AdjointTape _tape;
+  /**
+   * The multi-curve provider.
+   */
+  private final MulticurveProviderDiscount _multicurves;
+  /**
+   * The curves used, by name, in order of first use.
+   */
+  private final Map<String, AdjointCurve> _curves = new LinkedHashMap<>();
+  /**
+   * The currency of the discounting curves used, null before the first discount factor.
+   */
+  private Currency _currency;
+
+  /**
+   * Creates a provider.
+   * @param tape The tape, not null
+   * @param multicurves The multi-curve provider, not null
+   */
+  public AdjointMulticurveProvider(final AdjointTape tape, final MulticurveProviderDiscount multicurves) {
+    ArgumentChecker.notNull(tape, "tape");
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    _tape = tape;
+    _multicurves = multicurves;
+  }
+
+  /**
+   * Gets the tape.
+   * @return The tape
+   */
+  public AdjointTape getTape() {
+    return _tape;
+  }
+
+  /**
+   * Gets the multi-curve provider.
+   * @return The provider
+   */
+  public MulticurveProviderDiscount getMulticurveProvider() {
+    return _multicurves;
+  }
+
+  /**
+   * Gets the currency of the discounting curve used.
+   * @return The currency, null if no discount factor was recorded
+   */
+  public Currency getCurrency() {
+    return _currency;
+  }
+
+  /**
+   * Records a discount factor.
+   * @param ccy The currency
+   * @param time The time
+   * @return The node of the discount factor
+   */
+  public int discountFactor(final Currency ccy, final double time) {
+    if (_currency == null) {
+      _currency = ccy;
+    } else {
+      ArgumentChecker.isTrue(_currency.equals(ccy), "discounting in several currencies not supported: {} and {}", _currency, ccy);
+    }
+    return curve(_multicurves.getCurve(ccy)).discountFactor(time);
+  }
+
+  /**
+   * Records a forward rate, as the simply compounded rate between the pseudo-discount factors of the forward curve.
+   * @param index The index
+   * @param startTime The start time
+   * @param endTime The end time
+   * @param accrualFactor The accrual factor
+   * @return The node of the forward rate
+   */
+  public int forwardRate(final IborIndex index, final double startTime, final double endTime, final double accrualFactor) {
+    final AdjointCurve curve = curve(_multicurves.getCurve(index));
+    final int dfStart = curve.discountFactor(startTime);
+    final int dfEnd = curve.discountFactor(endTime);
+    final double ratio = _tape.value(dfStart) / _tape.value(dfEnd);
+    return _tape.record((ratio - 1.0) / accrualFactor, dfStart, 1.0 / (_tape.value(dfEnd) * accrualFactor), dfEnd, -ratio / (_tape.value(dfEnd) * accrualFactor));
+  }
+
+  /**
+   * Extracts the sensitivities of a node to the parameters of all the curves used, after the backward sweep of the tape from that node.
+   * @param ccy The currency of the sensitivities
+   * @return The sensitivities
+   */
+  public MultipleCurrencyParameterSensitivity parameterSensitivity(final Currency ccy) {
+    MultipleCurrencyParameterSensitivity result = new MultipleCurrencyParameterSensitivity();
+    for (final Map.Entry<String, AdjointCurve> entry : _curves.entrySet()) {
+      final AdjointCurve curve = entry.getValue();
+      final double[] sensitivity = new double[curve.getNumberOfParameters()];
+      for (int loopp = 0; loopp < sensitivity.length; loopp++) {
+        sensitivity[loopp] = _tape.adjoint(curve.getFirstVariable() + loopp);
+      }
+      result = result.plus(new ObjectsPair<>(entry.getKey(), ccy), new DoubleMatrix1D(sensitivity));
+    }
+    return result;
+  }
+
+  private AdjointCurve curve(final YieldAndDiscountCurve curve) {
+    AdjointCurve adjoint = _curves.get(curve.getName());
+    if (adjoint == null) {
+      adjoint = new AdjointCurve(curve, _tape);
+      _curves.put(curve.getName(), adjoint);
+    }
+    return adjoint;
+  }
+
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.adjoint;
+
+import com.opengamma.analytics.financial.instrument.index.GeneratorAttributeIR;
+import com.opengamma.analytics.financial.instrument.index.GeneratorInstrument;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedCompoundedONCompounded;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedON;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitorAdapter;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.Annuity;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityCouponFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIbor;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.CouponIborSpread;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Payment;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.PaymentFixed;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.Swap;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapFixedCoupon;
+import com.opengamma.analytics.financial.interestrate.swaption.derivative.SwaptionPhysicalFixedIbor;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.daycount.DayCount;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Records the present value of an instrument on the tape of an {@link AdjointMulticurveProvider} and returns its node.
+ * <p>
+ * The present values are the ones of the discounting methods for the payments, coupons, annuities and swaps and of
+ * the Black method (SwaptionPhysicalFixedIborBlackMethod) for the physical swaptions, which require an {@link AdjointBlackSwaptionFlatProvider}.
+ */
+public final class PresentValueAdjointCalculator extends InstrumentDerivativeVisitorAdapter<AdjointMulticurveProvider, Integer> {
+
+  /**
+   * The unique instance of the calculator.
+   */
+  private static final PresentValueAdjointCalculator INSTANCE = new PresentValueAdjointCalculator();
+
+  /**
+   * Gets the calculator instance.
+   * @return The calculator.
+   */
+  public static PresentValueAdjointCalculator getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Constructor.
+   */
+  private PresentValueAdjointCalculator() {
+  }
+
+  // -----     Payment/Coupon     ------
+
+  @Override
+  public Integer visitFixedPayment(final PaymentFixed payment, final AdjointMulticurveProvider multicurves) {
+    final int df = multicurves.discountFactor(payment.getCurrency(), payment.getPaymentTime());
+    return multicurves.getTape().multiply(df, payment.getAmount());
+  }
+
+  @Override
+  public Integer visitCouponFixed(final CouponFixed payment, final AdjointMulticurveProvider multicurves) {
+    final int df = multicurves.discountFactor(payment.getCurrency(), payment.getPaymentTime());
+    return multicurves.getTape().multiply(df, payment.getAmount());
+  }
+
+  @Override
+  public Integer visitCouponIbor(final CouponIbor payment, final AdjointMulticurveProvider multicurves) {
+    final AdjointTape tape = multicurves.getTape();
+    final int forward = multicurves.forwardRate(payment.getIndex(), payment.getFixingPeriodStartTime(), payment.getFixingPeriodEndTime(), payment.getFixingAccrualFactor());
+    final int df = multicurves.discountFactor(payment.getCurrency(), payment.getPaymentTime());
+    final double notionalAccrual = payment.getNotional() * payment.getPaymentYearFraction();
+    final double forwardValue = tape.value(forward);
+    final double dfValue = tape.value(df);
+    return tape.record(notionalAccrual * forwardValue * dfValue, forward, notionalAccrual * dfValue, df, notionalAccrual * forwardValue);
+  }
+
+  @Override
+  public Integer visitCouponIborSpread(final CouponIborSpread payment, final AdjointMulticurveProvider multicurves) {
+    final AdjointTape tape = multicurves.getTape();
+    final int forward = multicurves.forwardRate(payment.getIndex(), payment.getFixingPeriodStartTime(), payment.getFixingPeriodEndTime(), payment.getFixingAccrualFactor());
+    final int df = multicurves.discountFactor(payment.getCurrency(), payment.getPaymentTime());
+    final double notionalAccrual = payment.getNotional() * payment.getPaymentYearFraction();
+    final double amount = notionalAccrual * tape.value(forward) + payment.getSpreadAmount();
+    final double dfValue = tape.value(df);
+    return tape.record(amount * dfValue, forward, notionalAccrual * dfValue, df, amount);
+  }
+
+  // -----     Annuity     ------
+
+  @Override
+  public Integer visitGenericAnnuity(final Annuity<? extends Payment> annuity, final AdjointMulticurveProvider multicurves) {
+    ArgumentChecker.notNull(annuity, "Annuity");
+    final int nbPayments = annuity.getNumberOfPayments();
+    final int[] nodes = new int[nbPayments];
+    final double[] weights = new double[nbPayments];
+    for (int loopp = 0; loopp < nbPayments; loopp++) {
+      nodes[loopp] = annuity.getNthPayment(loopp).accept(this, multicurves);
+      weights[loopp] = 1.0;
+    }
+    return multicurves.getTape().linearCombination(nodes, weights, nbPayments);
+  }
+
+  @Override
+  public Integer visitFixedCouponAnnuity(final AnnuityCouponFixed annuity, final AdjointMulticurveProvider multicurves) {
+    return visitGenericAnnuity(annuity, multicurves);
+  }
+
+  // -----     Swap     ------
+
+  @Override
+  public Integer visitSwap(final Swap<?, ?> swap, final AdjointMulticurveProvider multicurves) {
+    ArgumentChecker.notNull(swap, "Swap");
+    final int firstLeg = swap.getFirstLeg().accept(this, multicurves);
+    final int secondLeg = swap.getSecondLeg().accept(this, multicurves);
+    return multicurves.getTape().add(firstLeg, secondLeg);
+  }
+
+  @Override
+  public Integer visitFixedCouponSwap(final SwapFixedCoupon<?> swap, final AdjointMulticurveProvider multicurves) {
+    return visitSwap(swap, multicurves);
+  }
+
+  // -----     Swaption     ------
+
+  @Override
+  public Integer visitSwaptionPhysicalFixedIbor(final SwaptionPhysicalFixedIbor swaption, final AdjointMulticurveProvider multicurves) {
+    ArgumentChecker.notNull(swaption, "Swaption");
+    ArgumentChecker.isTrue(multicurves instanceof AdjointBlackSwaptionFlatProvider, "Black volatilities required for swaptions");
+    final AdjointBlackSwaptionFlatProvider black = (AdjointBlackSwaptionFlatProvider) multicurves;
+    final AdjointTape tape = multicurves.getTape();
+    final GeneratorInstrument<GeneratorAttributeIR> generatorSwap = black.getBlackParameters().getGeneratorSwap();
+    Calendar calendar;
+    DayCount dayCountModification;
+    if (generatorSwap instanceof GeneratorSwapFixedIbor) {
+      final GeneratorSwapFixedIbor fixedIborGenerator = (GeneratorSwapFixedIbor) generatorSwap;
+      calendar = fixedIborGenerator.getCalendar();
+      dayCountModification = fixedIborGenerator.getFixedLegDayCount();
+    } else if (generatorSwap instanceof GeneratorSwapFixedON) {
+      final GeneratorSwapFixedON fixedONGenerator = (GeneratorSwapFixedON) generatorSwap;
+      calendar = fixedONGenerator.getOvernightCalendar();
+      dayCountModification = fixedONGenerator.getFixedLegDayCount();
+    } else if (generatorSwap instanceof GeneratorSwapFixedCompoundedONCompounded) {
+      final GeneratorSwapFixedCompoundedONCompounded fixedCompoundedON = (GeneratorSwapFixedCompoundedONCompounded) generatorSwap;
+      calendar = fixedCompoundedON.getOvernightCalendar();
+      dayCountModification = fixedCompoundedON.getFixedLegDayCount();
+    } else {
+      throw new IllegalArgumentException("Cannot handle swap with underlying generator of type " + generatorSwap.getClass());
+    }
+    final SwapFixedCoupon<?> swap = swaption.getUnderlyingSwap();
+    final AnnuityCouponFixed fixedLeg = swap.getFixedLeg();
+    final int nbFixed = fixedLeg.getNumberOfPayments();
+    final int[] df = new int[nbFixed];
+    final double[] pvbpWeight = new double[nbFixed];
+    final double[] forwardPvbpWeight = new double[nbFixed];
+    final double[] strikeWeight = new double[nbFixed];
+    for (int loopcpn = 0; loopcpn < nbFixed; loopcpn++) {
+      final CouponFixed cpn = fixedLeg.getNthPayment(loopcpn);
+      final double notional = Math.abs(cpn.getNotional());
+      df[loopcpn] = multicurves.discountFactor(cpn.getCurrency(), cpn.getPaymentTime());
+      pvbpWeight[loopcpn] = dayCountModification.getDayCountFraction(cpn.getAccrualStartDate(), cpn.getAccrualEndDate(), calendar) * notional;
+      // Implementation note: the modified forward uses the PVBP without calendar, as ParRateDiscountingCalculator.
+      forwardPvbpWeight[loopcpn] = dayCountModification.getDayCountFraction(cpn.getAccrualStartDate(), cpn.getAccrualEndDate()) * notional;
+      strikeWeight[loopcpn] = cpn.getPaymentYearFraction() * notional * cpn.getFixedRate();
+    }
+    final int pvbpModified = tape.linearCombination(df, pvbpWeight, nbFixed);
+    final int forwardPvbp = tape.linearCombination(df, forwardPvbpWeight, nbFixed);
+    final int fixedLegPositiveNotional = tape.linearCombination(df, strikeWeight, nbFixed);
+    final int pvSecond = swap.getSecondLeg().accept(this, multicurves);
+    final int forwardModified = tape.divide(tape.multiply(pvSecond, Math.signum(swap.getSecondLeg().getNthPayment(0).getNotional())), forwardPvbp);
+    final int strikeModified = tape.divide(fixedLegPositiveNotional, pvbpModified);
+    final double volatility = black.getBlackParameters().getVolatility(swaption.getTimeToExpiry(), swaption.getMaturityTime());
+    final int price = AdjointBlackFunction.price(tape, forwardModified, strikeModified, pvbpModified, swaption.getTimeToExpiry(), volatility, swaption.isCall());
+    return swaption.isLong() ? price : tape.negate(price);
+  }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.adjoint;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.provider.description.interestrate.BlackSwaptionFlatProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.math.differentiation.AdjointTape;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+import com.opengamma.util.tuple.ObjectsPair;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Computes the present value of an instrument together with its sensitivity to all the parameters of the curves, by adjoint
+ * algorithmic differentiation: the present value is recorded on the tape of the current thread by {@link PresentValueAdjointCalculator}
+ * and one backward sweep gives the sensitivities to all the nodes of all the curves.
+ * <p>
+ * The sensitivities are in the format of ParameterSensitivityParameterCalculator, in the currency of the present value, for the
+ * curves used by the instrument. The volatilities are not differentiated.
+ */
+public final class PresentValueParameterSensitivityAdjointCalculator {
+
+  /**
+   * The unique instance of the calculator.
+   */
+  private static final PresentValueParameterSensitivityAdjointCalculator INSTANCE = new PresentValueParameterSensitivityAdjointCalculator();
+
+  /**
+   * Gets the calculator instance.
+   * @return The calculator.
+   */
+  public static PresentValueParameterSensitivityAdjointCalculator getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Constructor.
+   */
+  private PresentValueParameterSensitivityAdjointCalculator() {
+  }
+
+  /**
+   * The present value calculator.
+   */
+  private static final PresentValueAdjointCalculator PVAC = PresentValueAdjointCalculator.getInstance();
+
+  /**
+   * Computes the present value and its parameter sensitivity with curves only.
+   * @param instrument The instrument, not null
+   * @param multicurves The multi-curve provider, not null
+   * @return The present value and the sensitivities
+   */
+  public Pair<MultipleCurrencyAmount, MultipleCurrencyParameterSensitivity> calculate(final InstrumentDerivative instrument, final MulticurveProviderDiscount multicurves) {
+    ArgumentChecker.notNull(instrument, "instrument");
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    return calculate(instrument, new AdjointMulticurveProvider(AdjointTape.forCurrentThread(), multicurves));
+  }
+
+  /**
+   * Computes the present value and its parameter sensitivity with curves and Black swaption volatilities.
+   * @param instrument The instrument, not null
+   * @param black The curves and volatilities, not null
+   * @return The present value and the sensitivities
+   */
+  public Pair<MultipleCurrencyAmount, MultipleCurrencyParameterSensitivity> calculate(final InstrumentDerivative instrument, final BlackSwaptionFlatProviderDiscount black) {
+    ArgumentChecker.notNull(instrument, "instrument");
+    ArgumentChecker.notNull(black, "Black provider");
+    return calculate(instrument, new AdjointBlackSwaptionFlatProvider(AdjointTape.forCurrentThread(), black.getMulticurveProvider(), black.getBlackParameters()));
+  }
+
+  private static Pair<MultipleCurrencyAmount, MultipleCurrencyParameterSensitivity> calculate(final InstrumentDerivative instrument, final AdjointMulticurveProvider provider) {
+    final int pv = instrument.accept(PVAC, provider);
+    final AdjointTape tape = provider.getTape();
+    tape.backward(pv);
+    final MultipleCurrencyAmount amount = MultipleCurrencyAmount.of(provider.getCurrency(), tape.value(pv));
+    return ObjectsPair.of(amount, provider.parameterSensitivity(provider.getCurrency()));
+  }
+
+}
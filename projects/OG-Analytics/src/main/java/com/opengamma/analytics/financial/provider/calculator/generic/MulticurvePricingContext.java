@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.generic;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitor;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityPaymentFixed;
+import com.opengamma.analytics.financial.provider.calculator.discounting.CashFlowEquivalentCalculator;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderCached;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * The pricing context of one instrument with one multi-curves provider, shared by the calculators computing several measures of the
+ * instrument (present value, par rate, PV01, curve sensitivities, cash-flow equivalent, ...).
+ * <p>
+ * The calculators are given a {@link MulticurveProviderCached} wrapping the provider, so that the discount factors and forward rates
+ * required by the instrument are computed by the first calculator and reused by the others. The result of each calculator is also
+ * remembered, so that a measure requested twice (e.g. directly and as the input of another measure) is computed once.
+ * <p>
+ * A context is intended to be used for one instrument by one thread; it is not thread-safe.
+ */
+public class MulticurvePricingContext {
+  /** The instrument */
+  private final InstrumentDerivative _instrument;
+  /** The multi-curves provider remembering the discount factors and forward rates */
+  private final MulticurveProviderCached _multicurves;
+  /** The results already computed, by calculator */
+  private final Map<InstrumentDerivativeVisitor<MulticurveProviderInterface, ?>, Object> _results = new IdentityHashMap<>();
+
+  /**
+   * @param instrument The instrument, not null
+   * @param multicurves The multi-curves provider, not null
+   */
+  public MulticurvePricingContext(final InstrumentDerivative instrument, final MulticurveProviderInterface multicurves) {
+    ArgumentChecker.notNull(instrument, "instrument");
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    _instrument = instrument;
+    _multicurves = multicurves instanceof MulticurveProviderCached ? (MulticurveProviderCached) multicurves : new MulticurveProviderCached(multicurves);
+  }
+
+  /**
+   * Computes a measure of the instrument, or returns it if it has already been computed with this calculator.
+   * @param <T> The type of the measure
+   * @param calculator The calculator, not null
+   * @return The measure
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T calculate(final InstrumentDerivativeVisitor<MulticurveProviderInterface, T> calculator) {
+    ArgumentChecker.notNull(calculator, "calculator");
+    if (_results.containsKey(calculator)) {
+      return (T) _results.get(calculator);
+    }
+    final T result = _instrument.accept(calculator, _multicurves);
+    _results.put(calculator, result);
+    return result;
+  }
+
+  /**
+   * Computes several measures of the instrument in one pass over the calculators, all of them sharing the discount factors and forward
+   * rates.
+   * @param calculators The calculators, not null
+   * @return The measures, in the order of the calculators
+   */
+  public List<Object> calculate(final List<? extends InstrumentDerivativeVisitor<MulticurveProviderInterface, ?>> calculators) {
+    ArgumentChecker.noNulls(calculators, "calculators");
+    final List<Object> results = new ArrayList<>(calculators.size());
+    for (final InstrumentDerivativeVisitor<MulticurveProviderInterface, ?> calculator : calculators) {
+      results.add(calculate(calculator));
+    }
+    return results;
+  }
+
+  /**
+   * Returns the cash-flow equivalent of the instrument.
+   * @return The cash-flow equivalent
+   */
+  public AnnuityPaymentFixed getCashFlowEquivalent() {
+    return calculate(CashFlowEquivalentCalculator.getInstance());
+  }
+
+  /**
+   * Gets the instrument.
+   * @return The instrument
+   */
+  public InstrumentDerivative getInstrument() {
+    return _instrument;
+  }
+
+  /**
+   * Gets the multi-curves provider used by the calculators.
+   * @return The provider remembering the discount factors and forward rates
+   */
+  public MulticurveProviderCached getMulticurveProvider() {
+    return _multicurves;
+  }
+
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.description.interestrate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.opengamma.analytics.financial.forex.method.FXMatrix;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.index.IndexON;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ForwardSensitivity;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Class describing a multi-curves provider that decorates an underlying provider and remembers the discount factors and forward rates
+ * already requested. When several calculators price the same instrument (present value, par rate, curve sensitivities, ...), each of them
+ * walks the same cash flows and asks for the same discount factors and forward rates; with this provider the curves are only
+ * interpolated once for each of them.
+ * <p>
+ * The underlying provider must not be modified while this provider is used. This class is not thread-safe.
+ */
+public class MulticurveProviderCached implements MulticurveProviderInterface {
+
+  /**
+   * The underlying multi-curves provider.
+   */
+  private final MulticurveProviderInterface _multicurveProvider;
+  /**
+   * The discount factors already computed.
+   */
+  private final Map<CurveQuery, Double> _discountFactors = new HashMap<>();
+  /**
+   * The forward rates already computed, for the Ibor and the overnight indexes.
+   */
+  private final Map<CurveQuery, Double> _forwardRates = new HashMap<>();
+
+  /**
+   * Constructor.
+   * @param multicurveProvider The underlying multi-curves provider, not null.
+   */
+  public MulticurveProviderCached(final MulticurveProviderInterface multicurveProvider) {
+    ArgumentChecker.notNull(multicurveProvider, "multicurve provider");
+    _multicurveProvider = multicurveProvider;
+  }
+
+  /**
+   * Returns the underlying multi-curves provider.
+   * @return The provider.
+   */
+  public MulticurveProviderInterface getUnderlyingProvider() {
+    return _multicurveProvider;
+  }
+
+  /**
+   * Returns the number of discount factors and forward rates remembered.
+   * @return The number of values.
+   */
+  public int getNumberOfCachedValues() {
+    return _discountFactors.size() + _forwardRates.size();
+  }
+
+  /**
+   * Forgets the discount factors and forward rates already computed.
+   */
+  public void clear() {
+    _discountFactors.clear();
+    _forwardRates.clear();
+  }
+
+  @Override
+  public MulticurveProviderInterface getMulticurveProvider() {
+    return this;
+  }
+
+  @Override
+  public MulticurveProviderInterface copy() {
+    return new MulticurveProviderCached(_multicurveProvider.copy());
+  }
+
+  @Override
+  public double getDiscountFactor(final Currency ccy, final Double time) {
+    final CurveQuery query = new CurveQuery(ccy, time, 0.0, 0.0);
+    final Double cached = _discountFactors.get(query);
+    if (cached != null) {
+      return cached;
+    }
+    final double df = _multicurveProvider.getDiscountFactor(ccy, time);
+    _discountFactors.put(query, df);
+    return df;
+  }
+
+  @Override
+  public double getForwardRate(final IborIndex index, final double startTime, final double endTime, final double accrualFactor) {
+    final CurveQuery query = new CurveQuery(index, startTime, endTime, accrualFactor);
+    final Double cached = _forwardRates.get(query);
+    if (cached != null) {
+      return cached;
+    }
+    final double forward = _multicurveProvider.getForwardRate(index, startTime, endTime, accrualFactor);
+    _forwardRates.put(query, forward);
+    return forward;
+  }
+
+  @Override
+  public double getForwardRate(final IndexON index, final double startTime, final double endTime, final double accrualFactor) {
+    final CurveQuery query = new CurveQuery(index, startTime, endTime, accrualFactor);
+    final Double cached = _forwardRates.get(query);
+    if (cached != null) {
+      return cached;
+    }
+    final double forward = _multicurveProvider.getForwardRate(index, startTime, endTime, accrualFactor);
+    _forwardRates.put(query, forward);
+    return forward;
+  }
+
+  @Override
+  public double getFxRate(final Currency ccy1, final Currency ccy2) {
+    return _multicurveProvider.getFxRate(ccy1, ccy2);
+  }
+
+  @Override
+  public double[] parameterSensitivity(final String name, final List<DoublesPair> pointSensitivity) {
+    return _multicurveProvider.parameterSensitivity(name, pointSensitivity);
+  }
+
+  @Override
+  public double[] parameterForwardSensitivity(final String name, final List<ForwardSensitivity> pointSensitivity) {
+    return _multicurveProvider.parameterForwardSensitivity(name, pointSensitivity);
+  }
+
+  @Override
+  public Integer getNumberOfParameters(final String name) {
+    return _multicurveProvider.getNumberOfParameters(name);
+  }
+
+  @Override
+  public List<String> getUnderlyingCurvesNames(final String name) {
+    return _multicurveProvider.getUnderlyingCurvesNames(name);
+  }
+
+  @Override
+  public String getName(final Currency ccy) {
+    return _multicurveProvider.getName(ccy);
+  }
+
+  @Override
+  public Set<Currency> getCurrencies() {
+    return _multicurveProvider.getCurrencies();
+  }
+
+  @Override
+  public String getName(final IborIndex index) {
+    return _multicurveProvider.getName(index);
+  }
+
+  @Override
+  public Set<IborIndex> getIndexesIbor() {
+    return _multicurveProvider.getIndexesIbor();
+  }
+
+  @Override
+  public String getName(final IndexON index) {
+    return _multicurveProvider.getName(index);
+  }
+
+  @Override
+  public Set<IndexON> getIndexesON() {
+    return _multicurveProvider.getIndexesON();
+  }
+
+  @Override
+  public FXMatrix getFxRates() {
+    return _multicurveProvider.getFxRates();
+  }
+
+  @Override
+  public Set<String> getAllNames() {
+    return _multicurveProvider.getAllNames();
+  }
+
+  /**
+   * The key of a discount factor or forward rate: the currency or index and the times. The currency or index is compared by reference,
+   * as the instruments share their index instances; an equal index in another instance is only a cache miss.
+   */
+  private static final class CurveQuery {
+    /** The currency or index */
+    private final Object _curve;
+    /** The start time */
+    private final double _startTime;
+    /** The end time */
+    private final double _endTime;
+    /** The accrual factor */
+    private final double _accrualFactor;
+    /** The hash code */
+    private final int _hashCode;
+
+    CurveQuery(final Object curve, final double startTime, final double endTime, final double accrualFactor) {
+      _curve = curve;
+      _startTime = startTime;
+      _endTime = endTime;
+      _accrualFactor = accrualFactor;
+      final int prime = 31;
+      int result = System.identityHashCode(curve);
+      long temp = Double.doubleToLongBits(startTime);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(endTime);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      temp = Double.doubleToLongBits(accrualFactor);
+      result = prime * result + (int) (temp ^ (temp >>> 32));
+      _hashCode = result;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof CurveQuery)) {
+        return false;
+      }
+      final CurveQuery other = (CurveQuery) obj;
+      return Double.doubleToLongBits(_startTime) == Double.doubleToLongBits(other._startTime)
+          && Double.doubleToLongBits(_endTime) == Double.doubleToLongBits(other._endTime)
+          && Double.doubleToLongBits(_accrualFactor) == Double.doubleToLongBits(other._accrualFactor)
+          && _curve == other._curve;
+    }
+  }
+
+}
@@ -0,0 +1,366 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity.multicurve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.math.curve.CompiledInterpolatedDoublesCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CompiledInterpolator1D;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Dense representation of the point sensitivities to the continuously compounded rates of one curve.
+ * <p>
+ * The times are stored sorted and without duplicate in a primitive array, with the sensitivity values in a parallel array.
+ * This is the primitive equivalent of the cleaned list of {@link DoublesPair} used in {@link MulticurveSensitivity}; merging
+ * two sensitivities is a linear merge of sorted arrays.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class DenseCurveSensitivity {
+
+  /** An empty sensitivity */
+  public static final DenseCurveSensitivity EMPTY = new DenseCurveSensitivity(new double[0], new double[0]);
+
+  /**
+   * The times, sorted ascending, without duplicates.
+   */
+  private final double[] _times;
+  /**
+   * The sensitivity values.
+   */
+  private final double[] _values;
+
+  /**
+   * Constructor from arrays, used directly.
+   * @param times The sorted times.
+   * @param values The values.
+   */
+  private DenseCurveSensitivity(final double[] times, final double[] values) {
+    _times = times;
+    _values = values;
+  }
+
+  /**
+   * Creates a sensitivity from arrays of times and values. The times do not need to be sorted, the values at equal times are added.
+   * The arrays are not modified.
+   * @param times The times, not null
+   * @param values The values, not null, same length as the times
+   * @return The sensitivity
+   */
+  public static DenseCurveSensitivity of(final double[] times, final double[] values) {
+    ArgumentChecker.notNull(times, "times");
+    ArgumentChecker.notNull(values, "values");
+    ArgumentChecker.isTrue(times.length == values.length, "times and values must have the same length");
+    return compact(Arrays.copyOf(times, times.length), Arrays.copyOf(values, values.length), times.length);
+  }
+
+  /**
+   * Creates a sensitivity from a list of (time, value) pairs, as stored in {@link MulticurveSensitivity}.
+   * @param pointSensitivity The list, not null
+   * @return The sensitivity
+   */
+  public static DenseCurveSensitivity of(final List<DoublesPair> pointSensitivity) {
+    ArgumentChecker.notNull(pointSensitivity, "point sensitivity");
+    final int n = pointSensitivity.size();
+    final double[] times = new double[n];
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      final DoublesPair pair = pointSensitivity.get(i);
+      times[i] = pair.getFirstDouble();
+      values[i] = pair.getSecondDouble();
+    }
+    return compact(times, values, n);
+  }
+
+  /**
+   * Sorts the entries by time and adds the values at equal times. The sort is stable, so the values are added in their original
+   * order, as in {@link MulticurveSensitivityUtils#cleaned(java.util.Map)}.
+   * @param times The times, may be modified.
+   * @param values The values, may be modified.
+   * @param n The number of entries used.
+   * @return The sensitivity.
+   */
+  static DenseCurveSensitivity compact(final double[] times, final double[] values, final int n) {
+    if (n == 0) {
+      return EMPTY;
+    }
+    final double[] sortedTimes;
+    final double[] sortedValues;
+    if (isSorted(times, n)) {
+      sortedTimes = times;
+      sortedValues = values;
+    } else {
+      final int[] index = new int[n];
+      for (int i = 0; i < n; i++) {
+        index[i] = i;
+      }
+      sort(index, new int[n], 0, n, times);
+      sortedTimes = new double[n];
+      sortedValues = new double[n];
+      for (int i = 0; i < n; i++) {
+        sortedTimes[i] = times[index[i]];
+        sortedValues[i] = values[index[i]];
+      }
+    }
+    int last = 0;
+    for (int i = 1; i < n; i++) {
+      if (Double.compare(sortedTimes[i], sortedTimes[last]) == 0) {
+        sortedValues[last] += sortedValues[i];
+      } else {
+        last++;
+        sortedTimes[last] = sortedTimes[i];
+        sortedValues[last] = sortedValues[i];
+      }
+    }
+    final int size = last + 1;
+    if (size == sortedTimes.length) {
+      return new DenseCurveSensitivity(sortedTimes, sortedValues);
+    }
+    return new DenseCurveSensitivity(Arrays.copyOf(sortedTimes, size), Arrays.copyOf(sortedValues, size));
+  }
+
+  private static boolean isSorted(final double[] times, final int n) {
+    for (int i = 1; i < n; i++) {
+      if (Double.compare(times[i], times[i - 1]) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stable merge sort of indices on the times.
+   */
+  private static void sort(final int[] index, final int[] work, final int from, final int to, final double[] times) {
+    if (to - from < 2) {
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    sort(index, work, from, mid, times);
+    sort(index, work, mid, to, times);
+    int i = from;
+    int j = mid;
+    int k = from;
+    while (i < mid && j < to) {
+      if (Double.compare(times[index[j]], times[index[i]]) < 0) {
+        work[k++] = index[j++];
+      } else {
+        work[k++] = index[i++];
+      }
+    }
+    while (i < mid) {
+      work[k++] = index[i++];
+    }
+    while (j < to) {
+      work[k++] = index[j++];
+    }
+    System.arraycopy(work, from, index, from, to - from);
+  }
+
+  /**
+   * Gets the number of distinct times.
+   * @return The size
+   */
+  public int size() {
+    return _times.length;
+  }
+
+  /**
+   * Gets the sorted times. The array must not be modified.
+   * @return The times
+   */
+  public double[] getTimes() {
+    return _times;
+  }
+
+  /**
+   * Gets the values. The array must not be modified.
+   * @return The values
+   */
+  public double[] getValues() {
+    return _values;
+  }
+
+  /**
+   * Returns the sum of this sensitivity and another one, by a linear merge of the sorted times.
+   * @param other The other sensitivity, not null
+   * @return The total sensitivity
+   */
+  public DenseCurveSensitivity plus(final DenseCurveSensitivity other) {
+    ArgumentChecker.notNull(other, "other");
+    if (other.size() == 0) {
+      return this;
+    }
+    if (size() == 0) {
+      return other;
+    }
+    final int n1 = _times.length;
+    final int n2 = other._times.length;
+    final double[] times = new double[n1 + n2];
+    final double[] values = new double[n1 + n2];
+    int i1 = 0;
+    int i2 = 0;
+    int k = 0;
+    while (i1 < n1 && i2 < n2) {
+      final double t1 = _times[i1];
+      final double t2 = other._times[i2];
+      final int cmp = Double.compare(t1, t2);
+      if (cmp == 0) {
+        times[k] = t1;
+        values[k++] = _values[i1++] + other._values[i2++];
+      } else if (cmp < 0) {
+        times[k] = t1;
+        values[k++] = _values[i1++];
+      } else {
+        times[k] = t2;
+        values[k++] = other._values[i2++];
+      }
+    }
+    while (i1 < n1) {
+      times[k] = _times[i1];
+      values[k++] = _values[i1++];
+    }
+    while (i2 < n2) {
+      times[k] = other._times[i2];
+      values[k++] = other._values[i2++];
+    }
+    if (k == times.length) {
+      return new DenseCurveSensitivity(times, values);
+    }
+    return new DenseCurveSensitivity(Arrays.copyOf(times, k), Arrays.copyOf(values, k));
+  }
+
+  /**
+   * Returns the sensitivity multiplied by a common factor.
+   * @param factor The factor
+   * @return The multiplied sensitivity
+   */
+  public DenseCurveSensitivity multipliedBy(final double factor) {
+    final double[] values = new double[_values.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = _values[i] * factor;
+    }
+    return new DenseCurveSensitivity(_times, values);
+  }
+
+  /**
+   * Converts the sensitivity to the list format used in {@link MulticurveSensitivity}.
+   * @return The list of (time, value) pairs, sorted by time
+   */
+  public List<DoublesPair> toList() {
+    final List<DoublesPair> result = new ArrayList<>(_times.length);
+    for (int i = 0; i < _times.length; i++) {
+      result.add(DoublesPair.of(_times[i], _values[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Projects the point sensitivity onto the parameters of a curve.
+   * <p>
+   * When the curve is a {@link YieldCurve} on an interpolated curve which can be compiled (see {@link CompiledInterpolator1D}),
+   * the node sensitivities are accumulated walking along the sorted times, without any intermediary array per point.
+   * Otherwise the result is the same as {@code MulticurveProviderDiscount.parameterSensitivity}.
+   * @param curve The curve, not null
+   * @return The sensitivity to the curve parameters
+   */
+  public double[] parameterSensitivity(final YieldAndDiscountCurve curve) {
+    ArgumentChecker.notNull(curve, "curve");
+    final int nbParameters = curve.getNumberOfParameters();
+    final double[] result = new double[nbParameters];
+    final int n = _times.length;
+    if (n == 0) {
+      return result;
+    }
+    final CompiledInterpolator1D compiled = getCompiledInterpolator(curve, n);
+    if (compiled != null && compiled.getNumberOfNodes() == nbParameters) {
+      final double[] buffer = new double[nbParameters];
+      int cursor = 0;
+      for (int i = 0; i < n; i++) {
+        cursor = compiled.advance(cursor, _times[i]);
+        compiled.getNodeSensitivitiesForValue(cursor, _times[i], buffer);
+        final double value = _values[i];
+        for (int loopparam = 0; loopparam < nbParameters; loopparam++) {
+          result[loopparam] += value * buffer[loopparam];
+        }
+      }
+      return result;
+    }
+    for (int i = 0; i < n; i++) {
+      final double[] sensi1Point = curve.getInterestRateParameterSensitivity(_times[i]);
+      for (int loopparam = 0; loopparam < nbParameters; loopparam++) {
+        result[loopparam] += _values[i] * sensi1Point[loopparam];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the compiled interpolator of a yield curve, if available and worth compiling for a given number of points.
+   * @param curve The curve
+   * @param nbPoints The number of points which will be projected
+   * @return The compiled interpolator or null
+   */
+  private static CompiledInterpolator1D getCompiledInterpolator(final YieldAndDiscountCurve curve, final int nbPoints) {
+    if (!(curve instanceof YieldCurve)) {
+      return null;
+    }
+    final YieldCurve yieldCurve = (YieldCurve) curve;
+    if (yieldCurve.getCurve() instanceof CompiledInterpolatedDoublesCurve) {
+      return ((CompiledInterpolatedDoublesCurve) yieldCurve.getCurve()).getCompiledInterpolator();
+    }
+    if (!(yieldCurve.getCurve() instanceof InterpolatedDoublesCurve)) {
+      return null;
+    }
+    final InterpolatedDoublesCurve interpolated = (InterpolatedDoublesCurve) yieldCurve.getCurve();
+    // compiling costs about one evaluation per node, only worth it if there are more points than nodes
+    if (nbPoints <= interpolated.size() || !CompiledInterpolator1D.isSupported(interpolated.getInterpolator())) {
+      return null;
+    }
+    return CompiledInterpolator1D.from(interpolated.getInterpolator(), interpolated.getDataBundle());
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < _times.length; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(_times[i]).append("=").append(_values[i]);
+    }
+    return sb.append("]").toString();
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + Arrays.hashCode(_times);
+    result = prime * result + Arrays.hashCode(_values);
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof DenseCurveSensitivity)) {
+      return false;
+    }
+    final DenseCurveSensitivity other = (DenseCurveSensitivity) obj;
+    return Arrays.equals(_times, other._times) && Arrays.equals(_values, other._values);
+  }
+
+}
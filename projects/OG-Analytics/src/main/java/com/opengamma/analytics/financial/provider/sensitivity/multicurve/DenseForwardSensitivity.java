@@ -0,0 +1,335 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity.multicurve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Dense representation of the point sensitivities to the forward rates of one curve.
+ * <p>
+ * The (start time, end time, accrual factor) triplets are stored sorted lexicographically and without duplicate in primitive
+ * arrays, with the sensitivity values in a parallel array. This is the primitive equivalent of the cleaned list of
+ * {@link ForwardSensitivity} used in {@link MulticurveSensitivity}.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class DenseForwardSensitivity {
+
+  /** An empty sensitivity */
+  public static final DenseForwardSensitivity EMPTY = new DenseForwardSensitivity(new double[0], new double[0], new double[0], new double[0]);
+
+  /**
+   * The forward start times.
+   */
+  private final double[] _startTimes;
+  /**
+   * The forward end times.
+   */
+  private final double[] _endTimes;
+  /**
+   * The forward accrual factors.
+   */
+  private final double[] _accrualFactors;
+  /**
+   * The sensitivity values.
+   */
+  private final double[] _values;
+
+  /**
+   * Constructor from arrays, used directly.
+   * @param startTimes The start times.
+   * @param endTimes The end times.
+   * @param accrualFactors The accrual factors.
+   * @param values The values.
+   */
+  private DenseForwardSensitivity(final double[] startTimes, final double[] endTimes, final double[] accrualFactors, final double[] values) {
+    _startTimes = startTimes;
+    _endTimes = endTimes;
+    _accrualFactors = accrualFactors;
+    _values = values;
+  }
+
+  /**
+   * Creates a sensitivity from a list of forward sensitivities, as stored in {@link MulticurveSensitivity}.
+   * The values of identical forwards are added.
+   * @param pointSensitivity The list, not null
+   * @return The sensitivity
+   */
+  public static DenseForwardSensitivity of(final List<ForwardSensitivity> pointSensitivity) {
+    ArgumentChecker.notNull(pointSensitivity, "point sensitivity");
+    final int n = pointSensitivity.size();
+    if (n == 0) {
+      return EMPTY;
+    }
+    final double[] start = new double[n];
+    final double[] end = new double[n];
+    final double[] af = new double[n];
+    final double[] values = new double[n];
+    for (int i = 0; i < n; i++) {
+      final ForwardSensitivity fwd = pointSensitivity.get(i);
+      start[i] = fwd.getStartTime();
+      end[i] = fwd.getEndTime();
+      af[i] = fwd.getAccrualFactor();
+      values[i] = fwd.getValue();
+    }
+    final int[] index = new int[n];
+    for (int i = 0; i < n; i++) {
+      index[i] = i;
+    }
+    sort(index, new int[n], 0, n, start, end, af);
+    final double[] sortedStart = new double[n];
+    final double[] sortedEnd = new double[n];
+    final double[] sortedAf = new double[n];
+    final double[] sortedValues = new double[n];
+    int k = -1;
+    for (int i = 0; i < n; i++) {
+      final int j = index[i];
+      if (k >= 0 && compare(sortedStart[k], sortedEnd[k], sortedAf[k], start[j], end[j], af[j]) == 0) {
+        sortedValues[k] += values[j];
+      } else {
+        k++;
+        sortedStart[k] = start[j];
+        sortedEnd[k] = end[j];
+        sortedAf[k] = af[j];
+        sortedValues[k] = values[j];
+      }
+    }
+    return trimmed(sortedStart, sortedEnd, sortedAf, sortedValues, k + 1);
+  }
+
+  private static DenseForwardSensitivity trimmed(final double[] start, final double[] end, final double[] af, final double[] values, final int size) {
+    if (size == start.length) {
+      return new DenseForwardSensitivity(start, end, af, values);
+    }
+    return new DenseForwardSensitivity(Arrays.copyOf(start, size), Arrays.copyOf(end, size), Arrays.copyOf(af, size), Arrays.copyOf(values, size));
+  }
+
+  private static int compare(final double start1, final double end1, final double af1, final double start2, final double end2, final double af2) {
+    int cmp = Double.compare(start1, start2);
+    if (cmp != 0) {
+      return cmp;
+    }
+    cmp = Double.compare(end1, end2);
+    if (cmp != 0) {
+      return cmp;
+    }
+    return Double.compare(af1, af2);
+  }
+
+  /**
+   * Stable merge sort of indices on the (start, end, accrual factor) keys.
+   */
+  private static void sort(final int[] index, final int[] work, final int from, final int to, final double[] start, final double[] end, final double[] af) {
+    if (to - from < 2) {
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    sort(index, work, from, mid, start, end, af);
+    sort(index, work, mid, to, start, end, af);
+    int i = from;
+    int j = mid;
+    int k = from;
+    while (i < mid && j < to) {
+      if (compare(start[index[j]], end[index[j]], af[index[j]], start[index[i]], end[index[i]], af[index[i]]) < 0) {
+        work[k++] = index[j++];
+      } else {
+        work[k++] = index[i++];
+      }
+    }
+    while (i < mid) {
+      work[k++] = index[i++];
+    }
+    while (j < to) {
+      work[k++] = index[j++];
+    }
+    System.arraycopy(work, from, index, from, to - from);
+  }
+
+  /**
+   * Gets the number of distinct forwards.
+   * @return The size
+   */
+  public int size() {
+    return _startTimes.length;
+  }
+
+  /**
+   * Gets the start times. The array must not be modified.
+   * @return The start times
+   */
+  public double[] getStartTimes() {
+    return _startTimes;
+  }
+
+  /**
+   * Gets the end times. The array must not be modified.
+   * @return The end times
+   */
+  public double[] getEndTimes() {
+    return _endTimes;
+  }
+
+  /**
+   * Gets the accrual factors. The array must not be modified.
+   * @return The accrual factors
+   */
+  public double[] getAccrualFactors() {
+    return _accrualFactors;
+  }
+
+  /**
+   * Gets the values. The array must not be modified.
+   * @return The values
+   */
+  public double[] getValues() {
+    return _values;
+  }
+
+  /**
+   * Returns the sum of this sensitivity and another one, by a linear merge of the sorted forwards.
+   * @param other The other sensitivity, not null
+   * @return The total sensitivity
+   */
+  public DenseForwardSensitivity plus(final DenseForwardSensitivity other) {
+    ArgumentChecker.notNull(other, "other");
+    if (other.size() == 0) {
+      return this;
+    }
+    if (size() == 0) {
+      return other;
+    }
+    final int n1 = size();
+    final int n2 = other.size();
+    final double[] start = new double[n1 + n2];
+    final double[] end = new double[n1 + n2];
+    final double[] af = new double[n1 + n2];
+    final double[] values = new double[n1 + n2];
+    int i1 = 0;
+    int i2 = 0;
+    int k = 0;
+    while (i1 < n1 || i2 < n2) {
+      final int cmp;
+      if (i1 == n1) {
+        cmp = 1;
+      } else if (i2 == n2) {
+        cmp = -1;
+      } else {
+        cmp = compare(_startTimes[i1], _endTimes[i1], _accrualFactors[i1], other._startTimes[i2], other._endTimes[i2], other._accrualFactors[i2]);
+      }
+      if (cmp <= 0) {
+        start[k] = _startTimes[i1];
+        end[k] = _endTimes[i1];
+        af[k] = _accrualFactors[i1];
+        values[k] = _values[i1++];
+        if (cmp == 0) {
+          values[k] += other._values[i2++];
+        }
+      } else {
+        start[k] = other._startTimes[i2];
+        end[k] = other._endTimes[i2];
+        af[k] = other._accrualFactors[i2];
+        values[k] = other._values[i2++];
+      }
+      k++;
+    }
+    return trimmed(start, end, af, values, k);
+  }
+
+  /**
+   * Returns the sensitivity multiplied by a common factor.
+   * @param factor The factor
+   * @return The multiplied sensitivity
+   */
+  public DenseForwardSensitivity multipliedBy(final double factor) {
+    final double[] values = new double[_values.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = _values[i] * factor;
+    }
+    return new DenseForwardSensitivity(_startTimes, _endTimes, _accrualFactors, values);
+  }
+
+  /**
+   * Converts the sensitivity to the list format used in {@link MulticurveSensitivity}.
+   * @return The list of forward sensitivities, sorted
+   */
+  public List<ForwardSensitivity> toList() {
+    final List<ForwardSensitivity> result = new ArrayList<>(size());
+    for (int i = 0; i < size(); i++) {
+      result.add(new ForwardSensitivity(_startTimes[i], _endTimes[i], _accrualFactors[i], _values[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Converts the sensitivity to the forward rates into a sensitivity to the continuously compounded rates of the curve
+   * at the start and end times of each forward, as in {@code MulticurveProviderDiscount.parameterForwardSensitivity}.
+   * @param curve The forward curve, not null
+   * @return The sensitivity to the rates
+   */
+  public DenseCurveSensitivity toYieldSensitivity(final YieldAndDiscountCurve curve) {
+    ArgumentChecker.notNull(curve, "curve");
+    final int n = size();
+    final double[] times = new double[2 * n];
+    final double[] values = new double[2 * n];
+    for (int i = 0; i < n; i++) {
+      final double startTime = _startTimes[i];
+      final double endTime = _endTimes[i];
+      final double accrualFactor = _accrualFactors[i];
+      final double forwardBar = _values[i];
+      final double dfForwardStart = curve.getDiscountFactor(startTime);
+      final double dfForwardEnd = curve.getDiscountFactor(endTime);
+      times[2 * i] = startTime;
+      values[2 * i] = -startTime * dfForwardStart / (dfForwardEnd * accrualFactor) * forwardBar;
+      times[2 * i + 1] = endTime;
+      values[2 * i + 1] = endTime * dfForwardStart / (dfForwardEnd * accrualFactor) * forwardBar;
+    }
+    return DenseCurveSensitivity.compact(times, values, 2 * n);
+  }
+
+  /**
+   * Projects the forward sensitivity onto the parameters of the curve.
+   * @param curve The forward curve, not null
+   * @return The sensitivity to the curve parameters
+   */
+  public double[] parameterSensitivity(final YieldAndDiscountCurve curve) {
+    return toYieldSensitivity(curve).parameterSensitivity(curve);
+  }
+
+  @Override
+  public String toString() {
+    return toList().toString();
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + Arrays.hashCode(_startTimes);
+    result = prime * result + Arrays.hashCode(_endTimes);
+    result = prime * result + Arrays.hashCode(_accrualFactors);
+    result = prime * result + Arrays.hashCode(_values);
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof DenseForwardSensitivity)) {
+      return false;
+    }
+    final DenseForwardSensitivity other = (DenseForwardSensitivity) obj;
+    return Arrays.equals(_startTimes, other._startTimes) && Arrays.equals(_endTimes, other._endTimes) && Arrays.equals(_accrualFactors, other._accrualFactors)
+        && Arrays.equals(_values, other._values);
+  }
+
+}
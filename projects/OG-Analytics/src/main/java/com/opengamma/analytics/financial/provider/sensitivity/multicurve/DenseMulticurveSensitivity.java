@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity.multicurve;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.ObjectUtils;
+
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Dense, primitive array based, equivalent of {@link MulticurveSensitivity}.
+ * <p>
+ * Each curve sensitivity is stored sorted and cleaned (see {@link DenseCurveSensitivity} and {@link DenseForwardSensitivity}),
+ * so that sums are linear merges and the projection onto the curve parameters walks the curve nodes once.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class DenseMulticurveSensitivity {
+
+  /**
+   * The sensitivity to the yield (continuously compounded), by curve name.
+   */
+  private final Map<String, DenseCurveSensitivity> _sensitivityYieldDiscounting;
+  /**
+   * The sensitivity to the forward rates, by curve name.
+   */
+  private final Map<String, DenseForwardSensitivity> _sensitivityForward;
+
+  /**
+   * Constructor from maps, used directly.
+   * @param sensitivityYieldDiscounting The yield sensitivity map.
+   * @param sensitivityForward The forward sensitivity map.
+   */
+  private DenseMulticurveSensitivity(final Map<String, DenseCurveSensitivity> sensitivityYieldDiscounting, final Map<String, DenseForwardSensitivity> sensitivityForward) {
+    _sensitivityYieldDiscounting = sensitivityYieldDiscounting;
+    _sensitivityForward = sensitivityForward;
+  }
+
+  /**
+   * Converts a multi-curve sensitivity into its dense form. The result is cleaned: the values at identical points are added.
+   * @param sensitivity The sensitivity, not null
+   * @return The dense sensitivity
+   */
+  public static DenseMulticurveSensitivity of(final MulticurveSensitivity sensitivity) {
+    ArgumentChecker.notNull(sensitivity, "sensitivity");
+    final Map<String, DenseCurveSensitivity> dsc = new HashMap<>();
+    for (final Map.Entry<String, List<DoublesPair>> entry : sensitivity.getYieldDiscountingSensitivities().entrySet()) {
+      dsc.put(entry.getKey(), DenseCurveSensitivity.of(entry.getValue()));
+    }
+    final Map<String, DenseForwardSensitivity> fwd = new HashMap<>();
+    for (final Map.Entry<String, List<ForwardSensitivity>> entry : sensitivity.getForwardSensitivities().entrySet()) {
+      fwd.put(entry.getKey(), DenseForwardSensitivity.of(entry.getValue()));
+    }
+    return new DenseMulticurveSensitivity(dsc, fwd);
+  }
+
+  /**
+   * Gets the yield sensitivities by curve name.
+   * @return The unmodifiable map
+   */
+  public Map<String, DenseCurveSensitivity> getYieldDiscountingSensitivities() {
+    return Collections.unmodifiableMap(_sensitivityYieldDiscounting);
+  }
+
+  /**
+   * Gets the forward sensitivities by curve name.
+   * @return The unmodifiable map
+   */
+  public Map<String, DenseForwardSensitivity> getForwardSensitivities() {
+    return Collections.unmodifiableMap(_sensitivityForward);
+  }
+
+  /**
+   * Returns the sum of this sensitivity and another one.
+   * @param other The other sensitivity, not null
+   * @return The total sensitivity
+   */
+  public DenseMulticurveSensitivity plus(final DenseMulticurveSensitivity other) {
+    ArgumentChecker.notNull(other, "other");
+    final Map<String, DenseCurveSensitivity> dsc = new HashMap<>(_sensitivityYieldDiscounting);
+    for (final Map.Entry<String, DenseCurveSensitivity> entry : other._sensitivityYieldDiscounting.entrySet()) {
+      final DenseCurveSensitivity existing = dsc.get(entry.getKey());
+      dsc.put(entry.getKey(), existing == null ? entry.getValue() : existing.plus(entry.getValue()));
+    }
+    final Map<String, DenseForwardSensitivity> fwd = new HashMap<>(_sensitivityForward);
+    for (final Map.Entry<String, DenseForwardSensitivity> entry : other._sensitivityForward.entrySet()) {
+      final DenseForwardSensitivity existing = fwd.get(entry.getKey());
+      fwd.put(entry.getKey(), existing == null ? entry.getValue() : existing.plus(entry.getValue()));
+    }
+    return new DenseMulticurveSensitivity(dsc, fwd);
+  }
+
+  /**
+   * Returns the sensitivity multiplied by a common factor.
+   * @param factor The factor
+   * @return The multiplied sensitivity
+   */
+  public DenseMulticurveSensitivity multipliedBy(final double factor) {
+    final Map<String, DenseCurveSensitivity> dsc = new HashMap<>();
+    for (final Map.Entry<String, DenseCurveSensitivity> entry : _sensitivityYieldDiscounting.entrySet()) {
+      dsc.put(entry.getKey(), entry.getValue().multipliedBy(factor));
+    }
+    final Map<String, DenseForwardSensitivity> fwd = new HashMap<>();
+    for (final Map.Entry<String, DenseForwardSensitivity> entry : _sensitivityForward.entrySet()) {
+      fwd.put(entry.getKey(), entry.getValue().multipliedBy(factor));
+    }
+    return new DenseMulticurveSensitivity(dsc, fwd);
+  }
+
+  /**
+   * Converts back to the list based {@link MulticurveSensitivity}. The result is cleaned.
+   * @return The sensitivity
+   */
+  public MulticurveSensitivity toMulticurveSensitivity() {
+    final Map<String, List<DoublesPair>> dsc = new HashMap<>();
+    for (final Map.Entry<String, DenseCurveSensitivity> entry : _sensitivityYieldDiscounting.entrySet()) {
+      dsc.put(entry.getKey(), entry.getValue().toList());
+    }
+    final Map<String, List<ForwardSensitivity>> fwd = new HashMap<>();
+    for (final Map.Entry<String, DenseForwardSensitivity> entry : _sensitivityForward.entrySet()) {
+      fwd.put(entry.getKey(), entry.getValue().toList());
+    }
+    return MulticurveSensitivity.of(dsc, fwd);
+  }
+
+  /**
+   * Projects the yield and forward sensitivities to a given curve onto the curve parameters.
+   * <p>
+   * When the provider gives access to the curve (i.e. is a {@link MulticurveProviderDiscount}), the projection is done on the
+   * dense arrays; otherwise the provider projection methods are used on the list form.
+   * @param multicurves The provider, not null
+   * @param name The curve name, not null
+   * @return The sensitivity to the curve parameters
+   */
+  public double[] parameterSensitivity(final MulticurveProviderInterface multicurves, final String name) {
+    ArgumentChecker.notNull(multicurves, "multicurves");
+    ArgumentChecker.notNull(name, "name");
+    final DenseCurveSensitivity dsc = _sensitivityYieldDiscounting.get(name);
+    final DenseForwardSensitivity fwd = _sensitivityForward.get(name);
+    if (multicurves instanceof MulticurveProviderDiscount) {
+      final YieldAndDiscountCurve curve = ((MulticurveProviderDiscount) multicurves).getCurve(name);
+      if (curve != null) {
+        DenseCurveSensitivity total = dsc == null ? DenseCurveSensitivity.EMPTY : dsc;
+        if (fwd != null) {
+          total = total.plus(fwd.toYieldSensitivity(curve));
+        }
+        return total.parameterSensitivity(curve);
+      }
+    }
+    final double[] result = multicurves.parameterSensitivity(name, dsc == null ? null : dsc.toList());
+    if (fwd != null) {
+      final double[] resultFwd = multicurves.parameterForwardSensitivity(name, fwd.toList());
+      for (int loopparam = 0; loopparam < result.length; loopparam++) {
+        result[loopparam] += resultFwd[loopparam];
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return _sensitivityYieldDiscounting.toString() + "\n" + _sensitivityForward.toString();
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = 1;
+    result = prime * result + _sensitivityForward.hashCode();
+    result = prime * result + _sensitivityYieldDiscounting.hashCode();
+    return result;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof DenseMulticurveSensitivity)) {
+      return false;
+    }
+    final DenseMulticurveSensitivity other = (DenseMulticurveSensitivity) obj;
+    return ObjectUtils.equals(_sensitivityForward, other._sensitivityForward) && ObjectUtils.equals(_sensitivityYieldDiscounting, other._sensitivityYieldDiscounting);
+  }
+
+}
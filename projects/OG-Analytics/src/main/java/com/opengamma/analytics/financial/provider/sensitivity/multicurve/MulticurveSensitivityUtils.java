@@ -9,12 +9,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
 
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.tuple.DoublesPair;
-import com.opengamma.util.tuple.Triple;
 
 /**
  * Utilities to manipulate present value sensitivities.
@@ -36,25 +33,9 @@ public class MulticurveSensitivityUtils {
    * @return The cleaned map.
    */
   public static Map<String, List<DoublesPair>> cleaned(final Map<String, List<DoublesPair>> map) {
-    //TODO: improve the sorting algorithm.
     final Map<String, List<DoublesPair>> result = new HashMap<>();
     for (final Map.Entry<String, List<DoublesPair>> entry : map.entrySet()) {
-      final List<DoublesPair> list = entry.getValue();
-      final List<DoublesPair> listClean = new ArrayList<>();
-      final Set<Double> set = new TreeSet<>();
-      for (final DoublesPair pair : list) {
-        set.add(pair.getFirst());
-      }
-      for (final Double time : set) {
-        double sensi = 0;
-        for (int looplist = 0; looplist < list.size(); looplist++) {
-          if (Double.doubleToLongBits(list.get(looplist).getFirst()) == Double.doubleToLongBits(time)) {
-            sensi += list.get(looplist).second;
-          }
-        }
-        listClean.add(new DoublesPair(time, sensi));
-      }
-      result.put(entry.getKey(), listClean);
+      result.put(entry.getKey(), DenseCurveSensitivity.of(entry.getValue()).toList());
     }
     return result;
   }
@@ -66,24 +47,15 @@ public class MulticurveSensitivityUtils {
    * @return The cleaned map.
    */
   public static Map<String, List<DoublesPair>> cleaned(final Map<String, List<DoublesPair>> map, final double tolerance) {
-    //TODO: improve the sorting algorithm.
     final Map<String, List<DoublesPair>> result = new HashMap<>();
     for (final Map.Entry<String, List<DoublesPair>> entry : map.entrySet()) {
-      final List<DoublesPair> list = entry.getValue();
+      final DenseCurveSensitivity dense = DenseCurveSensitivity.of(entry.getValue());
+      final double[] times = dense.getTimes();
+      final double[] values = dense.getValues();
       final List<DoublesPair> listClean = new ArrayList<>();
-      final Set<Double> set = new TreeSet<>();
-      for (final DoublesPair pair : list) {
-        set.add(pair.getFirst());
-      }
-      for (final Double time : set) {
-        double sensi = 0;
-        for (int looplist = 0; looplist < list.size(); looplist++) {
-          if (Double.doubleToLongBits(list.get(looplist).getFirst()) == Double.doubleToLongBits(time)) {
-            sensi += list.get(looplist).second;
-          }
-        }
-        if (Math.abs(sensi) > tolerance) {
-          listClean.add(new DoublesPair(time, sensi));
+      for (int loopt = 0; loopt < times.length; loopt++) {
+        if (Math.abs(values[loopt]) > tolerance) {
+          listClean.add(new DoublesPair(times[loopt], values[loopt]));
         }
       }
       result.put(entry.getKey(), listClean);
@@ -92,52 +64,22 @@ public class MulticurveSensitivityUtils {
   }
 
   public static Map<String, List<ForwardSensitivity>> cleanedFwd(final Map<String, List<ForwardSensitivity>> map) {
-    //TODO: improve the sorting algorithm.
     final Map<String, List<ForwardSensitivity>> result = new HashMap<>();
     for (final Map.Entry<String, List<ForwardSensitivity>> entry : map.entrySet()) {
-      final List<ForwardSensitivity> list = entry.getValue();
-      final List<ForwardSensitivity> listClean = new ArrayList<>();
-      final Set<Triple<Double, Double, Double>> set = new TreeSet<>();
-      for (final ForwardSensitivity pair : list) {
-        set.add(new Triple<>(pair.getStartTime(), pair.getEndTime(), pair.getAccrualFactor()));
-      }
-      for (final Triple<Double, Double, Double> time : set) {
-        double sensi = 0;
-        for (int looplist = 0; looplist < list.size(); looplist++) {
-          final ForwardSensitivity fwdSensitivity = list.get(looplist);
-          final Triple<Double, Double, Double> triple = new Triple<>(fwdSensitivity.getStartTime(), fwdSensitivity.getEndTime(), fwdSensitivity.getAccrualFactor());
-          if (triple.equals(time)) {
-            sensi += list.get(looplist).getValue();
-          }
-        }
-        listClean.add(new ForwardSensitivity(time.getFirst(), time.getSecond(), time.getThird(), sensi));
-      }
-      result.put(entry.getKey(), listClean);
+      result.put(entry.getKey(), DenseForwardSensitivity.of(entry.getValue()).toList());
     }
     return result;
   }
 
   public static Map<String, List<ForwardSensitivity>> cleanedFwd(final Map<String, List<ForwardSensitivity>> map, final double tolerance) {
-    //TODO: improve the sorting algorithm.
     final Map<String, List<ForwardSensitivity>> result = new HashMap<>();
     for (final Map.Entry<String, List<ForwardSensitivity>> entry : map.entrySet()) {
-      final List<ForwardSensitivity> list = entry.getValue();
+      final DenseForwardSensitivity dense = DenseForwardSensitivity.of(entry.getValue());
+      final double[] values = dense.getValues();
       final List<ForwardSensitivity> listClean = new ArrayList<>();
-      final Set<Triple<Double, Double, Double>> set = new TreeSet<>();
-      for (final ForwardSensitivity pair : list) {
-        set.add(new Triple<>(pair.getStartTime(), pair.getEndTime(), pair.getAccrualFactor()));
-      }
-      for (final Triple<Double, Double, Double> time : set) {
-        double sensi = 0;
-        for (int looplist = 0; looplist < list.size(); looplist++) {
-          final ForwardSensitivity fwdSensitivity = list.get(looplist);
-          final Triple<Double, Double, Double> triple = new Triple<>(fwdSensitivity.getStartTime(), fwdSensitivity.getEndTime(), fwdSensitivity.getAccrualFactor());
-          if (triple.equals(time)) {
-            sensi += list.get(looplist).getValue();
-          }
-        }
-        if (Math.abs(sensi) > tolerance) {
-          listClean.add(new ForwardSensitivity(time.getFirst(), time.getSecond(), time.getThird(), sensi));
+      for (int loopf = 0; loopf < values.length; loopf++) {
+        if (Math.abs(values[loopf]) > tolerance) {
+          listClean.add(new ForwardSensitivity(dense.getStartTimes()[loopf], dense.getEndTimes()[loopf], dense.getAccrualFactors()[loopf], values[loopf]));
         }
       }
       result.put(entry.getKey(), listClean);
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity.multicurve;
+
+import java.util.Set;
+
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitor;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+
+/**
+ * For an instrument, computes the sensitivity of double value (often par spread) to the parameters used in the curve.
+ * The meaning of "parameters" will depend of the way the curve is stored (interpolated yield, function parameters, etc.).
+ * The return format is DoubleMatrix1D object.
+ * <p>
+ * The result is the same as {@link ParameterSensitivityMulticurveMatrixCalculator}, but the projection is done on the dense form
+ * of the point sensitivities ({@link DenseMulticurveSensitivity}), directly into the output vector.
+ */
+public class ParameterSensitivityMulticurveDenseMatrixCalculator extends ParameterSensitivityMulticurveMatrixAbstractCalculator {
+
+  /**
+   * Constructor
+   * @param curveSensitivityCalculator The curve sensitivity calculator.
+   */
+  public ParameterSensitivityMulticurveDenseMatrixCalculator(final InstrumentDerivativeVisitor<MulticurveProviderInterface, MulticurveSensitivity> curveSensitivityCalculator) {
+    super(curveSensitivityCalculator);
+  }
+
+  @Override
+  public DoubleMatrix1D pointToParameterSensitivity(final MulticurveSensitivity sensitivity, final MulticurveProviderInterface multicurves, final Set<String> curvesSet) {
+    final DenseMulticurveSensitivity dense = DenseMulticurveSensitivity.of(sensitivity);
+    int nbParameters = 0;
+    for (final String name : curvesSet) {
+      nbParameters += multicurves.getNumberOfParameters(name);
+    }
+    final double[] result = new double[nbParameters];
+    // By curve name in the curves set (to have the right order)
+    int start = 0;
+    for (final String name : curvesSet) {
+      final int nbCurveParameters = multicurves.getNumberOfParameters(name);
+      if (dense.getYieldDiscountingSensitivities().containsKey(name) || dense.getForwardSensitivities().containsKey(name)) {
+        final double[] sensi = dense.parameterSensitivity(multicurves, name);
+        System.arraycopy(sensi, 0, result, start, nbCurveParameters);
+      }
+      start += nbCurveParameters;
+    }
+    return new DoubleMatrix1D(result);
+  }
+
+}
@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.historical;
+
+import java.util.concurrent.ExecutorService;
+
+import com.opengamma.analytics.financial.var.EmpiricalDistributionVaRParameters;
+import com.opengamma.analytics.util.ParallelRanges;
+import com.opengamma.analytics.util.ParallelRanges.RangeTask;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Historical simulation VaR for every node of a portfolio hierarchy, computed from the P&L of the positions under a rolling window
+ * of historical scenarios.
+ * <p>
+ * The position P&L vectors are streamed in, in blocks held as a single row-major primitive array, and summed into the P&L vectors of the
+ * nodes they belong to; the blocks are not retained, so the memory used is proportional to the number of nodes rather than the number of
+ * positions. The nodes' P&L vectors are ring buffers: appending the P&L of a new scenario (day) overwrites the oldest one, without
+ * reloading the history. The totals of the nodes (their own positions and those of their descendants) are rolled up when needed.
+ * <p>
+ * The VaR and expected shortfall follow {@link com.opengamma.analytics.financial.var.EmpiricalDistributionVaRCalculator} and
+ * {@link com.opengamma.analytics.financial.var.conditional.EmpiricalDistributionConditionalVaRCalculator} (with a mean calculator), but
+ * find the order statistics by partial selection rather than a full sort. The scenarios are aggregated, and the nodes evaluated, in
+ * contiguous ranges on several threads. This class is not thread-safe.
+ */
+public class HistoricalVaREngine {
+
+  private final int[] _parentNodes;
+  private final int _windowLength;
+  private final ExecutorService _executor;
+  private final int _parallelism;
+  /** P&L of the positions directly under each node, by ring buffer slot */
+  private final double[][] _directPnL;
+  /** P&L of each node including its descendants, by ring buffer slot */
+  private final double[][] _totalPnL;
+  /** The ring buffer slot of the oldest scenario */
+  private int _oldestSlot;
+  private boolean _rolledUp = true;
+
+  /**
+   * Engine using a shared pool with one thread per available processor.
+   * @param parentNodes The parent of each node of the hierarchy; node 0 is the root (parent -1), every other node must come after its parent
+   * @param windowLength The number of historical scenarios, positive
+   */
+  public HistoricalVaREngine(final int[] parentNodes, final int windowLength) {
+    this(parentNodes, windowLength, ParallelRanges.getSharedExecutor(), ParallelRanges.getSharedParallelism());
+  }
+
+  /**
+   * @param parentNodes The parent of each node of the hierarchy; node 0 is the root (parent -1), every other node must come after its parent
+   * @param windowLength The number of historical scenarios, positive
+   * @param executor The executor, null to run in the calling thread
+   * @param parallelism The maximum number of concurrent tasks, positive
+   */
+  public HistoricalVaREngine(final int[] parentNodes, final int windowLength, final ExecutorService executor, final int parallelism) {
+    ArgumentChecker.notEmpty(parentNodes, "parentNodes");
+    ArgumentChecker.isTrue(parentNodes[0] == -1, "node 0 must be the root");
+    for (int i = 1; i < parentNodes.length; i++) {
+      ArgumentChecker.isTrue(parentNodes[i] >= 0 && parentNodes[i] < i, "parent of node {} must be a node before it, have {}", i, parentNodes[i]);
+    }
+    ArgumentChecker.isTrue(windowLength > 0, "windowLength must be positive");
+    ArgumentChecker.isTrue(parallelism > 0, "parallelism must be positive");
+    _parentNodes = parentNodes.clone();
+    _windowLength = windowLength;
+    _executor = executor;
+    _parallelism = parallelism;
+    _directPnL = new double[parentNodes.length][windowLength];
+    _totalPnL = new double[parentNodes.length][windowLength];
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a block of positions to the hierarchy.
+   * @param positionNodes The node of each position of the block
+   * @param pnl The P&L of the positions, row-major: the P&L of position i in the scenarios of the window, oldest first, are at
+   * indices i * windowLength to (i + 1) * windowLength - 1
+   */
+  public void addPositions(final int[] positionNodes, final double[] pnl) {
+    checkPositions(positionNodes, pnl, _windowLength);
+    final int nPositions = positionNodes.length;
+    ParallelRanges.run(_executor, _parallelism, _windowLength, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        for (int i = 0; i < nPositions; i++) {
+          final double[] nodePnL = _directPnL[positionNodes[i]];
+          final int offset = i * _windowLength;
+          for (int j = first; j < last; j++) {
+            nodePnL[getSlot(j)] += pnl[offset + j];
+          }
+        }
+      }
+    });
+    _rolledUp = false;
+  }
+
+  /**
+   * Removes a block of positions from the hierarchy, e.g. positions which have been closed.
+   * @param positionNodes The node of each position of the block
+   * @param pnl The P&L of the positions in the scenarios of the window, as for {@link #addPositions(int[], double[])}
+   */
+  public void removePositions(final int[] positionNodes, final double[] pnl) {
+    checkPositions(positionNodes, pnl, _windowLength);
+    final double[] negated = new double[pnl.length];
+    for (int k = 0; k < pnl.length; k++) {
+      negated[k] = -pnl[k];
+    }
+    addPositions(positionNodes, negated);
+  }
+
+  /**
+   * Rolls the window forward by one scenario: the P&L of the positions in a new scenario replaces the oldest scenario.
+   * @param positionNodes The node of every position of the hierarchy
+   * @param pnl The P&L of each position in the new scenario
+   */
+  public void appendScenario(final int[] positionNodes, final double[] pnl) {
+    checkPositions(positionNodes, pnl, 1);
+    final int nNodes = _parentNodes.length;
+    final double[] nodePnL = new double[nNodes];
+    for (int i = 0; i < positionNodes.length; i++) {
+      nodePnL[positionNodes[i]] += pnl[i];
+    }
+    final int slot = _oldestSlot;
+    for (int node = 0; node < nNodes; node++) {
+      _directPnL[node][slot] = nodePnL[node];
+    }
+    _oldestSlot = slot + 1 == _windowLength ? 0 : slot + 1;
+    _rolledUp = false;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The value at risk of every node, i.e. minus the percentile of the node's P&L at one minus the quantile of the parameters, scaled to the horizon.
+   * @param parameters The parameters
+   * @return The VaR, by node
+   */
+  public double[] getVaR(final EmpiricalDistributionVaRParameters parameters) {
+    return evaluate(parameters, false);
+  }
+
+  /**
+   * The expected shortfall of every node, i.e. minus the mean of the node's P&L below minus its VaR (or the VaR if there are none).
+   * @param parameters The parameters
+   * @return The expected shortfall, by node
+   */
+  public double[] getExpectedShortfall(final EmpiricalDistributionVaRParameters parameters) {
+    return evaluate(parameters, true);
+  }
+
+  /**
+   * The P&L of a node, including its descendants, in the scenarios of the window.
+   * @param node The node
+   * @return The P&L, oldest scenario first
+   */
+  public double[] getPnL(final int node) {
+    ArgumentChecker.isTrue(node >= 0 && node < _parentNodes.length, "no node {}", node);
+    rollUp();
+    final double[] res = new double[_windowLength];
+    for (int j = 0; j < _windowLength; j++) {
+      res[j] = _totalPnL[node][getSlot(j)];
+    }
+    return res;
+  }
+
+  public int getNumberOfNodes() {
+    return _parentNodes.length;
+  }
+
+  public int getWindowLength() {
+    return _windowLength;
+  }
+
+  //-------------------------------------------------------------------------
+  private double[] evaluate(final EmpiricalDistributionVaRParameters parameters, final boolean expectedShortfall) {
+    ArgumentChecker.notNull(parameters, "parameters");
+    rollUp();
+    final double percentile = 1 - parameters.getQuantile();
+    final double mult = parameters.getMult();
+    final double[] res = new double[_parentNodes.length];
+    ParallelRanges.run(_executor, _parallelism, _parentNodes.length, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        final double[] work = new double[_windowLength];
+        for (int node = first; node < last; node++) {
+          System.arraycopy(_totalPnL[node], 0, work, 0, _windowLength);
+          final double var = -mult * percentile(work, percentile);
+          res[node] = expectedShortfall ? expectedShortfall(_totalPnL[node], var) : var;
+        }
+      }
+    });
+    return res;
+  }
+
+  /**
+   * The percentile, interpolated as {@link com.opengamma.analytics.math.statistics.descriptive.PercentileCalculator}.
+   * @param x The data, reordered
+   * @param percentile The percentile
+   * @return The percentile
+   */
+  private static double percentile(final double[] x, final double percentile) {
+    final int length = x.length;
+    final double n = percentile * (length - 1) + 1;
+    if (Math.round(n) == 1) {
+      return select(x, 0);
+    }
+    if (Math.round(n) == length) {
+      return select(x, length - 1);
+    }
+    final double d = n % 1;
+    final int k = (int) Math.round(n - d);
+    final double lower = select(x, k - 1);
+    // after selection, the next order statistic is the smallest of the elements above k - 1
+    double upper = x[k];
+    for (int i = k + 1; i < length; i++) {
+      if (x[i] < upper) {
+        upper = x[i];
+      }
+    }
+    return lower + d * (upper - lower);
+  }
+
+  private static double expectedShortfall(final double[] pnl, final double var) {
+    double sum = 0;
+    int count = 0;
+    for (final double value : pnl) {
+      if (value < -var) {
+        sum += value;
+        count++;
+      }
+    }
+    return count == 0 ? var : -sum / count;
+  }
+
+  /**
+   * Partially orders the data so that the element at index k is the one it would be if the data were sorted, the elements before it
+   * being no greater and the elements after it no smaller.
+   * @param x The data
+   * @param k The index
+   * @return The k-th smallest element
+   */
+  private static double select(final double[] x, final int k) {
+    int left = 0;
+    int right = x.length - 1;
+    while (right > left) {
+      // median of three pivot
+      final int mid = (left + right) >>> 1;
+      if (x[mid] < x[left]) {
+        swap(x, left, mid);
+      }
+      if (x[right] < x[left]) {
+        swap(x, left, right);
+      }
+      if (x[right] < x[mid]) {
+        swap(x, mid, right);
+      }
+      final double pivot = x[mid];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (x[i] < pivot) {
+          i++;
+        }
+        while (x[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(x, i, j);
+          i++;
+          j--;
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        break;
+      }
+    }
+    return x[k];
+  }
+
+  private static void swap(final double[] x, final int i, final int j) {
+    final double temp = x[i];
+    x[i] = x[j];
+    x[j] = temp;
+  }
+
+  private void checkPositions(final int[] positionNodes, final double[] pnl, final int nScenarios) {
+    ArgumentChecker.notNull(positionNodes, "positionNodes");
+    ArgumentChecker.notNull(pnl, "pnl");
+    ArgumentChecker.isTrue(pnl.length == positionNodes.length * nScenarios, "have {} P&L values for {} positions and {} scenarios", pnl.length, positionNodes.length,
+        nScenarios);
+    for (final int node : positionNodes) {
+      ArgumentChecker.isTrue(node >= 0 && node < _parentNodes.length, "no node {}", node);
+    }
+  }
+
+  /**
+   * The ring buffer slot of a scenario.
+   * @param scenario The index of the scenario in the window, oldest first
+   * @return The slot
+   */
+  private int getSlot(final int scenario) {
+    final int slot = _oldestSlot + scenario;
+    return slot < _windowLength ? slot : slot - _windowLength;
+  }
+
+  /**
+   * Sums the P&L of the nodes into their ancestors; the parents come before their children, so one backward pass is enough.
+   */
+  private void rollUp() {
+    if (_rolledUp) {
+      return;
+    }
+    final int nNodes = _parentNodes.length;
+    for (int node = 0; node < nNodes; node++) {
+      System.arraycopy(_directPnL[node], 0, _totalPnL[node], 0, _windowLength);
+    }
+    for (int node = nNodes - 1; node > 0; node--) {
+      final double[] parentPnL = _totalPnL[_parentNodes[node]];
+      final double[] nodePnL = _totalPnL[node];
+      for (int j = 0; j < _windowLength; j++) {
+        parentPnL[j] += nodePnL[j];
+      }
+    }
+    _rolledUp = true;
+  }
+
+}
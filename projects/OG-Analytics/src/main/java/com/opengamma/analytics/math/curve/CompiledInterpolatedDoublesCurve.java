@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.curve;
+
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.interpolation.CompiledInterpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+
+/**
+ * An interpolated curve which evaluates through a {@link CompiledInterpolator1D}: the interpolant is reduced once
+ * to per-segment polynomial coefficients and their node sensitivities, so that values, derivatives and parameter
+ * sensitivities do not go back through the data bundle. Batch methods are provided for sorted <i>x</i> values.
+ * <p>
+ * If the interpolator cannot be compiled (see {@link CompiledInterpolator1D#isSupported(Interpolator1D)}), the curve
+ * behaves as an {@link InterpolatedDoublesCurve}.
+ */
+public class CompiledInterpolatedDoublesCurve extends InterpolatedDoublesCurve {
+
+  /**
+   *
+   * @param xData An array of <i>x</i> data points, not null, contains at least 2 data points
+   * @param yData An array of <i>y</i> data points, not null, contains same number of entries as <i>x</i>
+   * @param interpolator The interpolator, not null
+   * @return A compiled interpolated curve with automatically-generated name
+   */
+  public static CompiledInterpolatedDoublesCurve from(final double[] xData, final double[] yData, final Interpolator1D interpolator) {
+    return new CompiledInterpolatedDoublesCurve(xData, yData, interpolator, false);
+  }
+
+  /**
+   *
+   * @param xData An array of <i>x</i> data points, not null, contains at least 2 data points
+   * @param yData An array of <i>y</i> data points, not null, contains same number of entries as <i>x</i>
+   * @param interpolator The interpolator, not null
+   * @param name The name of the curve
+   * @return A compiled interpolated curve
+   */
+  public static CompiledInterpolatedDoublesCurve from(final double[] xData, final double[] yData, final Interpolator1D interpolator, final String name) {
+    return new CompiledInterpolatedDoublesCurve(xData, yData, interpolator, false, name);
+  }
+
+  /**
+   *
+   * @param xData An array of <i>x</i> data points, assumed to be sorted ascending, not null, contains at least 2 data points
+   * @param yData An array of <i>y</i> data points, not null, contains same number of entries as <i>x</i>
+   * @param interpolator The interpolator, not null
+   * @return A compiled interpolated curve with automatically-generated name
+   */
+  public static CompiledInterpolatedDoublesCurve fromSorted(final double[] xData, final double[] yData, final Interpolator1D interpolator) {
+    return new CompiledInterpolatedDoublesCurve(xData, yData, interpolator, true);
+  }
+
+  /**
+   *
+   * @param xData An array of <i>x</i> data points, assumed to be sorted ascending, not null, contains at least 2 data points
+   * @param yData An array of <i>y</i> data points, not null, contains same number of entries as <i>x</i>
+   * @param interpolator The interpolator, not null
+   * @param name The name of the curve
+   * @return A compiled interpolated curve
+   */
+  public static CompiledInterpolatedDoublesCurve fromSorted(final double[] xData, final double[] yData, final Interpolator1D interpolator, final String name) {
+    return new CompiledInterpolatedDoublesCurve(xData, yData, interpolator, true, name);
+  }
+
+  /**
+   * Compiles an existing interpolated curve. The name of the curve is kept.
+   * @param curve The curve, not null
+   * @return A compiled interpolated curve
+   */
+  public static CompiledInterpolatedDoublesCurve from(final InterpolatedDoublesCurve curve) {
+    Validate.notNull(curve, "curve");
+    if (curve instanceof CompiledInterpolatedDoublesCurve) {
+      return (CompiledInterpolatedDoublesCurve) curve;
+    }
+    return new CompiledInterpolatedDoublesCurve(curve.getXDataAsPrimitive(), curve.getYDataAsPrimitive(), curve.getInterpolator(), true, curve.getName());
+  }
+
+  private final CompiledInterpolator1D _compiled;
+
+  /**
+   *
+   * @param xData An array of <i>x</i> data, not null, contains at least 2 data points
+   * @param yData An array of <i>y</i> data, not null, contains same number of entries as <i>x</i>
+   * @param interpolator The interpolator, not null
+   * @param isSorted Is the <i>x</i>-data sorted
+   */
+  public CompiledInterpolatedDoublesCurve(final double[] xData, final double[] yData, final Interpolator1D interpolator, final boolean isSorted) {
+    super(xData, yData, interpolator, isSorted);
+    _compiled = compile();
+  }
+
+  /**
+   *
+   * @param xData An array of <i>x</i> data, not null, contains at least 2 data points
+   * @param yData An array of <i>y</i> data, not null, contains same number of entries as <i>x</i>
+   * @param interpolator The interpolator, not null
+   * @param isSorted Is the <i>x</i>-data sorted
+   * @param name The name of the curve
+   */
+  public CompiledInterpolatedDoublesCurve(final double[] xData, final double[] yData, final Interpolator1D interpolator, final boolean isSorted, final String name) {
+    super(xData, yData, interpolator, isSorted, name);
+    _compiled = compile();
+  }
+
+  private CompiledInterpolator1D compile() {
+    if (!CompiledInterpolator1D.isSupported(getInterpolator())) {
+      return null;
+    }
+    return CompiledInterpolator1D.from(getInterpolator(), getDataBundle());
+  }
+
+  /**
+   * Gets the compiled interpolator.
+   * @return The compiled interpolator, null if the interpolator is not supported
+   */
+  public CompiledInterpolator1D getCompiledInterpolator() {
+    return _compiled;
+  }
+
+  @Override
+  public Double getYValue(final Double x) {
+    Validate.notNull(x, "x");
+    if (_compiled == null) {
+      return super.getYValue(x);
+    }
+    return _compiled.interpolate(x);
+  }
+
+  @Override
+  public Double[] getYValueParameterSensitivity(final Double x) {
+    Validate.notNull(x, "x");
+    if (_compiled == null) {
+      return super.getYValueParameterSensitivity(x);
+    }
+    return ArrayUtils.toObject(_compiled.getNodeSensitivitiesForValue(x));
+  }
+
+  @Override
+  public double getDyDx(final double x) {
+    if (_compiled == null) {
+      return super.getDyDx(x);
+    }
+    return _compiled.firstDerivative(x);
+  }
+
+  /**
+   * Computes the <i>y</i> values for a set of sorted <i>x</i> values.
+   * @param x The <i>x</i> values, sorted ascending, not null
+   * @return The <i>y</i> values
+   */
+  public double[] getYValues(final double[] x) {
+    Validate.notNull(x, "x");
+    if (_compiled == null) {
+      final double[] result = new double[x.length];
+      for (int i = 0; i < x.length; i++) {
+        result[i] = super.getYValue(x[i]);
+      }
+      return result;
+    }
+    return _compiled.interpolate(x);
+  }
+
+  /**
+   * Computes the sensitivities of the <i>y</i> values to the curve parameters for a set of sorted <i>x</i> values.
+   * @param x The <i>x</i> values, sorted ascending, not null
+   * @return The sensitivities, one row per <i>x</i> value
+   */
+  public double[][] getYValueParameterSensitivities(final double[] x) {
+    Validate.notNull(x, "x");
+    if (_compiled == null) {
+      final double[][] result = new double[x.length][];
+      for (int i = 0; i < x.length; i++) {
+        result[i] = getInterpolator().getNodeSensitivitiesForValue(getDataBundle(), x[i]);
+      }
+      return result;
+    }
+    return _compiled.getNodeSensitivitiesForValues(x);
+  }
+
+}
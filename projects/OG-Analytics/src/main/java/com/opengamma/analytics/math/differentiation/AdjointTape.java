@@ -0,0 +1,411 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.differentiation;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Tape for reverse mode algorithmic differentiation (adjoint AD).
+ * <p>
+ * Each operation of the forward sweep records a node holding its value and the partial derivatives of the value with respect to
+ * its arguments (the edges). Nodes are identified by their index on the tape; the arguments of a node always have a lower index.
+ * The backward sweep propagates the adjoint of one output to all the nodes in a single pass over the tape, so the derivatives of
+ * the output with respect to all the variables cost a small multiple of the forward sweep whatever the number of variables.
+ * <p>
+ * The nodes and edges are stored in primitive arrays which are only grown, never shrunk: after {@link #reset()} the tape can be
+ * reused without allocation. {@link #forCurrentThread()} gives a tape reused by all the calculations of a thread.
+ * <p>
+ * Constants are not recorded: the operations take them as plain doubles.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class AdjointTape {
+
+  /**
+   * The initial number of nodes.
+   */
+  private static final int INITIAL_NODES = 256;
+  /**
+   * The initial number of edges.
+   */
+  private static final int INITIAL_EDGES = 1024;
+  /**
+   * The tapes of the threads.
+   */
+  private static final ThreadLocal<AdjointTape> THREAD_TAPE = new ThreadLocal<AdjointTape>() {
+    @Override
+    protected AdjointTape initialValue() {
+      return new AdjointTape();
+    }
+  };
+
+  /**
+   * The values of the nodes.
+   */
+  private double[] _value;
+  /**
+   * The index of the first edge of each node; the edges of node i are edgeStart[i] to edgeStart[i + 1] - 1.
+   */
+  private int[] _edgeStart;
+  /**
+   * The argument (node index) of each edge.
+   */
+  private int[] _edgeArgument;
+  /**
+   * The partial derivative of each edge.
+   */
+  private double[] _edgePartial;
+  /**
+   * The adjoints of the nodes, filled by the backward sweep.
+   */
+  private double[] _adjoint;
+  /**
+   * The number of nodes.
+   */
+  private int _nbNode;
+  /**
+   * The number of edges.
+   */
+  private int _nbEdge;
+
+  /**
+   * Creates an empty tape.
+   */
+  public AdjointTape() {
+    _value = new double[INITIAL_NODES];
+    _edgeStart = new int[INITIAL_NODES + 1];
+    _edgeArgument = new int[INITIAL_EDGES];
+    _edgePartial = new double[INITIAL_EDGES];
+    _adjoint = new double[INITIAL_NODES];
+  }
+
+  /**
+   * Returns the tape of the current thread, reset. The tape must not be used by two calculations at the same time, in particular by
+   * nested calculations.
+   * @return The tape
+   */
+  public static AdjointTape forCurrentThread() {
+    final AdjointTape tape = THREAD_TAPE.get();
+    tape.reset();
+    return tape;
+  }
+
+  /**
+   * Removes all the nodes. The capacity is kept.
+   */
+  public void reset() {
+    _nbNode = 0;
+    _nbEdge = 0;
+  }
+
+  /**
+   * Gets the number of nodes.
+   * @return The number of nodes
+   */
+  public int getNumberOfNodes() {
+    return _nbNode;
+  }
+
+  /**
+   * Gets the number of edges.
+   * @return The number of edges
+   */
+  public int getNumberOfEdges() {
+    return _nbEdge;
+  }
+
+  /**
+   * Gets the value of a node.
+   * @param node The node
+   * @return The value
+   */
+  public double value(final int node) {
+    return _value[node];
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Records an independent variable.
+   * @param value The value
+   * @return The node
+   */
+  public int variable(final double value) {
+    return push(value, 0);
+  }
+
+  /**
+   * Records a node with one argument.
+   * @param value The value
+   * @param argument The argument
+   * @param partial The derivative of the value with respect to the argument
+   * @return The node
+   */
+  public int record(final double value, final int argument, final double partial) {
+    final int node = push(value, 1);
+    _edgeArgument[_nbEdge - 1] = argument;
+    _edgePartial[_nbEdge - 1] = partial;
+    return node;
+  }
+
+  /**
+   * Records a node with two arguments.
+   * @param value The value
+   * @param argument1 The first argument
+   * @param partial1 The derivative of the value with respect to the first argument
+   * @param argument2 The second argument
+   * @param partial2 The derivative of the value with respect to the second argument
+   * @return The node
+   */
+  public int record(final double value, final int argument1, final double partial1, final int argument2, final double partial2) {
+    final int node = push(value, 2);
+    _edgeArgument[_nbEdge - 2] = argument1;
+    _edgePartial[_nbEdge - 2] = partial1;
+    _edgeArgument[_nbEdge - 1] = argument2;
+    _edgePartial[_nbEdge - 1] = partial2;
+    return node;
+  }
+
+  /**
+   * Records a node with three arguments.
+   * @param value The value
+   * @param argument1 The first argument
+   * @param partial1 The derivative of the value with respect to the first argument
+   * @param argument2 The second argument
+   * @param partial2 The derivative of the value with respect to the second argument
+   * @param argument3 The third argument
+   * @param partial3 The derivative of the value with respect to the third argument
+   * @return The node
+   */
+  public int record(final double value, final int argument1, final double partial1, final int argument2, final double partial2, final int argument3,
+      final double partial3) {
+    final int node = push(value, 3);
+    _edgeArgument[_nbEdge - 3] = argument1;
+    _edgePartial[_nbEdge - 3] = partial1;
+    _edgeArgument[_nbEdge - 2] = argument2;
+    _edgePartial[_nbEdge - 2] = partial2;
+    _edgeArgument[_nbEdge - 1] = argument3;
+    _edgePartial[_nbEdge - 1] = partial3;
+    return node;
+  }
+
+  /**
+   * Records a node with any number of arguments. The arrays are copied.
+   * @param value The value
+   * @param arguments The arguments
+   * @param partials The derivatives of the value with respect to the arguments
+   * @param n The number of arguments, the first n entries of the arrays are used
+   * @return The node
+   */
+  public int record(final double value, final int[] arguments, final double[] partials, final int n) {
+    final int node = push(value, n);
+    System.arraycopy(arguments, 0, _edgeArgument, _nbEdge - n, n);
+    System.arraycopy(partials, 0, _edgePartial, _nbEdge - n, n);
+    return node;
+  }
+
+  /**
+   * Records a node depending on a range of consecutive nodes, skipping the zero partial derivatives.
+   * @param value The value
+   * @param firstArgument The first argument
+   * @param partials The derivatives of the value with respect to the arguments firstArgument, firstArgument + 1, ...
+   * @param n The number of arguments, the first n entries of the array are used
+   * @return The node
+   */
+  public int recordRange(final double value, final int firstArgument, final double[] partials, final int n) {
+    int nonZero = 0;
+    for (int i = 0; i < n; i++) {
+      if (partials[i] != 0.0) {
+        nonZero++;
+      }
+    }
+    final int node = push(value, nonZero);
+    int edge = _nbEdge - nonZero;
+    for (int i = 0; i < n; i++) {
+      if (partials[i] != 0.0) {
+        _edgeArgument[edge] = firstArgument + i;
+        _edgePartial[edge] = partials[i];
+        edge++;
+      }
+    }
+    return node;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Records a + b.
+   * @param a The first node
+   * @param b The second node
+   * @return The node
+   */
+  public int add(final int a, final int b) {
+    return record(_value[a] + _value[b], a, 1.0, b, 1.0);
+  }
+
+  /**
+   * Records a + c.
+   * @param a The node
+   * @param c The constant
+   * @return The node
+   */
+  public int add(final int a, final double c) {
+    return record(_value[a] + c, a, 1.0);
+  }
+
+  /**
+   * Records a - b.
+   * @param a The first node
+   * @param b The second node
+   * @return The node
+   */
+  public int subtract(final int a, final int b) {
+    return record(_value[a] - _value[b], a, 1.0, b, -1.0);
+  }
+
+  /**
+   * Records a * b.
+   * @param a The first node
+   * @param b The second node
+   * @return The node
+   */
+  public int multiply(final int a, final int b) {
+    return record(_value[a] * _value[b], a, _value[b], b, _value[a]);
+  }
+
+  /**
+   * Records a * c.
+   * @param a The node
+   * @param c The constant
+   * @return The node
+   */
+  public int multiply(final int a, final double c) {
+    return record(_value[a] * c, a, c);
+  }
+
+  /**
+   * Records a / b.
+   * @param a The first node
+   * @param b The second node
+   * @return The node
+   */
+  public int divide(final int a, final int b) {
+    final double inverse = 1.0 / _value[b];
+    final double value = _value[a] * inverse;
+    return record(value, a, inverse, b, -value * inverse);
+  }
+
+  /**
+   * Records -a.
+   * @param a The node
+   * @return The node
+   */
+  public int negate(final int a) {
+    return record(-_value[a], a, -1.0);
+  }
+
+  /**
+   * Records exp(a).
+   * @param a The node
+   * @return The node
+   */
+  public int exp(final int a) {
+    final double value = Math.exp(_value[a]);
+    return record(value, a, value);
+  }
+
+  /**
+   * Records log(a).
+   * @param a The node
+   * @return The node
+   */
+  public int log(final int a) {
+    return record(Math.log(_value[a]), a, 1.0 / _value[a]);
+  }
+
+  /**
+   * Records sqrt(a).
+   * @param a The node
+   * @return The node
+   */
+  public int sqrt(final int a) {
+    final double value = Math.sqrt(_value[a]);
+    return record(value, a, 0.5 / value);
+  }
+
+  /**
+   * Records the linear combination sum_i weights[i] * nodes[i].
+   * @param nodes The nodes
+   * @param weights The weights
+   * @param n The number of terms, the first n entries of the arrays are used
+   * @return The node
+   */
+  public int linearCombination(final int[] nodes, final double[] weights, final int n) {
+    double value = 0.0;
+    for (int i = 0; i < n; i++) {
+      value += weights[i] * _value[nodes[i]];
+    }
+    return record(value, nodes, weights, n);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Runs the backward sweep from an output node. After the sweep, {@link #adjoint(int)} gives the derivative of the output with
+   * respect to any node recorded before it, until the next sweep or reset.
+   * @param output The output node
+   */
+  public void backward(final int output) {
+    ArgumentChecker.isTrue(output >= 0 && output < _nbNode, "node {} not on the tape", output);
+    if (_adjoint.length < _nbNode) {
+      _adjoint = new double[_value.length];
+    }
+    Arrays.fill(_adjoint, 0, _nbNode, 0.0);
+    _adjoint[output] = 1.0;
+    for (int node = output; node >= 0; node--) {
+      final double bar = _adjoint[node];
+      if (bar != 0.0) {
+        for (int edge = _edgeStart[node]; edge < _edgeStart[node + 1]; edge++) {
+          _adjoint[_edgeArgument[edge]] += bar * _edgePartial[edge];
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the adjoint of a node computed by the last backward sweep.
+   * @param node The node
+   * @return The derivative of the output of the sweep with respect to the node
+   */
+  public double adjoint(final int node) {
+    return _adjoint[node];
+  }
+
+  /**
+   * Adds a node with a number of edges, growing the arrays if required.
+   * @param value The value
+   * @param nbEdge The number of edges, filled by the caller
+   * @return The node
+   */
+  private int push(final double value, final int nbEdge) {
+    if (_nbNode == _value.length) {
+      final int capacity = 2 * _value.length;
+      _value = Arrays.copyOf(_value, capacity);
+      _edgeStart = Arrays.copyOf(_edgeStart, capacity + 1);
+    }
+    if (_nbEdge + nbEdge > _edgeArgument.length) {
+      final int capacity = Math.max(2 * _edgeArgument.length, _nbEdge + nbEdge);
+      _edgeArgument = Arrays.copyOf(_edgeArgument, capacity);
+      _edgePartial = Arrays.copyOf(_edgePartial, capacity);
+    }
+    final int node = _nbNode++;
+    _value[node] = value;
+    _edgeStart[node] = _nbEdge;
+    _nbEdge += nbEdge;
+    _edgeStart[_nbNode] = _nbEdge;
+    return node;
+  }
+
+}
@@ -6,8 +6,8 @@
 package com.opengamma.analytics.math.fft;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.opengamma.analytics.math.number.ComplexNumber;
 import com.opengamma.util.ArgumentChecker;
@@ -19,7 +19,7 @@ import edu.emory.mathcs.jtransforms.fft.DoubleFFT_1D;
  */
 public class JTransformsWrapper {
   // TODO this needs to be changed
-  private static final Map<Integer, DoubleFFT_1D> CACHE_1D = new HashMap<>();
+  private static final Map<Integer, DoubleFFT_1D> CACHE_1D = new ConcurrentHashMap<>();
 
   /**
    * The forward discrete Fourier transform. *Note:* In this definition $-i$
@@ -52,6 +52,24 @@ public class JTransformsWrapper {
     return unpackFull(a);
   }
 
+  /**
+   * The forward discrete Fourier transform of an array of complex values held as primitives, computed in place. This is the same
+   * transform as {@link #transform1DComplex(ComplexNumber[])}, without the allocation of a {@link ComplexNumber} for each value.
+   * @param z Array of N complex values, with the real part of the i-th value at 2i and its imaginary part at 2i + 1, not null or empty.
+   * It is overwritten by the Fourier transform of the array.
+   */
+  public static void transform1DComplexInPlace(final double[] z) {
+    ArgumentChecker.notEmpty(z, "array of doubles");
+    ArgumentChecker.isTrue(z.length % 2 == 0, "Had an odd number of entries: need real and imaginary parts");
+    final int n = z.length / 2;
+    DoubleFFT_1D fft = CACHE_1D.get(n);
+    if (fft == null) {
+      fft = new DoubleFFT_1D(n);
+      CACHE_1D.put(n, fft);
+    }
+    fft.complexForward(z);
+  }
+
   /**
    * The inverse (backward) discrete Fourier transform. *Note:* In this
    * definition $i$ appears in the exponential rather than $-i$.
@@ -0,0 +1,551 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.interpolation;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DCubicSplineDataBundle;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DLogPiecewisePoynomialDataBundle;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DPiecewisePoynomialDataBundle;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DPiecewisePoynomialWithExtraKnotsDataBundle;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A "compiled" form of a one-dimensional interpolator applied to a fixed set of data.
+ * <p>
+ * On construction the interpolant is converted once into a set of local polynomial coefficients per segment,
+ * together with the sensitivities of these coefficients to the node values. Evaluation is then a segment lookup
+ * followed by a Horner evaluation; no data bundle is rebuilt, no spline system is re-solved and no boxing takes place.
+ * When the points to evaluate are sorted, the batch methods walk a cursor along the segments instead of performing a
+ * binary search per point.
+ * <p>
+ * The coefficients on the segment <i>[x<sub>i</sub>, x<sub>i+1</sub>]</i> are stored in descending order of powers of
+ * <i>s = x - x<sub>i</sub></i>, as in {@link PiecewisePolynomialResult}. For the log-interpolators the polynomial
+ * represents the logarithm of the value and the result is exponentiated.
+ * <p>
+ * The supported interpolators are {@link LinearInterpolator1D}, {@link LogLinearInterpolator1D},
+ * {@link NaturalCubicSplineInterpolator1D} and the {@link PiecewisePolynomialInterpolator1D} family, including
+ * {@link MonotoneConvexSplineInterpolator1D} and {@link LogNaturalCubicMonotonicityPreservingInterpolator1D}.
+ * They can be wrapped in a {@link CombinedInterpolatorExtrapolator} with {@link FlatExtrapolator1D} or
+ * {@link LinearExtrapolator1D}; the linear extrapolation uses the analytic slope at the end node rather than a
+ * finite difference. Without extrapolator, the end segments are extended.
+ */
+public final class CompiledInterpolator1D implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** The extrapolation applied outside the node range */
+  private enum Extrapolation {
+    /** The end polynomial is extended */
+    NONE,
+    /** The end value is used */
+    FLAT,
+    /** The end value and slope are used */
+    LINEAR
+  }
+
+  private final double[] _knots;
+  private final int _nIntervals;
+  private final int _order;
+  private final int _nNodes;
+  /** Coefficients, _order per interval, descending powers */
+  private final double[] _coefs;
+  /** Coefficient sensitivities, _order * _nNodes per interval, node index fastest */
+  private final double[] _coefSensitivities;
+  private final boolean _exponential;
+  private final Extrapolation _left;
+  private final Extrapolation _right;
+  private final double _leftValue;
+  private final double _leftSlope;
+  private final double[] _leftValueSensitivity;
+  private final double[] _leftSlopeSensitivity;
+  private final double _rightValue;
+  private final double _rightSlope;
+  private final double[] _rightValueSensitivity;
+  private final double[] _rightSlopeSensitivity;
+
+  /**
+   * Checks if an interpolator can be compiled.
+   * @param interpolator The interpolator, not null
+   * @return true if {@link #from(Interpolator1D, Interpolator1DDataBundle)} supports the interpolator
+   */
+  public static boolean isSupported(final Interpolator1D interpolator) {
+    ArgumentChecker.notNull(interpolator, "interpolator");
+    if (interpolator instanceof CombinedInterpolatorExtrapolator) {
+      final CombinedInterpolatorExtrapolator combined = (CombinedInterpolatorExtrapolator) interpolator;
+      return isSupportedInterpolator(combined.getInterpolator()) && isSupportedExtrapolator(combined.getLeftExtrapolator())
+          && isSupportedExtrapolator(combined.getRightExtrapolator());
+    }
+    return isSupportedInterpolator(interpolator);
+  }
+
+  private static boolean isSupportedInterpolator(final Interpolator1D interpolator) {
+    return interpolator.getClass() == LinearInterpolator1D.class || interpolator.getClass() == LogLinearInterpolator1D.class
+        || interpolator.getClass() == NaturalCubicSplineInterpolator1D.class || interpolator instanceof PiecewisePolynomialInterpolator1D;
+  }
+
+  private static boolean isSupportedExtrapolator(final Interpolator1D extrapolator) {
+    return extrapolator == null || extrapolator instanceof FlatExtrapolator1D || extrapolator instanceof LinearExtrapolator1D;
+  }
+
+  /**
+   * Compiles an interpolator on a data bundle.
+   * @param interpolator The interpolator, not null
+   * @param data The data bundle, built by the interpolator, not null
+   * @return The compiled interpolator
+   */
+  public static CompiledInterpolator1D from(final Interpolator1D interpolator, final Interpolator1DDataBundle data) {
+    ArgumentChecker.notNull(interpolator, "interpolator");
+    ArgumentChecker.notNull(data, "data");
+    ArgumentChecker.isTrue(isSupported(interpolator), "Interpolator {} cannot be compiled", interpolator);
+    Interpolator1D base = interpolator;
+    Extrapolation left = Extrapolation.NONE;
+    Extrapolation right = Extrapolation.NONE;
+    if (interpolator instanceof CombinedInterpolatorExtrapolator) {
+      final CombinedInterpolatorExtrapolator combined = (CombinedInterpolatorExtrapolator) interpolator;
+      base = combined.getInterpolator();
+      left = getExtrapolation(combined.getLeftExtrapolator());
+      right = getExtrapolation(combined.getRightExtrapolator());
+    }
+    return new CompiledInterpolator1D(base, data, left, right);
+  }
+
+  private static Extrapolation getExtrapolation(final Interpolator1D extrapolator) {
+    if (extrapolator instanceof FlatExtrapolator1D) {
+      return Extrapolation.FLAT;
+    }
+    if (extrapolator instanceof LinearExtrapolator1D) {
+      return Extrapolation.LINEAR;
+    }
+    return Extrapolation.NONE;
+  }
+
+  private CompiledInterpolator1D(final Interpolator1D interpolator, final Interpolator1DDataBundle data, final Extrapolation left, final Extrapolation right) {
+    final double[] x = data.getKeys();
+    final double[] y = data.getValues();
+    _nNodes = x.length;
+    ArgumentChecker.isTrue(_nNodes > 1, "Need at least two nodes to compile an interpolator");
+    if (data instanceof Interpolator1DPiecewisePoynomialWithExtraKnotsDataBundle) {
+      // monotone convex and shape preserving splines
+      final Interpolator1DPiecewisePoynomialWithExtraKnotsDataBundle polyData = (Interpolator1DPiecewisePoynomialWithExtraKnotsDataBundle) data;
+      final PiecewisePolynomialResult[] up = polyData.getPiecewisePolynomialResultUp();
+      final PiecewisePolynomialResult[] dw = polyData.getPiecewisePolynomialResultDw();
+      // the number of knots depends on the y values, so all the polynomials are refined on the union of the knots
+      final TreeSet<Double> knotSet = new TreeSet<>();
+      addKnots(knotSet, polyData.getPiecewisePolynomialResult());
+      for (int i = 0; i < _nNodes; i++) {
+        addKnots(knotSet, up[i]);
+        addKnots(knotSet, dw[i]);
+      }
+      _knots = new double[knotSet.size()];
+      int k = 0;
+      for (final Double knot : knotSet) {
+        _knots[k++] = knot;
+      }
+      _nIntervals = _knots.length - 1;
+      _order = maxOrder(polyData.getPiecewisePolynomialResult(), up, dw);
+      _coefs = refine(polyData.getPiecewisePolynomialResult(), _knots, _order);
+      _coefSensitivities = new double[_nIntervals * _order * _nNodes];
+      for (int i = 0; i < _nNodes; i++) {
+        final double den = Math.abs(y[i]) < polyData.getSmall() ? polyData.getEps() : y[i] * polyData.getEps();
+        final double[] coefsUp = refine(up[i], _knots, _order);
+        final double[] coefsDw = refine(dw[i], _knots, _order);
+        for (int j = 0; j < _nIntervals * _order; j++) {
+          _coefSensitivities[j * _nNodes + i] = 0.5 * (coefsUp[j] - coefsDw[j]) / den;
+        }
+      }
+      _exponential = false;
+    } else if (interpolator instanceof PiecewisePolynomialInterpolator1D) {
+      ArgumentChecker.isTrue(data instanceof Interpolator1DPiecewisePoynomialDataBundle, "Data bundle not built by a piecewise polynomial interpolator");
+      final PiecewisePolynomialResultsWithSensitivity pp = ((Interpolator1DPiecewisePoynomialDataBundle) data).getPiecewisePolynomialResultsWithSensitivity();
+      ArgumentChecker.isTrue(pp.getDimensions() == 1, "Only one-dimensional piecewise polynomials can be compiled");
+      _knots = pp.getKnots().toArray();
+      _nIntervals = _knots.length - 1;
+      _order = pp.getOrder();
+      _coefs = refine(pp, _knots, _order);
+      _coefSensitivities = new double[_nIntervals * _order * _nNodes];
+      _exponential = interpolator instanceof LogNaturalCubicMonotonicityPreservingInterpolator1D;
+      ArgumentChecker.isTrue(!_exponential || data instanceof Interpolator1DLogPiecewisePoynomialDataBundle, "Data bundle not built by a log interpolator");
+      for (int i = 0; i < _nIntervals; i++) {
+        final double[][] sense = pp.getCoefficientSensitivity(i).getData();
+        for (int j = 0; j < _order; j++) {
+          final int offset = (i * _order + j) * _nNodes;
+          for (int k = 0; k < _nNodes; k++) {
+            // the log polynomial is built on ln(y), the sensitivities are expressed with respect to y
+            _coefSensitivities[offset + k] = _exponential ? sense[j][k] / y[k] : sense[j][k];
+          }
+        }
+      }
+    } else if (interpolator instanceof NaturalCubicSplineInterpolator1D) {
+      ArgumentChecker.isTrue(data instanceof Interpolator1DCubicSplineDataBundle, "Data bundle not built by a natural cubic spline interpolator");
+      final Interpolator1DCubicSplineDataBundle splineData = (Interpolator1DCubicSplineDataBundle) data;
+      final double[] y2 = splineData.getSecondDerivatives();
+      final double[][] y2Sensitivities = splineData.getSecondDerivativesSensitivities();
+      _knots = Arrays.copyOf(x, _nNodes);
+      _nIntervals = _nNodes - 1;
+      _order = 4;
+      _coefs = new double[_nIntervals * _order];
+      _coefSensitivities = new double[_nIntervals * _order * _nNodes];
+      for (int i = 0; i < _nIntervals; i++) {
+        final double h = x[i + 1] - x[i];
+        final int c = i * _order;
+        _coefs[c] = (y2[i + 1] - y2[i]) / (6. * h);
+        _coefs[c + 1] = 0.5 * y2[i];
+        _coefs[c + 2] = (y[i + 1] - y[i]) / h - h * (2. * y2[i] + y2[i + 1]) / 6.;
+        _coefs[c + 3] = y[i];
+        for (int k = 0; k < _nNodes; k++) {
+          _coefSensitivities[c * _nNodes + k] = (y2Sensitivities[i + 1][k] - y2Sensitivities[i][k]) / (6. * h);
+          _coefSensitivities[(c + 1) * _nNodes + k] = 0.5 * y2Sensitivities[i][k];
+          _coefSensitivities[(c + 2) * _nNodes + k] = -h * (2. * y2Sensitivities[i][k] + y2Sensitivities[i + 1][k]) / 6.;
+        }
+        _coefSensitivities[(c + 2) * _nNodes + i] -= 1. / h;
+        _coefSensitivities[(c + 2) * _nNodes + i + 1] += 1. / h;
+        _coefSensitivities[(c + 3) * _nNodes + i] = 1.;
+      }
+      _exponential = false;
+    } else {
+      // linear and log-linear
+      _exponential = interpolator instanceof LogLinearInterpolator1D;
+      _knots = Arrays.copyOf(x, _nNodes);
+      _nIntervals = _nNodes - 1;
+      _order = 2;
+      _coefs = new double[_nIntervals * _order];
+      _coefSensitivities = new double[_nIntervals * _order * _nNodes];
+      for (int i = 0; i < _nIntervals; i++) {
+        final double h = x[i + 1] - x[i];
+        final double y0 = _exponential ? Math.log(y[i]) : y[i];
+        final double y1 = _exponential ? Math.log(y[i + 1]) : y[i + 1];
+        final double d0 = _exponential ? 1. / y[i] : 1.;
+        final double d1 = _exponential ? 1. / y[i + 1] : 1.;
+        final int c = i * _order;
+        _coefs[c] = (y1 - y0) / h;
+        _coefs[c + 1] = y0;
+        _coefSensitivities[c * _nNodes + i] = -d0 / h;
+        _coefSensitivities[c * _nNodes + i + 1] = d1 / h;
+        _coefSensitivities[(c + 1) * _nNodes + i] = d0;
+      }
+    }
+    _left = left;
+    _right = right;
+    // as in the extrapolators, the extrapolation is anchored on the end node values
+    _leftValue = y[0];
+    _leftSlope = left == Extrapolation.LINEAR ? derivative(0, _knots[0]) : 0.;
+    _leftValueSensitivity = new double[_nNodes];
+    _leftValueSensitivity[0] = 1.;
+    _leftSlopeSensitivity = slopeSensitivity(0, _knots[0]);
+    _rightValue = y[_nNodes - 1];
+    _rightSlope = right == Extrapolation.LINEAR ? derivative(_nIntervals - 1, _knots[_nIntervals]) : 0.;
+    _rightValueSensitivity = new double[_nNodes];
+    _rightValueSensitivity[_nNodes - 1] = 1.;
+    _rightSlopeSensitivity = slopeSensitivity(_nIntervals - 1, _knots[_nIntervals]);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the knots of the compiled polynomials. For most interpolators these are the nodes.
+   * @return The knots, not a copy
+   */
+  public double[] getKnots() {
+    return _knots;
+  }
+
+  /**
+   * Gets the number of nodes, i.e. the length of the sensitivity arrays.
+   * @return The number of nodes
+   */
+  public int getNumberOfNodes() {
+    return _nNodes;
+  }
+
+  /**
+   * Gets the index of the segment containing a value. This uses a binary search.
+   * @param x The value
+   * @return The index of the segment, between 0 and the number of segments - 1
+   */
+  public int getSegmentIndex(final double x) {
+    if (x < _knots[1]) {
+      return 0;
+    }
+    if (x >= _knots[_nIntervals - 1]) {
+      return _nIntervals - 1;
+    }
+    final int index = Arrays.binarySearch(_knots, 1, _nIntervals - 1, x);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /**
+   * Moves a segment cursor forward so that it contains a value. The cost is amortised over a sorted sequence of values.
+   * @param cursor The current segment index
+   * @param x The value, not below the lower knot of the current segment unless the cursor is the first segment
+   * @return The index of the segment containing the value
+   */
+  public int advance(final int cursor, final double x) {
+    int index = cursor;
+    while (index < _nIntervals - 1 && x >= _knots[index + 1]) {
+      index++;
+    }
+    return index;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Interpolates a single value.
+   * @param x The value
+   * @return The interpolated value
+   */
+  public double interpolate(final double x) {
+    return interpolate(getSegmentIndex(x), x);
+  }
+
+  /**
+   * Interpolates a single value in a known segment.
+   * @param segment The segment index, as returned by {@link #getSegmentIndex(double)} or {@link #advance(int, double)}
+   * @param x The value
+   * @return The interpolated value
+   */
+  public double interpolate(final int segment, final double x) {
+    if (x < _knots[0] && _left != Extrapolation.NONE) {
+      return _leftValue + _leftSlope * (x - _knots[0]);
+    }
+    if (x > _knots[_nIntervals] && _right != Extrapolation.NONE) {
+      return _rightValue + _rightSlope * (x - _knots[_nIntervals]);
+    }
+    return value(segment, x);
+  }
+
+  /**
+   * Interpolates sorted values, walking the segments with a cursor.
+   * @param x The values, sorted ascending, not null
+   * @param result The array to fill, at least as long as x, not null
+   */
+  public void interpolate(final double[] x, final double[] result) {
+    ArgumentChecker.notNull(x, "x");
+    ArgumentChecker.notNull(result, "result");
+    ArgumentChecker.isTrue(result.length >= x.length, "Result array too short");
+    int cursor = 0;
+    double previous = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < x.length; i++) {
+      ArgumentChecker.isTrue(x[i] >= previous, "Values must be sorted ascending");
+      previous = x[i];
+      cursor = advance(cursor, x[i]);
+      result[i] = interpolate(cursor, x[i]);
+    }
+  }
+
+  /**
+   * Interpolates sorted values, walking the segments with a cursor.
+   * @param x The values, sorted ascending, not null
+   * @return The interpolated values
+   */
+  public double[] interpolate(final double[] x) {
+    ArgumentChecker.notNull(x, "x");
+    final double[] result = new double[x.length];
+    interpolate(x, result);
+    return result;
+  }
+
+  /**
+   * Computes the first derivative at a value.
+   * @param x The value
+   * @return The first derivative
+   */
+  public double firstDerivative(final double x) {
+    if (x < _knots[0] && _left != Extrapolation.NONE) {
+      return _leftSlope;
+    }
+    if (x > _knots[_nIntervals] && _right != Extrapolation.NONE) {
+      return _rightSlope;
+    }
+    return derivative(getSegmentIndex(x), x);
+  }
+
+  /**
+   * Computes the sensitivity of the interpolated value to the node values.
+   * @param x The value
+   * @return The sensitivities, one per node
+   */
+  public double[] getNodeSensitivitiesForValue(final double x) {
+    final double[] result = new double[_nNodes];
+    getNodeSensitivitiesForValue(getSegmentIndex(x), x, result);
+    return result;
+  }
+
+  /**
+   * Computes the sensitivity of the interpolated value to the node values in a known segment.
+   * @param segment The segment index
+   * @param x The value
+   * @param result The array to fill, of length the number of nodes, not null
+   */
+  public void getNodeSensitivitiesForValue(final int segment, final double x, final double[] result) {
+    if (x < _knots[0] && _left != Extrapolation.NONE) {
+      extrapolatedSensitivity(x - _knots[0], _leftValueSensitivity, _leftSlopeSensitivity, _left, result);
+      return;
+    }
+    if (x > _knots[_nIntervals] && _right != Extrapolation.NONE) {
+      extrapolatedSensitivity(x - _knots[_nIntervals], _rightValueSensitivity, _rightSlopeSensitivity, _right, result);
+      return;
+    }
+    final double s = x - _knots[segment];
+    final int start = segment * _order * _nNodes;
+    System.arraycopy(_coefSensitivities, start, result, 0, _nNodes);
+    for (int j = 1; j < _order; j++) {
+      final int offset = start + j * _nNodes;
+      for (int k = 0; k < _nNodes; k++) {
+        result[k] = result[k] * s + _coefSensitivities[offset + k];
+      }
+    }
+    if (_exponential) {
+      final double value = Math.exp(horner(segment, s));
+      for (int k = 0; k < _nNodes; k++) {
+        result[k] *= value;
+      }
+    }
+  }
+
+  /**
+   * Computes the node sensitivities for sorted values, walking the segments with a cursor.
+   * @param x The values, sorted ascending, not null
+   * @return The sensitivities, one row per value
+   */
+  public double[][] getNodeSensitivitiesForValues(final double[] x) {
+    ArgumentChecker.notNull(x, "x");
+    final double[][] result = new double[x.length][_nNodes];
+    int cursor = 0;
+    double previous = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < x.length; i++) {
+      ArgumentChecker.isTrue(x[i] >= previous, "Values must be sorted ascending");
+      previous = x[i];
+      cursor = advance(cursor, x[i]);
+      getNodeSensitivitiesForValue(cursor, x[i], result[i]);
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  private static void extrapolatedSensitivity(final double dx, final double[] valueSensitivity, final double[] slopeSensitivity, final Extrapolation type,
+      final double[] result) {
+    final int n = valueSensitivity.length;
+    if (type == Extrapolation.FLAT) {
+      System.arraycopy(valueSensitivity, 0, result, 0, n);
+      return;
+    }
+    for (int k = 0; k < n; k++) {
+      result[k] = valueSensitivity[k] + dx * slopeSensitivity[k];
+    }
+  }
+
+  private double horner(final int segment, final double s) {
+    final int start = segment * _order;
+    double result = _coefs[start];
+    for (int j = 1; j < _order; j++) {
+      result = result * s + _coefs[start + j];
+    }
+    return result;
+  }
+
+  private double hornerDerivative(final int segment, final double s) {
+    final int start = segment * _order;
+    double result = 0.;
+    for (int j = 0; j < _order - 1; j++) {
+      result = result * s + (_order - 1 - j) * _coefs[start + j];
+    }
+    return result;
+  }
+
+  private double value(final int segment, final double x) {
+    final double p = horner(segment, x - _knots[segment]);
+    return _exponential ? Math.exp(p) : p;
+  }
+
+  private double derivative(final int segment, final double x) {
+    final double s = x - _knots[segment];
+    final double dp = hornerDerivative(segment, s);
+    return _exponential ? Math.exp(horner(segment, s)) * dp : dp;
+  }
+
+  private double[] slopeSensitivity(final int segment, final double x) {
+    final double s = x - _knots[segment];
+    final int start = segment * _order * _nNodes;
+    final double[] result = new double[_nNodes];
+    for (int j = 0; j < _order - 1; j++) {
+      final int offset = start + j * _nNodes;
+      for (int k = 0; k < _nNodes; k++) {
+        result[k] = result[k] * s + (_order - 1 - j) * _coefSensitivities[offset + k];
+      }
+    }
+    if (_exponential) {
+      // d/dy (exp(p) p') = exp(p) (p' dp/dy + dp'/dy)
+      final double value = Math.exp(horner(segment, s));
+      final double dp = hornerDerivative(segment, s);
+      final double[] pSensitivity = new double[_nNodes];
+      System.arraycopy(_coefSensitivities, start, pSensitivity, 0, _nNodes);
+      for (int j = 1; j < _order; j++) {
+        final int offset = start + j * _nNodes;
+        for (int k = 0; k < _nNodes; k++) {
+          pSensitivity[k] = pSensitivity[k] * s + _coefSensitivities[offset + k];
+        }
+      }
+      for (int k = 0; k < _nNodes; k++) {
+        result[k] = value * (dp * pSensitivity[k] + result[k]);
+      }
+    }
+    return result;
+  }
+
+  private static void addKnots(final TreeSet<Double> knotSet, final PiecewisePolynomialResult pp) {
+    for (final double knot : pp.getKnots().getData()) {
+      knotSet.add(knot);
+    }
+  }
+
+  private static int maxOrder(final PiecewisePolynomialResult pp, final PiecewisePolynomialResult[] up, final PiecewisePolynomialResult[] dw) {
+    int order = pp.getOrder();
+    for (int i = 0; i < up.length; i++) {
+      order = Math.max(order, Math.max(up[i].getOrder(), dw[i].getOrder()));
+    }
+    return order;
+  }
+
+  /**
+   * Re-expresses a piecewise polynomial on a refined set of knots, shifting the local coefficients of each piece
+   * to the new knots (Taylor shift).
+   * @param pp The piecewise polynomial
+   * @param knots The refined knots, containing all the knots of pp
+   * @param order The order of the result, not lower than the order of pp
+   * @return The coefficients, order per interval, descending powers
+   */
+  private static double[] refine(final PiecewisePolynomialResult pp, final double[] knots, final int order) {
+    final double[] ppKnots = pp.getKnots().getData();
+    final DoubleMatrix2D ppCoefs = pp.getCoefMatrix();
+    final int ppOrder = pp.getOrder();
+    final int nIntervals = knots.length - 1;
+    final double[] result = new double[nIntervals * order];
+    int piece = 0;
+    for (int i = 0; i < nIntervals; i++) {
+      while (piece < ppKnots.length - 2 && knots[i] >= ppKnots[piece + 1]) {
+        piece++;
+      }
+      final int start = i * order + order - ppOrder;
+      for (int j = 0; j < ppOrder; j++) {
+        result[start + j] = ppCoefs.getEntry(piece, j);
+      }
+      final double delta = knots[i] - ppKnots[piece];
+      if (delta != 0.) {
+        for (int m = 0; m < order - 1; m++) {
+          for (int k = 1; k < order - m; k++) {
+            result[i * order + k] += delta * result[i * order + k - 1];
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DenseMatrixKernels;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * Cholesky decomposition computed by the blocked in-place kernel of {@link DenseMatrixKernels}.
+ * The lower triangle is copied once into contiguous row-major storage, which then holds the factor.
+ * The symmetry and positivity checks are the ones of {@link CholeskyDecompositionOpenGamma}.
+ */
+public class CholeskyDecompositionDense extends Decomposition<CholeskyDecompositionResult> {
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public CholeskyDecompositionResult evaluate(final DoubleMatrix2D x) {
+    return evaluate(x, CholeskyDecompositionOpenGamma.DEFAULT_SYMMETRY_THRESHOLD, CholeskyDecompositionOpenGamma.DEFAULT_POSITIVITY_THRESHOLD);
+  }
+
+  /**
+   * Perform the decomposition with a given symmetry and positivity threshold.
+   * @param matrix The matrix to decompose.
+   * @param symmetryThreshold The symmetry threshold.
+   * @param positivityThreshold The positivity threshold.
+   * @return The Cholesky decomposition.
+   */
+  public CholeskyDecompositionResult evaluate(final DoubleMatrix2D matrix, final double symmetryThreshold, final double positivityThreshold) {
+    Validate.notNull(matrix, "Matrix null");
+    final int n = matrix.getNumberOfRows();
+    Validate.isTrue(n == matrix.getNumberOfColumns(), "Matrix not square");
+    final double[][] data = matrix.getData();
+    final double[] l = new double[n * n];
+    for (int looprow = 0; looprow < n; looprow++) {
+      for (int loopcol = 0; loopcol <= looprow; loopcol++) {
+        final double maxValue = Math.max(Math.abs(data[looprow][loopcol]), Math.abs(data[loopcol][looprow]));
+        final double diff = Math.abs(data[looprow][loopcol] - data[loopcol][looprow]);
+        Validate.isTrue(diff <= maxValue * symmetryThreshold, "Matrix not symmetrical");
+      }
+      System.arraycopy(data[looprow], 0, l, looprow * n, looprow + 1);
+    }
+    DenseMatrixKernels.choleskyInPlace(l, n, positivityThreshold);
+    return new CholeskyDecompositionDenseResult(l, n);
+  }
+
+}
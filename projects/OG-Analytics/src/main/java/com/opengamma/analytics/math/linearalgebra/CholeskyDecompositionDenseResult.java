@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DenseMatrixKernels;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * Result of the Cholesky decomposition {@link CholeskyDecompositionDense}. The factor is kept in row-major storage; the matrices
+ * $\mathbf{L}$ and $\mathbf{L}^T$ are only built on request.
+ */
+public class CholeskyDecompositionDenseResult implements CholeskyDecompositionResult {
+
+  /**
+   * The factor L in row-major storage, zero above the diagonal.
+   */
+  private final double[] _l;
+  /**
+   * The size of the matrix.
+   */
+  private final int _n;
+  /**
+   * The determinant of the original matrix A = L L^T.
+   */
+  private final double _determinant;
+
+  /**
+   * @param l The factor in row-major storage, as computed by {@link DenseMatrixKernels#choleskyInPlace}, not null
+   * @param n The size of the matrix
+   */
+  public CholeskyDecompositionDenseResult(final double[] l, final int n) {
+    Validate.notNull(l, "l");
+    Validate.isTrue(l.length == n * n, "Inconsistent sizes");
+    _l = l;
+    _n = n;
+    double determinant = 1.0;
+    for (int i = 0; i < n; i++) {
+      determinant *= l[i * n + i] * l[i * n + i];
+    }
+    _determinant = determinant;
+  }
+
+  @Override
+  public DoubleMatrix1D solve(final DoubleMatrix1D b) {
+    Validate.notNull(b);
+    return new DoubleMatrix1D(solve(b.getData()));
+  }
+
+  @Override
+  public double[] solve(final double[] b) {
+    Validate.notNull(b);
+    Validate.isTrue(b.length == _n, "b array of incorrect size");
+    return DenseMatrixKernels.choleskySolve(_l, _n, b, 1);
+  }
+
+  @Override
+  public DoubleMatrix2D solve(final DoubleMatrix2D b) {
+    Validate.notNull(b);
+    Validate.isTrue(b.getNumberOfRows() == _n, "b array of incorrect size");
+    final int nbRhs = b.getNumberOfColumns();
+    return DenseMatrixKernels.toMatrix(DenseMatrixKernels.choleskySolve(_l, _n, DenseMatrixKernels.toRowMajor(b.getData()), nbRhs), _n, nbRhs);
+  }
+
+  @Override
+  public DoubleMatrix2D getL() {
+    return DenseMatrixKernels.toMatrix(_l, _n, _n);
+  }
+
+  @Override
+  public DoubleMatrix2D getLT() {
+    final double[] lT = new double[_n * _n];
+    DenseMatrixKernels.transpose(_l, _n, _n, lT);
+    return DenseMatrixKernels.toMatrix(lT, _n, _n);
+  }
+
+  @Override
+  public double getDeterminant() {
+    return _determinant;
+  }
+
+}
@@ -20,6 +20,10 @@ public final class DecompositionFactory {
   public static final String SV_COLT_NAME = "SV_COLT";
   /** Commons SV decomposition */
   public static final String SV_COMMONS_NAME = "SV_COMMONS";
+  /** Dense blocked LU decomposition */
+  public static final String LU_DENSE_NAME = "LU_DENSE";
+  /** Dense blocked Cholesky decomposition */
+  public static final String CHOLESKY_DENSE_NAME = "CHOLESKY_DENSE";
   /** {@link LUDecompositionCommons} */
   public static final Decomposition<?> LU_COMMONS = new LUDecompositionCommons();
   /** {@link QRDecompositionCommons} */
@@ -28,6 +32,10 @@ public final class DecompositionFactory {
   public static final Decomposition<?> SV_COLT = new SVDecompositionColt();
   /** {@link SVDecompositionCommons} */
   public static final Decomposition<?> SV_COMMONS = new SVDecompositionCommons();
+  /** {@link LUDecompositionDense} */
+  public static final Decomposition<?> LU_DENSE = new LUDecompositionDense();
+  /** {@link CholeskyDecompositionDense} */
+  public static final Decomposition<?> CHOLESKY_DENSE = new CholeskyDecompositionDense();
   private static final Map<String, Decomposition<?>> s_staticInstances;
   private static final Map<Class<?>, String> s_instanceNames;
 
@@ -37,11 +45,15 @@ public final class DecompositionFactory {
     s_staticInstances.put(QR_COMMONS_NAME, QR_COMMONS);
     s_staticInstances.put(SV_COLT_NAME, SV_COLT);
     s_staticInstances.put(SV_COMMONS_NAME, SV_COMMONS);
+    s_staticInstances.put(LU_DENSE_NAME, LU_DENSE);
+    s_staticInstances.put(CHOLESKY_DENSE_NAME, CHOLESKY_DENSE);
     s_instanceNames = new HashMap<>();
     s_instanceNames.put(LU_COMMONS.getClass(), LU_COMMONS_NAME);
     s_instanceNames.put(QR_COMMONS.getClass(), QR_COMMONS_NAME);
     s_instanceNames.put(SV_COLT.getClass(), SV_COLT_NAME);
     s_instanceNames.put(SV_COMMONS.getClass(), SV_COMMONS_NAME);
+    s_instanceNames.put(LU_DENSE.getClass(), LU_DENSE_NAME);
+    s_instanceNames.put(CHOLESKY_DENSE.getClass(), CHOLESKY_DENSE_NAME);
   }
 
   private DecompositionFactory() {
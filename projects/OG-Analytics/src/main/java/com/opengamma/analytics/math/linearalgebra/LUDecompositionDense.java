@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DenseMatrixKernels;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * LU decomposition with partial pivoting computed by the blocked in-place kernel of {@link DenseMatrixKernels}.
+ * The matrix is copied once into contiguous row-major storage, which then holds the factors.
+ */
+public class LUDecompositionDense extends Decomposition<LUDecompositionResult> {
+
+  /**
+   * The absolute value of a pivot below which the matrix is considered singular (the default of the Commons decomposition).
+   */
+  public static final double DEFAULT_SINGULARITY_THRESHOLD = 1.0E-11;
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public LUDecompositionResult evaluate(final DoubleMatrix2D x) {
+    Validate.notNull(x);
+    final int n = x.getNumberOfRows();
+    Validate.isTrue(n == x.getNumberOfColumns(), "Matrix not square");
+    final double[] lu = DenseMatrixKernels.toRowMajor(x.getData());
+    final int[] pivot = new int[n];
+    final int sign = DenseMatrixKernels.luInPlace(lu, n, pivot);
+    for (int i = 0; i < n; i++) {
+      Validate.isTrue(Math.abs(lu[i * n + i]) > DEFAULT_SINGULARITY_THRESHOLD, "Matrix is singular; could not perform LU decomposition");
+    }
+    return new LUDecompositionDenseResult(lu, n, pivot, sign);
+  }
+
+}
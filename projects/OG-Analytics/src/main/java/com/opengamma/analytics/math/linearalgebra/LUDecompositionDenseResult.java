@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.matrix.DenseMatrixKernels;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * Result of the LU decomposition {@link LUDecompositionDense}. The factors are kept in row-major storage; the matrices
+ * $\mathbf{L}$, $\mathbf{U}$ and $\mathbf{P}$ are only built on request.
+ */
+public class LUDecompositionDenseResult implements LUDecompositionResult {
+
+  /**
+   * The factors: L below the diagonal (unit diagonal not stored), U on and above.
+   */
+  private final double[] _lu;
+  /**
+   * The size of the matrix.
+   */
+  private final int _n;
+  /**
+   * The pivot permutation.
+   */
+  private final int[] _pivot;
+  /**
+   * The determinant.
+   */
+  private final double _determinant;
+
+  /**
+   * @param lu The factors in row-major storage, as computed by {@link DenseMatrixKernels#luInPlace}, not null
+   * @param n The size of the matrix
+   * @param pivot The pivot permutation, not null
+   * @param sign The sign of the permutation
+   */
+  public LUDecompositionDenseResult(final double[] lu, final int n, final int[] pivot, final int sign) {
+    Validate.notNull(lu, "lu");
+    Validate.notNull(pivot, "pivot");
+    Validate.isTrue(lu.length == n * n && pivot.length == n, "Inconsistent sizes");
+    _lu = lu;
+    _n = n;
+    _pivot = pivot;
+    double determinant = sign;
+    for (int i = 0; i < n; i++) {
+      determinant *= lu[i * n + i];
+    }
+    _determinant = determinant;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getDeterminant() {
+    return _determinant;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getL() {
+    final DoubleMatrix2D result = new DoubleMatrix2D(_n, _n);
+    final double[][] l = result.getData();
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(_lu, i * _n, l[i], 0, i);
+      l[i][i] = 1.0;
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getU() {
+    final DoubleMatrix2D result = new DoubleMatrix2D(_n, _n);
+    final double[][] u = result.getData();
+    for (int i = 0; i < _n; i++) {
+      System.arraycopy(_lu, i * _n + i, u[i], i, _n - i);
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getP() {
+    final DoubleMatrix2D result = new DoubleMatrix2D(_n, _n);
+    final double[][] p = result.getData();
+    for (int i = 0; i < _n; i++) {
+      p[i][_pivot[i]] = 1.0;
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int[] getPivot() {
+    return Arrays.copyOf(_pivot, _n);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix1D solve(final DoubleMatrix1D b) {
+    Validate.notNull(b);
+    return new DoubleMatrix1D(solve(b.getData()));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double[] solve(final double[] b) {
+    Validate.notNull(b);
+    Validate.isTrue(b.length == _n, "b array of incorrect size");
+    return DenseMatrixKernels.luSolve(_lu, _pivot, _n, b, 1);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D solve(final DoubleMatrix2D b) {
+    Validate.notNull(b);
+    Validate.isTrue(b.getNumberOfRows() == _n, "b matrix of incorrect size");
+    final int nbRhs = b.getNumberOfColumns();
+    return DenseMatrixKernels.toMatrix(DenseMatrixKernels.luSolve(_lu, _pivot, _n, DenseMatrixKernels.toRowMajor(b.getData()), nbRhs), _n, nbRhs);
+  }
+
+}
@@ -61,4 +61,33 @@ public class TridiagonalSolver {
     return new DoubleMatrix1D(solvTriDag(aM, b.getData()));
   }
 
+  /**
+   * Solves the system Ax = b for the unknown vector x, where A is a tridiagonal matrix given by its diagonals, without allocating any memory.
+   * The elimination is the one of {@link #solvTriDag(TridiagonalMatrix, double[])}, so the results are identical. Only the first n elements
+   * of the arrays are used, so they can be buffers longer than the system.
+   * @param l the lower sub-diagonal, l[i] is the element (i + 1, i); not modified
+   * @param d the diagonal; not modified
+   * @param u the upper sub-diagonal, u[i] is the element (i, i + 1); not modified
+   * @param b known vector; not modified unless it is the same array as x
+   * @param x array to receive the solution; can be the same array as b
+   * @param work work array of length at least n; overwritten
+   * @param n the size of the system
+   */
+  public static void solvTriDag(final double[] l, final double[] d, final double[] u, final double[] b, final double[] x, final double[] work, final int n) {
+    ArgumentChecker.isTrue(n > 0, "system size must be positive");
+    work[0] = d[0];
+    x[0] = b[0];
+    for (int i = 1; i < n; i++) {
+      final double m = l[i - 1] / work[i - 1];
+      work[i] = d[i] - m * u[i - 1];
+      x[i] = b[i] - m * x[i - 1];
+    }
+
+    x[n - 1] = x[n - 1] / work[n - 1];
+
+    for (int i = n - 2; i >= 0; i--) {
+      x[i] = (x[i] - u[i] * x[i + 1]) / work[i];
+    }
+  }
+
 }
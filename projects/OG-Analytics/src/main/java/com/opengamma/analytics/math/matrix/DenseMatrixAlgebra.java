@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.math.linearalgebra.LUDecompositionDense;
+import com.opengamma.analytics.math.linearalgebra.LUDecompositionResult;
+
+/**
+ * Matrix algebra for large dense matrices, using the cache-blocked and multithreaded kernels of {@link DenseMatrixKernels}.
+ * <p>
+ * The products of two matrices, transposes, inverses and determinants run on contiguous row-major copies of the data; the
+ * inverse and the determinant use the in-place LU decomposition {@link LUDecompositionDense}. The operations not listed
+ * here are the ones of {@link OGMatrixAlgebra}.
+ */
+public class DenseMatrixAlgebra extends OGMatrixAlgebra {
+
+  /**
+   * The LU decomposition.
+   */
+  private static final LUDecompositionDense LU = new LUDecompositionDense();
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getDeterminant(final Matrix<?> m) {
+    Validate.notNull(m, "m");
+    if (m instanceof DoubleMatrix2D) {
+      final DoubleMatrix2D matrix = (DoubleMatrix2D) m;
+      Validate.isTrue(matrix.getNumberOfRows() == matrix.getNumberOfColumns(), "Matrix not square");
+      final int n = matrix.getNumberOfRows();
+      final double[] lu = DenseMatrixKernels.toRowMajor(matrix.getData());
+      double determinant = DenseMatrixKernels.luInPlace(lu, n, new int[n]);
+      for (int i = 0; i < n; i++) {
+        determinant *= lu[i * n + i];
+      }
+      return determinant;
+    }
+    throw new IllegalArgumentException("Can only find determinant of DoubleMatrix2D; have " + m.getClass());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getInverse(final Matrix<?> m) {
+    Validate.notNull(m, "m");
+    if (m instanceof DoubleMatrix2D) {
+      final LUDecompositionResult lu = LU.evaluate((DoubleMatrix2D) m);
+      return lu.solve(DoubleMatrixUtils.getIdentityMatrix2D(((DoubleMatrix2D) m).getNumberOfRows()));
+    }
+    throw new IllegalArgumentException("Can only find inverse of DoubleMatrix2D; have " + m.getClass());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getNorm1(final Matrix<?> m) {
+    Validate.notNull(m, "m");
+    if (m instanceof DoubleMatrix1D) {
+      double sum = 0.0;
+      for (final double value : ((DoubleMatrix1D) m).getData()) {
+        sum += Math.abs(value);
+      }
+      return sum;
+    } else if (m instanceof DoubleMatrix2D) {
+      final double[][] data = ((DoubleMatrix2D) m).getData();
+      final double[] columnSums = new double[((DoubleMatrix2D) m).getNumberOfColumns()];
+      for (final double[] row : data) {
+        for (int j = 0; j < columnSums.length; j++) {
+          columnSums[j] += Math.abs(row[j]);
+        }
+      }
+      double max = 0.0;
+      for (final double sum : columnSums) {
+        max = Math.max(max, sum);
+      }
+      return max;
+    }
+    throw new IllegalArgumentException("Can only find norm1 of DoubleMatrix1D or DoubleMatrix2D; have " + m.getClass());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public double getNormInfinity(final Matrix<?> m) {
+    Validate.notNull(m, "m");
+    if (m instanceof DoubleMatrix1D) {
+      double max = 0.0;
+      for (final double value : ((DoubleMatrix1D) m).getData()) {
+        max = Math.max(max, Math.abs(value));
+      }
+      return max;
+    } else if (m instanceof DoubleMatrix2D) {
+      double max = 0.0;
+      for (final double[] row : ((DoubleMatrix2D) m).getData()) {
+        double sum = 0.0;
+        for (final double value : row) {
+          sum += Math.abs(value);
+        }
+        max = Math.max(max, sum);
+      }
+      return max;
+    }
+    throw new IllegalArgumentException("Can only find normInfinity of DoubleMatrix1D or DoubleMatrix2D; have " + m.getClass());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getPower(final Matrix<?> m, final int p) {
+    Validate.notNull(m, "m");
+    Validate.isTrue(p >= 0, "power must be positive");
+    if (m instanceof DoubleMatrix2D) {
+      final DoubleMatrix2D matrix = (DoubleMatrix2D) m;
+      Validate.isTrue(matrix.getNumberOfRows() == matrix.getNumberOfColumns(), "Matrix not square");
+      DoubleMatrix2D result = DoubleMatrixUtils.getIdentityMatrix2D(matrix.getNumberOfRows());
+      DoubleMatrix2D square = matrix;
+      int power = p;
+      while (power > 0) {
+        if ((power & 1) != 0) {
+          result = multiply(result, square);
+        }
+        power >>= 1;
+        if (power > 0) {
+          square = multiply(square, square);
+        }
+      }
+      return result;
+    }
+    throw new IllegalArgumentException("Can only find power of DoubleMatrix2D; have " + m.getClass());
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DoubleMatrix2D getTranspose(final Matrix<?> m) {
+    Validate.notNull(m, "m");
+    if (m instanceof DoubleMatrix2D) {
+      final DoubleMatrix2D matrix = (DoubleMatrix2D) m;
+      final int rows = matrix.getNumberOfRows();
+      final int cols = matrix.getNumberOfColumns();
+      final DoubleMatrix2D result = new DoubleMatrix2D(cols, rows);
+      DenseMatrixKernels.transpose(matrix.getData(), result.getData());
+      return result;
+    }
+    throw new IllegalArgumentException("Can only take transpose of DoubleMatrix2D; have " + m.getClass());
+  }
+
+  /**
+   * {@inheritDoc}
+   * The product of two {@link DoubleMatrix2D} uses the blocked kernel; the other combinations are the ones of {@link OGMatrixAlgebra}.
+   */
+  @Override
+  public Matrix<?> multiply(final Matrix<?> m1, final Matrix<?> m2) {
+    Validate.notNull(m1, "m1");
+    Validate.notNull(m2, "m2");
+    if (m1 instanceof DoubleMatrix2D && m2 instanceof DoubleMatrix2D) {
+      return multiply((DoubleMatrix2D) m1, (DoubleMatrix2D) m2);
+    }
+    return super.multiply(m1, m2);
+  }
+
+  private DoubleMatrix2D multiply(final DoubleMatrix2D m1, final DoubleMatrix2D m2) {
+    final int m = m1.getNumberOfRows();
+    final int p = m1.getNumberOfColumns();
+    final int n = m2.getNumberOfColumns();
+    Validate.isTrue(m2.getNumberOfRows() == p, "Matrix size mismatch. m1 is " + m + " by " + p + ", but m2 is " + m2.getNumberOfRows() + " by " + n);
+    final double[] c = new double[m * n];
+    DenseMatrixKernels.multiply(DenseMatrixKernels.toRowMajor(m1.getData()), DenseMatrixKernels.toRowMajor(m2.getData()), c, m, p, n);
+    return DenseMatrixKernels.toMatrix(c, m, n);
+  }
+
+}
@@ -0,0 +1,440 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang.Validate;
+
+import com.opengamma.analytics.util.ParallelRanges;
+import com.opengamma.analytics.util.ParallelRanges.RangeTask;
+
+/**
+ * Dense matrix kernels on contiguous row-major storage: the element (i, j) of a matrix with leading dimension ld at offset off is
+ * at off + i * ld + j.
+ * <p>
+ * The products are cache-blocked: a block of the right-hand matrix is reused for all the rows of the left-hand matrix before moving
+ * to the next block. Above a size threshold the rows of the result are split between the threads of the pool shared by the analytics
+ * engines, see {@link ParallelRanges}, or run sequentially when called from one of their tasks; the summation order of each element
+ * does not depend on the split, so the results are identical to the sequential ones.
+ * <p>
+ * The Cholesky and LU factorisations are blocked right-looking algorithms working in place on the storage.
+ */
+public final class DenseMatrixKernels {
+
+  /**
+   * The size of the blocks.
+   */
+  private static final int BLOCK = 64;
+  /**
+   * The number of columns of the blocks of the right-hand matrix in the products.
+   */
+  private static final int COLUMN_BLOCK = 256;
+  /**
+   * The number of multiplications above which the products are run in parallel.
+   */
+  private static final long PARALLEL_THRESHOLD = 1L << 21;
+  /**
+   * The minimum number of rows of a parallel task.
+   */
+  private static final int MIN_TASK_ROWS = 16;
+
+  private DenseMatrixKernels() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Copies a matrix in row-major storage.
+   * @param data The matrix, rectangular, not null
+   * @return The row-major storage
+   */
+  public static double[] toRowMajor(final double[][] data) {
+    Validate.notNull(data, "data");
+    final int rows = data.length;
+    final int cols = rows == 0 ? 0 : data[0].length;
+    final double[] result = new double[rows * cols];
+    for (int i = 0; i < rows; i++) {
+      Validate.isTrue(data[i].length == cols, "Matrix not rectangular");
+      System.arraycopy(data[i], 0, result, i * cols, cols);
+    }
+    return result;
+  }
+
+  /**
+   * Creates a matrix from row-major storage.
+   * @param data The row-major storage, not null
+   * @param rows The number of rows, positive
+   * @param cols The number of columns, positive
+   * @return The matrix
+   */
+  public static DoubleMatrix2D toMatrix(final double[] data, final int rows, final int cols) {
+    Validate.notNull(data, "data");
+    final DoubleMatrix2D result = new DoubleMatrix2D(rows, cols);
+    final double[][] target = result.getData();
+    for (int i = 0; i < rows; i++) {
+      System.arraycopy(data, i * cols, target[i], 0, cols);
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Computes the product C = A B.
+   * @param a The matrix A, m x p, row-major
+   * @param b The matrix B, p x n, row-major
+   * @param c The matrix C, m x n, row-major, overwritten
+   * @param m The number of rows of A
+   * @param p The number of columns of A
+   * @param n The number of columns of B
+   */
+  public static void multiply(final double[] a, final double[] b, final double[] c, final int m, final int p, final int n) {
+    Arrays.fill(c, 0, m * n, 0.0);
+    multiplyAdd(1.0, a, 0, p, b, 0, n, c, 0, n, m, p, n);
+  }
+
+  /**
+   * Computes C = C + alpha A B on sub-matrices. The regions of A and B must not overlap the region of C.
+   * @param alpha The factor
+   * @param a The storage of A
+   * @param aOffset The offset of A
+   * @param lda The leading dimension of A
+   * @param b The storage of B
+   * @param bOffset The offset of B
+   * @param ldb The leading dimension of B
+   * @param c The storage of C
+   * @param cOffset The offset of C
+   * @param ldc The leading dimension of C
+   * @param m The number of rows of A and C
+   * @param p The number of columns of A and rows of B
+   * @param n The number of columns of B and C
+   */
+  public static void multiplyAdd(final double alpha, final double[] a, final int aOffset, final int lda, final double[] b, final int bOffset, final int ldb,
+      final double[] c, final int cOffset, final int ldc, final int m, final int p, final int n) {
+    runRows(0, m, (long) m * p * n, new RangeTask() {
+      @Override
+      public void evaluate(final int rowStart, final int rowEnd) {
+        multiplyAddRows(alpha, a, aOffset, lda, b, bOffset, ldb, c, cOffset, ldc, rowStart, rowEnd, p, n);
+      }
+    });
+  }
+
+  private static void multiplyAddRows(final double alpha, final double[] a, final int aOffset, final int lda, final double[] b, final int bOffset, final int ldb,
+      final double[] c, final int cOffset, final int ldc, final int rowStart, final int rowEnd, final int p, final int n) {
+    for (int kk = 0; kk < p; kk += BLOCK) {
+      final int kEnd = Math.min(kk + BLOCK, p);
+      for (int jj = 0; jj < n; jj += COLUMN_BLOCK) {
+        final int jEnd = Math.min(jj + COLUMN_BLOCK, n);
+        for (int i = rowStart; i < rowEnd; i++) {
+          final int aRow = aOffset + i * lda;
+          final int cRow = cOffset + i * ldc;
+          for (int k = kk; k < kEnd; k++) {
+            final double aik = alpha * a[aRow + k];
+            if (aik == 0.0) {
+              continue;
+            }
+            final int bRow = bOffset + k * ldb;
+            for (int j = jj; j < jEnd; j++) {
+              c[cRow + j] += aik * b[bRow + j];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Computes the product y = A x.
+   * @param a The matrix A, rows x cols, row-major
+   * @param rows The number of rows
+   * @param cols The number of columns
+   * @param x The vector x, at least cols elements
+   * @param y The vector y, at least rows elements, overwritten
+   */
+  public static void multiply(final double[] a, final int rows, final int cols, final double[] x, final double[] y) {
+    for (int i = 0; i < rows; i++) {
+      y[i] = dot(a, i * cols, x, 0, cols);
+    }
+  }
+
+  /**
+   * Transposes a matrix by blocks.
+   * @param a The matrix, rows x cols, row-major
+   * @param rows The number of rows
+   * @param cols The number of columns
+   * @param result The transpose, cols x rows, row-major, overwritten
+   */
+  public static void transpose(final double[] a, final int rows, final int cols, final double[] result) {
+    for (int ii = 0; ii < rows; ii += BLOCK) {
+      final int iEnd = Math.min(ii + BLOCK, rows);
+      for (int jj = 0; jj < cols; jj += BLOCK) {
+        final int jEnd = Math.min(jj + BLOCK, cols);
+        for (int i = ii; i < iEnd; i++) {
+          for (int j = jj; j < jEnd; j++) {
+            result[j * rows + i] = a[i * cols + j];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Transposes a matrix by blocks.
+   * @param a The matrix, rows x cols, rectangular, not null
+   * @param result The transpose, cols x rows, overwritten
+   */
+  public static void transpose(final double[][] a, final double[][] result) {
+    final int rows = a.length;
+    final int cols = rows == 0 ? 0 : a[0].length;
+    for (int ii = 0; ii < rows; ii += BLOCK) {
+      final int iEnd = Math.min(ii + BLOCK, rows);
+      for (int jj = 0; jj < cols; jj += BLOCK) {
+        final int jEnd = Math.min(jj + BLOCK, cols);
+        for (int i = ii; i < iEnd; i++) {
+          final double[] row = a[i];
+          for (int j = jj; j < jEnd; j++) {
+            result[j][i] = row[j];
+          }
+        }
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Computes in place the Cholesky factor L of a symmetric positive definite matrix A = L L<sup>T</sup>. Only the lower triangle of
+   * the storage is read; on exit it contains L and the upper triangle is set to zero.
+   * @param a The matrix, n x n, row-major
+   * @param n The size
+   * @param positivityThreshold The threshold below which a pivot is considered non-positive
+   * @throws IllegalArgumentException If the matrix is not positive
+   */
+  public static void choleskyInPlace(final double[] a, final int n, final double positivityThreshold) {
+    for (int k0 = 0; k0 < n; k0 += BLOCK) {
+      final int k1 = Math.min(k0 + BLOCK, n);
+      // Diagonal block
+      for (int i = k0; i < k1; i++) {
+        for (int j = k0; j <= i; j++) {
+          final double s = a[i * n + j] - dot(a, i * n + k0, a, j * n + k0, j - k0);
+          if (i == j) {
+            Validate.isTrue(s > positivityThreshold, "Matrix not positive");
+            a[i * n + i] = Math.sqrt(s);
+          } else {
+            a[i * n + j] = s / a[j * n + j];
+          }
+        }
+      }
+      if (k1 == n) {
+        break;
+      }
+      // Panel below the diagonal block and update of the trailing lower triangle
+      final int start = k0;
+      final int end = k1;
+      runRows(k1, n, (long) (n - k1) * (k1 - k0) * (k1 - k0), new RangeTask() {
+        @Override
+        public void evaluate(final int rowStart, final int rowEnd) {
+          for (int i = rowStart; i < rowEnd; i++) {
+            for (int j = start; j < end; j++) {
+              a[i * n + j] = (a[i * n + j] - dot(a, i * n + start, a, j * n + start, j - start)) / a[j * n + j];
+            }
+          }
+        }
+      });
+      runRows(k1, n, (long) (n - k1) * (n - k1) * (k1 - k0) / 2, new RangeTask() {
+        @Override
+        public void evaluate(final int rowStart, final int rowEnd) {
+          for (int i = rowStart; i < rowEnd; i++) {
+            for (int j = end; j <= i; j++) {
+              a[i * n + j] -= dot(a, i * n + start, a, j * n + start, end - start);
+            }
+          }
+        }
+      });
+    }
+    for (int i = 0; i < n; i++) {
+      Arrays.fill(a, i * n + i + 1, (i + 1) * n, 0.0);
+    }
+  }
+
+  /**
+   * Computes in place the LU decomposition with partial pivoting P A = L U, L unit lower triangular and U upper triangular.
+   * On exit the strict lower triangle of the storage contains L (without its unit diagonal) and the upper triangle contains U.
+   * @param a The matrix, n x n, row-major
+   * @param n The size
+   * @param pivot The permutation, filled: row i of P A is row pivot[i] of A
+   * @return The sign of the permutation, +1 or -1
+   */
+  public static int luInPlace(final double[] a, final int n, final int[] pivot) {
+    for (int i = 0; i < n; i++) {
+      pivot[i] = i;
+    }
+    int sign = 1;
+    for (int k0 = 0; k0 < n; k0 += BLOCK) {
+      final int k1 = Math.min(k0 + BLOCK, n);
+      // Panel factorisation, with the row interchanges applied to the full rows
+      for (int k = k0; k < k1; k++) {
+        int p = k;
+        double max = Math.abs(a[k * n + k]);
+        for (int i = k + 1; i < n; i++) {
+          final double value = Math.abs(a[i * n + k]);
+          if (value > max) {
+            max = value;
+            p = i;
+          }
+        }
+        if (p != k) {
+          swapRows(a, n, k, p);
+          final int tmp = pivot[k];
+          pivot[k] = pivot[p];
+          pivot[p] = tmp;
+          sign = -sign;
+        }
+        final double pivotValue = a[k * n + k];
+        if (pivotValue == 0.0) {
+          continue;
+        }
+        for (int i = k + 1; i < n; i++) {
+          final double l = a[i * n + k] / pivotValue;
+          a[i * n + k] = l;
+          if (l != 0.0) {
+            for (int j = k + 1; j < k1; j++) {
+              a[i * n + j] -= l * a[k * n + j];
+            }
+          }
+        }
+      }
+      if (k1 == n) {
+        break;
+      }
+      // U12 = L11^-1 A12
+      for (int i = k0 + 1; i < k1; i++) {
+        for (int j = k0; j < i; j++) {
+          final double l = a[i * n + j];
+          if (l != 0.0) {
+            for (int col = k1; col < n; col++) {
+              a[i * n + col] -= l * a[j * n + col];
+            }
+          }
+        }
+      }
+      // A22 = A22 - L21 U12
+      multiplyAdd(-1.0, a, k1 * n + k0, n, a, k0 * n + k1, n, a, k1 * n + k1, n, n - k1, k1 - k0, n - k1);
+    }
+    return sign;
+  }
+
+  /**
+   * Solves in place L U x = P b for a decomposition computed by {@link #luInPlace}. The right-hand sides are the columns of b.
+   * @param lu The decomposition, n x n, row-major
+   * @param pivot The permutation
+   * @param n The size
+   * @param b The right-hand sides, n x nbRhs, row-major, not permuted
+   * @param nbRhs The number of right-hand sides
+   * @return The solutions, n x nbRhs, row-major
+   */
+  public static double[] luSolve(final double[] lu, final int[] pivot, final int n, final double[] b, final int nbRhs) {
+    final double[] x = new double[n * nbRhs];
+    for (int i = 0; i < n; i++) {
+      System.arraycopy(b, pivot[i] * nbRhs, x, i * nbRhs, nbRhs);
+    }
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < i; j++) {
+        axpy(-lu[i * n + j], x, j * nbRhs, x, i * nbRhs, nbRhs);
+      }
+    }
+    for (int i = n - 1; i >= 0; i--) {
+      for (int j = i + 1; j < n; j++) {
+        axpy(-lu[i * n + j], x, j * nbRhs, x, i * nbRhs, nbRhs);
+      }
+      final double inverse = 1.0 / lu[i * n + i];
+      for (int r = 0; r < nbRhs; r++) {
+        x[i * nbRhs + r] *= inverse;
+      }
+    }
+    return x;
+  }
+
+  /**
+   * Solves in place L L<sup>T</sup> x = b for a factor computed by {@link #choleskyInPlace}. The right-hand sides are the columns of b.
+   * @param l The factor, n x n, row-major
+   * @param n The size
+   * @param b The right-hand sides, n x nbRhs, row-major
+   * @param nbRhs The number of right-hand sides
+   * @return The solutions, n x nbRhs, row-major
+   */
+  public static double[] choleskySolve(final double[] l, final int n, final double[] b, final int nbRhs) {
+    final double[] x = Arrays.copyOf(b, n * nbRhs);
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < i; j++) {
+        axpy(-l[i * n + j], x, j * nbRhs, x, i * nbRhs, nbRhs);
+      }
+      final double inverse = 1.0 / l[i * n + i];
+      for (int r = 0; r < nbRhs; r++) {
+        x[i * nbRhs + r] *= inverse;
+      }
+    }
+    for (int i = n - 1; i >= 0; i--) {
+      for (int j = i + 1; j < n; j++) {
+        axpy(-l[j * n + i], x, j * nbRhs, x, i * nbRhs, nbRhs);
+      }
+      final double inverse = 1.0 / l[i * n + i];
+      for (int r = 0; r < nbRhs; r++) {
+        x[i * nbRhs + r] *= inverse;
+      }
+    }
+    return x;
+  }
+
+  //-------------------------------------------------------------------------
+  private static double dot(final double[] a, final int aOffset, final double[] b, final int bOffset, final int n) {
+    double sum = 0.0;
+    for (int k = 0; k < n; k++) {
+      sum += a[aOffset + k] * b[bOffset + k];
+    }
+    return sum;
+  }
+
+  private static void axpy(final double alpha, final double[] x, final int xOffset, final double[] y, final int yOffset, final int n) {
+    if (alpha == 0.0) {
+      return;
+    }
+    for (int k = 0; k < n; k++) {
+      y[yOffset + k] += alpha * x[xOffset + k];
+    }
+  }
+
+  private static void swapRows(final double[] a, final int n, final int row1, final int row2) {
+    final int offset1 = row1 * n;
+    final int offset2 = row2 * n;
+    for (int j = 0; j < n; j++) {
+      final double tmp = a[offset1 + j];
+      a[offset1 + j] = a[offset2 + j];
+      a[offset2 + j] = tmp;
+    }
+  }
+
+  /**
+   * Runs a task on a range of rows, split between the threads of the shared pool if the number of multiplications is above the threshold.
+   * @param rowStart The first row (inclusive)
+   * @param rowEnd The last row (exclusive)
+   * @param work The number of multiplications
+   * @param rows The task on a range of rows
+   */
+  private static void runRows(final int rowStart, final int rowEnd, final long work, final RangeTask rows) {
+    final int nRows = rowEnd - rowStart;
+    if (work < PARALLEL_THRESHOLD || nRows < 2 * MIN_TASK_ROWS) {
+      rows.evaluate(rowStart, rowEnd);
+      return;
+    }
+    final int parallelism = Math.min(ParallelRanges.getSharedParallelism(), nRows / MIN_TASK_ROWS);
+    ParallelRanges.run(ParallelRanges.getSharedExecutor(), parallelism, nRows, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        rows.evaluate(rowStart + first, rowStart + last);
+      }
+    });
+  }
+
+}
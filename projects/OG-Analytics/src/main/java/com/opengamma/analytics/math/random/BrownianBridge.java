@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Brownian bridge construction of a Brownian motion path on a time grid from independent standard normals.
+ * <p>
+ * The first normal gives the value at the last time, the next ones the values at the successive mid-points of the already built
+ * intervals, conditional on their end values. Most of the variance of the path is thus carried by the first normals, which is where
+ * low-discrepancy sequences are the most uniform.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public class BrownianBridge {
+
+  /**
+   * The times.
+   */
+  private final double[] _times;
+  /**
+   * The index of the point built by each normal.
+   */
+  private final int[] _bridgeIndex;
+  /**
+   * The index of the left point (-1 for time 0) used by each normal.
+   */
+  private final int[] _leftIndex;
+  /**
+   * The index of the right point used by each normal.
+   */
+  private final int[] _rightIndex;
+  /**
+   * The weights of the left points.
+   */
+  private final double[] _leftWeight;
+  /**
+   * The weights of the right points.
+   */
+  private final double[] _rightWeight;
+  /**
+   * The conditional standard deviations.
+   */
+  private final double[] _stdDev;
+
+  /**
+   * Creates the bridge for a time grid.
+   * @param times The times, positive and strictly increasing
+   */
+  public BrownianBridge(final double[] times) {
+    ArgumentChecker.notEmpty(times, "times");
+    final int n = times.length;
+    ArgumentChecker.isTrue(times[0] > 0, "times must be positive");
+    for (int i = 1; i < n; i++) {
+      ArgumentChecker.isTrue(times[i] > times[i - 1], "times must be strictly increasing");
+    }
+    _times = Arrays.copyOf(times, n);
+    _bridgeIndex = new int[n];
+    _leftIndex = new int[n];
+    _rightIndex = new int[n];
+    _leftWeight = new double[n];
+    _rightWeight = new double[n];
+    _stdDev = new double[n];
+    final int[] map = new int[n]; // 0 if the point is not yet built, otherwise 1 + the index of the normal
+    map[n - 1] = 1;
+    _bridgeIndex[0] = n - 1;
+    _leftIndex[0] = -1;
+    _rightIndex[0] = n - 1;
+    _stdDev[0] = Math.sqrt(times[n - 1]);
+    int j = 0;
+    for (int i = 1; i < n; i++) {
+      while (map[j] != 0) { // first point not built
+        j++;
+      }
+      int k = j;
+      while (map[k] == 0) { // next point built
+        k++;
+      }
+      final int l = j + ((k - 1 - j) >> 1); // mid point
+      map[l] = i + 1;
+      _bridgeIndex[i] = l;
+      _leftIndex[i] = j - 1;
+      _rightIndex[i] = k;
+      final double tLeft = j == 0 ? 0.0 : times[j - 1];
+      _leftWeight[i] = (times[k] - times[l]) / (times[k] - tLeft);
+      _rightWeight[i] = (times[l] - tLeft) / (times[k] - tLeft);
+      _stdDev[i] = Math.sqrt((times[l] - tLeft) * (times[k] - times[l]) / (times[k] - tLeft));
+      j = k + 1;
+      if (j >= n) {
+        j = 0;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of times (and of normals required for one path).
+   * @return The size
+   */
+  public int size() {
+    return _times.length;
+  }
+
+  /**
+   * Gets the times.
+   * @return A copy of the times
+   */
+  public double[] getTimes() {
+    return Arrays.copyOf(_times, _times.length);
+  }
+
+  /**
+   * Builds the values of the Brownian motion at the times.
+   * @param normals The independent standard normals, at least size() values
+   * @param path The path, filled, at least size() values
+   */
+  public void buildPath(final double[] normals, final double[] path) {
+    final int n = _times.length;
+    path[n - 1] = _stdDev[0] * normals[0];
+    for (int i = 1; i < n; i++) {
+      final int left = _leftIndex[i];
+      final double leftValue = left < 0 ? 0.0 : path[left];
+      path[_bridgeIndex[i]] = _leftWeight[i] * leftValue + _rightWeight[i] * path[_rightIndex[i]] + _stdDev[i] * normals[i];
+    }
+  }
+
+  /**
+   * Builds the increments of the Brownian motion between consecutive times (the first increment is from time 0).
+   * @param normals The independent standard normals, at least size() values
+   * @param increments The increments, filled, at least size() values
+   */
+  public void buildIncrements(final double[] normals, final double[] increments) {
+    buildPath(normals, increments);
+    for (int i = _times.length - 1; i > 0; i--) {
+      increments[i] -= increments[i - 1];
+    }
+  }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Fast inverse of the standard normal cumulative distribution function, used to transform uniform (quasi-)random numbers into
+ * normal ones.
+ * <p>
+ * The approximation is the rational approximation of P. J. Acklam, with a relative error below 1.15E-9 on (0, 1); it only uses one
+ * logarithm and one square root in the tails and no transcendental function in the central region.
+ */
+public final class FastInverseNormal {
+
+  private static final double[] A = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01,
+    2.506628277459239e+00 };
+  private static final double[] B = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01 };
+  private static final double[] C = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00,
+    2.938163982698783e+00 };
+  private static final double[] D = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00 };
+  /**
+   * The limit between the central and tail regions.
+   */
+  private static final double P_LOW = 0.02425;
+  private static final double P_HIGH = 1 - P_LOW;
+
+  private FastInverseNormal() {
+  }
+
+  /**
+   * Computes the inverse of the standard normal cumulative distribution function.
+   * @param p The probability, in (0, 1)
+   * @return The quantile
+   */
+  public static double inverse(final double p) {
+    if (p < P_LOW) {
+      ArgumentChecker.isTrue(p > 0, "probability must be in (0, 1), have {}", p);
+      final double q = Math.sqrt(-2 * Math.log(p));
+      return (((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5]) / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+    }
+    if (p > P_HIGH) {
+      ArgumentChecker.isTrue(p < 1, "probability must be in (0, 1), have {}", p);
+      final double q = Math.sqrt(-2 * Math.log(1 - p));
+      return -(((((C[0] * q + C[1]) * q + C[2]) * q + C[3]) * q + C[4]) * q + C[5]) / ((((D[0] * q + D[1]) * q + D[2]) * q + D[3]) * q + 1);
+    }
+    final double q = p - 0.5;
+    final double r = q * q;
+    return (((((A[0] * r + A[1]) * r + A[2]) * r + A[3]) * r + A[4]) * r + A[5]) * q / (((((B[0] * r + B[1]) * r + B[2]) * r + B[3]) * r + B[4]) * r + 1);
+  }
+
+  /**
+   * Transforms uniforms into normals. The arrays can be the same.
+   * @param uniforms The uniforms, in (0, 1)
+   * @param normals The normals, filled
+   * @param length The number of values transformed
+   */
+  public static void transform(final double[] uniforms, final double[] normals, final int length) {
+    for (int i = 0; i < length; i++) {
+      normals[i] = inverse(uniforms[i]);
+    }
+  }
+
+}
@@ -0,0 +1,21 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+/**
+ * A generator of low-discrepancy vectors. Contrary to pseudo-random generators, the coordinates of one vector are not
+ * interchangeable with successive vectors: {@link #getVector(int)} returns one point of the sequence, with the requested
+ * dimension, and a simulation should use one point per path.
+ */
+public interface QuasiRandomNumberGenerator extends RandomNumberGenerator {
+
+  /**
+   * Gets the maximum dimension of the points.
+   * @return The dimension
+   */
+  int getMaximumDimension();
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Generator of standard normal vectors from the Sobol sequence, transformed by {@link FastInverseNormal}.
+ * <p>
+ * Each call to {@link #getVector(int)} returns the next point of the sequence, truncated to the requested dimension (the first
+ * coordinates of a Sobol point are the Sobol point of lower dimension). The origin of the sequence is skipped.
+ * The most important factors of a simulation should be on the first coordinates, e.g. by using a {@link BrownianBridge}.
+ */
+public class SobolNormalRandomNumberGenerator implements QuasiRandomNumberGenerator {
+
+  /**
+   * The underlying uniform sequence.
+   */
+  private final SobolSequenceGenerator _sequence;
+  /**
+   * The buffer for one point.
+   */
+  private final double[] _point;
+
+  /**
+   * Creates a generator with the built-in direction numbers of Joe and Kuo.
+   * @param maximumDimension The maximum dimension, positive and at most {@link SobolSequenceGenerator#MAX_DIMENSION}
+   */
+  public SobolNormalRandomNumberGenerator(final int maximumDimension) {
+    this(new SobolSequenceGenerator(maximumDimension));
+  }
+
+  /**
+   * Creates a generator on a given sequence. The sequence is positioned on its first point after the origin.
+   * @param sequence The sequence, not null
+   */
+  public SobolNormalRandomNumberGenerator(final SobolSequenceGenerator sequence) {
+    ArgumentChecker.notNull(sequence, "sequence");
+    _sequence = sequence;
+    _sequence.skipTo(1);
+    _point = new double[sequence.getDimension()];
+  }
+
+  @Override
+  public int getMaximumDimension() {
+    return _point.length;
+  }
+
+  /**
+   * Restarts the sequence at its first point after the origin.
+   */
+  public void reset() {
+    _sequence.skipTo(1);
+  }
+
+  /**
+   * Writes the next normal vector in an array.
+   * @param result The array, length at most the maximum dimension
+   */
+  public void nextVector(final double[] result) {
+    _sequence.nextPoint(_point);
+    FastInverseNormal.transform(_point, result, result.length);
+  }
+
+  @Override
+  public double[] getVector(final int dimension) {
+    ArgumentChecker.isTrue(dimension >= 0 && dimension <= _point.length, "dimension {} above maximum dimension {}", dimension, _point.length);
+    final double[] result = new double[dimension];
+    nextVector(result);
+    return result;
+  }
+
+  @Override
+  public List<double[]> getVectors(final int dimension, final int n) {
+    ArgumentChecker.notNegative(n, "n");
+    final List<double[]> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      result.add(getVector(dimension));
+    }
+    return result;
+  }
+
+}
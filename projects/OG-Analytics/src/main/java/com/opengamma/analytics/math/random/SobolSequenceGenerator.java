@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Generator of the Sobol low-discrepancy sequence in the unit hypercube, using the Gray code ordering (Antonov-Saleev).
+ * <p>
+ * The direction numbers are defined by a primitive polynomial and initial direction numbers for each dimension. The built-in set
+ * is the one of S. Joe and F. Y. Kuo, "Constructing Sobol sequences with better two-dimensional projections", SIAM J. Sci. Comput.
+ * 30 (2008), file new-joe-kuo-6.21201, which covers up to {@value #MAX_DIMENSION} dimensions. Other direction numbers in the same
+ * format (lines "d s a m_1 ... m_s" after a header line) can be loaded instead.
+ * <p>
+ * The first point of the sequence is the origin. The generator can be positioned on any index in O(dimension * log(index)).
+ * <p>
+ * This class is not thread-safe.
+ */
+public class SobolSequenceGenerator {
+
+  /**
+   * The largest dimension covered by the built-in direction numbers.
+   */
+  public static final int MAX_DIMENSION = 21201;
+  /**
+   * The resource holding the built-in direction numbers.
+   */
+  private static final String DIRECTION_NUMBERS_RESOURCE = "com/opengamma/analytics/math/random/new-joe-kuo-6.21201";
+  /**
+   * The number of bits of the points.
+   */
+  private static final int BITS = 52;
+  /**
+   * The scale from integer to [0, 1).
+   */
+  private static final double SCALE = 0x1.0p-52;
+
+  /**
+   * The direction numbers, dimension/bit.
+   */
+  private final long[][] _direction;
+  /**
+   * The current integer coordinates.
+   */
+  private final long[] _x;
+  /**
+   * The index of the next point.
+   */
+  private long _index;
+
+  /**
+   * Creates a generator with the built-in direction numbers of Joe and Kuo.
+   * @param dimension The dimension, positive and at most {@link #MAX_DIMENSION}
+   */
+  public SobolSequenceGenerator(final int dimension) {
+    ArgumentChecker.isTrue(dimension > 0, "dimension must be positive");
+    ArgumentChecker.isTrue(dimension <= MAX_DIMENSION, "dimension {} larger than the {} dimensions of the built-in direction numbers", dimension, MAX_DIMENSION);
+    try (InputStream directionNumbers = SobolSequenceGenerator.class.getClassLoader().getResourceAsStream(DIRECTION_NUMBERS_RESOURCE)) {
+      if (directionNumbers == null) {
+        throw new OpenGammaRuntimeException("Could not find direction numbers " + DIRECTION_NUMBERS_RESOURCE);
+      }
+      _direction = readDirections(dimension, directionNumbers);
+    } catch (final IOException ex) {
+      throw new OpenGammaRuntimeException("Could not read direction numbers " + DIRECTION_NUMBERS_RESOURCE, ex);
+    }
+    _x = new long[dimension];
+  }
+
+  /**
+   * Creates a generator with direction numbers read from a stream in the format of Joe and Kuo.
+   * The stream is not closed.
+   * @param dimension The dimension, positive
+   * @param directionNumbers The direction numbers, not null
+   */
+  public SobolSequenceGenerator(final int dimension, final InputStream directionNumbers) {
+    ArgumentChecker.isTrue(dimension > 0, "dimension must be positive");
+    ArgumentChecker.notNull(directionNumbers, "direction numbers");
+    try {
+      _direction = readDirections(dimension, directionNumbers);
+    } catch (final IOException ex) {
+      throw new OpenGammaRuntimeException("Could not read direction numbers", ex);
+    }
+    _x = new long[dimension];
+  }
+
+  /**
+   * Reads the direction numbers of the first dimensions from a stream in the format of Joe and Kuo.
+   * @param dimension The dimension
+   * @param directionNumbers The direction numbers
+   * @return The direction numbers, dimension/bit
+   * @throws IOException if the stream cannot be read
+   */
+  private static long[][] readDirections(final int dimension, final InputStream directionNumbers) throws IOException {
+    final long[][] direction = new long[dimension][];
+    direction[0] = firstDimension();
+    final BufferedReader reader = new BufferedReader(new InputStreamReader(directionNumbers, StandardCharsets.US_ASCII));
+    reader.readLine(); // header
+    for (int loopdim = 1; loopdim < dimension; loopdim++) {
+      final String line = reader.readLine();
+      if (line == null) {
+        throw new OpenGammaRuntimeException("Direction numbers available for " + loopdim + " dimensions only, " + dimension + " requested");
+      }
+      final String[] tokens = line.trim().split("\\s+");
+      final int degree = Integer.parseInt(tokens[1]);
+      final int a = Integer.parseInt(tokens[2]);
+      ArgumentChecker.isTrue(tokens.length == 3 + degree, "invalid direction numbers line: {}", line);
+      final long[] m = new long[degree];
+      for (int k = 0; k < degree; k++) {
+        m[k] = Long.parseLong(tokens[3 + k]);
+      }
+      direction[loopdim] = directions(degree, a, m);
+    }
+    return direction;
+  }
+
+  /**
+   * Gets the dimension.
+   * @return The dimension
+   */
+  public int getDimension() {
+    return _x.length;
+  }
+
+  /**
+   * Gets the index of the next point.
+   * @return The index
+   */
+  public long getIndex() {
+    return _index;
+  }
+
+  /**
+   * Positions the generator on a given index.
+   * @param index The index of the next point, not negative
+   */
+  public void skipTo(final long index) {
+    ArgumentChecker.isTrue(index >= 0, "index must be positive");
+    final long gray = index ^ (index >>> 1);
+    for (int loopdim = 0; loopdim < _x.length; loopdim++) {
+      long x = 0;
+      for (int k = 0; k < BITS; k++) {
+        if (((gray >>> k) & 1L) != 0) {
+          x ^= _direction[loopdim][k];
+        }
+      }
+      _x[loopdim] = x;
+    }
+    _index = index;
+  }
+
+  /**
+   * Writes the next point in the first coordinates of an array and moves to the following point. The coordinates of the point
+   * are in [0, 1); only the first point (index 0) has zero coordinates.
+   * @param point The array, not null, with length at most the dimension
+   */
+  public void nextPoint(final double[] point) {
+    ArgumentChecker.isTrue(point.length <= _x.length, "point of length {} for a sequence of dimension {}", point.length, _x.length);
+    for (int loopdim = 0; loopdim < point.length; loopdim++) {
+      point[loopdim] = _x[loopdim] * SCALE;
+    }
+    final int c = Long.numberOfTrailingZeros(~_index);
+    ArgumentChecker.isTrue(c < BITS, "Sobol sequence exhausted");
+    for (int loopdim = 0; loopdim < _x.length; loopdim++) {
+      _x[loopdim] ^= _direction[loopdim][c];
+    }
+    _index++;
+  }
+
+  /**
+   * Returns the next point and moves to the following point.
+   * @return The point
+   */
+  public double[] nextPoint() {
+    final double[] point = new double[_x.length];
+    nextPoint(point);
+    return point;
+  }
+
+  private static long[] firstDimension() {
+    final long[] v = new long[BITS];
+    for (int k = 0; k < BITS; k++) {
+      v[k] = 1L << (BITS - 1 - k);
+    }
+    return v;
+  }
+
+  /**
+   * Computes the direction numbers of one dimension.
+   * @param degree The degree of the primitive polynomial
+   * @param a The inner coefficients of the polynomial
+   * @param m The initial direction numbers
+   * @return The direction numbers
+   */
+  private static long[] directions(final int degree, final int a, final long[] m) {
+    ArgumentChecker.isTrue(degree < BITS, "polynomial degree {} too large", degree);
+    final long[] v = new long[BITS];
+    for (int k = 0; k < degree; k++) {
+      ArgumentChecker.isTrue((m[k] & 1L) == 1L && m[k] < (1L << (k + 1)), "invalid initial direction number {}", m[k]);
+      v[k] = m[k] << (BITS - 1 - k);
+    }
+    for (int k = degree; k < BITS; k++) {
+      v[k] = v[k - degree] ^ (v[k - degree] >>> degree);
+      for (int i = 1; i < degree; i++) {
+        if (((a >>> (degree - 1 - i)) & 1) != 0) {
+          v[k] ^= v[k - i];
+        }
+      }
+    }
+    return v;
+  }
+
+}
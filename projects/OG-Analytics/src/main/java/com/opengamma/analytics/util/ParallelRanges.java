@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+
+/**
+ * Runs a task on the indices 0 to n - 1 divided in contiguous ranges, one per concurrent task; the calling thread runs the first range.
+ * <p>
+ * The analytics engines share one pool with one thread per available processor, so that using several of them at once does not
+ * multiply the number of threads. A call made while running a range, in a pool thread or in the calling thread, runs all its indices
+ * sequentially in the current thread: the ranges never wait for work queued behind them in the pool, and nested engines do not
+ * oversubscribe the processors.
+ */
+public final class ParallelRanges {
+
+  /**
+   * Flag set on the threads running a range, to run nested calls sequentially.
+   */
+  private static final ThreadLocal<Boolean> IN_TASK = new ThreadLocal<>();
+
+  private ParallelRanges() {
+  }
+
+  /**
+   * The work done for a range of indices.
+   */
+  public interface RangeTask {
+
+    /**
+     * Processes a range of indices.
+     * @param first The first index (inclusive)
+     * @param last The last index (exclusive)
+     */
+    void evaluate(int first, int last);
+  }
+
+  /**
+   * Gets the pool shared by the analytics engines, with one daemon thread per available processor.
+   * @return The shared executor
+   */
+  public static ExecutorService getSharedExecutor() {
+    return ExecutorHolder.EXECUTOR;
+  }
+
+  /**
+   * Gets the number of threads of the shared pool.
+   * @return The parallelism of the shared executor
+   */
+  public static int getSharedParallelism() {
+    return ExecutorHolder.PARALLELISM;
+  }
+
+  /**
+   * Checks whether the current thread is running a range.
+   * @return true if called from a task
+   */
+  public static boolean isInTask() {
+    return Boolean.TRUE.equals(IN_TASK.get());
+  }
+
+  /**
+   * Runs a task on the indices 0 to n - 1 in contiguous ranges; the calling thread runs the first range.
+   * <p>
+   * The exception thrown by a range is rethrown if it is unchecked, wrapped in an {@link OpenGammaRuntimeException} otherwise.
+   * @param executor The executor, null to run in the calling thread
+   * @param parallelism The maximum number of concurrent ranges, positive
+   * @param n The number of indices
+   * @param task The task, not null
+   */
+  public static void run(final ExecutorService executor, final int parallelism, final int n, final RangeTask task) {
+    ArgumentChecker.isTrue(parallelism > 0, "parallelism must be positive");
+    ArgumentChecker.notNull(task, "task");
+    final int nTasks = Math.min(n, parallelism);
+    if (executor == null || nTasks <= 1 || isInTask()) {
+      if (n > 0) {
+        task.evaluate(0, n);
+      }
+      return;
+    }
+    final List<Future<?>> futures = new ArrayList<>(nTasks - 1);
+    for (int loopTask = 1; loopTask < nTasks; loopTask++) {
+      final int first = (int) ((long) loopTask * n / nTasks);
+      final int last = (int) ((long) (loopTask + 1) * n / nTasks);
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() {
+          evaluateInTask(task, first, last);
+          return null;
+        }
+      }));
+    }
+    evaluateInTask(task, 0, n / nTasks);
+    for (final Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new OpenGammaRuntimeException("Interrupted while waiting for parallel tasks", ex);
+      } catch (final ExecutionException ex) {
+        if (ex.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) ex.getCause();
+        }
+        if (ex.getCause() instanceof Error) {
+          throw (Error) ex.getCause();
+        }
+        throw new OpenGammaRuntimeException("Parallel task failed", ex.getCause());
+      }
+    }
+  }
+
+  private static void evaluateInTask(final RangeTask task, final int first, final int last) {
+    IN_TASK.set(Boolean.TRUE);
+    try {
+      task.evaluate(first, last);
+    } finally {
+      IN_TASK.remove();
+    }
+  }
+
+  /**
+   * Lazy holder of the shared executor.
+   */
+  private static final class ExecutorHolder {
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PARALLELISM, new NamedThreadPoolFactory("Analytics", true));
+  }
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.timeseries.date.DateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+
+/**
+ * Tests the alignment of return series.
+ */
+public class AlignedReturnMatrixTest {
+  private static final DateDoubleTimeSeries<?> TS1 = ImmutableLocalDateDoubleTimeSeries.of(new int[] {20130102, 20130103, 20130104, 20130107, 20130108 },
+      new double[] {1, 2, 3, 4, 5 });
+  private static final DateDoubleTimeSeries<?> TS2 = ImmutableLocalDateDoubleTimeSeries.of(new int[] {20130101, 20130103, 20130104, 20130108 },
+      new double[] {10, 20, 30, 40 });
+  private static final DateDoubleTimeSeries<?> TS3 = ImmutableLocalDateDoubleTimeSeries.of(new int[] {20130103, 20130107, 20130108, 20130109 },
+      new double[] {100, 200, 300, 400 });
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullSeries() {
+    AlignedReturnMatrix.of(TS1, null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNoSeries() {
+    AlignedReturnMatrix.of();
+  }
+
+  @Test
+  public void test() {
+    final AlignedReturnMatrix matrix = AlignedReturnMatrix.of(TS1, TS2, TS3);
+    assertEquals(3, matrix.getNumberOfSeries());
+    assertEquals(2, matrix.getNumberOfObservations());
+    assertEquals(20130103, matrix.getDates()[0]);
+    assertEquals(20130108, matrix.getDates()[1]);
+    final double[] expected = new double[] {2, 20, 100, 5, 40, 300 };
+    for (int k = 0; k < expected.length; k++) {
+      assertEquals(expected[k], matrix.getReturns()[k], 0);
+    }
+  }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * Tests the rolling window equal weight covariance matrix estimator.
+ */
+public class EqualWeightCovarianceMatrixEstimatorTest {
+  private static final int N_SERIES = 7;
+  private static final int N_OBSERVATIONS = 120;
+  private static final double[] RETURNS = new double[N_OBSERVATIONS * N_SERIES];
+
+  static {
+    final Random random = new Random(97);
+    for (int t = 0; t < N_OBSERVATIONS; t++) {
+      final double common = random.nextGaussian();
+      for (int j = 0; j < N_SERIES; j++) {
+        RETURNS[t * N_SERIES + j] = 0.01 * (common + (j + 1) * random.nextGaussian()) + 0.001;
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testShortWindow() {
+    new EqualWeightCovarianceMatrixEstimator(N_SERIES, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongNumberOfReturns() {
+    new EqualWeightCovarianceMatrixEstimator(N_SERIES, 10).initialise(new double[N_SERIES * 3 - 1], 3);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotInitialised() {
+    new EqualWeightCovarianceMatrixEstimator(N_SERIES, 10).update(new double[N_SERIES]);
+  }
+
+  @Test
+  public void testInitialise() {
+    final EqualWeightCovarianceMatrixEstimator estimator = new EqualWeightCovarianceMatrixEstimator(N_SERIES, 50);
+    estimator.initialise(RETURNS, N_OBSERVATIONS);
+    assertEquals(50, estimator.getNumberOfObservations());
+    assertMatrixEquals(sampleCovariance(N_OBSERVATIONS - 50, N_OBSERVATIONS), estimator.getCovarianceMatrix(), 1e-15);
+  }
+
+  @Test
+  public void testUpdate() {
+    final int window = 50;
+    final EqualWeightCovarianceMatrixEstimator estimator = new EqualWeightCovarianceMatrixEstimator(N_SERIES, window);
+    // fill the window, then roll it
+    estimator.initialise(subArray(0, 10), 10);
+    for (int t = 10; t < N_OBSERVATIONS; t++) {
+      estimator.update(subArray(t, t + 1));
+      final int first = Math.max(0, t + 1 - window);
+      assertEquals(t + 1 - first, estimator.getNumberOfObservations());
+      assertMatrixEquals(sampleCovariance(first, t + 1), estimator.getCovarianceMatrix(), 1e-15);
+    }
+  }
+
+  @Test
+  public void testNoDriftAfterManyWindows() {
+    final int window = 20;
+    final int nWindows = 1000;
+    final Random random = new Random(13);
+    final EqualWeightCovarianceMatrixEstimator estimator = new EqualWeightCovarianceMatrixEstimator(N_SERIES, window);
+    estimator.initialise(subArray(0, window), window);
+    final double[] last = new double[window * N_SERIES];
+    for (int t = 0; t < window * nWindows; t++) {
+      // large returns every few windows, to be cancelled by the updates removing them
+      final double scale = (t / window) % 10 == 0 && t < window * (nWindows - 2) ? 1e3 : 1e-2;
+      final double[] returns = new double[N_SERIES];
+      for (int j = 0; j < N_SERIES; j++) {
+        returns[j] = scale * (random.nextGaussian() + 5);
+      }
+      estimator.update(returns);
+      System.arraycopy(returns, 0, last, (t % window) * N_SERIES, N_SERIES);
+    }
+    final EqualWeightCovarianceMatrixEstimator fresh = new EqualWeightCovarianceMatrixEstimator(N_SERIES, window);
+    fresh.initialise(last, window);
+    assertMatrixEquals(fresh.getCovarianceMatrix(), estimator.getCovarianceMatrix(), 1e-15);
+  }
+
+  private static DoubleMatrix2D sampleCovariance(final int first, final int last) {
+    final int m = last - first;
+    final double[] mean = new double[N_SERIES];
+    for (int t = first; t < last; t++) {
+      for (int j = 0; j < N_SERIES; j++) {
+        mean[j] += RETURNS[t * N_SERIES + j] / m;
+      }
+    }
+    final double[][] result = new double[N_SERIES][N_SERIES];
+    for (int i = 0; i < N_SERIES; i++) {
+      for (int j = 0; j < N_SERIES; j++) {
+        for (int t = first; t < last; t++) {
+          result[i][j] += (RETURNS[t * N_SERIES + i] - mean[i]) * (RETURNS[t * N_SERIES + j] - mean[j]) / (m - 1);
+        }
+      }
+    }
+    return new DoubleMatrix2D(result);
+  }
+
+  private static double[] subArray(final int first, final int last) {
+    final double[] result = new double[(last - first) * N_SERIES];
+    System.arraycopy(RETURNS, first * N_SERIES, result, 0, result.length);
+    return result;
+  }
+
+  static void assertMatrixEquals(final DoubleMatrix2D expected, final DoubleMatrix2D actual, final double tolerance) {
+    assertEquals(expected.getNumberOfRows(), actual.getNumberOfRows());
+    for (int i = 0; i < expected.getNumberOfRows(); i++) {
+      for (int j = 0; j < expected.getNumberOfColumns(); j++) {
+        assertEquals(expected.getEntry(i, j), actual.getEntry(i, j), tolerance);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.covariance;
+
+import static com.opengamma.analytics.financial.covariance.EqualWeightCovarianceMatrixEstimatorTest.assertMatrixEquals;
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+
+/**
+ * Tests the EWMA covariance matrix estimator.
+ */
+public class ExponentialWeightedMovingAverageCovarianceMatrixEstimatorTest {
+  private static final double LAMBDA = 0.94;
+  private static final int N_SERIES = 5;
+  private static final int N_OBSERVATIONS = 100;
+  private static final double[] RETURNS = new double[N_OBSERVATIONS * N_SERIES];
+
+  static {
+    final Random random = new Random(31);
+    for (int t = 0; t < N_OBSERVATIONS; t++) {
+      final double common = random.nextGaussian();
+      for (int j = 0; j < N_SERIES; j++) {
+        RETURNS[t * N_SERIES + j] = 0.01 * (common + (j + 1) * random.nextGaussian());
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testLambda() {
+    new ExponentialWeightedMovingAverageCovarianceMatrixEstimator(N_SERIES, 1.1);
+  }
+
+  @Test
+  public void testInitialiseAgainstRecursion() {
+    final ExponentialWeightedMovingAverageCovarianceMatrixEstimator estimator = new ExponentialWeightedMovingAverageCovarianceMatrixEstimator(N_SERIES, LAMBDA);
+    estimator.initialise(RETURNS, N_OBSERVATIONS);
+    assertEquals(N_OBSERVATIONS, estimator.getNumberOfObservations());
+    assertMatrixEquals(recursion(N_OBSERVATIONS), estimator.getCovarianceMatrix(), 1e-15);
+    // the diagonal is the EWMA variance of each series
+    for (int j = 0; j < N_SERIES; j++) {
+      double variance = RETURNS[j] * RETURNS[j];
+      for (int t = 1; t < N_OBSERVATIONS; t++) {
+        final double r = RETURNS[t * N_SERIES + j];
+        variance = LAMBDA * variance + (1 - LAMBDA) * r * r;
+      }
+      assertEquals(variance, estimator.getCovarianceMatrix().getEntry(j, j), 1e-15);
+    }
+  }
+
+  @Test
+  public void testUpdate() {
+    final ExponentialWeightedMovingAverageCovarianceMatrixEstimator estimator = new ExponentialWeightedMovingAverageCovarianceMatrixEstimator(N_SERIES, LAMBDA);
+    final double[] first = new double[20 * N_SERIES];
+    System.arraycopy(RETURNS, 0, first, 0, first.length);
+    estimator.initialise(first, 20);
+    final double[] next = new double[N_SERIES];
+    for (int t = 20; t < N_OBSERVATIONS; t++) {
+      System.arraycopy(RETURNS, t * N_SERIES, next, 0, N_SERIES);
+      estimator.update(next);
+    }
+    assertMatrixEquals(recursion(N_OBSERVATIONS), estimator.getCovarianceMatrix(), 1e-15);
+  }
+
+  private static DoubleMatrix2D recursion(final int nObservations) {
+    final double[][] result = new double[N_SERIES][N_SERIES];
+    for (int t = 0; t < nObservations; t++) {
+      for (int i = 0; i < N_SERIES; i++) {
+        for (int j = 0; j < N_SERIES; j++) {
+          final double product = RETURNS[t * N_SERIES + i] * RETURNS[t * N_SERIES + j];
+          result[i][j] = t == 0 ? product : LAMBDA * result[i][j] + (1 - LAMBDA) * product;
+        }
+      }
+    }
+    return new DoubleMatrix2D(result);
+  }
+
+}
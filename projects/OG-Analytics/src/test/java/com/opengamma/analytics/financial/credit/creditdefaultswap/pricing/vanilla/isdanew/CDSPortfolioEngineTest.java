@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.vanilla.isdanew;
+
+import static com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.vanilla.isdanew.IMMDateLogic.getIMMDateSet;
+import static com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.vanilla.isdanew.IMMDateLogic.getNextIMMDate;
+import static com.opengamma.financial.convention.businessday.BusinessDayDateUtils.addWorkDays;
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.Month;
+import org.threeten.bp.Period;
+
+import com.opengamma.analytics.financial.credit.PriceType;
+
+/**
+ * Tests the portfolio CDS engine against the single name calibration, pricing and spread sensitivity calculations.
+ */
+public class CDSPortfolioEngineTest extends ISDABaseTest {
+
+  private static final LocalDate TRADE_DATE = LocalDate.of(2011, Month.JUNE, 14);
+  private static final LocalDate STEPIN = TRADE_DATE.plusDays(1);
+  private static final LocalDate CASH_SETTLE_DATE = addWorkDays(TRADE_DATE, 3, DEFAULT_CALENDAR);
+  private static final LocalDate STARTDATE = LocalDate.of(2011, Month.MARCH, 20);
+  private static final Period[] TENORS = new Period[] {Period.ofMonths(6), Period.ofYears(1), Period.ofYears(3), Period.ofYears(5), Period.ofYears(7), Period.ofYears(10) };
+  private static final LocalDate[] PILLAR_DATES = getIMMDateSet(getNextIMMDate(TRADE_DATE), TENORS);
+
+  private static final LocalDate SPOT_DATE = LocalDate.of(2011, Month.JUNE, 15);
+  private static final String[] YIELD_CURVE_POINTS = new String[] {"1M", "2M", "3M", "6M", "9M", "1Y", "2Y", "3Y", "4Y", "5Y", "6Y", "7Y", "8Y", "9Y", "10Y", "11Y", "12Y", "15Y", "20Y", "25Y", "30Y" };
+  private static final String[] YIELD_CURVE_INSTRUMENTS = new String[] {"M", "M", "M", "M", "M", "M", "S", "S", "S", "S", "S", "S", "S", "S", "S", "S", "S", "S", "S", "S", "S" };
+  private static final double[] YIELD_CURVE_RATES = new double[] {0.00445, 0.009488, 0.012337, 0.017762, 0.01935, 0.020838, 0.01652, 0.02018, 0.023033, 0.02525, 0.02696, 0.02825, 0.02931, 0.03017,
+    0.03092, 0.0316, 0.03231, 0.03367, 0.03419, 0.03411, 0.03412 };
+  private static final ISDACompliantYieldCurve YIELD_CURVE = makeYieldCurve(TRADE_DATE, SPOT_DATE, YIELD_CURVE_POINTS, YIELD_CURVE_INSTRUMENTS, YIELD_CURVE_RATES, ACT360, D30360, Period.ofYears(1));
+
+  private static final double[] BASE_SPREADS = new double[] {0.007926718, 0.007926718, 0.012239372, 0.016978579, 0.019270856, 0.02086048 };
+  private static final int N_NAMES = 25;
+  private static final CDSAnalytic[] PILLAR_CDSS;
+  private static final CDSAnalytic TRADE;
+  private static final double[] RECOVERY_RATES = new double[N_NAMES];
+  private static final double[][] PAR_SPREADS = new double[N_NAMES][];
+  private static final double[] COUPONS = new double[N_NAMES];
+
+  private static final FastCreditCurveBuilder BUILDER = new FastCreditCurveBuilder();
+  private static final AnalyticCDSPricer PRICER = new AnalyticCDSPricer();
+  private static final SpreadSensitivityCalculator CS01_CAL = new SpreadSensitivityCalculator();
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(3);
+
+  static {
+    final int nPillars = PILLAR_DATES.length;
+    PILLAR_CDSS = new CDSAnalytic[nPillars];
+    for (int i = 0; i < nPillars; i++) {
+      PILLAR_CDSS[i] = new CDSAnalytic(TRADE_DATE, STEPIN, CASH_SETTLE_DATE, STARTDATE, PILLAR_DATES[i], PAY_ACC_ON_DEFAULT, PAYMENT_INTERVAL, STUB, PROCTECTION_START, RECOVERY_RATE);
+    }
+    TRADE = new CDSAnalytic(TRADE_DATE, STEPIN, CASH_SETTLE_DATE, STARTDATE, LocalDate.of(2016, Month.SEPTEMBER, 20), PAY_ACC_ON_DEFAULT, PAYMENT_INTERVAL, STUB, PROCTECTION_START,
+        RECOVERY_RATE);
+
+    for (int i = 0; i < N_NAMES; i++) {
+      RECOVERY_RATES[i] = 0.2 + 0.02 * (i % 11);
+      COUPONS[i] = i % 2 == 0 ? 0.01 : 0.05;
+      PAR_SPREADS[i] = new double[nPillars];
+      for (int j = 0; j < nPillars; j++) {
+        PAR_SPREADS[i][j] = BASE_SPREADS[j] * (0.5 + 0.1 * i);
+      }
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    EXECUTOR.shutdown();
+  }
+
+  @Test
+  public void calibrationTest() {
+    final CDSPortfolioEngine engine = new CDSPortfolioEngine(false, EXECUTOR, 3);
+    final ISDACompliantCreditCurve[] curves = engine.calibrateCreditCurves(PILLAR_CDSS, RECOVERY_RATES, PAR_SPREADS, YIELD_CURVE);
+    assertEquals(N_NAMES, curves.length);
+    final int nPillars = PILLAR_CDSS.length;
+    final CDSAnalytic[] nameCDSs = new CDSAnalytic[nPillars];
+    for (int i = 0; i < N_NAMES; i++) {
+      for (int j = 0; j < nPillars; j++) {
+        nameCDSs[j] = PILLAR_CDSS[j].withRecoveryRate(RECOVERY_RATES[i]);
+      }
+      final ISDACompliantCreditCurve expected = BUILDER.calibrateCreditCurve(nameCDSs, PAR_SPREADS[i], YIELD_CURVE);
+      for (int j = 0; j < nPillars; j++) {
+        assertEquals(expected.getZeroRateAtIndex(j), curves[i].getZeroRateAtIndex(j), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void pvTest() {
+    final CDSPortfolioEngine engine = new CDSPortfolioEngine(false, EXECUTOR, 3);
+    final ISDACompliantCreditCurve[] curves = engine.calibrateCreditCurves(PILLAR_CDSS, RECOVERY_RATES, PAR_SPREADS, YIELD_CURVE);
+    for (final PriceType priceType : PriceType.values()) {
+      final double[] pv = engine.pv(TRADE, RECOVERY_RATES, COUPONS, YIELD_CURVE, curves, priceType);
+      for (int i = 0; i < N_NAMES; i++) {
+        final double expected = PRICER.pv(TRADE.withRecoveryRate(RECOVERY_RATES[i]), YIELD_CURVE, curves[i], COUPONS[i], priceType);
+        assertEquals(expected, pv[i], 1e-14);
+      }
+    }
+  }
+
+  @Test
+  public void cs01Test() {
+    final CDSPortfolioEngine engine = new CDSPortfolioEngine(false, EXECUTOR, 3);
+    final ISDACompliantCreditCurve[] curves = engine.calibrateCreditCurves(PILLAR_CDSS, RECOVERY_RATES, PAR_SPREADS, YIELD_CURVE);
+    final double[][] cs01 = engine.bucketedCS01(TRADE, RECOVERY_RATES, COUPONS, PILLAR_CDSS, YIELD_CURVE, curves);
+    final int nPillars = PILLAR_CDSS.length;
+    final CDSAnalytic[] nameCDSs = new CDSAnalytic[nPillars];
+    for (int i = 0; i < N_NAMES; i++) {
+      for (int j = 0; j < nPillars; j++) {
+        nameCDSs[j] = PILLAR_CDSS[j].withRecoveryRate(RECOVERY_RATES[i]);
+      }
+      final double[] expected = CS01_CAL.analyticCS01FromCreditCurve(TRADE.withRecoveryRate(RECOVERY_RATES[i]), COUPONS[i], nameCDSs, YIELD_CURVE, curves[i]);
+      for (int j = 0; j < nPillars; j++) {
+        assertEquals(expected[j], cs01[i][j], 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void parallelTest() {
+    final CDSPortfolioEngine sequential = new CDSPortfolioEngine(false, null, 1);
+    final CDSPortfolioEngine parallel = new CDSPortfolioEngine(false, EXECUTOR, 3);
+    final ISDACompliantCreditCurve[] curves1 = sequential.calibrateCreditCurves(PILLAR_CDSS, RECOVERY_RATES, PAR_SPREADS, YIELD_CURVE);
+    final ISDACompliantCreditCurve[] curves2 = parallel.calibrateCreditCurves(PILLAR_CDSS, RECOVERY_RATES, PAR_SPREADS, YIELD_CURVE);
+    final double[][] cs01a = sequential.bucketedCS01(TRADE, RECOVERY_RATES, COUPONS, PILLAR_CDSS, YIELD_CURVE, curves1);
+    final double[][] cs01b = parallel.bucketedCS01(TRADE, RECOVERY_RATES, COUPONS, PILLAR_CDSS, YIELD_CURVE, curves2);
+    for (int i = 0; i < N_NAMES; i++) {
+      for (int j = 0; j < PILLAR_CDSS.length; j++) {
+        assertEquals(curves1[i].getZeroRateAtIndex(j), curves2[i].getZeroRateAtIndex(j), 0.0);
+        assertEquals(cs01a[i][j], cs01b[i][j], 0.0);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void mismatchedNamesTest() {
+    new CDSPortfolioEngine().calibrateCreditCurves(PILLAR_CDSS, new double[] {0.4, 0.4 }, PAR_SPREADS, YIELD_CURVE);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void invalidRecoveryRateTest() {
+    final double[] recoveryRates = RECOVERY_RATES.clone();
+    recoveryRates[N_NAMES - 1] = 1.0;
+    new CDSPortfolioEngine(false, EXECUTOR, 3).calibrateCreditCurves(PILLAR_CDSS, recoveryRates, PAR_SPREADS, YIELD_CURVE);
+  }
+
+  @Test
+  public void cs01OtherKnotsTest() {
+    // credit curves whose knots are not the pillar protection ends are priced without the shared schedules
+    final CDSPortfolioEngine engine = new CDSPortfolioEngine(false, EXECUTOR, 3);
+    final ISDACompliantCreditCurve[] curves = engine.calibrateCreditCurves(PILLAR_CDSS, RECOVERY_RATES, PAR_SPREADS, YIELD_CURVE);
+    final int nPillars = PILLAR_CDSS.length;
+    final ISDACompliantCreditCurve[] shifted = new ISDACompliantCreditCurve[N_NAMES];
+    for (int i = 0; i < N_NAMES; i++) {
+      final double[] knots = curves[i].getKnotTimes();
+      final double[] rates = new double[nPillars];
+      for (int j = 0; j < nPillars; j++) {
+        knots[j] += 0.01;
+        rates[j] = curves[i].getZeroRateAtIndex(j);
+      }
+      shifted[i] = new ISDACompliantCreditCurve(knots, rates);
+    }
+    final double[][] cs01 = engine.bucketedCS01(TRADE, RECOVERY_RATES, COUPONS, PILLAR_CDSS, YIELD_CURVE, shifted);
+    final CDSAnalytic[] nameCDSs = new CDSAnalytic[nPillars];
+    for (int i = 0; i < N_NAMES; i++) {
+      for (int j = 0; j < nPillars; j++) {
+        nameCDSs[j] = PILLAR_CDSS[j].withRecoveryRate(RECOVERY_RATES[i]);
+      }
+      final double[] expected = CS01_CAL.analyticCS01FromCreditCurve(TRADE.withRecoveryRate(RECOVERY_RATES[i]), COUPONS[i], nameCDSs, YIELD_CURVE, shifted[i]);
+      for (int j = 0; j < nPillars; j++) {
+        assertEquals(expected[j], cs01[i][j], 1e-12);
+      }
+    }
+  }
+
+}
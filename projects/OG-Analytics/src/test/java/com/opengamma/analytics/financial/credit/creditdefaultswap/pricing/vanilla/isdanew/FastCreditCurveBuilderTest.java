@@ -8,8 +8,11 @@ package com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.vanil
 import static org.testng.AssertJUnit.assertEquals;
 
 import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.Period;
 
 import com.opengamma.analytics.financial.credit.PriceType;
+import com.opengamma.analytics.financial.credit.StubType;
 import com.opengamma.analytics.financial.credit.creditdefaultswap.pricing.vanilla.isdanew.FastCreditCurveBuilder.Pricer;
 
 /**
@@ -120,4 +123,28 @@ public class FastCreditCurveBuilderTest extends CreditCurveCalibrationTest {
     assertEquals("pro-leg", proLeg1, proLeg2, 1e-13);
     assertEquals("prem-leg", premLeg1, premLeg2, 1e-13);
   }
+
+  @Test
+  public void internalPricerSensitivityTest() {
+    for (final boolean useCorrectAccOnDefaultFormula : new boolean[] {false, true }) {
+      final AnalyticCDSPricer testedPricer = new AnalyticCDSPricer(useCorrectAccOnDefaultFormula);
+      final Pricer pricer = new FastCreditCurveBuilder(useCorrectAccOnDefaultFormula).new Pricer(CDS, YIELD_CURVE, CREDIT_CURVE_KNOTS, DEAL_SPREAD / 10000., 0.0);
+      for (int node = 0; node < CREDIT_CURVE_KNOTS.length; node++) {
+        final double proLegSense1 = testedPricer.protectionLegCreditSensitivity(CDS, YIELD_CURVE, CREDIT_CURVE, node);
+        final double proLegSense2 = pricer.protectionLegCreditSensitivity(CREDIT_CURVE, node);
+        final double premLegSense1 = testedPricer.pvPremiumLegCreditSensitivity(CDS, YIELD_CURVE, CREDIT_CURVE, node);
+        final double premLegSense2 = pricer.rpv01CreditSensitivity(CREDIT_CURVE, node);
+        assertEquals("pro-leg sensitivity", proLegSense1, proLegSense2, 1e-13);
+        assertEquals("prem-leg sensitivity", premLegSense1, premLegSense2, 1e-13);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void invalidRecoveryRateTest() {
+    final LocalDate today = LocalDate.of(2013, 4, 21);
+    final LocalDate[] endDates = new LocalDate[] {LocalDate.of(2014, 6, 20), LocalDate.of(2018, 6, 20) };
+    BUILDER.calibrateCreditCurve(today, today.plusDays(1), today.plusDays(3), LocalDate.of(2013, 3, 20), endDates, new double[] {0.01, 0.01 }, true, Period.ofMonths(3),
+        StubType.FRONTSHORT, true, YIELD_CURVE, 1.0);
+  }
 }
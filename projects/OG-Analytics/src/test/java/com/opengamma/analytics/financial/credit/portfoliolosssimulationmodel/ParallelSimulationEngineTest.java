@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.credit.portfoliolosssimulationmodel;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.credit.recoveryratemodel.RecoveryRateModel;
+import com.opengamma.analytics.financial.credit.underlyingpool.UnderlyingPoolDummyPool;
+import com.opengamma.analytics.financial.credit.underlyingpool.definition.UnderlyingPool;
+
+/**
+ * Tests of the parallel portfolio loss simulation and of the loss distribution sketch
+ */
+public class ParallelSimulationEngineTest {
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  private static final int numberOfObligors = 200;
+  private static final int numberOfSimulations = 20000;
+  private static final long seed = 987654321L;
+
+  private static final SimulationMethods simMethods = new SimulationMethods();
+
+  private static final double[] rho = simMethods.constructCorrelationVector(numberOfObligors, 0.4);
+  private static final double[] defaultProbability = simMethods.constructDefaultProbabilityVector(numberOfObligors, 0.02);
+  private static final double[] lossGivenDefault = new double[numberOfObligors];
+
+  static {
+    for (int i = 0; i < numberOfObligors; i++) {
+      lossGivenDefault[i] = 1000000.0 * (1 + i % 5) * 0.6;
+    }
+  }
+
+  private static final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+  @AfterClass
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  @Test
+  public void testSketchAgainstSortedLosses() {
+
+    final double upperBound = 100.0;
+    final int numberOfBins = 1000;
+    final double binWidth = upperBound / numberOfBins;
+
+    final Random random = new Random(123);
+    final double[] losses = new double[10000];
+
+    final LossDistributionSketch sketch = new LossDistributionSketch(upperBound, numberOfBins);
+
+    for (int alpha = 0; alpha < losses.length; alpha++) {
+      losses[alpha] = upperBound * random.nextDouble() * random.nextDouble();
+      sketch.add(losses[alpha]);
+    }
+
+    Arrays.sort(losses);
+
+    double mean = 0.0;
+    for (final double loss : losses) {
+      mean += loss;
+    }
+    mean /= losses.length;
+
+    assertEquals(losses.length, sketch.getNumberOfScenarios());
+    assertEquals(mean, sketch.getExpectedLoss(), 1e-10);
+    assertEquals(losses[0], sketch.getMinimumLoss(), 0.0);
+    assertEquals(losses[losses.length - 1], sketch.getMaximumLoss(), 0.0);
+
+    for (final double confidenceLevel : new double[] {0.5, 0.9, 0.99, 0.999 }) {
+
+      final int tailStart = (int) Math.ceil(confidenceLevel * losses.length);
+
+      double tailSum = 0.0;
+      for (int alpha = tailStart; alpha < losses.length; alpha++) {
+        tailSum += losses[alpha];
+      }
+
+      assertEquals(losses[tailStart - 1], sketch.getQuantile(confidenceLevel), binWidth);
+      assertEquals(tailSum / (losses.length - tailStart), sketch.getExpectedShortfall(confidenceLevel), binWidth);
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  @Test
+  public void testSketchDiscreteLossesAreExact() {
+
+    final LossDistributionSketch sketch = new LossDistributionSketch(10.0, 7);
+
+    // 90 scenarios without loss, 9 with a loss of 3 and 1 with a loss of 10
+    for (int alpha = 0; alpha < 100; alpha++) {
+      sketch.add(alpha < 90 ? 0.0 : (alpha < 99 ? 3.0 : 10.0));
+    }
+
+    assertEquals(0.0, sketch.getQuantile(0.9), 0.0);
+    assertEquals(3.0, sketch.getQuantile(0.95), 0.0);
+    assertEquals(3.0, sketch.getQuantile(0.99), 0.0);
+    assertEquals(10.0, sketch.getQuantile(0.995), 0.0);
+    assertEquals((9 * 3.0 + 10.0) / 10.0, sketch.getExpectedShortfall(0.9), 1e-12);
+    assertEquals(10.0, sketch.getExpectedShortfall(0.99), 1e-12);
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  @Test
+  public void testSketchCombine() {
+
+    final Random random = new Random(456);
+
+    final LossDistributionSketch all = new LossDistributionSketch(1.0, 64);
+    final LossDistributionSketch first = new LossDistributionSketch(1.0, 64);
+    final LossDistributionSketch second = new LossDistributionSketch(1.0, 64);
+
+    for (int alpha = 0; alpha < 1000; alpha++) {
+      final double loss = random.nextDouble();
+      all.add(loss);
+      (alpha < 300 ? first : second).add(loss);
+    }
+
+    first.combine(second);
+
+    assertEquals(all.getNumberOfScenarios(), first.getNumberOfScenarios());
+    assertEquals(all.getExpectedLoss(), first.getExpectedLoss(), 1e-14);
+    assertEquals(all.getStandardDeviation(), first.getStandardDeviation(), 1e-14);
+    assertEquals(all.getQuantile(0.95), first.getQuantile(0.95), 0.0);
+    assertEquals(all.getExpectedShortfall(0.95), first.getExpectedShortfall(0.95), 1e-14);
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSketchCombineDifferentBins() {
+    new LossDistributionSketch(1.0, 64).combine(new LossDistributionSketch(1.0, 32));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSketchConfidenceLevelAboveOne() {
+    final LossDistributionSketch sketch = new LossDistributionSketch(1.0, 64);
+    sketch.add(0.5);
+    sketch.getQuantile(1.5);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSketchConfidenceLevelBelowZero() {
+    final LossDistributionSketch sketch = new LossDistributionSketch(1.0, 64);
+    sketch.add(0.5);
+    sketch.getExpectedShortfall(-0.1);
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRhoAboveOne() {
+    runWithObligor(0, 1.5, 0.02);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRhoBelowMinusOne() {
+    runWithObligor(numberOfObligors - 1, -1.5, 0.02);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDefaultProbabilityAboveOne() {
+    runWithObligor(0, 0.4, 1.5);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDefaultProbabilityBelowZero() {
+    runWithObligor(numberOfObligors - 1, 0.4, -0.1);
+  }
+
+  @Test
+  public void testBoundaryInputsAccepted() {
+    // An obligor with a default probability of 1 defaults in every scenario
+    assertTrue(runWithObligor(0, 1.0, 1.0).getMinimumLoss() >= lossGivenDefault[0]);
+    runWithObligor(0, -1.0, 0.0);
+  }
+
+  private static LossDistributionSketch runWithObligor(final int obligor, final double obligorRho, final double obligorDefaultProbability) {
+
+    final double[] modifiedRho = rho.clone();
+    final double[] modifiedDefaultProbability = defaultProbability.clone();
+
+    modifiedRho[obligor] = obligorRho;
+    modifiedDefaultProbability[obligor] = obligorDefaultProbability;
+
+    return new ParallelSimulationEngine(64, 50, null, 1).runSimulation(modifiedRho, modifiedDefaultProbability, lossGivenDefault, 100, seed);
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  @Test
+  public void testResultsDoNotDependOnTheNumberOfThreads() {
+
+    final LossDistributionSketch sequential = new ParallelSimulationEngine(4096, 500, null, 1).runSimulation(rho, defaultProbability, lossGivenDefault, numberOfSimulations, seed);
+    final LossDistributionSketch parallel = new ParallelSimulationEngine(4096, 500, executor, 3).runSimulation(rho, defaultProbability, lossGivenDefault, numberOfSimulations, seed);
+    final LossDistributionSketch otherChunks = new ParallelSimulationEngine(4096, 777, executor, 3).runSimulation(rho, defaultProbability, lossGivenDefault, numberOfSimulations, seed);
+
+    for (final LossDistributionSketch sketch : new LossDistributionSketch[] {parallel, otherChunks }) {
+
+      assertEquals(numberOfSimulations, sketch.getNumberOfScenarios());
+      assertEquals(sequential.getExpectedLoss(), sketch.getExpectedLoss(), 1e-12 * sequential.getExpectedLoss());
+      assertEquals(sequential.getStandardDeviation(), sketch.getStandardDeviation(), 1e-10 * sequential.getStandardDeviation());
+
+      for (final double confidenceLevel : new double[] {0.9, 0.99, 0.999 }) {
+        assertEquals(sequential.getQuantile(confidenceLevel), sketch.getQuantile(confidenceLevel), 0.0);
+        assertEquals(sequential.getExpectedShortfall(confidenceLevel), sketch.getExpectedShortfall(confidenceLevel), 1e-12 * sequential.getExpectedShortfall(confidenceLevel));
+      }
+    }
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  @Test
+  public void testExpectedLoss() {
+
+    final LossDistributionSketch sketch = new ParallelSimulationEngine(4096, 1000, executor, 3).runSimulation(rho, defaultProbability, lossGivenDefault, numberOfSimulations,
+        seed);
+
+    double expectedLoss = 0.0;
+    for (int i = 0; i < numberOfObligors; i++) {
+      expectedLoss += defaultProbability[i] * lossGivenDefault[i];
+    }
+
+    final double standardError = sketch.getStandardDeviation() / Math.sqrt(numberOfSimulations);
+
+    assertEquals(expectedLoss, sketch.getExpectedLoss(), 4.0 * standardError);
+    assertTrue(sketch.getQuantile(0.99) > sketch.getQuantile(0.9));
+    assertTrue(sketch.getExpectedShortfall(0.99) >= sketch.getQuantile(0.99));
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+
+  @Test
+  public void testScenarioGenerator() {
+
+    final UnderlyingPool obligorUniverse = new UnderlyingPoolDummyPool().constructPool();
+    final int n = obligorUniverse.getNumberOfObligors();
+
+    final RecoveryRateModel[] recoveryRateModels = simMethods.constructRecoveryRateModels(n);
+
+    final ScenarioGenerator scenarioGenerator = new ScenarioGenerator(obligorUniverse, recoveryRateModels, 5000, 987654321, 987654321, 1.0,
+        simMethods.constructCorrelationVector(n, 0.5), simMethods.constructCorrelationVector(n, 0.0), simMethods.constructDefaultProbabilityVector(n, 0.1));
+
+    final LossDistributionSketch sketch = new ParallelSimulationEngine().runSimulation(scenarioGenerator);
+
+    double totalLossGivenDefault = 0.0;
+    for (int i = 0; i < n; i++) {
+      totalLossGivenDefault += obligorUniverse.getObligorNotionals()[i] * (1.0 - recoveryRateModels[i].getRecoveryRate());
+    }
+
+    assertEquals(5000, sketch.getNumberOfScenarios());
+    assertEquals(totalLossGivenDefault, sketch.getLossUpperBound(), 1e-6);
+    assertEquals(0.1 * totalLossGivenDefault, sketch.getExpectedLoss(), 0.02 * totalLossGivenDefault);
+  }
+
+  // ----------------------------------------------------------------------------------------------------------------------------------------
+}
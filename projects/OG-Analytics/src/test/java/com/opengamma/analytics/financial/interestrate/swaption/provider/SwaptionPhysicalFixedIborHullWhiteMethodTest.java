@@ -50,6 +50,7 @@ import com.opengamma.analytics.financial.provider.sensitivity.parameter.Paramete
 import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
 import com.opengamma.analytics.financial.util.AssertSensivityObjects;
 import com.opengamma.analytics.math.random.NormalRandomNumberGenerator;
+import com.opengamma.analytics.math.random.SobolNormalRandomNumberGenerator;
 import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
 import com.opengamma.analytics.math.statistics.distribution.ProbabilityDistribution;
 import com.opengamma.financial.convention.calendar.Calendar;
@@ -269,6 +270,17 @@ public class SwaptionPhysicalFixedIborHullWhiteMethodTest {
     assertEquals("Swaption physical - Hull-White - Monte Carlo - payer/receiver/swap parity", pvReceiverLongMC.getAmount(EUR) + pvPayerShortMC.getAmount(EUR), pvSwap.getAmount(EUR), 1.0E+5);
   }
 
+  @Test
+  /**
+   * Compare explicit formula with quasi Monte-Carlo (Sobol sequence with Brownian bridge) on a small number of paths.
+   */
+  public void presentValueQuasiMonteCarlo() {
+    final HullWhiteMonteCarloMethod methodQMC = new HullWhiteMonteCarloMethod(new SobolNormalRandomNumberGenerator(10), 4095);
+    final MultipleCurrencyAmount pvPayerLongExplicit = METHOD_HW.presentValue(SWAPTION_LONG_PAYER, HW_MULTICURVES);
+    final MultipleCurrencyAmount pvPayerLongQMC = methodQMC.presentValue(SWAPTION_LONG_PAYER, EUR, HW_MULTICURVES);
+    assertEquals("Swaption physical - Hull-White - Quasi Monte Carlo", pvPayerLongExplicit.getAmount(EUR), pvPayerLongQMC.getAmount(EUR), 2.0E+3);
+  }
+
   @Test
   /**
    * Tests the Hull-White parameters sensitivity for the explicit formula.
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.finitedifference;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.finitedifference.applications.InitialConditionsProvider;
+import com.opengamma.analytics.financial.model.finitedifference.applications.PDE1DCoefficientsProvider;
+
+/**
+ * Test {@link ConvectionDiffusionPDEBatchSolver}.
+ */
+public class ConvectionDiffusionPDEBatchSolverTest {
+
+  private static final PDE1DCoefficientsProvider PDE_PROVIDER = new PDE1DCoefficientsProvider();
+  private static final InitialConditionsProvider INITIAL_CONDITION_PROVIDER = new InitialConditionsProvider();
+  private static final double FORWARD = 1.0;
+  private static final double T = 2.0;
+  private static final ConvectionDiffusionPDE1DCoefficients DATA = PDE_PROVIDER.getBlackScholes(0.03, 0.0, 0.25);
+  private static final BoundaryCondition LOWER = new DirichletBoundaryCondition(0.0, 0.0);
+  private static final BoundaryCondition UPPER = new NeumannBoundaryCondition(1.0, 5.0 * FORWARD, false);
+  private static final PDEGrid1D GRID = new PDEGrid1D(51, 101, T, LOWER.getLevel(), UPPER.getLevel());
+  private static final double[] STRIKES = new double[] {0.5, 0.6, 0.7, 0.8, 0.9, 1.0, 1.1, 1.2, 1.3, 1.5, 1.75, 2.0, 2.5};
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(3);
+
+  @AfterClass
+  public void tearDown() {
+    EXECUTOR.shutdown();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullSolver() {
+    new ConvectionDiffusionPDEBatchSolver(null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testEmpty() {
+    new ConvectionDiffusionPDEBatchSolver(new ThetaMethodFiniteDifference()).solve(new ArrayList<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>>());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDifferentGrids() {
+    final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdes = getPDEs();
+    final PDEGrid1D grid = new PDEGrid1D(21, 101, T, LOWER.getLevel(), UPPER.getLevel());
+    pdes.add(new PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>(DATA, INITIAL_CONDITION_PROVIDER.getEuropeanPayoff(1.0, true), LOWER, UPPER, grid));
+    new ConvectionDiffusionPDEBatchSolver(new ThetaMethodFiniteDifference()).solve(pdes);
+  }
+
+  @Test
+  public void testSameAsSequential() {
+    final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdes = getPDEs();
+    for (final boolean showFullResults : new boolean[] {false, true}) {
+      final ThetaMethodFiniteDifference solver = new ThetaMethodFiniteDifference(0.55, showFullResults);
+      final ConvectionDiffusionPDEBatchSolver[] batchSolvers = new ConvectionDiffusionPDEBatchSolver[] {new ConvectionDiffusionPDEBatchSolver(solver),
+        new ConvectionDiffusionPDEBatchSolver(solver, EXECUTOR, 3), new ConvectionDiffusionPDEBatchSolver(solver, null, 1) };
+      for (final ConvectionDiffusionPDEBatchSolver batchSolver : batchSolvers) {
+        final PDEResults1D[] results = batchSolver.solve(pdes);
+        assertEquals(pdes.size(), results.length);
+        for (int i = 0; i < pdes.size(); i++) {
+          final PDEResults1D expected = solver.solve(pdes.get(i));
+          for (int j = 0; j < GRID.getNumSpaceNodes(); j++) {
+            assertEquals(expected.getFunctionValue(j), results[i].getFunctionValue(j), 0.0);
+          }
+        }
+      }
+    }
+  }
+
+  private static List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> getPDEs() {
+    final List<PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>> pdes = new ArrayList<>();
+    for (final double strike : STRIKES) {
+      pdes.add(new PDE1DDataBundle<ConvectionDiffusionPDE1DCoefficients>(DATA, INITIAL_CONDITION_PROVIDER.getEuropeanPayoff(strike, true), LOWER, UPPER, GRID));
+    }
+    return pdes;
+  }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.option.pricing.fourier;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the cached pricer against {@link FFTPricer}.
+ */
+public class CachedFFTPricerTest {
+  private static final FFTPricer PRICER = new FFTPricer();
+  private static final double FORWARD = 100;
+  private static final double T = 1.5;
+  private static final double DF = 0.96;
+  private static final double ALPHA = -0.5;
+  private static final double TOL = 1e-9;
+  private static final double SIGMA = 0.3;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testZeroSize() {
+    new CachedFFTPricer(0);
+  }
+
+  @Test
+  public void testAgainstFFTPricer() {
+    final CachedFFTPricer cachedPricer = new CachedFFTPricer();
+    final MartingaleCharacteristicExponent heston = new HestonCharacteristicExponent(1.0, 0.09, 0.08, 0.4, -0.6);
+    final boolean[] isCall = new boolean[] {true, false };
+    for (final boolean call : isCall) {
+      final double[][] expected = PRICER.price(FORWARD, DF, T, call, heston, 60, 140, 21, SIGMA, ALPHA, TOL);
+      // the second call uses the cached grid
+      for (int loop = 0; loop < 2; loop++) {
+        assertPricesEqual(expected, cachedPricer.price(FORWARD, DF, T, call, heston, 60, 140, 21, SIGMA, ALPHA, TOL));
+      }
+    }
+    // calls and puts, and any forward and discount factor, share the grid
+    assertEquals(1, cachedPricer.getNumberOfCachedTransforms());
+    assertPricesEqual(PRICER.price(90, 0.9, T, true, heston, 60, 140, 21, SIGMA, ALPHA, TOL), cachedPricer.price(90, 0.9, T, true, heston, 60, 140, 21, SIGMA, ALPHA, TOL));
+    assertEquals(1, cachedPricer.getNumberOfCachedTransforms());
+    // equal parameters give the same grid
+    final MartingaleCharacteristicExponent sameHeston = new HestonCharacteristicExponent(1.0, 0.09, 0.08, 0.4, -0.6);
+    cachedPricer.price(FORWARD, DF, T, true, sameHeston, 60, 140, 21, SIGMA, ALPHA, TOL);
+    assertEquals(1, cachedPricer.getNumberOfCachedTransforms());
+    final MartingaleCharacteristicExponent otherHeston = new HestonCharacteristicExponent(1.0, 0.09, 0.08, 0.5, -0.6);
+    assertPricesEqual(PRICER.price(FORWARD, DF, T, true, otherHeston, 60, 140, 21, SIGMA, ALPHA, TOL),
+        cachedPricer.price(FORWARD, DF, T, true, otherHeston, 60, 140, 21, SIGMA, ALPHA, TOL));
+    assertEquals(2, cachedPricer.getNumberOfCachedTransforms());
+    cachedPricer.clear();
+    assertEquals(0, cachedPricer.getNumberOfCachedTransforms());
+  }
+
+  @Test
+  public void testMaximumSize() {
+    final CachedFFTPricer cachedPricer = new CachedFFTPricer(2);
+    for (int i = 0; i < 5; i++) {
+      final MartingaleCharacteristicExponent ce = new GaussianMartingaleCharacteristicExponent(0.2 + 0.01 * i);
+      assertPricesEqual(PRICER.price(FORWARD, DF, T, true, ce, 11, 0.05, SIGMA, ALPHA, TOL), cachedPricer.price(FORWARD, DF, T, true, ce, 11, 0.05, SIGMA, ALPHA, TOL));
+    }
+    assertEquals(2, cachedPricer.getNumberOfCachedTransforms());
+  }
+
+  private static void assertPricesEqual(final double[][] expected, final double[][] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i][0], actual[i][0], 0);
+      assertEquals(expected[i][1], actual[i][1], 0);
+    }
+  }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.option.pricing.tree;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.greeks.Greek;
+import com.opengamma.analytics.financial.greeks.GreekResultCollection;
+
+/**
+ * Tests the batch pricing against the pricing of each option with {@link BinomialTreeOptionPricingModel}.
+ */
+public class BinomialTreeBatchOptionPricingModelTest {
+  private static final BinomialTreeOptionPricingModel MODEL = new BinomialTreeOptionPricingModel();
+  private static final BinomialTreeBatchOptionPricingModel BATCH_MODEL = new BinomialTreeBatchOptionPricingModel();
+  private static final double SPOT = 105.;
+  private static final double[] STRIKES = new double[] {81., 97., 105., 105.1, 114., 138. };
+  private static final double TIME = 4.2;
+  private static final double[] INTERESTS = new double[] {-0.01, 0.005, 0.05 };
+  private static final double[] VOLS = new double[] {0.1, 0.5 };
+  private static final double[] DIVIDENDS = new double[] {0.005, 0.02 };
+  private static final int STEPS = 101;
+  private static final Greek[] GREEKS = new Greek[] {Greek.FAIR_PRICE, Greek.DELTA, Greek.GAMMA, Greek.THETA };
+  private static final double TOLERANCE = 1.e-12;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testEmptyBatch() {
+    BATCH_MODEL.getPrices(new CoxRossRubinsteinLatticeSpecification(), new OptionFunctionProvider1D[0], SPOT, 0.2, 0.01, 0.);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotVanilla() {
+    final OptionFunctionProvider1D[] functions = new OptionFunctionProvider1D[] {new EuropeanVanillaOptionFunctionProvider(100., TIME, STEPS, true),
+      new CashOrNothingOptionFunctionProvider(100., TIME, STEPS, true) };
+    BATCH_MODEL.getPrices(new CoxRossRubinsteinLatticeSpecification(), functions, SPOT, 0.2, 0.01, 0.);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDifferentSteps() {
+    final OptionFunctionProvider1D[] functions = new OptionFunctionProvider1D[] {new EuropeanVanillaOptionFunctionProvider(100., TIME, STEPS, true),
+      new EuropeanVanillaOptionFunctionProvider(100., TIME, STEPS + 1, true) };
+    BATCH_MODEL.getPrices(new CoxRossRubinsteinLatticeSpecification(), functions, SPOT, 0.2, 0.01, 0.);
+  }
+
+  @Test
+  public void testAgainstSingleOptionPricing() {
+    final LatticeSpecification[] lattices = new LatticeSpecification[] {new CoxRossRubinsteinLatticeSpecification(), new JarrowRuddLatticeSpecification(),
+      new TrigeorgisLatticeSpecification(), new JabbourKraminYoungLatticeSpecification(), new TianLatticeSpecification() };
+    final OptionFunctionProvider1D[] functions = getFunctions(STRIKES);
+    for (final LatticeSpecification lattice : lattices) {
+      for (final double interest : INTERESTS) {
+        for (final double vol : VOLS) {
+          for (final double dividend : DIVIDENDS) {
+            final double[] prices = BATCH_MODEL.getPrices(lattice, functions, SPOT, vol, interest, dividend);
+            final GreekResultCollection[] greeks = BATCH_MODEL.getGreeks(lattice, functions, SPOT, vol, interest, dividend);
+            for (int k = 0; k < functions.length; ++k) {
+              final GreekResultCollection expected = MODEL.getGreeks(lattice, functions[k], SPOT, vol, interest, dividend);
+              assertEquals(MODEL.getPrice(lattice, functions[k], SPOT, vol, interest, dividend), prices[k], TOLERANCE);
+              for (final Greek greek : GREEKS) {
+                assertEquals(expected.get(greek), greeks[k].get(greek), Math.max(Math.abs(expected.get(greek)), 1.) * TOLERANCE);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * The Leisen-Reimer lattice depends on the strike; each strike of the batch is priced on its own lattice
+   */
+  @Test
+  public void testStrikeDependentLattice() {
+    final LatticeSpecification lattice = new LeisenReimerLatticeSpecification();
+    final OptionFunctionProvider1D[] functions = getFunctions(STRIKES);
+    final double[] prices = BATCH_MODEL.getPrices(lattice, functions, SPOT, 0.3, 0.02, 0.01);
+    final GreekResultCollection[] greeks = BATCH_MODEL.getGreeks(lattice, functions, SPOT, 0.3, 0.02, 0.01);
+    for (int k = 0; k < functions.length; ++k) {
+      final GreekResultCollection expected = MODEL.getGreeks(lattice, functions[k], SPOT, 0.3, 0.02, 0.01);
+      assertEquals(MODEL.getPrice(lattice, functions[k], SPOT, 0.3, 0.02, 0.01), prices[k], TOLERANCE);
+      for (final Greek greek : GREEKS) {
+        assertEquals(expected.get(greek), greeks[k].get(greek), Math.max(Math.abs(expected.get(greek)), 1.) * TOLERANCE);
+      }
+    }
+  }
+
+  /**
+   * European and American calls and puts for each strike
+   */
+  private static OptionFunctionProvider1D[] getFunctions(final double[] strikes) {
+    final OptionFunctionProvider1D[] functions = new OptionFunctionProvider1D[4 * strikes.length];
+    for (int i = 0; i < strikes.length; ++i) {
+      functions[4 * i] = new EuropeanVanillaOptionFunctionProvider(strikes[i], TIME, STEPS, true);
+      functions[4 * i + 1] = new EuropeanVanillaOptionFunctionProvider(strikes[i], TIME, STEPS, false);
+      functions[4 * i + 2] = new AmericanVanillaOptionFunctionProvider(strikes[i], TIME, STEPS, true);
+      functions[4 * i + 3] = new AmericanVanillaOptionFunctionProvider(strikes[i], TIME, STEPS, false);
+    }
+    return functions;
+  }
+
+}
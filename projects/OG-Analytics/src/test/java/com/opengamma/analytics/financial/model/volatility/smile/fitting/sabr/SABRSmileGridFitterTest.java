@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.model.volatility.smile.fitting.sabr;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.model.volatility.smile.fitting.SABRModelFitter;
+import com.opengamma.analytics.financial.model.volatility.smile.function.SABRFormulaData;
+import com.opengamma.analytics.financial.model.volatility.smile.function.SABRHaganVolatilityFunction;
+import com.opengamma.analytics.financial.model.volatility.smile.function.VolatilityFunctionProvider;
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.statistics.leastsquare.LeastSquareResultsWithTransform;
+
+/**
+ * Tests the fit of a grid of SABR smiles against the fit of each smile on its own.
+ */
+public class SABRSmileGridFitterTest {
+  private static final VolatilityFunctionProvider<SABRFormulaData> SABR = new SABRHaganVolatilityFunction();
+  private static final DoubleMatrix1D START = new DoubleMatrix1D(new double[] {0.05, 0.5, 0.7, 0.3 });
+  private static final BitSet FIXED = new BitSet();
+  private static final int N_ROWS = 5;
+  private static final int N_COLUMNS = 6;
+  private static final double[][] FORWARDS = new double[N_ROWS][N_COLUMNS];
+  private static final double[][] EXPIRIES = new double[N_ROWS][N_COLUMNS];
+  private static final double[][][] STRIKES = new double[N_ROWS][N_COLUMNS][];
+  private static final double[][][] VOLS = new double[N_ROWS][N_COLUMNS][];
+  private static final double[][][] ERRORS = new double[N_ROWS][N_COLUMNS][];
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(3);
+  private static final double TOLERANCE = 1e-5;
+
+  static {
+    FIXED.set(1);
+    for (int i = 0; i < N_ROWS; i++) {
+      for (int j = 0; j < N_COLUMNS; j++) {
+        final double forward = 0.02 + 0.002 * i + 0.001 * j;
+        final double expiry = 0.5 + 1.5 * j;
+        final SABRFormulaData data = new SABRFormulaData(0.04 + 0.002 * j, 0.5, -0.3 + 0.05 * i, 0.5 - 0.04 * j);
+        final double[] strikes = new double[7];
+        final double[] errors = new double[7];
+        for (int k = 0; k < 7; k++) {
+          strikes[k] = forward * (0.5 + 0.25 * k);
+          errors[k] = 0.0001;
+        }
+        FORWARDS[i][j] = forward;
+        EXPIRIES[i][j] = expiry;
+        STRIKES[i][j] = strikes;
+        VOLS[i][j] = SABR.getVolatilityFunction(forward, strikes, expiry).evaluate(data);
+        ERRORS[i][j] = errors;
+      }
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    EXECUTOR.shutdown();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongNumberOfRows() {
+    new SABRSmileGridFitter(SABR, START, FIXED, null, 1).solve(new double[1][N_COLUMNS], EXPIRIES, STRIKES, VOLS, ERRORS);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongNumberOfParameters() {
+    new SABRSmileGridFitter(SABR, new DoubleMatrix1D(new double[] {0.05, 0.5, 0.7 }), FIXED);
+  }
+
+  @Test
+  public void testAgainstSingleSmileFits() {
+    final LeastSquareResultsWithTransform[][] results = new SABRSmileGridFitter(SABR, START, FIXED, EXECUTOR, 3).solve(FORWARDS, EXPIRIES, STRIKES, VOLS, ERRORS);
+    assertEquals(N_ROWS, results.length);
+    for (int i = 0; i < N_ROWS; i++) {
+      for (int j = 0; j < N_COLUMNS; j++) {
+        final LeastSquareResultsWithTransform expected = new SABRModelFitter(FORWARDS[i][j], STRIKES[i][j], EXPIRIES[i][j], VOLS[i][j], ERRORS[i][j], SABR).solve(START, FIXED);
+        assertParametersEqual(expected.getModelParameters(), results[i][j].getModelParameters());
+        assertEquals(expected.getChiSq(), results[i][j].getChiSq(), TOLERANCE);
+      }
+    }
+  }
+
+  @Test
+  public void testWarmStartFromPreviousFit() {
+    final SABRSmileGridFitter fitter = new SABRSmileGridFitter(SABR, START, FIXED, EXECUTOR, 3);
+    final LeastSquareResultsWithTransform[][] first = fitter.solve(FORWARDS, EXPIRIES, STRIKES, VOLS, ERRORS);
+    final DoubleMatrix1D[][] previous = new DoubleMatrix1D[N_ROWS][N_COLUMNS];
+    for (int i = 0; i < N_ROWS; i++) {
+      for (int j = 0; j < N_COLUMNS; j++) {
+        previous[i][j] = first[i][j].getModelParameters();
+      }
+    }
+    final LeastSquareResultsWithTransform[][] second = fitter.solve(FORWARDS, EXPIRIES, STRIKES, VOLS, ERRORS, previous);
+    for (int i = 0; i < N_ROWS; i++) {
+      for (int j = 0; j < N_COLUMNS; j++) {
+        assertParametersEqual(first[i][j].getModelParameters(), second[i][j].getModelParameters());
+      }
+    }
+  }
+
+  @Test
+  public void testMissingSmiles() {
+    final double[][][] strikes = new double[N_ROWS][][];
+    for (int i = 0; i < N_ROWS; i++) {
+      strikes[i] = Arrays.copyOf(STRIKES[i], N_COLUMNS);
+    }
+    strikes[1][0] = null;
+    strikes[2][3] = null;
+    final LeastSquareResultsWithTransform[][] results = new SABRSmileGridFitter(SABR, START, FIXED, null, 1).solve(FORWARDS, EXPIRIES, strikes, VOLS, ERRORS);
+    assertNull(results[1][0]);
+    assertNull(results[2][3]);
+    final LeastSquareResultsWithTransform expected = new SABRModelFitter(FORWARDS[2][4], STRIKES[2][4], EXPIRIES[2][4], VOLS[2][4], ERRORS[2][4], SABR).solve(START, FIXED);
+    assertParametersEqual(expected.getModelParameters(), results[2][4].getModelParameters());
+  }
+
+  @Test
+  public void testSequentialAndParallelAgree() {
+    final LeastSquareResultsWithTransform[][] sequential = new SABRSmileGridFitter(SABR, START, FIXED, null, 1).solve(FORWARDS, EXPIRIES, STRIKES, VOLS, ERRORS);
+    final LeastSquareResultsWithTransform[][] parallel = new SABRSmileGridFitter(SABR, START, FIXED, EXECUTOR, 3).solve(FORWARDS, EXPIRIES, STRIKES, VOLS, ERRORS);
+    for (int i = 0; i < N_ROWS; i++) {
+      for (int j = 0; j < N_COLUMNS; j++) {
+        for (int k = 0; k < 4; k++) {
+          assertEquals(sequential[i][j].getModelParameters().getEntry(k), parallel[i][j].getModelParameters().getEntry(k), 0);
+        }
+      }
+    }
+  }
+
+  private static void assertParametersEqual(final DoubleMatrix1D expected, final DoubleMatrix1D actual) {
+    for (int k = 0; k < 4; k++) {
+      assertEquals(expected.getEntry(k), actual.getEntry(k), TOLERANCE);
+    }
+  }
+
+}
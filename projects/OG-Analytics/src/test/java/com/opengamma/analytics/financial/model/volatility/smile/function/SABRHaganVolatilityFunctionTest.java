@@ -118,6 +118,24 @@ public class SABRHaganVolatilityFunctionTest extends SABRVolatilityFunctionTestC
     testVolatilityAdjoint(F, CALL_OTM, DATA, eps, tol);
   }
 
+  @Test
+  /**
+   * Tests that the volatilities and model sensitivities of a set of strikes are those of the individual strikes.
+   */
+  public void testStrikeSet() {
+    final double[] strikes = new double[] {0.01, STRIKE_ITM, F, STRIKE_OTM, 0.08 };
+    final double[] vols = FUNCTION.getVolatilityFunction(F, strikes, T).evaluate(DATA);
+    final double[][] modelAdjoint = FUNCTION.getModelAdjointFunction(F, strikes, T).evaluate(DATA);
+    for (int i = 0; i < strikes.length; i++) {
+      final EuropeanVanillaOption option = new EuropeanVanillaOption(strikes[i], T, strikes[i] >= F);
+      assertEquals(FUNCTION.getVolatility(option, F, DATA), vols[i], 0);
+      final double[] expected = FUNCTION.getVolatilityModelAdjoint(option, F, DATA);
+      for (int j = 0; j < 4; j++) {
+        assertEquals(expected[j], modelAdjoint[i][j], 0);
+      }
+    }
+  }
+
   /**
    * Test small strike edge case. Vol -> infinity as strike -> 0, so the strike is floored - tested against finite difference below this
    * floor will give spurious results
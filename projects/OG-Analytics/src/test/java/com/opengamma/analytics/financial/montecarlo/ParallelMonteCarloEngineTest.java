@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.montecarlo;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIborMaster;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.instrument.swaption.SwaptionPhysicalFixedIborDefinition;
+import com.opengamma.analytics.financial.interestrate.swaption.derivative.SwaptionPhysicalFixedIbor;
+import com.opengamma.analytics.financial.interestrate.swaption.provider.SwaptionPhysicalFixedIborHullWhiteMethod;
+import com.opengamma.analytics.financial.montecarlo.provider.HullWhiteMonteCarloMethod;
+import com.opengamma.analytics.financial.provider.description.HullWhiteDataSets;
+import com.opengamma.analytics.financial.provider.description.MulticurveProviderDiscountDataSets;
+import com.opengamma.analytics.financial.provider.description.interestrate.HullWhiteOneFactorProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+
+/**
+ * Tests the random stream, the accumulator and the parallel Monte Carlo engine.
+ */
+public class ParallelMonteCarloEngineTest {
+
+  private static final long SEED = 20130101L;
+  private static final double TOLERANCE = 1.0E-12;
+
+  private static final MulticurveProviderDiscount MULTICURVES = MulticurveProviderDiscountDataSets.createMulticurveEurUsd();
+  private static final IborIndex EURIBOR6M = MulticurveProviderDiscountDataSets.getIndexesIborMulticurveEurUsd()[1];
+  private static final Currency EUR = EURIBOR6M.getCurrency();
+  private static final Calendar CALENDAR = MulticurveProviderDiscountDataSets.getEURCalendar();
+  private static final HullWhiteOneFactorProviderDiscount HW_MULTICURVES = new HullWhiteOneFactorProviderDiscount(MULTICURVES, HullWhiteDataSets.createHullWhiteParameters(), EUR);
+  private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2011, 7, 7);
+  private static final GeneratorSwapFixedIbor EUR1YEURIBOR6M = GeneratorSwapFixedIborMaster.getInstance().getGenerator("EUR1YEURIBOR6M", CALENDAR);
+  private static final ZonedDateTime EXPIRY_DATE = DateUtils.getUTCDate(2016, 7, 7);
+  private static final ZonedDateTime SETTLEMENT_DATE = ScheduleCalculator.getAdjustedDate(EXPIRY_DATE, EURIBOR6M.getSpotLag(), CALENDAR);
+  private static final SwapFixedIborDefinition SWAP_PAYER_DEFINITION = SwapFixedIborDefinition.from(SETTLEMENT_DATE, Period.ofYears(5), EUR1YEURIBOR6M, 100000000, 0.0175, true);
+  private static final SwaptionPhysicalFixedIbor SWAPTION = SwaptionPhysicalFixedIborDefinition.from(EXPIRY_DATE, SWAP_PAYER_DEFINITION, true).toDerivative(REFERENCE_DATE);
+
+  /**
+   * Path function observing Z and Z^2 for the first normal, and the product of the two normals.
+   */
+  private static final MonteCarloPathFunction MOMENTS = new MonteCarloPathFunction() {
+
+    @Override
+    public int getDimension() {
+      return 2;
+    }
+
+    @Override
+    public int getNumberOfOutputs() {
+      return 3;
+    }
+
+    @Override
+    public void evaluate(final double[][] normals, final int nbPath, final MonteCarloAccumulator accumulator) {
+      final double[] values = new double[3];
+      for (int looppath = 0; looppath < nbPath; looppath++) {
+        values[0] = normals[0][looppath];
+        values[1] = normals[0][looppath] * normals[0][looppath];
+        values[2] = normals[0][looppath] * normals[1][looppath];
+        accumulator.add(values);
+      }
+    }
+  };
+
+  @Test
+  public void streamSkipAhead() {
+    final MonteCarloRandomStream sequential = new MonteCarloRandomStream(SEED);
+    final double[] all = sequential.getVector(101);
+    for (final int position : new int[] {0, 1, 2, 37, 100 }) {
+      final MonteCarloRandomStream stream = new MonteCarloRandomStream(SEED);
+      stream.skipTo(position);
+      assertEquals("Random stream: skip-ahead", all[position], stream.nextNormal(), 0.0);
+    }
+    final MonteCarloRandomStream stream = new MonteCarloRandomStream(SEED);
+    stream.skip(3);
+    stream.skip(4);
+    final double[] buffer = new double[5];
+    stream.fillNormal(buffer, 1, 4);
+    for (int i = 0; i < 4; i++) {
+      assertEquals("Random stream: fill", all[7 + i], buffer[1 + i], 0.0);
+    }
+    assertEquals(11, stream.getPosition());
+  }
+
+  @Test
+  public void accumulator() {
+    final double[] values = new double[] {1.0, 4.0, -2.0, 3.5, 0.25, 7.0 };
+    final MonteCarloAccumulator all = new MonteCarloAccumulator(1);
+    final MonteCarloAccumulator part1 = new MonteCarloAccumulator(1);
+    final MonteCarloAccumulator part2 = new MonteCarloAccumulator(1);
+    double sum = 0.0;
+    for (int i = 0; i < values.length; i++) {
+      all.add(values[i]);
+      (i < 2 ? part1 : part2).add(values[i]);
+      sum += values[i];
+    }
+    final double mean = sum / values.length;
+    double m2 = 0.0;
+    for (final double value : values) {
+      m2 += (value - mean) * (value - mean);
+    }
+    assertEquals("Accumulator: mean", mean, all.getMean(), TOLERANCE);
+    assertEquals("Accumulator: variance", m2 / values.length, all.getVariance(0), TOLERANCE);
+    assertEquals("Accumulator: standard error", Math.sqrt(m2 / (values.length - 1) / values.length), all.getStandardError(), TOLERANCE);
+    part1.combine(part2);
+    assertEquals("Accumulator: combine", all.getCount(), part1.getCount());
+    assertEquals("Accumulator: combine", all.getMean(), part1.getMean(), TOLERANCE);
+    assertEquals("Accumulator: combine", all.getStandardError(), part1.getStandardError(), TOLERANCE);
+    final MonteCarloAccumulator weighted = new MonteCarloAccumulator(1);
+    weighted.add(2.0, 3.0);
+    weighted.add(6.0, 1.0);
+    assertEquals("Accumulator: weighted", 3.0, weighted.getMean(), TOLERANCE);
+    assertEquals("Accumulator: weighted", 3.0, weighted.getVariance(0), TOLERANCE);
+  }
+
+  @Test
+  public void moments() {
+    final ParallelMonteCarloEngine engine = new ParallelMonteCarloEngine(SEED, 100000);
+    final MonteCarloAccumulator result = engine.run(MOMENTS);
+    assertEquals(100000, result.getCount());
+    assertEquals("Parallel Monte Carlo: mean", 0.0, result.getMean(0), 4.0 * result.getStandardError(0));
+    assertEquals("Parallel Monte Carlo: variance", 1.0, result.getMean(1), 4.0 * result.getStandardError(1));
+    assertEquals("Parallel Monte Carlo: independence", 0.0, result.getMean(2), 4.0 * result.getStandardError(2));
+  }
+
+  @Test
+  /**
+   * The result does not depend on the number of threads.
+   */
+  public void reproducible() {
+    final ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      final MonteCarloAccumulator sequential = new ParallelMonteCarloEngine(SEED, 12345, 500, null, 1).run(MOMENTS);
+      final MonteCarloAccumulator parallel = new ParallelMonteCarloEngine(SEED, 12345, 500, executor, 3).run(MOMENTS);
+      for (int i = 0; i < 3; i++) {
+        assertEquals("Parallel Monte Carlo: reproducible", sequential.getMean(i), parallel.getMean(i), 0.0);
+        assertEquals("Parallel Monte Carlo: reproducible", sequential.getStandardError(i), parallel.getStandardError(i), 0.0);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void hullWhiteSwaption() {
+    final double pvExplicit = SwaptionPhysicalFixedIborHullWhiteMethod.getInstance().presentValue(SWAPTION, HW_MULTICURVES).getAmount(EUR);
+    final HullWhiteMonteCarloMethod method = new HullWhiteMonteCarloMethod(new MonteCarloRandomStream(SEED), 1);
+    final MonteCarloAccumulator pvMC = method.presentValue(SWAPTION, EUR, HW_MULTICURVES, new ParallelMonteCarloEngine(SEED, 25000));
+    assertEquals("Hull-White swaption: parallel Monte Carlo", pvExplicit, pvMC.getMean(), 4.0 * pvMC.getStandardError());
+  }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.adjoint;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIborMaster;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.instrument.swaption.SwaptionPhysicalFixedIborDefinition;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivative;
+import com.opengamma.analytics.financial.interestrate.swaption.derivative.SwaptionPhysicalFixedIbor;
+import com.opengamma.analytics.financial.interestrate.swaption.provider.SwaptionPhysicalFixedIborBlackMethod;
+import com.opengamma.analytics.financial.model.option.parameters.BlackFlatSwaptionParameters;
+import com.opengamma.analytics.financial.provider.calculator.blackswaption.PresentValueCurveSensitivityBlackSwaptionCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueCurveSensitivityDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.description.BlackDataSets;
+import com.opengamma.analytics.financial.provider.description.MulticurveProviderDiscountDataSets;
+import com.opengamma.analytics.financial.provider.description.interestrate.BlackSwaptionFlatProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.BlackSwaptionFlatProviderInterface;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator;
+import com.opengamma.analytics.financial.schedule.ScheduleCalculator;
+import com.opengamma.analytics.financial.util.AssertSensivityObjects;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Tests the present value and parameter sensitivity by adjoint algorithmic differentiation against the curve sensitivity calculators.
+ */
+public class PresentValueParameterSensitivityAdjointCalculatorTest {
+
+  private static final MulticurveProviderDiscount MULTICURVES = MulticurveProviderDiscountDataSets.createMulticurveEurUsd();
+  private static final IborIndex EURIBOR6M = MulticurveProviderDiscountDataSets.getIndexesIborMulticurveEurUsd()[1];
+  private static final Calendar CALENDAR = MulticurveProviderDiscountDataSets.getEURCalendar();
+  private static final Currency EUR = EURIBOR6M.getCurrency();
+  private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2012, 1, 10);
+  private static final GeneratorSwapFixedIbor GENERATOR_EUR1YEURIBOR6M = GeneratorSwapFixedIborMaster.getInstance().getGenerator("EUR1YEURIBOR6M", CALENDAR);
+  private static final BlackFlatSwaptionParameters BLACK = BlackDataSets.createBlackSwaptionEUR6();
+  private static final BlackSwaptionFlatProviderDiscount BLACK_MULTICURVES = new BlackSwaptionFlatProviderDiscount(MULTICURVES, BLACK);
+
+  private static final Period EXPIRY_TENOR = Period.ofMonths(26);
+  private static final ZonedDateTime EXPIRY_DATE = ScheduleCalculator.getAdjustedDate(REFERENCE_DATE, EXPIRY_TENOR, GENERATOR_EUR1YEURIBOR6M.getBusinessDayConvention(), CALENDAR,
+      GENERATOR_EUR1YEURIBOR6M.isEndOfMonth());
+  private static final ZonedDateTime SETTLE_DATE = ScheduleCalculator.getAdjustedDate(EXPIRY_DATE, GENERATOR_EUR1YEURIBOR6M.getSpotLag(), CALENDAR);
+  private static final double NOTIONAL = 123456789.0;
+  private static final double RATE = 0.02;
+  private static final SwapFixedIborDefinition SWAP_DEFINITION_REC = SwapFixedIborDefinition.from(SETTLE_DATE, Period.ofYears(5), GENERATOR_EUR1YEURIBOR6M, NOTIONAL, RATE, false);
+  private static final SwapFixedIborDefinition SWAP_DEFINITION_PAY = SwapFixedIborDefinition.from(SETTLE_DATE, Period.ofYears(5), GENERATOR_EUR1YEURIBOR6M, NOTIONAL, RATE, true);
+  private static final InstrumentDerivative SWAP_REC = SWAP_DEFINITION_REC.toDerivative(REFERENCE_DATE);
+  private static final SwaptionPhysicalFixedIbor SWAPTION_LONG_REC = SwaptionPhysicalFixedIborDefinition.from(EXPIRY_DATE, SWAP_DEFINITION_REC, true).toDerivative(REFERENCE_DATE);
+  private static final SwaptionPhysicalFixedIbor SWAPTION_SHORT_PAY = SwaptionPhysicalFixedIborDefinition.from(EXPIRY_DATE, SWAP_DEFINITION_PAY, false).toDerivative(REFERENCE_DATE);
+
+  private static final PresentValueParameterSensitivityAdjointCalculator PVPSAC = PresentValueParameterSensitivityAdjointCalculator.getInstance();
+  private static final PresentValueDiscountingCalculator PVDC = PresentValueDiscountingCalculator.getInstance();
+  private static final SwaptionPhysicalFixedIborBlackMethod METHOD_BLACK = SwaptionPhysicalFixedIborBlackMethod.getInstance();
+  private static final ParameterSensitivityParameterCalculator<MulticurveProviderInterface> PSPVC = new ParameterSensitivityParameterCalculator<>(
+      PresentValueCurveSensitivityDiscountingCalculator.getInstance());
+  private static final ParameterSensitivityParameterCalculator<BlackSwaptionFlatProviderInterface> PS_BS_C = new ParameterSensitivityParameterCalculator<>(
+      PresentValueCurveSensitivityBlackSwaptionCalculator.getInstance());
+
+  private static final double TOLERANCE_PV = 1.0E-2;
+  private static final double TOLERANCE_PV_DELTA = 1.0E+0;
+
+  @Test
+  public void swap() {
+    final Pair<MultipleCurrencyAmount, MultipleCurrencyParameterSensitivity> result = PVPSAC.calculate(SWAP_REC, MULTICURVES);
+    assertEquals("Adjoint calculator: swap present value", SWAP_REC.accept(PVDC, MULTICURVES).getAmount(EUR), result.getFirst().getAmount(EUR), TOLERANCE_PV);
+    final MultipleCurrencyParameterSensitivity expected = PSPVC.calculateSensitivity(SWAP_REC, MULTICURVES, MULTICURVES.getAllNames());
+    AssertSensivityObjects.assertEquals("Adjoint calculator: swap parameter sensitivity", expected, result.getSecond(), TOLERANCE_PV_DELTA);
+    AssertSensivityObjects.assertEquals("Adjoint calculator: swap parameter sensitivity", result.getSecond(), expected, TOLERANCE_PV_DELTA);
+  }
+
+  @Test
+  public void swaption() {
+    final SwaptionPhysicalFixedIbor[] swaptions = new SwaptionPhysicalFixedIbor[] {SWAPTION_LONG_REC, SWAPTION_SHORT_PAY };
+    for (final SwaptionPhysicalFixedIbor swaption : swaptions) {
+      final Pair<MultipleCurrencyAmount, MultipleCurrencyParameterSensitivity> result = PVPSAC.calculate(swaption, BLACK_MULTICURVES);
+      assertEquals("Adjoint calculator: swaption present value", METHOD_BLACK.presentValue(swaption, BLACK_MULTICURVES).getAmount(EUR), result.getFirst().getAmount(EUR),
+          TOLERANCE_PV);
+      final MultipleCurrencyParameterSensitivity expected = PS_BS_C.calculateSensitivity(swaption, BLACK_MULTICURVES, MULTICURVES.getAllNames());
+      AssertSensivityObjects.assertEquals("Adjoint calculator: swaption parameter sensitivity", expected, result.getSecond(), TOLERANCE_PV_DELTA);
+      AssertSensivityObjects.assertEquals("Adjoint calculator: swaption parameter sensitivity", result.getSecond(), expected, TOLERANCE_PV_DELTA);
+    }
+  }
+
+  @Test
+  /**
+   * Tests that the tape of the thread is reused between calculations.
+   */
+  public void tapeReuse() {
+    final Pair<MultipleCurrencyAmount, MultipleCurrencyParameterSensitivity> first = PVPSAC.calculate(SWAPTION_LONG_REC, BLACK_MULTICURVES);
+    PVPSAC.calculate(SWAP_REC, MULTICURVES);
+    final Pair<MultipleCurrencyAmount, MultipleCurrencyParameterSensitivity> second = PVPSAC.calculate(SWAPTION_LONG_REC, BLACK_MULTICURVES);
+    assertEquals("Adjoint calculator: tape reuse", first.getFirst(), second.getFirst());
+    assertEquals("Adjoint calculator: tape reuse", first.getSecond(), second.getSecond());
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.calculator.generic;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIborMaster;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.interestrate.InstrumentDerivativeVisitor;
+import com.opengamma.analytics.financial.interestrate.annuity.derivative.AnnuityPaymentFixed;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Coupon;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapFixedCoupon;
+import com.opengamma.analytics.financial.provider.calculator.discounting.CashFlowEquivalentCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PV01CurveParametersCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.ParRateDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueCurveSensitivityDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.description.MulticurveProviderDiscountDataSets;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderCached;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyMulticurveSensitivity;
+import com.opengamma.analytics.financial.util.AssertSensivityObjects;
+import com.opengamma.analytics.util.amount.ReferenceAmount;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.money.MultipleCurrencyAmount;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Tests the pricing context against the calculators used directly.
+ */
+public class MulticurvePricingContextTest {
+
+  private static final MulticurveProviderDiscount MULTICURVES = MulticurveProviderDiscountDataSets.createMulticurveEurUsd();
+  private static final Calendar NYC = MulticurveProviderDiscountDataSets.getUSDCalendar();
+  private static final GeneratorSwapFixedIbor USD6MLIBOR3M = GeneratorSwapFixedIborMaster.getInstance().getGenerator("USD6MLIBOR3M", NYC);
+  private static final ZonedDateTime SETTLEMENT_DATE = DateUtils.getUTCDate(2012, 5, 17);
+  private static final SwapFixedIborDefinition SWAP_DEFINITION = SwapFixedIborDefinition.from(SETTLEMENT_DATE, Period.ofYears(10), USD6MLIBOR3M, 100000000, 0.025, true);
+  private static final SwapFixedCoupon<Coupon> SWAP = SWAP_DEFINITION.toDerivative(DateUtils.getUTCDate(2012, 5, 14));
+
+  private static final PresentValueDiscountingCalculator PVDC = PresentValueDiscountingCalculator.getInstance();
+  private static final ParRateDiscountingCalculator PRDC = ParRateDiscountingCalculator.getInstance();
+  private static final PresentValueCurveSensitivityDiscountingCalculator PVCSDC = PresentValueCurveSensitivityDiscountingCalculator.getInstance();
+  private static final PV01CurveParametersCalculator<MulticurveProviderInterface> PV01CPC = new PV01CurveParametersCalculator<>(PVCSDC);
+  private static final CashFlowEquivalentCalculator CFEC = CashFlowEquivalentCalculator.getInstance();
+
+  private static final double TOLERANCE = 1.0E-10;
+
+  @Test
+  public void cachedProvider() {
+    final MulticurveProviderCached cached = new MulticurveProviderCached(MULTICURVES);
+    final Currency usd = Currency.USD;
+    assertEquals(MULTICURVES.getDiscountFactor(usd, 2.5), cached.getDiscountFactor(usd, 2.5), 0);
+    assertEquals(MULTICURVES.getDiscountFactor(usd, 2.5), cached.getDiscountFactor(usd, 2.5), 0);
+    assertEquals(MULTICURVES.getDiscountFactor(usd, 3.0), cached.getDiscountFactor(usd, 3.0), 0);
+    assertEquals(2, cached.getNumberOfCachedValues());
+    cached.clear();
+    assertEquals(0, cached.getNumberOfCachedValues());
+  }
+
+  @Test
+  public void measures() {
+    final MulticurvePricingContext context = new MulticurvePricingContext(SWAP, MULTICURVES);
+    final MultipleCurrencyAmount pv = context.calculate(PVDC);
+    assertEquals(SWAP.accept(PVDC, MULTICURVES).getAmount(Currency.USD), pv.getAmount(Currency.USD), TOLERANCE);
+    assertEquals(SWAP.accept(PRDC, MULTICURVES), context.calculate(PRDC), TOLERANCE);
+    AssertSensivityObjects.assertEquals("MulticurvePricingContext", SWAP.accept(PVCSDC, MULTICURVES), context.calculate(PVCSDC), TOLERANCE);
+    final ReferenceAmount<Pair<String, Currency>> pv01 = context.calculate(PV01CPC);
+    final ReferenceAmount<Pair<String, Currency>> expectedPv01 = SWAP.accept(PV01CPC, MULTICURVES);
+    assertEquals(expectedPv01.getMap().size(), pv01.getMap().size());
+    for (final Pair<String, Currency> key : expectedPv01.getMap().keySet()) {
+      assertEquals(expectedPv01.getMap().get(key), pv01.getMap().get(key), TOLERANCE);
+    }
+    final AnnuityPaymentFixed cfe = context.getCashFlowEquivalent();
+    final AnnuityPaymentFixed expectedCfe = SWAP.accept(CFEC, MULTICURVES);
+    assertEquals(expectedCfe.getNumberOfPayments(), cfe.getNumberOfPayments());
+    for (int i = 0; i < cfe.getNumberOfPayments(); i++) {
+      assertEquals(expectedCfe.getNthPayment(i).getAmount(), cfe.getNthPayment(i).getAmount(), TOLERANCE);
+    }
+    // the results are remembered
+    assertSame(pv, context.calculate(PVDC));
+  }
+
+  @Test
+  public void sharedCurveQueries() {
+    final MulticurvePricingContext context = new MulticurvePricingContext(SWAP, MULTICURVES);
+    context.calculate(PVDC);
+    final int nValues = context.getMulticurveProvider().getNumberOfCachedValues();
+    assertTrue(nValues > 0);
+    // the sensitivities need the same discount factors and forward rates as the present value
+    context.calculate(PVCSDC);
+    assertEquals(nValues, context.getMulticurveProvider().getNumberOfCachedValues());
+  }
+
+  @Test
+  public void severalMeasures() {
+    final MulticurvePricingContext context = new MulticurvePricingContext(SWAP, MULTICURVES);
+    final List<InstrumentDerivativeVisitor<MulticurveProviderInterface, ?>> calculators = Arrays.<InstrumentDerivativeVisitor<MulticurveProviderInterface, ?>>asList(PVDC, PRDC);
+    final List<Object> results = context.calculate(calculators);
+    assertEquals(2, results.size());
+    assertSame(context.calculate(PVDC), results.get(0));
+    assertEquals(SWAP.accept(PRDC, MULTICURVES), (Double) results.get(1), TOLERANCE);
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.provider.sensitivity;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.internal.junit.ArrayAsserts.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Period;
+import org.threeten.bp.ZonedDateTime;
+
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIbor;
+import com.opengamma.analytics.financial.instrument.index.GeneratorSwapFixedIborMaster;
+import com.opengamma.analytics.financial.instrument.index.IborIndex;
+import com.opengamma.analytics.financial.instrument.swap.SwapFixedIborDefinition;
+import com.opengamma.analytics.financial.interestrate.payments.derivative.Coupon;
+import com.opengamma.analytics.financial.interestrate.swap.derivative.SwapFixedCoupon;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldAndDiscountCurve;
+import com.opengamma.analytics.financial.model.interestrate.curve.YieldCurve;
+import com.opengamma.analytics.financial.provider.calculator.discounting.PresentValueCurveSensitivityDiscountingCalculator;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderDiscount;
+import com.opengamma.analytics.financial.provider.description.interestrate.MulticurveProviderInterface;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.DenseCurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.DenseMulticurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.ForwardSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MulticurveSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.multicurve.MultipleCurrencyParameterSensitivity;
+import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterCalculator;
+import com.opengamma.analytics.financial.provider.sensitivity.parameter.ParameterSensitivityParameterDenseCalculator;
+import com.opengamma.analytics.financial.util.AssertSensivityObjects;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.CombinedInterpolatorExtrapolatorFactory;
+import com.opengamma.analytics.math.interpolation.Interpolator1D;
+import com.opengamma.analytics.math.interpolation.Interpolator1DFactory;
+import com.opengamma.financial.convention.calendar.Calendar;
+import com.opengamma.financial.convention.calendar.MondayToFridayCalendar;
+import com.opengamma.util.money.Currency;
+import com.opengamma.util.time.DateUtils;
+import com.opengamma.util.tuple.DoublesPair;
+
+/**
+ * Tests the dense sensitivity containers against the list based ones.
+ */
+public class DenseMulticurveSensitivityTest {
+
+  private static final List<DoublesPair> SENSI_DATA_1 = Arrays.asList(new DoublesPair[] {new DoublesPair(3, 30), new DoublesPair(1, 10), new DoublesPair(3, 5), new DoublesPair(2, 20) });
+  private static final List<DoublesPair> SENSI_DATA_2 = Arrays.asList(new DoublesPair[] {new DoublesPair(2, 40), new DoublesPair(5, 30) });
+  private static final List<ForwardSensitivity> SENSI_FWD_1 = new ArrayList<>();
+  static {
+    SENSI_FWD_1.add(new ForwardSensitivity(0.75, 1.00, 0.26, 12));
+    SENSI_FWD_1.add(new ForwardSensitivity(0.5, 0.75, 0.26, 11));
+    SENSI_FWD_1.add(new ForwardSensitivity(0.75, 1.00, 0.26, 3));
+    SENSI_FWD_1.add(new ForwardSensitivity(0.75, 1.00, 0.25, 1));
+  }
+  private static final String CURVE_NAME_1 = "A";
+  private static final String CURVE_NAME_2 = "B";
+
+  private static final Calendar NYC = new MondayToFridayCalendar("NYC");
+  private static final GeneratorSwapFixedIbor USD6MLIBOR3M = GeneratorSwapFixedIborMaster.getInstance().getGenerator("USD6MLIBOR3M", NYC);
+  private static final IborIndex USDLIBOR3M = USD6MLIBOR3M.getIborIndex();
+  private static final Currency USD = USD6MLIBOR3M.getCurrency();
+  private static final ZonedDateTime REFERENCE_DATE = DateUtils.getUTCDate(2012, 9, 26);
+  private static final SwapFixedCoupon<Coupon> SWAP = SwapFixedIborDefinition.from(DateUtils.getUTCDate(2012, 10, 29), Period.ofYears(10), USD6MLIBOR3M, 100000000, 0.05, false)
+      .toDerivative(REFERENCE_DATE);
+  private static final double[] TIME = {0.25, 0.50, 1.0, 2.0, 5.0, 10.0 };
+  private static final double[] YIELD = {0.02, 0.025, 0.03, 0.03, 0.028, 0.031 };
+  private static final Interpolator1D INTERPOLATOR = CombinedInterpolatorExtrapolatorFactory.getInterpolator(Interpolator1DFactory.NATURAL_CUBIC_SPLINE,
+      Interpolator1DFactory.FLAT_EXTRAPOLATOR);
+  private static final YieldAndDiscountCurve DSC = new YieldCurve("USD Discounting", new InterpolatedDoublesCurve(TIME, YIELD, INTERPOLATOR, true));
+  private static final YieldAndDiscountCurve FWD3 = new YieldCurve("USD Forward 3M", new InterpolatedDoublesCurve(TIME, YIELD, INTERPOLATOR, true));
+  private static final MulticurveProviderDiscount MARKET = new MulticurveProviderDiscount();
+  static {
+    MARKET.setCurve(USD, DSC);
+    MARKET.setCurve(USDLIBOR3M, FWD3);
+  }
+  private static final PresentValueCurveSensitivityDiscountingCalculator PVCSC = PresentValueCurveSensitivityDiscountingCalculator.getInstance();
+  private static final ParameterSensitivityParameterCalculator<MulticurveProviderInterface> PSC = new ParameterSensitivityParameterCalculator<>(PVCSC);
+  private static final ParameterSensitivityParameterDenseCalculator<MulticurveProviderInterface> PSC_DENSE = new ParameterSensitivityParameterDenseCalculator<>(PVCSC);
+
+  private static final double TOLERANCE = 1.0E-10;
+  private static final double TOLERANCE_DELTA = 1.0E-2;
+
+  @Test
+  public void cleaned() {
+    final Map<String, List<DoublesPair>> dsc = new HashMap<>();
+    dsc.put(CURVE_NAME_1, SENSI_DATA_1);
+    final Map<String, List<ForwardSensitivity>> fwd = new HashMap<>();
+    fwd.put(CURVE_NAME_2, SENSI_FWD_1);
+    final MulticurveSensitivity sensitivity = MulticurveSensitivity.of(dsc, fwd);
+    final DenseMulticurveSensitivity dense = DenseMulticurveSensitivity.of(sensitivity);
+    assertArrayEquals(new double[] {1, 2, 3 }, dense.getYieldDiscountingSensitivities().get(CURVE_NAME_1).getTimes(), TOLERANCE);
+    assertArrayEquals(new double[] {10, 20, 35 }, dense.getYieldDiscountingSensitivities().get(CURVE_NAME_1).getValues(), TOLERANCE);
+    assertEquals(3, dense.getForwardSensitivities().get(CURVE_NAME_2).size());
+    AssertSensivityObjects.assertEquals("Dense sensitivity: cleaned", sensitivity.cleaned(), dense.toMulticurveSensitivity(), TOLERANCE);
+  }
+
+  @Test
+  public void plus() {
+    final DenseCurveSensitivity sensi1 = DenseCurveSensitivity.of(SENSI_DATA_1);
+    final DenseCurveSensitivity sensi2 = DenseCurveSensitivity.of(SENSI_DATA_2);
+    final DenseCurveSensitivity total = sensi1.plus(sensi2);
+    assertArrayEquals(new double[] {1, 2, 3, 5 }, total.getTimes(), TOLERANCE);
+    assertArrayEquals(new double[] {10, 60, 35, 30 }, total.getValues(), TOLERANCE);
+    final List<DoublesPair> all = new ArrayList<>(SENSI_DATA_1);
+    all.addAll(SENSI_DATA_2);
+    assertEquals(DenseCurveSensitivity.of(all), total);
+    assertArrayEquals(new double[] {20, 120, 70, 60 }, total.multipliedBy(2).getValues(), TOLERANCE);
+  }
+
+  @Test
+  public void parameterSensitivity() {
+    final MultipleCurrencyParameterSensitivity expected = PSC.calculateSensitivity(SWAP, MARKET, MARKET.getAllNames());
+    final MultipleCurrencyParameterSensitivity dense = PSC_DENSE.calculateSensitivity(SWAP, MARKET, MARKET.getAllNames());
+    AssertSensivityObjects.assertEquals("Dense parameter sensitivity: swap", expected, dense, TOLERANCE_DELTA);
+  }
+
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.financial.var.historical;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.financial.var.EmpiricalDistributionVaRCalculator;
+import com.opengamma.analytics.financial.var.EmpiricalDistributionVaRParameters;
+import com.opengamma.analytics.financial.var.conditional.EmpiricalDistributionConditionalVaRCalculator;
+import com.opengamma.analytics.math.statistics.descriptive.MeanCalculator;
+import com.opengamma.timeseries.DoubleTimeSeries;
+import com.opengamma.timeseries.precise.instant.ImmutableInstantDoubleTimeSeries;
+
+/**
+ * Tests the historical VaR engine against the empirical distribution calculators.
+ */
+public class HistoricalVaREngineTest {
+  private static final int[] PARENTS = new int[] {-1, 0, 0, 1, 1, 2 };
+  private static final int WINDOW = 250;
+  private static final int N_POSITIONS = 300;
+  private static final int[] POSITION_NODES = new int[N_POSITIONS];
+  private static final double[] PNL = new double[N_POSITIONS * WINDOW];
+  private static final EmpiricalDistributionVaRParameters PARAMETERS = new EmpiricalDistributionVaRParameters(10, 250, 0.99);
+  private static final EmpiricalDistributionVaRCalculator VAR_CALCULATOR = new EmpiricalDistributionVaRCalculator();
+  private static final EmpiricalDistributionConditionalVaRCalculator ES_CALCULATOR = new EmpiricalDistributionConditionalVaRCalculator(new MeanCalculator());
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(3);
+
+  static {
+    final Random random = new Random(1234);
+    for (int i = 0; i < N_POSITIONS; i++) {
+      POSITION_NODES[i] = i % PARENTS.length;
+      for (int j = 0; j < WINDOW; j++) {
+        PNL[i * WINDOW + j] = random.nextGaussian() * (1 + i % 7);
+      }
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    EXECUTOR.shutdown();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testParentAfterChild() {
+    new HistoricalVaREngine(new int[] {-1, 2, 0 }, WINDOW);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testWrongNumberOfScenarios() {
+    new HistoricalVaREngine(PARENTS, WINDOW).addPositions(new int[] {0 }, new double[WINDOW - 1]);
+  }
+
+  @Test
+  public void testAgainstCalculators() {
+    final HistoricalVaREngine engine = new HistoricalVaREngine(PARENTS, WINDOW, EXECUTOR, 3);
+    // load in two blocks
+    final int half = N_POSITIONS / 2;
+    engine.addPositions(subArray(POSITION_NODES, 0, half), subArray(PNL, 0, half * WINDOW));
+    engine.addPositions(subArray(POSITION_NODES, half, N_POSITIONS), subArray(PNL, half * WINDOW, N_POSITIONS * WINDOW));
+
+    final double[] var = engine.getVaR(PARAMETERS);
+    final double[] es = engine.getExpectedShortfall(PARAMETERS);
+    for (int node = 0; node < PARENTS.length; node++) {
+      final double[] expectedPnL = getNodePnL(node, PNL, 0);
+      final double[] pnl = engine.getPnL(node);
+      for (int j = 0; j < WINDOW; j++) {
+        assertEquals(expectedPnL[j], pnl[j], 1e-12);
+      }
+      final DoubleTimeSeries<?> ts = toTimeSeries(expectedPnL);
+      assertEquals(VAR_CALCULATOR.evaluate(PARAMETERS, ts).getVaRValue(), var[node], 1e-12);
+      assertEquals(ES_CALCULATOR.evaluate(PARAMETERS, ts).getVaRValue(), es[node], 1e-12);
+    }
+  }
+
+  @Test
+  public void testRollingWindow() {
+    final int nDays = 40;
+    final Random random = new Random(4321);
+    final double[] history = new double[N_POSITIONS * (WINDOW + nDays)];
+    for (int i = 0; i < N_POSITIONS; i++) {
+      System.arraycopy(PNL, i * WINDOW, history, i * (WINDOW + nDays), WINDOW);
+      for (int j = WINDOW; j < WINDOW + nDays; j++) {
+        history[i * (WINDOW + nDays) + j] = random.nextGaussian();
+      }
+    }
+
+    final HistoricalVaREngine engine = new HistoricalVaREngine(PARENTS, WINDOW, EXECUTOR, 3);
+    engine.addPositions(POSITION_NODES, PNL);
+    final double[] newDay = new double[N_POSITIONS];
+    for (int day = 0; day < nDays; day++) {
+      for (int i = 0; i < N_POSITIONS; i++) {
+        newDay[i] = history[i * (WINDOW + nDays) + WINDOW + day];
+      }
+      engine.appendScenario(POSITION_NODES, newDay);
+    }
+
+    final HistoricalVaREngine expected = new HistoricalVaREngine(PARENTS, WINDOW, null, 1);
+    final double[] shifted = new double[N_POSITIONS * WINDOW];
+    for (int i = 0; i < N_POSITIONS; i++) {
+      System.arraycopy(history, i * (WINDOW + nDays) + nDays, shifted, i * WINDOW, WINDOW);
+    }
+    expected.addPositions(POSITION_NODES, shifted);
+
+    final double[] var = engine.getVaR(PARAMETERS);
+    final double[] expectedVaR = expected.getVaR(PARAMETERS);
+    for (int node = 0; node < PARENTS.length; node++) {
+      assertEquals(expectedVaR[node], var[node], 1e-12);
+      final double[] pnl = engine.getPnL(node);
+      final double[] expectedPnL = expected.getPnL(node);
+      for (int j = 0; j < WINDOW; j++) {
+        assertEquals(expectedPnL[j], pnl[j], 1e-12);
+      }
+    }
+  }
+
+  @Test
+  public void testRemovePositions() {
+    final HistoricalVaREngine engine = new HistoricalVaREngine(PARENTS, WINDOW, EXECUTOR, 3);
+    engine.addPositions(POSITION_NODES, PNL);
+    final int[] removedNodes = subArray(POSITION_NODES, 0, 10);
+    final double[] removedPnL = subArray(PNL, 0, 10 * WINDOW);
+    engine.removePositions(removedNodes, removedPnL);
+
+    final double[] var = engine.getVaR(PARAMETERS);
+    for (int node = 0; node < PARENTS.length; node++) {
+      final double[] expectedPnL = getNodePnL(node, PNL, 10);
+      assertEquals(VAR_CALCULATOR.evaluate(PARAMETERS, toTimeSeries(expectedPnL)).getVaRValue(), var[node], 1e-10);
+    }
+  }
+
+  @Test
+  public void testSequentialAndParallelAgree() {
+    final HistoricalVaREngine sequential = new HistoricalVaREngine(PARENTS, WINDOW, null, 1);
+    final HistoricalVaREngine parallel = new HistoricalVaREngine(PARENTS, WINDOW, EXECUTOR, 3);
+    sequential.addPositions(POSITION_NODES, PNL);
+    parallel.addPositions(POSITION_NODES, PNL);
+    final double[] var1 = sequential.getExpectedShortfall(PARAMETERS);
+    final double[] var2 = parallel.getExpectedShortfall(PARAMETERS);
+    for (int node = 0; node < PARENTS.length; node++) {
+      assertEquals(var1[node], var2[node], 0);
+    }
+  }
+
+  private static double[] getNodePnL(final int node, final double[] pnl, final int firstPosition) {
+    final double[] res = new double[WINDOW];
+    for (int i = firstPosition; i < N_POSITIONS; i++) {
+      if (isDescendant(POSITION_NODES[i], node)) {
+        for (int j = 0; j < WINDOW; j++) {
+          res[j] += pnl[i * WINDOW + j];
+        }
+      }
+    }
+    return res;
+  }
+
+  private static boolean isDescendant(final int node, final int ancestor) {
+    int current = node;
+    while (current != -1) {
+      if (current == ancestor) {
+        return true;
+      }
+      current = PARENTS[current];
+    }
+    return false;
+  }
+
+  private static DoubleTimeSeries<?> toTimeSeries(final double[] pnl) {
+    final long[] t = new long[pnl.length];
+    for (int j = 0; j < pnl.length; j++) {
+      t[j] = j;
+    }
+    return ImmutableInstantDoubleTimeSeries.of(t, pnl);
+  }
+
+  private static int[] subArray(final int[] x, final int from, final int to) {
+    final int[] res = new int[to - from];
+    System.arraycopy(x, from, res, 0, to - from);
+    return res;
+  }
+
+  private static double[] subArray(final double[] x, final int from, final int to) {
+    final double[] res = new double[to - from];
+    System.arraycopy(x, from, res, 0, to - from);
+    return res;
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.differentiation;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the adjoint tape against explicit derivatives.
+ */
+public class AdjointTapeTest {
+
+  private static final double TOLERANCE = 1.0E-12;
+
+  /**
+   * f(x, y) = exp(x * y) / sqrt(x) + log(y) - (x - y) / y
+   */
+  private static int function(final AdjointTape tape, final int x, final int y) {
+    final int a = tape.divide(tape.exp(tape.multiply(x, y)), tape.sqrt(x));
+    final int b = tape.add(a, tape.log(y));
+    return tape.subtract(b, tape.divide(tape.subtract(x, y), y));
+  }
+
+  @Test
+  public void derivatives() {
+    final AdjointTape tape = new AdjointTape();
+    final double xValue = 0.7;
+    final double yValue = 1.3;
+    final int x = tape.variable(xValue);
+    final int y = tape.variable(yValue);
+    final int f = function(tape, x, y);
+    final double e = Math.exp(xValue * yValue);
+    assertEquals("AdjointTape: value", e / Math.sqrt(xValue) + Math.log(yValue) - (xValue - yValue) / yValue, tape.value(f), TOLERANCE);
+    tape.backward(f);
+    assertEquals("AdjointTape: derivative", yValue * e / Math.sqrt(xValue) - 0.5 * e / Math.pow(xValue, 1.5) - 1.0 / yValue, tape.adjoint(x), TOLERANCE);
+    assertEquals("AdjointTape: derivative", xValue * e / Math.sqrt(xValue) + 1.0 / yValue + xValue / (yValue * yValue), tape.adjoint(y), TOLERANCE);
+  }
+
+  @Test
+  public void linearCombinationAndRange() {
+    final AdjointTape tape = new AdjointTape();
+    final int first = tape.variable(1.0);
+    tape.variable(2.0);
+    tape.variable(3.0);
+    final int range = tape.recordRange(10.0, first, new double[] {0.5, 0.0, 2.0 }, 3);
+    assertEquals("AdjointTape: zero partials skipped", 2, tape.getNumberOfEdges());
+    final int combination = tape.linearCombination(new int[] {range, first }, new double[] {3.0, -1.0 }, 2);
+    assertEquals("AdjointTape: value", 29.0, tape.value(combination), TOLERANCE);
+    tape.backward(combination);
+    assertEquals("AdjointTape: derivative", 0.5, tape.adjoint(first), TOLERANCE);
+    assertEquals("AdjointTape: derivative", 0.0, tape.adjoint(first + 1), TOLERANCE);
+    assertEquals("AdjointTape: derivative", 6.0, tape.adjoint(first + 2), TOLERANCE);
+  }
+
+  @Test
+  /**
+   * Tests the growth of the arrays and the reuse of the tape after a reset.
+   */
+  public void growthAndReset() {
+    final AdjointTape tape = AdjointTape.forCurrentThread();
+    for (int loop = 0; loop < 2; loop++) {
+      final int x = tape.variable(1.0);
+      int sum = x;
+      for (int i = 0; i < 10000; i++) {
+        sum = tape.add(tape.multiply(x, 0.5), sum);
+      }
+      tape.backward(sum);
+      assertEquals("AdjointTape: derivative", 5001.0, tape.adjoint(x), TOLERANCE);
+      assertEquals("AdjointTape: nodes", 20001, tape.getNumberOfNodes());
+      tape.reset();
+    }
+    assertEquals("AdjointTape: reset", 0, AdjointTape.forCurrentThread().getNumberOfNodes());
+  }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.interpolation;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.math.curve.CompiledInterpolatedDoublesCurve;
+import com.opengamma.analytics.math.curve.InterpolatedDoublesCurve;
+import com.opengamma.analytics.math.interpolation.data.Interpolator1DDataBundle;
+
+/**
+ * Tests the compiled interpolator against the interpolators it is built from.
+ */
+public class CompiledInterpolator1DTest {
+  private static final double[] X = new double[] {0.25, 0.5, 1.0, 2.0, 3.0, 5.0, 7.0, 10.0, 20.0, 30.0 };
+  private static final double[] Y = new double[] {0.990, 0.981, 0.962, 0.925, 0.885, 0.801, 0.722, 0.611, 0.352, 0.197 };
+  private static final double[] KEYS = new double[101];
+  private static final double TOLERANCE_VALUE = 1.0E-10;
+  private static final double TOLERANCE_SENSI = 1.0E-6;
+
+  static {
+    for (int i = 0; i < KEYS.length; i++) {
+      KEYS[i] = X[0] + (X[X.length - 1] - X[0]) * i / (KEYS.length - 1);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnsupported() {
+    final Interpolator1D interpolator = new StepInterpolator1D();
+    assertFalse(CompiledInterpolator1D.isSupported(interpolator));
+    CompiledInterpolator1D.from(interpolator, interpolator.getDataBundleFromSortedArrays(X, Y));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnsorted() {
+    final Interpolator1D interpolator = new LinearInterpolator1D();
+    CompiledInterpolator1D.from(interpolator, interpolator.getDataBundleFromSortedArrays(X, Y)).interpolate(new double[] {2.0, 1.0 });
+  }
+
+  @Test
+  public void testLinear() {
+    assertSame(new LinearInterpolator1D(), TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void testLogLinear() {
+    // the log-linear interpolator computes its node sensitivities by finite difference
+    assertSame(new LogLinearInterpolator1D(), TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void testNaturalCubicSpline() {
+    assertSame(new NaturalCubicSplineInterpolator1D(), TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void testPiecewisePolynomial() {
+    assertSame(new NaturalSplineInterpolator1D(), TOLERANCE_SENSI);
+    assertSame(new MonotonicityPreservingCubicSplineInterpolator1D(new NaturalSplineInterpolator()), TOLERANCE_SENSI);
+    assertSame(new LogNaturalCubicMonotonicityPreservingInterpolator1D(), TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void testMonotoneConvex() {
+    assertSame(new MonotoneConvexSplineInterpolator1D(), TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void testExtrapolation() {
+    final Interpolator1D linear = new LinearInterpolator1D();
+    final Interpolator1D flat = new CombinedInterpolatorExtrapolator(new NaturalCubicSplineInterpolator1D(), new FlatExtrapolator1D());
+    final Interpolator1D linearExtrapolation = new CombinedInterpolatorExtrapolator(linear, new LinearExtrapolator1D(linear));
+    final double[] keys = new double[] {0.0, 0.1, 1.5, 35.0, 50.0 };
+    assertSame(flat, keys, TOLERANCE_VALUE, TOLERANCE_SENSI);
+    // the linear extrapolator computes the end slope by finite difference
+    assertSame(linearExtrapolation, keys, 1.0E-6, TOLERANCE_SENSI);
+  }
+
+  @Test
+  public void testCurve() {
+    final Interpolator1D interpolator = new CombinedInterpolatorExtrapolator(new NaturalCubicSplineInterpolator1D(), new FlatExtrapolator1D());
+    final InterpolatedDoublesCurve curve = InterpolatedDoublesCurve.fromSorted(X, Y, interpolator, "Curve");
+    final CompiledInterpolatedDoublesCurve compiled = CompiledInterpolatedDoublesCurve.from(curve);
+    assertEquals(curve.getName(), compiled.getName());
+    final double[] values = compiled.getYValues(KEYS);
+    final double[][] sensitivities = compiled.getYValueParameterSensitivities(KEYS);
+    for (int i = 0; i < KEYS.length; i++) {
+      assertEquals(curve.getYValue(KEYS[i]), values[i], TOLERANCE_VALUE);
+      assertEquals(curve.getYValue(KEYS[i]), compiled.getYValue(KEYS[i]), TOLERANCE_VALUE);
+      assertEquals(curve.getDyDx(KEYS[i]), compiled.getDyDx(KEYS[i]), TOLERANCE_SENSI);
+      final Double[] expected = curve.getYValueParameterSensitivity(KEYS[i]);
+      for (int j = 0; j < X.length; j++) {
+        assertEquals(expected[j], sensitivities[i][j], TOLERANCE_SENSI);
+      }
+    }
+    final InterpolatedDoublesCurve step = CompiledInterpolatedDoublesCurve.fromSorted(X, Y, new StepInterpolator1D());
+    assertEquals(InterpolatedDoublesCurve.fromSorted(X, Y, new StepInterpolator1D()).getYValue(1.5), step.getYValue(1.5), TOLERANCE_VALUE);
+  }
+
+  private static void assertSame(final Interpolator1D interpolator, final double toleranceSensitivity) {
+    assertSame(interpolator, KEYS, TOLERANCE_VALUE, toleranceSensitivity);
+  }
+
+  private static void assertSame(final Interpolator1D interpolator, final double[] keys, final double toleranceValue, final double toleranceSensitivity) {
+    assertTrue(CompiledInterpolator1D.isSupported(interpolator));
+    final Interpolator1DDataBundle data = interpolator.getDataBundleFromSortedArrays(X, Y);
+    final CompiledInterpolator1D compiled = CompiledInterpolator1D.from(interpolator, data);
+    final double[] values = compiled.interpolate(keys);
+    final double[][] sensitivities = compiled.getNodeSensitivitiesForValues(keys);
+    for (int i = 0; i < keys.length; i++) {
+      final double expected = interpolator.interpolate(data, keys[i]);
+      assertEquals(expected, compiled.interpolate(keys[i]), toleranceValue);
+      assertEquals(expected, values[i], toleranceValue);
+      final double[] expectedSensitivities = interpolator.getNodeSensitivitiesForValue(data, keys[i]);
+      final double[] actualSensitivities = compiled.getNodeSensitivitiesForValue(keys[i]);
+      for (int j = 0; j < X.length; j++) {
+        assertEquals(expectedSensitivities[j], actualSensitivities[j], toleranceSensitivity);
+        assertEquals(expectedSensitivities[j], sensitivities[i][j], toleranceSensitivity);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+import org.testng.internal.junit.ArrayAsserts;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.DoubleMatrixUtils;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.matrix.OGMatrixAlgebra;
+
+/**
+ * Tests the dense blocked Cholesky decomposition.
+ */
+public class CholeskyDecompositionDenseTest {
+
+  private static final MatrixAlgebra ALGEBRA = new OGMatrixAlgebra();
+  private static final CholeskyDecompositionDense CDD = new CholeskyDecompositionDense();
+  private static final CholeskyDecompositionOpenGamma CDOG = new CholeskyDecompositionOpenGamma();
+  private static final DoubleMatrix2D A5 = new DoubleMatrix2D(new double[][] {new double[] {10.0, 2.0, -1.0, 1.0, 1.0}, new double[] {2.0, 5.0, -2.0, 0.5, 0.5},
+      new double[] {-1.0, -2.0, 15.0, 1.0, 0.5}, new double[] {1.0, 0.5, 1.0, 10.0, -1.0}, new double[] {1.0, 0.5, 0.5, -1.0, 25.0}});
+  private static final double EPS = 1e-9;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullObjectMatrix() {
+    CDD.evaluate((DoubleMatrix2D) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotPositive() {
+    CDD.evaluate(new DoubleMatrix2D(new double[][] {new double[] {1.0, 2.0}, new double[] {2.0, 1.0}}));
+  }
+
+  @Test
+  /**
+   * Tests the decomposition and the solve against the OpenGamma implementation.
+   */
+  public void compareOpenGamma() {
+    final CholeskyDecompositionResult result = CDD.evaluate(A5);
+    final CholeskyDecompositionResult expected = CDOG.evaluate(A5);
+    checkEquals(expected.getL(), result.getL());
+    checkEquals(expected.getLT(), result.getLT());
+    assertEquals(expected.getDeterminant(), result.getDeterminant(), EPS);
+    final double[] b = new double[] {1.0, 2.0, 3.0, 4.0, -1.0};
+    ArrayAsserts.assertArrayEquals("Cholesky decomposition dense - solve", expected.solve(b), result.solve(b), 1.0E-10);
+  }
+
+  @Test
+  /**
+   * Matrix larger than the block size, to exercise the blocked panel and trailing updates: tests A = L L^T and AX = B.
+   */
+  public void large() {
+    final int n = 150;
+    final Random random = new Random(12345);
+    final double[][] data = new double[n][n];
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        data[i][j] = random.nextDouble() - 0.5;
+      }
+    }
+    final DoubleMatrix2D m = new DoubleMatrix2D(data);
+    final DoubleMatrix2D a = (DoubleMatrix2D) ALGEBRA.add(ALGEBRA.multiply(m, ALGEBRA.getTranspose(m)), ALGEBRA.scale(DoubleMatrixUtils.getIdentityMatrix2D(n), 1.0));
+    final CholeskyDecompositionResult result = CDD.evaluate(a);
+    checkEquals(a, (DoubleMatrix2D) ALGEBRA.multiply(result.getL(), result.getLT()));
+    checkEquals(CDOG.evaluate(a).getL(), result.getL());
+    final DoubleMatrix2D b = new DoubleMatrix2D(new double[n][2]);
+    for (int i = 0; i < n; i++) {
+      b.getData()[i][0] = 1.0;
+      b.getData()[i][1] = i;
+    }
+    checkEquals(b, (DoubleMatrix2D) ALGEBRA.multiply(a, result.solve(b)));
+    final DoubleMatrix1D x = result.solve(b.getColumnVector(1));
+    ArrayAsserts.assertArrayEquals("Cholesky decomposition dense - solve", b.getColumnVector(1).getData(), ((DoubleMatrix1D) ALGEBRA.multiply(a, x)).getData(), 1.0E-8);
+  }
+
+  private void checkEquals(final DoubleMatrix2D x, final DoubleMatrix2D y) {
+    final int n = x.getNumberOfRows();
+    final int m = x.getNumberOfColumns();
+    assertEquals(n, y.getNumberOfRows());
+    assertEquals(m, y.getNumberOfColumns());
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        assertEquals(x.getEntry(i, j), y.getEntry(i, j), EPS);
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.linearalgebra;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.math.matrix.DoubleMatrix1D;
+import com.opengamma.analytics.math.matrix.DoubleMatrix2D;
+import com.opengamma.analytics.math.matrix.MatrixAlgebra;
+import com.opengamma.analytics.math.matrix.OGMatrixAlgebra;
+
+/**
+ * Tests the dense blocked LU decomposition against the Commons one.
+ */
+public class LUDecompositionDenseTest {
+  private static final MatrixAlgebra ALGEBRA = new OGMatrixAlgebra();
+  private static final Decomposition<LUDecompositionResult> LU = new LUDecompositionDense();
+  private static final Decomposition<LUDecompositionResult> LU_COMMONS = new LUDecompositionCommons();
+  private static final DoubleMatrix2D A = new DoubleMatrix2D(new double[][] {new double[] {1, 2, -1}, new double[] {4, 3, 1}, new double[] {2, 2, 3}});
+  private static final double EPS = 1e-9;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNullObjectMatrix() {
+    LU.evaluate((DoubleMatrix2D) null);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testSingular() {
+    LU.evaluate(new DoubleMatrix2D(new double[][] {new double[] {1, 2}, new double[] {2, 4}}));
+  }
+
+  @Test
+  public void testRecoverOrginal() {
+    final LUDecompositionResult lu = LU.evaluate(A);
+    checkEquals((DoubleMatrix2D) ALGEBRA.multiply(lu.getP(), A), (DoubleMatrix2D) ALGEBRA.multiply(lu.getL(), lu.getU()));
+  }
+
+  @Test
+  public void testCommons() {
+    final LUDecompositionResult lu = LU.evaluate(A);
+    final LUDecompositionResult commons = LU_COMMONS.evaluate(A);
+    checkEquals(commons.getL(), lu.getL());
+    checkEquals(commons.getU(), lu.getU());
+    checkEquals(commons.getP(), lu.getP());
+    assertEquals(commons.getDeterminant(), lu.getDeterminant(), EPS);
+  }
+
+  @Test
+  /**
+   * Matrix larger than the block size, to exercise the blocked panel and trailing updates.
+   */
+  public void testLarge() {
+    final int n = 150;
+    final DoubleMatrix2D a = randomMatrix(n, n, 1.0);
+    final LUDecompositionResult lu = LU.evaluate(a);
+    final LUDecompositionResult commons = LU_COMMONS.evaluate(a);
+    checkEquals((DoubleMatrix2D) ALGEBRA.multiply(lu.getP(), a), (DoubleMatrix2D) ALGEBRA.multiply(lu.getL(), lu.getU()));
+    assertEquals(1.0, lu.getDeterminant() / commons.getDeterminant(), EPS);
+    final DoubleMatrix1D b = randomMatrix(1, n, 0.0).getRowVector(0);
+    final DoubleMatrix1D x = lu.solve(b);
+    final DoubleMatrix1D xCommons = commons.solve(b);
+    for (int i = 0; i < n; i++) {
+      assertEquals(xCommons.getEntry(i), x.getEntry(i), EPS);
+    }
+    final DoubleMatrix2D bb = randomMatrix(n, 3, 0.0);
+    checkEquals(commons.solve(bb), lu.solve(bb));
+  }
+
+  private static DoubleMatrix2D randomMatrix(final int rows, final int cols, final double diagonal) {
+    final Random random = new Random(12345);
+    final double[][] data = new double[rows][cols];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        data[i][j] = random.nextDouble() - 0.5 + (i == j ? diagonal : 0.0);
+      }
+    }
+    return new DoubleMatrix2D(data);
+  }
+
+  private void checkEquals(final DoubleMatrix2D x, final DoubleMatrix2D y) {
+    final int n = x.getNumberOfRows();
+    final int m = x.getNumberOfColumns();
+    assertEquals(n, y.getNumberOfRows());
+    assertEquals(m, y.getNumberOfColumns());
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        assertEquals(x.getEntry(i, j), y.getEntry(i, j), EPS);
+      }
+    }
+  }
+}
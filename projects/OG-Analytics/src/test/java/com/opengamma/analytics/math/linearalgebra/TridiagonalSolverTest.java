@@ -8,6 +8,8 @@ package com.opengamma.analytics.math.linearalgebra;
 import static com.opengamma.analytics.math.linearalgebra.TridiagonalSolver.solvTriDag;
 import static org.testng.AssertJUnit.assertEquals;
 
+import java.util.Arrays;
+
 import org.testng.annotations.Test;
 
 import cern.jet.random.engine.MersenneTwister;
@@ -59,4 +61,44 @@ public class TridiagonalSolverTest {
 
   }
 
+  @Test
+  public void inPlaceTest() {
+    final int n = 53;
+    final int capacity = 60; // buffers longer than the system
+    final double[] a = new double[n - 1];
+    final double[] b = new double[n];
+    final double[] c = new double[n - 1];
+    final double[] l = new double[capacity];
+    final double[] d = new double[capacity];
+    final double[] u = new double[capacity];
+    final double[] y = new double[capacity];
+    final double[] work = new double[capacity];
+
+    for (int ii = 0; ii < n; ii++) {
+      b[ii] = 4.0 + RANDOM.nextRandom();
+      d[ii] = b[ii];
+      y[ii] = RANDOM.nextRandom();
+      if (ii < n - 1) {
+        a[ii] = RANDOM.nextRandom();
+        c[ii] = RANDOM.nextRandom();
+        u[ii] = a[ii];
+        l[ii] = c[ii];
+      }
+    }
+
+    final TridiagonalMatrix m = new TridiagonalMatrix(b, a, c);
+    final double[] expected = solvTriDag(m, Arrays.copyOf(y, n));
+    final double[] x = new double[capacity];
+    solvTriDag(l, d, u, y, x, work, n);
+    for (int i = 0; i < n; i++) {
+      assertEquals(expected[i], x[i], 0.0);
+    }
+    // solution in the right hand side
+    solvTriDag(l, d, u, y, y, work, n);
+    for (int i = 0; i < n; i++) {
+      assertEquals(expected[i], y[i], 0.0);
+      assertEquals(b[i], d[i], 0.0);
+    }
+  }
+
 }
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.matrix;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the dense blocked matrix algebra against {@link OGMatrixAlgebra}.
+ */
+public class DenseMatrixAlgebraTest {
+  private static final MatrixAlgebra OG = MatrixAlgebraFactory.getMatrixAlgebra(MatrixAlgebraFactory.OG);
+  private static final MatrixAlgebra ALGEBRA = MatrixAlgebraFactory.getMatrixAlgebra(MatrixAlgebraFactory.DENSE);
+  private static final DoubleMatrix2D A = new DoubleMatrix2D(new double[][] { {1., 2., 3. }, {-1., 1., 0. }, {-2., 1., -2. } });
+  private static final DoubleMatrix2D B = new DoubleMatrix2D(new double[][] { {1, 1 }, {2, -2 }, {3, 1 } });
+  private static final DoubleMatrix2D C = new DoubleMatrix2D(new double[][] { {14, 0 }, {1, -3 }, {-6, -6 } });
+  private static final DoubleMatrix1D D = new DoubleMatrix1D(new double[] {1, 1, 1 });
+  private static final double EPS = 1e-10;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testMatrixSizeMismatch() {
+    ALGEBRA.multiply(B, A);
+  }
+
+  @Test
+  public void testMultiply() {
+    checkEquals(C, (DoubleMatrix2D) ALGEBRA.multiply(A, B));
+    final DoubleMatrix1D d = (DoubleMatrix1D) ALGEBRA.multiply(A, D);
+    assertEquals(6, d.getEntry(0), 1e-15);
+    assertEquals(0, d.getEntry(1), 1e-15);
+    assertEquals(-3, d.getEntry(2), 1e-15);
+  }
+
+  @Test
+  /**
+   * Sizes larger than the blocks and the parallel threshold.
+   */
+  public void testMultiplyLarge() {
+    final DoubleMatrix2D a = randomMatrix(150, 130, 0.0);
+    final DoubleMatrix2D b = randomMatrix(130, 170, 0.0);
+    checkEquals((DoubleMatrix2D) OG.multiply(a, b), (DoubleMatrix2D) ALGEBRA.multiply(a, b));
+  }
+
+  @Test
+  public void testTranspose() {
+    final DoubleMatrix2D a = randomMatrix(70, 135, 0.0);
+    checkEquals(OG.getTranspose(a), ALGEBRA.getTranspose(a));
+  }
+
+  @Test
+  public void testInverseDeterminant() {
+    final int n = 100;
+    final DoubleMatrix2D a = randomMatrix(n, n, 1.0);
+    checkEquals(DoubleMatrixUtils.getIdentityMatrix2D(n), (DoubleMatrix2D) OG.multiply(ALGEBRA.getInverse(a), a));
+    assertEquals(3.0, ALGEBRA.getDeterminant(new DoubleMatrix2D(new double[][] { {1., 2., 3. }, {-1., 1., 0. }, {-2., 1., 0. } })), EPS);
+  }
+
+  @Test
+  public void testPower() {
+    checkEquals((DoubleMatrix2D) OG.multiply(OG.multiply(A, A), A), ALGEBRA.getPower(A, 3));
+    checkEquals(DoubleMatrixUtils.getIdentityMatrix2D(3), ALGEBRA.getPower(A, 0));
+  }
+
+  @Test
+  public void testNorms() {
+    assertEquals(5.0, ALGEBRA.getNorm1(A), EPS);
+    assertEquals(6.0, ALGEBRA.getNormInfinity(A), EPS);
+    assertEquals(3.0, ALGEBRA.getNorm1(D), EPS);
+    assertEquals(1.0, ALGEBRA.getNormInfinity(D), EPS);
+  }
+
+  private static DoubleMatrix2D randomMatrix(final int rows, final int cols, final double diagonal) {
+    final Random random = new Random(12345);
+    final double[][] data = new double[rows][cols];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        data[i][j] = random.nextDouble() - 0.5 + (i == j ? diagonal : 0.0);
+      }
+    }
+    return new DoubleMatrix2D(data);
+  }
+
+  private void checkEquals(final DoubleMatrix2D x, final DoubleMatrix2D y) {
+    final int n = x.getNumberOfRows();
+    final int m = x.getNumberOfColumns();
+    assertEquals(n, y.getNumberOfRows());
+    assertEquals(m, y.getNumberOfColumns());
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        assertEquals(x.getEntry(i, j), y.getEntry(i, j), EPS);
+      }
+    }
+  }
+}
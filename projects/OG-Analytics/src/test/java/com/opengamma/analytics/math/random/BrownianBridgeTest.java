@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the Brownian bridge construction.
+ */
+public class BrownianBridgeTest {
+  private static final double[] TIMES = new double[] {0.25, 0.5, 1.0, 1.5, 3.0, 4.0, 7.5 };
+  private static final BrownianBridge BRIDGE = new BrownianBridge(TIMES);
+  private static final double TOLERANCE = 1.0E-14;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotIncreasing() {
+    new BrownianBridge(new double[] {1.0, 1.0 });
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testNotPositive() {
+    new BrownianBridge(new double[] {0.0, 1.0 });
+  }
+
+  @Test
+  /**
+   * The path is a linear map of the normals; its covariance must be min(t_i, t_j).
+   */
+  public void covariance() {
+    final int n = TIMES.length;
+    final double[][] map = new double[n][n];
+    for (int k = 0; k < n; k++) {
+      final double[] normals = new double[n];
+      normals[k] = 1.0;
+      final double[] path = new double[n];
+      BRIDGE.buildPath(normals, path);
+      for (int i = 0; i < n; i++) {
+        map[i][k] = path[i];
+      }
+    }
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < n; j++) {
+        double cov = 0;
+        for (int k = 0; k < n; k++) {
+          cov += map[i][k] * map[j][k];
+        }
+        assertEquals("Brownian bridge: covariance", Math.min(TIMES[i], TIMES[j]), cov, TOLERANCE);
+      }
+    }
+  }
+
+  @Test
+  public void firstNormalIsTerminalValue() {
+    final double[] normals = new double[TIMES.length];
+    normals[0] = 1.3;
+    final double[] path = new double[TIMES.length];
+    BRIDGE.buildPath(normals, path);
+    for (int i = 0; i < TIMES.length; i++) {
+      assertEquals(1.3 * TIMES[i] / Math.sqrt(TIMES[TIMES.length - 1]), path[i], TOLERANCE);
+    }
+  }
+
+  @Test
+  public void increments() {
+    final double[] normals = new double[] {0.3, -1.2, 0.8, 2.1, -0.4, 0.05, 1.7 };
+    final double[] path = new double[TIMES.length];
+    final double[] increments = new double[TIMES.length];
+    BRIDGE.buildPath(normals, path);
+    BRIDGE.buildIncrements(normals, increments);
+    double sum = 0;
+    for (int i = 0; i < TIMES.length; i++) {
+      sum += increments[i];
+      assertEquals(path[i], sum, TOLERANCE);
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.math.random;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.math.statistics.distribution.NormalDistribution;
+
+/**
+ * Tests the Sobol sequence, its normal transform and the fast inverse normal.
+ */
+public class SobolSequenceGeneratorTest {
+  private static final double TOLERANCE = 1.0E-15;
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBadDimension() {
+    new SobolSequenceGenerator(0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDimensionBeyondDirectionNumbers() {
+    new SobolSequenceGenerator(SobolSequenceGenerator.MAX_DIMENSION + 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testDimensionTooLarge() {
+    new SobolNormalRandomNumberGenerator(3).getVector(4);
+  }
+
+  @Test
+  /**
+   * The first two dimensions are the well known van der Corput sequence and the sequence of the polynomial x+1.
+   */
+  public void firstPoints() {
+    final SobolSequenceGenerator generator = new SobolSequenceGenerator(2);
+    final double[][] expected = new double[][] { {0.0, 0.0 }, {0.5, 0.5 }, {0.75, 0.25 }, {0.25, 0.75 }, {0.375, 0.375 }, {0.875, 0.875 } };
+    for (final double[] point : expected) {
+      final double[] actual = generator.nextPoint();
+      assertEquals(point[0], actual[0], TOLERANCE);
+      assertEquals(point[1], actual[1], TOLERANCE);
+    }
+  }
+
+  @Test
+  /**
+   * The first points of dimensions 2 to 5 with the direction numbers new-joe-kuo-6.21201, as published by Joe and Kuo.
+   */
+  public void joeKuoFirstPoints() {
+    final SobolSequenceGenerator generator = new SobolSequenceGenerator(5);
+    final double[][] expected = new double[][] { {0.0, 0.0, 0.0, 0.0 }, {0.5, 0.5, 0.5, 0.5 }, {0.25, 0.25, 0.25, 0.75 }, {0.75, 0.75, 0.75, 0.25 },
+      {0.375, 0.625, 0.875, 0.375 }, {0.875, 0.125, 0.375, 0.875 }, {0.125, 0.875, 0.625, 0.625 }, {0.625, 0.375, 0.125, 0.125 },
+      {0.3125, 0.9375, 0.4375, 0.5625 }, {0.8125, 0.4375, 0.9375, 0.0625 } };
+    for (final double[] point : expected) {
+      final double[] actual = generator.nextPoint();
+      for (int loopdim = 0; loopdim < point.length; loopdim++) {
+        assertEquals(point[loopdim], actual[loopdim + 1], TOLERANCE);
+      }
+    }
+  }
+
+  @Test
+  /**
+   * The built-in direction numbers cover all their dimensions.
+   */
+  public void allDimensions() {
+    final SobolSequenceGenerator generator = new SobolSequenceGenerator(SobolSequenceGenerator.MAX_DIMENSION);
+    generator.nextPoint();
+    final double[] point = generator.nextPoint();
+    assertEquals(0.5, point[SobolSequenceGenerator.MAX_DIMENSION - 1], TOLERANCE);
+  }
+
+  @Test
+  public void skipTo() {
+    final SobolSequenceGenerator sequential = new SobolSequenceGenerator(50);
+    for (int i = 0; i < 77; i++) {
+      sequential.nextPoint();
+    }
+    final SobolSequenceGenerator skipped = new SobolSequenceGenerator(50);
+    skipped.skipTo(77);
+    final double[] expected = sequential.nextPoint();
+    final double[] actual = skipped.nextPoint();
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i], 0.0);
+    }
+    assertEquals(78, skipped.getIndex());
+  }
+
+  @Test
+  /**
+   * Each coordinate of the first 2^m points is a permutation of the multiples of 2^-m.
+   */
+  public void stratification() {
+    final int dimension = 500;
+    final int nbPoint = 1024;
+    final SobolSequenceGenerator generator = new SobolSequenceGenerator(dimension);
+    final boolean[][] seen = new boolean[dimension][nbPoint];
+    for (int looppoint = 0; looppoint < nbPoint; looppoint++) {
+      final double[] point = generator.nextPoint();
+      for (int loopdim = 0; loopdim < dimension; loopdim++) {
+        final int cell = (int) (point[loopdim] * nbPoint);
+        assertEquals(point[loopdim] * nbPoint, cell, TOLERANCE);
+        assertEquals(false, seen[loopdim][cell]);
+        seen[loopdim][cell] = true;
+      }
+    }
+  }
+
+  @Test
+  public void directionNumbersFromStream() {
+    final String numbers = "d s a m_i\n2 1 0 1\n3 2 1 1 3\n";
+    final SobolSequenceGenerator fromStream = new SobolSequenceGenerator(3, new ByteArrayInputStream(numbers.getBytes(StandardCharsets.US_ASCII)));
+    fromStream.skipTo(3);
+    final double[] point = fromStream.nextPoint();
+    assertEquals(0.25, point[0], TOLERANCE);
+    assertEquals(0.75, point[1], TOLERANCE);
+    assertEquals(0.75, point[2], TOLERANCE);
+  }
+
+  @Test
+  public void inverseNormal() {
+    final NormalDistribution normal = new NormalDistribution(0, 1);
+    final double[] p = new double[] {1.0E-12, 1.0E-6, 0.01, 0.02425, 0.1, 0.3, 0.5, 0.7, 0.9, 0.97575, 0.99, 1 - 1.0E-6 };
+    for (final double element : p) {
+      final double expected = normal.getInverseCDF(element);
+      assertEquals(expected, FastInverseNormal.inverse(element), 1.0E-8 * Math.max(1.0, Math.abs(expected)));
+    }
+  }
+
+  @Test
+  public void normalGenerator() {
+    final SobolNormalRandomNumberGenerator generator = new SobolNormalRandomNumberGenerator(10);
+    final List<double[]> vectors = generator.getVectors(4, 4095);
+    double sum = 0;
+    double sum2 = 0;
+    for (final double[] vector : vectors) {
+      assertEquals(4, vector.length);
+      sum += vector[3];
+      sum2 += vector[3] * vector[3];
+    }
+    assertEquals(0.0, sum / 4095, 1.0E-10);
+    assertEquals(1.0, sum2 / 4095, 1.0E-2);
+    generator.reset();
+    assertEquals(0.0, generator.getVector(1)[0], TOLERANCE);
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.analytics.util;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.analytics.util.ParallelRanges.RangeTask;
+
+/**
+ * Tests {@link ParallelRanges}.
+ */
+public class ParallelRangesTest {
+
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(3);
+
+  @AfterClass
+  public void shutdown() {
+    EXECUTOR.shutdown();
+  }
+
+  @Test
+  public void eachIndexOnce() {
+    for (final int n : new int[] {0, 1, 2, 3, 7, 100 }) {
+      for (final int parallelism : new int[] {1, 4, 16 }) {
+        final AtomicIntegerArray counts = new AtomicIntegerArray(n);
+        ParallelRanges.run(EXECUTOR, parallelism, n, new RangeTask() {
+          @Override
+          public void evaluate(final int first, final int last) {
+            assertTrue(first < last);
+            for (int i = first; i < last; i++) {
+              counts.incrementAndGet(i);
+            }
+          }
+        });
+        for (int i = 0; i < n; i++) {
+          assertEquals(1, counts.get(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void callingThreadRunsFirstRange() {
+    final Thread caller = Thread.currentThread();
+    final Thread[] firstRange = new Thread[1];
+    ParallelRanges.run(EXECUTOR, 4, 8, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        if (first == 0) {
+          firstRange[0] = Thread.currentThread();
+        }
+      }
+    });
+    assertEquals(caller, firstRange[0]);
+    assertFalse(ParallelRanges.isInTask());
+  }
+
+  @Test
+  public void nestedCallsSequential() {
+    final AtomicIntegerArray nestedRanges = new AtomicIntegerArray(4);
+    ParallelRanges.run(EXECUTOR, 4, 4, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        assertTrue(ParallelRanges.isInTask());
+        final Thread outer = Thread.currentThread();
+        ParallelRanges.run(EXECUTOR, 4, 10, new RangeTask() {
+          @Override
+          public void evaluate(final int nestedFirst, final int nestedLast) {
+            assertEquals(outer, Thread.currentThread());
+            assertEquals(0, nestedFirst);
+            assertEquals(10, nestedLast);
+          }
+        });
+        nestedRanges.incrementAndGet(first);
+      }
+    });
+    for (int i = 0; i < 4; i++) {
+      assertEquals(1, nestedRanges.get(i));
+    }
+  }
+
+  @Test
+  public void noExecutor() {
+    final Thread caller = Thread.currentThread();
+    ParallelRanges.run(null, 4, 10, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        assertEquals(caller, Thread.currentThread());
+        assertEquals(0, first);
+        assertEquals(10, last);
+      }
+    });
+  }
+
+  @Test
+  public void sharedExecutor() {
+    assertEquals(Runtime.getRuntime().availableProcessors(), ParallelRanges.getSharedParallelism());
+    final AtomicIntegerArray counts = new AtomicIntegerArray(50);
+    ParallelRanges.run(ParallelRanges.getSharedExecutor(), ParallelRanges.getSharedParallelism(), 50, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        for (int i = first; i < last; i++) {
+          counts.incrementAndGet(i);
+        }
+      }
+    });
+    for (int i = 0; i < 50; i++) {
+      assertEquals(1, counts.get(i));
+    }
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void taskExceptionRethrown() {
+    ParallelRanges.run(EXECUTOR, 4, 8, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+        if (first > 0) {
+          throw new IllegalStateException();
+        }
+      }
+    });
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void zeroParallelism() {
+    ParallelRanges.run(EXECUTOR, 0, 8, new RangeTask() {
+      @Override
+      public void evaluate(final int first, final int last) {
+      }
+    });
+  }
+
+}
@@ -0,0 +1,614 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.component.factory.livedata;
+
+import java.util.Map;
+
+import net.sf.ehcache.CacheManager;
+
+import org.fudgemsg.FudgeContext;
+import org.joda.beans.BeanBuilder;
+import org.joda.beans.BeanDefinition;
+import org.joda.beans.JodaBeanUtils;
+import org.joda.beans.MetaProperty;
+import org.joda.beans.Property;
+import org.joda.beans.PropertyDefinition;
+import org.joda.beans.impl.direct.DirectBeanBuilder;
+import org.joda.beans.impl.direct.DirectMetaProperty;
+import org.joda.beans.impl.direct.DirectMetaPropertyMap;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.component.ComponentRepository;
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.livedata.firehose.FileInputStreamFactory;
+import com.opengamma.livedata.firehose.FireHoseRecordProcessor;
+import com.opengamma.livedata.server.LiveDataServerMBean;
+import com.opengamma.livedata.server.StandardLiveDataServer;
+import com.opengamma.livedata.server.distribution.JmsSenderFactory;
+import com.opengamma.livedata.server.replay.MarketDataReplayer;
+import com.opengamma.livedata.server.replay.RecordedTick;
+import com.opengamma.livedata.server.replay.RecordedTickStream;
+import com.opengamma.livedata.server.replay.ReplayLiveDataServer;
+import com.opengamma.livedata.server.replay.SyntheticTickGenerator;
+import com.opengamma.provider.livedata.LiveDataMetaData;
+import com.opengamma.provider.livedata.LiveDataServerTypes;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+
+/**
+ * Component factory to create a live data server fed by a market data log or by synthetic ticks.
+ * <p>
+ * When a file is set, the ticks recorded in it are replayed continuously at the given speed.
+ * Otherwise, ticks are generated for a number of securities at a number of ticks per second.
+ */
+@BeanDefinition
+public class ReplayLiveDataServerComponentFactory extends AbstractStandardLiveDataServerComponentFactory {
+
+  /**
+   * The cache manager.
+   */
+  @PropertyDefinition(validate = "notNull")
+  private CacheManager _cacheManager;
+  /**
+   * The scheme of the security unique identifiers.
+   */
+  @PropertyDefinition(validate = "notNull")
+  private String _uniqueIdDomain;
+  /**
+   * The market data log to replay, null to generate synthetic ticks.
+   */
+  @PropertyDefinition
+  private String _file;
+  /**
+   * The replay speed as a multiple of the recorded pace, Infinity to replay without delay (default 1).
+   */
+  @PropertyDefinition
+  private double _speed = 1d;
+  /**
+   * The longest recorded interval between ticks that is replayed in milliseconds, zero if not limited (default 0).
+   */
+  @PropertyDefinition
+  private long _maxGapMillis;
+  /**
+   * The prefix of the synthetic security unique identifiers (default SYNTH).
+   */
+  @PropertyDefinition(validate = "notNull")
+  private String _idPrefix = "SYNTH";
+  /**
+   * The number of synthetic securities (default 100).
+   */
+  @PropertyDefinition
+  private int _numSecurities = 100;
+  /**
+   * The total number of synthetic ticks per second (default 1000).
+   */
+  @PropertyDefinition
+  private double _ticksPerSecond = 1000d;
+
+  //-------------------------------------------------------------------------
+  @Override
+  protected StandardLiveDataServer initServer(ComponentRepository repo) {
+    FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+    ReplayLiveDataServer server = new ReplayLiveDataServer(ExternalScheme.of(getUniqueIdDomain()), fudgeContext, getCacheManager());
+    server.setMarketDataSenderFactory(new JmsSenderFactory(getJmsConnector()));
+    repo.registerLifecycle(server);
+    repo.registerMBean(new LiveDataServerMBean(server));
+
+    // the feed is registered after the server, so it starts once the server is connected
+    if (getFile() != null) {
+      MarketDataReplayer replayer = new MarketDataReplayer(server, getSpeed());
+      replayer.setMaxGapMillis(getMaxGapMillis());
+      FireHoseRecordProcessor<RecordedTick> feed = new FireHoseRecordProcessor<RecordedTick>(
+          new FileInputStreamFactory(getFile()), new RecordedTickStream.Factory(fudgeContext), replayer);
+      repo.registerLifecycle(feed);
+    } else {
+      SyntheticTickGenerator feed = new SyntheticTickGenerator(fudgeContext, server, getIdPrefix(), getNumSecurities(), getTicksPerSecond());
+      repo.registerLifecycle(feed);
+    }
+    return server;
+  }
+
+  @Override
+  protected LiveDataMetaData createMetaData(ComponentRepository repo) {
+    String description = (getFile() != null ? "Replay of " + getFile() : getNumSecurities() + " synthetic securities");
+    return new LiveDataMetaData(ImmutableList.of(ExternalScheme.of(getUniqueIdDomain())), LiveDataServerTypes.STANDARD, description);
+  }
+
+  //------------------------- AUTOGENERATED START -------------------------
+  ///CLOVER:OFF
+  /**
+   * The meta-bean for {@code ReplayLiveDataServerComponentFactory}.
+   * @return the meta-bean, not null
+   */
+  public static ReplayLiveDataServerComponentFactory.Meta meta() {
+    return ReplayLiveDataServerComponentFactory.Meta.INSTANCE;
+  }
+
+  static {
+    JodaBeanUtils.registerMetaBean(ReplayLiveDataServerComponentFactory.Meta.INSTANCE);
+  }
+
+  @Override
+  public ReplayLiveDataServerComponentFactory.Meta metaBean() {
+    return ReplayLiveDataServerComponentFactory.Meta.INSTANCE;
+  }
+
+  @Override
+  protected Object propertyGet(String propertyName, boolean quiet) {
+    switch (propertyName.hashCode()) {
+      case -1452875317:  // cacheManager
+        return getCacheManager();
+      case 2139610288:  // uniqueIdDomain
+        return getUniqueIdDomain();
+      case 3143036:  // file
+        return getFile();
+      case 109641799:  // speed
+        return getSpeed();
+      case 1562273720:  // maxGapMillis
+        return getMaxGapMillis();
+      case -733729907:  // idPrefix
+        return getIdPrefix();
+      case 981520388:  // numSecurities
+        return getNumSecurities();
+      case -1851491813:  // ticksPerSecond
+        return getTicksPerSecond();
+    }
+    return super.propertyGet(propertyName, quiet);
+  }
+
+  @Override
+  protected void propertySet(String propertyName, Object newValue, boolean quiet) {
+    switch (propertyName.hashCode()) {
+      case -1452875317:  // cacheManager
+        setCacheManager((CacheManager) newValue);
+        return;
+      case 2139610288:  // uniqueIdDomain
+        setUniqueIdDomain((String) newValue);
+        return;
+      case 3143036:  // file
+        setFile((String) newValue);
+        return;
+      case 109641799:  // speed
+        setSpeed((Double) newValue);
+        return;
+      case 1562273720:  // maxGapMillis
+        setMaxGapMillis((Long) newValue);
+        return;
+      case -733729907:  // idPrefix
+        setIdPrefix((String) newValue);
+        return;
+      case 981520388:  // numSecurities
+        setNumSecurities((Integer) newValue);
+        return;
+      case -1851491813:  // ticksPerSecond
+        setTicksPerSecond((Double) newValue);
+        return;
+    }
+    super.propertySet(propertyName, newValue, quiet);
+  }
+
+  @Override
+  protected void validate() {
+    JodaBeanUtils.notNull(_cacheManager, "cacheManager");
+    JodaBeanUtils.notNull(_uniqueIdDomain, "uniqueIdDomain");
+    JodaBeanUtils.notNull(_idPrefix, "idPrefix");
+    super.validate();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj != null && obj.getClass() == this.getClass()) {
+      ReplayLiveDataServerComponentFactory other = (ReplayLiveDataServerComponentFactory) obj;
+      return JodaBeanUtils.equal(getCacheManager(), other.getCacheManager()) &&
+          JodaBeanUtils.equal(getUniqueIdDomain(), other.getUniqueIdDomain()) &&
+          JodaBeanUtils.equal(getFile(), other.getFile()) &&
+          JodaBeanUtils.equal(getSpeed(), other.getSpeed()) &&
+          JodaBeanUtils.equal(getMaxGapMillis(), other.getMaxGapMillis()) &&
+          JodaBeanUtils.equal(getIdPrefix(), other.getIdPrefix()) &&
+          JodaBeanUtils.equal(getNumSecurities(), other.getNumSecurities()) &&
+          JodaBeanUtils.equal(getTicksPerSecond(), other.getTicksPerSecond()) &&
+          super.equals(obj);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    int hash = 7;
+    hash += hash * 31 + JodaBeanUtils.hashCode(getCacheManager());
+    hash += hash * 31 + JodaBeanUtils.hashCode(getUniqueIdDomain());
+    hash += hash * 31 + JodaBeanUtils.hashCode(getFile());
+    hash += hash * 31 + JodaBeanUtils.hashCode(getSpeed());
+    hash += hash * 31 + JodaBeanUtils.hashCode(getMaxGapMillis());
+    hash += hash * 31 + JodaBeanUtils.hashCode(getIdPrefix());
+    hash += hash * 31 + JodaBeanUtils.hashCode(getNumSecurities());
+    hash += hash * 31 + JodaBeanUtils.hashCode(getTicksPerSecond());
+    return hash ^ super.hashCode();
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the cache manager.
+   * @return the value of the property, not null
+   */
+  public CacheManager getCacheManager() {
+    return _cacheManager;
+  }
+
+  /**
+   * Sets the cache manager.
+   * @param cacheManager  the new value of the property, not null
+   */
+  public void setCacheManager(CacheManager cacheManager) {
+    JodaBeanUtils.notNull(cacheManager, "cacheManager");
+    this._cacheManager = cacheManager;
+  }
+
+  /**
+   * Gets the the {@code cacheManager} property.
+   * @return the property, not null
+   */
+  public final Property<CacheManager> cacheManager() {
+    return metaBean().cacheManager().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the scheme of the security unique identifiers.
+   * @return the value of the property, not null
+   */
+  public String getUniqueIdDomain() {
+    return _uniqueIdDomain;
+  }
+
+  /**
+   * Sets the scheme of the security unique identifiers.
+   * @param uniqueIdDomain  the new value of the property, not null
+   */
+  public void setUniqueIdDomain(String uniqueIdDomain) {
+    JodaBeanUtils.notNull(uniqueIdDomain, "uniqueIdDomain");
+    this._uniqueIdDomain = uniqueIdDomain;
+  }
+
+  /**
+   * Gets the the {@code uniqueIdDomain} property.
+   * @return the property, not null
+   */
+  public final Property<String> uniqueIdDomain() {
+    return metaBean().uniqueIdDomain().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the market data log to replay, null to generate synthetic ticks.
+   * @return the value of the property
+   */
+  public String getFile() {
+    return _file;
+  }
+
+  /**
+   * Sets the market data log to replay, null to generate synthetic ticks.
+   * @param file  the new value of the property
+   */
+  public void setFile(String file) {
+    this._file = file;
+  }
+
+  /**
+   * Gets the the {@code file} property.
+   * @return the property, not null
+   */
+  public final Property<String> file() {
+    return metaBean().file().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the replay speed as a multiple of the recorded pace, Infinity to replay without delay (default 1).
+   * @return the value of the property
+   */
+  public double getSpeed() {
+    return _speed;
+  }
+
+  /**
+   * Sets the replay speed as a multiple of the recorded pace, Infinity to replay without delay (default 1).
+   * @param speed  the new value of the property
+   */
+  public void setSpeed(double speed) {
+    this._speed = speed;
+  }
+
+  /**
+   * Gets the the {@code speed} property.
+   * @return the property, not null
+   */
+  public final Property<Double> speed() {
+    return metaBean().speed().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the longest recorded interval between ticks that is replayed in milliseconds, zero if not limited (default 0).
+   * @return the value of the property
+   */
+  public long getMaxGapMillis() {
+    return _maxGapMillis;
+  }
+
+  /**
+   * Sets the longest recorded interval between ticks that is replayed in milliseconds, zero if not limited (default 0).
+   * @param maxGapMillis  the new value of the property
+   */
+  public void setMaxGapMillis(long maxGapMillis) {
+    this._maxGapMillis = maxGapMillis;
+  }
+
+  /**
+   * Gets the the {@code maxGapMillis} property.
+   * @return the property, not null
+   */
+  public final Property<Long> maxGapMillis() {
+    return metaBean().maxGapMillis().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the prefix of the synthetic security unique identifiers (default SYNTH).
+   * @return the value of the property, not null
+   */
+  public String getIdPrefix() {
+    return _idPrefix;
+  }
+
+  /**
+   * Sets the prefix of the synthetic security unique identifiers (default SYNTH).
+   * @param idPrefix  the new value of the property, not null
+   */
+  public void setIdPrefix(String idPrefix) {
+    JodaBeanUtils.notNull(idPrefix, "idPrefix");
+    this._idPrefix = idPrefix;
+  }
+
+  /**
+   * Gets the the {@code idPrefix} property.
+   * @return the property, not null
+   */
+  public final Property<String> idPrefix() {
+    return metaBean().idPrefix().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the number of synthetic securities (default 100).
+   * @return the value of the property
+   */
+  public int getNumSecurities() {
+    return _numSecurities;
+  }
+
+  /**
+   * Sets the number of synthetic securities (default 100).
+   * @param numSecurities  the new value of the property
+   */
+  public void setNumSecurities(int numSecurities) {
+    this._numSecurities = numSecurities;
+  }
+
+  /**
+   * Gets the the {@code numSecurities} property.
+   * @return the property, not null
+   */
+  public final Property<Integer> numSecurities() {
+    return metaBean().numSecurities().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * Gets the total number of synthetic ticks per second (default 1000).
+   * @return the value of the property
+   */
+  public double getTicksPerSecond() {
+    return _ticksPerSecond;
+  }
+
+  /**
+   * Sets the total number of synthetic ticks per second (default 1000).
+   * @param ticksPerSecond  the new value of the property
+   */
+  public void setTicksPerSecond(double ticksPerSecond) {
+    this._ticksPerSecond = ticksPerSecond;
+  }
+
+  /**
+   * Gets the the {@code ticksPerSecond} property.
+   * @return the property, not null
+   */
+  public final Property<Double> ticksPerSecond() {
+    return metaBean().ticksPerSecond().createProperty(this);
+  }
+
+  //-----------------------------------------------------------------------
+  /**
+   * The meta-bean for {@code ReplayLiveDataServerComponentFactory}.
+   */
+  public static class Meta extends AbstractStandardLiveDataServerComponentFactory.Meta {
+    /**
+     * The singleton instance of the meta-bean.
+     */
+    static final Meta INSTANCE = new Meta();
+
+    /**
+     * The meta-property for the {@code cacheManager} property.
+     */
+    private final MetaProperty<CacheManager> _cacheManager = DirectMetaProperty.ofReadWrite(
+        this, "cacheManager", ReplayLiveDataServerComponentFactory.class, CacheManager.class);
+    /**
+     * The meta-property for the {@code uniqueIdDomain} property.
+     */
+    private final MetaProperty<String> _uniqueIdDomain = DirectMetaProperty.ofReadWrite(
+        this, "uniqueIdDomain", ReplayLiveDataServerComponentFactory.class, String.class);
+    /**
+     * The meta-property for the {@code file} property.
+     */
+    private final MetaProperty<String> _file = DirectMetaProperty.ofReadWrite(
+        this, "file", ReplayLiveDataServerComponentFactory.class, String.class);
+    /**
+     * The meta-property for the {@code speed} property.
+     */
+    private final MetaProperty<Double> _speed = DirectMetaProperty.ofReadWrite(
+        this, "speed", ReplayLiveDataServerComponentFactory.class, Double.TYPE);
+    /**
+     * The meta-property for the {@code maxGapMillis} property.
+     */
+    private final MetaProperty<Long> _maxGapMillis = DirectMetaProperty.ofReadWrite(
+        this, "maxGapMillis", ReplayLiveDataServerComponentFactory.class, Long.TYPE);
+    /**
+     * The meta-property for the {@code idPrefix} property.
+     */
+    private final MetaProperty<String> _idPrefix = DirectMetaProperty.ofReadWrite(
+        this, "idPrefix", ReplayLiveDataServerComponentFactory.class, String.class);
+    /**
+     * The meta-property for the {@code numSecurities} property.
+     */
+    private final MetaProperty<Integer> _numSecurities = DirectMetaProperty.ofReadWrite(
+        this, "numSecurities", ReplayLiveDataServerComponentFactory.class, Integer.TYPE);
+    /**
+     * The meta-property for the {@code ticksPerSecond} property.
+     */
+    private final MetaProperty<Double> _ticksPerSecond = DirectMetaProperty.ofReadWrite(
+        this, "ticksPerSecond", ReplayLiveDataServerComponentFactory.class, Double.TYPE);
+    /**
+     * The meta-properties.
+     */
+    private final Map<String, MetaProperty<?>> _metaPropertyMap$ = new DirectMetaPropertyMap(
+        this, (DirectMetaPropertyMap) super.metaPropertyMap(),
+        "cacheManager",
+        "uniqueIdDomain",
+        "file",
+        "speed",
+        "maxGapMillis",
+        "idPrefix",
+        "numSecurities",
+        "ticksPerSecond");
+
+    /**
+     * Restricted constructor.
+     */
+    protected Meta() {
+    }
+
+    @Override
+    protected MetaProperty<?> metaPropertyGet(String propertyName) {
+      switch (propertyName.hashCode()) {
+        case -1452875317:  // cacheManager
+          return _cacheManager;
+        case 2139610288:  // uniqueIdDomain
+          return _uniqueIdDomain;
+        case 3143036:  // file
+          return _file;
+        case 109641799:  // speed
+          return _speed;
+        case 1562273720:  // maxGapMillis
+          return _maxGapMillis;
+        case -733729907:  // idPrefix
+          return _idPrefix;
+        case 981520388:  // numSecurities
+          return _numSecurities;
+        case -1851491813:  // ticksPerSecond
+          return _ticksPerSecond;
+      }
+      return super.metaPropertyGet(propertyName);
+    }
+
+    @Override
+    public BeanBuilder<? extends ReplayLiveDataServerComponentFactory> builder() {
+      return new DirectBeanBuilder<ReplayLiveDataServerComponentFactory>(new ReplayLiveDataServerComponentFactory());
+    }
+
+    @Override
+    public Class<? extends ReplayLiveDataServerComponentFactory> beanType() {
+      return ReplayLiveDataServerComponentFactory.class;
+    }
+
+    @Override
+    public Map<String, MetaProperty<?>> metaPropertyMap() {
+      return _metaPropertyMap$;
+    }
+
+    //-----------------------------------------------------------------------
+    /**
+     * The meta-property for the {@code cacheManager} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<CacheManager> cacheManager() {
+      return _cacheManager;
+    }
+
+    /**
+     * The meta-property for the {@code uniqueIdDomain} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<String> uniqueIdDomain() {
+      return _uniqueIdDomain;
+    }
+
+    /**
+     * The meta-property for the {@code file} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<String> file() {
+      return _file;
+    }
+
+    /**
+     * The meta-property for the {@code speed} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Double> speed() {
+      return _speed;
+    }
+
+    /**
+     * The meta-property for the {@code maxGapMillis} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Long> maxGapMillis() {
+      return _maxGapMillis;
+    }
+
+    /**
+     * The meta-property for the {@code idPrefix} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<String> idPrefix() {
+      return _idPrefix;
+    }
+
+    /**
+     * The meta-property for the {@code numSecurities} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Integer> numSecurities() {
+      return _numSecurities;
+    }
+
+    /**
+     * The meta-property for the {@code ticksPerSecond} property.
+     * @return the meta-property, not null
+     */
+    public final MetaProperty<Double> ticksPerSecond() {
+      return _ticksPerSecond;
+    }
+
+  }
+
+  ///CLOVER:ON
+  //-------------------------- AUTOGENERATED END --------------------------
+}
@@ -5,6 +5,7 @@
  */
 package com.opengamma.core.historicaltimeseries;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -81,6 +82,24 @@ public interface HistoricalTimeSeriesSource extends ChangeProvider {
   HistoricalTimeSeries getHistoricalTimeSeries(
       UniqueId uniqueId, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd, int maxPoints);
 
+  /**
+   * Finds multiple time-series by unique identifier.
+   * <p>
+   * This returns a subset of the data points filtered by the dates provided.
+   * Implementations should load the series in as few requests to the underlying
+   * store as possible, rather than one request per series.
+   * 
+   * @param uniqueIds  the unique identifiers, not null
+   * @param start  the start date, null will load the earliest date
+   * @param includeStart  whether or not the start date is included in the result
+   * @param end  the end date, null will load the latest date
+   * @param includeEnd  whether or not the end date is included in the result
+   * @return a map of each unique identifier to the corresponding time-series, omitting those not found, not null
+   * @throws IllegalArgumentException if a unique identifier is invalid
+   */
+  Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(
+      Collection<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd);
+
   // By Unique Id - latest data point methods
   
   /**
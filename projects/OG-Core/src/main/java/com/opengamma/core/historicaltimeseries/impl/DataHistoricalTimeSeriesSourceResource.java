@@ -8,6 +8,8 @@ package com.opengamma.core.historicaltimeseries.impl;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,6 +24,7 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
+import org.fudgemsg.FudgeField;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.FudgeMsgEnvelope;
 import org.fudgemsg.MutableFudgeMsg;
@@ -103,6 +106,27 @@ public class DataHistoricalTimeSeriesSourceResource extends AbstractDataResource
     return responseOkFudge(result);
   }
   
+  @POST
+  @Path("htsBulk")
+  public Response getBulk(FudgeMsgEnvelope request) {
+    // POST as the identifiers may not fit in a URI
+    FudgeMsg msg = request.getMessage();
+    FudgeDeserializer deserializationContext = new FudgeDeserializer(OpenGammaFudgeContext.getInstance());
+    List<FudgeField> idFields = msg.getAllByName("id");
+    List<UniqueId> uniqueIds = new ArrayList<UniqueId>(idFields.size());
+    for (FudgeField idField : idFields) {
+      uniqueIds.add(UniqueId.parse((String) idField.getValue()));
+    }
+    LocalDate start = deserializationContext.fieldValueToObject(LocalDate.class, msg.getByName("start"));
+    boolean includeStart = msg.getBoolean("includeStart");
+    LocalDate end = deserializationContext.fieldValueToObject(LocalDate.class, msg.getByName("end"));
+    boolean includeEnd = msg.getBoolean("includeEnd");
+    
+    Map<UniqueId, HistoricalTimeSeries> result = getHistoricalTimeSeriesSource().getHistoricalTimeSeries(
+        uniqueIds, start, includeStart, end, includeEnd);
+    return responseOkFudge(FudgeMapWrapper.of(result));
+  }
+
   @GET
   @Path("htsMeta/externalIdBundle/{htsId}")
   public Response getExternalIdBundle(
@@ -272,6 +296,24 @@ public class DataHistoricalTimeSeriesSourceResource extends AbstractDataResource
     return bld.build(uniqueId.getObjectId());
   }
 
+  public static URI uriGetBulk(URI baseUri) {
+    UriBuilder bld = UriBuilder.fromUri(baseUri).path("htsBulk");
+    return bld.build();
+  }
+
+  public static FudgeMsg uriGetBulkData(Collection<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    FudgeSerializer serializationContext = new FudgeSerializer(OpenGammaFudgeContext.getInstance());
+    MutableFudgeMsg msg = serializationContext.newMessage();
+    for (UniqueId uniqueId : uniqueIds) {
+      msg.add("id", uniqueId.toString());
+    }
+    serializationContext.addToMessage(msg, "start", null, start);
+    serializationContext.addToMessage(msg, "includeStart", null, includeStart);
+    serializationContext.addToMessage(msg, "end", null, end);
+    serializationContext.addToMessage(msg, "includeEnd", null, includeEnd);
+    return msg;
+  }
+
   /**
    * Workaround for {@link UriBuilder#queryParam} that will not escape strings that contain valid escaped sequences. For example, "%3FFoo" will be left as-is since "%3F" is a valid escape whereas
    * "%3GFoo" will be escaped to "%253GFoo". If the string contains a "%" then we will escape it in advance and the builder will leave it alone. Otherwise we'll let the builder deal with the string.
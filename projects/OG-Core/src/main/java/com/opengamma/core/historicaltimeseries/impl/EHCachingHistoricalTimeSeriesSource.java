@@ -6,6 +6,7 @@
 package com.opengamma.core.historicaltimeseries.impl;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -246,6 +247,48 @@ public class EHCachingHistoricalTimeSeriesSource implements HistoricalTimeSeries
     }
   }
 
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(
+      Collection<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.noNulls(uniqueIds, "uniqueIds");
+    SubSeriesKey subseriesKey = new SubSeriesKey(start, end, null);
+    Map<UniqueId, HistoricalTimeSeries> result = Maps.newHashMapWithExpectedSize(uniqueIds.size());
+    Set<UniqueId> remainingIds = new HashSet<UniqueId>();
+    // caching works individually but all misses can be passed to underlying as one request
+    for (UniqueId uniqueId : uniqueIds) {
+      Element element = _dataCache.get(Pair.of(uniqueId, subseriesKey));
+      if (element == null) {
+        // If we have the full series cached computing a sub-series could be faster
+        element = _dataCache.get(uniqueId);
+      }
+      if (element != null) {
+        HistoricalTimeSeries hts = (HistoricalTimeSeries) element.getObjectValue();
+        if (!MISS.equals(hts)) {
+          result.put(uniqueId, getSubSeries(hts, start, includeStart, end, includeEnd, null));
+        }
+      } else {
+        remainingIds.add(uniqueId);
+      }
+    }
+    if (remainingIds.size() > 0) {
+      Map<UniqueId, HistoricalTimeSeries> remainingTsResults =
+          _underlying.getHistoricalTimeSeries(remainingIds, subseriesKey.getStart(), true, subseriesKey.getEnd(), subseriesKey.getIncludeEnd());
+      for (UniqueId uniqueId : remainingIds) {
+        ObjectsPair<UniqueId, SubSeriesKey> key = Pair.of(uniqueId, subseriesKey);
+        HistoricalTimeSeries hts = remainingTsResults.get(uniqueId);
+        if (hts != null) {
+          s_logger.debug("Caching sub time-series {}", hts);
+          _dataCache.put(new Element(key, hts));
+          result.put(uniqueId, getSubSeries(hts, start, includeStart, end, includeEnd, null));
+        } else {
+          s_logger.debug("Caching miss {}", key);
+          _dataCache.put(new Element(key, MISS));
+        }
+      }
+    }
+    return result;
+  }
+
   private HistoricalTimeSeries doGetHistoricalTimeSeries(
       UniqueId uniqueId, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd, Integer maxPoints) {
     SubSeriesKey subseriesKey = new SubSeriesKey(start, end, maxPoints);
@@ -5,6 +5,8 @@
  */
 package com.opengamma.core.historicaltimeseries.impl;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -85,6 +87,20 @@ public class MockHistoricalTimeSeriesSource implements HistoricalTimeSeriesSourc
     return getSubSeries(hts, start, includeStart, end, includeEnd, maxPoints);
   }
 
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(
+      Collection<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.noNulls(uniqueIds, "uniqueIds");
+    Map<UniqueId, HistoricalTimeSeries> result = new HashMap<UniqueId, HistoricalTimeSeries>();
+    for (UniqueId uniqueId : uniqueIds) {
+      HistoricalTimeSeries hts = getSubSeries(getHistoricalTimeSeries(uniqueId), start, includeStart, end, includeEnd, null);
+      if (hts != null) {
+        result.put(uniqueId, hts);
+      }
+    }
+    return result;
+  }
+
   @Override
   public Pair<LocalDate, Double> getLatestDataPoint(UniqueId uniqueId) {
     HistoricalTimeSeries hts = getHistoricalTimeSeries(uniqueId);
@@ -5,13 +5,20 @@
  */
 package com.opengamma.core.historicaltimeseries.impl;
 
+import static com.opengamma.timeseries.DoubleTimeSeriesOperators.SECOND_OPERATOR;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,9 +27,12 @@ import org.threeten.bp.LocalDate;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Transaction;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.base.Charsets;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Lists;
@@ -34,6 +44,7 @@ import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.UniqueId;
+import com.opengamma.timeseries.date.localdate.CompressedLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeriesBuilder;
@@ -57,14 +68,26 @@ import com.opengamma.util.tuple.Pair;
  *       different Data Source, Data Provider, Observation Time, Data Field series).</li>
  * </ul>
  * <p/>
+ * By default each data point is stored as text, in a hash of values and a sorted set of dates.
+ * When created as <em>packed</em>, each series is instead stored as one binary chunk per year,
+ * holding the points of the year as a {@link CompressedLocalDateDoubleTimeSeries}, together with
+ * the list of the years of the series. Packed series are read without parsing any text and
+ * {@link #getHistoricalTimeSeries(Collection, LocalDate, boolean, LocalDate, boolean)} reads any
+ * number of them in two requests to Redis. The two layouts use different keys and cannot be mixed.
+ * <p/>
  * Where a method is not supported semantically, an {@link UnsupportedOperationException}
  * will be thrown. Where use indicates that this class may be being used incorrectly,
  * a log message will be written at {@code WARN} level.
  */
 public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTimeSeriesSource, MetricProducer {
   private static final Logger s_logger = LoggerFactory.getLogger(NonVersionedRedisHistoricalTimeSeriesSource.class);
+  /**
+   * The number of times an update of a packed series is attempted when concurrent writers interfere.
+   */
+  private static final int MAX_PACKED_UPDATE_ATTEMPTS = 100;
   private final JedisPool _jedisPool;
   private final String _redisPrefix;
+  private final boolean _packed;
   
   private Timer _getSeriesTimer = new Timer();
   private Timer _updateSeriesTimer = new Timer();
@@ -74,10 +97,22 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
   }
     
   public NonVersionedRedisHistoricalTimeSeriesSource(JedisPool jedisPool, String redisPrefix) {
+    this(jedisPool, redisPrefix, false);
+  }
+
+  /**
+   * Creates an instance.
+   * 
+   * @param jedisPool the pool of connections to Redis, not null
+   * @param redisPrefix the prefix of the keys, not null
+   * @param packed whether the series are stored as binary chunks rather than text
+   */
+  public NonVersionedRedisHistoricalTimeSeriesSource(JedisPool jedisPool, String redisPrefix, boolean packed) {
     ArgumentChecker.notNull(jedisPool, "jedisPool");
     ArgumentChecker.notNull(redisPrefix, "redisPrefix");
     _jedisPool = jedisPool;
     _redisPrefix = redisPrefix;
+    _packed = packed;
   }
 
   /**
@@ -95,6 +130,14 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
   protected String getRedisPrefix() {
     return _redisPrefix;
   }
+
+  /**
+   * Gets whether the series are stored as binary chunks rather than text.
+   * @return the packed flag
+   */
+  public boolean isPacked() {
+    return _packed;
+  }
   
   @Override
   public void registerMetrics(MetricRegistry summaryRegistry, MetricRegistry detailRegistry, String namePrefix) {
@@ -121,6 +164,11 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
     try (Timer.Context context = _updateSeriesTimer.time()) {
       Jedis jedis = getJedisPool().getResource();
       try {
+        if (isPacked()) {
+          updatePackedTimeSeries(jedis, redisKey, timeseries);
+          getJedisPool().returnResource(jedis);
+          return;
+        }
         Map<String, String> htsMap = Maps.newHashMap();
         BiMap<Double, String> dates = HashBiMap.create();
         for (Entry<LocalDate, Double> entry : timeseries) {
@@ -154,6 +202,63 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
     }
   }
   
+  private void updatePackedTimeSeries(Jedis jedis, String redisKey, LocalDateDoubleTimeSeries timeseries) {
+    if (timeseries.isEmpty()) {
+      return;
+    }
+    int[] times = timeseries.timesArrayFast();
+    double[] values = timeseries.valuesArrayFast();
+    // the runs of points of each year, merged with the existing chunks of the years
+    List<int[]> runs = Lists.newArrayList();
+    int from = 0;
+    for (int i = 1; i <= times.length; i++) {
+      if (i == times.length || times[i] / 10000 != times[from] / 10000) {
+        runs.add(new int[] {from, i});
+        from = i;
+      }
+    }
+    byte[] yearsKey = toBytes(toRedisHtsYearsKey(redisKey));
+    byte[][] readKeys = new byte[runs.size() + 1][];
+    readKeys[0] = yearsKey;
+    for (int k = 0; k < runs.size(); k++) {
+      readKeys[k + 1] = toBytes(toRedisHtsChunkKey(redisKey, times[runs.get(k)[0]] / 10000));
+    }
+    // the chunks are merged optimistically, the write is aborted and retried if another writer changes them
+    for (int attempt = 0; attempt < MAX_PACKED_UPDATE_ATTEMPTS; attempt++) {
+      jedis.watch(readKeys);
+      byte[][] keysValues = mergePackedChunks(runs, times, values, readKeys, jedis.mget(readKeys));
+      Transaction transaction = jedis.multi();
+      transaction.mset(keysValues);
+      if (transaction.exec() != null) {
+        return;
+      }
+      s_logger.debug("Concurrent update of time-series {}, retrying", redisKey);
+    }
+    throw new OpenGammaRuntimeException("Unable to update time-series after " + MAX_PACKED_UPDATE_ATTEMPTS + " attempts: " + redisKey);
+  }
+
+  private static byte[][] mergePackedChunks(List<int[]> runs, int[] times, double[] values, byte[][] readKeys, List<byte[]> existing) {
+    SortedSet<Integer> years = new TreeSet<>();
+    for (int year : unpackYears(existing.get(0))) {
+      years.add(year);
+    }
+    byte[][] keysValues = new byte[readKeys.length * 2][];
+    for (int k = 0; k < runs.size(); k++) {
+      int[] run = runs.get(k);
+      LocalDateDoubleTimeSeries chunk = ImmutableLocalDateDoubleTimeSeries.of(Arrays.copyOfRange(times, run[0], run[1]), Arrays.copyOfRange(values, run[0], run[1]));
+      byte[] existingChunk = existing.get(k + 1);
+      if (existingChunk != null) {
+        chunk = CompressedLocalDateDoubleTimeSeries.ofCompressedData(existingChunk).unionOperate(chunk, SECOND_OPERATOR);
+      }
+      keysValues[2 * k] = readKeys[k + 1];
+      keysValues[2 * k + 1] = CompressedLocalDateDoubleTimeSeries.of(chunk).getCompressedData();
+      years.add(times[run[0]] / 10000);
+    }
+    keysValues[2 * runs.size()] = readKeys[0];
+    keysValues[2 * runs.size() + 1] = packYears(years);
+    return keysValues;
+  }
+  
   private String toRedisHtsDaysKey(String redisKey) {
     return redisKey + ":hts.days";
   }
@@ -162,6 +267,35 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
     return redisKey + ":hts.datapoint";
   }
 
+  private String toRedisHtsYearsKey(String redisKey) {
+    return redisKey + ":hts.years";
+  }
+
+  private String toRedisHtsChunkKey(String redisKey, int year) {
+    return redisKey + ":hts.chunk:" + year;
+  }
+
+  private static byte[] toBytes(String key) {
+    return key.getBytes(Charsets.UTF_8);
+  }
+
+  private static byte[] packYears(SortedSet<Integer> years) {
+    ByteBuffer buffer = ByteBuffer.allocate(years.size() * 4);
+    for (int year : years) {
+      buffer.putInt(year);
+    }
+    return buffer.array();
+  }
+
+  private static int[] unpackYears(byte[] packedYears) {
+    if (packedYears == null) {
+      return new int[0];
+    }
+    int[] years = new int[packedYears.length / 4];
+    ByteBuffer.wrap(packedYears).asIntBuffer().get(years);
+    return years;
+  }
+
   /**
    * Updates a datapoint in a timeseries.
    * 
@@ -241,6 +375,9 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
     
   protected LocalDateDoubleTimeSeries loadTimeSeriesFromRedis(String redisKey, LocalDate start, LocalDate end) {
     // This is the only method that needs implementation.
+    if (isPacked()) {
+      return loadTimeSeriesFromRedis(Collections.singletonList(redisKey), start, end).get(0);
+    }
     try (Timer.Context context = _getSeriesTimer.time()) {
       Jedis jedis = getJedisPool().getResource();
       LocalDateDoubleTimeSeries ts = null;
@@ -258,22 +395,7 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
         if (!dateTexts.isEmpty()) {
           String redisHtsDatapointKey = toRedisHtsDatapointKey(redisKey);
           List<String> valueTexts = jedis.hmget(redisHtsDatapointKey, dateTexts.toArray(new String[dateTexts.size()]));
-          
-          List<Integer> times = Lists.newArrayListWithCapacity(dateTexts.size());
-          List<Double> values = Lists.newArrayListWithCapacity(valueTexts.size());
-          
-          Iterator<String> dateItr = dateTexts.iterator();
-          Iterator<String> valueItr = valueTexts.iterator();
-          
-          while (dateItr.hasNext()) {
-            String dateAsIntText = dateItr.next();
-            String valueText = StringUtils.trimToNull(valueItr.next());
-            if (valueText != null) {
-              times.add(Integer.parseInt(dateAsIntText));
-              values.add(Double.parseDouble(valueText));
-            }
-          }
-          ts = ImmutableLocalDateDoubleTimeSeries.of(ArrayUtils.toPrimitive(times.toArray(new Integer[times.size()])), ArrayUtils.toPrimitive(values.toArray(new Double[values.size()])));
+          ts = toTimeSeries(dateTexts, valueTexts);
         }
         getJedisPool().returnResource(jedis);
       } catch (Exception e) {
@@ -285,34 +407,175 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
     }
   }
 
-  private double localDateToDouble(final LocalDate date) {
-    String dateAsIntText = Integer.toString(LocalDateToIntConverter.convertToInt(date));
-    return Double.parseDouble(dateAsIntText);
+  /**
+   * Loads several time-series, in a fixed number of requests to Redis whatever the number of series.
+   * 
+   * @param redisKeys the keys of the series, not null
+   * @param start the first date, null for the earliest point
+   * @param end the last date, null for the latest point
+   * @return the series, in the order of the keys, null for a series without points, not null
+   */
+  protected List<LocalDateDoubleTimeSeries> loadTimeSeriesFromRedis(List<String> redisKeys, LocalDate start, LocalDate end) {
+    if (redisKeys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    try (Timer.Context context = _getSeriesTimer.time()) {
+      Jedis jedis = getJedisPool().getResource();
+      List<LocalDateDoubleTimeSeries> result;
+      try {
+        if (isPacked()) {
+          result = loadPackedTimeSeries(jedis, redisKeys, start, end);
+        } else {
+          result = loadTextTimeSeries(jedis, redisKeys, start, end);
+        }
+        getJedisPool().returnResource(jedis);
+      } catch (Exception e) {
+        s_logger.error("Unable to load points from redis for " + redisKeys.size() + " series", e);
+        getJedisPool().returnBrokenResource(jedis);
+        throw new OpenGammaRuntimeException("Unable to load points from redis for " + redisKeys.size() + " series", e);
+      }
+      return result;
+    }
   }
 
-  public HistoricalTimeSeries getHistoricalTimeSeries(UniqueId uniqueId, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
-    ArgumentChecker.notNull(uniqueId, "uniqueId");
-    
-    LocalDate actualStart = null;
-    LocalDate actualEnd = null;
-    
-    if (start != null) {
-      if (includeStart) {
-        actualStart = start;
+  private List<LocalDateDoubleTimeSeries> loadTextTimeSeries(Jedis jedis, List<String> redisKeys, LocalDate start, LocalDate end) {
+    double min = start != null ? localDateToDouble(start) : Double.NEGATIVE_INFINITY;
+    double max = end != null ? localDateToDouble(end) : Double.POSITIVE_INFINITY;
+    // the dates of all the series in one round trip, then the values in another
+    Pipeline pipeline = jedis.pipelined();
+    List<Response<Set<String>>> dateResponses = Lists.newArrayListWithCapacity(redisKeys.size());
+    for (String redisKey : redisKeys) {
+      dateResponses.add(pipeline.zrangeByScore(toRedisHtsDaysKey(redisKey), min, max));
+    }
+    pipeline.sync();
+    pipeline = jedis.pipelined();
+    List<Response<List<String>>> valueResponses = Lists.newArrayListWithCapacity(redisKeys.size());
+    for (int i = 0; i < redisKeys.size(); i++) {
+      Set<String> dateTexts = dateResponses.get(i).get();
+      if (dateTexts.isEmpty()) {
+        valueResponses.add(null);
       } else {
-        actualStart = start.plusDays(1);
+        valueResponses.add(pipeline.hmget(toRedisHtsDatapointKey(redisKeys.get(i)), dateTexts.toArray(new String[dateTexts.size()])));
       }
     }
+    pipeline.sync();
+    List<LocalDateDoubleTimeSeries> result = Lists.newArrayListWithCapacity(redisKeys.size());
+    for (int i = 0; i < redisKeys.size(); i++) {
+      Response<List<String>> valueResponse = valueResponses.get(i);
+      result.add(valueResponse != null ? toTimeSeries(dateResponses.get(i).get(), valueResponse.get()) : null);
+    }
+    return result;
+  }
+
+  private static LocalDateDoubleTimeSeries toTimeSeries(Set<String> dateTexts, List<String> valueTexts) {
+    int[] times = new int[dateTexts.size()];
+    double[] values = new double[dateTexts.size()];
+    int size = 0;
     
-    if (end != null) {
-      if (includeEnd) {
-        actualEnd = end;
-      } else {
-        actualEnd = end.minusDays(1);
+    Iterator<String> dateItr = dateTexts.iterator();
+    Iterator<String> valueItr = valueTexts.iterator();
+    
+    while (dateItr.hasNext()) {
+      String dateAsIntText = dateItr.next();
+      String valueText = StringUtils.trimToNull(valueItr.next());
+      if (valueText != null) {
+        times[size] = Integer.parseInt(dateAsIntText);
+        values[size++] = Double.parseDouble(valueText);
       }
     }
+    return ImmutableLocalDateDoubleTimeSeries.of(Arrays.copyOf(times, size), Arrays.copyOf(values, size));
+  }
+
+  private List<LocalDateDoubleTimeSeries> loadPackedTimeSeries(Jedis jedis, List<String> redisKeys, LocalDate start, LocalDate end) {
+    int startYear = start != null ? start.getYear() : Integer.MIN_VALUE;
+    int endYear = end != null ? end.getYear() : Integer.MAX_VALUE;
+    // the years of all the series in one round trip, then the chunks of the years in the range in another
+    byte[][] yearsKeys = new byte[redisKeys.size()][];
+    for (int i = 0; i < yearsKeys.length; i++) {
+      yearsKeys[i] = toBytes(toRedisHtsYearsKey(redisKeys.get(i)));
+    }
+    List<byte[]> packedYears = jedis.mget(yearsKeys);
+    int[] chunkCounts = new int[redisKeys.size()];
+    List<byte[]> chunkKeys = Lists.newArrayList();
+    for (int i = 0; i < redisKeys.size(); i++) {
+      for (int year : unpackYears(packedYears.get(i))) {
+        if (year >= startYear && year <= endYear) {
+          chunkKeys.add(toBytes(toRedisHtsChunkKey(redisKeys.get(i), year)));
+          chunkCounts[i]++;
+        }
+      }
+    }
+    List<byte[]> chunks = chunkKeys.isEmpty() ? Collections.<byte[]>emptyList() : jedis.mget(chunkKeys.toArray(new byte[chunkKeys.size()][]));
+    List<LocalDateDoubleTimeSeries> result = Lists.newArrayListWithCapacity(redisKeys.size());
+    int chunkIndex = 0;
+    for (int i = 0; i < redisKeys.size(); i++) {
+      result.add(toTimeSeries(chunks.subList(chunkIndex, chunkIndex + chunkCounts[i]), start, end));
+      chunkIndex += chunkCounts[i];
+    }
+    return result;
+  }
+
+  private static LocalDateDoubleTimeSeries toTimeSeries(List<byte[]> chunks, LocalDate start, LocalDate end) {
+    List<CompressedLocalDateDoubleTimeSeries> decoded = Lists.newArrayListWithCapacity(chunks.size());
+    int size = 0;
+    for (byte[] chunk : chunks) {
+      if (chunk != null) {
+        CompressedLocalDateDoubleTimeSeries series = CompressedLocalDateDoubleTimeSeries.ofCompressedData(chunk);
+        decoded.add(series);
+        size += series.size();
+      }
+    }
+    // the chunks are in the order of the years, so decode one after the other
+    int[] times = new int[size];
+    double[] values = new double[size];
+    int offset = 0;
+    for (CompressedLocalDateDoubleTimeSeries series : decoded) {
+      series.decodeInto(times, values, offset);
+      offset += series.size();
+    }
+    int from = 0;
+    int to = size;
+    if (start != null) {
+      int index = Arrays.binarySearch(times, LocalDateToIntConverter.convertToInt(start));
+      from = index >= 0 ? index : -index - 1;
+    }
+    if (end != null) {
+      int index = Arrays.binarySearch(times, LocalDateToIntConverter.convertToInt(end));
+      to = index >= 0 ? index + 1 : -index - 1;
+    }
+    if (from >= to) {
+      return null;
+    }
+    if (from > 0 || to < size) {
+      times = Arrays.copyOfRange(times, from, to);
+      values = Arrays.copyOfRange(values, from, to);
+    }
+    return ImmutableLocalDateDoubleTimeSeries.of(times, values);
+  }
+
+  private double localDateToDouble(final LocalDate date) {
+    String dateAsIntText = Integer.toString(LocalDateToIntConverter.convertToInt(date));
+    return Double.parseDouble(dateAsIntText);
+  }
+
+  private static LocalDate actualStart(LocalDate start, boolean includeStart) {
+    if (start != null && !includeStart) {
+      return start.plusDays(1);
+    }
+    return start;
+  }
+
+  private static LocalDate actualEnd(LocalDate end, boolean includeEnd) {
+    if (end != null && !includeEnd) {
+      return end.minusDays(1);
+    }
+    return end;
+  }
+
+  public HistoricalTimeSeries getHistoricalTimeSeries(UniqueId uniqueId, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.notNull(uniqueId, "uniqueId");
     
-    LocalDateDoubleTimeSeries ts = loadTimeSeriesFromRedis(toRedisKey(uniqueId), actualStart, actualEnd);
+    LocalDateDoubleTimeSeries ts = loadTimeSeriesFromRedis(toRedisKey(uniqueId), actualStart(start, includeStart), actualEnd(end, includeEnd));
     SimpleHistoricalTimeSeries result = null;
     if (ts != null) {
       result = new SimpleHistoricalTimeSeries(uniqueId, ts);
@@ -320,6 +583,38 @@ public class NonVersionedRedisHistoricalTimeSeriesSource implements HistoricalTi
     return result;
   }
 
+  /**
+   * Gets several time-series, in a fixed number of requests to Redis whatever the number of series.
+   * <p/>
+   * This is intended for loading many series at once, such as the simulation series of a VaR run.
+   * 
+   * @param uniqueIds the unique identifiers of the series, not null
+   * @param start the start date, null for the earliest point
+   * @param includeStart whether the start date is included
+   * @param end the end date, null for the latest point
+   * @param includeEnd whether the end date is included
+   * @return the series by unique identifier, without the series that do not exist or have no points in the range, not null
+   */
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(Collection<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.noNulls(uniqueIds, "uniqueIds");
+    
+    List<UniqueId> ids = Lists.newArrayList(uniqueIds);
+    List<String> redisKeys = Lists.newArrayListWithCapacity(ids.size());
+    for (UniqueId uniqueId : ids) {
+      redisKeys.add(toRedisKey(uniqueId));
+    }
+    List<LocalDateDoubleTimeSeries> series = loadTimeSeriesFromRedis(redisKeys, actualStart(start, includeStart), actualEnd(end, includeEnd));
+    Map<UniqueId, HistoricalTimeSeries> result = Maps.newHashMapWithExpectedSize(ids.size());
+    for (int i = 0; i < ids.size(); i++) {
+      LocalDateDoubleTimeSeries ts = series.get(i);
+      if (ts != null) {
+        result.put(ids.get(i), new SimpleHistoricalTimeSeries(ids.get(i), ts));
+      }
+    }
+    return result;
+  }
+
   public HistoricalTimeSeries getHistoricalTimeSeries(String dataField, ExternalIdBundle identifierBundle, String resolutionKey, LocalDate start, boolean includeStart, LocalDate end,
                                                       boolean includeEnd, int maxPoints) {
     ArgumentChecker.notNull(identifierBundle, "identifierBundle");
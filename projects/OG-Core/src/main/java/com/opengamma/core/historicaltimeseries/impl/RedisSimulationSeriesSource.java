@@ -68,6 +68,17 @@ public class RedisSimulationSeriesSource extends NonVersionedRedisHistoricalTime
     super(jedisPool, redisPrefix);
   }
 
+  /**
+   * Creates an instance.
+   * 
+   * @param jedisPool the pool of connections to Redis, not null
+   * @param redisPrefix the prefix of the keys, not null
+   * @param packed whether the series are stored as binary chunks rather than text
+   */
+  public RedisSimulationSeriesSource(JedisPool jedisPool, String redisPrefix, boolean packed) {
+    super(jedisPool, redisPrefix, packed);
+  }
+
   /**
    * Gets the currentSimulationExecutionDate.
    * @return the currentSimulationExecutionDate
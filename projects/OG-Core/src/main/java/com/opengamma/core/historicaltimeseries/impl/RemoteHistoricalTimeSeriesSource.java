@@ -6,6 +6,7 @@
 package com.opengamma.core.historicaltimeseries.impl;
 
 import java.net.URI;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -91,6 +92,15 @@ public class RemoteHistoricalTimeSeriesSource extends AbstractRemoteClient imple
     }
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(Collection<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.noNulls(uniqueIds, "uniqueIds");
+    URI uri = DataHistoricalTimeSeriesSourceResource.uriGetBulk(getBaseUri());
+    FudgeMsg msg = DataHistoricalTimeSeriesSourceResource.uriGetBulkData(uniqueIds, start, includeStart, end, includeEnd);
+    return accessRemote(uri).post(FudgeMapWrapper.class, msg).getMap();
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public Pair<LocalDate, Double> getLatestDataPoint(UniqueId uniqueId) {
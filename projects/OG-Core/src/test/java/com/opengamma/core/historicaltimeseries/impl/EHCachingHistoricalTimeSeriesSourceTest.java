@@ -5,13 +5,24 @@
  */
 package com.opengamma.core.historicaltimeseries.impl;
 
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 import net.sf.ehcache.CacheManager;
 
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
@@ -19,6 +30,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 import org.threeten.bp.LocalDate;
 
+import com.google.common.collect.ImmutableSet;
 import com.opengamma.core.change.BasicChangeManager;
 import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
 import com.opengamma.core.historicaltimeseries.HistoricalTimeSeriesSource;
@@ -84,6 +96,46 @@ public class EHCachingHistoricalTimeSeriesSourceTest {
     verify(_underlyingSource, times(1)).getHistoricalTimeSeries(UID);
   }
   
+  @SuppressWarnings("unchecked")
+  public void getHistoricalTimeSeries_bulk() {
+    final UniqueId missingUid = UniqueId.of("A", "Missing");
+    final UniqueId otherUid = UniqueId.of("A", "C");
+    LocalDate start = LocalDate.of(2011, 6, 1);
+    LocalDate end = LocalDate.of(2011, 7, 31);
+    final Map<UniqueId, HistoricalTimeSeries> underlying = new HashMap<UniqueId, HistoricalTimeSeries>();
+    underlying.put(UID, new SimpleHistoricalTimeSeries(UID, ImmutableLocalDateDoubleTimeSeries.of(LocalDate.of(2011, 6, 30), 12.34d)));
+    underlying.put(otherUid, new SimpleHistoricalTimeSeries(otherUid, ImmutableLocalDateDoubleTimeSeries.of(LocalDate.of(2011, 7, 1), 56.78d)));
+    when(_underlyingSource.getHistoricalTimeSeries(anyCollectionOf(UniqueId.class), eq(start), anyBoolean(), eq(end), anyBoolean())).thenAnswer(
+        new Answer<Map<UniqueId, HistoricalTimeSeries>>() {
+          @Override
+          public Map<UniqueId, HistoricalTimeSeries> answer(InvocationOnMock invocation) {
+            Map<UniqueId, HistoricalTimeSeries> result = new HashMap<UniqueId, HistoricalTimeSeries>();
+            for (UniqueId uniqueId : (Collection<UniqueId>) invocation.getArguments()[0]) {
+              if (underlying.containsKey(uniqueId)) {
+                result.put(uniqueId, underlying.get(uniqueId));
+              }
+            }
+            return result;
+          }
+        });
+    
+    // the misses are fetched together, and a missing series is cached as such
+    Map<UniqueId, HistoricalTimeSeries> result1 = _cachingSource.getHistoricalTimeSeries(Arrays.asList(UID, missingUid), start, true, end, true);
+    Map<UniqueId, HistoricalTimeSeries> result2 = _cachingSource.getHistoricalTimeSeries(Arrays.asList(UID, missingUid), start, true, end, true);
+    assertEquals(ImmutableSet.of(UID), result1.keySet());
+    assertEquals(ImmutableSet.of(UID), result2.keySet());
+    assertEquals(underlying.get(UID).getTimeSeries(), result1.get(UID).getTimeSeries());
+    assertEquals(underlying.get(UID).getTimeSeries(), result2.get(UID).getTimeSeries());
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(eq(ImmutableSet.of(UID, missingUid)), eq(start), eq(true), eq(end), eq(true));
+    
+    // only the new identifier is fetched
+    Map<UniqueId, HistoricalTimeSeries> result3 = _cachingSource.getHistoricalTimeSeries(Arrays.asList(UID, missingUid, otherUid), start, true, end, true);
+    assertEquals(ImmutableSet.of(UID, otherUid), result3.keySet());
+    assertEquals(underlying.get(otherUid).getTimeSeries(), result3.get(otherUid).getTimeSeries());
+    verify(_underlyingSource, times(1)).getHistoricalTimeSeries(eq(ImmutableSet.of(otherUid)), eq(start), eq(true), eq(end), eq(true));
+    verify(_underlyingSource, times(2)).getHistoricalTimeSeries(anyCollectionOf(UniqueId.class), eq(start), anyBoolean(), eq(end), anyBoolean());
+  }
+
   public void getExternalIdBundle_UniqueId() {
     ExternalId djxTicker = ExternalId.of(ExternalSchemes.BLOOMBERG_TICKER, "DJX Index");
     ExternalId djxBUID = ExternalId.of(ExternalSchemes.BLOOMBERG_BUID, "EI09JDX");
@@ -9,12 +9,15 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
 
 import org.testng.annotations.Test;
 import org.threeten.bp.LocalDate;
 
+import com.google.common.collect.Lists;
 import com.opengamma.core.historicaltimeseries.HistoricalTimeSeries;
 import com.opengamma.id.ExternalId;
 import com.opengamma.id.ExternalIdBundle;
@@ -341,6 +344,116 @@ public class NonVersionedRedisHistoricalTimeSeriesSourceTest extends AbstractRed
     
   }
   
+  public void packedOperation() {
+    NonVersionedRedisHistoricalTimeSeriesSource source = new NonVersionedRedisHistoricalTimeSeriesSource(getJedisPool(), getRedisPrefix(), true);
+    UniqueId id = UniqueId.of("Test", "1");
+    assertNull(source.getHistoricalTimeSeries(id));
+    
+    LocalDateDoubleTimeSeriesBuilder tsBuilder = ImmutableLocalDateDoubleTimeSeries.builder();
+    tsBuilder.put(LocalDate.parse("2012-12-28"), 14.0);
+    tsBuilder.put(LocalDate.parse("2012-12-31"), 15.0);
+    tsBuilder.put(LocalDate.parse("2013-01-02"), 16.0);
+    tsBuilder.put(LocalDate.parse("2013-06-07"), 17.0);
+    tsBuilder.put(LocalDate.parse("2014-01-02"), 18.0);
+    source.updateTimeSeries(id, tsBuilder.build());
+    // overwrites a point and adds one in an existing year
+    tsBuilder = ImmutableLocalDateDoubleTimeSeries.builder();
+    tsBuilder.put(LocalDate.parse("2013-01-02"), 13.0);
+    tsBuilder.put(LocalDate.parse("2013-01-03"), 19.0);
+    source.updateTimeSeries(id, tsBuilder.build());
+    
+    LocalDateDoubleTimeSeries ts = source.getHistoricalTimeSeries(id).getTimeSeries();
+    assertEquals(6, ts.size());
+    assertEquals(13.0, ts.getValue(LocalDate.parse("2013-01-02")), 0.00001);
+    assertEquals(19.0, ts.getValue(LocalDate.parse("2013-01-03")), 0.00001);
+    
+    ts = source.getHistoricalTimeSeries(id, LocalDate.parse("2012-12-31"), false, LocalDate.parse("2014-01-02"), false).getTimeSeries();
+    assertEquals(3, ts.size());
+    assertEquals(LocalDate.parse("2013-01-02"), ts.getEarliestTime());
+    assertEquals(LocalDate.parse("2013-06-07"), ts.getLatestTime());
+    assertNull(source.getHistoricalTimeSeries(id, LocalDate.parse("2013-06-08"), true, LocalDate.parse("2014-01-01"), true));
+    
+    Pair<LocalDate, Double> pair = source.getLatestDataPoint(id);
+    assertEquals(LocalDate.parse("2014-01-02"), pair.getFirst());
+    assertEquals(18.0, pair.getSecond(), 0.00001);
+  }
+  
+  public void packedConcurrentUpdates() throws Exception {
+    final NonVersionedRedisHistoricalTimeSeriesSource source = new NonVersionedRedisHistoricalTimeSeriesSource(getJedisPool(), getRedisPrefix(), true);
+    final UniqueId id = UniqueId.of("Test", "Concurrent");
+    final LocalDate start = LocalDate.parse("2013-01-01");
+    // the writers add alternate days of the same year chunk
+    Thread[] writers = new Thread[2];
+    for (int w = 0; w < writers.length; w++) {
+      final int writer = w;
+      writers[w] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = writer; i < 200; i += 2) {
+            source.updateTimeSeriesPoint(id, start.plusDays(i), i);
+          }
+        }
+      };
+      writers[w].start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+    
+    LocalDateDoubleTimeSeries ts = source.getHistoricalTimeSeries(id).getTimeSeries();
+    assertEquals(200, ts.size());
+    for (int i = 0; i < 200; i++) {
+      assertEquals((double) i, ts.getValue(start.plusDays(i)), 0.00001);
+    }
+  }
+  
+  public void bulkLoad() {
+    for (boolean packed : new boolean[] {false, true}) {
+      clearRedisDb();
+      NonVersionedRedisHistoricalTimeSeriesSource source = new NonVersionedRedisHistoricalTimeSeriesSource(getJedisPool(), getRedisPrefix(), packed);
+      List<UniqueId> ids = Lists.newArrayList();
+      for (int i = 0; i < 20; i++) {
+        HistoricalTimeSeries hts = createSampleHts(500);
+        source.updateTimeSeries(hts.getUniqueId(), hts.getTimeSeries());
+        ids.add(hts.getUniqueId());
+      }
+      ids.add(UniqueId.of("Test", "Missing"));
+      
+      Map<UniqueId, HistoricalTimeSeries> result = source.getHistoricalTimeSeries(ids, null, true, null, true);
+      assertEquals(20, result.size());
+      for (int i = 0; i < 20; i++) {
+        assertEquals(source.getHistoricalTimeSeries(ids.get(i)).getTimeSeries(), result.get(ids.get(i)).getTimeSeries());
+      }
+      LocalDate start = LocalDate.now().plusDays(100);
+      result = source.getHistoricalTimeSeries(ids, start, false, null, true);
+      for (int i = 0; i < 20; i++) {
+        assertEquals(399, result.get(ids.get(i)).getTimeSeries().size());
+        assertEquals(source.getHistoricalTimeSeries(ids.get(i), start, false, null, true).getTimeSeries(), result.get(ids.get(i)).getTimeSeries());
+      }
+    }
+  }
+  
+  /**
+   * Test how fast we can read many large historical timeseries in bulk.
+   */
+  @Test(enabled = false)
+  public void largePerformanceTestBulkRead() {
+    for (boolean packed : new boolean[] {false, true}) {
+      NonVersionedRedisHistoricalTimeSeriesSource source = new NonVersionedRedisHistoricalTimeSeriesSource(getJedisPool(), getRedisPrefix(), packed);
+      List<UniqueId> ids = Lists.newArrayList();
+      for (int i = 0; i < ITER_SIZE; i++) {
+        HistoricalTimeSeries hts = createSampleHts(5000);
+        source.updateTimeSeries(hts.getUniqueId(), hts.getTimeSeries());
+        ids.add(hts.getUniqueId());
+      }
+      long start = System.nanoTime();
+      Map<UniqueId, HistoricalTimeSeries> result = source.getHistoricalTimeSeries(ids, null, true, null, true);
+      double durationInSec = ((double) (System.nanoTime() - start)) / 1e9;
+      assertEquals(ITER_SIZE, result.size());
+      System.out.println("Reading " + ITER_SIZE + " series " + (packed ? "packed" : "as text") + " took " + durationInSec + " sec");
+    }
+  }
+  
   /**
    * Test how fast we can add large historical timeseries adding one data point at a time.
    */
@@ -402,10 +515,14 @@ public class NonVersionedRedisHistoricalTimeSeriesSourceTest extends AbstractRed
   }
   
   private HistoricalTimeSeries createSampleHts() {
+    return createSampleHts(50000);
+  }
+  
+  private HistoricalTimeSeries createSampleHts(int size) {
     UniqueId id = UniqueId.of("HTS", UUID.randomUUID().toString());
     LocalDateDoubleTimeSeriesBuilder builder = ImmutableLocalDateDoubleTimeSeries.builder();
     LocalDate start = LocalDate.now();
-    for (int i = 0; i < 50000; i++) {
+    for (int i = 0; i < size; i++) {
       builder.put(start.plusDays(i), Math.random());
     }
     return new SimpleHistoricalTimeSeries(id, builder.build());
@@ -5,29 +5,58 @@
  */
 package com.opengamma.engine.marketdata;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
 import com.opengamma.engine.marketdata.availability.MarketDataAvailabilityProvider;
 import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
 import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.util.tuple.Pair;
 
 /**
  * An implementation of {@link MarketDataProvider} which maintains an LKV cache of externally-provided values.
+ * <p>
+ * The values are held in a {@link PrimitiveLKVStore}, with each value specification assigned a slot
+ * by the ordinal of its target and properties and the ordinal of its value name. Snapshots therefore
+ * take constant time rather than copying every value.
+ * <p>
+ * A removed value leaves its slot assigned, so that snapshots taken before the removal still see it.
+ * When most slots are empty, the values are moved to a new store with fresh slots, leaving the old
+ * store and slots to the snapshots that use them, so the slots held are bounded by twice the number
+ * of values plus a small constant.
  */
 public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider implements MarketDataInjector {
 
   private static final Logger s_logger = LoggerFactory.getLogger(InMemoryLKVMarketDataProvider.class);
 
-  private final Map<ValueSpecification, Object> _lastKnownValues = new ConcurrentHashMap<ValueSpecification, Object>();
+  /**
+   * The minimum number of slots before empty slots are reclaimed.
+   */
+  private static final int MIN_SLOTS_TO_RECLAIM = 64;
+
+  /**
+   * The lock serializing writes, guarding the assignment of slots and the replacement of the slots.
+   */
+  private final Object _writeLock = new Object();
+  /**
+   * The store and slots of the values, replaced when empty slots are reclaimed.
+   */
+  private volatile Slots _current = new Slots();
   private final FixedMarketDataAvailabilityProvider _availability = new FixedMarketDataAvailabilityProvider();
   private final MarketDataPermissionProvider _permissionProvider;
 
@@ -85,7 +114,11 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   @Override
   public void addValue(final ValueSpecification specification, final Object value) {
     if (value != null) {
-      _lastKnownValues.put(specification, value);
+      synchronized (_writeLock) {
+        final Slots current = _current;
+        final long slot = current.getSlot(specification, true);
+        current._values.put(securityOrdinal(slot), fieldOrdinal(slot), value);
+      }
     }
     _availability.addAvailableData(specification);
     valueChanged(specification);
@@ -100,7 +133,16 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   @Override
   public void removeValue(final ValueSpecification specification) {
     _availability.removeAvailableData(specification);
-    _lastKnownValues.remove(specification);
+    synchronized (_writeLock) {
+      final Slots current = _current;
+      final long slot = current.getSlot(specification, false);
+      if (slot >= 0 && current._values.remove(securityOrdinal(slot), fieldOrdinal(slot))) {
+        final int slots = current._slots.size();
+        if (slots >= MIN_SLOTS_TO_RECLAIM && current._values.size() * 2 < slots) {
+          _current = current.compact();
+        }
+      }
+    }
     valueChanged(specification);
   }
 
@@ -112,17 +154,189 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
 
   //-------------------------------------------------------------------------
   public Set<ValueSpecification> getAllValueKeys() {
-    return Collections.unmodifiableSet(_lastKnownValues.keySet());
+    final Slots current = _current;
+    final Set<ValueSpecification> keys = new HashSet<>();
+    for (final Map.Entry<ValueSpecification, Long> slot : current._slots.entrySet()) {
+      if (current._values.get(securityOrdinal(slot.getValue()), fieldOrdinal(slot.getValue())) != null) {
+        keys.add(slot.getKey());
+      }
+    }
+    return Collections.unmodifiableSet(keys);
   }
 
   public Object getCurrentValue(final ValueSpecification specification) {
-    return _lastKnownValues.get(specification);
+    final Slots current = _current;
+    final long slot = current.getSlot(specification, false);
+    return slot >= 0 ? current._values.get(securityOrdinal(slot), fieldOrdinal(slot)) : null;
+  }
+
+  /**
+   * Gets the number of slots assigned, including the empty slots not yet reclaimed.
+   * 
+   * @return the number of slots
+   */
+  /*package*/int getSlotCount() {
+    return _current._slots.size();
   }
 
   //-------------------------------------------------------------------------
+  private static int securityOrdinal(final long slot) {
+    return (int) (slot >>> 32);
+  }
+
+  private static int fieldOrdinal(final long slot) {
+    return (int) slot;
+  }
 
   /*package*/Map<ValueSpecification, Object> doSnapshot() {
-    return new HashMap<>(_lastKnownValues);
+    final Slots current = _current;
+    return new SnapshotMap(current._slots, current._values.snapshot());
+  }
+
+  /**
+   * A store of values and the slots of the value specifications in it.
+   * <p>
+   * Slots are only assigned while holding the write lock, and never once the slots have been replaced,
+   * so the slots seen by a snapshot of the store are the slots of the values in it.
+   */
+  private static final class Slots {
+
+    private final PrimitiveLKVStore _values = new PrimitiveLKVStore();
+    /**
+     * The slots of the value specifications, with the security ordinal in the high word and the field ordinal in the low word.
+     */
+    private final Map<ValueSpecification, Long> _slots = new ConcurrentHashMap<ValueSpecification, Long>();
+    private final Map<Pair<ComputationTargetSpecification, ValueProperties>, Integer> _securityOrdinals = new HashMap<>();
+    private final Map<String, Integer> _fieldOrdinals = new HashMap<>();
+
+    /**
+     * Gets the slot of a value specification.
+     * 
+     * @param specification the value specification, not null
+     * @param create true to assign a slot if the specification does not have one, only while holding the write lock
+     * @return the slot, -1 if the specification does not have one and one was not created
+     */
+    private long getSlot(final ValueSpecification specification, final boolean create) {
+      Long slot = _slots.get(specification);
+      if (slot != null) {
+        return slot;
+      }
+      if (!create) {
+        return -1;
+      }
+      final Pair<ComputationTargetSpecification, ValueProperties> security = Pair.of(specification.getTargetSpecification(), specification.getProperties());
+      Integer securityOrdinal = _securityOrdinals.get(security);
+      if (securityOrdinal == null) {
+        securityOrdinal = _securityOrdinals.size();
+        _securityOrdinals.put(security, securityOrdinal);
+      }
+      Integer fieldOrdinal = _fieldOrdinals.get(specification.getValueName());
+      if (fieldOrdinal == null) {
+        fieldOrdinal = _fieldOrdinals.size();
+        _fieldOrdinals.put(specification.getValueName(), fieldOrdinal);
+      }
+      slot = ((long) securityOrdinal << 32) | fieldOrdinal;
+      _slots.put(specification, slot);
+      return slot;
+    }
+
+    /**
+     * Copies the values to a new store, assigning slots to the value specifications that have a value.
+     * Called while holding the write lock.
+     * 
+     * @return the new store and slots, not null
+     */
+    private Slots compact() {
+      final Slots compacted = new Slots();
+      for (final Map.Entry<ValueSpecification, Long> slot : _slots.entrySet()) {
+        final Object value = _values.get(securityOrdinal(slot.getValue()), fieldOrdinal(slot.getValue()));
+        if (value != null) {
+          final long newSlot = compacted.getSlot(slot.getKey(), true);
+          compacted._values.put(securityOrdinal(newSlot), fieldOrdinal(newSlot), value);
+        }
+      }
+      s_logger.debug("Reclaimed {} empty slots", _slots.size() - compacted._slots.size());
+      return compacted;
+    }
+
+  }
+
+  /**
+   * Read-only map view of a snapshot of the values.
+   * <p>
+   * Specifications assigned slots after the snapshot was taken are never present in it, as their slots were empty.
+   */
+  private static final class SnapshotMap extends AbstractMap<ValueSpecification, Object> {
+
+    private final Map<ValueSpecification, Long> _slots;
+    private final PrimitiveLKVStore.Snapshot _snapshot;
+
+    private SnapshotMap(final Map<ValueSpecification, Long> slots, final PrimitiveLKVStore.Snapshot snapshot) {
+      _slots = slots;
+      _snapshot = snapshot;
+    }
+
+    @Override
+    public Object get(final Object key) {
+      final Long slot = _slots.get(key);
+      return slot != null ? _snapshot.get(securityOrdinal(slot), fieldOrdinal(slot)) : null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+      return _snapshot.size();
+    }
+
+    @Override
+    public Set<Map.Entry<ValueSpecification, Object>> entrySet() {
+      return new AbstractSet<Map.Entry<ValueSpecification, Object>>() {
+        @Override
+        public Iterator<Map.Entry<ValueSpecification, Object>> iterator() {
+          final Iterator<Map.Entry<ValueSpecification, Long>> slots = _slots.entrySet().iterator();
+          return new Iterator<Map.Entry<ValueSpecification, Object>>() {
+            private Map.Entry<ValueSpecification, Object> _next;
+
+            @Override
+            public boolean hasNext() {
+              while (_next == null && slots.hasNext()) {
+                final Map.Entry<ValueSpecification, Long> slot = slots.next();
+                final Object value = _snapshot.get(securityOrdinal(slot.getValue()), fieldOrdinal(slot.getValue()));
+                if (value != null) {
+                  _next = new SimpleImmutableEntry<>(slot.getKey(), value);
+                }
+              }
+              return _next != null;
+            }
+
+            @Override
+            public Map.Entry<ValueSpecification, Object> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              final Map.Entry<ValueSpecification, Object> next = _next;
+              _next = null;
+              return next;
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return _snapshot.size();
+        }
+      };
+    }
+
   }
 
 }
@@ -0,0 +1,352 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.marketdata;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Last known value store holding values in slots indexed by security and field ordinals.
+ * <p>
+ * Double values are held in primitive slots, so updating them does not allocate. Any other
+ * value is held by reference. Reads never lock or wait. Writes are serialized.
+ * <p>
+ * {@link #snapshot()} takes a consistent, immutable view of all values in constant time.
+ * The rows of values are shared with the store until they are next written, when the
+ * store copies them. Only the rows that tick after a snapshot are copied, so the cost of
+ * isolating a snapshot is proportional to the market data updates rather than to the
+ * number of values held.
+ */
+public class PrimitiveLKVStore {
+
+  /**
+   * The number of securities per page, as a power of two.
+   */
+  private static final int PAGE_SHIFT = 8;
+  /**
+   * The number of securities per page.
+   */
+  private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+  /**
+   * The mask for the index of a security within its page.
+   */
+  private static final int PAGE_MASK = PAGE_SIZE - 1;
+  /**
+   * The initial number of fields in a row.
+   */
+  private static final int MIN_ROW_WIDTH = 4;
+  /**
+   * The bits of an empty double slot.
+   * This is a NaN that {@link Double#doubleToLongBits} never returns, as that collapses all NaNs.
+   */
+  private static final long EMPTY = 0x7ff0deadbeef0000L;
+
+  /**
+   * The pages of rows, replaced rather than modified once shared with a snapshot.
+   */
+  private volatile AtomicReferenceArray<Page> _pages = new AtomicReferenceArray<>(16);
+  /**
+   * The current epoch, incremented by each snapshot, guarded by this.
+   */
+  private long _epoch;
+  /**
+   * The epoch in which the pages array was created, guarded by this.
+   */
+  private long _pagesEpoch;
+  /**
+   * The number of values held, guarded by this.
+   */
+  private int _size;
+
+  /**
+   * Creates an empty store.
+   */
+  public PrimitiveLKVStore() {
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets a value.
+   *
+   * @param security  the security ordinal, not negative
+   * @param field  the field ordinal, not negative
+   * @return the value, a {@code Double} for double values, null if not held
+   */
+  public Object get(int security, int field) {
+    return read(_pages, security, field);
+  }
+
+  /**
+   * Gets a double value without boxing it.
+   *
+   * @param security  the security ordinal, not negative
+   * @param field  the field ordinal, not negative
+   * @return the value, NaN if no double value is held
+   */
+  public double getDouble(int security, int field) {
+    return readDouble(_pages, security, field);
+  }
+
+  /**
+   * Gets the number of values held.
+   *
+   * @return the size
+   */
+  public synchronized int size() {
+    return _size;
+  }
+
+  /**
+   * Takes an immutable view of the values held.
+   *
+   * @return the snapshot, not null
+   */
+  public synchronized Snapshot snapshot() {
+    Snapshot snapshot = new Snapshot(_pages, _size);
+    _epoch++;
+    return snapshot;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Sets a double value.
+   *
+   * @param security  the security ordinal, not negative
+   * @param field  the field ordinal, not negative
+   * @param value  the value
+   */
+  public synchronized void putDouble(int security, int field, double value) {
+    Row row = writableRow(security, field);
+    boolean empty = row.isEmpty(field);
+    // the double is written before the reference is cleared so readers see the old or the new value
+    row._doubles.set(field, Double.doubleToLongBits(value));
+    row._objects.set(field, null);
+    if (empty) {
+      _size++;
+    }
+  }
+
+  /**
+   * Sets a value.
+   * <p>
+   * A {@code Double} value is held in a primitive slot.
+   *
+   * @param security  the security ordinal, not negative
+   * @param field  the field ordinal, not negative
+   * @param value  the value, not null
+   */
+  public synchronized void put(int security, int field, Object value) {
+    ArgumentChecker.notNull(value, "value");
+    if (value instanceof Double) {
+      putDouble(security, field, (Double) value);
+      return;
+    }
+    Row row = writableRow(security, field);
+    boolean empty = row.isEmpty(field);
+    // a stale double may remain, but is hidden by the reference
+    row._objects.set(field, value);
+    if (empty) {
+      _size++;
+    }
+  }
+
+  /**
+   * Removes a value.
+   *
+   * @param security  the security ordinal, not negative
+   * @param field  the field ordinal, not negative
+   * @return true if a value was removed
+   */
+  public synchronized boolean remove(int security, int field) {
+    if (read(_pages, security, field) == null) {
+      return false;
+    }
+    Row row = writableRow(security, field);
+    row._doubles.set(field, EMPTY);
+    row._objects.set(field, null);
+    _size--;
+    return true;
+  }
+
+  /**
+   * Gets a row that may be written without affecting any snapshot, creating or copying it as necessary.
+   *
+   * @param security  the security ordinal
+   * @param field  the field ordinal that will be written
+   * @return the row, not null
+   */
+  private Row writableRow(int security, int field) {
+    ArgumentChecker.notNegative(security, "security");
+    ArgumentChecker.notNegative(field, "field");
+    long epoch = _epoch;
+    AtomicReferenceArray<Page> pages = _pages;
+    int pageIndex = security >>> PAGE_SHIFT;
+    if (pageIndex >= pages.length() || _pagesEpoch != epoch) {
+      int length = pageIndex < pages.length() ? pages.length() : Math.max(pageIndex + 1, pages.length() * 2);
+      AtomicReferenceArray<Page> copy = new AtomicReferenceArray<>(length);
+      for (int i = 0; i < pages.length(); i++) {
+        copy.lazySet(i, pages.get(i));
+      }
+      pages = copy;
+      _pages = pages;
+      _pagesEpoch = epoch;
+    }
+    Page page = pages.get(pageIndex);
+    if (page == null || page._epoch != epoch) {
+      page = new Page(epoch, page);
+      pages.set(pageIndex, page);
+    }
+    int rowIndex = security & PAGE_MASK;
+    Row row = page._rows.get(rowIndex);
+    if (row == null || row._epoch != epoch || field >= row.width()) {
+      row = new Row(epoch, row, field + 1);
+      page._rows.set(rowIndex, row);
+    }
+    return row;
+  }
+
+  //-------------------------------------------------------------------------
+  private static Row readRow(AtomicReferenceArray<Page> pages, int security, int field) {
+    int pageIndex = security >>> PAGE_SHIFT;
+    if (security < 0 || pageIndex >= pages.length()) {
+      return null;
+    }
+    Page page = pages.get(pageIndex);
+    if (page == null) {
+      return null;
+    }
+    Row row = page._rows.get(security & PAGE_MASK);
+    if (row == null || field < 0 || field >= row.width()) {
+      return null;
+    }
+    return row;
+  }
+
+  private static Object read(AtomicReferenceArray<Page> pages, int security, int field) {
+    Row row = readRow(pages, security, field);
+    if (row == null) {
+      return null;
+    }
+    Object value = row._objects.get(field);
+    if (value != null) {
+      return value;
+    }
+    long bits = row._doubles.get(field);
+    return bits == EMPTY ? null : Double.longBitsToDouble(bits);
+  }
+
+  private static double readDouble(AtomicReferenceArray<Page> pages, int security, int field) {
+    Row row = readRow(pages, security, field);
+    if (row == null || row._objects.get(field) != null) {
+      return Double.NaN;
+    }
+    return Double.longBitsToDouble(row._doubles.get(field));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A page of rows, one per security.
+   */
+  private static final class Page {
+    private final long _epoch;
+    private final AtomicReferenceArray<Row> _rows;
+
+    private Page(long epoch, Page copy) {
+      _epoch = epoch;
+      _rows = new AtomicReferenceArray<>(PAGE_SIZE);
+      if (copy != null) {
+        for (int i = 0; i < PAGE_SIZE; i++) {
+          _rows.lazySet(i, copy._rows.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * The values of one security, one slot per field.
+   */
+  private static final class Row {
+    private final long _epoch;
+    private final AtomicLongArray _doubles;
+    private final AtomicReferenceArray<Object> _objects;
+
+    private Row(long epoch, Row copy, int minWidth) {
+      _epoch = epoch;
+      int copyWidth = copy != null ? copy.width() : 0;
+      int width = Math.max(copyWidth, MIN_ROW_WIDTH);
+      while (width < minWidth) {
+        width *= 2;
+      }
+      _doubles = new AtomicLongArray(width);
+      _objects = new AtomicReferenceArray<>(width);
+      for (int i = 0; i < copyWidth; i++) {
+        _doubles.lazySet(i, copy._doubles.get(i));
+        _objects.lazySet(i, copy._objects.get(i));
+      }
+      for (int i = copyWidth; i < width; i++) {
+        _doubles.lazySet(i, EMPTY);
+      }
+    }
+
+    private int width() {
+      return _doubles.length();
+    }
+
+    private boolean isEmpty(int field) {
+      return _objects.get(field) == null && _doubles.get(field) == EMPTY;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * An immutable view of the values held by a store when the snapshot was taken.
+   * <p>
+   * This class is immutable and thread-safe.
+   */
+  public static final class Snapshot {
+    private final AtomicReferenceArray<Page> _pages;
+    private final int _size;
+
+    private Snapshot(AtomicReferenceArray<Page> pages, int size) {
+      _pages = pages;
+      _size = size;
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param security  the security ordinal, not negative
+     * @param field  the field ordinal, not negative
+     * @return the value, a {@code Double} for double values, null if not held
+     */
+    public Object get(int security, int field) {
+      return read(_pages, security, field);
+    }
+
+    /**
+     * Gets a double value without boxing it.
+     *
+     * @param security  the security ordinal, not negative
+     * @param field  the field ordinal, not negative
+     * @return the value, NaN if no double value is held
+     */
+    public double getDouble(int security, int field) {
+      return readDouble(_pages, security, field);
+    }
+
+    /**
+     * Gets the number of values held.
+     *
+     * @return the size
+     */
+    public int size() {
+      return _size;
+    }
+  }
+
+}
@@ -17,6 +17,8 @@ import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.marketdata.spec.LiveMarketDataSpecification;
 import com.opengamma.engine.marketdata.spec.MarketData;
 import com.opengamma.engine.target.ComputationTargetRequirement;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.id.ExternalId;
@@ -91,4 +93,66 @@ public class InMemoryLKVMarketDataProviderTest {
     assertEquals(snapshot.query(fooNull), "FooValue3");
   }
 
+  public void testSnapshotUnchangedByLaterUpdates() {
+    final InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    final ValueSpecification a = valueSpec("A", "1");
+    final ValueSpecification b = valueSpec("B", "1");
+    final ValueSpecification c = valueSpec("A", "2");
+    final ValueSpecification d = valueSpec("B", "2");
+    provider.addValue(a, 1d);
+    provider.addValue(b, "B1");
+    provider.addValue(c, 3d);
+    final InMemoryLKVMarketDataSnapshot snapshot = provider.snapshot(MarketData.live());
+    snapshot.init();
+    provider.addValue(a, 2d);
+    provider.removeValue(b);
+    provider.addValue(d, 4d);
+    provider.removeValue(c);
+    provider.addValue(c, 5d);
+    assertEquals(snapshot.query(a), 1d);
+    assertEquals(snapshot.query(b), "B1");
+    assertEquals(snapshot.query(c), 3d);
+    assertNull(snapshot.query(d));
+    assertEquals(snapshot.getAllValueKeys(), ImmutableSet.of(a, b, c));
+    assertKeysMatchQuery(snapshot, 3);
+    assertEquals(provider.getAllValueKeys(), ImmutableSet.of(a, c, d));
+  }
+
+  public void testEmptySlotsReclaimed() {
+    final InMemoryLKVMarketDataProvider provider = new InMemoryLKVMarketDataProvider();
+    final ValueSpecification kept = valueSpec("Kept", "1");
+    provider.addValue(kept, 0d);
+    final InMemoryLKVMarketDataSnapshot before = provider.snapshot(MarketData.live());
+    before.init();
+    for (int i = 0; i < 1000; i++) {
+      final ValueSpecification spec = valueSpec("Transient", Integer.toString(i));
+      provider.addValue(spec, (double) i);
+      provider.removeValue(spec);
+    }
+    final ValueSpecification last = valueSpec("Transient", "last");
+    provider.addValue(last, 1d);
+    assertTrue(provider.getSlotCount() < 128, "Slots " + provider.getSlotCount());
+    assertEquals(provider.getAllValueKeys(), ImmutableSet.of(kept, last));
+    assertEquals(provider.getCurrentValue(kept), 0d);
+    assertEquals(before.getAllValueKeys(), ImmutableSet.of(kept));
+    assertKeysMatchQuery(before, 1);
+    final InMemoryLKVMarketDataSnapshot after = provider.snapshot(MarketData.live());
+    after.init();
+    assertEquals(after.query(last), 1d);
+    assertKeysMatchQuery(after, 2);
+  }
+
+  private static ValueSpecification valueSpec(final String valueName, final String target) {
+    return new ValueSpecification(valueName, ComputationTargetSpecification.of(UniqueId.of("Scheme", target)), ValueProperties.with(ValuePropertyNames.FUNCTION, "MarketData").get());
+  }
+
+  private static void assertKeysMatchQuery(final InMemoryLKVMarketDataSnapshot snapshot, final int size) {
+    int count = 0;
+    for (final ValueSpecification key : snapshot.getAllValueKeys()) {
+      assertNotNull(snapshot.query(key), key.toString());
+      count++;
+    }
+    assertEquals(count, size);
+  }
+
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.marketdata;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests the {@link PrimitiveLKVStore} class.
+ */
+@Test(groups = TestGroup.UNIT)
+public class PrimitiveLKVStoreTest {
+
+  public void testPutGetRemove() {
+    final PrimitiveLKVStore store = new PrimitiveLKVStore();
+    assertNull(store.get(0, 0));
+    assertTrue(Double.isNaN(store.getDouble(0, 0)));
+    store.putDouble(0, 0, 1.5);
+    store.put(0, 1, "Foo");
+    store.put(0, 2, 2.5);
+    assertEquals(store.get(0, 0), 1.5);
+    assertEquals(store.getDouble(0, 0), 1.5);
+    assertEquals(store.get(0, 1), "Foo");
+    assertTrue(Double.isNaN(store.getDouble(0, 1)));
+    assertEquals(store.getDouble(0, 2), 2.5);
+    assertEquals(store.size(), 3);
+
+    store.put(0, 0, "Bar");
+    assertEquals(store.get(0, 0), "Bar");
+    store.putDouble(0, 1, 3.5);
+    assertEquals(store.get(0, 1), 3.5);
+    assertEquals(store.size(), 3);
+
+    assertTrue(store.remove(0, 0));
+    assertFalse(store.remove(0, 0));
+    assertFalse(store.remove(5, 5));
+    assertNull(store.get(0, 0));
+    assertEquals(store.size(), 2);
+  }
+
+  public void testNaNIsAValue() {
+    final PrimitiveLKVStore store = new PrimitiveLKVStore();
+    store.putDouble(1, 1, Double.NaN);
+    assertEquals(store.get(1, 1), Double.NaN);
+    assertEquals(store.size(), 1);
+  }
+
+  public void testGrowth() {
+    final PrimitiveLKVStore store = new PrimitiveLKVStore();
+    for (int security = 0; security < 5000; security += 7) {
+      for (int field = 0; field < 40; field += 3) {
+        store.putDouble(security, field, security * 100 + field);
+      }
+    }
+    for (int security = 0; security < 5000; security += 7) {
+      for (int field = 0; field < 40; field += 3) {
+        assertEquals(store.getDouble(security, field), security * 100d + field);
+      }
+      assertNull(store.get(security + 1, 0));
+    }
+  }
+
+  public void testSnapshotIsolation() {
+    final PrimitiveLKVStore store = new PrimitiveLKVStore();
+    store.putDouble(0, 0, 1.0);
+    store.put(300, 2, "Foo");
+    final PrimitiveLKVStore.Snapshot snapshot1 = store.snapshot();
+    store.putDouble(0, 0, 2.0);
+    store.put(300, 2, "Bar");
+    store.putDouble(300, 10, 3.0);
+    store.putDouble(1000, 0, 4.0);
+    final PrimitiveLKVStore.Snapshot snapshot2 = store.snapshot();
+    store.remove(0, 0);
+
+    assertEquals(snapshot1.size(), 2);
+    assertEquals(snapshot1.getDouble(0, 0), 1.0);
+    assertEquals(snapshot1.get(300, 2), "Foo");
+    assertNull(snapshot1.get(300, 10));
+    assertNull(snapshot1.get(1000, 0));
+
+    assertEquals(snapshot2.size(), 4);
+    assertEquals(snapshot2.getDouble(0, 0), 2.0);
+    assertEquals(snapshot2.get(300, 2), "Bar");
+    assertEquals(snapshot2.get(300, 10), 3.0);
+    assertEquals(snapshot2.get(1000, 0), 4.0);
+
+    assertNull(store.get(0, 0));
+    assertEquals(store.size(), 3);
+  }
+
+  public void testConcurrentReads() throws Exception {
+    final PrimitiveLKVStore store = new PrimitiveLKVStore();
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicBoolean failed = new AtomicBoolean();
+    final Thread reader = new Thread() {
+      @Override
+      public void run() {
+        while (!stop.get()) {
+          final PrimitiveLKVStore.Snapshot snapshot = store.snapshot();
+          final double first = snapshot.getDouble(0, 0);
+          for (int security = 0; security < 50; security++) {
+            final double value = snapshot.getDouble(security, 0);
+            // values are written in security order, so a snapshot never sees a later security ahead of an earlier one
+            if (!Double.isNaN(first) && !Double.isNaN(value) && value > first) {
+              failed.set(true);
+            }
+          }
+          Thread.yield();
+        }
+      }
+    };
+    reader.start();
+    for (int tick = 0; tick < 2000; tick++) {
+      for (int security = 0; security < 50; security++) {
+        store.putDouble(security, 0, tick);
+      }
+    }
+    stop.set(true);
+    reader.join();
+    assertFalse(failed.get());
+  }
+
+}
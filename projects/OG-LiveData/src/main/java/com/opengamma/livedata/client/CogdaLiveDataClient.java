@@ -37,6 +37,7 @@ import com.opengamma.livedata.LiveDataSpecification;
 import com.opengamma.livedata.LiveDataValueUpdate;
 import com.opengamma.livedata.LiveDataValueUpdateBean;
 import com.opengamma.livedata.UserPrincipal;
+import com.opengamma.livedata.cogda.msg.CogdaLiveDataBuilderUtil;
 import com.opengamma.livedata.cogda.msg.CogdaLiveDataSnapshotRequestBuilder;
 import com.opengamma.livedata.cogda.msg.CogdaLiveDataSnapshotRequestMessage;
 import com.opengamma.livedata.cogda.msg.CogdaLiveDataSnapshotResponseBuilder;
@@ -57,6 +58,7 @@ import com.opengamma.livedata.cogda.msg.ConnectionResponseMessage;
 import com.opengamma.livedata.cogda.server.CogdaLiveDataServer;
 import com.opengamma.livedata.msg.LiveDataSubscriptionResponse;
 import com.opengamma.livedata.msg.LiveDataSubscriptionResult;
+import com.opengamma.livedata.msg.LiveDataUpdateDecoder;
 import com.opengamma.transport.ByteArrayFudgeMessageSender;
 import com.opengamma.transport.FudgeMessageReceiver;
 import com.opengamma.transport.FudgeMessageSender;
@@ -92,6 +94,10 @@ public class CogdaLiveDataClient extends AbstractLiveDataClient implements Lifec
    * The user.
    */
   private final UserPrincipal _user;
+  /**
+   * Whether to request updates in binary form.
+   */
+  private boolean _binaryUpdates = true;
 
   // Runtime state:
   /**
@@ -115,6 +121,10 @@ public class CogdaLiveDataClient extends AbstractLiveDataClient implements Lifec
    * The active subscription requests.
    */
   private final Map<Long, SubscriptionHandle> _activeSubscriptionRequests = new ConcurrentHashMap<Long, SubscriptionHandle>();
+  /**
+   * The decoder for binary updates, null if the server sends Fudge updates.
+   */
+  private LiveDataUpdateDecoder _updateDecoder;
 
   /**
    * Creates an instance.
@@ -183,6 +193,27 @@ public class CogdaLiveDataClient extends AbstractLiveDataClient implements Lifec
     _fudgeContext = fudgeContext;
   }
 
+  /**
+   * Checks whether updates are requested in binary form.
+   * 
+   * @return true if binary updates are requested
+   */
+  public boolean isBinaryUpdates() {
+    return _binaryUpdates;
+  }
+
+  /**
+   * Sets whether updates are requested in binary form.
+   * <p>
+   * Binary updates only contain the fields that have changed, with field names sent once
+   * per connection. They are only used if the server supports them.
+   * 
+   * @param binaryUpdates  true to request binary updates, false for Fudge updates
+   */
+  public void setBinaryUpdates(boolean binaryUpdates) {
+    _binaryUpdates = binaryUpdates;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Checks whether the specified user matches the user this client is for.
@@ -264,6 +295,9 @@ public class CogdaLiveDataClient extends AbstractLiveDataClient implements Lifec
       case LIVE_DATA_UPDATE:
         dispatchLiveDataUpdate(msg);
         break;
+      case BINARY_LIVE_DATA_UPDATE:
+        dispatchBinaryLiveDataUpdate(msg);
+        break;
       default:
         s_logger.warn("Received message that wasn't understood: {}", msg);
     }
@@ -281,6 +315,19 @@ public class CogdaLiveDataClient extends AbstractLiveDataClient implements Lifec
     super.valueUpdate(valueUpdateBean);
   }
 
+  /**
+   * Dispatches an update in binary form.
+   * 
+   * @param msg  the message, not null
+   */
+  private void dispatchBinaryLiveDataUpdate(FudgeMsg msg) {
+    if (_updateDecoder == null) {
+      s_logger.warn("Received binary update without negotiating binary updates: {}", msg);
+      return;
+    }
+    super.valueUpdate(_updateDecoder.decode(CogdaLiveDataUpdateBuilder.getBinaryUpdate(msg)));
+  }
+
   /**
    * Dispatches a command response.
    * 
@@ -401,6 +448,9 @@ public class CogdaLiveDataClient extends AbstractLiveDataClient implements Lifec
   protected void login(InputStream is) throws IOException {
     ConnectionRequestMessage requestMessage = new ConnectionRequestMessage();
     requestMessage.setUserName(_user.getUserName());
+    if (isBinaryUpdates()) {
+      requestMessage.getCapabilities().add(CogdaLiveDataBuilderUtil.BINARY_UPDATES_CAPABILITY, true);
+    }
     _messageSender.send(ConnectionRequestBuilder.buildMessageStatic(new FudgeSerializer(getFudgeContext()), requestMessage));
     // TODO kirk 2012-08-22 -- This needs a timeout.
     FudgeMsgReader reader = getFudgeContext().createMessageReader(is);
@@ -412,6 +462,9 @@ public class CogdaLiveDataClient extends AbstractLiveDataClient implements Lifec
         // We're good to go!
         // TODO kirk 2012-08-15 -- Add logic eventually for connection restart semantics.
         s_logger.warn("Successfully logged into server.");
+        if (isBinaryUpdates() && response.getCapabilities().hasField(CogdaLiveDataBuilderUtil.BINARY_UPDATES_CAPABILITY)) {
+          _updateDecoder = new LiveDataUpdateDecoder(getFudgeContext());
+        }
         break;
       case NOT_AUTHORIZED:
         // REVIEW kirk 2012-08-15 -- Is this the right error?
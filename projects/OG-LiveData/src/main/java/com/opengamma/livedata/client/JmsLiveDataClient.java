@@ -30,7 +30,10 @@ import org.springframework.context.Lifecycle;
 import org.springframework.jms.support.JmsUtils;
 
 import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.livedata.msg.LiveDataUpdateDecoder;
+import com.opengamma.livedata.msg.LiveDataUpdateEncoder;
 import com.opengamma.transport.ByteArrayFudgeMessageReceiver;
+import com.opengamma.transport.ByteArrayMessageReceiver;
 import com.opengamma.transport.FudgeRequestSender;
 import com.opengamma.transport.jms.JmsByteArrayMessageDispatcher;
 import com.opengamma.util.ArgumentChecker;
@@ -185,8 +188,19 @@ public class JmsLiveDataClient extends DistributedLiveDataClient implements Life
       public Map<String, Runnable> call() {
         Session session = _sessions.get(sessionIndex);
 
-        ByteArrayFudgeMessageReceiver fudgeReceiver = new ByteArrayFudgeMessageReceiver(JmsLiveDataClient.this, getFudgeContext());
-        final JmsByteArrayMessageDispatcher jmsDispatcher = new JmsByteArrayMessageDispatcher(fudgeReceiver);
+        final ByteArrayFudgeMessageReceiver fudgeReceiver = new ByteArrayFudgeMessageReceiver(JmsLiveDataClient.this, getFudgeContext());
+        final LiveDataUpdateDecoder decoder = new LiveDataUpdateDecoder(getFudgeContext());
+        // updates from servers using binary encoding are decoded directly, anything else is Fudge
+        final JmsByteArrayMessageDispatcher jmsDispatcher = new JmsByteArrayMessageDispatcher(new ByteArrayMessageReceiver() {
+          @Override
+          public void messageReceived(byte[] message) {
+            if (LiveDataUpdateEncoder.isEncoded(message)) {
+              valueUpdate(decoder.decode(message));
+            } else {
+              fudgeReceiver.messageReceived(message);
+            }
+          }
+        });
 
         return startReceivingTicks(specs, session, jmsDispatcher);
       }
@@ -16,6 +16,12 @@ import com.opengamma.id.ExternalId;
  * 
  */
 public final class CogdaLiveDataBuilderUtil {
+
+  /**
+   * The connection capability for receiving updates in the binary form of {@code LiveDataUpdateEncoder}.
+   */
+  public static final String BINARY_UPDATES_CAPABILITY = "binaryUpdates";
+
   private CogdaLiveDataBuilderUtil() {
   }
 
@@ -26,6 +26,31 @@ public class CogdaLiveDataUpdateBuilder implements FudgeBuilder<CogdaLiveDataUpd
     return msg;
   }
   
+  /**
+   * Builds an update holding the fields in the binary form of {@code LiveDataUpdateEncoder}.
+   * This is only sent to clients that requested the {@link CogdaLiveDataBuilderUtil#BINARY_UPDATES_CAPABILITY} capability.
+   * 
+   * @param serializer  the serializer, not null
+   * @param encodedUpdate  the encoded update, not null
+   * @return the message, not null
+   */
+  public static MutableFudgeMsg buildBinaryMessageStatic(FudgeSerializer serializer, byte[] encodedUpdate) {
+    MutableFudgeMsg msg = serializer.newMessage();
+    msg.add("MESSAGE_TYPE", CogdaMessageType.BINARY_LIVE_DATA_UPDATE.name());
+    msg.add("update", encodedUpdate);
+    return msg;
+  }
+
+  /**
+   * Gets the encoded update from a message built by {@link #buildBinaryMessageStatic}.
+   * 
+   * @param message  the message, not null
+   * @return the encoded update, null if not present
+   */
+  public static byte[] getBinaryUpdate(FudgeMsg message) {
+    return (byte[]) message.getValue("update");
+  }
+
   @Override
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, CogdaLiveDataUpdateMessage object) {
     return buildMessageStatic(serializer, object);
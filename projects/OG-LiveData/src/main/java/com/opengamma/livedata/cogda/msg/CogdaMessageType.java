@@ -26,7 +26,9 @@ public enum CogdaMessageType {
   /** {@see CogdaLiveDataUnsubscribeMessage} */
   UNSUBSCRIBE,
   /** {@see CogdaLiveDataUpdateMessage} */
-  LIVE_DATA_UPDATE;
+  LIVE_DATA_UPDATE,
+  /** {@see CogdaLiveDataUpdateBuilder#buildBinaryMessageStatic} */
+  BINARY_LIVE_DATA_UPDATE;
   
   public static CogdaMessageType getFromMessage(FudgeMsg msg) {
     if (msg == null) {
@@ -27,6 +27,7 @@ import com.opengamma.core.user.OGUser;
 import com.opengamma.id.ExternalId;
 import com.opengamma.livedata.LiveDataSpecification;
 import com.opengamma.livedata.LiveDataValueUpdate;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
 import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.livedata.cogda.msg.CogdaCommandResponseResult;
 import com.opengamma.livedata.cogda.msg.CogdaLiveDataBuilderUtil;
@@ -47,6 +48,7 @@ import com.opengamma.livedata.cogda.msg.ConnectionRequestMessage;
 import com.opengamma.livedata.cogda.msg.ConnectionResponseBuilder;
 import com.opengamma.livedata.cogda.msg.ConnectionResponseMessage;
 import com.opengamma.livedata.cogda.msg.ConnectionResult;
+import com.opengamma.livedata.msg.LiveDataUpdateEncoder;
 import com.opengamma.livedata.server.LastKnownValueStore;
 import com.opengamma.transport.FudgeConnection;
 import com.opengamma.transport.FudgeConnectionStateListener;
@@ -74,6 +76,8 @@ public class CogdaClientConnection implements FudgeConnectionStateListener, Fudg
   
   private UserPrincipal _userPrincipal;
   private OGUser _user;
+  // Only set if the client requested binary updates; guarded by _writerLock.
+  private LiveDataUpdateEncoder _updateEncoder;
   
   public CogdaClientConnection(FudgeContext fudgeContext, CogdaLiveDataServer server, FudgeConnection connection) {
     ArgumentChecker.notNull(fudgeContext, "fudgeContext");
@@ -179,6 +183,15 @@ public class CogdaClientConnection implements FudgeConnectionStateListener, Fudg
       response.setResult(ConnectionResult.NEW_CONNECTION_SUCCESS);
       response.setAvailableServers(getServer().getAvailableServers());
       response.applyCapabilities(getServer().getCapabilities());
+      if (request.getCapabilities().hasField(CogdaLiveDataBuilderUtil.BINARY_UPDATES_CAPABILITY)
+          && response.getCapabilities().hasField(CogdaLiveDataBuilderUtil.BINARY_UPDATES_CAPABILITY)) {
+        _writerLock.lock();
+        try {
+          _updateEncoder = new LiveDataUpdateEncoder(fudgeContext, false);
+        } finally {
+          _writerLock.unlock();
+        }
+      }
       sendMessage(ConnectionResponseBuilder.buildMessageStatic(new FudgeSerializer(fudgeContext), response));
     }
   }
@@ -287,7 +300,16 @@ public class CogdaClientConnection implements FudgeConnectionStateListener, Fudg
   private void handleUnsubscription(FudgeContext fudgeContext, FudgeMsg msg) {
     CogdaLiveDataUnsubscribeMessage request = CogdaLiveDataUnsubscribeBuilder.buildObjectStatic(new FudgeDeserializer(fudgeContext), msg);
     
-    _subscriptions.remove(new LiveDataSpecification(request.getNormalizationScheme(), request.getSubscriptionId()));
+    LiveDataSpecification spec = new LiveDataSpecification(request.getNormalizationScheme(), request.getSubscriptionId());
+    _subscriptions.remove(spec);
+    _writerLock.lock();
+    try {
+      if (_updateEncoder != null) {
+        _updateEncoder.forget(spec);
+      }
+    } finally {
+      _writerLock.unlock();
+    }
   }
   
   private void sendMessage(FudgeMsg msg) {
@@ -334,6 +356,10 @@ public class CogdaClientConnection implements FudgeConnectionStateListener, Fudg
    * @param values
    */
   private void sendValueUpdate(LiveDataSpecification key, FudgeMsg values) {
+    if (_updateEncoder != null) {
+      sendBinaryValueUpdate(key, values);
+      return;
+    }
     CogdaLiveDataUpdateMessage message = new CogdaLiveDataUpdateMessage();
     // REVIEW kirk 2012-07-23 -- This is a terrible terrible idea performance wise, this next line.
     message.setSubscriptionId(key.getIdentifiers().getExternalIds().iterator().next());
@@ -348,4 +374,24 @@ public class CogdaClientConnection implements FudgeConnectionStateListener, Fudg
     }
   }
 
+  /**
+   * Sends the fields that have changed since the last update for the specification.
+   * 
+   * @param key  the specification, not null
+   * @param values  the latest values, not null
+   */
+  private void sendBinaryValueUpdate(LiveDataSpecification key, FudgeMsg values) {
+    byte[] encoded = _updateEncoder.encode(new LiveDataValueUpdateBean(0L, key, values));
+    if (encoded == null) {
+      return;
+    }
+    FudgeMsg msg = CogdaLiveDataUpdateBuilder.buildBinaryMessageStatic(new FudgeSerializer(getFudgeContext()), encoded);
+    try {
+      getMessageSender().send(msg);
+    } catch (Exception e) {
+      s_logger.info("Exception thrown; assuming socket closed and tearing down client.");
+      // Note that the actual connection state will be handled by the FudgeConnectionStateListener callback.
+    }
+  }
+
 }
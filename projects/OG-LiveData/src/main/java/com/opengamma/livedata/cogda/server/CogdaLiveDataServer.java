@@ -18,6 +18,7 @@ import java.util.concurrent.Executors;
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.Lifecycle;
@@ -33,6 +34,7 @@ import com.opengamma.id.VersionCorrection;
 import com.opengamma.livedata.LiveDataSpecification;
 import com.opengamma.livedata.LiveDataValueUpdate;
 import com.opengamma.livedata.UserPrincipal;
+import com.opengamma.livedata.cogda.msg.CogdaLiveDataBuilderUtil;
 import com.opengamma.livedata.server.LastKnownValueStore;
 import com.opengamma.livedata.server.LastKnownValueStoreProvider;
 import com.opengamma.livedata.server.LiveDataServer;
@@ -249,7 +251,9 @@ public class CogdaLiveDataServer implements LiveDataServer, FudgeConnectionRecei
   }
   
   public FudgeMsg getCapabilities() {
-    return OpenGammaFudgeContext.getInstance().newMessage();
+    MutableFudgeMsg capabilities = OpenGammaFudgeContext.getInstance().newMessage();
+    capabilities.add(CogdaLiveDataBuilderUtil.BINARY_UPDATES_CAPABILITY, true);
+    return capabilities;
   }
   
   public boolean isValidLiveData(ExternalId subscriptionId, String normalizationScheme) {
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.msg;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.opengamma.core.value.MarketDataRequirementNames;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Dictionary mapping live data field names to the short ordinals used by
+ * {@link LiveDataUpdateEncoder} and {@link LiveDataUpdateDecoder}.
+ * <p>
+ * Every dictionary starts with the standard market data fields, so the most common
+ * names never need to be sent over the wire. Further names are defined as they are
+ * first encoded, or as their definitions are decoded.
+ * <p>
+ * This class is thread-safe. Lookups do not lock.
+ */
+public final class LiveDataFieldDictionary {
+
+  /**
+   * The maximum number of names, as ordinals are written as unsigned shorts.
+   */
+  public static final int MAX_SIZE = 0x10000;
+  /**
+   * The names with preassigned ordinals.
+   * This list is part of the wire format, so names may only be appended.
+   */
+  private static final List<String> STANDARD_FIELDS = Collections.unmodifiableList(Arrays.asList(
+      MarketDataRequirementNames.MARKET_VALUE,
+      MarketDataRequirementNames.IMPLIED_VOLATILITY,
+      MarketDataRequirementNames.VOLUME,
+      MarketDataRequirementNames.LAST,
+      MarketDataRequirementNames.LAST_DATE_TIME,
+      MarketDataRequirementNames.SETTLE_PRICE,
+      MarketDataRequirementNames.MID,
+      MarketDataRequirementNames.BID,
+      MarketDataRequirementNames.BID_DATE_TIME,
+      MarketDataRequirementNames.ASK,
+      MarketDataRequirementNames.ASK_DATE_TIME,
+      MarketDataRequirementNames.BEST_IMPLIED_VOLATILITY,
+      MarketDataRequirementNames.BID_IMPLIED_VOLATILITY,
+      MarketDataRequirementNames.ASK_IMPLIED_VOLATILITY,
+      MarketDataRequirementNames.LAST_IMPLIED_VOLATILITY,
+      MarketDataRequirementNames.MID_IMPLIED_VOLATILITY,
+      MarketDataRequirementNames.YIELD_CONVENTION_MID,
+      MarketDataRequirementNames.YIELD_YIELD_TO_MATURITY_MID,
+      MarketDataRequirementNames.DIRTY_PRICE_MID,
+      MarketDataRequirementNames.DIVIDEND_YIELD,
+      MarketDataRequirementNames.ANNUAL_DIVIDEND,
+      MarketDataRequirementNames.NEXT_DIVIDEND_DATE,
+      MarketDataRequirementNames.DIVIDEND_FREQUENCY,
+      MarketDataRequirementNames.COST_OF_CARRY,
+      MarketDataRequirementNames.HIGH,
+      MarketDataRequirementNames.LOW,
+      MarketDataRequirementNames.CLOSING_BID,
+      MarketDataRequirementNames.CLOSING_BID_DATE,
+      MarketDataRequirementNames.CLOSING_ASK,
+      MarketDataRequirementNames.CLOSING_ASK_DATE,
+      MarketDataRequirementNames.CLOSE,
+      MarketDataRequirementNames.CLOSE_DATE));
+
+  /**
+   * The ordinals keyed by name.
+   */
+  private final ConcurrentMap<String, Integer> _ordinals = new ConcurrentHashMap<>();
+  /**
+   * The names indexed by ordinal, replaced rather than modified when a name is defined.
+   */
+  private volatile String[] _names;
+  /**
+   * The next ordinal to assign, guarded by this.
+   */
+  private int _size;
+
+  /**
+   * Creates a dictionary holding the standard fields.
+   */
+  public LiveDataFieldDictionary() {
+    String[] names = new String[STANDARD_FIELDS.size() + 16];
+    for (String name : STANDARD_FIELDS) {
+      _ordinals.put(name, _size);
+      names[_size++] = name;
+    }
+    _names = names;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the names with preassigned ordinals, in ordinal order.
+   *
+   * @return the names, not null
+   */
+  public static List<String> getStandardFields() {
+    return STANDARD_FIELDS;
+  }
+
+  /**
+   * Checks if the ordinal is preassigned to a standard field.
+   *
+   * @param ordinal  the ordinal
+   * @return true if the name of the ordinal is known to all dictionaries
+   */
+  public static boolean isStandard(int ordinal) {
+    return ordinal >= 0 && ordinal < STANDARD_FIELDS.size();
+  }
+
+  /**
+   * Gets the ordinal of a name.
+   *
+   * @param name  the field name, not null
+   * @return the ordinal, -1 if not defined
+   */
+  public int getOrdinal(String name) {
+    Integer ordinal = _ordinals.get(name);
+    return ordinal != null ? ordinal : -1;
+  }
+
+  /**
+   * Gets the name of an ordinal.
+   *
+   * @param ordinal  the ordinal
+   * @return the field name, null if not defined
+   */
+  public String getName(int ordinal) {
+    String[] names = _names;
+    return ordinal >= 0 && ordinal < names.length ? names[ordinal] : null;
+  }
+
+  /**
+   * Gets the number of ordinals assigned.
+   *
+   * @return the size
+   */
+  public synchronized int size() {
+    return _size;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Defines a name, assigning it the next free ordinal if not already defined.
+   *
+   * @param name  the field name, not null
+   * @return the ordinal, -1 if the dictionary is full
+   */
+  public synchronized int define(String name) {
+    ArgumentChecker.notNull(name, "name");
+    int ordinal = getOrdinal(name);
+    if (ordinal >= 0) {
+      return ordinal;
+    }
+    if (_size >= MAX_SIZE) {
+      return -1;
+    }
+    ordinal = _size;
+    store(ordinal, name);
+    return ordinal;
+  }
+
+  /**
+   * Defines a name with an ordinal assigned by another dictionary.
+   *
+   * @param ordinal  the ordinal
+   * @param name  the field name, not null
+   * @throws IllegalArgumentException if the ordinal is invalid or preassigned to another name
+   */
+  public synchronized void define(int ordinal, String name) {
+    ArgumentChecker.notNull(name, "name");
+    ArgumentChecker.isTrue(ordinal >= 0 && ordinal < MAX_SIZE, "Invalid ordinal {}", ordinal);
+    String existing = getName(ordinal);
+    if (name.equals(existing)) {
+      return;
+    }
+    if (isStandard(ordinal)) {
+      throw new IllegalArgumentException("Ordinal " + ordinal + " is preassigned to " + existing);
+    }
+    if (existing != null) {
+      _ordinals.remove(existing, ordinal);
+    }
+    store(ordinal, name);
+  }
+
+  private void store(int ordinal, String name) {
+    String[] names = _names;
+    if (ordinal >= names.length) {
+      names = Arrays.copyOf(names, Math.min(Math.max(names.length * 2, ordinal + 1), MAX_SIZE));
+    } else {
+      names = names.clone();
+    }
+    names[ordinal] = name;
+    _names = names;
+    _ordinals.put(name, ordinal);
+    _size = Math.max(_size, ordinal + 1);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "LiveDataFieldDictionary[" + size() + " names]";
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.msg;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.MutableFudgeMsg;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Decodes live data updates written by {@link LiveDataUpdateEncoder}.
+ * <p>
+ * A decoder receiving the messages of a single encoder retains the names defined by
+ * them. Names defined in self-contained messages only apply to those messages, so one
+ * decoder may receive from many self-contained encoders.
+ * <p>
+ * This class is thread-safe for self-contained messages. Other messages must be decoded
+ * in the order they were encoded.
+ */
+public class LiveDataUpdateDecoder {
+
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _fudgeContext;
+  /**
+   * The dictionary of field names.
+   */
+  private final LiveDataFieldDictionary _dictionary = new LiveDataFieldDictionary();
+
+  /**
+   * Creates an instance.
+   *
+   * @param fudgeContext  the Fudge context, not null
+   */
+  public LiveDataUpdateDecoder(FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _fudgeContext = fudgeContext;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the dictionary of field names.
+   *
+   * @return the dictionary, not null
+   */
+  public LiveDataFieldDictionary getDictionary() {
+    return _dictionary;
+  }
+
+  /**
+   * Decodes a message.
+   *
+   * @param bytes  the message, not null
+   * @return the update, not null
+   * @throws IllegalArgumentException if the message was not written by a compatible encoder
+   * @throws OpenGammaRuntimeException if the message cannot be decoded
+   */
+  public LiveDataValueUpdateBean decode(byte[] bytes) {
+    ArgumentChecker.notNull(bytes, "bytes");
+    ArgumentChecker.isTrue(LiveDataUpdateEncoder.isEncoded(bytes), "Not an encoded live data update");
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    try {
+      in.readByte();
+      byte version = in.readByte();
+      ArgumentChecker.isTrue(version == LiveDataUpdateEncoder.VERSION, "Unsupported live data update version {}", version);
+      boolean selfContained = (in.readByte() & LiveDataUpdateEncoder.FLAG_SELF_CONTAINED) != 0;
+      long sequenceNumber = in.readLong();
+      String normalization = in.readUTF();
+      int idCount = in.readUnsignedShort();
+      List<ExternalId> ids = new ArrayList<>(idCount);
+      for (int i = 0; i < idCount; i++) {
+        ids.add(ExternalId.of(in.readUTF(), in.readUTF()));
+      }
+      int definitionCount = in.readUnsignedShort();
+      Map<Integer, String> definitions = null;
+      if (selfContained && definitionCount > 0) {
+        definitions = new HashMap<>();
+      }
+      for (int i = 0; i < definitionCount; i++) {
+        int ordinal = in.readUnsignedShort();
+        String name = in.readUTF();
+        if (selfContained) {
+          definitions.put(ordinal, name);
+        } else {
+          _dictionary.define(ordinal, name);
+        }
+      }
+      int fieldCount = in.readUnsignedShort();
+      MutableFudgeMsg fields = _fudgeContext.newMessage();
+      for (int i = 0; i < fieldCount; i++) {
+        int ordinal = in.readUnsignedShort();
+        String name = definitions != null ? definitions.get(ordinal) : null;
+        if (name == null) {
+          name = _dictionary.getName(ordinal);
+          if (name == null) {
+            throw new OpenGammaRuntimeException("Undefined live data field ordinal " + ordinal);
+          }
+        }
+        readValue(in, name, fields);
+      }
+      return new LiveDataValueUpdateBean(sequenceNumber, new LiveDataSpecification(normalization, ExternalIdBundle.of(ids)), fields);
+    } catch (IOException ex) {
+      throw new OpenGammaRuntimeException("Unable to decode live data update", ex);
+    }
+  }
+
+  private void readValue(DataInputStream in, String name, MutableFudgeMsg fields) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case LiveDataUpdateEncoder.TYPE_DOUBLE:
+        fields.add(name, in.readDouble());
+        break;
+      case LiveDataUpdateEncoder.TYPE_FLOAT:
+        fields.add(name, in.readFloat());
+        break;
+      case LiveDataUpdateEncoder.TYPE_LONG:
+        fields.add(name, in.readLong());
+        break;
+      case LiveDataUpdateEncoder.TYPE_INT:
+        fields.add(name, in.readInt());
+        break;
+      case LiveDataUpdateEncoder.TYPE_BOOLEAN:
+        fields.add(name, in.readBoolean());
+        break;
+      case LiveDataUpdateEncoder.TYPE_STRING:
+        fields.add(name, in.readUTF());
+        break;
+      case LiveDataUpdateEncoder.TYPE_FUDGE:
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        FudgeField field = _fudgeContext.deserialize(bytes).getMessage().getAllFields().get(0);
+        fields.add(name, null, field.getType(), field.getValue());
+        break;
+      default:
+        throw new OpenGammaRuntimeException("Unknown live data value type " + type);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "LiveDataUpdateDecoder[" + _dictionary + "]";
+  }
+
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.msg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.MutableFudgeMsg;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.id.ExternalId;
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.LiveDataValueUpdate;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Encodes live data updates in a compact binary form for {@link LiveDataUpdateDecoder}.
+ * <p>
+ * Field names are replaced by ordinals from a {@link LiveDataFieldDictionary}, numbers
+ * are written as raw values rather than as Fudge fields, and only the fields that have
+ * changed since the last update encoded for the same specification are included.
+ * Other value types are embedded as Fudge encoded fields.
+ * <p>
+ * The names of fields that are not standard must be defined to the decoder. When the
+ * encoder is used for a single connection, each name is defined in the first message
+ * using it. When messages may be received by decoders that have not seen the earlier
+ * messages, such as JMS subscribers joining late, the encoder is created as self-contained
+ * and the names are defined in every message using them.
+ * <p>
+ * The layout of a message is:
+ * <pre>
+ *  byte    magic, distinguishing the message from a Fudge envelope
+ *  byte    version
+ *  byte    flags
+ *  long    sequence number
+ *  UTF     normalization rule set
+ *  short   identifier count, followed by (UTF scheme, UTF value) per identifier
+ *  short   definition count, followed by (short ordinal, UTF name) per definition
+ *  short   field count, followed by (short ordinal, byte type, value) per field
+ * </pre>
+ * <p>
+ * This class is not thread-safe. Each connection or sender should use its own encoder.
+ */
+public class LiveDataUpdateEncoder {
+
+  /**
+   * The first byte of an encoded message.
+   * Fudge envelopes written by OpenGamma start with zero processing directives.
+   */
+  /*package*/ static final byte MAGIC = (byte) 0xB1;
+  /**
+   * The version of the layout.
+   */
+  /*package*/ static final byte VERSION = 1;
+  /**
+   * The flag set when the definitions only apply to the message containing them.
+   */
+  /*package*/ static final int FLAG_SELF_CONTAINED = 1;
+  /**
+   * The type of an 8-byte double value.
+   */
+  /*package*/ static final byte TYPE_DOUBLE = 0;
+  /**
+   * The type of a 4-byte float value.
+   */
+  /*package*/ static final byte TYPE_FLOAT = 1;
+  /**
+   * The type of an 8-byte long value.
+   */
+  /*package*/ static final byte TYPE_LONG = 2;
+  /**
+   * The type of a 4-byte integer value.
+   */
+  /*package*/ static final byte TYPE_INT = 3;
+  /**
+   * The type of a boolean value.
+   */
+  /*package*/ static final byte TYPE_BOOLEAN = 4;
+  /**
+   * The type of a modified UTF-8 string value.
+   */
+  /*package*/ static final byte TYPE_STRING = 5;
+  /**
+   * The type of any other value, written as a length-prefixed Fudge message holding the field.
+   */
+  /*package*/ static final byte TYPE_FUDGE = 6;
+  /**
+   * The longest string written as {@link #TYPE_STRING}, guaranteeing the UTF form fits in 64k.
+   */
+  private static final int MAX_UTF_LENGTH = 0xFFFF / 3;
+
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _fudgeContext;
+  /**
+   * The dictionary of field names.
+   */
+  private final LiveDataFieldDictionary _dictionary;
+  /**
+   * Whether names are defined in every message using them.
+   */
+  private final boolean _selfContained;
+  /**
+   * The ordinals already defined to the decoder, when not self-contained.
+   */
+  private final BitSet _defined = new BitSet();
+  /**
+   * The values last encoded, keyed by ordinal, for each specification.
+   */
+  private final Map<LiveDataSpecification, Map<Integer, Object>> _lastValues = new HashMap<>();
+  /**
+   * The buffer reused between messages.
+   */
+  private final ByteArrayOutputStream _buffer = new ByteArrayOutputStream(256);
+
+  /**
+   * Creates an instance.
+   *
+   * @param fudgeContext  the Fudge context for values without a binary form, not null
+   * @param selfContained  true to define names in every message using them, false to define them once
+   */
+  public LiveDataUpdateEncoder(FudgeContext fudgeContext, boolean selfContained) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _fudgeContext = fudgeContext;
+    _dictionary = new LiveDataFieldDictionary();
+    _selfContained = selfContained;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Checks if names are defined in every message using them.
+   *
+   * @return true if each message can be decoded on its own
+   */
+  public boolean isSelfContained() {
+    return _selfContained;
+  }
+
+  /**
+   * Gets the dictionary of field names.
+   *
+   * @return the dictionary, not null
+   */
+  public LiveDataFieldDictionary getDictionary() {
+    return _dictionary;
+  }
+
+  /**
+   * Discards the values last encoded for a specification, for example when it is unsubscribed.
+   * The next update for the specification will include all of its fields.
+   *
+   * @param specification  the specification, not null
+   */
+  public void forget(LiveDataSpecification specification) {
+    _lastValues.remove(specification);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Encodes the fields of an update that have changed since the last update for the same specification.
+   * <p>
+   * Fields without a name are not supported and are omitted.
+   *
+   * @param update  the update, not null
+   * @return the encoded message, null if no field has changed
+   */
+  public byte[] encode(LiveDataValueUpdate update) {
+    ArgumentChecker.notNull(update, "update");
+    LiveDataSpecification specification = update.getSpecification();
+    Map<Integer, Object> lastValues = _lastValues.get(specification);
+    if (lastValues == null) {
+      lastValues = new HashMap<>();
+      _lastValues.put(specification, lastValues);
+    }
+    List<FudgeField> changed = new ArrayList<>();
+    List<Integer> ordinals = new ArrayList<>();
+    List<Integer> definitions = new ArrayList<>();
+    for (FudgeField field : update.getFields()) {
+      if (field.getName() == null || field.getValue() == null) {
+        continue;
+      }
+      int ordinal = _dictionary.define(field.getName());
+      if (ordinal < 0) {
+        throw new OpenGammaRuntimeException("Too many live data field names to encode " + field.getName());
+      }
+      Object previous = lastValues.put(ordinal, field.getValue());
+      if (field.getValue().equals(previous)) {
+        continue;
+      }
+      changed.add(field);
+      ordinals.add(ordinal);
+      if (!LiveDataFieldDictionary.isStandard(ordinal) && !definitions.contains(ordinal)) {
+        if (_selfContained) {
+          definitions.add(ordinal);
+        } else if (!_defined.get(ordinal)) {
+          _defined.set(ordinal);
+          definitions.add(ordinal);
+        }
+      }
+    }
+    if (changed.isEmpty()) {
+      return null;
+    }
+    _buffer.reset();
+    DataOutputStream out = new DataOutputStream(_buffer);
+    try {
+      out.writeByte(MAGIC);
+      out.writeByte(VERSION);
+      out.writeByte(_selfContained ? FLAG_SELF_CONTAINED : 0);
+      out.writeLong(update.getSequenceNumber());
+      out.writeUTF(specification.getNormalizationRuleSetId());
+      out.writeShort(specification.getIdentifiers().size());
+      for (ExternalId id : specification.getIdentifiers()) {
+        out.writeUTF(id.getScheme().getName());
+        out.writeUTF(id.getValue());
+      }
+      out.writeShort(definitions.size());
+      for (int ordinal : definitions) {
+        out.writeShort(ordinal);
+        out.writeUTF(_dictionary.getName(ordinal));
+      }
+      out.writeShort(changed.size());
+      for (int i = 0; i < changed.size(); i++) {
+        out.writeShort(ordinals.get(i));
+        writeValue(out, changed.get(i));
+      }
+      out.flush();
+    } catch (IOException ex) {
+      throw new OpenGammaRuntimeException("Unable to encode " + update, ex);
+    }
+    return _buffer.toByteArray();
+  }
+
+  private void writeValue(DataOutputStream out, FudgeField field) throws IOException {
+    Object value = field.getValue();
+    if (value instanceof Double) {
+      out.writeByte(TYPE_DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      out.writeByte(TYPE_FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Long) {
+      out.writeByte(TYPE_LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      out.writeByte(TYPE_INT);
+      out.writeInt(((Number) value).intValue());
+    } else if (value instanceof Boolean) {
+      out.writeByte(TYPE_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof String && ((String) value).length() <= MAX_UTF_LENGTH) {
+      out.writeByte(TYPE_STRING);
+      out.writeUTF((String) value);
+    } else {
+      MutableFudgeMsg msg = _fudgeContext.newMessage();
+      msg.add(null, null, field.getType(), value);
+      byte[] bytes = _fudgeContext.toByteArray(msg);
+      out.writeByte(TYPE_FUDGE);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "LiveDataUpdateEncoder[" + _dictionary + (_selfContained ? ", self-contained]" : "]");
+  }
+
+  /**
+   * Checks if a message was produced by an encoder.
+   *
+   * @param bytes  the message, not null
+   * @return true if the message should be read with {@link LiveDataUpdateDecoder}, false if it is a Fudge message
+   */
+  public static boolean isEncoded(byte[] bytes) {
+    return bytes.length > 0 && bytes[0] == MAGIC;
+  }
+
+}
@@ -0,0 +1,336 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.opengamma.livedata.server.distribution.MarketDataSendBatch;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+import com.opengamma.util.metric.MetricProducer;
+
+/**
+ * Moves tick processing off the market data feed threads.
+ * <p>
+ * Ticks received by a {@link StandardLiveDataServer} are offered to one of several
+ * lock-free ring buffers, chosen by security unique identifier. Each ring buffer is
+ * drained by its own worker thread, which normalizes the ticks, updates the last
+ * known values and then hands the resulting updates to the market data senders in
+ * a single batch. As all ticks for a security go to the same worker, the order of
+ * updates on each topic is preserved.
+ * <p>
+ * The feed thread never takes a lock while the pipeline is running. If a ring buffer
+ * is full the feed thread spins until the worker frees a slot, so ticks are never
+ * dropped. A tick queued while the pipeline stops is processed by the stopping thread,
+ * or by the feed thread once the workers have stopped.
+ */
+public class LiveDataTickPipeline implements MetricProducer {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(LiveDataTickPipeline.class);
+
+  /**
+   * The default capacity of each ring buffer.
+   */
+  public static final int DEFAULT_RING_CAPACITY = 1 << 16;
+  /**
+   * The default maximum number of ticks handed to the senders in one batch.
+   */
+  public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+  /**
+   * The number of empty polls before a worker parks.
+   */
+  private static final int SPIN_TRIES = 100;
+  /**
+   * The longest a worker parks before checking its ring buffer again.
+   */
+  private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * The workers.
+   */
+  private final Worker[] _workers;
+  /**
+   * The maximum batch size.
+   */
+  private final int _maxBatchSize;
+  /**
+   * The server to dispatch ticks to, set when started.
+   */
+  private volatile StandardLiveDataServer _server;
+  /**
+   * Whether the pipeline accepts ticks.
+   */
+  private volatile boolean _running;
+  /**
+   * The number of ticks processed.
+   */
+  private Meter _tickMeter = new Meter();
+  /**
+   * The number of times a feed thread found a ring buffer full.
+   */
+  private Meter _ringFullMeter = new Meter();
+  /**
+   * The time ticks spend waiting in the ring buffers.
+   */
+  private Timer _queueLatencyTimer = new Timer();
+
+  /**
+   * Creates an instance with one worker per available processor and default sizes.
+   */
+  public LiveDataTickPipeline() {
+    this(Runtime.getRuntime().availableProcessors(), DEFAULT_RING_CAPACITY, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param workerCount  the number of worker threads, greater than zero
+   * @param ringCapacity  the capacity of each worker's ring buffer, rounded up to a power of two
+   * @param maxBatchSize  the maximum number of ticks processed before the senders are called, greater than zero
+   */
+  public LiveDataTickPipeline(int workerCount, int ringCapacity, int maxBatchSize) {
+    ArgumentChecker.notNegativeOrZero(workerCount, "workerCount");
+    ArgumentChecker.notNegativeOrZero(maxBatchSize, "maxBatchSize");
+    _maxBatchSize = maxBatchSize;
+    _workers = new Worker[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      _workers[i] = new Worker(new TickRingBuffer(ringCapacity));
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void registerMetrics(MetricRegistry summaryRegistry, MetricRegistry detailRegistry, String namePrefix) {
+    _tickMeter = summaryRegistry.meter(namePrefix + ".ticks");
+    _ringFullMeter = summaryRegistry.meter(namePrefix + ".ringFull");
+    _queueLatencyTimer = detailRegistry.timer(namePrefix + ".queueLatency");
+    summaryRegistry.register(namePrefix + ".backlog", new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return getBacklog();
+      }
+    });
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of worker threads.
+   *
+   * @return the number of workers
+   */
+  public int getWorkerCount() {
+    return _workers.length;
+  }
+
+  /**
+   * Gets the approximate number of ticks waiting to be processed.
+   *
+   * @return the backlog
+   */
+  public int getBacklog() {
+    int backlog = 0;
+    for (Worker worker : _workers) {
+      backlog += worker._ring.size();
+    }
+    return backlog;
+  }
+
+  /**
+   * Checks if the pipeline is accepting ticks.
+   *
+   * @return true if running
+   */
+  public boolean isRunning() {
+    return _running;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Starts the worker threads.
+   *
+   * @param server  the server to dispatch ticks to, not null
+   */
+  public synchronized void start(StandardLiveDataServer server) {
+    ArgumentChecker.notNull(server, "server");
+    if (_running) {
+      throw new IllegalStateException("Pipeline already started");
+    }
+    _server = server;
+    _running = true;
+    NamedThreadPoolFactory threadFactory = new NamedThreadPoolFactory("LiveDataTickPipeline");
+    for (Worker worker : _workers) {
+      worker._thread = threadFactory.newThread(worker);
+      worker._thread.start();
+    }
+    s_logger.info("Started {} tick pipeline workers", _workers.length);
+  }
+
+  /**
+   * Stops accepting ticks and waits for the workers to process those already queued.
+   * Ticks queued after a worker stopped are processed on the calling thread.
+   */
+  public synchronized void stop() {
+    if (!_running) {
+      return;
+    }
+    _running = false;
+    for (Worker worker : _workers) {
+      LockSupport.unpark(worker._thread);
+    }
+    for (Worker worker : _workers) {
+      try {
+        worker._thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        s_logger.warn("Interrupted waiting for tick pipeline worker to stop");
+        return;
+      }
+    }
+    drainStoppedWorkers();
+    s_logger.info("Stopped tick pipeline");
+  }
+
+  /**
+   * Processes the ticks left in the ring buffers of the stopped workers.
+   * A feed thread may have queued a tick after the worker for its ring buffer found it empty and stopped.
+   */
+  private synchronized void drainStoppedWorkers() {
+    if (_running) {
+      return;
+    }
+    for (Worker worker : _workers) {
+      worker.drainIfStopped();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Queues a tick for processing.
+   * <p>
+   * This is called on the feed thread.
+   *
+   * @param securityUniqueId  the security unique identifier, not null
+   * @param liveDataFields  the unnormalized fields, not null
+   * @return false if the pipeline is not running, in which case the caller should process the tick itself
+   */
+  public boolean publish(String securityUniqueId, FudgeMsg liveDataFields) {
+    if (!_running) {
+      return false;
+    }
+    Worker worker = _workers[partition(securityUniqueId)];
+    long now = System.nanoTime();
+    if (!worker._ring.offer(securityUniqueId, liveDataFields, now)) {
+      _ringFullMeter.mark();
+      do {
+        LockSupport.unpark(worker._thread);
+        Thread.yield();
+        if (!_running) {
+          return false;
+        }
+      } while (!worker._ring.offer(securityUniqueId, liveDataFields, now));
+    }
+    if (!_running) {
+      // the pipeline stopped while queuing, the worker may have exited before the tick was queued
+      drainStoppedWorkers();
+      return true;
+    }
+    if (worker._parked) {
+      LockSupport.unpark(worker._thread);
+    }
+    return true;
+  }
+
+  private int partition(String securityUniqueId) {
+    int hash = securityUniqueId.hashCode();
+    hash ^= (hash >>> 16);
+    return (hash & Integer.MAX_VALUE) % _workers.length;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A worker draining a single ring buffer.
+   */
+  private final class Worker implements Runnable, TickRingBuffer.TickHandler {
+    private final TickRingBuffer _ring;
+    private final MarketDataSendBatch _batch = new MarketDataSendBatch();
+    private volatile Thread _thread;
+    private volatile boolean _parked;
+
+    private Worker(TickRingBuffer ring) {
+      _ring = ring;
+    }
+
+    @Override
+    public void run() {
+      int idle = 0;
+      while (true) {
+        if (drain() > 0) {
+          idle = 0;
+        } else if (!_running) {
+          if (_ring.isEmpty()) {
+            return;
+          }
+        } else if (++idle < SPIN_TRIES) {
+          Thread.yield();
+        } else {
+          _parked = true;
+          if (_ring.isEmpty() && _running) {
+            LockSupport.parkNanos(this, PARK_NANOS);
+          }
+          _parked = false;
+        }
+      }
+    }
+
+    /**
+     * Processes a batch of ticks from the ring buffer.
+     *
+     * @return the number of ticks processed
+     */
+    private int drain() {
+      int count = _ring.drain(this, _maxBatchSize);
+      if (count > 0) {
+        _batch.flush();
+        _tickMeter.mark(count);
+        _server.ticksProcessed(count);
+      }
+      return count;
+    }
+
+    /**
+     * Processes the ticks left in the ring buffer on the calling thread, if the worker thread has stopped.
+     */
+    private void drainIfStopped() {
+      if (_thread == null || _thread.isAlive()) {
+        return;
+      }
+      while (drain() > 0) {
+        // keep draining until empty
+      }
+    }
+
+    @Override
+    public void tick(String securityUniqueId, FudgeMsg liveDataFields, long enqueueNanos) {
+      _queueLatencyTimer.update(System.nanoTime() - enqueueNanos, TimeUnit.NANOSECONDS);
+      try {
+        _server.dispatchLiveData(securityUniqueId, liveDataFields, _batch);
+      } catch (RuntimeException e) {
+        s_logger.error("Processing tick for " + securityUniqueId + " failed", e);
+      }
+    }
+  }
+
+}
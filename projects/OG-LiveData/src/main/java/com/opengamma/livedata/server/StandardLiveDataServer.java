@@ -44,6 +44,7 @@ import com.opengamma.livedata.resolver.DistributionSpecificationResolver;
 import com.opengamma.livedata.resolver.NaiveDistributionSpecificationResolver;
 import com.opengamma.livedata.server.distribution.EmptyMarketDataSenderFactory;
 import com.opengamma.livedata.server.distribution.MarketDataDistributor;
+import com.opengamma.livedata.server.distribution.MarketDataSendBatch;
 import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
 import com.opengamma.livedata.server.mxbean.DistributorTrace;
 import com.opengamma.livedata.server.mxbean.SubscriptionTrace;
@@ -85,6 +86,7 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   private DistributionSpecificationResolver _distributionSpecificationResolver = new NaiveDistributionSpecificationResolver();
   private LiveDataEntitlementChecker _entitlementChecker = new PermissiveLiveDataEntitlementChecker();
   private LastKnownValueStoreProvider _lkvStoreProvider = new MapLastKnownValueStoreProvider();
+  private volatile LiveDataTickPipeline _tickPipeline;
 
   private volatile ConnectionStatus _connectionStatus = ConnectionStatus.NOT_CONNECTED;
 
@@ -243,6 +245,27 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     _lkvStoreProvider = lkvStoreProvider;
   }
 
+  /**
+   * Gets the pipeline used to process ticks off the feed threads.
+   *
+   * @return the pipeline, null if ticks are processed on the feed threads
+   */
+  public LiveDataTickPipeline getTickPipeline() {
+    return _tickPipeline;
+  }
+
+  /**
+   * Sets the pipeline used to process ticks off the feed threads.
+   * <p>
+   * The pipeline is started and stopped with this server. If not set, ticks are
+   * normalized and distributed on the thread that received them.
+   *
+   * @param tickPipeline the pipeline, null to process ticks on the feed threads
+   */
+  public void setTickPipeline(LiveDataTickPipeline tickPipeline) {
+    _tickPipeline = tickPipeline;
+  }
+
   //-------------------------------------------------------------------------
 
   /**
@@ -406,6 +429,9 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
   public synchronized void start() {
     if (getConnectionStatus() == ConnectionStatus.NOT_CONNECTED) {
       connect();
+      if (_tickPipeline != null) {
+        _tickPipeline.start(this);
+      }
       startExpirationManager();
     }
   }
@@ -419,6 +445,9 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     if (getConnectionStatus() == ConnectionStatus.CONNECTED) {
       disconnect();
       stopExpirationManager();
+      if (_tickPipeline != null) {
+        _tickPipeline.stop();
+      }
     }
   }
 
@@ -1009,10 +1038,24 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
     s_logger.debug("Live data received: {}", liveDataFields);
 
     _numMarketDataUpdatesReceived.incrementAndGet();
+    LiveDataTickPipeline tickPipeline = _tickPipeline;
+    if (tickPipeline != null && tickPipeline.publish(securityUniqueId, liveDataFields)) {
+      return;
+    }
     if (_performanceCounter != null) {
       _performanceCounter.hit();
     }
+    dispatchLiveData(securityUniqueId, liveDataFields, null);
+  }
 
+  /**
+   * Normalizes and distributes a tick to the subscription for the security.
+   *
+   * @param securityUniqueId the security unique identifier, not null
+   * @param liveDataFields the unnormalized fields, not null
+   * @param batch the batch to add normalized updates to, null to send them immediately
+   */
+  /*package*/ void dispatchLiveData(String securityUniqueId, FudgeMsg liveDataFields, MarketDataSendBatch batch) {
     Subscription subscription = getSubscription(securityUniqueId);
     if (subscription == null) {
       // REVIEW kirk 2013-04-26 -- Should this really be a WARN? I believe some gateway systems
@@ -1023,7 +1066,18 @@ public abstract class StandardLiveDataServer implements LiveDataServer, Lifecycl
       return;
     }
 
-    subscription.liveDataReceived(liveDataFields);
+    subscription.liveDataReceived(liveDataFields, batch);
+  }
+
+  /**
+   * Records ticks processed by the tick pipeline.
+   *
+   * @param count the number of ticks
+   */
+  /*package*/ void ticksProcessed(int count) {
+    if (_performanceCounter != null) {
+      _performanceCounter.hitMultiple(count);
+    }
   }
 
   public Set<String> getActiveDistributionSpecs() {
@@ -17,6 +17,7 @@ import org.slf4j.LoggerFactory;
 
 import com.opengamma.livedata.LiveDataSpecification;
 import com.opengamma.livedata.server.distribution.MarketDataDistributor;
+import com.opengamma.livedata.server.distribution.MarketDataSendBatch;
 import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
 import com.opengamma.util.ArgumentChecker;
 
@@ -243,12 +244,16 @@ public class Subscription {
   }
 
   /*package*/ void liveDataReceived(FudgeMsg liveDataFields) {
+    liveDataReceived(liveDataFields, null);
+  }
+
+  /*package*/ void liveDataReceived(FudgeMsg liveDataFields, MarketDataSendBatch batch) {
     _liveDataSerializationLock.lock();
     try {
       _history.liveDataReceived(liveDataFields);
 
       for (MarketDataDistributor distributor : getDistributors()) {
-        distributor.distributeLiveData(liveDataFields);
+        distributor.distributeLiveData(liveDataFields, batch);
       }
     } finally {
       _liveDataSerializationLock.unlock();
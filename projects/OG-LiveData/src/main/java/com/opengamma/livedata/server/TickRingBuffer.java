@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.fudgemsg.FudgeMsg;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A bounded, lock-free ring buffer of raw ticks.
+ * <p>
+ * Any number of threads may offer ticks, but only a single thread may drain them.
+ * Each slot carries a sequence number which tells producers when the slot is free
+ * and the consumer when the slot has been published, so no locks are taken on
+ * either side.
+ */
+final class TickRingBuffer {
+
+  /**
+   * Receives ticks drained from the buffer.
+   */
+  interface TickHandler {
+
+    /**
+     * Handles a single tick.
+     *
+     * @param securityUniqueId  the security unique identifier, not null
+     * @param liveDataFields  the unnormalized fields, not null
+     * @param enqueueNanos  the value of {@link System#nanoTime()} when the tick was offered
+     */
+    void tick(String securityUniqueId, FudgeMsg liveDataFields, long enqueueNanos);
+
+  }
+
+  /**
+   * The mask used to map a sequence number to a slot.
+   */
+  private final int _mask;
+  /**
+   * The sequence of each slot.
+   */
+  private final AtomicLongArray _sequences;
+  /**
+   * The security identifiers, by slot.
+   */
+  private final String[] _securityUniqueIds;
+  /**
+   * The fields, by slot.
+   */
+  private final FudgeMsg[] _fields;
+  /**
+   * The enqueue time, by slot.
+   */
+  private final long[] _enqueueNanos;
+  /**
+   * The next sequence to be claimed by a producer.
+   */
+  private final AtomicLong _tail = new AtomicLong();
+  /**
+   * The next sequence to be read by the consumer.
+   */
+  private final AtomicLong _head = new AtomicLong();
+
+  /**
+   * Creates an instance.
+   *
+   * @param capacity  the capacity, rounded up to a power of two
+   */
+  TickRingBuffer(int capacity) {
+    ArgumentChecker.isTrue(capacity > 0 && capacity <= (1 << 30), "capacity must be between 1 and 2^30");
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    _mask = size - 1;
+    _sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      _sequences.set(i, i);
+    }
+    _securityUniqueIds = new String[size];
+    _fields = new FudgeMsg[size];
+    _enqueueNanos = new long[size];
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the capacity.
+   *
+   * @return the capacity
+   */
+  int capacity() {
+    return _mask + 1;
+  }
+
+  /**
+   * Gets the approximate number of ticks waiting to be drained.
+   *
+   * @return the backlog
+   */
+  int size() {
+    long size = _tail.get() - _head.get();
+    return (int) Math.max(0, Math.min(size, capacity()));
+  }
+
+  /**
+   * Checks if the next slot for the consumer is unpublished.
+   * <p>
+   * Only accurate when called by the consumer thread.
+   *
+   * @return true if there is nothing to drain
+   */
+  boolean isEmpty() {
+    long head = _head.get();
+    return _sequences.get((int) head & _mask) != head + 1;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Offers a tick to the buffer without blocking.
+   *
+   * @param securityUniqueId  the security unique identifier, not null
+   * @param liveDataFields  the unnormalized fields, not null
+   * @param enqueueNanos  the current value of {@link System#nanoTime()}
+   * @return false if the buffer is full
+   */
+  boolean offer(String securityUniqueId, FudgeMsg liveDataFields, long enqueueNanos) {
+    long pos;
+    int slot;
+    while (true) {
+      pos = _tail.get();
+      slot = (int) pos & _mask;
+      long diff = _sequences.get(slot) - pos;
+      if (diff == 0) {
+        if (_tail.compareAndSet(pos, pos + 1)) {
+          break;
+        }
+      } else if (diff < 0) {
+        return false;
+      }
+      // else another producer claimed the slot first, retry
+    }
+    _securityUniqueIds[slot] = securityUniqueId;
+    _fields[slot] = liveDataFields;
+    _enqueueNanos[slot] = enqueueNanos;
+    // a full volatile write so that a consumer about to park sees the tick
+    _sequences.set(slot, pos + 1);
+    return true;
+  }
+
+  /**
+   * Drains ticks in the order they were published.
+   * <p>
+   * Must only be called by the single consumer thread.
+   *
+   * @param handler  the handler to pass each tick to, not null
+   * @param maxTicks  the maximum number of ticks to drain
+   * @return the number of ticks drained
+   */
+  int drain(TickHandler handler, int maxTicks) {
+    long head = _head.get();
+    int count = 0;
+    while (count < maxTicks) {
+      int slot = (int) head & _mask;
+      if (_sequences.get(slot) != head + 1) {
+        break;
+      }
+      String securityUniqueId = _securityUniqueIds[slot];
+      FudgeMsg liveDataFields = _fields[slot];
+      long enqueueNanos = _enqueueNanos[slot];
+      _securityUniqueIds[slot] = null;
+      _fields[slot] = null;
+      _sequences.lazySet(slot, head + capacity());
+      head++;
+      _head.lazySet(head);
+      count++;
+      handler.tick(securityUniqueId, liveDataFields, enqueueNanos);
+    }
+    return count;
+  }
+
+}
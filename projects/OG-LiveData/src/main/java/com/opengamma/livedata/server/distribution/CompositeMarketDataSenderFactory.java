@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Factory combining the senders created by several other factories.
+ * <p>
+ * This allows a single server to distribute data to several classes of consumer,
+ * for example sending every tick to one destination and a conflated stream to another.
+ */
+public class CompositeMarketDataSenderFactory implements MarketDataSenderFactory {
+
+  /**
+   * The underlying factories.
+   */
+  private final List<MarketDataSenderFactory> _factories;
+
+  /**
+   * Creates an instance.
+   * 
+   * @param factories  the factories to combine, not null
+   */
+  public CompositeMarketDataSenderFactory(Collection<? extends MarketDataSenderFactory> factories) {
+    ArgumentChecker.noNulls(factories, "factories");
+    _factories = ImmutableList.copyOf(factories);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the underlying factories.
+   * 
+   * @return the factories, not null
+   */
+  public List<MarketDataSenderFactory> getFactories() {
+    return _factories;
+  }
+
+  @Override
+  public Collection<MarketDataSender> create(MarketDataDistributor distributor) {
+    List<MarketDataSender> senders = new ArrayList<>();
+    for (MarketDataSenderFactory factory : _factories) {
+      Collection<MarketDataSender> created = factory.create(distributor);
+      if (created == null) {
+        throw new IllegalStateException("Null returned by " + factory);
+      }
+      senders.addAll(created);
+    }
+    return senders;
+  }
+
+}
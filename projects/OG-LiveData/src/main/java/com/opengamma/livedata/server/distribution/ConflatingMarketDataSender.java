@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.server.FieldHistoryStore;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A {@link MarketDataSender} that coalesces updates before passing them on.
+ * <p>
+ * Updates are merged into a cumulative delta holding the latest value of each field.
+ * The delta is only passed to the underlying sender when {@link #flush()} is called,
+ * typically on a timer by {@link ConflatingMarketDataSenderFactory}, so a burst of
+ * ticks results in a single message.
+ */
+public class ConflatingMarketDataSender implements MarketDataSender {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(ConflatingMarketDataSender.class);
+
+  /**
+   * The underlying sender.
+   */
+  private final MarketDataSender _underlying;
+  /**
+   * The factory to notify when updates are pending, null if flushed externally.
+   */
+  private final ConflatingMarketDataSenderFactory _factory;
+  /**
+   * The field values received since the last flush.
+   */
+  private final FieldHistoryStore _cumulativeDelta = new FieldHistoryStore();
+  /**
+   * The sequence number of the last update received.
+   */
+  private long _lastSequenceNumber;
+  /**
+   * The number of updates waiting to be flushed.
+   */
+  private int _pendingUpdates;
+  /**
+   * The lock ensuring that flushes are sent in order.
+   */
+  private final Object _flushLock = new Object();
+  /**
+   * The number of updates received.
+   */
+  private final AtomicLong _numUpdatesReceived = new AtomicLong();
+  /**
+   * The number of messages sent.
+   */
+  private final AtomicLong _numMessagesSent = new AtomicLong();
+
+  /**
+   * Creates an instance that is flushed externally.
+   *
+   * @param underlying  the sender to pass coalesced updates to, not null
+   */
+  public ConflatingMarketDataSender(MarketDataSender underlying) {
+    this(underlying, null);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param underlying  the sender to pass coalesced updates to, not null
+   * @param factory  the factory to notify when updates are pending, null if flushed externally
+   */
+  /*package*/ ConflatingMarketDataSender(MarketDataSender underlying, ConflatingMarketDataSenderFactory factory) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    _underlying = underlying;
+    _factory = factory;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the underlying sender.
+   *
+   * @return the sender, not null
+   */
+  public MarketDataSender getUnderlying() {
+    return _underlying;
+  }
+
+  @Override
+  public MarketDataDistributor getDistributor() {
+    return _underlying.getDistributor();
+  }
+
+  /**
+   * Gets the number of updates received.
+   *
+   * @return the update count
+   */
+  public long getNumUpdatesReceived() {
+    return _numUpdatesReceived.get();
+  }
+
+  /**
+   * Gets the number of messages passed to the underlying sender.
+   *
+   * @return the message count
+   */
+  public long getNumMessagesSent() {
+    return _numMessagesSent.get();
+  }
+
+  /**
+   * Gets the conflation ratio, the number of updates received per message sent.
+   *
+   * @return the ratio, 1 if nothing has been sent yet
+   */
+  public double getConflationRatio() {
+    long sent = _numMessagesSent.get();
+    return sent == 0 ? 1d : (double) _numUpdatesReceived.get() / sent;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void sendMarketData(LiveDataValueUpdateBean data) {
+    _numUpdatesReceived.incrementAndGet();
+    boolean notify;
+    synchronized (this) {
+      _cumulativeDelta.liveDataReceived(data.getFields());
+      _lastSequenceNumber = data.getSequenceNumber();
+      notify = _pendingUpdates == 0;
+      _pendingUpdates++;
+    }
+    if (notify && _factory != null) {
+      _factory.updatesPending(this);
+    }
+  }
+
+  /**
+   * Passes any pending updates to the underlying sender as a single message.
+   *
+   * @return the number of updates coalesced into the message, zero if nothing was sent
+   */
+  public int flush() {
+    synchronized (_flushLock) {
+      LiveDataValueUpdateBean data;
+      int updates;
+      synchronized (this) {
+        updates = _pendingUpdates;
+        if (updates == 0) {
+          return 0;
+        }
+        data = new LiveDataValueUpdateBean(
+            _lastSequenceNumber,
+            getDistributor().getDistributionSpec().getFullyQualifiedLiveDataSpecification(),
+            _cumulativeDelta.getLastKnownValues());
+        _cumulativeDelta.clear();
+        _pendingUpdates = 0;
+      }
+      try {
+        _underlying.sendMarketData(data);
+      } catch (RuntimeException e) {
+        s_logger.error(_underlying + " failed", e);
+      }
+      _numMessagesSent.incrementAndGet();
+      return updates;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "ConflatingMarketDataSender[" + _underlying + "]";
+  }
+
+}
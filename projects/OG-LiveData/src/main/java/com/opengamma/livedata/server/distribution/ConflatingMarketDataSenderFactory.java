@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.opengamma.livedata.server.DistributionSpecification;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+import com.opengamma.util.metric.MetricProducer;
+
+/**
+ * Factory wrapping the senders of another factory so that updates are conflated.
+ * <p>
+ * Each instance represents one class of consumer, such as view processes that only
+ * need the latest values once per calculation cycle. Updates for each distribution
+ * specification are coalesced and passed to the underlying senders at most once per
+ * conflation period. A consumer that is ready for more data may also call
+ * {@link #flush()} to receive the pending updates immediately.
+ * <p>
+ * Several consumer classes may be served from one server by combining factories with
+ * {@link CompositeMarketDataSenderFactory}.
+ */
+public class ConflatingMarketDataSenderFactory implements MarketDataSenderFactory, MetricProducer {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(ConflatingMarketDataSenderFactory.class);
+
+  /**
+   * The factory creating the senders to conflate.
+   */
+  private final MarketDataSenderFactory _underlying;
+  /**
+   * The conflation period in milliseconds, zero if only flushed on demand.
+   */
+  private final long _conflationPeriodMillis;
+  /**
+   * The senders with pending updates.
+   */
+  private final Queue<ConflatingMarketDataSender> _pendingSenders = new ConcurrentLinkedQueue<>();
+  /**
+   * A {@code WeakHashMap} is used here so the senders can be garbage collected
+   * automatically when they're no longer used.
+   */
+  private final Set<ConflatingMarketDataSender> _allActiveSenders = Collections.newSetFromMap(new WeakHashMap<ConflatingMarketDataSender, Boolean>());
+  /**
+   * The executor flushing the senders, null if only flushed on demand.
+   */
+  private final ScheduledExecutorService _executor;
+  /**
+   * The total number of updates coalesced by all senders.
+   */
+  private final AtomicLong _numUpdatesReceived = new AtomicLong();
+  /**
+   * The total number of messages sent by all senders.
+   */
+  private final AtomicLong _numMessagesSent = new AtomicLong();
+  /**
+   * The registry for the per-specification metrics, null if not registered.
+   */
+  private volatile MetricRegistry _detailRegistry;
+  /**
+   * The prefix for the per-specification metrics.
+   */
+  private volatile String _namePrefix;
+
+  /**
+   * Creates an instance.
+   *
+   * @param underlying  the factory creating the senders to conflate, not null
+   * @param conflationPeriodMillis  the conflation period in milliseconds, zero to only flush on demand
+   */
+  public ConflatingMarketDataSenderFactory(MarketDataSenderFactory underlying, long conflationPeriodMillis) {
+    ArgumentChecker.notNull(underlying, "underlying");
+    ArgumentChecker.notNegative(conflationPeriodMillis, "conflationPeriodMillis");
+    _underlying = underlying;
+    _conflationPeriodMillis = conflationPeriodMillis;
+    if (conflationPeriodMillis > 0) {
+      _executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadPoolFactory("MarketDataConflation"));
+      _executor.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            flush();
+          } catch (RuntimeException e) {
+            s_logger.error("Conflated flush failed", e);
+          }
+        }
+      }, conflationPeriodMillis, conflationPeriodMillis, TimeUnit.MILLISECONDS);
+    } else {
+      _executor = null;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the underlying factory.
+   *
+   * @return the factory, not null
+   */
+  public MarketDataSenderFactory getUnderlying() {
+    return _underlying;
+  }
+
+  /**
+   * Gets the conflation period.
+   *
+   * @return the period in milliseconds, zero if only flushed on demand
+   */
+  public long getConflationPeriodMillis() {
+    return _conflationPeriodMillis;
+  }
+
+  /**
+   * Gets the overall conflation ratio, the number of updates received per message sent.
+   *
+   * @return the ratio, 1 if nothing has been sent yet
+   */
+  public double getConflationRatio() {
+    long sent = _numMessagesSent.get();
+    return sent == 0 ? 1d : (double) _numUpdatesReceived.get() / sent;
+  }
+
+  /**
+   * Gets the conflation ratio of each active distribution specification.
+   *
+   * @return the ratios keyed by specification, not null
+   */
+  public Map<DistributionSpecification, Double> getConflationRatios() {
+    Map<DistributionSpecification, Double> ratios = new HashMap<>();
+    for (ConflatingMarketDataSender sender : getActiveSenders()) {
+      ratios.put(sender.getDistributor().getDistributionSpec(), sender.getConflationRatio());
+    }
+    return ratios;
+  }
+
+  private Collection<ConflatingMarketDataSender> getActiveSenders() {
+    synchronized (_allActiveSenders) {
+      return new ArrayList<>(_allActiveSenders);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public void registerMetrics(MetricRegistry summaryRegistry, MetricRegistry detailRegistry, String namePrefix) {
+    summaryRegistry.register(namePrefix + ".conflationRatio", new Gauge<Double>() {
+      @Override
+      public Double getValue() {
+        return getConflationRatio();
+      }
+    });
+    _namePrefix = namePrefix;
+    _detailRegistry = detailRegistry;
+    for (ConflatingMarketDataSender sender : getActiveSenders()) {
+      registerMetrics(sender);
+    }
+  }
+
+  private void registerMetrics(ConflatingMarketDataSender sender) {
+    MetricRegistry registry = _detailRegistry;
+    if (registry == null) {
+      return;
+    }
+    final WeakReference<ConflatingMarketDataSender> ref = new WeakReference<>(sender);
+    String name = _namePrefix + ".conflationRatio." + sender.getDistributor().getDistributionSpec().getJmsTopic();
+    registry.remove(name);
+    registry.register(name, new Gauge<Double>() {
+      @Override
+      public Double getValue() {
+        ConflatingMarketDataSender sender = ref.get();
+        return sender != null ? sender.getConflationRatio() : Double.NaN;
+      }
+    });
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Collection<MarketDataSender> create(MarketDataDistributor distributor) {
+    Collection<MarketDataSender> underlyingSenders = _underlying.create(distributor);
+    if (underlyingSenders == null) {
+      throw new IllegalStateException("Null returned by " + _underlying);
+    }
+    Collection<MarketDataSender> senders = new ArrayList<>(underlyingSenders.size());
+    for (MarketDataSender underlyingSender : underlyingSenders) {
+      ConflatingMarketDataSender sender = new ConflatingMarketDataSender(underlyingSender, this);
+      synchronized (_allActiveSenders) {
+        _allActiveSenders.add(sender);
+      }
+      registerMetrics(sender);
+      senders.add(sender);
+    }
+    return senders;
+  }
+
+  /**
+   * Called by a sender when it first has updates pending since its last flush.
+   *
+   * @param sender  the sender, not null
+   */
+  /*package*/ void updatesPending(ConflatingMarketDataSender sender) {
+    _pendingSenders.add(sender);
+  }
+
+  /**
+   * Passes the pending updates of all senders to the underlying senders.
+   * <p>
+   * This is called once per conflation period, and may also be called when the
+   * consumers are ready for more data. Senders receiving further updates while
+   * the flush is in progress are flushed on the next call.
+   *
+   * @return the number of messages sent
+   */
+  public int flush() {
+    int sent = 0;
+    long updates = 0;
+    for (int i = _pendingSenders.size(); i > 0; i--) {
+      ConflatingMarketDataSender sender = _pendingSenders.poll();
+      if (sender == null) {
+        break;
+      }
+      int coalesced = sender.flush();
+      if (coalesced > 0) {
+        sent++;
+        updates += coalesced;
+      }
+    }
+    _numUpdatesReceived.addAndGet(updates);
+    _numMessagesSent.addAndGet(sent);
+    return sent;
+  }
+
+  /**
+   * Flushes any pending updates and stops the conflation timer.
+   */
+  public void shutdown() {
+    if (_executor != null) {
+      _executor.shutdown();
+    }
+    flush();
+  }
+
+}
@@ -21,6 +21,7 @@ import org.springframework.jms.core.MessageCreator;
 
 import com.opengamma.livedata.LiveDataValueUpdateBean;
 import com.opengamma.livedata.LiveDataValueUpdateBeanFudgeBuilder;
+import com.opengamma.livedata.msg.LiveDataUpdateEncoder;
 import com.opengamma.livedata.server.DistributionSpecification;
 import com.opengamma.livedata.server.FieldHistoryStore;
 import com.opengamma.util.ArgumentChecker;
@@ -32,6 +33,9 @@ import com.opengamma.util.jms.JmsConnector;
  * When the sender loses connection to JMS, it starts building a 
  * cumulative delta of changes. This cumulative delta is published when 
  * the sender reconnects.
+ * <p>
+ * Updates are sent as Fudge messages unless the sender has a {@link LiveDataUpdateEncoder},
+ * in which case only the changed fields are sent in its binary form.
  */
 public class JmsSender implements MarketDataSender {
 
@@ -50,6 +54,10 @@ public class JmsSender implements MarketDataSender {
    * The distributor.
    */
   private final MarketDataDistributor _distributor;
+  /**
+   * The binary encoder, null to send Fudge messages.
+   */
+  private final LiveDataUpdateEncoder _encoder;
   /**
    * The field value history.
    */
@@ -62,6 +70,10 @@ public class JmsSender implements MarketDataSender {
    * Whether the sender is interrupted.
    */
   private volatile boolean _interrupted;
+  /**
+   * Whether the encoder must forget the values it has sent, as they may not have been delivered.
+   */
+  private volatile boolean _resendAllFields;
   /**
    * The internal lock.
    */
@@ -75,12 +87,30 @@ public class JmsSender implements MarketDataSender {
    * @param fudgeContext  the Fudge context, not null
    */
   public JmsSender(JmsConnector jmsConnector, MarketDataDistributor distributor, FudgeContext fudgeContext) {
+    this(jmsConnector, distributor, fudgeContext, null);
+  }
+
+  /**
+   * Creates an instance.
+   * <p>
+   * The encoder must be self-contained, as subscribers may start listening at any time.
+   * 
+   * @param jmsConnector  the JMS connector, not null
+   * @param distributor  the distributor, not null
+   * @param fudgeContext  the Fudge context, not null
+   * @param encoder  the binary encoder, null to send Fudge messages
+   */
+  public JmsSender(JmsConnector jmsConnector, MarketDataDistributor distributor, FudgeContext fudgeContext, LiveDataUpdateEncoder encoder) {
     ArgumentChecker.notNull(jmsConnector, "jmsConnector");
     ArgumentChecker.notNull(distributor, "Market data distributor");
     ArgumentChecker.notNull(fudgeContext, "fudgeContext");
     _jmsConnector = jmsConnector;
     _fudgeContext = fudgeContext;
     _distributor = distributor;
+    if (encoder != null) {
+      ArgumentChecker.isTrue(encoder.isSelfContained(), "JMS encoder must be self-contained");
+    }
+    _encoder = encoder;
   }
 
   //-------------------------------------------------------------------------
@@ -117,19 +147,41 @@ public class JmsSender implements MarketDataSender {
         _cumulativeDelta.getLastKnownValues());
     s_logger.debug("{}: Sending Live Data update {}", this, liveDataValueUpdateBean);
     
-    FudgeMsg fudgeMsg = LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(_fudgeContext), liveDataValueUpdateBean);
+    final byte[] bytes;
+    if (_encoder != null) {
+      if (_resendAllFields) {
+        _resendAllFields = false;
+        _encoder.forget(liveDataValueUpdateBean.getSpecification());
+      }
+      bytes = _encoder.encode(liveDataValueUpdateBean);
+      if (bytes == null) {
+        s_logger.debug("{}: No fields changed - not sending message", this);
+        _cumulativeDelta.clear();
+        return;
+      }
+    } else {
+      FudgeMsg fudgeMsg = LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(_fudgeContext), liveDataValueUpdateBean);
+      bytes = _fudgeContext.toByteArray(fudgeMsg);
+    }
     String destinationName = distributionSpec.getJmsTopic();
-    final byte[] bytes = _fudgeContext.toByteArray(fudgeMsg);
     
-    _jmsConnector.getJmsTemplateTopic().send(destinationName, new MessageCreator() {
-      @Override
-      public Message createMessage(Session session) throws JMSException {
-        // TODO kirk 2009-10-30 -- We want to put stuff in the properties as well I think.
-        BytesMessage bytesMessage = session.createBytesMessage();
-        bytesMessage.writeBytes(bytes);
-        return bytesMessage;
+    try {
+      _jmsConnector.getJmsTemplateTopic().send(destinationName, new MessageCreator() {
+        @Override
+        public Message createMessage(Session session) throws JMSException {
+          // TODO kirk 2009-10-30 -- We want to put stuff in the properties as well I think.
+          BytesMessage bytesMessage = session.createBytesMessage();
+          bytesMessage.writeBytes(bytes);
+          return bytesMessage;
+        }
+      });
+    } catch (RuntimeException ex) {
+      // the encoder has recorded fields that were not sent, the cumulative delta is kept for the retry
+      if (_encoder != null) {
+        _encoder.forget(liveDataValueUpdateBean.getSpecification());
       }
-    });
+      throw ex;
+    }
     
     _cumulativeDelta.clear();
   }
@@ -146,10 +198,14 @@ public class JmsSender implements MarketDataSender {
 
   /**
    * Indicates that the transport was interrupted, setting the flag.
+   * <p>
+   * Messages sent just before the interruption may have been lost, so the
+   * next message sent in binary form carries all the fields again.
    */
   public void transportInterrupted() {
     s_logger.error("Transport interrupted {}", this);
     _interrupted = true;
+    _resendAllFields = true;
   }
 
   /**
@@ -18,6 +18,7 @@ import org.fudgemsg.FudgeContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.livedata.msg.LiveDataUpdateEncoder;
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.jms.JmsConnector;
 
@@ -42,6 +43,10 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
    * The Fudge context.
    */
   private FudgeContext _fudgeContext;
+  /**
+   * Whether updates are sent in the binary form of {@link LiveDataUpdateEncoder}.
+   */
+  private boolean _binaryEncoding;
   /**
    * The executor.
    */
@@ -105,6 +110,27 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
     _fudgeContext = fudgeContext;
   }
 
+  /**
+   * Checks if updates are sent in the binary form of {@link LiveDataUpdateEncoder}.
+   * 
+   * @return true if binary, false if Fudge
+   */
+  public boolean isBinaryEncoding() {
+    return _binaryEncoding;
+  }
+
+  /**
+   * Sets whether updates are sent in the binary form of {@link LiveDataUpdateEncoder}.
+   * <p>
+   * Only clients able to decode the binary form, such as {@code JmsLiveDataClient}, should
+   * subscribe to a server with binary encoding enabled.
+   * 
+   * @param binaryEncoding  true for binary, false for Fudge
+   */
+  public void setBinaryEncoding(boolean binaryEncoding) {
+    _binaryEncoding = binaryEncoding;
+  }
+
   //-------------------------------------------------------------------------
   public synchronized void transportInterrupted() {
     s_logger.warn("JMS transport interrupted; notifying {} senders", _allActiveSenders.size());
@@ -133,7 +159,8 @@ public class JmsSenderFactory implements MarketDataSenderFactory {
   @Override
   public synchronized Collection<MarketDataSender> create(MarketDataDistributor distributor) {
     s_logger.debug("Created JmsSender for {}", distributor);
-    JmsSender sender = new JmsSender(_jmsConnector, distributor, getFudgeContext());
+    LiveDataUpdateEncoder encoder = isBinaryEncoding() ? new LiveDataUpdateEncoder(getFudgeContext(), true) : null;
+    JmsSender sender = new JmsSender(_jmsConnector, distributor, getFudgeContext(), encoder);
     _allActiveSenders.add(sender);
     return Collections.<MarketDataSender>singleton(sender);
   }
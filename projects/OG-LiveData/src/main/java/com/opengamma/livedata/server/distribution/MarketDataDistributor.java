@@ -212,7 +212,21 @@ public class MarketDataDistributor {
    * 
    * @param liveDataFields Unnormalized market data from underlying market data API.
    */
-  public synchronized void distributeLiveData(FudgeMsg liveDataFields) {
+  public void distributeLiveData(FudgeMsg liveDataFields) {
+    distributeLiveData(liveDataFields, null);
+  }
+
+  /**
+   * Normalizes market data and either sends it to field receivers or
+   * adds it to a batch to be sent later.
+   * <p>
+   * When a batch is used, the caller is responsible for flushing it and for
+   * ensuring that batches for the same topic are flushed in order.
+   * 
+   * @param liveDataFields Unnormalized market data from underlying market data API.
+   * @param batch  the batch to add the normalized update to, null to send immediately
+   */
+  public synchronized void distributeLiveData(FudgeMsg liveDataFields, MarketDataSendBatch batch) {
     FudgeMsg normalizedMsg;
     try {
       normalizedMsg = normalize(liveDataFields);
@@ -232,6 +246,10 @@ public class MarketDataDistributor {
       s_logger.debug("{}: Sending Live Data update {}", this, data);
       
       for (MarketDataSender sender : _marketDataSenders) {
+        if (batch != null) {
+          batch.add(sender, data);
+          continue;
+        }
         try {
           sender.sendMarketData(data);
         } catch (RuntimeException e) {
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Collects normalized updates so that they can be handed to the market data senders
+ * in one go, outside the distributor locks.
+ * <p>
+ * Updates are sent in the order they were added. This class is not thread-safe and
+ * is intended to be owned by a single distribution thread.
+ */
+public class MarketDataSendBatch {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(MarketDataSendBatch.class);
+
+  /**
+   * The senders of the pending updates.
+   */
+  private final List<MarketDataSender> _senders = new ArrayList<>();
+  /**
+   * The pending updates.
+   */
+  private final List<LiveDataValueUpdateBean> _updates = new ArrayList<>();
+
+  /**
+   * Adds an update to the batch.
+   *
+   * @param sender  the sender to send the update with, not null
+   * @param update  the normalized update, not null
+   */
+  public void add(MarketDataSender sender, LiveDataValueUpdateBean update) {
+    ArgumentChecker.notNull(sender, "sender");
+    ArgumentChecker.notNull(update, "update");
+    _senders.add(sender);
+    _updates.add(update);
+  }
+
+  /**
+   * Gets the number of pending updates.
+   *
+   * @return the number of updates
+   */
+  public int size() {
+    return _updates.size();
+  }
+
+  /**
+   * Sends all the pending updates and empties the batch.
+   * <p>
+   * A failing sender is logged and does not prevent the other updates being sent.
+   *
+   * @return the number of updates sent
+   */
+  public int flush() {
+    int count = _updates.size();
+    for (int i = 0; i < count; i++) {
+      MarketDataSender sender = _senders.get(i);
+      try {
+        sender.sendMarketData(_updates.get(i));
+      } catch (RuntimeException e) {
+        s_logger.error(sender + " failed", e);
+      }
+    }
+    _senders.clear();
+    _updates.clear();
+    return count;
+  }
+
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.replay;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.firehose.RecordProcessor;
+import com.opengamma.livedata.normalization.StandardRules;
+import com.opengamma.livedata.server.distribution.MarketDataDistributor;
+import com.opengamma.livedata.server.distribution.MarketDataSender;
+import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Appends market data ticks to a binary log that can be replayed by {@link MarketDataReplayer}.
+ * <p>
+ * As a {@link MarketDataSenderFactory}, typically combined with the usual senders of a
+ * server by {@link com.opengamma.livedata.server.distribution.CompositeMarketDataSenderFactory},
+ * the recorder captures the normalized updates distributed by the server. A security
+ * subscribed to under several normalization rule sets has a distributor for each, so only
+ * the distributor of one rule set, the OpenGamma rules by default, is recorded and each
+ * tick is recorded once. As a {@link RecordProcessor}, the recorder captures the ticks of
+ * any other source, such as {@link SyntheticTickGenerator}.
+ * <p>
+ * Each record of the log is:
+ * <pre>
+ *  byte    record marker
+ *  long    time received, in nanoseconds from the epoch
+ *  UTF     security unique identifier
+ *  int     length of the fields, followed by the fields as a Fudge envelope
+ * </pre>
+ * The log has no header, so an existing log may be extended by recording to it again.
+ * Records are buffered, and are only guaranteed to be in the log after {@link #flush()}
+ * or {@link #close()}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class MarketDataRecorder implements MarketDataSenderFactory, RecordProcessor<RecordedTick>, Closeable {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(MarketDataRecorder.class);
+
+  /**
+   * The first byte of each record.
+   */
+  /*package*/ static final byte RECORD_MARKER = (byte) 0xA7;
+
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _fudgeContext;
+  /**
+   * The log, guarded by this.
+   */
+  private final DataOutputStream _output;
+  /**
+   * The normalization rule set of the distributors recorded.
+   */
+  private volatile String _normalizationRuleSetId = StandardRules.getOpenGammaRuleSetId();
+  /**
+   * The number of ticks recorded, guarded by this.
+   */
+  private long _numRecorded;
+  /**
+   * Whether the log has been closed, guarded by this.
+   */
+  private boolean _closed;
+
+  /**
+   * Creates an instance appending to a file, which is created if it does not exist.
+   *
+   * @param file  the log file, not null
+   * @param fudgeContext  the Fudge context, not null
+   */
+  public MarketDataRecorder(File file, FudgeContext fudgeContext) {
+    this(openForAppend(file), fudgeContext);
+    s_logger.info("Recording market data to {}", file.getAbsolutePath());
+  }
+
+  /**
+   * Creates an instance writing to a stream.
+   *
+   * @param output  the log, not null
+   * @param fudgeContext  the Fudge context, not null
+   */
+  public MarketDataRecorder(OutputStream output, FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(output, "output");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _output = new DataOutputStream(new BufferedOutputStream(output));
+    _fudgeContext = fudgeContext;
+  }
+
+  private static OutputStream openForAppend(File file) {
+    ArgumentChecker.notNull(file, "file");
+    try {
+      return new FileOutputStream(file, true);
+    } catch (FileNotFoundException ex) {
+      throw new OpenGammaRuntimeException("Unable to open market data log " + file.getAbsolutePath(), ex);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the normalization rule set of the distributors recorded.
+   *
+   * @return the rule set identifier, not null
+   */
+  public String getNormalizationRuleSetId() {
+    return _normalizationRuleSetId;
+  }
+
+  /**
+   * Sets the normalization rule set of the distributors recorded.
+   * Only distributors created after this is set are affected.
+   *
+   * @param normalizationRuleSetId  the rule set identifier, not null
+   */
+  public void setNormalizationRuleSetId(String normalizationRuleSetId) {
+    ArgumentChecker.notNull(normalizationRuleSetId, "normalizationRuleSetId");
+    _normalizationRuleSetId = normalizationRuleSetId;
+  }
+
+  /**
+   * Gets the number of ticks recorded.
+   *
+   * @return the number of ticks
+   */
+  public synchronized long getNumRecorded() {
+    return _numRecorded;
+  }
+
+  /**
+   * Records a tick received now.
+   *
+   * @param securityUniqueId  the unique identifier of the security, not null
+   * @param fields  the fields of the tick, not null
+   */
+  public void record(String securityUniqueId, FudgeMsg fields) {
+    process(RecordedTick.now(securityUniqueId, fields));
+  }
+
+  /**
+   * Records a tick.
+   *
+   * @param tick  the tick, not null
+   */
+  @Override
+  public void process(RecordedTick tick) {
+    ArgumentChecker.notNull(tick, "tick");
+    byte[] fields = _fudgeContext.toByteArray(tick.getFields());
+    synchronized (this) {
+      if (_closed) {
+        s_logger.debug("Market data log closed, not recording {}", tick);
+        return;
+      }
+      try {
+        _output.writeByte(RECORD_MARKER);
+        _output.writeLong(tick.getTimestamp());
+        _output.writeUTF(tick.getSecurityUniqueId());
+        _output.writeInt(fields.length);
+        _output.write(fields);
+      } catch (IOException ex) {
+        throw new OpenGammaRuntimeException("Unable to record " + tick, ex);
+      }
+      _numRecorded++;
+    }
+  }
+
+  /**
+   * Writes any buffered records to the log.
+   */
+  public synchronized void flush() {
+    if (_closed) {
+      return;
+    }
+    try {
+      _output.flush();
+    } catch (IOException ex) {
+      throw new OpenGammaRuntimeException("Unable to flush market data log", ex);
+    }
+  }
+
+  /**
+   * Writes any buffered records and closes the log.
+   * Ticks received after closing are discarded.
+   */
+  @Override
+  public synchronized void close() {
+    if (_closed) {
+      return;
+    }
+    _closed = true;
+    try {
+      _output.close();
+    } catch (IOException ex) {
+      throw new OpenGammaRuntimeException("Unable to close market data log", ex);
+    }
+    s_logger.info("Closed market data log after recording {} ticks", _numRecorded);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Collection<MarketDataSender> create(final MarketDataDistributor distributor) {
+    String ruleSetId = distributor.getDistributionSpec().getNormalizationRuleSet().getId();
+    if (!ruleSetId.equals(_normalizationRuleSetId)) {
+      return Collections.emptySet();
+    }
+    return Collections.<MarketDataSender>singleton(new MarketDataSender() {
+      @Override
+      public void sendMarketData(LiveDataValueUpdateBean data) {
+        record(distributor.getSubscription().getSecurityUniqueId(), data.getFields());
+      }
+
+      @Override
+      public MarketDataDistributor getDistributor() {
+        return distributor;
+      }
+    });
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "MarketDataRecorder[" + getNumRecorded() + " ticks]";
+  }
+
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.replay;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.livedata.firehose.RecordProcessor;
+import com.opengamma.livedata.firehose.RecordStream;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Passes recorded ticks to a target, such as {@link ReplayLiveDataServer}, at the pace
+ * they were recorded, scaled by a speed factor.
+ * <p>
+ * The schedule is anchored at the first tick replayed, so each tick is released at the
+ * same offset from the first, divided by the speed, as it was recorded, and timing errors
+ * do not accumulate. When the target cannot keep up, ticks are passed on as fast as it
+ * accepts them and the lag is reported by {@link #getMaxLagNanos()}. A tick older than
+ * its predecessor, such as when a log is replayed again from the start, restarts the
+ * schedule.
+ * <p>
+ * A log may be replayed once with {@link #replay(RecordStream)}, or continuously by a
+ * {@link com.opengamma.livedata.firehose.FireHoseRecordProcessor} reading it with
+ * {@link RecordedTickStream.Factory} and dispatching to this replayer.
+ * <p>
+ * This class must only be called by one thread at a time.
+ */
+public class MarketDataReplayer implements RecordProcessor<RecordedTick> {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(MarketDataReplayer.class);
+
+  /**
+   * The speed at which ticks are replayed without any delay.
+   */
+  public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+  /**
+   * The time before a tick is due at which the replayer stops parking and yields until it is due.
+   */
+  private static final long SPIN_NANOS = 50000L;
+
+  /**
+   * The target of the ticks.
+   */
+  private final RecordProcessor<RecordedTick> _target;
+  /**
+   * The speed, as a multiple of the recorded pace.
+   */
+  private final double _speed;
+  /**
+   * The longest recorded interval between ticks that is replayed in nanoseconds, zero if not limited.
+   */
+  private volatile long _maxGapNanos;
+  /**
+   * Whether the schedule has been anchored.
+   */
+  private boolean _started;
+  /**
+   * The timestamp of the tick anchoring the schedule.
+   */
+  private long _firstTimestamp;
+  /**
+   * The nano time at which the tick anchoring the schedule was released.
+   */
+  private long _startNanos;
+  /**
+   * The timestamp of the last tick replayed.
+   */
+  private long _lastTimestamp;
+  /**
+   * The number of ticks replayed.
+   */
+  private final AtomicLong _numReplayed = new AtomicLong();
+  /**
+   * The longest time a tick has been released after it was due.
+   */
+  private volatile long _maxLagNanos;
+
+  /**
+   * Creates an instance replaying at the recorded pace.
+   *
+   * @param target  the target of the ticks, not null
+   */
+  public MarketDataReplayer(RecordProcessor<RecordedTick> target) {
+    this(target, 1d);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param target  the target of the ticks, not null
+   * @param speed  the speed as a multiple of the recorded pace, {@link #MAX_SPEED} to replay without delay
+   */
+  public MarketDataReplayer(RecordProcessor<RecordedTick> target, double speed) {
+    ArgumentChecker.notNull(target, "target");
+    ArgumentChecker.isTrue(speed > 0, "Speed must be positive, was {}", speed);
+    _target = target;
+    _speed = speed;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the speed.
+   *
+   * @return the speed as a multiple of the recorded pace
+   */
+  public double getSpeed() {
+    return _speed;
+  }
+
+  /**
+   * Gets the longest recorded interval between ticks that is replayed.
+   *
+   * @return the interval in milliseconds, zero if not limited
+   */
+  public long getMaxGapMillis() {
+    return _maxGapNanos / 1000000L;
+  }
+
+  /**
+   * Sets the longest recorded interval between ticks that is replayed.
+   * Longer intervals are shortened to this before the speed is applied.
+   *
+   * @param maxGapMillis  the interval in milliseconds, zero to not limit it
+   */
+  public void setMaxGapMillis(long maxGapMillis) {
+    ArgumentChecker.notNegative(maxGapMillis, "maxGapMillis");
+    _maxGapNanos = maxGapMillis * 1000000L;
+  }
+
+  /**
+   * Gets the number of ticks replayed.
+   *
+   * @return the number of ticks
+   */
+  public long getNumReplayed() {
+    return _numReplayed.get();
+  }
+
+  /**
+   * Gets the longest time a tick has been released after it was due.
+   *
+   * @return the lag in nanoseconds
+   */
+  public long getMaxLagNanos() {
+    return _maxLagNanos;
+  }
+
+  /**
+   * Restarts the schedule, so the next tick is released immediately.
+   */
+  public void reset() {
+    _started = false;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Replays all the ticks in a stream, returning when the end of the stream is reached.
+   *
+   * @param stream  the stream, not null
+   * @return the number of ticks replayed
+   */
+  public long replay(RecordStream<RecordedTick> stream) {
+    ArgumentChecker.notNull(stream, "stream");
+    long count = 0;
+    while (true) {
+      RecordedTick tick;
+      try {
+        tick = stream.readRecord();
+      } catch (EOFException ex) {
+        break;
+      } catch (IOException ex) {
+        throw new OpenGammaRuntimeException("Unable to read market data log", ex);
+      }
+      process(tick);
+      count++;
+    }
+    s_logger.info("Replayed {} ticks at speed {}", count, _speed);
+    return count;
+  }
+
+  /**
+   * Passes a tick to the target when it is due.
+   *
+   * @param tick  the tick, not null
+   */
+  @Override
+  public void process(RecordedTick tick) {
+    ArgumentChecker.notNull(tick, "tick");
+    if (_speed != MAX_SPEED) {
+      awaitDue(tick.getTimestamp());
+    }
+    _target.process(tick);
+    _numReplayed.incrementAndGet();
+  }
+
+  private void awaitDue(long timestamp) {
+    long now = nanoTime();
+    if (!_started || timestamp < _lastTimestamp) {
+      _started = true;
+      _firstTimestamp = timestamp;
+      _startNanos = now;
+    } else {
+      long gap = timestamp - _lastTimestamp;
+      long maxGap = _maxGapNanos;
+      if (maxGap > 0 && gap > maxGap) {
+        _firstTimestamp += gap - maxGap;
+      }
+    }
+    _lastTimestamp = timestamp;
+    long due = _startNanos + (long) ((timestamp - _firstTimestamp) / _speed);
+    long remaining = due - now;
+    if (remaining < 0) {
+      if (-remaining > _maxLagNanos) {
+        _maxLagNanos = -remaining;
+      }
+      return;
+    }
+    while (remaining > 0) {
+      waitNanos(remaining);
+      remaining = due - nanoTime();
+    }
+  }
+
+  /**
+   * Reads the clock the ticks are scheduled by.
+   * Tests replace the clock by overriding this and {@link #waitNanos(long)}.
+   *
+   * @return the time in nanoseconds, from an arbitrary origin
+   */
+  /*package*/ long nanoTime() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Waits for up to the given time, parking the thread until shortly before it ends.
+   *
+   * @param nanos  the time to wait in nanoseconds, greater than zero
+   */
+  /*package*/ void waitNanos(long nanos) {
+    if (nanos > SPIN_NANOS) {
+      LockSupport.parkNanos(nanos - SPIN_NANOS);
+    } else {
+      Thread.yield();
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "MarketDataReplayer[" + _target + ", speed " + _speed + "]";
+  }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.replay;
+
+import org.fudgemsg.FudgeMsg;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A market data tick for a security, with the time it was received.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class RecordedTick {
+
+  /**
+   * The wall clock time, in milliseconds, at which the nanosecond clock was read.
+   */
+  private static final long CLOCK_BASE_MILLIS = System.currentTimeMillis();
+  /**
+   * The nanosecond clock reading corresponding to {@link #CLOCK_BASE_MILLIS}.
+   */
+  private static final long CLOCK_BASE_NANOS = System.nanoTime();
+
+  /**
+   * The time the tick was received, in nanoseconds from the epoch.
+   */
+  private final long _timestamp;
+  /**
+   * The unique identifier of the security.
+   */
+  private final String _securityUniqueId;
+  /**
+   * The fields of the tick.
+   */
+  private final FudgeMsg _fields;
+
+  /**
+   * Creates an instance.
+   *
+   * @param timestamp  the time the tick was received, in nanoseconds from the epoch
+   * @param securityUniqueId  the unique identifier of the security, not null
+   * @param fields  the fields of the tick, not null
+   */
+  public RecordedTick(long timestamp, String securityUniqueId, FudgeMsg fields) {
+    ArgumentChecker.notNull(securityUniqueId, "securityUniqueId");
+    ArgumentChecker.notNull(fields, "fields");
+    _timestamp = timestamp;
+    _securityUniqueId = securityUniqueId;
+    _fields = fields;
+  }
+
+  /**
+   * Creates an instance received now.
+   *
+   * @param securityUniqueId  the unique identifier of the security, not null
+   * @param fields  the fields of the tick, not null
+   * @return the tick, not null
+   */
+  public static RecordedTick now(String securityUniqueId, FudgeMsg fields) {
+    return new RecordedTick(currentTimeNanos(), securityUniqueId, fields);
+  }
+
+  /**
+   * Gets the current time in nanoseconds from the epoch.
+   * <p>
+   * The time is derived from {@link System#nanoTime()}, so the interval between two
+   * readings is accurate to the resolution of that clock.
+   *
+   * @return the time
+   */
+  public static long currentTimeNanos() {
+    return CLOCK_BASE_MILLIS * 1000000L + (System.nanoTime() - CLOCK_BASE_NANOS);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the time the tick was received.
+   *
+   * @return the time in nanoseconds from the epoch
+   */
+  public long getTimestamp() {
+    return _timestamp;
+  }
+
+  /**
+   * Gets the unique identifier of the security.
+   *
+   * @return the identifier, not null
+   */
+  public String getSecurityUniqueId() {
+    return _securityUniqueId;
+  }
+
+  /**
+   * Gets the fields of the tick.
+   *
+   * @return the fields, not null
+   */
+  public FudgeMsg getFields() {
+    return _fields;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "RecordedTick[" + _timestamp + ", " + _securityUniqueId + ", " + _fields + "]";
+  }
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.replay;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.fudgemsg.FudgeContext;
+
+import com.opengamma.livedata.firehose.RecordStream;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Reads the ticks written to a market data log by {@link MarketDataRecorder}.
+ * <p>
+ * The end of the log is signalled by {@link java.io.EOFException}, as expected by
+ * {@link com.opengamma.livedata.firehose.RecordConsumptionJob}.
+ */
+public class RecordedTickStream implements RecordStream<RecordedTick> {
+
+  /**
+   * Factory for streams reading market data logs.
+   */
+  public static class Factory implements RecordStream.Factory<RecordedTick> {
+
+    private final FudgeContext _fudgeContext;
+
+    /**
+     * Creates an instance.
+     *
+     * @param fudgeContext  the Fudge context, not null
+     */
+    public Factory(FudgeContext fudgeContext) {
+      ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+      _fudgeContext = fudgeContext;
+    }
+
+    @Override
+    public RecordStream<RecordedTick> newInstance(InputStream input) {
+      return new RecordedTickStream(input, _fudgeContext);
+    }
+
+  }
+
+  /**
+   * The input.
+   */
+  private final DataInputStream _input;
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _fudgeContext;
+
+  /**
+   * Creates an instance.
+   *
+   * @param input  the log, not null
+   * @param fudgeContext  the Fudge context, not null
+   */
+  public RecordedTickStream(InputStream input, FudgeContext fudgeContext) {
+    ArgumentChecker.notNull(input, "input");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _input = new DataInputStream(input);
+    _fudgeContext = fudgeContext;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public RecordedTick readRecord() throws IOException {
+    byte marker = _input.readByte();
+    if (marker != MarketDataRecorder.RECORD_MARKER) {
+      throw new IOException("Corrupt market data log, found " + marker + " at the start of a record");
+    }
+    long timestamp = _input.readLong();
+    String securityUniqueId = _input.readUTF();
+    byte[] fields = new byte[_input.readInt()];
+    _input.readFully(fields);
+    return new RecordedTick(timestamp, securityUniqueId, _fudgeContext.deserialize(fields).getMessage());
+  }
+
+}
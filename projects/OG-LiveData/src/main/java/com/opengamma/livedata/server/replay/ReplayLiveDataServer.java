@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.replay;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sf.ehcache.CacheManager;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.livedata.firehose.RecordProcessor;
+import com.opengamma.livedata.normalization.StandardRules;
+import com.opengamma.livedata.server.StandardLiveDataServer;
+import com.opengamma.livedata.server.Subscription;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A LiveData server fed by recorded or synthetic ticks instead of a market data provider.
+ * <p>
+ * The ticks are passed to the server as a {@link RecordProcessor}, typically by
+ * {@link MarketDataReplayer} or {@link SyntheticTickGenerator}. Every subscription in the
+ * server's scheme is accepted, and ticks for securities without a subscription are
+ * retained for snapshots but not distributed.
+ * <p>
+ * The default normalization leaves the fields unchanged, as recorded ticks were normalized
+ * when they were captured.
+ */
+public class ReplayLiveDataServer extends StandardLiveDataServer implements RecordProcessor<RecordedTick> {
+
+  /**
+   * The scheme of the security unique identifiers.
+   */
+  private final ExternalScheme _uniqueIdDomain;
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _fudgeContext;
+  /**
+   * The fields of the last tick for each security.
+   */
+  private final ConcurrentMap<String, FudgeMsg> _lastValues = new ConcurrentHashMap<>();
+
+  /**
+   * Creates an instance.
+   *
+   * @param uniqueIdDomain  the scheme of the security unique identifiers, not null
+   * @param fudgeContext  the Fudge context, not null
+   * @param cacheManager  the cache manager, not null
+   */
+  public ReplayLiveDataServer(ExternalScheme uniqueIdDomain, FudgeContext fudgeContext, CacheManager cacheManager) {
+    super(cacheManager);
+    ArgumentChecker.notNull(uniqueIdDomain, "uniqueIdDomain");
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    _uniqueIdDomain = uniqueIdDomain;
+    _fudgeContext = fudgeContext;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Receives a tick, distributing it if the security is subscribed to.
+   *
+   * @param tick  the tick, not null
+   */
+  @Override
+  public void process(RecordedTick tick) {
+    String securityUniqueId = tick.getSecurityUniqueId();
+    _lastValues.put(securityUniqueId, tick.getFields());
+    if (getSubscription(securityUniqueId) != null) {
+      liveDataReceived(securityUniqueId, tick.getFields());
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public ExternalScheme getUniqueIdDomain() {
+    return _uniqueIdDomain;
+  }
+
+  @Override
+  public String getDefaultNormalizationRuleSetId() {
+    return StandardRules.getNoNormalization().getId();
+  }
+
+  @Override
+  protected Map<String, Object> doSubscribe(Collection<String> uniqueIds) {
+    Map<String, Object> handles = new HashMap<>();
+    for (String uniqueId : uniqueIds) {
+      handles.put(uniqueId, uniqueId);
+    }
+    return handles;
+  }
+
+  @Override
+  protected void doUnsubscribe(Collection<Object> subscriptionHandles) {
+    // nothing to release
+  }
+
+  @Override
+  protected Map<String, FudgeMsg> doSnapshot(Collection<String> uniqueIds) {
+    Map<String, FudgeMsg> snapshots = new HashMap<>();
+    for (String uniqueId : uniqueIds) {
+      FudgeMsg fields = _lastValues.get(uniqueId);
+      snapshots.put(uniqueId, fields != null ? fields : _fudgeContext.newMessage());
+    }
+    return snapshots;
+  }
+
+  @Override
+  protected boolean snapshotOnSubscriptionStartRequired(Subscription subscription) {
+    return _lastValues.containsKey(subscription.getSecurityUniqueId());
+  }
+
+  @Override
+  protected void doConnect() {
+    // the ticks are pushed to the server
+  }
+
+  @Override
+  protected void doDisconnect() {
+    // the ticks are pushed to the server
+  }
+
+}
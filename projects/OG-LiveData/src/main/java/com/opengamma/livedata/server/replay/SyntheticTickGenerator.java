@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.replay;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.MutableFudgeMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.Lifecycle;
+
+import com.opengamma.core.value.MarketDataRequirementNames;
+import com.opengamma.livedata.firehose.RecordProcessor;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Generates ticks for a number of securities at a steady total rate.
+ * <p>
+ * Each tick is for a security chosen at random, and moves its price by a random walk,
+ * carrying the last, bid and ask prices and the cumulative volume. The securities are
+ * identified by a prefix followed by their index, so they can be subscribed to through
+ * {@link ReplayLiveDataServer}. The sequence of ticks is the same on every run.
+ * <p>
+ * When started, the ticks are generated on a thread of their own. When the target cannot
+ * keep up with the rate, the ticks are generated as fast as it accepts them until the
+ * generator has caught up. The ticks can also be recorded with {@link MarketDataRecorder},
+ * so the same volume can be replayed later.
+ */
+public class SyntheticTickGenerator implements Lifecycle {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(SyntheticTickGenerator.class);
+
+  /**
+   * The seed of the random numbers, fixed so the ticks are reproducible.
+   */
+  private static final long SEED = 0x5EED;
+  /**
+   * The standard deviation of the relative price move of each tick.
+   */
+  private static final double VOLATILITY = 0.0005;
+  /**
+   * The bid-ask spread, relative to the price.
+   */
+  private static final double SPREAD = 0.0002;
+
+  /**
+   * The Fudge context.
+   */
+  private final FudgeContext _fudgeContext;
+  /**
+   * The target of the ticks.
+   */
+  private final RecordProcessor<RecordedTick> _target;
+  /**
+   * The prefix of the security identifiers.
+   */
+  private final String _idPrefix;
+  /**
+   * The interval between ticks in nanoseconds, zero for no delay.
+   */
+  private final double _intervalNanos;
+  /**
+   * The random numbers.
+   */
+  private final Random _random = new Random(SEED);
+  /**
+   * The last price of each security.
+   */
+  private final double[] _prices;
+  /**
+   * The cumulative volume of each security.
+   */
+  private final double[] _volumes;
+  /**
+   * The number of ticks generated.
+   */
+  private volatile long _numGenerated;
+  /**
+   * Whether the generator should keep running.
+   */
+  private volatile boolean _running;
+  /**
+   * The thread generating the ticks, null if not started.
+   */
+  private Thread _thread;
+
+  /**
+   * Creates an instance.
+   *
+   * @param fudgeContext  the Fudge context, not null
+   * @param target  the target of the ticks, not null
+   * @param idPrefix  the prefix of the security unique identifiers, not null
+   * @param numSecurities  the number of securities, greater than zero
+   * @param ticksPerSecond  the total number of ticks per second, {@link Double#POSITIVE_INFINITY} for no delay
+   */
+  public SyntheticTickGenerator(FudgeContext fudgeContext, RecordProcessor<RecordedTick> target, String idPrefix,
+      int numSecurities, double ticksPerSecond) {
+    ArgumentChecker.notNull(fudgeContext, "fudgeContext");
+    ArgumentChecker.notNull(target, "target");
+    ArgumentChecker.notNull(idPrefix, "idPrefix");
+    ArgumentChecker.notNegativeOrZero(numSecurities, "numSecurities");
+    ArgumentChecker.isTrue(ticksPerSecond > 0, "Ticks per second must be positive, was {}", ticksPerSecond);
+    _fudgeContext = fudgeContext;
+    _target = target;
+    _idPrefix = idPrefix;
+    _intervalNanos = 1e9 / ticksPerSecond;
+    _prices = new double[numSecurities];
+    _volumes = new double[numSecurities];
+    for (int i = 0; i < numSecurities; i++) {
+      _prices[i] = 10d + _random.nextInt(9000) / 100d;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of securities.
+   *
+   * @return the number of securities
+   */
+  public int getNumSecurities() {
+    return _prices.length;
+  }
+
+  /**
+   * Gets the unique identifier of a security.
+   *
+   * @param index  the index of the security, from zero
+   * @return the identifier, not null
+   */
+  public String getSecurityUniqueId(int index) {
+    return _idPrefix + index;
+  }
+
+  /**
+   * Gets the number of ticks generated.
+   *
+   * @return the number of ticks
+   */
+  public long getNumGenerated() {
+    return _numGenerated;
+  }
+
+  /**
+   * Generates the next tick without passing it to the target.
+   * This must not be called while the generator is running.
+   *
+   * @return the tick, not null
+   */
+  public RecordedTick nextTick() {
+    int index = _random.nextInt(_prices.length);
+    double price = _prices[index] * Math.exp(VOLATILITY * _random.nextGaussian());
+    double volume = _volumes[index] + 100 * (1 + _random.nextInt(10));
+    _prices[index] = price;
+    _volumes[index] = volume;
+    MutableFudgeMsg fields = _fudgeContext.newMessage();
+    fields.add(MarketDataRequirementNames.LAST, price);
+    fields.add(MarketDataRequirementNames.BID, price * (1 - SPREAD / 2));
+    fields.add(MarketDataRequirementNames.ASK, price * (1 + SPREAD / 2));
+    fields.add(MarketDataRequirementNames.VOLUME, volume);
+    _numGenerated++;
+    return RecordedTick.now(getSecurityUniqueId(index), fields);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public synchronized void start() {
+    if (isRunning()) {
+      return;
+    }
+    _running = true;
+    _thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        generate();
+      }
+    }, "SyntheticTickGenerator");
+    _thread.setDaemon(true);
+    _thread.start();
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (_thread == null) {
+      return;
+    }
+    _running = false;
+    try {
+      _thread.join(10000L);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      s_logger.warn("Interrupted while stopping synthetic tick generator", e);
+    }
+    _thread = null;
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return _thread != null && _thread.isAlive();
+  }
+
+  private void generate() {
+    s_logger.info("Generating ticks for {} securities every {}ns", _prices.length, _intervalNanos);
+    long start = System.nanoTime();
+    long count = 0;
+    while (_running) {
+      if (_intervalNanos > 0) {
+        long remaining = start + (long) (count * _intervalNanos) - System.nanoTime();
+        if (remaining > 0) {
+          LockSupport.parkNanos(remaining);
+          continue;
+        }
+      }
+      try {
+        _target.process(nextTick());
+      } catch (RuntimeException e) {
+        s_logger.error("Unable to process synthetic tick", e);
+      }
+      count++;
+    }
+    s_logger.info("Generated {} ticks", count);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public String toString() {
+    return "SyntheticTickGenerator[" + _prices.length + " securities, " + _idPrefix + "]";
+  }
+
+}
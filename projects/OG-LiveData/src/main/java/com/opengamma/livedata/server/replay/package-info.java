@@ -0,0 +1,11 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+
+/**
+ * Contains the recording, replay and synthetic generation of market data ticks,
+ * for running a LiveData server offline against a controlled feed.
+ */
+package com.opengamma.livedata.server.replay;
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.msg;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.testng.annotations.Test;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.value.MarketDataRequirementNames;
+import com.opengamma.id.ExternalId;
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.LiveDataValueUpdateBeanFudgeBuilder;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class LiveDataUpdateEncoderTest {
+
+  private static final FudgeContext FUDGE_CONTEXT = OpenGammaFudgeContext.getInstance();
+  private static final LiveDataSpecification SPEC = new LiveDataSpecification("OpenGamma", ExternalId.of("BLOOMBERG_TICKER", "AAPL US Equity"), ExternalId.of("BUID", "EQ123"));
+
+  public void roundTrip() {
+    MutableFudgeMsg fields = FUDGE_CONTEXT.newMessage();
+    fields.add(MarketDataRequirementNames.MARKET_VALUE, 101.25);
+    fields.add(MarketDataRequirementNames.VOLUME, 12345L);
+    fields.add("Custom", "text");
+    fields.add("Flag", true);
+    fields.add("Count", 7);
+    MutableFudgeMsg nested = FUDGE_CONTEXT.newMessage();
+    nested.add("Inner", 1.5);
+    fields.add("Nested", nested);
+
+    LiveDataUpdateEncoder encoder = new LiveDataUpdateEncoder(FUDGE_CONTEXT, false);
+    LiveDataValueUpdateBean update = new LiveDataValueUpdateBean(42L, SPEC, fields);
+    byte[] bytes = encoder.encode(update);
+    assertTrue(LiveDataUpdateEncoder.isEncoded(bytes));
+    byte[] fudge = FUDGE_CONTEXT.toByteArray(LiveDataValueUpdateBeanFudgeBuilder.toFudgeMsg(new FudgeSerializer(FUDGE_CONTEXT), update));
+    assertFalse(LiveDataUpdateEncoder.isEncoded(fudge));
+    assertTrue(bytes.length < fudge.length);
+
+    LiveDataValueUpdateBean decoded = new LiveDataUpdateDecoder(FUDGE_CONTEXT).decode(bytes);
+    assertEquals(42L, decoded.getSequenceNumber());
+    assertEquals(SPEC, decoded.getSpecification());
+    FudgeMsg result = decoded.getFields();
+    assertEquals(6, result.getNumFields());
+    assertEquals(101.25, result.getDouble(MarketDataRequirementNames.MARKET_VALUE), 0);
+    assertEquals(12345L, (long) result.getLong(MarketDataRequirementNames.VOLUME));
+    assertEquals("text", result.getString("Custom"));
+    assertEquals(Boolean.TRUE, result.getBoolean("Flag"));
+    assertEquals(7, (int) result.getInt("Count"));
+    assertEquals(1.5, result.getMessage("Nested").getDouble("Inner"), 0);
+  }
+
+  public void onlyChangedFieldsSent() {
+    LiveDataUpdateEncoder encoder = new LiveDataUpdateEncoder(FUDGE_CONTEXT, false);
+    LiveDataUpdateDecoder decoder = new LiveDataUpdateDecoder(FUDGE_CONTEXT);
+    decoder.decode(encoder.encode(update(1.0, 2.0)));
+
+    FudgeMsg fields = decoder.decode(encoder.encode(update(1.0, 2.5))).getFields();
+    assertEquals(1, fields.getNumFields());
+    assertEquals(2.5, fields.getDouble("Custom"), 0);
+
+    assertNull(encoder.encode(update(1.0, 2.5)));
+
+    encoder.forget(SPEC);
+    assertEquals(2, decoder.decode(encoder.encode(update(1.0, 2.5))).getFields().getNumFields());
+  }
+
+  public void namesDefinedOncePerConnection() {
+    LiveDataUpdateEncoder encoder = new LiveDataUpdateEncoder(FUDGE_CONTEXT, false);
+    byte[] first = encoder.encode(update(1.0, 2.0));
+    byte[] second = encoder.encode(update(1.5, 2.5));
+    assertTrue(second.length < first.length);
+
+    LiveDataUpdateDecoder decoder = new LiveDataUpdateDecoder(FUDGE_CONTEXT);
+    decoder.decode(first);
+    assertEquals(2.5, decoder.decode(second).getFields().getDouble("Custom"), 0);
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void undefinedName() {
+    LiveDataUpdateEncoder encoder = new LiveDataUpdateEncoder(FUDGE_CONTEXT, false);
+    encoder.encode(update(1.0, 2.0));
+    new LiveDataUpdateDecoder(FUDGE_CONTEXT).decode(encoder.encode(update(1.5, 2.5)));
+  }
+
+  public void selfContainedDecodedIndependently() {
+    LiveDataUpdateEncoder encoder = new LiveDataUpdateEncoder(FUDGE_CONTEXT, true);
+    encoder.encode(update(1.0, 2.0));
+    LiveDataUpdateEncoder other = new LiveDataUpdateEncoder(FUDGE_CONTEXT, true);
+    MutableFudgeMsg otherFields = FUDGE_CONTEXT.newMessage();
+    otherFields.add("Other", 3.0);
+    other.encode(new LiveDataValueUpdateBean(1L, SPEC, otherFields));
+
+    LiveDataUpdateDecoder decoder = new LiveDataUpdateDecoder(FUDGE_CONTEXT);
+    otherFields.add("Custom", 4.0);
+    assertEquals(4.0, decoder.decode(other.encode(new LiveDataValueUpdateBean(2L, SPEC, otherFields))).getFields().getDouble("Custom"), 0);
+    assertEquals(2.5, decoder.decode(encoder.encode(update(1.0, 2.5))).getFields().getDouble("Custom"), 0);
+    assertEquals(LiveDataFieldDictionary.getStandardFields().size(), decoder.getDictionary().size());
+  }
+
+  public void fudgeNotEncoded() {
+    assertFalse(LiveDataUpdateEncoder.isEncoded(FUDGE_CONTEXT.toByteArray(FUDGE_CONTEXT.newMessage())));
+  }
+
+  public void dictionary() {
+    LiveDataFieldDictionary dictionary = new LiveDataFieldDictionary();
+    assertEquals(0, dictionary.getOrdinal(MarketDataRequirementNames.MARKET_VALUE));
+    assertEquals(-1, dictionary.getOrdinal("Custom"));
+    int ordinal = dictionary.define("Custom");
+    assertEquals(LiveDataFieldDictionary.getStandardFields().size(), ordinal);
+    assertEquals(ordinal, dictionary.define("Custom"));
+    assertEquals("Custom", dictionary.getName(ordinal));
+    dictionary.define(1000, "Far");
+    assertEquals("Far", dictionary.getName(1000));
+    assertEquals(1001, dictionary.size());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void dictionaryStandardRedefined() {
+    new LiveDataFieldDictionary().define(0, "Custom");
+  }
+
+  //-------------------------------------------------------------------------
+  private static LiveDataValueUpdateBean update(double marketValue, double custom) {
+    MutableFudgeMsg fields = FUDGE_CONTEXT.newMessage();
+    fields.add(MarketDataRequirementNames.MARKET_VALUE, marketValue);
+    fields.add("Custom", custom);
+    return new LiveDataValueUpdateBean(0L, SPEC, fields);
+  }
+
+}
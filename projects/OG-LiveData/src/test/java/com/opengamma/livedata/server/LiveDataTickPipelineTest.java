@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.ehcache.CacheManager;
+
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.server.distribution.MarketDataDistributor;
+import com.opengamma.livedata.server.distribution.MarketDataSender;
+import com.opengamma.livedata.server.distribution.MarketDataSenderFactory;
+import com.opengamma.util.ehcache.EHCacheUtils;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = {TestGroup.UNIT, "ehcache" })
+public class LiveDataTickPipelineTest {
+
+  private CacheManager _cacheManager;
+
+  @BeforeClass
+  public void setUpClass() {
+    _cacheManager = EHCacheUtils.createTestCacheManager(getClass());
+  }
+
+  @AfterClass
+  public void tearDownClass() {
+    EHCacheUtils.shutdownQuiet(_cacheManager);
+  }
+
+  //-------------------------------------------------------------------------
+  public void ticksDistributedInOrderPerSecurity() {
+    RecordingSenderFactory senderFactory = new RecordingSenderFactory();
+    MockLiveDataServer server = new MockLiveDataServer(ExternalScheme.of("test"), _cacheManager);
+    server.setMarketDataSenderFactory(senderFactory);
+    LiveDataTickPipeline pipeline = new LiveDataTickPipeline(2, 8, 4);
+    MetricRegistry registry = new MetricRegistry();
+    pipeline.registerMetrics(registry, registry, "test");
+    server.setTickPipeline(pipeline);
+    server.start();
+    assertTrue(pipeline.isRunning());
+
+    List<String> securities = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      securities.add("SEC" + i);
+      server.subscribe("SEC" + i);
+    }
+    int ticks = 1000;
+    for (int i = 0; i < ticks; i++) {
+      for (String security : securities) {
+        MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+        msg.add("SEQ", i);
+        server.liveDataReceived(security, msg);
+      }
+    }
+    server.stop();
+    assertFalse(pipeline.isRunning());
+    assertEquals(0, pipeline.getBacklog());
+
+    for (String security : securities) {
+      List<Integer> received = senderFactory._received.get(security);
+      assertEquals(ticks, received.size());
+      for (int i = 0; i < ticks; i++) {
+        assertEquals(i, (int) received.get(i));
+      }
+    }
+    assertEquals(ticks * securities.size(), registry.meter("test.ticks").getCount());
+    assertEquals(ticks * securities.size(), registry.timer("test.queueLatency").getCount());
+  }
+
+  public void notRunningProcessesInline() {
+    RecordingSenderFactory senderFactory = new RecordingSenderFactory();
+    MockLiveDataServer server = new MockLiveDataServer(ExternalScheme.of("test"), _cacheManager);
+    server.setMarketDataSenderFactory(senderFactory);
+    server.setTickPipeline(new LiveDataTickPipeline(1, 8, 4));
+    server.connect();
+    server.subscribe("SEC");
+
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add("SEQ", 7);
+    server.liveDataReceived("SEC", msg);
+    assertEquals(Collections.singletonList(7), senderFactory._received.get("SEC"));
+  }
+
+  //-------------------------------------------------------------------------
+  private static class RecordingSenderFactory implements MarketDataSenderFactory {
+    private final Map<String, List<Integer>> _received = new ConcurrentHashMap<>();
+
+    @Override
+    public Collection<MarketDataSender> create(final MarketDataDistributor distributor) {
+      final String security = distributor.getSubscription().getSecurityUniqueId();
+      final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+      _received.put(security, received);
+      return Collections.<MarketDataSender>singleton(new MarketDataSender() {
+        @Override
+        public void sendMarketData(LiveDataValueUpdateBean data) {
+          received.add(data.getFields().getInt("SEQ"));
+        }
+
+        @Override
+        public MarketDataDistributor getDistributor() {
+          return distributor;
+        }
+      });
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class TickRingBufferTest {
+
+  public void capacityRoundedUp() {
+    assertEquals(8, new TickRingBuffer(5).capacity());
+    assertEquals(8, new TickRingBuffer(8).capacity());
+    assertEquals(1, new TickRingBuffer(1).capacity());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void zeroCapacity() {
+    new TickRingBuffer(0);
+  }
+
+  public void offerUntilFull() {
+    TickRingBuffer ring = new TickRingBuffer(4);
+    assertTrue(ring.isEmpty());
+    for (int i = 0; i < 4; i++) {
+      assertTrue(ring.offer("A" + i, FudgeContext.EMPTY_MESSAGE, i));
+    }
+    assertFalse(ring.offer("A4", FudgeContext.EMPTY_MESSAGE, 4));
+    assertEquals(4, ring.size());
+
+    Recorder recorder = new Recorder();
+    assertEquals(2, ring.drain(recorder, 2));
+    assertEquals(2, ring.size());
+    assertTrue(ring.offer("A4", FudgeContext.EMPTY_MESSAGE, 4));
+    assertEquals(3, ring.drain(recorder, 10));
+    assertTrue(ring.isEmpty());
+    assertEquals(0, ring.drain(recorder, 10));
+
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      expected.add("A" + i);
+      assertEquals(i, (long) recorder._nanos.get(i));
+    }
+    assertEquals(expected, recorder._ids);
+  }
+
+  public void wrapAround() {
+    TickRingBuffer ring = new TickRingBuffer(2);
+    Recorder recorder = new Recorder();
+    for (int i = 0; i < 100; i++) {
+      assertTrue(ring.offer("A" + i, FudgeContext.EMPTY_MESSAGE, i));
+      assertEquals(1, ring.drain(recorder, 10));
+    }
+    assertEquals(100, recorder._ids.size());
+    assertEquals("A99", recorder._ids.get(99));
+  }
+
+  public void multipleProducers() throws Exception {
+    final TickRingBuffer ring = new TickRingBuffer(64);
+    final int producers = 4;
+    final int ticks = 10000;
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      final String prefix = "P" + p;
+      threads[p] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < ticks; i++) {
+            while (!ring.offer(prefix, FudgeContext.EMPTY_MESSAGE, i)) {
+              Thread.yield();
+            }
+          }
+        }
+      };
+      threads[p].start();
+    }
+    final long[] next = new long[producers];
+    TickRingBuffer.TickHandler handler = new TickRingBuffer.TickHandler() {
+      @Override
+      public void tick(String securityUniqueId, FudgeMsg liveDataFields, long enqueueNanos) {
+        int p = Integer.parseInt(securityUniqueId.substring(1));
+        assertEquals(next[p]++, enqueueNanos);
+      }
+    };
+    int total = 0;
+    while (total < producers * ticks) {
+      int count = ring.drain(handler, 16);
+      if (count == 0) {
+        Thread.yield();
+      }
+      total += count;
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int p = 0; p < producers; p++) {
+      assertEquals(ticks, next[p]);
+    }
+    assertTrue(ring.isEmpty());
+  }
+
+  //-------------------------------------------------------------------------
+  private static class Recorder implements TickRingBuffer.TickHandler {
+    private final List<String> _ids = new ArrayList<>();
+    private final List<Long> _nanos = new ArrayList<>();
+
+    @Override
+    public void tick(String securityUniqueId, FudgeMsg liveDataFields, long enqueueNanos) {
+      _ids.add(securityUniqueId);
+      _nanos.add(enqueueNanos);
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = TestGroup.UNIT)
+public class ConflatingMarketDataSenderFactoryTest {
+
+  public void coalescesUntilFlushed() {
+    RecordingSenderFactory recording = new RecordingSenderFactory();
+    ConflatingMarketDataSenderFactory factory = new ConflatingMarketDataSenderFactory(recording, 0);
+    MarketDataDistributor distributor = MarketDataDistributorTest.getTestDistributor(factory);
+
+    distributor.distributeLiveData(msg("BID", 1.0));
+    distributor.distributeLiveData(msg("ASK", 2.0));
+    distributor.distributeLiveData(msg("BID", 1.5));
+    assertTrue(recording._sent.isEmpty());
+
+    assertEquals(1, factory.flush());
+    assertEquals(1, recording._sent.size());
+    LiveDataValueUpdateBean sent = recording._sent.get(0);
+    assertEquals(2, sent.getSequenceNumber());
+    assertEquals(2, sent.getFields().getNumFields());
+    assertEquals(1.5, sent.getFields().getDouble("BID"), 0);
+    assertEquals(2.0, sent.getFields().getDouble("ASK"), 0);
+
+    assertEquals(0, factory.flush());
+    assertEquals(1, recording._sent.size());
+    assertEquals(3.0, factory.getConflationRatio(), 0);
+    assertEquals(3.0, factory.getConflationRatios().get(distributor.getDistributionSpec()), 0);
+
+    distributor.distributeLiveData(msg("BID", 1.6));
+    assertEquals(1, factory.flush());
+    assertEquals(2, recording._sent.size());
+    assertEquals(1.6, recording._sent.get(1).getFields().getDouble("BID"), 0);
+    assertEquals(2.0, factory.getConflationRatio(), 0);
+  }
+
+  @SuppressWarnings("unchecked")
+  public void metrics() {
+    ConflatingMarketDataSenderFactory factory = new ConflatingMarketDataSenderFactory(new RecordingSenderFactory(), 0);
+    MetricRegistry registry = new MetricRegistry();
+    factory.registerMetrics(registry, registry, "test");
+    MarketDataDistributor distributor = MarketDataDistributorTest.getTestDistributor(factory);
+    distributor.distributeLiveData(msg("BID", 1.0));
+    distributor.distributeLiveData(msg("BID", 2.0));
+    factory.flush();
+
+    Gauge<Double> overall = registry.getGauges().get("test.conflationRatio");
+    assertEquals(2.0, overall.getValue(), 0);
+    Gauge<Double> perSpec = registry.getGauges().get("test.conflationRatio." + distributor.getDistributionSpec().getJmsTopic());
+    assertEquals(2.0, perSpec.getValue(), 0);
+  }
+
+  public void flushedOnTimer() throws Exception {
+    RecordingSenderFactory recording = new RecordingSenderFactory();
+    ConflatingMarketDataSenderFactory factory = new ConflatingMarketDataSenderFactory(recording, 10);
+    try {
+      MarketDataDistributor distributor = MarketDataDistributorTest.getTestDistributor(factory);
+      distributor.distributeLiveData(msg("BID", 1.0));
+      distributor.distributeLiveData(msg("BID", 2.0));
+      for (int i = 0; i < 500 && recording._sent.isEmpty(); i++) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, recording._sent.size());
+      assertEquals(2.0, recording._sent.get(0).getFields().getDouble("BID"), 0);
+    } finally {
+      factory.shutdown();
+    }
+  }
+
+  public void composite() {
+    RecordingSenderFactory direct = new RecordingSenderFactory();
+    RecordingSenderFactory conflated = new RecordingSenderFactory();
+    ConflatingMarketDataSenderFactory conflating = new ConflatingMarketDataSenderFactory(conflated, 0);
+    CompositeMarketDataSenderFactory factory = new CompositeMarketDataSenderFactory(Arrays.asList(direct, conflating));
+    MarketDataDistributor distributor = MarketDataDistributorTest.getTestDistributor(factory);
+
+    distributor.distributeLiveData(msg("BID", 1.0));
+    distributor.distributeLiveData(msg("BID", 2.0));
+    conflating.flush();
+    assertEquals(2, direct._sent.size());
+    assertEquals(1, conflated._sent.size());
+  }
+
+  //-------------------------------------------------------------------------
+  private static MutableFudgeMsg msg(String field, double value) {
+    MutableFudgeMsg msg = OpenGammaFudgeContext.getInstance().newMessage();
+    msg.add(field, value);
+    return msg;
+  }
+
+  private static class RecordingSenderFactory implements MarketDataSenderFactory {
+    private final List<LiveDataValueUpdateBean> _sent = Collections.synchronizedList(new ArrayList<LiveDataValueUpdateBean>());
+
+    @Override
+    public Collection<MarketDataSender> create(final MarketDataDistributor distributor) {
+      return Collections.<MarketDataSender>singleton(new MarketDataSender() {
+        @Override
+        public void sendMarketData(LiveDataValueUpdateBean data) {
+          _sent.add(data);
+        }
+
+        @Override
+        public MarketDataDistributor getDistributor() {
+          return distributor;
+        }
+      });
+    }
+  }
+
+}
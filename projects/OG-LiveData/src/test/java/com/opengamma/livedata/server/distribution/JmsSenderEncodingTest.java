@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.distribution;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jms.UncategorizedJmsException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.livedata.LiveDataValueUpdateBean;
+import com.opengamma.livedata.msg.LiveDataUpdateDecoder;
+import com.opengamma.livedata.msg.LiveDataUpdateEncoder;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.jms.JmsConnector;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test {@link JmsSender} with binary encoding when JMS sends fail.
+ */
+@Test(groups = TestGroup.UNIT)
+public class JmsSenderEncodingTest {
+
+  private static final FudgeContext FUDGE_CONTEXT = OpenGammaFudgeContext.getInstance();
+
+  private FailingJmsTemplate _template;
+  private JmsSender _sender;
+
+  @BeforeMethod
+  public void setUp() {
+    _template = new FailingJmsTemplate();
+    JmsConnector jmsConnector = new JmsConnector("Test", _template, _template, null, null, null, null);
+    LiveDataUpdateEncoder encoder = new LiveDataUpdateEncoder(FUDGE_CONTEXT, true);
+    _sender = new JmsSender(jmsConnector, MarketDataDistributorTest.getTestDistributor(), FUDGE_CONTEXT, encoder);
+  }
+
+  //-------------------------------------------------------------------------
+  public void failedSendRetriedOnNextUpdate() {
+    send(1, "LAST", 1.0);
+    _template.failNext();
+    try {
+      send(2, "LAST", 1.5);
+      fail();
+    } catch (UncategorizedJmsException ex) {
+      // expected
+    }
+    send(3, "BID", 1.4);
+
+    assertEquals(2, _template.getSent().size());
+    FudgeMsg fields = decodeLast();
+    assertEquals(2, fields.getNumFields());
+    assertEquals(1.5, fields.getDouble("LAST"), 0);
+    assertEquals(1.4, fields.getDouble("BID"), 0);
+  }
+
+  public void failedSendRetriedOnResume() {
+    send(1, "LAST", 1.0);
+    _template.failNext();
+    try {
+      send(2, "LAST", 1.5);
+      fail();
+    } catch (UncategorizedJmsException ex) {
+      // expected
+    }
+    _sender.transportInterrupted();
+    _sender.transportResumed();
+
+    assertEquals(2, _template.getSent().size());
+    FudgeMsg fields = decodeLast();
+    assertEquals(1, fields.getNumFields());
+    assertEquals(1.5, fields.getDouble("LAST"), 0);
+  }
+
+  public void interruptionResendsAllFields() {
+    MutableFudgeMsg msg = FUDGE_CONTEXT.newMessage();
+    msg.add("LAST", 1.0);
+    msg.add("BID", 0.9);
+    _sender.sendMarketData(new LiveDataValueUpdateBean(1, null, msg));
+    // the message above may have been lost in the broker
+    _sender.transportInterrupted();
+    _sender.transportResumed();
+    _sender.sendMarketData(new LiveDataValueUpdateBean(2, null, msg));
+
+    assertEquals(2, _template.getSent().size());
+    assertEquals(2, decodeLast().getNumFields());
+  }
+
+  //-------------------------------------------------------------------------
+  private void send(long sequenceNumber, String field, double value) {
+    MutableFudgeMsg msg = FUDGE_CONTEXT.newMessage();
+    msg.add(field, value);
+    _sender.sendMarketData(new LiveDataValueUpdateBean(sequenceNumber, null, msg));
+  }
+
+  private FudgeMsg decodeLast() {
+    List<byte[]> sent = _template.getSent();
+    return new LiveDataUpdateDecoder(FUDGE_CONTEXT).decode(sent.get(sent.size() - 1)).getFields();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Template that collects the bytes sent and can be made to fail once.
+   */
+  private static final class FailingJmsTemplate extends JmsTemplate {
+    private final List<byte[]> _sent = new ArrayList<>();
+    private boolean _failNext;
+
+    void failNext() {
+      _failNext = true;
+    }
+
+    List<byte[]> getSent() {
+      return _sent;
+    }
+
+    @Override
+    public void send(String destinationName, MessageCreator messageCreator) {
+      if (_failNext) {
+        _failNext = false;
+        throw new UncategorizedJmsException("Send failed");
+      }
+      try {
+        Session session = Mockito.mock(Session.class);
+        BytesMessage message = Mockito.mock(BytesMessage.class);
+        Mockito.when(session.createBytesMessage()).thenReturn(message);
+        messageCreator.createMessage(session);
+        ArgumentCaptor<byte[]> bytes = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(message).writeBytes(bytes.capture());
+        _sent.add(bytes.getValue());
+      } catch (JMSException ex) {
+        throw new UncategorizedJmsException(ex);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.livedata.server.replay;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.ehcache.CacheManager;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.MutableFudgeMsg;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.opengamma.core.value.MarketDataRequirementNames;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalScheme;
+import com.opengamma.livedata.LiveDataSpecification;
+import com.opengamma.livedata.firehose.RecordProcessor;
+import com.opengamma.livedata.normalization.NormalizationRuleSet;
+import com.opengamma.livedata.resolver.AbstractResolver;
+import com.opengamma.livedata.resolver.DistributionSpecificationResolver;
+import com.opengamma.livedata.server.DistributionSpecification;
+import com.opengamma.util.ehcache.EHCacheUtils;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test.
+ */
+@Test(groups = {TestGroup.UNIT, "ehcache" })
+public class MarketDataReplayTest {
+
+  private static final FudgeContext FUDGE_CONTEXT = OpenGammaFudgeContext.getInstance();
+  private static final long MILLIS = 1000000L;
+
+  private CacheManager _cacheManager;
+
+  @BeforeClass
+  public void setUpClass() {
+    _cacheManager = EHCacheUtils.createTestCacheManager(getClass());
+  }
+
+  @AfterClass
+  public void tearDownClass() {
+    EHCacheUtils.shutdownQuiet(_cacheManager);
+  }
+
+  //-------------------------------------------------------------------------
+  public void recordAndReplay() {
+    ByteArrayOutputStream log = new ByteArrayOutputStream();
+    MarketDataRecorder recorder = new MarketDataRecorder(log, FUDGE_CONTEXT);
+    recorder.process(tick(0, "A", 1.0));
+    recorder.process(tick(20 * MILLIS, "B", 2.0));
+    recorder.flush();
+    recorder.process(tick(60 * MILLIS, "A", 3.0));
+    recorder.close();
+    recorder.process(tick(80 * MILLIS, "C", 4.0));
+    assertEquals(3, recorder.getNumRecorded());
+
+    CollectingProcessor target = new CollectingProcessor();
+    MarketDataReplayer replayer = new MarketDataReplayer(target, MarketDataReplayer.MAX_SPEED);
+    assertEquals(3, replayer.replay(stream(log)));
+    assertEquals(3, target._ticks.size());
+    assertEquals(20 * MILLIS, target._ticks.get(1).getTimestamp());
+    assertEquals("B", target._ticks.get(1).getSecurityUniqueId());
+    assertEquals(3.0, target._ticks.get(2).getFields().getDouble(MarketDataRequirementNames.MARKET_VALUE), 0);
+  }
+
+  public void replayPacedBySpeed() {
+    ByteArrayOutputStream log = new ByteArrayOutputStream();
+    MarketDataRecorder recorder = new MarketDataRecorder(log, FUDGE_CONTEXT);
+    for (int i = 0; i <= 10; i++) {
+      recorder.process(tick(i * 10 * MILLIS, "A", i));
+    }
+    recorder.close();
+
+    ManualClockReplayer replayer = new ManualClockReplayer(new CollectingProcessor(), 4);
+    replayer._now = 1000 * MILLIS;
+    replayer.replay(stream(log));
+    assertEquals(11, replayer.getNumReplayed());
+    for (int i = 0; i <= 10; i++) {
+      assertEquals(1000 * MILLIS + i * 10 * MILLIS / 4, replayer._released.get(i).longValue());
+    }
+    assertEquals(0, replayer.getMaxLagNanos());
+
+    // replaying the log again restarts the schedule rather than waiting for the earlier timestamps
+    long now = replayer._now;
+    replayer.process(tick(0, "A", 0));
+    assertEquals(now, replayer._released.get(11).longValue());
+  }
+
+  public void replayGapsLimited() {
+    ManualClockReplayer replayer = new ManualClockReplayer(new CollectingProcessor(), 1);
+    replayer.setMaxGapMillis(10);
+    replayer.process(tick(0, "A", 1.0));
+    replayer.process(tick(3600000 * MILLIS, "A", 2.0));
+    replayer.process(tick(3600005 * MILLIS, "A", 3.0));
+    assertEquals(0, replayer._released.get(0).longValue());
+    assertEquals(10 * MILLIS, replayer._released.get(1).longValue());
+    assertEquals(15 * MILLIS, replayer._released.get(2).longValue());
+  }
+
+  public void replayLagReported() {
+    final ManualClockReplayer[] replayer = new ManualClockReplayer[1];
+    replayer[0] = new ManualClockReplayer(new RecordProcessor<RecordedTick>() {
+      @Override
+      public void process(RecordedTick tick) {
+        // a target taking longer than the interval between ticks
+        replayer[0]._now += 15 * MILLIS;
+      }
+    }, 1);
+    // the ticks due at 0, 10 and 20ms are released at 0, 15 and 30ms
+    for (int i = 0; i < 3; i++) {
+      replayer[0].process(tick(i * 10 * MILLIS, "A", i));
+    }
+    assertEquals(10 * MILLIS, replayer[0].getMaxLagNanos());
+  }
+
+  public void syntheticTicks() throws Exception {
+    SyntheticTickGenerator generator = new SyntheticTickGenerator(FUDGE_CONTEXT, new CollectingProcessor(), "SYNTH", 5, 1000);
+    SyntheticTickGenerator same = new SyntheticTickGenerator(FUDGE_CONTEXT, new CollectingProcessor(), "SYNTH", 5, 1000);
+    for (int i = 0; i < 100; i++) {
+      RecordedTick tick = generator.nextTick();
+      assertTrue(tick.getSecurityUniqueId().matches("SYNTH[0-4]"));
+      double bid = tick.getFields().getDouble(MarketDataRequirementNames.BID);
+      double ask = tick.getFields().getDouble(MarketDataRequirementNames.ASK);
+      assertTrue(bid > 0 && bid < ask);
+      RecordedTick sameTick = same.nextTick();
+      assertEquals(sameTick.getSecurityUniqueId(), tick.getSecurityUniqueId());
+      assertEquals(sameTick.getFields().getDouble(MarketDataRequirementNames.BID), bid, 0);
+    }
+
+    CollectingProcessor target = new CollectingProcessor();
+    generator = new SyntheticTickGenerator(FUDGE_CONTEXT, target, "SYNTH", 5, 1000);
+    generator.start();
+    for (int i = 0; i < 1000 && target.size() < 10; i++) {
+      Thread.sleep(10);
+    }
+    generator.stop();
+    assertFalse(generator.isRunning());
+    int count = target.size();
+    assertTrue("Generated " + count + " ticks", count >= 10);
+    assertEquals(count, generator.getNumGenerated());
+    for (int i = 1; i < count; i++) {
+      assertTrue(target._ticks.get(i - 1).getTimestamp() <= target._ticks.get(i).getTimestamp());
+    }
+  }
+
+  public void serverDistributesSubscribedTicks() {
+    ReplayLiveDataServer server = new ReplayLiveDataServer(ExternalScheme.of("SYNTH"), FUDGE_CONTEXT, _cacheManager);
+    ByteArrayOutputStream log = new ByteArrayOutputStream();
+    MarketDataRecorder recorder = new MarketDataRecorder(log, FUDGE_CONTEXT);
+    recorder.setNormalizationRuleSetId(server.getDefaultNormalizationRuleSetId());
+    server.setMarketDataSenderFactory(recorder);
+    server.connect();
+    server.process(tick(0, "A", 1.0));
+    server.subscribe("A");
+    server.subscribe("B");
+    server.process(tick(0, "A", 2.0));
+    server.process(tick(0, "B", 3.0));
+    server.process(tick(0, "C", 4.0));
+    assertEquals(2, server.getNumMarketDataUpdatesReceived());
+    assertEquals(4.0, server.doSnapshot("C").getDouble(MarketDataRequirementNames.MARKET_VALUE), 0);
+    recorder.close();
+
+    CollectingProcessor target = new CollectingProcessor();
+    new MarketDataReplayer(target, MarketDataReplayer.MAX_SPEED).replay(stream(log));
+    List<String> ids = new ArrayList<>();
+    for (RecordedTick tick : target._ticks) {
+      ids.add(tick.getSecurityUniqueId());
+    }
+    assertTrue(ids.contains("A"));
+    assertTrue(ids.contains("B"));
+    assertFalse(ids.contains("C"));
+  }
+
+  public void recordOncePerSubscription() {
+    ReplayLiveDataServer server = new ReplayLiveDataServer(ExternalScheme.of("SYNTH"), FUDGE_CONTEXT, _cacheManager);
+    server.setDistributionSpecificationResolver(new ByRuleSetResolver());
+    MarketDataRecorder recorder = new MarketDataRecorder(new ByteArrayOutputStream(), FUDGE_CONTEXT);
+    recorder.setNormalizationRuleSetId(server.getDefaultNormalizationRuleSetId());
+    server.setMarketDataSenderFactory(recorder);
+    server.connect();
+    server.subscribe("A");
+    server.subscribe(new LiveDataSpecification("Other", ExternalId.of("SYNTH", "A")), false);
+    assertEquals(2, server.getSubscription("A").getDistributors().size());
+    server.process(tick(0, "A", 1.0));
+    server.process(tick(0, "A", 2.0));
+    assertEquals(2, recorder.getNumRecorded());
+    recorder.close();
+  }
+
+  //-------------------------------------------------------------------------
+  private static RecordedTick tick(long timestamp, String securityUniqueId, double value) {
+    MutableFudgeMsg fields = FUDGE_CONTEXT.newMessage();
+    fields.add(MarketDataRequirementNames.MARKET_VALUE, value);
+    return new RecordedTick(timestamp, securityUniqueId, fields);
+  }
+
+  private static RecordedTickStream stream(ByteArrayOutputStream log) {
+    return new RecordedTickStream(new ByteArrayInputStream(log.toByteArray()), FUDGE_CONTEXT);
+  }
+
+  private static class CollectingProcessor implements RecordProcessor<RecordedTick> {
+    private final List<RecordedTick> _ticks = new ArrayList<>();
+
+    @Override
+    public synchronized void process(RecordedTick tick) {
+      _ticks.add(tick);
+    }
+
+    private synchronized int size() {
+      return _ticks.size();
+    }
+  }
+
+  /**
+   * Replayer on a clock that only moves while waiting for a tick, or when moved by the target.
+   * The release times are only meaningful for targets that leave the clock alone.
+   */
+  private static class ManualClockReplayer extends MarketDataReplayer {
+    private final List<Long> _released = new ArrayList<>();
+    private long _now;
+
+    ManualClockReplayer(RecordProcessor<RecordedTick> target, double speed) {
+      super(target, speed);
+    }
+
+    @Override
+    public void process(RecordedTick tick) {
+      super.process(tick);
+      _released.add(_now);
+    }
+
+    @Override
+    long nanoTime() {
+      return _now;
+    }
+
+    @Override
+    void waitNanos(long nanos) {
+      _now += nanos;
+    }
+  }
+
+  /**
+   * Resolver giving each normalization rule set a distributor of its own, without normalizing.
+   */
+  private static class ByRuleSetResolver extends AbstractResolver<LiveDataSpecification, DistributionSpecification>
+      implements DistributionSpecificationResolver {
+    @Override
+    public DistributionSpecification resolve(LiveDataSpecification spec) {
+      ExternalId id = spec.getIdentifiers().getExternalIds().iterator().next();
+      String ruleSetId = spec.getNormalizationRuleSetId();
+      return new DistributionSpecification(id, new NormalizationRuleSet(ruleSetId), id + "." + ruleSetId);
+    }
+  }
+
+}
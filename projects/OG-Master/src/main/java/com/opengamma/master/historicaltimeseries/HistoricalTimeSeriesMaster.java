@@ -5,10 +5,14 @@
  */
 package com.opengamma.master.historicaltimeseries;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.threeten.bp.LocalDate;
 
 import com.opengamma.DataNotFoundException;
 import com.opengamma.core.change.ChangeProvider;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -114,6 +118,19 @@ public interface HistoricalTimeSeriesMaster extends AbstractChangeProvidingMaste
    */
   ManageableHistoricalTimeSeries getTimeSeries(ObjectIdentifiable objectId, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter);
 
+  /**
+   * Returns a subset of the data points of several time-series, or the entire series.
+   * <p>
+   * This bulk method is potentially a more efficient form of {@link #getTimeSeries} for multiple lookups.
+   * 
+   * @param objectIds  the time-series data points object identifiers, not null
+   * @param versionCorrection  the version-correction locator to search at, not null
+   * @param filter  the time-series subset filter, not null
+   * @return the map of results, if there is no time-series for an identifier it will be missing from the map, not null
+   * @throws IllegalArgumentException if the request is invalid
+   */
+  Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(Collection<ObjectId> objectIds, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter);
+
   //-------------------------------------------------------------------------
   /**
    * Adds to the time-series by appending new data points.
@@ -5,12 +5,17 @@
  */
 package com.opengamma.master.historicaltimeseries.impl;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.threeten.bp.LocalDate;
 
+import com.opengamma.DataNotFoundException;
 import com.opengamma.core.change.AggregatingChangeManager;
 import com.opengamma.core.change.ChangeManager;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -148,6 +153,20 @@ public class CombinedHistoricalTimeSeriesMaster extends CombinedMaster<Historica
     });
   }
 
+  @Override
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(final Collection<ObjectId> objectIds, final VersionCorrection versionCorrection,
+      final HistoricalTimeSeriesGetFilter filter) {
+    Map<ObjectId, ManageableHistoricalTimeSeries> resultMap = new HashMap<ObjectId, ManageableHistoricalTimeSeries>();
+    for (ObjectId objectId : objectIds) {
+      try {
+        resultMap.put(objectId, getTimeSeries(objectId, versionCorrection, filter));
+      } catch (DataNotFoundException ex) {
+        // missing from the map
+      }
+    }
+    return resultMap;
+  }
+
   @Override
   public UniqueId updateTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
     return apply(objectId.getObjectId().getScheme(), new Try<UniqueId>() {
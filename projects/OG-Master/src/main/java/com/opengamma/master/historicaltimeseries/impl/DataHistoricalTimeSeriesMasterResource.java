@@ -6,6 +6,10 @@
 package com.opengamma.master.historicaltimeseries.impl;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HEAD;
@@ -17,14 +21,26 @@ import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
 import com.opengamma.id.ObjectId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocument;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoMetaDataRequest;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoMetaDataResult;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoSearchRequest;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoSearchResult;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesMaster;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.FudgeMapWrapper;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.rest.AbstractDataResource;
 import com.opengamma.util.rest.RestUtils;
 
@@ -98,6 +114,23 @@ public class DataHistoricalTimeSeriesMasterResource extends AbstractDataResource
     return responseCreatedFudge(createdUri, result);
   }
 
+  @POST
+  @Path("dataPointsBulk")
+  public Response getDataPointsBulk(FudgeMsgEnvelope request) {
+    // POST as the identifiers may not fit in a URI
+    FudgeMsg msg = request.getMessage();
+    FudgeDeserializer deserializer = new FudgeDeserializer(OpenGammaFudgeContext.getInstance());
+    List<FudgeField> idFields = msg.getAllByName("id");
+    List<ObjectId> objectIds = new ArrayList<ObjectId>(idFields.size());
+    for (FudgeField idField : idFields) {
+      objectIds.add(ObjectId.parse((String) idField.getValue()));
+    }
+    VersionCorrection vc = VersionCorrection.parse(msg.getString("versionAsOf"), msg.getString("correctedTo"));
+    HistoricalTimeSeriesGetFilter filter = deserializer.fieldValueToObject(HistoricalTimeSeriesGetFilter.class, msg.getByName("filter"));
+    Map<ObjectId, ManageableHistoricalTimeSeries> result = getHistoricalTimeSeriesMaster().getTimeSeries(objectIds, vc, filter);
+    return responseOkFudge(FudgeMapWrapper.of(result));
+  }
+
   //-------------------------------------------------------------------------
   @Path("infos/{infoId}")
   public DataHistoricalTimeSeriesResource findHistoricalTimeSeries(@PathParam("infoId") String idStr) {
@@ -150,4 +183,35 @@ public class DataHistoricalTimeSeriesMasterResource extends AbstractDataResource
     return bld.build();
   }
 
+  /**
+   * Builds a URI for the bulk data points.
+   *
+   * @param baseUri  the base URI, not null
+   * @return the URI, not null
+   */
+  public static URI uriDataPointsBulk(URI baseUri) {
+    UriBuilder bld = UriBuilder.fromUri(baseUri).path("dataPointsBulk");
+    return bld.build();
+  }
+
+  /**
+   * Builds the message posted to the bulk data points URI.
+   *
+   * @param objectIds  the object identifiers, not null
+   * @param vc  the version-correction locator, not null
+   * @param filter  the filter, not null
+   * @return the message, not null
+   */
+  public static FudgeMsg uriDataPointsBulkData(Collection<ObjectId> objectIds, VersionCorrection vc, HistoricalTimeSeriesGetFilter filter) {
+    FudgeSerializer serializer = new FudgeSerializer(OpenGammaFudgeContext.getInstance());
+    MutableFudgeMsg msg = serializer.newMessage();
+    for (ObjectId objectId : objectIds) {
+      msg.add("id", objectId.toString());
+    }
+    msg.add("versionAsOf", vc.getVersionAsOfString());
+    msg.add("correctedTo", vc.getCorrectedToString());
+    serializer.addToMessage(msg, "filter", null, filter);
+    return msg;
+  }
+
 }
@@ -6,7 +6,9 @@
 package com.opengamma.master.historicaltimeseries.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import net.sf.ehcache.CacheManager;
 
@@ -16,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import org.threeten.bp.Instant;
 import org.threeten.bp.LocalDate;
 
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -173,6 +176,13 @@ public class EHCachingHistoricalTimeSeriesMaster extends AbstractEHCachingMaster
     return ((HistoricalTimeSeriesMaster) getUnderlying()).getTimeSeries(objectId, versionCorrection, filter);  // TODO
   }
 
+  @Override
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(Collection<ObjectId> objectIds,
+                                                                     VersionCorrection versionCorrection,
+                                                                     HistoricalTimeSeriesGetFilter filter) {
+    return ((HistoricalTimeSeriesMaster) getUnderlying()).getTimeSeries(objectIds, versionCorrection, filter);
+  }
+
   @Override
   public UniqueId updateTimeSeriesDataPoints(ObjectIdentifiable objectId, LocalDateDoubleTimeSeries series) {
     return ((HistoricalTimeSeriesMaster) getUnderlying()).updateTimeSeriesDataPoints(objectId, series);  // TODO
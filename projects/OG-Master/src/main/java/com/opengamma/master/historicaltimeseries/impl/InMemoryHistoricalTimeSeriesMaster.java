@@ -6,8 +6,11 @@
 package com.opengamma.master.historicaltimeseries.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -306,6 +309,22 @@ public class InMemoryHistoricalTimeSeriesMaster
     return result;
   }
 
+  @Override
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(Collection<ObjectId> objectIds, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    ArgumentChecker.notNull(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    ArgumentChecker.notNull(filter, "filter");
+    Map<ObjectId, ManageableHistoricalTimeSeries> resultMap = new HashMap<ObjectId, ManageableHistoricalTimeSeries>();
+    for (ObjectId objectId : objectIds) {
+      try {
+        resultMap.put(objectId, getTimeSeries(objectId, versionCorrection, filter));
+      } catch (DataNotFoundException ex) {
+        // missing from the map
+      }
+    }
+    return resultMap;
+  }
+
 
   //-------------------------------------------------------------------------
   @Override
@@ -5,6 +5,7 @@
  */
 package com.opengamma.master.historicaltimeseries.impl;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,6 +32,7 @@ import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocumen
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesMaster;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesResolutionResult;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesResolver;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
 import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeriesInfo;
 import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
@@ -139,6 +141,39 @@ public class MasterHistoricalTimeSeriesSource
     return doGetHistoricalTimeSeries(uniqueId, start, end, maxPoints);
   }
 
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(Collection<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.noNulls(uniqueIds, "uniqueIds");
+    if (start != null && !includeStart) {
+      start = start.plusDays(1);
+    }
+    if (end != null && !includeEnd) {
+      end = end.minusDays(1);
+    }
+    final VersionCorrection vc = getVersionCorrection();  // lock against change
+    final Map<UniqueId, HistoricalTimeSeries> result = Maps.newHashMapWithExpectedSize(uniqueIds.size());
+    // versioned identifiers are resolved by the master one at a time, the rest are loaded in bulk
+    final Map<ObjectId, UniqueId> bulkIds = Maps.newHashMapWithExpectedSize(uniqueIds.size());
+    for (UniqueId uniqueId : uniqueIds) {
+      if (vc != null || uniqueId.isLatest()) {
+        bulkIds.put(uniqueId.getObjectId(), uniqueId);
+      } else {
+        HistoricalTimeSeries hts = doGetHistoricalTimeSeries(uniqueId, start, end, null);
+        if (hts != null) {
+          result.put(uniqueId, hts);
+        }
+      }
+    }
+    if (bulkIds.size() > 0) {
+      final Map<ObjectId, ManageableHistoricalTimeSeries> series = getMaster().getTimeSeries(
+          bulkIds.keySet(), Objects.firstNonNull(vc, VersionCorrection.LATEST), HistoricalTimeSeriesGetFilter.ofRange(start, end));
+      for (Map.Entry<ObjectId, ManageableHistoricalTimeSeries> entry : series.entrySet()) {
+        result.put(bulkIds.get(entry.getKey()), entry.getValue());
+      }
+    }
+    return result;
+  }
+
   @Override
   public Pair<LocalDate, Double> getLatestDataPoint(UniqueId uniqueId) {
     ArgumentChecker.notNull(uniqueId, "uniqueId");
@@ -6,11 +6,15 @@
 package com.opengamma.master.historicaltimeseries.impl;
 
 import java.net.URI;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+import org.fudgemsg.FudgeMsg;
 import org.threeten.bp.LocalDate;
 
 import com.opengamma.core.change.ChangeManager;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -27,6 +31,7 @@ import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
 import com.opengamma.master.impl.AbstractRemoteDocumentMaster;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.FudgeMapWrapper;
 import com.sun.jersey.api.client.GenericType;
 
 /**
@@ -187,6 +192,18 @@ public class RemoteHistoricalTimeSeriesMaster
     return accessRemote(uri).get(ManageableHistoricalTimeSeries.class);
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(Collection<ObjectId> objectIds, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    ArgumentChecker.noNulls(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    ArgumentChecker.notNull(filter, "filter");
+
+    URI uri = DataHistoricalTimeSeriesMasterResource.uriDataPointsBulk(getBaseUri());
+    FudgeMsg msg = DataHistoricalTimeSeriesMasterResource.uriDataPointsBulkData(objectIds, versionCorrection, filter);
+    return accessRemote(uri).post(FudgeMapWrapper.class, msg).getMap();
+  }
+
   @Override
   public UniqueId updateTimeSeriesDataPoints(ObjectIdentifiable objectId, LocalDateDoubleTimeSeries series) {
     ArgumentChecker.notNull(objectId, "objectId");
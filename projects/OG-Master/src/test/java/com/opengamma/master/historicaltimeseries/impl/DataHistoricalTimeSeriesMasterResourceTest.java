@@ -5,6 +5,8 @@
  */
 package com.opengamma.master.historicaltimeseries.impl;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -12,20 +14,38 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertSame;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
 
 import com.opengamma.id.ObjectId;
 import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocument;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesMaster;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
 import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeriesInfo;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.util.fudgemsg.FudgeMapWrapper;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.test.TestGroup;
 import com.sun.jersey.api.client.ClientResponse.Status;
+import com.sun.jersey.api.client.UniformInterface;
 
 /**
  * Test.
@@ -71,4 +91,61 @@ public class DataHistoricalTimeSeriesMasterResourceTest {
     assertEquals(ObjectId.of("Test", "A"), test.getUrlId());
   }
 
+  @Test
+  public void testGetDataPointsBulkRemote() {
+    InMemoryHistoricalTimeSeriesMaster master = new InMemoryHistoricalTimeSeriesMaster();
+    LocalDate[] dates = {LocalDate.of(2011, 1, 1), LocalDate.of(2011, 1, 2), LocalDate.of(2011, 1, 3)};
+    ObjectId oid1 = addSeries(master, "1").getObjectId();
+    ObjectId oid2 = addSeries(master, "2").getObjectId();
+    ObjectId oidNoPoints = addSeries(master, "3").getObjectId();
+    ObjectId oidMissing = ObjectId.of(oid1.getScheme(), "999");
+    master.updateTimeSeriesDataPoints(oid1, ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {1.0d, 1.1d, 1.2d}));
+    master.updateTimeSeriesDataPoints(oid2, ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {2.0d, 2.1d, 2.2d}));
+    
+    final DataHistoricalTimeSeriesMasterResource server = new DataHistoricalTimeSeriesMasterResource(master);
+    final int[] calls = new int[1];
+    RemoteHistoricalTimeSeriesMaster client = new RemoteHistoricalTimeSeriesMaster(URI.create("http://localhost/")) {
+      @Override
+      protected UniformInterface accessRemote(final URI uri) {
+        calls[0]++;
+        assertEquals("/dataPointsBulk", uri.getPath());
+        UniformInterface builder = mock(UniformInterface.class);
+        when(builder.post(eq(FudgeMapWrapper.class), any(FudgeMsg.class))).thenAnswer(new Answer<FudgeMapWrapper>() {
+          @Override
+          public FudgeMapWrapper answer(InvocationOnMock invocation) {
+            FudgeMsg request = (FudgeMsg) invocation.getArguments()[1];
+            Object response = server.getDataPointsBulk(new FudgeMsgEnvelope(request)).getEntity();
+            // through Fudge, as on the wire
+            FudgeContext context = OpenGammaFudgeContext.getInstance();
+            FudgeMsg msg = new FudgeSerializer(context).objectToFudgeMsg(response);
+            return new FudgeDeserializer(context).fudgeMsgToObject(FudgeMapWrapper.class, msg);
+          }
+        });
+        return builder;
+      }
+    };
+    
+    List<ObjectId> oids = Arrays.asList(oid1, oid2, oidNoPoints, oidMissing);
+    HistoricalTimeSeriesGetFilter filter = HistoricalTimeSeriesGetFilter.ofRange(dates[1], null);
+    Map<ObjectId, ManageableHistoricalTimeSeries> expected = master.getTimeSeries(oids, VersionCorrection.LATEST, filter);
+    Map<ObjectId, ManageableHistoricalTimeSeries> test = client.getTimeSeries(oids, VersionCorrection.LATEST, filter);
+    assertEquals(1, calls[0]);
+    assertEquals(expected.keySet(), test.keySet());
+    for (ObjectId oid : expected.keySet()) {
+      assertEquals(expected.get(oid).getUniqueId(), test.get(oid).getUniqueId());
+      assertEquals(expected.get(oid).getTimeSeries(), test.get(oid).getTimeSeries());
+    }
+    assertEquals(2, test.get(oid1).getTimeSeries().size());
+  }
+
+  private static UniqueId addSeries(HistoricalTimeSeriesMaster master, String name) {
+    ManageableHistoricalTimeSeriesInfo info = new ManageableHistoricalTimeSeriesInfo();
+    info.setName(name);
+    info.setDataField("DF");
+    info.setDataSource("DS");
+    info.setDataProvider("DP");
+    info.setObservationTime("OT");
+    return master.add(new HistoricalTimeSeriesInfoDocument(info)).getUniqueId();
+  }
+
 }
@@ -10,7 +10,9 @@ import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertSame;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -24,6 +26,7 @@ import com.opengamma.id.ExternalIdBundleWithDates;
 import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdSupplier;
 import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoDocument;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesInfoSearchRequest;
@@ -420,4 +423,22 @@ public class InMemoryHistoricalTimeSeriesMasterTest {
     assertEquals(reference.getTimeSeries().getValueAtIndex(reference.getTimeSeries().size() - 1), test.getTimeSeries().getValueAtIndex(1));   
   }
 
+  public void test_points_getBulk() {
+    LocalDate[] dates = {LocalDate.of(2011, 1, 1), LocalDate.of(2011, 1, 2), LocalDate.of(2011, 1, 3)};
+    LocalDateDoubleTimeSeries input1 = ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {1.0d, 1.1d, 1.2d});
+    LocalDateDoubleTimeSeries input2 = ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {2.0d, 2.1d, 2.2d});
+    testPopulated.updateTimeSeriesDataPoints(doc1.getUniqueId(), input1);
+    testPopulated.updateTimeSeriesDataPoints(doc2.getUniqueId(), input2);
+    
+    ObjectId oid1 = doc1.getUniqueId().getObjectId();
+    ObjectId oid2 = doc2.getUniqueId().getObjectId();
+    HistoricalTimeSeriesGetFilter filter = HistoricalTimeSeriesGetFilter.ofRange(dates[1], null);
+    Map<ObjectId, ManageableHistoricalTimeSeries> test = testPopulated.getTimeSeries(
+        Arrays.asList(oid1, oid2, ObjectId.of("Test", "999")), VersionCorrection.LATEST, filter);
+    assertEquals(2, test.size());
+    assertEquals(testPopulated.getTimeSeries(oid1, VersionCorrection.LATEST, filter).getTimeSeries(), test.get(oid1).getTimeSeries());
+    assertEquals(testPopulated.getTimeSeries(oid2, VersionCorrection.LATEST, filter).getTimeSeries(), test.get(oid2).getTimeSeries());
+    assertEquals(2, test.get(oid2).getTimeSeries().size());
+  }
+
 }
@@ -0,0 +1,625 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.core.support.SqlLobValue;
+import org.springframework.jdbc.support.lob.LobHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
+
+import com.google.common.collect.Maps;
+import com.opengamma.DataNotFoundException;
+import com.opengamma.core.change.ChangeType;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.ObjectIdentifiable;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateToIntConverter;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.db.DbDateUtils;
+import com.opengamma.util.db.DbMapSqlParameterSource;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * A worker that stores the data points of the time-series master in blocks.
+ * <p>
+ * The data points of each series are held in the {@code hts_point_block} table in one
+ * chain of rows per calendar year, instead of one row per point in {@code hts_point}.
+ * Each update, correction or removal appends one row to the chain of each year it touches,
+ * holding the points written with their version and correction instants, so the bitemporal
+ * behavior is the same as the row per point storage.
+ * Once a chain reaches {@link #CHAIN_LENGTH} rows, the next row holds all the points of the
+ * chain so far, and reads start from that row. A series is thus read from a handful of rows.
+ * <p>
+ * The bulk methods handle many series in a fixed number of statements for each batch of
+ * {@link #BULK_BATCH_SIZE} series, which suits the daily load of many series.
+ * <p>
+ * The {@code hts_point} table is not used, and should be empty.
+ * <p>
+ * This class is mutable but must be treated as immutable after configuration.
+ */
+public class DbHistoricalTimeSeriesBlockDataPointsWorker extends DbHistoricalTimeSeriesDataPointsWorker {
+
+  /** Logger. */
+  private static final Logger s_logger = LoggerFactory.getLogger(DbHistoricalTimeSeriesBlockDataPointsWorker.class);
+
+  /**
+   * The maximum number of rows in a chain, including the consolidated row that starts it.
+   */
+  protected static final int CHAIN_LENGTH = 16;
+  /**
+   * The filter used when only the version instants are needed.
+   */
+  private static final HistoricalTimeSeriesGetFilter NO_POINTS = HistoricalTimeSeriesGetFilter.ofRange(null, null, 0);
+
+  /**
+   * Creates an instance.
+   *
+   * @param master  the database master, not null
+   */
+  public DbHistoricalTimeSeriesBlockDataPointsWorker(final DbHistoricalTimeSeriesMaster master) {
+    super(master);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public ManageableHistoricalTimeSeries getTimeSeries(ObjectIdentifiable objectId, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    final ObjectId oid = objectId.getObjectId();
+    final ManageableHistoricalTimeSeries result = getTimeSeries(Collections.singleton(oid), versionCorrection, filter).get(oid);
+    if (result == null) {
+      throw new DataNotFoundException("Unable to find time-series: " + objectId);
+    }
+    return result;
+  }
+
+  @Override
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(Collection<ObjectId> objectIds, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    ArgumentChecker.noNulls(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    ArgumentChecker.notNull(filter, "filter");
+    final VersionCorrection vc = versionCorrection.withLatestFixed(now());
+    final Map<ObjectId, ManageableHistoricalTimeSeries> result = Maps.newHashMapWithExpectedSize(objectIds.size());
+    final Map<Long, ObjectId> batch = new LinkedHashMap<Long, ObjectId>();
+    for (ObjectId objectId : objectIds) {
+      checkScheme(objectId);
+      batch.put(extractOid(objectId), objectId);
+      if (batch.size() == BULK_BATCH_SIZE) {
+        getTimeSeriesBlockBatch(batch, vc, filter, result);
+        batch.clear();
+      }
+    }
+    if (batch.size() > 0) {
+      getTimeSeriesBlockBatch(batch, vc, filter, result);
+    }
+    return result;
+  }
+
+  /**
+   * Loads a batch of time-series.
+   *
+   * @param batch  the requested object identifiers keyed by object row id, not empty, not null
+   * @param vc  the version-correction locator with the latest fixed, not null
+   * @param filter  the time-series subset filter, not null
+   * @param result  the map to add the time-series to, not null
+   */
+  private void getTimeSeriesBlockBatch(Map<Long, ObjectId> batch, VersionCorrection vc, HistoricalTimeSeriesGetFilter filter,
+      Map<ObjectId, ManageableHistoricalTimeSeries> result) {
+    final Map<Long, ManageableHistoricalTimeSeries> found = readTimeSeries(batch.keySet(), vc, filter);
+    for (Map.Entry<Long, ObjectId> entry : batch.entrySet()) {
+      ManageableHistoricalTimeSeries hts = found.get(entry.getKey());
+      if (hts == null) {
+        // No data-points were found, check if the time-series doc exists or existed at some point
+        final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+          .addValue("doc_oid", entry.getKey())
+          .addTimestamp("version_as_of_instant", vc.getVersionAsOf())
+          .addTimestamp("corrected_to_instant", vc.getCorrectedTo());
+        final String sqlExists = getElSqlBundle().getSql("SelectExistential", args);
+        hts = getDbConnector().getJdbcTemplate().query(sqlExists, args, new ManageableHTSExtractor(entry.getKey()));
+        if (hts == null) {
+          continue;  // never existed
+        }
+        hts.setTimeSeries(ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES);
+      }
+      result.put(entry.getValue(), hts);
+    }
+  }
+
+  /**
+   * Reads the data points of several time-series from their blocks.
+   *
+   * @param oids  the object row ids, not empty, not null
+   * @param vc  the version-correction locator with the latest fixed, not null
+   * @param filter  the time-series subset filter, not null
+   * @return the time-series keyed by object row id, omitting those without visible points, not null
+   */
+  protected Map<Long, ManageableHistoricalTimeSeries> readTimeSeries(Collection<Long> oids, VersionCorrection vc, HistoricalTimeSeriesGetFilter filter) {
+    final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+      .addValue("sql_search_object_ids", toSqlObjectIds(oids))
+      .addTimestamp("corrected_to_instant", vc.getCorrectedTo());
+    final String sql = getElSqlBundle().getSql("SelectPointBlocks", args);
+    final Map<Long, List<HistoricalTimeSeriesPointBlock>> blocks = getDbConnector().getJdbcTemplate().query(sql, args, new PointBlocksExtractor());
+    final Map<Long, ManageableHistoricalTimeSeries> result = Maps.newHashMapWithExpectedSize(blocks.size());
+    for (Map.Entry<Long, List<HistoricalTimeSeriesPointBlock>> entry : blocks.entrySet()) {
+      final ManageableHistoricalTimeSeries hts = mergeBlocks(entry.getKey(), entry.getValue(), vc, filter);
+      if (hts != null) {
+        result.put(entry.getKey(), hts);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Merges the blocks of a time-series into the series seen at a version-correction.
+   * <p>
+   * Of the points visible at the version-correction, the one with the latest
+   * correction instant is used for each date, as for the row per point storage.
+   *
+   * @param oid  the object row id
+   * @param blocks  the blocks in chain order, not null
+   * @param vc  the version-correction locator with the latest fixed, not null
+   * @param filter  the time-series subset filter, not null
+   * @return the time-series, null if no points are visible
+   */
+  protected ManageableHistoricalTimeSeries mergeBlocks(long oid, List<HistoricalTimeSeriesPointBlock> blocks, VersionCorrection vc, HistoricalTimeSeriesGetFilter filter) {
+    int total = 0;
+    for (HistoricalTimeSeriesPointBlock block : blocks) {
+      total += block.size();
+    }
+    // each key is the date in the high bits and the position in chain order in the low bits
+    final long[] keys = new long[total];
+    final double[] values = new double[total];
+    final boolean[] removed = new boolean[total];
+    int count = 0;
+    Instant maxVer = null;
+    Instant maxCorr = null;
+    for (HistoricalTimeSeriesPointBlock block : blocks) {
+      for (int i = 0; i < block.size(); i++) {
+        final Instant ver = block.getVersionInstant(i);
+        final Instant corr = block.getCorrectionInstant(i);
+        if (ver.isAfter(vc.getVersionAsOf()) || corr.isAfter(vc.getCorrectedTo())) {
+          continue;
+        }
+        maxVer = (maxVer == null || ver.isAfter(maxVer) ? ver : maxVer);
+        maxCorr = (maxCorr == null || corr.isAfter(maxCorr) ? corr : maxCorr);
+        keys[count] = ((long) block.getDate(i) << 32) | count;
+        values[count] = block.getValue(i);
+        removed[count] = block.isRemoved(i);
+        count++;
+      }
+    }
+    if (count == 0) {
+      return null;
+    }
+    final ManageableHistoricalTimeSeries hts = new ManageableHistoricalTimeSeries();
+    hts.setUniqueId(createTimeSeriesUniqueId(oid, maxVer, maxCorr));
+    hts.setVersionInstant(maxVer);
+    hts.setCorrectionInstant(maxCorr);
+    if (filter.getMaxPoints() != null && filter.getMaxPoints() == 0) {
+      hts.setTimeSeries(ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES);
+      return hts;
+    }
+
+    // the last point of each date in chain order is the latest correction
+    Arrays.sort(keys, 0, count);
+    final int start = (filter.getEarliestDate() != null ? LocalDateToIntConverter.convertToInt(filter.getEarliestDate()) : Integer.MIN_VALUE);
+    final int end = (filter.getLatestDate() != null ? LocalDateToIntConverter.convertToInt(filter.getLatestDate()) : Integer.MAX_VALUE);
+    final int[] seriesDates = new int[count];
+    final double[] seriesValues = new double[count];
+    int size = 0;
+    for (int k = 0; k < count; k++) {
+      final int date = (int) (keys[k] >>> 32);
+      if (k + 1 < count && (int) (keys[k + 1] >>> 32) == date) {
+        continue;
+      }
+      final int index = (int) keys[k];
+      if (removed[index] == false && date >= start && date <= end) {
+        seriesDates[size] = date;
+        seriesValues[size] = values[index];
+        size++;
+      }
+    }
+    int from = 0;
+    int to = size;
+    if (filter.getMaxPoints() != null && filter.getMaxPoints() > 0) {
+      to = Math.min(size, filter.getMaxPoints());
+    } else if (filter.getMaxPoints() != null) {
+      from = Math.max(0, size + filter.getMaxPoints());
+    }
+    hts.setTimeSeries(ImmutableLocalDateDoubleTimeSeries.of(Arrays.copyOfRange(seriesDates, from, to), Arrays.copyOfRange(seriesValues, from, to)));
+    return hts;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public UniqueId updateTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
+    ArgumentChecker.notNull(objectId, "objectId");
+    ArgumentChecker.notNull(series, "series");
+    final ObjectId oid = objectId.getObjectId();
+    return updateTimeSeriesDataPoints(Collections.singletonMap(oid, series)).get(oid);
+  }
+
+  @Override
+  public Map<ObjectId, UniqueId> updateTimeSeriesDataPoints(final Map<ObjectId, LocalDateDoubleTimeSeries> series) {
+    ArgumentChecker.notNull(series, "series");
+    ArgumentChecker.noNulls(series.keySet(), "series.keySet()");
+    ArgumentChecker.noNulls(series.values(), "series.values()");
+    s_logger.debug("add time-series data points to {} time-series", series.size());
+    for (ObjectId objectId : series.keySet()) {
+      checkScheme(objectId);
+    }
+
+    Pair<Map<ObjectId, UniqueId>, Instant> result = getTransactionTemplateRetrying(getMaxRetries()).execute(new TransactionCallback<Pair<Map<ObjectId, UniqueId>, Instant>>() {
+      @Override
+      public Pair<Map<ObjectId, UniqueId>, Instant> doInTransaction(final TransactionStatus status) {
+        final Instant now = now();
+        final Map<ObjectId, UniqueId> uniqueIds = new LinkedHashMap<ObjectId, UniqueId>();
+        final Map<Long, ObjectId> batch = new LinkedHashMap<Long, ObjectId>();
+        for (ObjectId objectId : series.keySet()) {
+          batch.put(extractOid(objectId), objectId);
+          if (batch.size() == BULK_BATCH_SIZE) {
+            appendDataPoints(batch, series, now, uniqueIds);
+            batch.clear();
+          }
+        }
+        if (batch.size() > 0) {
+          appendDataPoints(batch, series, now, uniqueIds);
+        }
+        return Pair.of(uniqueIds, now);
+      }
+    });
+    for (Map.Entry<ObjectId, LocalDateDoubleTimeSeries> entry : series.entrySet()) {
+      if (entry.getValue().isEmpty() == false) {
+        getMaster().changeManager().entityChanged(ChangeType.CHANGED, entry.getKey(), null, null, result.getSecond());
+      }
+    }
+    return result.getFirst();
+  }
+
+  /**
+   * Appends the data points of a batch of time-series.
+   *
+   * @param batch  the object identifiers keyed by object row id, not empty, not null
+   * @param series  the data points to add keyed by object identifier, not null
+   * @param now  the current instant, not null
+   * @param uniqueIds  the map to add the unique identifiers of the time-series to, not null
+   */
+  private void appendDataPoints(Map<Long, ObjectId> batch, Map<ObjectId, LocalDateDoubleTimeSeries> series, Instant now,
+      Map<ObjectId, UniqueId> uniqueIds) {
+    final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+      .addValue("sql_search_object_ids", toSqlObjectIds(batch.keySet()))
+      .addTimestamp("version_as_of_instant", now)
+      .addTimestamp("corrected_to_instant", now);
+    final NamedParameterJdbcOperations namedJdbc = getDbConnector().getJdbcTemplate();
+    final Set<Long> existing = new HashSet<Long>(namedJdbc.queryForList(getElSqlBundle().getSql("SelectExistingObjectIds", args), args, Long.class));
+    final Map<Long, Map<Integer, BlockChain>> chains = namedJdbc.query(getElSqlBundle().getSql("SelectPointBlockHeads", args), args, new BlockChainsExtractor(false));
+
+    final Map<Long, Map<Integer, HistoricalTimeSeriesPointBlock.Builder>> builders = new LinkedHashMap<Long, Map<Integer, HistoricalTimeSeriesPointBlock.Builder>>();
+    for (Map.Entry<Long, ObjectId> entry : batch.entrySet()) {
+      final long oid = entry.getKey();
+      final ObjectId objectId = entry.getValue();
+      if (existing.contains(oid) == false) {
+        throw new DataNotFoundException("Unable to find time-series: " + objectId);
+      }
+      final LocalDateDoubleTimeSeries points = series.get(objectId);
+      if (points.isEmpty()) {
+        uniqueIds.put(objectId, resolveObjectId(objectId, VersionCorrection.of(now, now)));
+        continue;
+      }
+      final Map<Integer, BlockChain> oidChains = chains.get(oid);
+      if (oidChains != null) {
+        int maxDate = 0;
+        for (BlockChain chain : oidChains.values()) {
+          maxDate = Math.max(maxDate, chain._maxPointDate);
+        }
+        if (points.getEarliestTimeFast() <= maxDate) {
+          throw new IllegalArgumentException("Unable to update data points of time-series " + objectId +
+              " as the update starts at " + points.getEarliestTime() +
+              " which is before the latest data point in the database at " + LocalDateToIntConverter.convertToLocalDate(maxDate));
+        }
+      }
+      final Map<Integer, HistoricalTimeSeriesPointBlock.Builder> oidBuilders = new TreeMap<Integer, HistoricalTimeSeriesPointBlock.Builder>();
+      for (int i = 0; i < points.size(); i++) {
+        final int date = points.getTimeAtIndexFast(i);
+        builder(oidBuilders, date).add(date, now, now, points.getValueAtIndexFast(i));
+      }
+      builders.put(oid, oidBuilders);
+      uniqueIds.put(objectId, createTimeSeriesUniqueId(oid, now, now));
+    }
+    insertBlocks(builders, chains, now);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  protected UniqueId correctDataPoints(UniqueId uniqueId, LocalDateDoubleTimeSeries series, Instant now) {
+    final long oid = extractOid(uniqueId);
+    final Map<Long, Map<Integer, BlockChain>> chains = loadChains(Collections.singleton(oid));
+    final Map<Integer, BlockChain> oidChains = chains.containsKey(oid) ? chains.get(oid) : Collections.<Integer, BlockChain>emptyMap();
+    final Map<Integer, HistoricalTimeSeriesPointBlock.Builder> builders = new TreeMap<Integer, HistoricalTimeSeriesPointBlock.Builder>();
+    for (int i = 0; i < series.size(); i++) {
+      final int date = series.getTimeAtIndexFast(i);
+      final BlockChain chain = oidChains.get(date / 10000);
+      final Instant ver = (chain != null ? chain.findVersionInstant(date) : null);
+      builder(builders, date).add(date, ver != null ? ver : now, now, series.getValueAtIndexFast(i));
+    }
+    insertBlocks(Collections.singletonMap(oid, builders), chains, now);
+    return resolveObjectId(uniqueId, VersionCorrection.of(now, now));
+  }
+
+  @Override
+  protected UniqueId removeDataPoints(UniqueId uniqueId, LocalDate fromDateInclusive, LocalDate toDateInclusive, Instant now) {
+    final long oid = extractOid(uniqueId);
+    final int start = (fromDateInclusive != null ? LocalDateToIntConverter.convertToInt(fromDateInclusive) : Integer.MIN_VALUE);
+    final int end = (toDateInclusive != null ? LocalDateToIntConverter.convertToInt(toDateInclusive) : Integer.MAX_VALUE);
+    final Map<Long, Map<Integer, BlockChain>> chains = loadChains(Collections.singleton(oid));
+    final Map<Integer, HistoricalTimeSeriesPointBlock.Builder> builders = new TreeMap<Integer, HistoricalTimeSeriesPointBlock.Builder>();
+    if (chains.containsKey(oid)) {
+      for (BlockChain chain : chains.get(oid).values()) {
+        // insert a removal for every date ever written in the range
+        final Set<Integer> dates = new TreeSet<Integer>();
+        for (HistoricalTimeSeriesPointBlock block : chain._blocks) {
+          for (int i = 0; i < block.size(); i++) {
+            if (block.getDate(i) >= start && block.getDate(i) <= end) {
+              dates.add(block.getDate(i));
+            }
+          }
+        }
+        for (int date : dates) {
+          builder(builders, date).add(date, chain.findVersionInstant(date), now, null);
+        }
+      }
+    }
+    insertBlocks(Collections.singletonMap(oid, builders), chains, now);
+    return resolveObjectId(uniqueId, VersionCorrection.of(now, now));
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  protected UniqueId resolveObjectId(ObjectIdentifiable objectId, VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    final VersionCorrection vc = versionCorrection.withLatestFixed(now());
+    // the document instants, as there are no rows in hts_point
+    final UniqueId uniqueId = super.resolveObjectId(objectId, vc);
+    final long oid = extractOid(objectId);
+    final ManageableHistoricalTimeSeries hts = readTimeSeries(Collections.singleton(oid), vc, NO_POINTS).get(oid);
+    return (hts != null ? hts.getUniqueId() : uniqueId);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the builder for the year of a date, creating it if necessary.
+   *
+   * @param builders  the builders keyed by year, not null
+   * @param date  the date as a {@code yyyymmdd} integer
+   * @return the builder, not null
+   */
+  private static HistoricalTimeSeriesPointBlock.Builder builder(Map<Integer, HistoricalTimeSeriesPointBlock.Builder> builders, int date) {
+    final int year = date / 10000;
+    HistoricalTimeSeriesPointBlock.Builder builder = builders.get(year);
+    if (builder == null) {
+      builder = HistoricalTimeSeriesPointBlock.builder();
+      builders.put(year, builder);
+    }
+    return builder;
+  }
+
+  /**
+   * Loads the current chains of several time-series, from their latest consolidated rows.
+   *
+   * @param oids  the object row ids, not empty, not null
+   * @return the chains keyed by object row id and then year, not null
+   */
+  protected Map<Long, Map<Integer, BlockChain>> loadChains(Collection<Long> oids) {
+    final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+      .addValue("sql_search_object_ids", toSqlObjectIds(oids));
+    final String sql = getElSqlBundle().getSql("SelectPointBlockChains", args);
+    return getDbConnector().getJdbcTemplate().query(sql, args, new BlockChainsExtractor(true));
+  }
+
+  /**
+   * Inserts a row at the end of the chain of each block being written.
+   * <p>
+   * The row holds just the new points, unless the chain is new or full when it
+   * holds all the points of the chain.
+   *
+   * @param builders  the new points keyed by object row id and then year, not null
+   * @param chains  the current chains keyed by object row id and then year, which are loaded if needed, not null
+   * @param now  the current instant, not null
+   */
+  protected void insertBlocks(Map<Long, Map<Integer, HistoricalTimeSeriesPointBlock.Builder>> builders, Map<Long, Map<Integer, BlockChain>> chains, Instant now) {
+    // the full chains to be consolidated are loaded together
+    final Set<Long> consolidateOids = new HashSet<Long>();
+    for (Map.Entry<Long, Map<Integer, HistoricalTimeSeriesPointBlock.Builder>> entry : builders.entrySet()) {
+      for (Integer year : entry.getValue().keySet()) {
+        final BlockChain chain = chains.containsKey(entry.getKey()) ? chains.get(entry.getKey()).get(year) : null;
+        if (chain != null && chain.isFull() && chain._blocks == null) {
+          consolidateOids.add(entry.getKey());
+        }
+      }
+    }
+    final Map<Long, Map<Integer, BlockChain>> loaded = (consolidateOids.isEmpty() ?
+        Collections.<Long, Map<Integer, BlockChain>>emptyMap() : loadChains(consolidateOids));
+
+    final Timestamp nowTS = DbDateUtils.toSqlTimestamp(now);
+    final LobHandler lobHandler = getDialect().getLobHandler();
+    final List<DbMapSqlParameterSource> argsList = new ArrayList<DbMapSqlParameterSource>();
+    for (Map.Entry<Long, Map<Integer, HistoricalTimeSeriesPointBlock.Builder>> entry : builders.entrySet()) {
+      final long oid = entry.getKey();
+      for (Map.Entry<Integer, HistoricalTimeSeriesPointBlock.Builder> yearEntry : entry.getValue().entrySet()) {
+        final int year = yearEntry.getKey();
+        final HistoricalTimeSeriesPointBlock.Builder builder = yearEntry.getValue();
+        BlockChain chain = chains.containsKey(oid) ? chains.get(oid).get(year) : null;
+        final boolean consolidated = (chain == null || chain.isFull());
+        if (chain != null && consolidated) {
+          if (chain._blocks == null) {
+            chain = loaded.get(oid).get(year);
+          }
+          for (HistoricalTimeSeriesPointBlock block : chain._blocks) {
+            builder.addAll(block);
+          }
+        }
+        final HistoricalTimeSeriesPointBlock block = builder.build();
+        final byte[] bytes = block.encode();
+        final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+          .addValue("doc_oid", oid)
+          .addValue("block_year", year)
+          .addValue("chain_seq", chain != null ? chain._maxSeq + 1 : 1)
+          .addValue("consolidated", consolidated ? 1 : 0)
+          .addValue("corr_instant", nowTS)
+          .addDate("max_point_date", LocalDateToIntConverter.convertToLocalDate(block.getMaxDate()))
+          .addValue("point_count", block.size())
+          .addValue("point_data", new SqlLobValue(bytes, lobHandler), Types.BLOB);
+        argsList.add(args);
+      }
+    }
+    final String sqlInsert = getElSqlBundle().getSql("InsertPointBlock");
+    getJdbcTemplate().batchUpdate(sqlInsert, argsList.toArray(new DbMapSqlParameterSource[argsList.size()]));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * The current chain of rows of a block.
+   */
+  protected static final class BlockChain {
+    /**
+     * The sequence number of the consolidated row starting the chain.
+     */
+    private final int _baseSeq;
+    /**
+     * The sequence number of the last row of the chain.
+     */
+    private final int _maxSeq;
+    /**
+     * The latest date of any point ever written, including removals.
+     */
+    private final int _maxPointDate;
+    /**
+     * The blocks of the chain in order, null if not loaded.
+     */
+    private final List<HistoricalTimeSeriesPointBlock> _blocks;
+
+    BlockChain(int baseSeq, int maxSeq, int maxPointDate, List<HistoricalTimeSeriesPointBlock> blocks) {
+      _baseSeq = baseSeq;
+      _maxSeq = maxSeq;
+      _maxPointDate = maxPointDate;
+      _blocks = blocks;
+    }
+
+    /**
+     * Checks whether the next row must start a new chain.
+     *
+     * @return true if the chain is full
+     */
+    boolean isFull() {
+      return _maxSeq - _baseSeq + 1 >= CHAIN_LENGTH;
+    }
+
+    /**
+     * Gets the version instant at which a date was first written.
+     *
+     * @param date  the date as a {@code yyyymmdd} integer
+     * @return the version instant, null if never written
+     */
+    Instant findVersionInstant(int date) {
+      Instant result = null;
+      for (HistoricalTimeSeriesPointBlock block : _blocks) {
+        final Instant ver = block.findVersionInstant(date);
+        if (ver != null && (result == null || ver.isBefore(result))) {
+          result = ver;
+        }
+      }
+      return result;
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Mapper from SQL rows ordered by series, year and sequence to the blocks of each series.
+   */
+  protected final class PointBlocksExtractor implements ResultSetExtractor<Map<Long, List<HistoricalTimeSeriesPointBlock>>> {
+    @Override
+    public Map<Long, List<HistoricalTimeSeriesPointBlock>> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final LobHandler lob = getDialect().getLobHandler();
+      final Map<Long, List<HistoricalTimeSeriesPointBlock>> result = new HashMap<Long, List<HistoricalTimeSeriesPointBlock>>();
+      while (rs.next()) {
+        final long oid = rs.getLong("DOC_OID");
+        List<HistoricalTimeSeriesPointBlock> blocks = result.get(oid);
+        if (blocks == null) {
+          blocks = new ArrayList<HistoricalTimeSeriesPointBlock>();
+          result.put(oid, blocks);
+        }
+        blocks.add(HistoricalTimeSeriesPointBlock.decode(lob.getBlobAsBytes(rs, "POINT_DATA")));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Mapper from SQL rows to the chains of each series and year.
+   */
+  protected final class BlockChainsExtractor implements ResultSetExtractor<Map<Long, Map<Integer, BlockChain>>> {
+    private final boolean _withBlocks;
+    public BlockChainsExtractor(final boolean withBlocks) {
+      _withBlocks = withBlocks;
+    }
+    @Override
+    public Map<Long, Map<Integer, BlockChain>> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final LobHandler lob = getDialect().getLobHandler();
+      final Map<Long, Map<Integer, BlockChain>> result = new HashMap<Long, Map<Integer, BlockChain>>();
+      while (rs.next()) {
+        final long oid = rs.getLong("DOC_OID");
+        final int year = rs.getInt("BLOCK_YEAR");
+        Map<Integer, BlockChain> oidChains = result.get(oid);
+        if (oidChains == null) {
+          oidChains = new HashMap<Integer, BlockChain>();
+          result.put(oid, oidChains);
+        }
+        final int maxPointDate = LocalDateToIntConverter.convertToInt(DbDateUtils.fromSqlDateAllowNull(rs.getDate("MAX_POINT_DATE")));
+        if (_withBlocks) {
+          // one row per chain row, in sequence order
+          final int seq = rs.getInt("CHAIN_SEQ");
+          final HistoricalTimeSeriesPointBlock block = HistoricalTimeSeriesPointBlock.decode(lob.getBlobAsBytes(rs, "POINT_DATA"));
+          final BlockChain chain = oidChains.get(year);
+          final List<HistoricalTimeSeriesPointBlock> blocks = (chain != null ? chain._blocks : new ArrayList<HistoricalTimeSeriesPointBlock>());
+          blocks.add(block);
+          oidChains.put(year, new BlockChain(chain != null ? chain._baseSeq : seq, seq, Math.max(maxPointDate, chain != null ? chain._maxPointDate : 0), blocks));
+        } else {
+          // one row per chain
+          oidChains.put(year, new BlockChain(rs.getInt("BASE_CHAIN_SEQ"), rs.getInt("MAX_CHAIN_SEQ"), maxPointDate, null));
+        }
+      }
+      return result;
+    }
+  }
+
+}
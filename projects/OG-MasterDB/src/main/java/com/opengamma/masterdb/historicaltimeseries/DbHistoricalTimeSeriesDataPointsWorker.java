@@ -11,6 +11,10 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -26,10 +30,12 @@ import org.threeten.bp.Duration;
 import org.threeten.bp.Instant;
 import org.threeten.bp.LocalDate;
 
+import com.google.common.collect.Maps;
 import com.opengamma.DataNotFoundException;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.change.ChangeType;
 import com.opengamma.elsql.ElSqlBundle;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.ObjectIdentifiable;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
@@ -39,6 +45,7 @@ import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
 import com.opengamma.masterdb.AbstractDbMaster;
 import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateToIntConverter;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.db.DbDateUtils;
 import com.opengamma.util.db.DbMapSqlParameterSource;
@@ -66,6 +73,10 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
    * The prefix used for data point unique identifiers.
    */
   protected static final String DATA_POINT_PREFIX = "DP";
+  /**
+   * The maximum number of time-series loaded by each query of a bulk get.
+   */
+  protected static final int BULK_BATCH_SIZE = 1000;
 
   /**
    * The master.
@@ -165,6 +176,116 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     return result;
   }
     
+  /**
+   * Gets the data points of several time-series.
+   * <p>
+   * The versions and the data points are each loaded by a single query per batch of
+   * {@link #BULK_BATCH_SIZE} series, rather than by queries for each series.
+   * A filter limiting the number of points is applied one series at a time.
+   *
+   * @param objectIds  the time-series object identifiers, not null
+   * @param versionCorrection  the version-correction locator to search at, not null
+   * @param filter  the time-series subset filter, not null
+   * @return the time-series keyed by object identifier, omitting those that never existed, not null
+   */
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(Collection<ObjectId> objectIds, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    ArgumentChecker.noNulls(objectIds, "objectIds");
+    ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    ArgumentChecker.notNull(filter, "filter");
+    final Map<ObjectId, ManageableHistoricalTimeSeries> result = Maps.newHashMapWithExpectedSize(objectIds.size());
+    if (filter.getMaxPoints() != null) {
+      for (ObjectId objectId : objectIds) {
+        try {
+          result.put(objectId, getTimeSeries(objectId, versionCorrection, filter));
+        } catch (DataNotFoundException ex) {
+          // missing from the map
+        }
+      }
+      return result;
+    }
+    final VersionCorrection vc = versionCorrection.withLatestFixed(now());
+    final boolean emptyRange = filter.getLatestDate() != null && filter.getEarliestDate() != null && filter.getLatestDate().isBefore(filter.getEarliestDate());
+    final Map<Long, ObjectId> batch = new LinkedHashMap<Long, ObjectId>();
+    for (ObjectId objectId : objectIds) {
+      checkScheme(objectId);
+      batch.put(extractOid(objectId), objectId);
+      if (batch.size() == BULK_BATCH_SIZE) {
+        getTimeSeriesBatch(batch, vc, filter, emptyRange, result);
+        batch.clear();
+      }
+    }
+    if (batch.size() > 0) {
+      getTimeSeriesBatch(batch, vc, filter, emptyRange, result);
+    }
+    return result;
+  }
+
+  /**
+   * Loads a batch of time-series for the bulk get.
+   *
+   * @param batch  the requested object identifiers keyed by object row id, not empty, not null
+   * @param vc  the version-correction locator with the latest fixed, not null
+   * @param filter  the time-series subset filter without a maximum number of points, not null
+   * @param emptyRange  whether the filter excludes all dates
+   * @param result  the map to add the time-series to, not null
+   */
+  private void getTimeSeriesBatch(Map<Long, ObjectId> batch, VersionCorrection vc, HistoricalTimeSeriesGetFilter filter, boolean emptyRange,
+      Map<ObjectId, ManageableHistoricalTimeSeries> result) {
+    final DbMapSqlParameterSource args = new DbMapSqlParameterSource()
+      .addValue("sql_search_object_ids", toSqlObjectIds(batch.keySet()))
+      .addTimestamp("version_as_of_instant", vc.getVersionAsOf())
+      .addTimestamp("corrected_to_instant", vc.getCorrectedTo())
+      .addValue("start_date", DbDateUtils.toSqlDateNullFarPast(filter.getEarliestDate()))
+      .addValue("end_date", DbDateUtils.toSqlDateNullFarFuture(filter.getLatestDate()));
+    final NamedParameterJdbcOperations namedJdbc = getDbConnector().getJdbcTemplate();
+
+    // Get version metadata from the data-points of all the series at once
+    final String sqlVersion = getElSqlBundle().getSql("SelectMultipleDataPointsVersion", args);
+    final Map<Long, ManageableHistoricalTimeSeries> found = namedJdbc.query(sqlVersion, args, new ManageableHTSMapExtractor());
+    for (Map.Entry<Long, ObjectId> entry : batch.entrySet()) {
+      ManageableHistoricalTimeSeries hts = found.get(entry.getKey());
+      if (hts == null) {
+        // No data-points were found, which is rare, so check the time-series doc exists or existed one at a time
+        final DbMapSqlParameterSource existsArgs = new DbMapSqlParameterSource()
+          .addValue("doc_oid", entry.getKey())
+          .addTimestamp("version_as_of_instant", vc.getVersionAsOf())
+          .addTimestamp("corrected_to_instant", vc.getCorrectedTo());
+        final String sqlExists = getElSqlBundle().getSql("SelectExistential", existsArgs);
+        hts = namedJdbc.query(sqlExists, existsArgs, new ManageableHTSExtractor(entry.getKey()));
+        if (hts == null) {
+          continue;  // never existed
+        }
+      }
+      hts.setTimeSeries(ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES);
+      result.put(entry.getValue(), hts);
+    }
+    if (found.isEmpty() || emptyRange) {
+      return;
+    }
+
+    // Get the data points of all the series at once, ordered by series
+    final String sqlPoints = getElSqlBundle().getSql("SelectMultipleDataPoints", args);
+    final Map<Long, LocalDateDoubleTimeSeries> points = namedJdbc.query(sqlPoints, args, new MultipleDataPointsExtractor());
+    for (Map.Entry<Long, LocalDateDoubleTimeSeries> entry : points.entrySet()) {
+      result.get(batch.get(entry.getKey())).setTimeSeries(entry.getValue());
+    }
+  }
+
+  /**
+   * Creates the inlined SQL list of object row ids for an {@code IN} clause.
+   *
+   * @param oids  the object row ids, not empty, not null
+   * @return the SQL list, not null
+   */
+  protected String toSqlObjectIds(Collection<Long> oids) {
+    final StringBuilder buf = new StringBuilder(oids.size() * 10);
+    for (Long oid : oids) {
+      buf.append(oid).append(", ");
+    }
+    buf.setLength(buf.length() - 2);
+    return buf.toString();
+  }
+
   //-------------------------------------------------------------------------
   public UniqueId updateTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
     ArgumentChecker.notNull(objectId, "objectId");
@@ -187,6 +308,51 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     return result.getFirst();
   }
 
+  /**
+   * Adds data points to the end of several time-series at once.
+   * <p>
+   * This is intended for the daily load of many series.
+   * The points of all the series are inserted in a single transaction.
+   * 
+   * @param series  the data points to add keyed by time-series object identifier, not null
+   * @return the unique identifiers of the time-series after the update keyed by object identifier, not null
+   */
+  public Map<ObjectId, UniqueId> updateTimeSeriesDataPoints(final Map<ObjectId, LocalDateDoubleTimeSeries> series) {
+    ArgumentChecker.notNull(series, "series");
+    ArgumentChecker.noNulls(series.keySet(), "series.keySet()");
+    ArgumentChecker.noNulls(series.values(), "series.values()");
+    s_logger.debug("add time-series data points to {} time-series", series.size());
+
+    final Map<ObjectId, UniqueId> uniqueIds = new LinkedHashMap<ObjectId, UniqueId>();
+    for (ObjectId objectId : series.keySet()) {
+      uniqueIds.put(objectId, resolveObjectId(objectId, VersionCorrection.LATEST));
+    }
+    Pair<Map<ObjectId, UniqueId>, Instant> result = getTransactionTemplateRetrying(getMaxRetries()).execute(new TransactionCallback<Pair<Map<ObjectId, UniqueId>, Instant>>() {
+      @Override
+      public Pair<Map<ObjectId, UniqueId>, Instant> doInTransaction(final TransactionStatus status) {
+        final Instant now = now();
+        final Map<ObjectId, UniqueId> updated = new LinkedHashMap<ObjectId, UniqueId>();
+        final List<DbMapSqlParameterSource> argsList = new ArrayList<DbMapSqlParameterSource>();
+        for (Map.Entry<ObjectId, UniqueId> entry : uniqueIds.entrySet()) {
+          final LocalDateDoubleTimeSeries points = series.get(entry.getKey());
+          if (points.isEmpty() == false) {
+            insertDataPointsCheckMaxDate(entry.getValue(), points);
+            argsList.addAll(createDataPointsArgs(entry.getValue(), points, now));
+            updated.put(entry.getKey(), createTimeSeriesUniqueId(extractOid(entry.getValue()), now, now));
+          }
+        }
+        final String sqlInsert = getElSqlBundle().getSql("InsertDataPoint");
+        getJdbcTemplate().batchUpdate(sqlInsert, argsList.toArray(new DbMapSqlParameterSource[argsList.size()]));
+        return Pair.of(updated, now);
+      }
+    });
+    for (ObjectId objectId : result.getFirst().keySet()) {
+      getMaster().changeManager().entityChanged(ChangeType.CHANGED, objectId, null, null, result.getSecond());
+    }
+    uniqueIds.putAll(result.getFirst());
+    return uniqueIds;
+  }
+
   /**
    * Checks the data points can be inserted.
    * 
@@ -221,6 +387,21 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
    * @return the unique identifier, not null
    */
   protected UniqueId insertDataPoints(final UniqueId uniqueId, final LocalDateDoubleTimeSeries series, final Instant now) {
+    final List<DbMapSqlParameterSource> argsList = createDataPointsArgs(uniqueId, series, now);
+    final String sqlInsert = getElSqlBundle().getSql("InsertDataPoint");
+    getJdbcTemplate().batchUpdate(sqlInsert, argsList.toArray(new DbMapSqlParameterSource[argsList.size()]));
+    return createTimeSeriesUniqueId(extractOid(uniqueId), now, now);
+  }
+
+  /**
+   * Creates the arguments to insert the data points.
+   * 
+   * @param uniqueId  the unique identifier, not null
+   * @param series  the time-series data points, not null
+   * @param now  the current instant, not null
+   * @return the arguments for each data point, not null
+   */
+  protected List<DbMapSqlParameterSource> createDataPointsArgs(final UniqueId uniqueId, final LocalDateDoubleTimeSeries series, final Instant now) {
     final Long docOid = extractOid(uniqueId);
     final Timestamp nowTS = DbDateUtils.toSqlTimestamp(now);
     final List<DbMapSqlParameterSource> argsList = new ArrayList<DbMapSqlParameterSource>();
@@ -238,9 +419,7 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
         .addValue("point_value", value);
       argsList.add(args);
     }
-    final String sqlInsert = getElSqlBundle().getSql("InsertDataPoint");
-    getJdbcTemplate().batchUpdate(sqlInsert, argsList.toArray(new DbMapSqlParameterSource[argsList.size()]));
-    return createTimeSeriesUniqueId(docOid, now, now);
+    return argsList;
   }
 
   //-------------------------------------------------------------------------
@@ -441,6 +620,53 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     }
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Mapper from SQL rows ordered by series and date to a LocalDateDoubleTimeSeries for each series.
+   * <p>
+   * The rows are streamed into primitive arrays, without creating objects for each point.
+   */
+  protected final class MultipleDataPointsExtractor implements ResultSetExtractor<Map<Long, LocalDateDoubleTimeSeries>> {
+    @Override
+    public Map<Long, LocalDateDoubleTimeSeries> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final Map<Long, LocalDateDoubleTimeSeries> result = new HashMap<Long, LocalDateDoubleTimeSeries>();
+      int[] dates = new int[256];
+      double[] values = new double[256];
+      int size = 0;
+      Long oid = null;
+      int last = 0;
+      while (rs.next()) {
+        long rowOid = rs.getLong("DOC_OID");
+        int date = LocalDateToIntConverter.convertToInt(DbDateUtils.fromSqlDateAllowNull(rs.getDate("POINT_DATE")));
+        if (oid == null || oid != rowOid) {
+          if (oid != null) {
+            result.put(oid, ImmutableLocalDateDoubleTimeSeries.of(Arrays.copyOf(dates, size), Arrays.copyOf(values, size)));
+          }
+          oid = rowOid;
+          size = 0;
+        } else if (date == last) {
+          // The data points query should return no more than one value per date
+          throw new OpenGammaRuntimeException("Unexpected duplicate data point entry");
+        }
+        last = date;
+        double value = rs.getDouble("POINT_VALUE");
+        if (rs.wasNull() == false) {
+          if (size == dates.length) {
+            dates = Arrays.copyOf(dates, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+          }
+          dates[size] = date;
+          values[size] = value;
+          size++;
+        }
+      }
+      if (oid != null) {
+        result.put(oid, ImmutableLocalDateDoubleTimeSeries.of(Arrays.copyOf(dates, size), Arrays.copyOf(values, size)));
+      }
+      return result;
+    }
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Mapper from SQL rows to a UniqueId.
@@ -494,5 +720,29 @@ public class DbHistoricalTimeSeriesDataPointsWorker extends AbstractDbMaster {
     }
   }
 
+  //-------------------------------------------------------------------------
+  /**
+   * Mapper from SQL rows to a ManageableHistoricalTimeSeries for each object row id.
+   */
+  protected final class ManageableHTSMapExtractor implements ResultSetExtractor<Map<Long, ManageableHistoricalTimeSeries>> {
+    @Override
+    public Map<Long, ManageableHistoricalTimeSeries> extractData(final ResultSet rs) throws SQLException, DataAccessException {
+      final Map<Long, ManageableHistoricalTimeSeries> result = new HashMap<Long, ManageableHistoricalTimeSeries>();
+      while (rs.next()) {
+        long oid = rs.getLong("DOC_OID");
+        Timestamp ver = rs.getTimestamp("max_ver_instant");
+        Timestamp corr = rs.getTimestamp("max_corr_instant");
+        Instant verInstant = ver != null ? DbDateUtils.fromSqlTimestamp(ver) : null;
+        Instant corrInstant = (corr != null ? DbDateUtils.fromSqlTimestamp(corr) : verInstant);
+        ManageableHistoricalTimeSeries hts = new ManageableHistoricalTimeSeries();
+        hts.setUniqueId(createTimeSeriesUniqueId(oid, verInstant, corrInstant));
+        hts.setVersionInstant(verInstant);
+        hts.setCorrectionInstant(corrInstant);
+        result.put(oid, hts);
+      }
+      return result;
+    }
+  }
+
 
 }
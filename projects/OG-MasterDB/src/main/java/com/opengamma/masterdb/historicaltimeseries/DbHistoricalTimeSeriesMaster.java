@@ -9,7 +9,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -69,6 +71,9 @@ import com.opengamma.util.paging.Paging;
  * Alternate databases or specific SQL requirements can be handled using database
  * specific overrides, such as {@code DbHistoricalTimeSeriesMaster-MySpecialDB.elsql}.
  * <p>
+ * The data points are stored either one row per point, or in blocks of points
+ * using {@link DbHistoricalTimeSeriesBlockDataPointsWorker}, as chosen on creation.
+ * <p>
  * This class is mutable but must be treated as immutable after configuration.
  */
 public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<HistoricalTimeSeriesInfoDocument> implements HistoricalTimeSeriesMaster {
@@ -124,11 +129,21 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
   private Timer _removePointsTimer = new Timer();
   
   /**
-   * Creates an instance.
+   * Creates an instance storing the data points one row per point.
    *
    * @param dbConnector  the database connector, not null
    */
   public DbHistoricalTimeSeriesMaster(final DbConnector dbConnector) {
+    this(dbConnector, false);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param dbConnector  the database connector, not null
+   * @param blockStorage  whether to store the data points in blocks rather than one row per point
+   */
+  public DbHistoricalTimeSeriesMaster(final DbConnector dbConnector, final boolean blockStorage) {
     super(dbConnector, IDENTIFIER_SCHEME_DEFAULT);
     setElSqlBundle(ElSqlBundle.of(dbConnector.getDialect().getElSqlConfig(), DbHistoricalTimeSeriesMaster.class));
     _nameTable = new NamedDimensionDbTable(dbConnector, "name", "hts_name", "hts_dimension_seq");
@@ -136,7 +151,7 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
     _dataSourceTable = new NamedDimensionDbTable(dbConnector, "data_source", "hts_data_source", "hts_dimension_seq");
     _dataProviderTable = new NamedDimensionDbTable(dbConnector, "data_provider", "hts_data_provider", "hts_dimension_seq");
     _observationTimeTable = new NamedDimensionDbTable(dbConnector, "observation_time", "hts_observation_time", "hts_dimension_seq");
-    _dataPointsWorker = new DbHistoricalTimeSeriesDataPointsWorker(this);
+    _dataPointsWorker = (blockStorage ? new DbHistoricalTimeSeriesBlockDataPointsWorker(this) : new DbHistoricalTimeSeriesDataPointsWorker(this));
   }
 
   @Override
@@ -471,6 +486,12 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
     }
   }
 
+  public Map<ObjectId, ManageableHistoricalTimeSeries> getTimeSeries(Collection<ObjectId> objectIds, VersionCorrection versionCorrection, HistoricalTimeSeriesGetFilter filter) {
+    try (Timer.Context context = _getTimeSeriesTimer.time()) {
+      return getDataPointsWorker().getTimeSeries(objectIds, versionCorrection, filter);
+    }
+  }
+
   //-------------------------------------------------------------------------
 
   @Override
@@ -480,6 +501,22 @@ public class DbHistoricalTimeSeriesMaster extends AbstractDocumentDbMaster<Histo
     }
   }
 
+  /**
+   * Adds data points to the end of several time-series at once.
+   * <p>
+   * This is intended for the daily load of many series, and is more efficient
+   * than calling {@link #updateTimeSeriesDataPoints(ObjectIdentifiable, LocalDateDoubleTimeSeries)}
+   * for each series. All the series are updated in a single transaction.
+   *
+   * @param series  the data points to add keyed by time-series object identifier, not null
+   * @return the unique identifiers of the time-series after the update keyed by object identifier, not null
+   */
+  public Map<ObjectId, UniqueId> updateTimeSeriesDataPoints(final Map<ObjectId, LocalDateDoubleTimeSeries> series) {
+    try (Timer.Context context = _updatePointsTimer.time()) {
+      return getDataPointsWorker().updateTimeSeriesDataPoints(series);
+    }
+  }
+
   @Override
   public UniqueId correctTimeSeriesDataPoints(final ObjectIdentifiable objectId, final LocalDateDoubleTimeSeries series) {
     try (Timer.Context context = _correctPointsTimer.time()) {
@@ -0,0 +1,380 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.threeten.bp.Instant;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * A block of time-series data points, as stored in a single row of the block storage.
+ * <p>
+ * Each point holds the date, the value, and the version and correction instants
+ * at which it was written, exactly as a row of the {@code hts_point} table.
+ * A null value indicates that the point was removed.
+ * The dates are held as {@code yyyymmdd} integers.
+ * <p>
+ * The points are sorted by date and then correction instant.
+ * The binary form holds each distinct instant only once, as the points written
+ * together share the same instants.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class HistoricalTimeSeriesPointBlock {
+
+  /**
+   * The version of the binary format.
+   */
+  private static final byte FORMAT_VERSION = 1;
+  /**
+   * An empty block.
+   */
+  public static final HistoricalTimeSeriesPointBlock EMPTY = new HistoricalTimeSeriesPointBlock(
+      new Instant[0], new int[0], new int[0], new int[0], new double[0], new boolean[0]);
+
+  /**
+   * The distinct instants referred to by the points.
+   */
+  private final Instant[] _instants;
+  /**
+   * The dates.
+   */
+  private final int[] _dates;
+  /**
+   * The index of the version instant of each point.
+   */
+  private final int[] _versionIndices;
+  /**
+   * The index of the correction instant of each point.
+   */
+  private final int[] _correctionIndices;
+  /**
+   * The values.
+   */
+  private final double[] _values;
+  /**
+   * Whether each point is a removal.
+   */
+  private final boolean[] _removed;
+
+  /**
+   * Creates an instance, without copying the arrays.
+   */
+  private HistoricalTimeSeriesPointBlock(Instant[] instants, int[] dates, int[] versionIndices, int[] correctionIndices, double[] values, boolean[] removed) {
+    _instants = instants;
+    _dates = dates;
+    _versionIndices = versionIndices;
+    _correctionIndices = correctionIndices;
+    _values = values;
+    _removed = removed;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Decodes a block from its binary form.
+   *
+   * @param data  the binary form, not null
+   * @return the block, not null
+   */
+  public static HistoricalTimeSeriesPointBlock decode(byte[] data) {
+    ArgumentChecker.notNull(data, "data");
+    try {
+      ByteBuffer buf = ByteBuffer.wrap(data);
+      byte format = buf.get();
+      if (format != FORMAT_VERSION) {
+        throw new OpenGammaRuntimeException("Unknown time-series point block format: " + format);
+      }
+      Instant[] instants = new Instant[buf.getInt()];
+      for (int i = 0; i < instants.length; i++) {
+        instants[i] = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
+      }
+      int size = buf.getInt();
+      int[] dates = new int[size];
+      int[] versionIndices = new int[size];
+      int[] correctionIndices = new int[size];
+      double[] values = new double[size];
+      boolean[] removed = new boolean[size];
+      for (int i = 0; i < size; i++) {
+        dates[i] = buf.getInt();
+        versionIndices[i] = buf.getInt();
+        correctionIndices[i] = buf.getInt();
+        removed[i] = buf.get() != 0;
+        values[i] = buf.getDouble();
+      }
+      return new HistoricalTimeSeriesPointBlock(instants, dates, versionIndices, correctionIndices, values, removed);
+    } catch (BufferUnderflowException ex) {
+      throw new OpenGammaRuntimeException("Truncated time-series point block", ex);
+    }
+  }
+
+  /**
+   * Encodes this block to its binary form.
+   *
+   * @return the binary form, not null
+   */
+  public byte[] encode() {
+    int size = _dates.length;
+    ByteBuffer buf = ByteBuffer.allocate(1 + 4 + _instants.length * 12 + 4 + size * 21);
+    buf.put(FORMAT_VERSION);
+    buf.putInt(_instants.length);
+    for (Instant instant : _instants) {
+      buf.putLong(instant.getEpochSecond());
+      buf.putInt(instant.getNano());
+    }
+    buf.putInt(size);
+    for (int i = 0; i < size; i++) {
+      buf.putInt(_dates[i]);
+      buf.putInt(_versionIndices[i]);
+      buf.putInt(_correctionIndices[i]);
+      buf.put(_removed[i] ? (byte) 1 : (byte) 0);
+      buf.putDouble(_values[i]);
+    }
+    return buf.array();
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of points.
+   *
+   * @return the number of points
+   */
+  public int size() {
+    return _dates.length;
+  }
+
+  /**
+   * Gets the date of a point.
+   *
+   * @param index  the point index
+   * @return the date as a {@code yyyymmdd} integer
+   */
+  public int getDate(int index) {
+    return _dates[index];
+  }
+
+  /**
+   * Gets the instant at which a point was first written.
+   *
+   * @param index  the point index
+   * @return the version instant, not null
+   */
+  public Instant getVersionInstant(int index) {
+    return _instants[_versionIndices[index]];
+  }
+
+  /**
+   * Gets the instant at which a point was last corrected.
+   *
+   * @param index  the point index
+   * @return the correction instant, not null
+   */
+  public Instant getCorrectionInstant(int index) {
+    return _instants[_correctionIndices[index]];
+  }
+
+  /**
+   * Checks whether a point records the removal of the date.
+   *
+   * @param index  the point index
+   * @return true if removed
+   */
+  public boolean isRemoved(int index) {
+    return _removed[index];
+  }
+
+  /**
+   * Gets the value of a point.
+   *
+   * @param index  the point index
+   * @return the value, NaN if removed
+   */
+  public double getValue(int index) {
+    return _values[index];
+  }
+
+  /**
+   * Gets the latest date of any point, including removals.
+   *
+   * @return the latest date as a {@code yyyymmdd} integer, zero if empty
+   */
+  public int getMaxDate() {
+    return _dates.length == 0 ? 0 : _dates[_dates.length - 1];
+  }
+
+  /**
+   * Gets the version instant at which a date was first written.
+   *
+   * @param date  the date as a {@code yyyymmdd} integer
+   * @return the earliest version instant of the date, null if the date was never written
+   */
+  public Instant findVersionInstant(int date) {
+    int index = Arrays.binarySearch(_dates, date);
+    if (index < 0) {
+      return null;
+    }
+    while (index > 0 && _dates[index - 1] == date) {
+      index--;
+    }
+    Instant result = getVersionInstant(index);
+    for (; index < _dates.length && _dates[index] == date; index++) {
+      if (getVersionInstant(index).isBefore(result)) {
+        result = getVersionInstant(index);
+      }
+    }
+    return result;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Creates a builder for a block.
+   *
+   * @return the builder, not null
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Builder for a block.
+   * <p>
+   * Points written later for the same date, version instant and correction instant replace
+   * the earlier ones, as these can no longer be seen once the later point has been written.
+   * Points with other correction instants are kept for the queries at earlier corrections.
+   */
+  public static final class Builder {
+    private final List<Instant> _instants = new ArrayList<Instant>();
+    private final Map<Instant, Integer> _instantIndices = new HashMap<Instant, Integer>();
+    private int[] _dates = new int[16];
+    private int[] _versionIndices = new int[16];
+    private int[] _correctionIndices = new int[16];
+    private double[] _values = new double[16];
+    private boolean[] _removed = new boolean[16];
+    private int _size;
+
+    private Builder() {
+    }
+
+    /**
+     * Adds a point.
+     *
+     * @param date  the date as a {@code yyyymmdd} integer
+     * @param versionInstant  the version instant, not null
+     * @param correctionInstant  the correction instant, not null
+     * @param value  the value, null if the point is a removal
+     * @return this, for chaining, not null
+     */
+    public Builder add(int date, Instant versionInstant, Instant correctionInstant, Double value) {
+      if (_size == _dates.length) {
+        _dates = Arrays.copyOf(_dates, _size * 2);
+        _versionIndices = Arrays.copyOf(_versionIndices, _size * 2);
+        _correctionIndices = Arrays.copyOf(_correctionIndices, _size * 2);
+        _values = Arrays.copyOf(_values, _size * 2);
+        _removed = Arrays.copyOf(_removed, _size * 2);
+      }
+      _dates[_size] = date;
+      _versionIndices[_size] = indexOf(versionInstant);
+      _correctionIndices[_size] = indexOf(correctionInstant);
+      _values[_size] = (value != null ? value : Double.NaN);
+      _removed[_size] = (value == null);
+      _size++;
+      return this;
+    }
+
+    /**
+     * Adds all the points of a block.
+     *
+     * @param block  the block to add, not null
+     * @return this, for chaining, not null
+     */
+    public Builder addAll(HistoricalTimeSeriesPointBlock block) {
+      for (int i = 0; i < block.size(); i++) {
+        add(block.getDate(i), block.getVersionInstant(i), block.getCorrectionInstant(i), block.isRemoved(i) ? null : block.getValue(i));
+      }
+      return this;
+    }
+
+    /**
+     * Gets the number of points added so far.
+     *
+     * @return the number of points
+     */
+    public int size() {
+      return _size;
+    }
+
+    /**
+     * Builds the block.
+     *
+     * @return the block, not null
+     */
+    public HistoricalTimeSeriesPointBlock build() {
+      Integer[] order = new Integer[_size];
+      for (int i = 0; i < _size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+          if (_dates[a] != _dates[b]) {
+            return _dates[a] < _dates[b] ? -1 : 1;
+          }
+          int cmp = _instants.get(_correctionIndices[a]).compareTo(_instants.get(_correctionIndices[b]));
+          return cmp != 0 ? cmp : Integer.compare(a, b);
+        }
+      });
+      int[] dates = new int[_size];
+      int[] versionIndices = new int[_size];
+      int[] correctionIndices = new int[_size];
+      double[] values = new double[_size];
+      boolean[] removed = new boolean[_size];
+      int size = 0;
+      for (int i = 0; i < _size; i++) {
+        int index = order[i];
+        // drop the point if a later one has the same date, version instant and correction instant
+        boolean superseded = false;
+        for (int j = i + 1; j < _size && _dates[order[j]] == _dates[index]; j++) {
+          if (_versionIndices[order[j]] == _versionIndices[index] && _correctionIndices[order[j]] == _correctionIndices[index]) {
+            superseded = true;
+            break;
+          }
+        }
+        if (superseded == false) {
+          dates[size] = _dates[index];
+          versionIndices[size] = _versionIndices[index];
+          correctionIndices[size] = _correctionIndices[index];
+          values[size] = _values[index];
+          removed[size] = _removed[index];
+          size++;
+        }
+      }
+      return new HistoricalTimeSeriesPointBlock(_instants.toArray(new Instant[_instants.size()]),
+          Arrays.copyOf(dates, size), Arrays.copyOf(versionIndices, size), Arrays.copyOf(correctionIndices, size),
+          Arrays.copyOf(values, size), Arrays.copyOf(removed, size));
+    }
+
+    private int indexOf(Instant instant) {
+      ArgumentChecker.notNull(instant, "instant");
+      Integer index = _instantIndices.get(instant);
+      if (index == null) {
+        index = _instants.size();
+        _instants.add(instant);
+        _instantIndices.put(instant, index);
+      }
+      return index;
+    }
+  }
+
+}
@@ -0,0 +1,19 @@
+START TRANSACTION;
+
+  -- update the version
+  UPDATE hts_schema_version SET version_value='46' WHERE version_key='schema_patch';
+
+  -- add the alternative block storage of the data points
+  CREATE TABLE hts_point_block (
+      doc_oid bigint NOT NULL,
+      block_year int NOT NULL,
+      chain_seq int NOT NULL,
+      consolidated smallint NOT NULL,
+      corr_instant timestamp without time zone NOT NULL,
+      max_point_date date NOT NULL,
+      point_count int NOT NULL,
+      point_data blob NOT NULL,
+      PRIMARY KEY (doc_oid, block_year, chain_seq)
+  );
+
+COMMIT;
@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Factory;
+import org.testng.annotations.Test;
+import org.threeten.bp.Clock;
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.ZoneOffset;
+
+import com.opengamma.DataNotFoundException;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
+import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
+import com.opengamma.util.test.DbTest;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Tests DbHistoricalTimeSeriesMaster with block storage of data points.
+ */
+@Test(groups = TestGroup.UNIT_DB)
+public class DbHistoricalTimeSeriesMasterWorkerBlockStorageTest extends AbstractDbHistoricalTimeSeriesMasterWorkerTest {
+  // superclass sets up dummy database
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DbHistoricalTimeSeriesMasterWorkerBlockStorageTest.class);
+  private static final ObjectId ROW_OID = ObjectId.of("DbHts", "DP102");
+  private static final ObjectId BLOCK_OID = ObjectId.of("DbHts", "DP201");
+
+  private DbHistoricalTimeSeriesMaster _rowMaster;
+
+  @Factory(dataProvider = "databases", dataProviderClass = DbTest.class)
+  public DbHistoricalTimeSeriesMasterWorkerBlockStorageTest(String databaseType, String databaseVersion) {
+    super(databaseType, databaseVersion);
+    s_logger.info("running testcases for {}", databaseType);
+  }
+
+  @Override
+  protected void doSetUp() {
+    super.doSetUp();
+    _htsMaster = new DbHistoricalTimeSeriesMaster(getDbConnector(), true);
+    _htsMaster.setClock(Clock.fixed(_now.toInstant(), ZoneOffset.UTC));
+    _rowMaster = new DbHistoricalTimeSeriesMaster(getDbConnector());
+  }
+
+  @Override
+  protected void doTearDown() {
+    _rowMaster = null;
+    super.doTearDown();
+  }
+
+  //-------------------------------------------------------------------------
+  @Test(expectedExceptions = DataNotFoundException.class)
+  public void test_update_notFoundId() {
+    _htsMaster.updateTimeSeriesDataPoints(ObjectId.of("DbHts", "DP0"), series(LocalDate.of(2011, 7, 1), 1d));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_update_beforeExistingPoints() {
+    ObjectId oid = ObjectId.of("DbHts", "DP102");
+    _htsMaster.updateTimeSeriesDataPoints(oid, series(LocalDate.of(2011, 7, 4), 1d));
+    _htsMaster.updateTimeSeriesDataPoints(oid, series(LocalDate.of(2011, 7, 1), 2d));
+  }
+
+  @Test
+  public void test_update_startsEmpty() {
+    LocalDate[] dates = {LocalDate.of(2011, 12, 30), LocalDate.of(2012, 1, 2), LocalDate.of(2012, 1, 3)};
+    double[] values = {1.1d, 2.2d, 3.3d};
+    LocalDateDoubleTimeSeries series = ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+
+    UniqueId uniqueId = _htsMaster.updateTimeSeriesDataPoints(ObjectId.of("DbHts", "DP102"), series);
+
+    ManageableHistoricalTimeSeries test = _htsMaster.getTimeSeries(uniqueId);
+    assertEquals(uniqueId, test.getUniqueId());
+    assertEquals(series, test.getTimeSeries());
+
+    ManageableHistoricalTimeSeries range = _htsMaster.getTimeSeries(uniqueId, HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2012, 1, 1), null));
+    assertEquals(series.subSeries(LocalDate.of(2012, 1, 1), true, LocalDate.of(2012, 1, 3), true), range.getTimeSeries());
+  }
+
+  @Test
+  public void test_update_manyAppends() {
+    ObjectId oid = ObjectId.of("DbHts", "DP102");
+    LocalDate date = LocalDate.of(2011, 7, 1);
+    UniqueId uniqueId = null;
+    for (int i = 0; i < 40; i++) {
+      uniqueId = _htsMaster.updateTimeSeriesDataPoints(oid, series(date.plusDays(i), i));
+    }
+    LocalDateDoubleTimeSeries test = _htsMaster.getTimeSeries(uniqueId).getTimeSeries();
+    assertEquals(40, test.size());
+    assertEquals(date, test.getEarliestTime());
+    assertEquals(39d, test.getLatestValue(), 0d);
+  }
+
+  @Test
+  public void test_correct() {
+    ObjectId oid = ObjectId.of("DbHts", "DP102");
+    LocalDate[] dates = {LocalDate.of(2011, 7, 1), LocalDate.of(2011, 7, 2), LocalDate.of(2011, 7, 4)};
+    _htsMaster.updateTimeSeriesDataPoints(oid, ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {1.1d, 2.2d, 3.3d}));
+    UniqueId uniqueId = _htsMaster.correctTimeSeriesDataPoints(oid, series(LocalDate.of(2011, 7, 2), 5.5d));
+
+    LocalDateDoubleTimeSeries expected = ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {1.1d, 5.5d, 3.3d});
+    assertEquals(expected, _htsMaster.getTimeSeries(uniqueId).getTimeSeries());
+  }
+
+  @Test
+  public void test_remove() {
+    ObjectId oid = ObjectId.of("DbHts", "DP102");
+    LocalDate[] dates = {LocalDate.of(2011, 7, 1), LocalDate.of(2011, 7, 2), LocalDate.of(2011, 7, 4)};
+    _htsMaster.updateTimeSeriesDataPoints(oid, ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {1.1d, 2.2d, 3.3d}));
+    UniqueId uniqueId = _htsMaster.removeTimeSeriesDataPoints(oid, LocalDate.of(2011, 7, 2), LocalDate.of(2011, 7, 3));
+
+    LocalDateDoubleTimeSeries expected = ImmutableLocalDateDoubleTimeSeries.of(
+        new LocalDate[] {LocalDate.of(2011, 7, 1), LocalDate.of(2011, 7, 4)}, new double[] {1.1d, 3.3d});
+    assertEquals(expected, _htsMaster.getTimeSeries(uniqueId).getTimeSeries());
+  }
+
+  @Test
+  public void test_update_multiple() {
+    Map<ObjectId, LocalDateDoubleTimeSeries> updates = new LinkedHashMap<>();
+    updates.put(ObjectId.of("DbHts", "DP102"), series(LocalDate.of(2011, 7, 1), 1d));
+    updates.put(ObjectId.of("DbHts", "DP201"), series(LocalDate.of(2011, 7, 1), 2d));
+    Map<ObjectId, UniqueId> result = _htsMaster.updateTimeSeriesDataPoints(updates);
+
+    assertEquals(updates.keySet(), result.keySet());
+    for (Map.Entry<ObjectId, UniqueId> entry : result.entrySet()) {
+      assertEquals(updates.get(entry.getKey()), _htsMaster.getTimeSeries(entry.getValue()).getTimeSeries());
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_versionCorrection_matchesRowStorage() {
+    LocalDate[] dates = {LocalDate.of(2011, 7, 1), LocalDate.of(2011, 7, 2), LocalDate.of(2011, 7, 4)};
+    List<Instant> instants = new ArrayList<>();
+    instants.add(at(1));
+    updateBoth(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {dates[0], dates[1]}, new double[] {1.1d, 2.2d}));
+    instants.add(at(2));
+    updateBoth(series(dates[2], 3.3d));
+    instants.add(at(3));
+    _rowMaster.correctTimeSeriesDataPoints(ROW_OID, series(dates[1], 5.5d));
+    _htsMaster.correctTimeSeriesDataPoints(BLOCK_OID, series(dates[1], 5.5d));
+    instants.add(at(4));
+    _rowMaster.removeTimeSeriesDataPoints(ROW_OID, dates[0], dates[0]);
+    _htsMaster.removeTimeSeriesDataPoints(BLOCK_OID, dates[0], dates[0]);
+    instants.add(at(5));
+    _rowMaster.correctTimeSeriesDataPoints(ROW_OID, series(dates[0], 7.7d));
+    _htsMaster.correctTimeSeriesDataPoints(BLOCK_OID, series(dates[0], 7.7d));
+
+    // before and after the correction of the second date
+    VersionCorrection beforeCorrection = VersionCorrection.of(instants.get(2), instants.get(1));
+    VersionCorrection afterCorrection = VersionCorrection.of(instants.get(2), instants.get(2));
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {1.1d, 2.2d, 3.3d}),
+        _htsMaster.getTimeSeries(BLOCK_OID, beforeCorrection).getTimeSeries());
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(dates, new double[] {1.1d, 5.5d, 3.3d}),
+        _htsMaster.getTimeSeries(BLOCK_OID, afterCorrection).getTimeSeries());
+    // the first version, seen after the removal but before the first date was corrected again
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {dates[1]}, new double[] {5.5d}),
+        _htsMaster.getTimeSeries(BLOCK_OID, VersionCorrection.of(instants.get(0), instants.get(3))).getTimeSeries());
+    assertMatchesRowStorage(instants);
+  }
+
+  @Test
+  public void test_versionCorrection_acrossConsolidation() {
+    LocalDate date = LocalDate.of(2011, 7, 1);
+    List<Instant> instants = new ArrayList<>();
+    // enough rows for the chain to be consolidated once
+    int count = DbHistoricalTimeSeriesBlockDataPointsWorker.CHAIN_LENGTH + 4;
+    for (int i = 0; i < count; i++) {
+      instants.add(at(i + 1));
+      if (i % 5 == 4) {
+        _rowMaster.correctTimeSeriesDataPoints(ROW_OID, series(date.plusDays(i - 4), 100d + i));
+        _htsMaster.correctTimeSeriesDataPoints(BLOCK_OID, series(date.plusDays(i - 4), 100d + i));
+      } else {
+        updateBoth(series(date.plusDays(i), i));
+      }
+    }
+    LocalDateDoubleTimeSeries latest = _htsMaster.getTimeSeries(BLOCK_OID, VersionCorrection.LATEST).getTimeSeries();
+    assertEquals(100d + 4, latest.getValue(date), 0d);
+    assertMatchesRowStorage(instants);
+  }
+
+  private Instant at(int seconds) {
+    Instant instant = _now.toInstant().plusSeconds(seconds);
+    _htsMaster.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+    _rowMaster.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+    return instant;
+  }
+
+  private void updateBoth(LocalDateDoubleTimeSeries series) {
+    _rowMaster.updateTimeSeriesDataPoints(ROW_OID, series);
+    _htsMaster.updateTimeSeriesDataPoints(BLOCK_OID, series);
+  }
+
+  private void assertMatchesRowStorage(List<Instant> instants) {
+    for (Instant version : instants) {
+      for (Instant correction : instants) {
+        if (correction.isBefore(version)) {
+          continue;
+        }
+        VersionCorrection vc = VersionCorrection.of(version, correction);
+        ManageableHistoricalTimeSeries row = _rowMaster.getTimeSeries(ROW_OID, vc);
+        ManageableHistoricalTimeSeries block = _htsMaster.getTimeSeries(BLOCK_OID, vc);
+        assertEquals(vc.toString(), row.getTimeSeries(), block.getTimeSeries());
+        assertEquals(vc.toString(), row.getVersionInstant(), block.getVersionInstant());
+        assertEquals(vc.toString(), row.getCorrectionInstant(), block.getCorrectionInstant());
+      }
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  private static LocalDateDoubleTimeSeries series(final LocalDate date, final double value) {
+    return ImmutableLocalDateDoubleTimeSeries.of(new LocalDate[] {date}, new double[] {value});
+  }
+
+}
@@ -8,6 +8,10 @@ package com.opengamma.masterdb.historicaltimeseries;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.Factory;
@@ -20,6 +24,7 @@ import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.master.historicaltimeseries.HistoricalTimeSeriesGetFilter;
 import com.opengamma.master.historicaltimeseries.ManageableHistoricalTimeSeries;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeries;
 import com.opengamma.util.test.DbTest;
 import com.opengamma.util.test.TestGroup;
@@ -266,6 +271,51 @@ public class DbHistoricalTimeSeriesMasterWorkerGetTimeSeriesTest extends Abstrac
     assertEquals(3.21d, timeSeries.getValueAtIndex(0), 0.0001d);
   }
 
+  //-------------------------------------------------------------------------
+  @Test
+  public void test_getBulk_latest() {
+    ObjectId oid101 = ObjectId.of("DbHts", "DP101");
+    ObjectId oid102 = ObjectId.of("DbHts", "DP102");
+    ObjectId oidNeverExisted = ObjectId.of("DbHts", "DP0");
+    Map<ObjectId, ManageableHistoricalTimeSeries> test = _htsMaster.getTimeSeries(
+        Arrays.asList(oid101, oid102, oidNeverExisted), VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofAll());
+    assertEquals(2, test.size());
+    assertEquals(false, test.containsKey(oidNeverExisted));
+    assertSameAsSingle(test.get(oid101), oid101, VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofAll());
+    assertEquals(3, test.get(oid101).getTimeSeries().size());
+    // a series without points is returned empty
+    assertSameAsSingle(test.get(oid102), oid102, VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofAll());
+    assertEquals(ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES, test.get(oid102).getTimeSeries());
+  }
+
+  @Test
+  public void test_getBulk_versionCorrectionAndRange() {
+    List<ObjectId> oids = Arrays.asList(ObjectId.of("DbHts", "DP101"), ObjectId.of("DbHts", "DP102"));
+    VersionCorrection vc = VersionCorrection.of(_version2Instant.plusSeconds(1), _version3Instant.plusSeconds(1));
+    for (HistoricalTimeSeriesGetFilter filter : Arrays.asList(
+        HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 2), null),
+        HistoricalTimeSeriesGetFilter.ofRange(LocalDate.of(2011, 1, 3), LocalDate.of(2011, 1, 1)),
+        HistoricalTimeSeriesGetFilter.ofLatestPoint())) {
+      Map<ObjectId, ManageableHistoricalTimeSeries> test = _htsMaster.getTimeSeries(oids, vc, filter);
+      assertEquals(2, test.size());
+      for (ObjectId oid : oids) {
+        assertSameAsSingle(test.get(oid), oid, vc, filter);
+      }
+    }
+  }
+
+  @Test
+  public void test_getBulk_empty() {
+    assertEquals(0, _htsMaster.getTimeSeries(Arrays.<ObjectId>asList(), VersionCorrection.LATEST, HistoricalTimeSeriesGetFilter.ofAll()).size());
+  }
+
+  private void assertSameAsSingle(ManageableHistoricalTimeSeries test, ObjectId oid, VersionCorrection vc, HistoricalTimeSeriesGetFilter filter) {
+    ManageableHistoricalTimeSeries expected = _htsMaster.getTimeSeries(oid, vc, filter);
+    assertNotNull(test);
+    assertEquals(expected.getUniqueId(), test.getUniqueId());
+    assertEquals(expected.getTimeSeries(), test.getTimeSeries());
+  }
+
   //-------------------------------------------------------------------------
   @Test
   public void test_toString() {
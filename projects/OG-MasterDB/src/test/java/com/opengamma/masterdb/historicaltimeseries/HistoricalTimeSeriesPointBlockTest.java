@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.masterdb.historicaltimeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+import org.threeten.bp.Instant;
+
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test {@link HistoricalTimeSeriesPointBlock}.
+ */
+@Test(groups = TestGroup.UNIT)
+public class HistoricalTimeSeriesPointBlockTest {
+
+  private static final Instant T1 = Instant.ofEpochSecond(1000000000L, 123456789);
+  private static final Instant T2 = T1.plusSeconds(10);
+  private static final Instant T3 = T1.plusSeconds(20);
+
+  private static HistoricalTimeSeriesPointBlock sample() {
+    return HistoricalTimeSeriesPointBlock.builder()
+        .add(20110704, T2, T2, 3.3d)
+        .add(20110701, T1, T1, 1.1d)
+        .add(20110702, T1, T1, 2.2d)
+        .add(20110702, T1, T2, 5.5d)
+        .add(20110701, T1, T3, null)
+        .build();
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_builder_sorted() {
+    HistoricalTimeSeriesPointBlock test = sample();
+    assertEquals(5, test.size());
+    int[] dates = new int[test.size()];
+    for (int i = 0; i < test.size(); i++) {
+      dates[i] = test.getDate(i);
+    }
+    assertEquals(Arrays.toString(new int[] {20110701, 20110701, 20110702, 20110702, 20110704}), Arrays.toString(dates));
+    assertEquals(T1, test.getCorrectionInstant(0));
+    assertEquals(1.1d, test.getValue(0), 0d);
+    assertEquals(T3, test.getCorrectionInstant(1));
+    assertEquals(true, test.isRemoved(1));
+    assertEquals(true, Double.isNaN(test.getValue(1)));
+    assertEquals(T2, test.getCorrectionInstant(3));
+    assertEquals(5.5d, test.getValue(3), 0d);
+    assertEquals(20110704, test.getMaxDate());
+  }
+
+  public void test_builder_dropsSuperseded() {
+    HistoricalTimeSeriesPointBlock test = HistoricalTimeSeriesPointBlock.builder()
+        .add(20110701, T1, T1, 1.1d)
+        .add(20110701, T1, T1, 1.2d)
+        .add(20110701, T2, T2, 1.3d)
+        .add(20110702, T1, T1, 2.2d)
+        .add(20110702, T1, T2, 2.3d)
+        .build();
+    assertEquals(4, test.size());
+    assertEquals(20110701, test.getDate(0));
+    assertEquals(T1, test.getVersionInstant(0));
+    assertEquals(1.2d, test.getValue(0), 0d);
+    assertEquals(20110701, test.getDate(1));
+    assertEquals(T2, test.getVersionInstant(1));
+    assertEquals(1.3d, test.getValue(1), 0d);
+    // a correction keeps the corrected point, seen at earlier corrections
+    assertEquals(20110702, test.getDate(2));
+    assertEquals(2.2d, test.getValue(2), 0d);
+    assertEquals(20110702, test.getDate(3));
+    assertEquals(T2, test.getCorrectionInstant(3));
+    assertEquals(2.3d, test.getValue(3), 0d);
+  }
+
+  public void test_builder_addAll() {
+    HistoricalTimeSeriesPointBlock block = sample();
+    HistoricalTimeSeriesPointBlock test = HistoricalTimeSeriesPointBlock.builder().addAll(block).build();
+    assertSamePoints(block, test);
+  }
+
+  public void test_builder_growth() {
+    HistoricalTimeSeriesPointBlock.Builder builder = HistoricalTimeSeriesPointBlock.builder();
+    for (int i = 0; i < 100; i++) {
+      builder.add(20110101 + i, T1, T1, (double) i);
+    }
+    assertEquals(100, builder.size());
+    HistoricalTimeSeriesPointBlock test = builder.build();
+    assertEquals(100, test.size());
+    assertEquals(99d, test.getValue(99), 0d);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_builder_nullInstant() {
+    HistoricalTimeSeriesPointBlock.builder().add(20110701, null, T1, 1.1d);
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_findVersionInstant() {
+    HistoricalTimeSeriesPointBlock test = HistoricalTimeSeriesPointBlock.builder()
+        .add(20110701, T2, T3, 1.2d)
+        .add(20110701, T1, T1, 1.1d)
+        .build();
+    assertEquals(T1, test.findVersionInstant(20110701));
+    assertNull(test.findVersionInstant(20110702));
+    assertNull(HistoricalTimeSeriesPointBlock.EMPTY.findVersionInstant(20110701));
+    assertEquals(0, HistoricalTimeSeriesPointBlock.EMPTY.getMaxDate());
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_encodeDecode() {
+    HistoricalTimeSeriesPointBlock block = sample();
+    HistoricalTimeSeriesPointBlock test = HistoricalTimeSeriesPointBlock.decode(block.encode());
+    assertSamePoints(block, test);
+    assertEquals(Arrays.toString(block.encode()), Arrays.toString(test.encode()));
+  }
+
+  public void test_encodeDecode_empty() {
+    HistoricalTimeSeriesPointBlock test = HistoricalTimeSeriesPointBlock.decode(HistoricalTimeSeriesPointBlock.EMPTY.encode());
+    assertEquals(0, test.size());
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void test_decode_truncated() {
+    byte[] data = sample().encode();
+    HistoricalTimeSeriesPointBlock.decode(Arrays.copyOf(data, data.length - 1));
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void test_decode_truncatedInstants() {
+    byte[] data = sample().encode();
+    HistoricalTimeSeriesPointBlock.decode(Arrays.copyOf(data, 10));
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void test_decode_empty() {
+    HistoricalTimeSeriesPointBlock.decode(new byte[0]);
+  }
+
+  @Test(expectedExceptions = OpenGammaRuntimeException.class)
+  public void test_decode_unknownFormat() {
+    byte[] data = sample().encode();
+    data[0] = 99;
+    HistoricalTimeSeriesPointBlock.decode(data);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_decode_null() {
+    HistoricalTimeSeriesPointBlock.decode(null);
+  }
+
+  //-------------------------------------------------------------------------
+  private static void assertSamePoints(HistoricalTimeSeriesPointBlock expected, HistoricalTimeSeriesPointBlock test) {
+    assertEquals(expected.size(), test.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getDate(i), test.getDate(i));
+      assertEquals(expected.getVersionInstant(i), test.getVersionInstant(i));
+      assertEquals(expected.getCorrectionInstant(i), test.getCorrectionInstant(i));
+      assertEquals(expected.isRemoved(i), test.isRemoved(i));
+      assertEquals(Double.doubleToLongBits(expected.getValue(i)), Double.doubleToLongBits(test.getValue(i)));
+    }
+  }
+
+}
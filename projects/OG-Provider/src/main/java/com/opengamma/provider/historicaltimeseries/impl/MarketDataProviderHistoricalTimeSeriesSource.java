@@ -5,6 +5,7 @@
  */
 package com.opengamma.provider.historicaltimeseries.impl;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
@@ -136,6 +137,11 @@ public abstract class MarketDataProviderHistoricalTimeSeriesSource implements Hi
     throw createUniqueIdException();
   }
 
+  @Override
+  public Map<UniqueId, HistoricalTimeSeries> getHistoricalTimeSeries(Collection<UniqueId> uniqueIds, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    throw createUniqueIdException();
+  }
+
   @Override
   public Pair<LocalDate, Double> getLatestDataPoint(UniqueId uniqueId) {
     throw createUniqueIdException();
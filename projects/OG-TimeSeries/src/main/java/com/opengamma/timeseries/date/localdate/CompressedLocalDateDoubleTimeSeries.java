@@ -0,0 +1,574 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.DoubleTimeSeriesOperators.BinaryOperator;
+import com.opengamma.timeseries.DoubleTimeSeriesOperators.UnaryOperator;
+import com.opengamma.timeseries.date.DateDoubleTimeSeries;
+
+/**
+ * Immutable implementation of {@code LocalDateDoubleTimeSeries} held in a compressed form.
+ * <p>
+ * The dates and the values are stored as two columns of a bit stream.
+ * The dates are converted to epoch days and encoded as the difference between consecutive
+ * differences, which is zero for most of the points of a daily or business daily series.
+ * The values are encoded as the XOR of consecutive values, storing only the bits between the
+ * leading and trailing zeros of the XOR, which is zero for repeated values.
+ * A long daily series of prices typically takes a few bytes per point, instead of twelve.
+ * <p>
+ * The compressed form is decoded into an {@link ImmutableLocalDateDoubleTimeSeries} the first time
+ * a date or value is accessed, and the decoded series is kept.
+ * The data can also be decoded into arrays held by the caller, without keeping it.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class CompressedLocalDateDoubleTimeSeries
+    extends AbstractLocalDateDoubleTimeSeries
+    implements LocalDateDoubleTimeSeries, Serializable {
+
+  /** Serialization version. */
+  private static final long serialVersionUID = 1L;
+  /** The version of the format. */
+  private static final int FORMAT_VERSION = 1;
+  /** The number of bytes of the header, the version and the size. */
+  private static final int HEADER_BYTES = 5;
+  /** The day number used for {@code LocalDate.MIN}. */
+  private static final long MIN_DAY = -(1L << 40);
+  /** The day number used for {@code LocalDate.MAX}. */
+  private static final long MAX_DAY = 1L << 40;
+
+  /**
+   * The compressed data.
+   */
+  private final byte[] _data;
+  /**
+   * The number of points.
+   */
+  private final int _size;
+  /**
+   * The decoded series, null until first used.
+   */
+  private transient volatile ImmutableLocalDateDoubleTimeSeries _decoded;
+
+  //-------------------------------------------------------------------------
+  /**
+   * Obtains a compressed time-series from another time-series.
+   *
+   * @param timeSeries  the time-series, not null
+   * @return the time-series, not null
+   */
+  public static CompressedLocalDateDoubleTimeSeries of(DateDoubleTimeSeries<?> timeSeries) {
+    Objects.requireNonNull(timeSeries, "timeSeries");
+    if (timeSeries instanceof CompressedLocalDateDoubleTimeSeries) {
+      return (CompressedLocalDateDoubleTimeSeries) timeSeries;
+    }
+    int[] times = timeSeries.timesArrayFast();
+    double[] values = timeSeries.valuesArrayFast();
+    return new CompressedLocalDateDoubleTimeSeries(encode(times, values), times.length);
+  }
+
+  /**
+   * Obtains a time-series from data compressed by this class.
+   *
+   * @param data  the compressed data, as returned by {@link #getCompressedData()}, not null
+   * @return the time-series, not null
+   * @throws IllegalArgumentException if the data is not in the compressed format
+   */
+  public static CompressedLocalDateDoubleTimeSeries ofCompressedData(byte[] data) {
+    Objects.requireNonNull(data, "data");
+    if (data.length < HEADER_BYTES || data[0] != FORMAT_VERSION) {
+      throw new IllegalArgumentException("Data is not a compressed time-series");
+    }
+    int size = ((data[1] & 0xff) << 24) | ((data[2] & 0xff) << 16) | ((data[3] & 0xff) << 8) | (data[4] & 0xff);
+    // each point takes at least one bit for the date and one for the value
+    if (size < 0 || (data.length - HEADER_BYTES) * 8L < size * 2L) {
+      throw new IllegalArgumentException("Data is not a compressed time-series");
+    }
+    return new CompressedLocalDateDoubleTimeSeries(data.clone(), size);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param data  the compressed data, not null
+   * @param size  the number of points
+   */
+  private CompressedLocalDateDoubleTimeSeries(byte[] data, int size) {
+    _data = data;
+    _size = size;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the compressed data.
+   *
+   * @return a copy of the compressed data, not null
+   */
+  public byte[] getCompressedData() {
+    return _data.clone();
+  }
+
+  /**
+   * Gets the number of bytes of the compressed data.
+   *
+   * @return the number of bytes
+   */
+  public int getCompressedSize() {
+    return _data.length;
+  }
+
+  /**
+   * Decodes the dates and values into arrays held by the caller.
+   * <p>
+   * The decoded series is not kept, so that a large series can be read into reused buffers.
+   *
+   * @param times  the array to receive the dates, at least as long as the series, not null
+   * @param values  the array to receive the values, at least as long as the series, not null
+   */
+  public void decodeInto(int[] times, double[] values) {
+    decodeInto(times, values, 0);
+  }
+
+  /**
+   * Decodes the dates and values into arrays held by the caller, from an index.
+   * <p>
+   * The decoded series is not kept, so that several series can be read one after the other into the same arrays.
+   *
+   * @param times  the array to receive the dates, with room for the series after the index, not null
+   * @param values  the array to receive the values, with room for the series after the index, not null
+   * @param offset  the index of the arrays receiving the first point
+   */
+  public void decodeInto(int[] times, double[] values, int offset) {
+    Objects.requireNonNull(times, "times");
+    Objects.requireNonNull(values, "values");
+    if (offset < 0 || times.length - offset < _size || values.length - offset < _size) {
+      throw new IllegalArgumentException("Arrays are smaller than the time-series: " + times.length + ", " + values.length + ", " + offset + " + " + _size);
+    }
+    ImmutableLocalDateDoubleTimeSeries decoded = _decoded;
+    if (decoded != null) {
+      System.arraycopy(decoded.timesArrayFast0(), 0, times, offset, _size);
+      System.arraycopy(decoded.valuesArrayFast0(), 0, values, offset, _size);
+    } else {
+      decode(_data, _size, times, values, offset);
+    }
+  }
+
+  /**
+   * Gets the decoded series, decoding it the first time.
+   *
+   * @return the decoded series, not null
+   */
+  private ImmutableLocalDateDoubleTimeSeries decoded() {
+    ImmutableLocalDateDoubleTimeSeries decoded = _decoded;
+    if (decoded == null) {
+      int[] times = new int[_size];
+      double[] values = new double[_size];
+      decode(_data, _size, times, values, 0);
+      decoded = new ImmutableLocalDateDoubleTimeSeries(times, values);
+      _decoded = decoded;
+    }
+    return decoded;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  int[] timesArrayFast0() {
+    return decoded().timesArrayFast0();
+  }
+
+  @Override
+  double[] valuesArrayFast0() {
+    return decoded().valuesArrayFast0();
+  }
+
+  @Override
+  LocalDateDoubleTimeSeries newInstanceFast(int[] times, double[] values) {
+    return new ImmutableLocalDateDoubleTimeSeries(times, values);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public int size() {
+    return _size;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public boolean containsTime(int date) {
+    return decoded().containsTime(date);
+  }
+
+  @Override
+  public Double getValue(int date) {
+    return decoded().getValue(date);
+  }
+
+  @Override
+  public int getTimeAtIndexFast(int index) {
+    return decoded().getTimeAtIndexFast(index);
+  }
+
+  @Override
+  public double getValueAtIndexFast(int index) {
+    return decoded().getValueAtIndexFast(index);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public int getEarliestTimeFast() {
+    return decoded().getEarliestTimeFast();
+  }
+
+  @Override
+  public double getEarliestValueFast() {
+    return decoded().getEarliestValueFast();
+  }
+
+  @Override
+  public int getLatestTimeFast() {
+    return decoded().getLatestTimeFast();
+  }
+
+  @Override
+  public double getLatestValueFast() {
+    return decoded().getLatestValueFast();
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public int[] timesArrayFast() {
+    return decoded().timesArrayFast();
+  }
+
+  @Override
+  public double[] valuesArrayFast() {
+    return decoded().valuesArrayFast();
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public LocalDateDoubleTimeSeries subSeriesFast(int startTime, int endTime) {
+    return decoded().subSeriesFast(startTime, endTime);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public LocalDateDoubleTimeSeries head(int numItems) {
+    if (numItems == size()) {
+      return this;
+    }
+    return decoded().head(numItems);
+  }
+
+  @Override
+  public LocalDateDoubleTimeSeries tail(int numItems) {
+    if (numItems == size()) {
+      return this;
+    }
+    return decoded().tail(numItems);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public ImmutableLocalDateDoubleTimeSeries newInstance(LocalDate[] dates, Double[] values) {
+    return ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public LocalDateDoubleTimeSeries operate(UnaryOperator operator) {
+    return decoded().operate(operator);
+  }
+
+  @Override
+  public LocalDateDoubleTimeSeries operate(double other, BinaryOperator operator) {
+    return decoded().operate(other, operator);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public LocalDateDoubleTimeSeriesBuilder toBuilder() {
+    return ImmutableLocalDateDoubleTimeSeries.builder().putAll(this);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Encodes the dates and values.
+   *
+   * @param times  the dates, ordered, not null
+   * @param values  the values, same size, not null
+   * @return the compressed data, not null
+   */
+  private static byte[] encode(int[] times, double[] values) {
+    int size = times.length;
+    BitWriter writer = new BitWriter(HEADER_BYTES + size * 2);
+    writer.writeBits(FORMAT_VERSION, 8);
+    writer.writeBits(size, 32);
+    // dates
+    long previousDay = 0;
+    long previousDelta = 0;
+    for (int i = 0; i < size; i++) {
+      long day = toDay(times[i]);
+      long delta = day - previousDay;
+      writer.writeDeltaOfDelta(delta - previousDelta);
+      previousDay = day;
+      previousDelta = delta;
+    }
+    // values
+    long previousBits = 0;
+    int previousLeading = -1;
+    int previousTrailing = 0;
+    for (int i = 0; i < size; i++) {
+      long bits = Double.doubleToRawLongBits(values[i]);
+      if (i == 0) {
+        writer.writeBits(bits, 64);
+        previousBits = bits;
+        continue;
+      }
+      long xor = bits ^ previousBits;
+      previousBits = bits;
+      if (xor == 0) {
+        writer.writeBit(false);
+        continue;
+      }
+      writer.writeBit(true);
+      int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+      int trailing = Long.numberOfTrailingZeros(xor);
+      if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+        // the meaningful bits fit in the window of the previous value
+        writer.writeBit(false);
+        writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+      } else {
+        int meaningful = 64 - leading - trailing;
+        writer.writeBit(true);
+        writer.writeBits(leading, 5);
+        writer.writeBits(meaningful - 1, 6);
+        writer.writeBits(xor >>> trailing, meaningful);
+        previousLeading = leading;
+        previousTrailing = trailing;
+      }
+    }
+    return writer.toByteArray();
+  }
+
+  /**
+   * Decodes the dates and values.
+   *
+   * @param data  the compressed data, not null
+   * @param size  the number of points
+   * @param times  the array to receive the dates, not null
+   * @param values  the array to receive the values, not null
+   * @param offset  the index of the arrays receiving the first point
+   */
+  private static void decode(byte[] data, int size, int[] times, double[] values, int offset) {
+    BitReader reader = new BitReader(data, HEADER_BYTES * 8);
+    // dates
+    long previousDay = 0;
+    long previousDelta = 0;
+    for (int i = 0; i < size; i++) {
+      long delta = previousDelta + reader.readDeltaOfDelta();
+      long day = previousDay + delta;
+      times[offset + i] = fromDay(day);
+      previousDay = day;
+      previousDelta = delta;
+    }
+    // values
+    long previousBits = 0;
+    int previousLeading = 0;
+    int previousTrailing = 0;
+    for (int i = 0; i < size; i++) {
+      if (i == 0) {
+        previousBits = reader.readBits(64);
+      } else if (reader.readBit()) {
+        if (reader.readBit()) {
+          previousLeading = (int) reader.readBits(5);
+          int meaningful = (int) reader.readBits(6) + 1;
+          previousTrailing = 64 - previousLeading - meaningful;
+        }
+        long xor = reader.readBits(64 - previousLeading - previousTrailing) << previousTrailing;
+        previousBits ^= xor;
+      }
+      values[offset + i] = Double.longBitsToDouble(previousBits);
+    }
+  }
+
+  /**
+   * Converts an {@code int} date to a day number, the epoch day for dates other than {@code LocalDate.MIN} and {@code LocalDate.MAX}.
+   *
+   * @param date  the {@code int} date
+   * @return the day number
+   */
+  private static long toDay(int date) {
+    if (date == Integer.MIN_VALUE) {
+      return MIN_DAY;
+    }
+    if (date == Integer.MAX_VALUE) {
+      return MAX_DAY;
+    }
+    // days from civil, avoiding the creation of a LocalDate
+    int month = (date / 100) % 100;
+    int day = date % 100;
+    int year = date / 10000 - (month <= 2 ? 1 : 0);
+    int era = (year >= 0 ? year : year - 399) / 400;
+    int yearOfEra = year - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+
+  /**
+   * Converts a day number to an {@code int} date.
+   *
+   * @param dayNumber  the day number
+   * @return the {@code int} date
+   */
+  private static int fromDay(long dayNumber) {
+    if (dayNumber == MIN_DAY) {
+      return Integer.MIN_VALUE;
+    }
+    if (dayNumber == MAX_DAY) {
+      return Integer.MAX_VALUE;
+    }
+    // civil from days, avoiding the creation of a LocalDate
+    long shifted = dayNumber + 719468;
+    long era = (shifted >= 0 ? shifted : shifted - 146096) / 146097;
+    int dayOfEra = (int) (shifted - era * 146097);
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    int month = shiftedMonth + (shiftedMonth < 10 ? 3 : -9);
+    int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+    return year * 10000 + month * 100 + day;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Writes a stream of bits, most significant bit first.
+   */
+  private static final class BitWriter {
+    private byte[] _bytes;
+    private int _bitPosition;
+
+    BitWriter(int initialBytes) {
+      _bytes = new byte[Math.max(initialBytes, 16)];
+    }
+
+    void writeBit(boolean bit) {
+      ensureCapacity(1);
+      if (bit) {
+        _bytes[_bitPosition >>> 3] |= 0x80 >>> (_bitPosition & 7);
+      }
+      _bitPosition++;
+    }
+
+    void writeBits(long value, int numBits) {
+      ensureCapacity(numBits);
+      int remaining = numBits;
+      while (remaining > 0) {
+        // fill the free bits of the current byte with the next bits of the value
+        int available = 8 - (_bitPosition & 7);
+        int count = Math.min(available, remaining);
+        int bits = (int) (value >>> (remaining - count)) & ((1 << count) - 1);
+        _bytes[_bitPosition >>> 3] |= bits << (available - count);
+        _bitPosition += count;
+        remaining -= count;
+      }
+    }
+
+    void writeDeltaOfDelta(long deltaOfDelta) {
+      if (deltaOfDelta == 0) {
+        writeBit(false);
+      } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+        writeBits(0b10, 2);
+        writeBits(deltaOfDelta + 63, 7);
+      } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+        writeBits(0b110, 3);
+        writeBits(deltaOfDelta + 255, 9);
+      } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+        writeBits(0b1110, 4);
+        writeBits(deltaOfDelta + 2047, 12);
+      } else if (deltaOfDelta >= Integer.MIN_VALUE && deltaOfDelta <= Integer.MAX_VALUE) {
+        writeBits(0b11110, 5);
+        writeBits(deltaOfDelta, 32);
+      } else {
+        writeBits(0b11111, 5);
+        writeBits(deltaOfDelta, 64);
+      }
+    }
+
+    private void ensureCapacity(int numBits) {
+      int requiredBytes = (_bitPosition + numBits + 7) >>> 3;
+      if (requiredBytes > _bytes.length) {
+        _bytes = Arrays.copyOf(_bytes, Math.max(requiredBytes, _bytes.length * 2));
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(_bytes, (_bitPosition + 7) >>> 3);
+    }
+  }
+
+  /**
+   * Reads a stream of bits written by {@link BitWriter}.
+   */
+  private static final class BitReader {
+    private final byte[] _bytes;
+    private int _bitPosition;
+
+    BitReader(byte[] bytes, int bitPosition) {
+      _bytes = bytes;
+      _bitPosition = bitPosition;
+    }
+
+    boolean readBit() {
+      boolean bit = (_bytes[_bitPosition >>> 3] & (0x80 >>> (_bitPosition & 7))) != 0;
+      _bitPosition++;
+      return bit;
+    }
+
+    long readBits(int numBits) {
+      long value = 0;
+      int remaining = numBits;
+      while (remaining > 0) {
+        // take the next bits of the current byte
+        int available = 8 - (_bitPosition & 7);
+        int count = Math.min(available, remaining);
+        int bits = (_bytes[_bitPosition >>> 3] >>> (available - count)) & ((1 << count) - 1);
+        value = (value << count) | bits;
+        _bitPosition += count;
+        remaining -= count;
+      }
+      return value;
+    }
+
+    long readDeltaOfDelta() {
+      if (!readBit()) {
+        return 0;
+      }
+      if (!readBit()) {
+        return readBits(7) - 63;
+      }
+      if (!readBit()) {
+        return readBits(9) - 255;
+      }
+      if (!readBit()) {
+        return readBits(12) - 2047;
+      }
+      if (!readBit()) {
+        return (int) readBits(32);
+      }
+      return readBits(64);
+    }
+  }
+
+}
@@ -0,0 +1,521 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.DoubleTimeSeriesOperators.UnaryOperator;
+import com.opengamma.timeseries.date.DateDoubleTimeSeries;
+
+/**
+ * A set of {@code LocalDate} time-series aligned on a shared index of dates.
+ * <p>
+ * The frame is created from any number of series in a single merge of their dates,
+ * either keeping the dates common to all the series or keeping the dates of any series
+ * and filling the missing values as specified by a {@link FillPolicy}.
+ * The values are held as one primitive column per series.
+ * <p>
+ * Element-wise expressions over the series, such as the value of a basket, are evaluated
+ * row by row in one pass by {@link #combine(RowOperator)}, without creating the intermediate
+ * series of a sequence of binary operations. Rolling window calculations produce a new frame.
+ * The series of the frame share the date index, so extracting them does not copy the dates.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class LocalDateDoubleTimeSeriesFrame {
+
+  /**
+   * An empty frame.
+   */
+  public static final LocalDateDoubleTimeSeriesFrame EMPTY_FRAME = new LocalDateDoubleTimeSeriesFrame(new int[0], new double[0][]);
+
+  /**
+   * The dates, ordered.
+   */
+  private final int[] _dates;
+  /**
+   * The values, one column per series, each the size of the dates.
+   */
+  private final double[][] _columns;
+
+  //-------------------------------------------------------------------------
+  /**
+   * The policy used to fill the value of a series on a date it does not contain.
+   */
+  public enum FillPolicy {
+    /**
+     * The value is NaN.
+     */
+    NAN,
+    /**
+     * The value is zero.
+     */
+    ZERO,
+    /**
+     * The value is the previous value of the series, NaN before the first date of the series.
+     */
+    PREVIOUS;
+  }
+
+  /**
+   * An operator combining the values of all the series on a date.
+   */
+  public interface RowOperator {
+    /**
+     * Combines the values of a row.
+     * <p>
+     * The array is reused between rows and must not be kept or altered.
+     *
+     * @param row  the values of the series on the date, in the order of the series
+     * @return the combined value
+     */
+    double operate(double[] row);
+  }
+
+  /**
+   * An operator reducing a window of consecutive values of a series.
+   */
+  public interface WindowOperator {
+    /**
+     * Reduces the values of a window.
+     * <p>
+     * The array holds all the values of the series and must not be altered.
+     *
+     * @param values  the values of the series
+     * @param fromIndex  the index of the first value of the window, inclusive
+     * @param toIndex  the index of the last value of the window, exclusive
+     * @return the reduced value
+     */
+    double operate(double[] values, int fromIndex, int toIndex);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Obtains a frame of the dates common to all the series.
+   *
+   * @param series  the series, not null
+   * @return the frame, not null
+   */
+  public static LocalDateDoubleTimeSeriesFrame intersection(DateDoubleTimeSeries<?>... series) {
+    Objects.requireNonNull(series, "series");
+    return intersection(Arrays.asList(series));
+  }
+
+  /**
+   * Obtains a frame of the dates common to all the series.
+   *
+   * @param series  the series, not null
+   * @return the frame, not null
+   */
+  public static LocalDateDoubleTimeSeriesFrame intersection(List<? extends DateDoubleTimeSeries<?>> series) {
+    Objects.requireNonNull(series, "series");
+    int[][] times = timesOf(series);
+    int[] pos = new int[times.length];
+    int minLength = Integer.MAX_VALUE;
+    for (int[] seriesTimes : times) {
+      minLength = Math.min(minLength, seriesTimes.length);
+    }
+    int[] dates = new int[times.length == 0 ? 0 : minLength];
+    int count = 0;
+    if (times.length > 0) {
+      outer:
+      while (true) {
+        // the candidate is the latest of the current dates, earlier dates cannot be common
+        int candidate = Integer.MIN_VALUE;
+        for (int k = 0; k < times.length; k++) {
+          if (pos[k] == times[k].length) {
+            break outer;
+          }
+          candidate = Math.max(candidate, times[k][pos[k]]);
+        }
+        boolean common = true;
+        for (int k = 0; k < times.length; k++) {
+          int[] seriesTimes = times[k];
+          int p = pos[k];
+          while (p < seriesTimes.length && seriesTimes[p] < candidate) {
+            p++;
+          }
+          if (p == seriesTimes.length) {
+            break outer;
+          }
+          common &= seriesTimes[p] == candidate;
+          pos[k] = p;
+        }
+        if (common) {
+          dates[count++] = candidate;
+          for (int k = 0; k < times.length; k++) {
+            pos[k]++;
+          }
+        }
+      }
+    }
+    return create(series, times, Arrays.copyOf(dates, count), FillPolicy.NAN);
+  }
+
+  /**
+   * Obtains a frame of the dates of any of the series.
+   *
+   * @param fillPolicy  the policy filling the values missing from a series, not null
+   * @param series  the series, not null
+   * @return the frame, not null
+   */
+  public static LocalDateDoubleTimeSeriesFrame union(FillPolicy fillPolicy, DateDoubleTimeSeries<?>... series) {
+    Objects.requireNonNull(series, "series");
+    return union(fillPolicy, Arrays.asList(series));
+  }
+
+  /**
+   * Obtains a frame of the dates of any of the series.
+   *
+   * @param fillPolicy  the policy filling the values missing from a series, not null
+   * @param series  the series, not null
+   * @return the frame, not null
+   */
+  public static LocalDateDoubleTimeSeriesFrame union(FillPolicy fillPolicy, List<? extends DateDoubleTimeSeries<?>> series) {
+    Objects.requireNonNull(fillPolicy, "fillPolicy");
+    Objects.requireNonNull(series, "series");
+    int[][] times = timesOf(series);
+    int[] pos = new int[times.length];
+    int total = 0;
+    for (int[] seriesTimes : times) {
+      total += seriesTimes.length;
+    }
+    int[] dates = new int[total];
+    int count = 0;
+    while (true) {
+      boolean remaining = false;
+      int earliest = Integer.MAX_VALUE;
+      for (int k = 0; k < times.length; k++) {
+        if (pos[k] < times[k].length) {
+          remaining = true;
+          earliest = Math.min(earliest, times[k][pos[k]]);
+        }
+      }
+      if (!remaining) {
+        break;
+      }
+      dates[count++] = earliest;
+      for (int k = 0; k < times.length; k++) {
+        if (pos[k] < times[k].length && times[k][pos[k]] == earliest) {
+          pos[k]++;
+        }
+      }
+    }
+    return create(series, times, Arrays.copyOf(dates, count), fillPolicy);
+  }
+
+  /**
+   * Gets the dates of the series, without copying them where possible.
+   *
+   * @param series  the series, not null
+   * @return the dates of each series, not null
+   */
+  private static int[][] timesOf(List<? extends DateDoubleTimeSeries<?>> series) {
+    int[][] times = new int[series.size()][];
+    for (int k = 0; k < times.length; k++) {
+      DateDoubleTimeSeries<?> ts = Objects.requireNonNull(series.get(k), "series");
+      times[k] = ts instanceof AbstractLocalDateDoubleTimeSeries ? ((AbstractLocalDateDoubleTimeSeries) ts).timesArrayFast0() : ts.timesArrayFast();
+    }
+    return times;
+  }
+
+  /**
+   * Creates a frame, gathering the values of each series on the dates.
+   *
+   * @param series  the series, not null
+   * @param times  the dates of each series, not null
+   * @param dates  the dates of the frame, a subset of the union of the dates of the series, not null
+   * @param fillPolicy  the policy filling the values missing from a series, not null
+   * @return the frame, not null
+   */
+  private static LocalDateDoubleTimeSeriesFrame create(
+      List<? extends DateDoubleTimeSeries<?>> series, int[][] times, int[] dates, FillPolicy fillPolicy) {
+    double[][] columns = new double[times.length][];
+    for (int k = 0; k < times.length; k++) {
+      DateDoubleTimeSeries<?> ts = series.get(k);
+      double[] values = ts instanceof AbstractLocalDateDoubleTimeSeries ? ((AbstractLocalDateDoubleTimeSeries) ts).valuesArrayFast0() : ts.valuesArrayFast();
+      int[] seriesTimes = times[k];
+      double[] column = new double[dates.length];
+      double previous = Double.NaN;
+      int p = 0;
+      for (int i = 0; i < dates.length; i++) {
+        while (p < seriesTimes.length && seriesTimes[p] < dates[i]) {
+          previous = values[p++];
+        }
+        if (p < seriesTimes.length && seriesTimes[p] == dates[i]) {
+          previous = values[p++];
+          column[i] = previous;
+        } else {
+          switch (fillPolicy) {
+            case ZERO:
+              column[i] = 0d;
+              break;
+            case PREVIOUS:
+              column[i] = previous;
+              break;
+            default:
+              column[i] = Double.NaN;
+              break;
+          }
+        }
+      }
+      columns[k] = column;
+    }
+    return new LocalDateDoubleTimeSeriesFrame(dates, columns);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param dates  the dates, not null
+   * @param columns  the values, one column per series, not null
+   */
+  private LocalDateDoubleTimeSeriesFrame(int[] dates, double[][] columns) {
+    _dates = dates;
+    _columns = columns;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the number of dates.
+   *
+   * @return the number of dates
+   */
+  public int size() {
+    return _dates.length;
+  }
+
+  /**
+   * Gets the number of series.
+   *
+   * @return the number of series
+   */
+  public int getSeriesCount() {
+    return _columns.length;
+  }
+
+  /**
+   * Gets a date as an {@code int}.
+   *
+   * @param index  the index of the date
+   * @return the date
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public int getDateFast(int index) {
+    return _dates[index];
+  }
+
+  /**
+   * Gets a date.
+   *
+   * @param index  the index of the date
+   * @return the date, not null
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public LocalDate getDate(int index) {
+    return LocalDateToIntConverter.convertToLocalDate(_dates[index]);
+  }
+
+  /**
+   * Gets the dates as {@code int}s.
+   *
+   * @return a copy of the dates, not null
+   */
+  public int[] datesArrayFast() {
+    return _dates.clone();
+  }
+
+  /**
+   * Gets the value of a series on a date.
+   *
+   * @param index  the index of the date
+   * @param seriesIndex  the index of the series
+   * @return the value
+   * @throws IndexOutOfBoundsException if an index is invalid
+   */
+  public double getValueFast(int index, int seriesIndex) {
+    return _columns[seriesIndex][index];
+  }
+
+  /**
+   * Gets the values of a series.
+   *
+   * @param seriesIndex  the index of the series
+   * @return a copy of the values, not null
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public double[] valuesArrayFast(int seriesIndex) {
+    return _columns[seriesIndex].clone();
+  }
+
+  /**
+   * Gets a series aligned on the dates of this frame.
+   *
+   * @param seriesIndex  the index of the series
+   * @return the series, not null
+   * @throws IndexOutOfBoundsException if the index is invalid
+   */
+  public LocalDateDoubleTimeSeries getSeries(int seriesIndex) {
+    return new ImmutableLocalDateDoubleTimeSeries(_dates, _columns[seriesIndex]);  // immutable, so can share arrays
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Combines the values of the series on each date into a single series.
+   *
+   * @param operator  the operator, not null
+   * @return the combined series, not null
+   */
+  public LocalDateDoubleTimeSeries combine(RowOperator operator) {
+    Objects.requireNonNull(operator, "operator");
+    double[] row = new double[_columns.length];
+    double[] result = new double[_dates.length];
+    for (int i = 0; i < result.length; i++) {
+      for (int k = 0; k < row.length; k++) {
+        row[k] = _columns[k][i];
+      }
+      result[i] = operator.operate(row);
+    }
+    return new ImmutableLocalDateDoubleTimeSeries(_dates, result);
+  }
+
+  /**
+   * Calculates the weighted sum of the series on each date, such as the value of a basket.
+   *
+   * @param weights  the weights, one per series, not null
+   * @return the weighted sum, not null
+   */
+  public LocalDateDoubleTimeSeries weightedSum(double... weights) {
+    Objects.requireNonNull(weights, "weights");
+    if (weights.length != _columns.length) {
+      throw new IllegalArgumentException("Weights must be the same size as the number of series: " + weights.length + " != " + _columns.length);
+    }
+    double[] result = new double[_dates.length];
+    for (int k = 0; k < _columns.length; k++) {
+      double[] column = _columns[k];
+      double weight = weights[k];
+      for (int i = 0; i < result.length; i++) {
+        result[i] += weight * column[i];
+      }
+    }
+    return new ImmutableLocalDateDoubleTimeSeries(_dates, result);
+  }
+
+  /**
+   * Applies an operator to every value of every series.
+   *
+   * @param operator  the operator, not null
+   * @return the resulting frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame operate(UnaryOperator operator) {
+    Objects.requireNonNull(operator, "operator");
+    double[][] columns = new double[_columns.length][];
+    for (int k = 0; k < columns.length; k++) {
+      double[] column = _columns[k].clone();
+      for (int i = 0; i < column.length; i++) {
+        column[i] = operator.operate(column[i]);
+      }
+      columns[k] = column;
+    }
+    return new LocalDateDoubleTimeSeriesFrame(_dates, columns);  // immutable, so can share dates
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Reduces each rolling window of consecutive dates of each series.
+   * <p>
+   * The result has one date per complete window, the last date of the window.
+   *
+   * @param window  the number of dates of a window, one or more
+   * @param operator  the operator, not null
+   * @return the resulting frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame rolling(int window, WindowOperator operator) {
+    Objects.requireNonNull(operator, "operator");
+    if (window < 1) {
+      throw new IllegalArgumentException("Window must be one or more: " + window);
+    }
+    int rows = Math.max(_dates.length - window + 1, 0);
+    int[] dates = Arrays.copyOfRange(_dates, _dates.length - rows, _dates.length);
+    double[][] columns = new double[_columns.length][rows];
+    for (int k = 0; k < columns.length; k++) {
+      double[] values = _columns[k];
+      double[] column = columns[k];
+      for (int i = 0; i < rows; i++) {
+        column[i] = operator.operate(values, i, i + window);
+      }
+    }
+    return new LocalDateDoubleTimeSeriesFrame(dates, columns);
+  }
+
+  /**
+   * Calculates the sum of each rolling window of consecutive dates of each series.
+   *
+   * @param window  the number of dates of a window, one or more
+   * @return the resulting frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame rollingSum(int window) {
+    return rolling(window, new WindowOperator() {
+      @Override
+      public double operate(double[] values, int fromIndex, int toIndex) {
+        return sum(values, fromIndex, toIndex);
+      }
+    });
+  }
+
+  /**
+   * Calculates the mean of each rolling window of consecutive dates of each series.
+   *
+   * @param window  the number of dates of a window, one or more
+   * @return the resulting frame, not null
+   */
+  public LocalDateDoubleTimeSeriesFrame rollingMean(final int window) {
+    return rolling(window, new WindowOperator() {
+      @Override
+      public double operate(double[] values, int fromIndex, int toIndex) {
+        return sum(values, fromIndex, toIndex) / window;
+      }
+    });
+  }
+
+  private static double sum(double[] values, int fromIndex, int toIndex) {
+    // summed for each window, as a running sum would keep any NaN and accumulate rounding
+    double sum = 0;
+    for (int i = fromIndex; i < toIndex; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof LocalDateDoubleTimeSeriesFrame) {
+      LocalDateDoubleTimeSeriesFrame other = (LocalDateDoubleTimeSeriesFrame) obj;
+      return Arrays.equals(_dates, other._dates) &&
+              Arrays.deepEquals(_columns, other._columns);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(_dates) ^ Arrays.deepHashCode(_columns);
+  }
+
+  @Override
+  public String toString() {
+    return "LocalDateDoubleTimeSeriesFrame[" + _dates.length + " dates, " + _columns.length + " series]";
+  }
+
+}
@@ -9,6 +9,7 @@ package com.opengamma.timeseries;
 import org.testng.annotations.Test;
 import org.threeten.bp.LocalDate;
 
+import com.opengamma.timeseries.date.localdate.CompressedLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 
 /**
@@ -157,4 +158,55 @@ public class TimeSeriesPerformanceTest {
     System.out.println(diff + " " + ts.getEarliestValue() + " " + name);
   }
 
+  //-------------------------------------------------------------------------
+  public void test_compress_big() {
+    for (int i = 0; i < 5; i++) {
+      compress(BIG, "compress-big");
+    }
+  }
+
+  void compress(int size, String name) {
+    int loop = 10_000_000 / size;
+    ImmutableLocalDateDoubleTimeSeries ts = priceSeries(size);
+    CompressedLocalDateDoubleTimeSeries compressed = null;
+    long start = System.nanoTime();
+    for (int j = 0; j < loop; j++) {
+      compressed = CompressedLocalDateDoubleTimeSeries.of(ts);
+    }
+    long end = System.nanoTime();
+    double diff = (((double) end) - ((double) start)) / 1_000_000L;
+    System.out.println(diff + " " + compressed.getCompressedSize() + " " + name);
+  }
+
+  public void test_decompress_big() {
+    for (int i = 0; i < 5; i++) {
+      decompress(BIG, "decompress-big");
+    }
+  }
+
+  void decompress(int size, String name) {
+    int loop = 10_000_000 / size;
+    CompressedLocalDateDoubleTimeSeries compressed = CompressedLocalDateDoubleTimeSeries.of(priceSeries(size));
+    int[] times = new int[size];
+    double[] values = new double[size];
+    long start = System.nanoTime();
+    for (int j = 0; j < loop; j++) {
+      compressed.decodeInto(times, values);
+    }
+    long end = System.nanoTime();
+    double diff = (((double) end) - ((double) start)) / 1_000_000L;
+    System.out.println(diff + " " + values[0] + " " + name);
+  }
+
+  private ImmutableLocalDateDoubleTimeSeries priceSeries(int size) {
+    LocalDate base = LocalDate.now().minusYears(2);
+    LocalDate[] dates = new LocalDate[size];
+    double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      dates[i] = base.plusDays(i);
+      values[i] = 100d + (i % 97) * 0.0125d;
+    }
+    return ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+  }
+
 }
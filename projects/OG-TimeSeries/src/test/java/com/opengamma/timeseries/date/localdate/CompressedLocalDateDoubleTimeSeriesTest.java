@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+import org.testng.annotations.Test;
+
+import com.opengamma.timeseries.DoubleTimeSeries;
+
+/**
+ * Test.
+ */
+@Test(groups = "unit")
+public class CompressedLocalDateDoubleTimeSeriesTest extends LocalDateDoubleTimeSeriesTest {
+
+  @Override
+  protected LocalDateDoubleTimeSeries createEmptyTimeSeries() {
+    return CompressedLocalDateDoubleTimeSeries.of(ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES);
+  }
+
+  @Override
+  protected LocalDateDoubleTimeSeries createTimeSeries(LocalDate[] times, double[] values) {
+    return CompressedLocalDateDoubleTimeSeries.of(ImmutableLocalDateDoubleTimeSeries.of(times, values));
+  }
+
+  @Override
+  protected LocalDateDoubleTimeSeries createTimeSeries(List<LocalDate> times, List<Double> values) {
+    return CompressedLocalDateDoubleTimeSeries.of(ImmutableLocalDateDoubleTimeSeries.of(times, values));
+  }
+
+  @Override
+  protected LocalDateDoubleTimeSeries createTimeSeries(DoubleTimeSeries<LocalDate> dts) {
+    return CompressedLocalDateDoubleTimeSeries.of(ImmutableLocalDateDoubleTimeSeries.from(dts));
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_roundTrip_businessDays() {
+    ImmutableLocalDateDoubleTimeSeries ts = businessDaySeries(30 * 261, 42);
+    CompressedLocalDateDoubleTimeSeries compressed = CompressedLocalDateDoubleTimeSeries.of(ts);
+    assertEquals(ts.size(), compressed.size());
+    assertEquals(ts, compressed);
+    assertEquals(compressed, ts);
+    assertEquals(ts.hashCode(), compressed.hashCode());
+  }
+
+  public void test_roundTrip_specialValues() {
+    int[] times = new int[] {101, 19000101, 19000301, 20121231, 20130101, 20130102, 99991231};
+    double[] values = new double[] {0d, -0d, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE, 1.5d};
+    ImmutableLocalDateDoubleTimeSeries ts = ImmutableLocalDateDoubleTimeSeries.of(times, values);
+    CompressedLocalDateDoubleTimeSeries compressed = CompressedLocalDateDoubleTimeSeries.of(ts);
+    assertTrue(Arrays.equals(times, compressed.timesArrayFast()));
+    double[] decoded = compressed.valuesArrayFast();
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(decoded[i]));
+    }
+  }
+
+  public void test_roundTrip_everyDay() {
+    // every date of four centuries, covering the leap year rules
+    LocalDate date = LocalDate.of(1899, 12, 1);
+    int size = 146097 + 62;
+    LocalDate[] dates = new LocalDate[size];
+    double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      dates[i] = date;
+      values[i] = i % 7;
+      date = date.plusDays(1);
+    }
+    ImmutableLocalDateDoubleTimeSeries ts = ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+    assertEquals(ts, CompressedLocalDateDoubleTimeSeries.of(ts));
+  }
+
+  public void test_compression() {
+    ImmutableLocalDateDoubleTimeSeries ts = businessDaySeries(30 * 261, 42);
+    CompressedLocalDateDoubleTimeSeries compressed = CompressedLocalDateDoubleTimeSeries.of(ts);
+    // prices with four decimals compress to well under the twelve bytes per point of the arrays
+    assertTrue(compressed.getCompressedSize() < ts.size() * 8);
+    ImmutableLocalDateDoubleTimeSeries constant = ImmutableLocalDateDoubleTimeSeries.of(ts.timesArrayFast(), new double[ts.size()]);
+    assertTrue(CompressedLocalDateDoubleTimeSeries.of(constant).getCompressedSize() < ts.size());
+  }
+
+  public void test_ofCompressedData() {
+    ImmutableLocalDateDoubleTimeSeries ts = businessDaySeries(500, 1);
+    CompressedLocalDateDoubleTimeSeries compressed = CompressedLocalDateDoubleTimeSeries.of(ts);
+    CompressedLocalDateDoubleTimeSeries copy = CompressedLocalDateDoubleTimeSeries.ofCompressedData(compressed.getCompressedData());
+    assertEquals(ts.size(), copy.size());
+    assertEquals(ts, copy);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_ofCompressedData_invalid() {
+    CompressedLocalDateDoubleTimeSeries.ofCompressedData(new byte[] {42, 0, 0, 0, 0});
+  }
+
+  public void test_decodeInto() {
+    ImmutableLocalDateDoubleTimeSeries ts = businessDaySeries(500, 2);
+    CompressedLocalDateDoubleTimeSeries compressed = CompressedLocalDateDoubleTimeSeries.of(ts);
+    int[] times = new int[600];
+    double[] values = new double[600];
+    compressed.decodeInto(times, values);
+    assertTrue(Arrays.equals(ts.timesArrayFast(), Arrays.copyOf(times, 500)));
+    assertTrue(Arrays.equals(ts.valuesArrayFast(), Arrays.copyOf(values, 500)));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_decodeInto_tooSmall() {
+    CompressedLocalDateDoubleTimeSeries.of(businessDaySeries(500, 2)).decodeInto(new int[499], new double[500]);
+  }
+
+  public void test_serialization() throws Exception {
+    CompressedLocalDateDoubleTimeSeries compressed = CompressedLocalDateDoubleTimeSeries.of(businessDaySeries(500, 3));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(compressed);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Object read = in.readObject();
+      assertEquals(CompressedLocalDateDoubleTimeSeries.class, read.getClass());
+      assertEquals(compressed, read);
+    }
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Creates a random walk of prices with four decimals on business days.
+   */
+  static ImmutableLocalDateDoubleTimeSeries businessDaySeries(int size, long seed) {
+    Random random = new Random(seed);
+    LocalDate date = LocalDate.of(1983, 1, 3);
+    LocalDate[] dates = new LocalDate[size];
+    double[] values = new double[size];
+    long price = 1_000_000;
+    for (int i = 0; i < size; i++) {
+      dates[i] = date;
+      values[i] = price / 10_000d;
+      price = Math.max(price + (long) (random.nextGaussian() * 5_000), 1);
+      date = date.plusDays(date.getDayOfWeek() == DayOfWeek.FRIDAY ? 3 : 1);
+    }
+    return ImmutableLocalDateDoubleTimeSeries.of(dates, values);
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.timeseries.date.localdate;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.threeten.bp.LocalDate;
+import org.testng.annotations.Test;
+
+import com.opengamma.timeseries.DoubleTimeSeriesOperators;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeriesFrame.FillPolicy;
+import com.opengamma.timeseries.date.localdate.LocalDateDoubleTimeSeriesFrame.RowOperator;
+
+/**
+ * Test.
+ */
+@Test(groups = "unit")
+public class LocalDateDoubleTimeSeriesFrameTest {
+
+  private static final ImmutableLocalDateDoubleTimeSeries TS1 = ImmutableLocalDateDoubleTimeSeries.of(
+      new int[] {20130101, 20130102, 20130103, 20130104, 20130107}, new double[] {1d, 2d, 3d, 4d, 5d});
+  private static final ImmutableLocalDateDoubleTimeSeries TS2 = ImmutableLocalDateDoubleTimeSeries.of(
+      new int[] {20121231, 20130102, 20130104, 20130107, 20130108}, new double[] {10d, 20d, 40d, 50d, 60d});
+  private static final ImmutableLocalDateDoubleTimeSeries TS3 = ImmutableLocalDateDoubleTimeSeries.of(
+      new int[] {20130102, 20130103, 20130104, 20130107}, new double[] {100d, 200d, 300d, 400d});
+
+  //-------------------------------------------------------------------------
+  public void test_intersection() {
+    LocalDateDoubleTimeSeriesFrame test = LocalDateDoubleTimeSeriesFrame.intersection(TS1, TS2, TS3);
+    assertEquals(3, test.size());
+    assertEquals(3, test.getSeriesCount());
+    assertTrue(Arrays.equals(new int[] {20130102, 20130104, 20130107}, test.datesArrayFast()));
+    assertEquals(LocalDate.of(2013, 1, 4), test.getDate(1));
+    assertEquals(20130107, test.getDateFast(2));
+    assertTrue(Arrays.equals(new double[] {2d, 4d, 5d}, test.valuesArrayFast(0)));
+    assertTrue(Arrays.equals(new double[] {20d, 40d, 50d}, test.valuesArrayFast(1)));
+    assertEquals(300d, test.getValueFast(1, 2));
+  }
+
+  public void test_intersection_matchesPairwise() {
+    LocalDateDoubleTimeSeriesFrame test = LocalDateDoubleTimeSeriesFrame.intersection(TS1, TS2, TS3);
+    assertEquals(TS1.intersectionFirstValue(TS2).intersectionFirstValue(TS3), test.getSeries(0));
+    assertEquals(TS3.intersectionFirstValue(TS1).intersectionFirstValue(TS2), test.getSeries(2));
+  }
+
+  public void test_intersection_disjoint() {
+    LocalDateDoubleTimeSeriesFrame test = LocalDateDoubleTimeSeriesFrame.intersection(TS1, ImmutableLocalDateDoubleTimeSeries.of(LocalDate.of(2014, 1, 1), 1d));
+    assertEquals(0, test.size());
+    assertEquals(2, test.getSeriesCount());
+  }
+
+  public void test_intersection_none() {
+    assertEquals(LocalDateDoubleTimeSeriesFrame.EMPTY_FRAME,
+        LocalDateDoubleTimeSeriesFrame.intersection(Collections.<ImmutableLocalDateDoubleTimeSeries>emptyList()));
+  }
+
+  public void test_union() {
+    LocalDateDoubleTimeSeriesFrame test = LocalDateDoubleTimeSeriesFrame.union(FillPolicy.NAN, TS1, TS2);
+    assertTrue(Arrays.equals(new int[] {20121231, 20130101, 20130102, 20130103, 20130104, 20130107, 20130108}, test.datesArrayFast()));
+    assertTrue(Arrays.equals(new double[] {Double.NaN, 1d, 2d, 3d, 4d, 5d, Double.NaN}, test.valuesArrayFast(0)));
+    assertTrue(Arrays.equals(new double[] {10d, Double.NaN, 20d, Double.NaN, 40d, 50d, 60d}, test.valuesArrayFast(1)));
+  }
+
+  public void test_union_fillZero() {
+    LocalDateDoubleTimeSeriesFrame test = LocalDateDoubleTimeSeriesFrame.union(FillPolicy.ZERO, TS1, TS2);
+    assertTrue(Arrays.equals(new double[] {0d, 1d, 2d, 3d, 4d, 5d, 0d}, test.valuesArrayFast(0)));
+  }
+
+  public void test_union_fillPrevious() {
+    LocalDateDoubleTimeSeriesFrame test = LocalDateDoubleTimeSeriesFrame.union(FillPolicy.PREVIOUS, TS1, TS2);
+    assertTrue(Arrays.equals(new double[] {Double.NaN, 1d, 2d, 3d, 4d, 5d, 5d}, test.valuesArrayFast(0)));
+    assertTrue(Arrays.equals(new double[] {10d, 10d, 20d, 20d, 40d, 50d, 60d}, test.valuesArrayFast(1)));
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_combine() {
+    LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.intersection(TS1, TS2, TS3);
+    LocalDateDoubleTimeSeries test = frame.combine(new RowOperator() {
+      @Override
+      public double operate(double[] row) {
+        return row[0] * row[1] - row[2];
+      }
+    });
+    assertEquals(TS1.multiply(TS2).subtract(TS3), test);
+  }
+
+  public void test_weightedSum() {
+    LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.intersection(TS1, TS2, TS3);
+    LocalDateDoubleTimeSeries test = frame.weightedSum(2d, 0.5d, -1d);
+    assertEquals(TS1.multiply(2d).add(TS2.multiply(0.5d)).subtract(TS3), test);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_weightedSum_wrongSize() {
+    LocalDateDoubleTimeSeriesFrame.intersection(TS1, TS2).weightedSum(1d);
+  }
+
+  public void test_operate() {
+    LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.intersection(TS1, TS2);
+    LocalDateDoubleTimeSeriesFrame test = frame.operate(DoubleTimeSeriesOperators.NEGATE_OPERATOR);
+    assertEquals(frame.getSeries(1).negate(), test.getSeries(1));
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_rollingSum() {
+    LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.union(FillPolicy.NAN, TS1);
+    LocalDateDoubleTimeSeriesFrame test = frame.rollingSum(3);
+    assertTrue(Arrays.equals(new int[] {20130103, 20130104, 20130107}, test.datesArrayFast()));
+    assertTrue(Arrays.equals(new double[] {6d, 9d, 12d}, test.valuesArrayFast(0)));
+  }
+
+  public void test_rollingMean_missingValue() {
+    LocalDateDoubleTimeSeriesFrame frame = LocalDateDoubleTimeSeriesFrame.union(FillPolicy.NAN, TS1, TS2);
+    LocalDateDoubleTimeSeriesFrame test = frame.rollingMean(2);
+    assertEquals(6, test.size());
+    assertTrue(Arrays.equals(new double[] {Double.NaN, 1.5d, 2.5d, 3.5d, 4.5d, Double.NaN}, test.valuesArrayFast(0)));
+  }
+
+  public void test_rolling_windowTooLarge() {
+    LocalDateDoubleTimeSeriesFrame test = LocalDateDoubleTimeSeriesFrame.union(FillPolicy.NAN, TS1).rollingSum(6);
+    assertEquals(0, test.size());
+    assertEquals(1, test.getSeriesCount());
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void test_rolling_invalidWindow() {
+    LocalDateDoubleTimeSeriesFrame.union(FillPolicy.NAN, TS1).rollingSum(0);
+  }
+
+  //-------------------------------------------------------------------------
+  public void test_equalsHashCode() {
+    LocalDateDoubleTimeSeriesFrame a = LocalDateDoubleTimeSeriesFrame.intersection(TS1, TS2);
+    LocalDateDoubleTimeSeriesFrame b = LocalDateDoubleTimeSeriesFrame.intersection(TS1, TS2);
+    assertEquals(a, b);
+    assertEquals(a.hashCode(), b.hashCode());
+    assertTrue(a.equals(a));
+    assertTrue(!a.equals(LocalDateDoubleTimeSeriesFrame.intersection(TS2, TS1)));
+    assertTrue(!a.equals(""));
+  }
+
+}
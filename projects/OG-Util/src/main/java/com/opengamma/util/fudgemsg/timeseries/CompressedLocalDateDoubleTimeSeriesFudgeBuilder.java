@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.fudgemsg.timeseries;
+
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeBuilder;
+import org.fudgemsg.mapping.FudgeBuilderFor;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.opengamma.timeseries.date.DateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.CompressedLocalDateDoubleTimeSeries;
+
+/**
+ * Fudge message encoder/decoder (builder) for CompressedLocalDateDoubleTimeSeries
+ */
+@FudgeBuilderFor(CompressedLocalDateDoubleTimeSeries.class)
+public class CompressedLocalDateDoubleTimeSeriesFudgeBuilder implements FudgeBuilder<CompressedLocalDateDoubleTimeSeries> {
+
+  @Override
+  public MutableFudgeMsg buildMessage(FudgeSerializer serializer, CompressedLocalDateDoubleTimeSeries object) {
+    return DoubleTimeSeriesFudgeBuilder.INSTANCE.buildMessage(serializer, object);
+  }
+
+  @Override
+  public CompressedLocalDateDoubleTimeSeries buildObject(FudgeDeserializer deserializer, FudgeMsg message) {
+    return CompressedLocalDateDoubleTimeSeries.of((DateDoubleTimeSeries<?>) DoubleTimeSeriesFudgeBuilder.INSTANCE.buildObject(deserializer, message));
+  }
+
+}
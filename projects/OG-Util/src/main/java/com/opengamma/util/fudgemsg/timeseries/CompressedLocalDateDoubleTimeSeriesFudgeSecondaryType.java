@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.fudgemsg.timeseries;
+
+import org.fudgemsg.types.FudgeSecondaryType;
+import org.fudgemsg.types.SecondaryFieldType;
+import org.fudgemsg.wire.types.FudgeWireType;
+
+import com.opengamma.timeseries.date.localdate.CompressedLocalDateDoubleTimeSeries;
+
+/**
+ * Defines a {@code CompressedLocalDateDoubleTimeSeries} as a Fudge type using a byte array.
+ * <p>
+ * A time-series is typically encoded as a sub-message in Fudge with an array of dates and an array of values.
+ * This class allows the objects to be sent as a single byte array field using
+ * {@link CompressedLocalDateDoubleTimeSeries#getCompressedData()} and
+ * {@link CompressedLocalDateDoubleTimeSeries#ofCompressedData(byte[])}.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public final class CompressedLocalDateDoubleTimeSeriesFudgeSecondaryType extends SecondaryFieldType<CompressedLocalDateDoubleTimeSeries, byte[]> {
+
+  /** Serialization version. */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Singleton instance of the type.
+   */
+  @FudgeSecondaryType
+  public static final CompressedLocalDateDoubleTimeSeriesFudgeSecondaryType INSTANCE = new CompressedLocalDateDoubleTimeSeriesFudgeSecondaryType();
+
+  /**
+   * Creates an instance.
+   */
+  private CompressedLocalDateDoubleTimeSeriesFudgeSecondaryType() {
+    super(FudgeWireType.BYTE_ARRAY, CompressedLocalDateDoubleTimeSeries.class);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public byte[] secondaryToPrimary(final CompressedLocalDateDoubleTimeSeries series) {
+    return series.getCompressedData();
+  }
+
+  @Override
+  public CompressedLocalDateDoubleTimeSeries primaryToSecondary(final byte[] data) {
+    return CompressedLocalDateDoubleTimeSeries.ofCompressedData(data);
+  }
+
+}
@@ -18,6 +18,7 @@ import org.threeten.bp.ZoneOffset;
 
 import com.opengamma.timeseries.DoubleTimeSeries;
 import com.opengamma.timeseries.date.DateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.CompressedLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
 import com.opengamma.timeseries.date.localdate.LocalDateToIntConverter;
 import com.opengamma.timeseries.precise.PreciseDoubleTimeSeries;
@@ -31,6 +32,8 @@ import com.opengamma.timeseries.precise.zdt.ZonedDateTimeDoubleTimeSeries;
 @FudgeBuilderFor(DoubleTimeSeries.class)
 public class DoubleTimeSeriesFudgeBuilder implements FudgeBuilder<DoubleTimeSeries<?>> {
 
+  /** Field name. */
+  public static final String COMPRESSED = "compressed";
   /** Field name. */
   public static final String DATES = "dates";
   /** Field name. */
@@ -49,7 +52,9 @@ public class DoubleTimeSeriesFudgeBuilder implements FudgeBuilder<DoubleTimeSeri
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, DoubleTimeSeries<?> object) {
     final MutableFudgeMsg message = serializer.newMessage();
     message.add(null, 0, FudgeWireType.STRING, DoubleTimeSeries.class.getName()); // we need to stick the class name in so receiver knows.
-    if (object instanceof DateDoubleTimeSeries) {
+    if (object instanceof CompressedLocalDateDoubleTimeSeries) {
+      buildMessage(message, (CompressedLocalDateDoubleTimeSeries) object);
+    } else if (object instanceof DateDoubleTimeSeries) {
       buildMessage(message, (DateDoubleTimeSeries<?>) object);
     } else if (object instanceof ZonedDateTimeDoubleTimeSeries) {
       buildMessage(message, (ZonedDateTimeDoubleTimeSeries) object);
@@ -61,6 +66,11 @@ public class DoubleTimeSeriesFudgeBuilder implements FudgeBuilder<DoubleTimeSeri
     return message;
   }
 
+  void buildMessage(final MutableFudgeMsg message, CompressedLocalDateDoubleTimeSeries series) {
+    // sent as is, without decoding the series
+    message.add(COMPRESSED, null, FudgeWireType.BYTE_ARRAY, series.getCompressedData());
+  }
+
   void buildMessage(final MutableFudgeMsg message, DateDoubleTimeSeries<?> series) {
     message.add(DATES, null, FudgeWireType.INT_ARRAY, series.timesArrayFast());
     message.add(VALUES, null, FudgeWireType.DOUBLE_ARRAY, series.valuesArrayFast());
@@ -130,6 +140,10 @@ public class DoubleTimeSeriesFudgeBuilder implements FudgeBuilder<DoubleTimeSeri
     }
     
     // read new format
+    byte[] compressed = (byte[]) message.getValue(COMPRESSED);
+    if (compressed != null) {
+      return CompressedLocalDateDoubleTimeSeries.ofCompressedData(compressed);
+    }
     int[] dates = (int[]) message.getValue(DATES);
     long[] instants = (long[]) message.getValue(INSTANTS);
     double[] values = (double[]) message.getValue(VALUES);
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2013 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util.fudgemsg.timeseries;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import org.fudgemsg.FudgeContext;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.threeten.bp.LocalDate;
+
+import com.opengamma.timeseries.date.localdate.CompressedLocalDateDoubleTimeSeries;
+import com.opengamma.timeseries.date.localdate.ImmutableLocalDateDoubleTimeSeries;
+import com.opengamma.util.test.AbstractFudgeBuilderTestCase;
+import com.opengamma.util.test.TestGroup;
+
+/**
+ * Test Fudge encoding.
+ */
+@Test(groups = TestGroup.UNIT)
+public class CompressedLocalDateDoubleTimeSeriesFudgeEncodingTest extends AbstractFudgeBuilderTestCase {
+
+  private CompressedLocalDateDoubleTimeSeries ts;
+
+  @BeforeMethod
+  public void setUp() {
+    LocalDate[] dates = new LocalDate[] {LocalDate.of(2012, 6, 29), LocalDate.of(2012, 7, 2), LocalDate.of(2012, 7, 3)};
+    double[] values = new double[] {1.1d, 2.2d, 2.2d};
+    ts = CompressedLocalDateDoubleTimeSeries.of(ImmutableLocalDateDoubleTimeSeries.of(dates, values));
+  }
+
+  public void test_builder() {
+    FudgeContext context = new FudgeContext();
+    context.getObjectDictionary().addBuilder(CompressedLocalDateDoubleTimeSeries.class, new CompressedLocalDateDoubleTimeSeriesFudgeBuilder());
+    setContext(context);
+    assertEncodeDecodeCycle(CompressedLocalDateDoubleTimeSeries.class, ts);
+  }
+
+  public void test_secondaryType() {
+    FudgeContext context = new FudgeContext();
+    context.getTypeDictionary().addType(CompressedLocalDateDoubleTimeSeriesFudgeSecondaryType.INSTANCE);
+    setContext(context);
+    assertEncodeDecodeCycle(CompressedLocalDateDoubleTimeSeries.class, ts);
+  }
+
+  public void test_doubleTimeSeriesBuilder() {
+    CompressedLocalDateDoubleTimeSeries empty = CompressedLocalDateDoubleTimeSeries.of(ImmutableLocalDateDoubleTimeSeries.EMPTY_SERIES);
+    Object decoded = DoubleTimeSeriesFudgeBuilder.INSTANCE.buildObject(getFudgeDeserializer(),
+        DoubleTimeSeriesFudgeBuilder.INSTANCE.buildMessage(getFudgeSerializer(), ts));
+    assertEquals(CompressedLocalDateDoubleTimeSeries.class, decoded.getClass());
+    assertEquals(ts, decoded);
+    assertEquals(empty, DoubleTimeSeriesFudgeBuilder.INSTANCE.buildObject(getFudgeDeserializer(),
+        DoubleTimeSeriesFudgeBuilder.INSTANCE.buildMessage(getFudgeSerializer(), empty)));
+  }
+
+}